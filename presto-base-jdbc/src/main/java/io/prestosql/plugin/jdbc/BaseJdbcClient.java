@@ -415,7 +415,7 @@ public abstract class BaseJdbcClient
         return new QueryBuilder(this).buildSql(
                 session,
                 connection,
-                table.getRemoteTableName(),
+                table.getRelationHandle(),
                 table.getGroupingSets(),
                 columns,
                 table.getConstraint(),
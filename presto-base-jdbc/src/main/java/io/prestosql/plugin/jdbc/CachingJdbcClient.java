@@ -26,6 +26,7 @@ import io.prestosql.spi.connector.ColumnMetadata;
 import io.prestosql.spi.connector.ConnectorSession;
 import io.prestosql.spi.connector.ConnectorSplitSource;
 import io.prestosql.spi.connector.ConnectorTableMetadata;
+import io.prestosql.spi.connector.JoinType;
 import io.prestosql.spi.connector.SchemaTableName;
 import io.prestosql.spi.connector.SystemTable;
 import io.prestosql.spi.predicate.TupleDomain;
@@ -146,6 +147,12 @@ public final class CachingJdbcClient
         return delegate.implementAggregation(session, aggregate, assignments);
     }
 
+    @Override
+    public boolean supportsJoinPushdown(ConnectorSession session, JoinType joinType, List<JdbcJoinCondition> joinConditions)
+    {
+        return delegate.supportsJoinPushdown(session, joinType, joinConditions);
+    }
+
     @Override
     public ConnectorSplitSource getSplits(ConnectorSession session, JdbcTableHandle tableHandle)
     {
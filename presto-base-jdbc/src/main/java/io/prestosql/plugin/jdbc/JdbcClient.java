@@ -19,6 +19,7 @@ import io.prestosql.spi.connector.ColumnMetadata;
 import io.prestosql.spi.connector.ConnectorSession;
 import io.prestosql.spi.connector.ConnectorSplitSource;
 import io.prestosql.spi.connector.ConnectorTableMetadata;
+import io.prestosql.spi.connector.JoinType;
 import io.prestosql.spi.connector.SchemaTableName;
 import io.prestosql.spi.connector.SystemTable;
 import io.prestosql.spi.predicate.TupleDomain;
@@ -67,6 +68,15 @@ public interface JdbcClient
         return Optional.empty();
     }
 
+    /**
+     * Whether the remote database is able to compute the join with the given conditions
+     * with the same semantics as Presto would.
+     */
+    default boolean supportsJoinPushdown(ConnectorSession session, JoinType joinType, List<JdbcJoinCondition> joinConditions)
+    {
+        return false;
+    }
+
     ConnectorSplitSource getSplits(ConnectorSession session, JdbcTableHandle tableHandle);
 
     Connection getConnection(JdbcIdentity identity, JdbcSplit split)
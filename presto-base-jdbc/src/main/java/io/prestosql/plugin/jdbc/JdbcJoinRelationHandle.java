@@ -0,0 +1,151 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.plugin.jdbc;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
+import io.prestosql.spi.connector.JoinType;
+
+import java.util.List;
+import java.util.Objects;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Join of two relations computed by the remote database.
+ * <p>
+ * The columns of the joined relation are {@code outputColumns}: the first {@code leftColumns.size()}
+ * of them are produced from {@code leftColumns} of the left source, the remaining ones from
+ * {@code rightColumns} of the right source.
+ */
+public final class JdbcJoinRelationHandle
+        extends JdbcRelationHandle
+{
+    private final JoinType joinType;
+    private final JdbcTableHandle left;
+    private final JdbcTableHandle right;
+    private final List<JdbcJoinCondition> joinConditions;
+    private final List<JdbcColumnHandle> leftColumns;
+    private final List<JdbcColumnHandle> rightColumns;
+    private final List<JdbcColumnHandle> outputColumns;
+
+    @JsonCreator
+    public JdbcJoinRelationHandle(
+            @JsonProperty("joinType") JoinType joinType,
+            @JsonProperty("left") JdbcTableHandle left,
+            @JsonProperty("right") JdbcTableHandle right,
+            @JsonProperty("joinConditions") List<JdbcJoinCondition> joinConditions,
+            @JsonProperty("leftColumns") List<JdbcColumnHandle> leftColumns,
+            @JsonProperty("rightColumns") List<JdbcColumnHandle> rightColumns,
+            @JsonProperty("outputColumns") List<JdbcColumnHandle> outputColumns)
+    {
+        this.joinType = requireNonNull(joinType, "joinType is null");
+        this.left = requireNonNull(left, "left is null");
+        this.right = requireNonNull(right, "right is null");
+        this.joinConditions = ImmutableList.copyOf(requireNonNull(joinConditions, "joinConditions is null"));
+        checkArgument(!joinConditions.isEmpty(), "joinConditions is empty");
+        this.leftColumns = ImmutableList.copyOf(requireNonNull(leftColumns, "leftColumns is null"));
+        this.rightColumns = ImmutableList.copyOf(requireNonNull(rightColumns, "rightColumns is null"));
+        this.outputColumns = ImmutableList.copyOf(requireNonNull(outputColumns, "outputColumns is null"));
+        checkArgument(outputColumns.size() == leftColumns.size() + rightColumns.size(), "outputColumns do not match source columns");
+    }
+
+    @JsonProperty
+    public JoinType getJoinType()
+    {
+        return joinType;
+    }
+
+    @JsonProperty
+    public JdbcTableHandle getLeft()
+    {
+        return left;
+    }
+
+    @JsonProperty
+    public JdbcTableHandle getRight()
+    {
+        return right;
+    }
+
+    @JsonProperty
+    public List<JdbcJoinCondition> getJoinConditions()
+    {
+        return joinConditions;
+    }
+
+    @JsonProperty
+    public List<JdbcColumnHandle> getLeftColumns()
+    {
+        return leftColumns;
+    }
+
+    @JsonProperty
+    public List<JdbcColumnHandle> getRightColumns()
+    {
+        return rightColumns;
+    }
+
+    @JsonProperty
+    public List<JdbcColumnHandle> getOutputColumns()
+    {
+        return outputColumns;
+    }
+
+    @JsonIgnore
+    public List<JdbcColumnHandle> getLeftOutputColumns()
+    {
+        return outputColumns.subList(0, leftColumns.size());
+    }
+
+    @JsonIgnore
+    public List<JdbcColumnHandle> getRightOutputColumns()
+    {
+        return outputColumns.subList(leftColumns.size(), outputColumns.size());
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        JdbcJoinRelationHandle that = (JdbcJoinRelationHandle) o;
+        return joinType == that.joinType &&
+                left.equals(that.left) &&
+                right.equals(that.right) &&
+                joinConditions.equals(that.joinConditions) &&
+                leftColumns.equals(that.leftColumns) &&
+                rightColumns.equals(that.rightColumns) &&
+                outputColumns.equals(that.outputColumns);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(joinType, left, right, joinConditions, leftColumns, rightColumns, outputColumns);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "(" + left + ") " + joinType + " (" + right + ") ON " + joinConditions;
+    }
+}
@@ -22,6 +22,7 @@ import io.prestosql.spi.PrestoException;
 import io.prestosql.spi.connector.AggregateFunction;
 import io.prestosql.spi.connector.AggregationApplicationResult;
 import io.prestosql.spi.connector.Assignment;
+import io.prestosql.spi.connector.BasicRelationStatistics;
 import io.prestosql.spi.connector.ColumnHandle;
 import io.prestosql.spi.connector.ColumnMetadata;
 import io.prestosql.spi.connector.ConnectorInsertTableHandle;
@@ -35,6 +36,10 @@ import io.prestosql.spi.connector.ConnectorTableMetadata;
 import io.prestosql.spi.connector.ConnectorTableProperties;
 import io.prestosql.spi.connector.Constraint;
 import io.prestosql.spi.connector.ConstraintApplicationResult;
+import io.prestosql.spi.connector.JoinApplicationResult;
+import io.prestosql.spi.connector.JoinCondition;
+import io.prestosql.spi.connector.JoinStatistics;
+import io.prestosql.spi.connector.JoinType;
 import io.prestosql.spi.connector.LimitApplicationResult;
 import io.prestosql.spi.connector.ProjectionApplicationResult;
 import io.prestosql.spi.connector.SchemaTableName;
@@ -62,7 +67,10 @@ import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Verify.verify;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static io.prestosql.plugin.jdbc.JdbcMetadataSessionProperties.getJoinPushdownAutomaticMaxJoinToTablesRatio;
+import static io.prestosql.plugin.jdbc.JdbcMetadataSessionProperties.getJoinPushdownStrategy;
 import static io.prestosql.plugin.jdbc.JdbcMetadataSessionProperties.isAllowAggregationPushdown;
+import static io.prestosql.plugin.jdbc.JdbcMetadataSessionProperties.isAllowJoinPushdown;
 import static io.prestosql.spi.StandardErrorCode.PERMISSION_DENIED;
 import static java.util.Objects.requireNonNull;
 
@@ -70,6 +78,7 @@ public class JdbcMetadata
         implements ConnectorMetadata
 {
     private static final String SYNTHETIC_COLUMN_NAME_PREFIX = "_presto_generated_";
+    private static final SchemaTableName GENERATED_RELATION_NAME = new SchemaTableName("_generated", "_generated_relation");
 
     private final JdbcClient jdbcClient;
     private final boolean allowDropTable;
@@ -155,8 +164,7 @@ public class JdbcMetadata
         }
 
         handle = new JdbcTableHandle(
-                handle.getSchemaTableName(),
-                handle.getRemoteTableName(),
+                handle.getRelationHandle(),
                 newDomain,
                 Optional.empty(), // groupBy
                 handle.getLimit(),
@@ -184,8 +192,7 @@ public class JdbcMetadata
 
         return Optional.of(new ProjectionApplicationResult<>(
                 new JdbcTableHandle(
-                        handle.getSchemaTableName(),
-                        handle.getRemoteTableName(),
+                        handle.getRelationHandle(),
                         handle.getConstraint(),
                         handle.getGroupingSets(),
                         handle.getLimit(),
@@ -230,7 +237,7 @@ public class JdbcMetadata
             return Optional.empty();
         }
 
-        List<JdbcColumnHandle> columns = jdbcClient.getColumns(session, handle);
+        List<JdbcColumnHandle> columns = getColumns(session, handle);
         Map<String, JdbcColumnHandle> columnByName = columns.stream()
                 .collect(toImmutableMap(JdbcColumnHandle::getColumnName, identity()));
 
@@ -264,8 +271,7 @@ public class JdbcMetadata
         }
 
         handle = new JdbcTableHandle(
-                handle.getSchemaTableName(),
-                handle.getRemoteTableName(),
+                handle.getRelationHandle(),
                 handle.getConstraint(),
                 Optional.of(groupingSets.stream()
                         .map(groupingSet -> groupingSet.stream()
@@ -278,6 +284,128 @@ public class JdbcMetadata
         return Optional.of(new AggregationApplicationResult<>(handle, projections.build(), resultAssignments.build(), ImmutableMap.of()));
     }
 
+    @Override
+    public Optional<JoinApplicationResult<ConnectorTableHandle>> applyJoin(
+            ConnectorSession session,
+            JoinType joinType,
+            ConnectorTableHandle left,
+            ConnectorTableHandle right,
+            List<JoinCondition> joinConditions,
+            Map<String, ColumnHandle> leftAssignments,
+            Map<String, ColumnHandle> rightAssignments,
+            JoinStatistics statistics)
+    {
+        if (!isAllowJoinPushdown(session)) {
+            return Optional.empty();
+        }
+
+        JdbcTableHandle leftHandle = (JdbcTableHandle) left;
+        JdbcTableHandle rightHandle = (JdbcTableHandle) right;
+
+        if (leftHandle.getLimit().isPresent() || rightHandle.getLimit().isPresent()) {
+            // handle's limit is applied last, so a join source with a limit would have to be a subquery with a limit, which not all databases support
+            return Optional.empty();
+        }
+
+        ImmutableList.Builder<JdbcJoinCondition> jdbcJoinConditions = ImmutableList.builder();
+        for (JoinCondition joinCondition : joinConditions) {
+            Optional<JdbcColumnHandle> leftColumn = getVariableColumnHandle(leftAssignments, joinCondition.getLeftExpression());
+            Optional<JdbcColumnHandle> rightColumn = getVariableColumnHandle(rightAssignments, joinCondition.getRightExpression());
+            if (leftColumn.isEmpty() || rightColumn.isEmpty()) {
+                return Optional.empty();
+            }
+            jdbcJoinConditions.add(new JdbcJoinCondition(leftColumn.get(), joinCondition.getOperator(), rightColumn.get()));
+        }
+
+        if (!jdbcClient.supportsJoinPushdown(session, joinType, jdbcJoinConditions.build())) {
+            return Optional.empty();
+        }
+
+        if (!isJoinPushdownBeneficial(session, statistics)) {
+            return Optional.empty();
+        }
+
+        List<JdbcColumnHandle> leftColumns = leftAssignments.values().stream()
+                .map(JdbcColumnHandle.class::cast)
+                .distinct()
+                .collect(toImmutableList());
+        List<JdbcColumnHandle> rightColumns = rightAssignments.values().stream()
+                .map(JdbcColumnHandle.class::cast)
+                .distinct()
+                .collect(toImmutableList());
+
+        int nextSyntheticColumnId = 1;
+        ImmutableList.Builder<JdbcColumnHandle> outputColumns = ImmutableList.builder();
+        ImmutableMap.Builder<ColumnHandle, ColumnHandle> newLeftColumns = ImmutableMap.builder();
+        for (JdbcColumnHandle column : leftColumns) {
+            JdbcColumnHandle newColumn = createJoinOutputColumn(column, nextSyntheticColumnId, joinType == JoinType.RIGHT_OUTER || joinType == JoinType.FULL_OUTER);
+            nextSyntheticColumnId++;
+            outputColumns.add(newColumn);
+            newLeftColumns.put(column, newColumn);
+        }
+        ImmutableMap.Builder<ColumnHandle, ColumnHandle> newRightColumns = ImmutableMap.builder();
+        for (JdbcColumnHandle column : rightColumns) {
+            JdbcColumnHandle newColumn = createJoinOutputColumn(column, nextSyntheticColumnId, joinType == JoinType.LEFT_OUTER || joinType == JoinType.FULL_OUTER);
+            nextSyntheticColumnId++;
+            outputColumns.add(newColumn);
+            newRightColumns.put(column, newColumn);
+        }
+
+        JdbcTableHandle handle = new JdbcTableHandle(
+                new JdbcJoinRelationHandle(
+                        joinType,
+                        leftHandle,
+                        rightHandle,
+                        jdbcJoinConditions.build(),
+                        leftColumns,
+                        rightColumns,
+                        outputColumns.build()),
+                TupleDomain.all(),
+                Optional.empty(), // groupBy
+                OptionalLong.empty(), // limit
+                Optional.of(outputColumns.build()));
+
+        return Optional.of(new JoinApplicationResult<>(handle, newLeftColumns.build(), newRightColumns.build()));
+    }
+
+    private static Optional<JdbcColumnHandle> getVariableColumnHandle(Map<String, ColumnHandle> assignments, ConnectorExpression expression)
+    {
+        if (!(expression instanceof Variable)) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable((JdbcColumnHandle) assignments.get(((Variable) expression).getName()));
+    }
+
+    private static JdbcColumnHandle createJoinOutputColumn(JdbcColumnHandle column, int syntheticColumnId, boolean forceNullable)
+    {
+        return JdbcColumnHandle.builderFrom(column)
+                .setExpression(Optional.empty())
+                .setColumnName(SYNTHETIC_COLUMN_NAME_PREFIX + syntheticColumnId)
+                .setNullable(column.isNullable() || forceNullable)
+                .setComment(Optional.empty())
+                .build();
+    }
+
+    private static boolean isJoinPushdownBeneficial(ConnectorSession session, JoinStatistics statistics)
+    {
+        JoinPushdownStrategy joinPushdownStrategy = getJoinPushdownStrategy(session);
+        switch (joinPushdownStrategy) {
+            case EAGER:
+                return true;
+            case AUTOMATIC:
+                // without estimates it is not known whether the joined relation is smaller than the relations being joined
+                Optional<BasicRelationStatistics> leftStatistics = statistics.getLeftStatistics();
+                Optional<BasicRelationStatistics> rightStatistics = statistics.getRightStatistics();
+                Optional<BasicRelationStatistics> joinStatistics = statistics.getJoinStatistics();
+                if (leftStatistics.isEmpty() || rightStatistics.isEmpty() || joinStatistics.isEmpty()) {
+                    return false;
+                }
+                double sourcesSize = leftStatistics.get().getOutputSizeInBytes() + rightStatistics.get().getOutputSizeInBytes();
+                return joinStatistics.get().getOutputSizeInBytes() < getJoinPushdownAutomaticMaxJoinToTablesRatio(session) * sourcesSize;
+        }
+        throw new IllegalStateException("Unsupported join pushdown strategy: " + joinPushdownStrategy);
+    }
+
     @Override
     public Optional<LimitApplicationResult<ConnectorTableHandle>> applyLimit(ConnectorSession session, ConnectorTableHandle table, long limit)
     {
@@ -292,8 +420,7 @@ public class JdbcMetadata
         }
 
         handle = new JdbcTableHandle(
-                handle.getSchemaTableName(),
-                handle.getRemoteTableName(),
+                handle.getRelationHandle(),
                 handle.getConstraint(),
                 handle.getGroupingSets(),
                 OptionalLong.of(limit),
@@ -320,12 +447,24 @@ public class JdbcMetadata
         JdbcTableHandle handle = (JdbcTableHandle) table;
 
         ImmutableList.Builder<ColumnMetadata> columnMetadata = ImmutableList.builder();
-        for (JdbcColumnHandle column : jdbcClient.getColumns(session, handle)) {
+        for (JdbcColumnHandle column : getColumns(session, handle)) {
             columnMetadata.add(column.getColumnMetadata());
         }
+        if (!handle.isNamedRelation()) {
+            return new ConnectorTableMetadata(GENERATED_RELATION_NAME, columnMetadata.build());
+        }
         return new ConnectorTableMetadata(handle.getSchemaTableName(), columnMetadata.build(), jdbcClient.getTableProperties(JdbcIdentity.from(session), handle));
     }
 
+    private List<JdbcColumnHandle> getColumns(ConnectorSession session, JdbcTableHandle handle)
+    {
+        if (!handle.isNamedRelation()) {
+            // relations computed by the remote database always have their columns listed in the handle
+            return handle.getColumns().orElseThrow();
+        }
+        return jdbcClient.getColumns(session, handle);
+    }
+
     @Override
     public List<SchemaTableName> listTables(ConnectorSession session, Optional<String> schemaName)
     {
@@ -486,6 +625,9 @@ public class JdbcMetadata
     public TableStatistics getTableStatistics(ConnectorSession session, ConnectorTableHandle tableHandle, Constraint constraint)
     {
         JdbcTableHandle handle = (JdbcTableHandle) tableHandle;
+        if (!handle.isNamedRelation()) {
+            return TableStatistics.empty();
+        }
         return jdbcClient.getTableStatistics(session, handle, constraint.getSummary());
     }
 
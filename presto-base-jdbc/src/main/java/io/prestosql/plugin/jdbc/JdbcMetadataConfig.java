@@ -16,10 +16,16 @@ package io.prestosql.plugin.jdbc;
 import io.airlift.configuration.Config;
 import io.airlift.configuration.ConfigDescription;
 
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.NotNull;
+
 public class JdbcMetadataConfig
 {
     private boolean allowDropTable;
     private boolean allowAggregationPushdown = true;
+    private boolean allowJoinPushdown;
+    private JoinPushdownStrategy joinPushdownStrategy = JoinPushdownStrategy.AUTOMATIC;
+    private double joinPushdownAutomaticMaxJoinToTablesRatio = 1.25;
 
     public boolean isAllowDropTable()
     {
@@ -46,4 +52,45 @@ public class JdbcMetadataConfig
         this.allowAggregationPushdown = allowAggregationPushdown;
         return this;
     }
+
+    public boolean isAllowJoinPushdown()
+    {
+        return allowJoinPushdown;
+    }
+
+    @Config("allow-join-pushdown")
+    @ConfigDescription("Allow join pushdown")
+    public JdbcMetadataConfig setAllowJoinPushdown(boolean allowJoinPushdown)
+    {
+        this.allowJoinPushdown = allowJoinPushdown;
+        return this;
+    }
+
+    @NotNull
+    public JoinPushdownStrategy getJoinPushdownStrategy()
+    {
+        return joinPushdownStrategy;
+    }
+
+    @Config("join-pushdown-strategy")
+    @ConfigDescription("Join pushdown strategy")
+    public JdbcMetadataConfig setJoinPushdownStrategy(JoinPushdownStrategy joinPushdownStrategy)
+    {
+        this.joinPushdownStrategy = joinPushdownStrategy;
+        return this;
+    }
+
+    @DecimalMin("0.0")
+    public double getJoinPushdownAutomaticMaxJoinToTablesRatio()
+    {
+        return joinPushdownAutomaticMaxJoinToTablesRatio;
+    }
+
+    @Config("join-pushdown-automatic-max-join-to-tables-ratio")
+    @ConfigDescription("If estimated join output size is greater than or equal to ratio * sum of table sizes, then join pushdown will not be performed")
+    public JdbcMetadataConfig setJoinPushdownAutomaticMaxJoinToTablesRatio(double joinPushdownAutomaticMaxJoinToTablesRatio)
+    {
+        this.joinPushdownAutomaticMaxJoinToTablesRatio = joinPushdownAutomaticMaxJoinToTablesRatio;
+        return this;
+    }
 }
@@ -22,11 +22,16 @@ import javax.inject.Inject;
 import java.util.List;
 
 import static io.prestosql.spi.session.PropertyMetadata.booleanProperty;
+import static io.prestosql.spi.session.PropertyMetadata.doubleProperty;
+import static io.prestosql.spi.session.PropertyMetadata.enumProperty;
 
 public class JdbcMetadataSessionProperties
         implements SessionPropertiesProvider
 {
     public static final String ALLOW_AGGREGATION_PUSHDOWN = "allow_aggregation_pushdown";
+    public static final String ALLOW_JOIN_PUSHDOWN = "allow_join_pushdown";
+    public static final String JOIN_PUSHDOWN_STRATEGY = "join_pushdown_strategy";
+    public static final String JOIN_PUSHDOWN_AUTOMATIC_MAX_JOIN_TO_TABLES_RATIO = "join_pushdown_automatic_max_join_to_tables_ratio";
 
     private final List<PropertyMetadata<?>> properties;
 
@@ -39,6 +44,22 @@ public class JdbcMetadataSessionProperties
                         "Allow aggregation pushdown",
                         jdbcMetadataConfig.isAllowAggregationPushdown(),
                         false))
+                .add(booleanProperty(
+                        ALLOW_JOIN_PUSHDOWN,
+                        "Allow join pushdown",
+                        jdbcMetadataConfig.isAllowJoinPushdown(),
+                        false))
+                .add(enumProperty(
+                        JOIN_PUSHDOWN_STRATEGY,
+                        "Join pushdown strategy",
+                        JoinPushdownStrategy.class,
+                        jdbcMetadataConfig.getJoinPushdownStrategy(),
+                        false))
+                .add(doubleProperty(
+                        JOIN_PUSHDOWN_AUTOMATIC_MAX_JOIN_TO_TABLES_RATIO,
+                        "If estimated join output size is greater than or equal to ratio * sum of table sizes, then join pushdown will not be performed",
+                        jdbcMetadataConfig.getJoinPushdownAutomaticMaxJoinToTablesRatio(),
+                        false))
                 .build();
     }
 
@@ -52,4 +73,19 @@ public class JdbcMetadataSessionProperties
     {
         return session.getProperty(ALLOW_AGGREGATION_PUSHDOWN, Boolean.class);
     }
+
+    public static boolean isAllowJoinPushdown(ConnectorSession session)
+    {
+        return session.getProperty(ALLOW_JOIN_PUSHDOWN, Boolean.class);
+    }
+
+    public static JoinPushdownStrategy getJoinPushdownStrategy(ConnectorSession session)
+    {
+        return session.getProperty(JOIN_PUSHDOWN_STRATEGY, JoinPushdownStrategy.class);
+    }
+
+    public static double getJoinPushdownAutomaticMaxJoinToTablesRatio(ConnectorSession session)
+    {
+        return session.getProperty(JOIN_PUSHDOWN_AUTOMATIC_MAX_JOIN_TO_TABLES_RATIO, Double.class);
+    }
 }
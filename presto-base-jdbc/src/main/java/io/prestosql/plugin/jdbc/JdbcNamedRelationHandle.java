@@ -0,0 +1,75 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.plugin.jdbc;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.prestosql.spi.connector.SchemaTableName;
+
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+public final class JdbcNamedRelationHandle
+        extends JdbcRelationHandle
+{
+    private final SchemaTableName schemaTableName;
+    private final RemoteTableName remoteTableName;
+
+    @JsonCreator
+    public JdbcNamedRelationHandle(
+            @JsonProperty("schemaTableName") SchemaTableName schemaTableName,
+            @JsonProperty("remoteTableName") RemoteTableName remoteTableName)
+    {
+        this.schemaTableName = requireNonNull(schemaTableName, "schemaTableName is null");
+        this.remoteTableName = requireNonNull(remoteTableName, "remoteTableName is null");
+    }
+
+    @JsonProperty
+    public SchemaTableName getSchemaTableName()
+    {
+        return schemaTableName;
+    }
+
+    @JsonProperty
+    public RemoteTableName getRemoteTableName()
+    {
+        return remoteTableName;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        JdbcNamedRelationHandle that = (JdbcNamedRelationHandle) o;
+        return schemaTableName.equals(that.schemaTableName);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(schemaTableName);
+    }
+
+    @Override
+    public String toString()
+    {
+        return schemaTableName + " " + remoteTableName;
+    }
+}
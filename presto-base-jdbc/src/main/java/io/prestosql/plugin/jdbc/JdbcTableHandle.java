@@ -30,14 +30,14 @@ import java.util.Optional;
 import java.util.OptionalLong;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static java.util.Objects.requireNonNull;
 
 public final class JdbcTableHandle
         implements ConnectorTableHandle
 {
-    private final SchemaTableName schemaTableName;
-    private final RemoteTableName remoteTableName;
+    private final JdbcRelationHandle relationHandle;
     private final TupleDomain<ColumnHandle> constraint;
 
     // semantically aggregation is applied after constraint
@@ -66,17 +66,26 @@ public final class JdbcTableHandle
                 Optional.empty());
     }
 
+    public JdbcTableHandle(
+            SchemaTableName schemaTableName,
+            RemoteTableName remoteTableName,
+            TupleDomain<ColumnHandle> constraint,
+            Optional<List<List<JdbcColumnHandle>>> groupingSets,
+            OptionalLong limit,
+            Optional<List<JdbcColumnHandle>> columns)
+    {
+        this(new JdbcNamedRelationHandle(schemaTableName, remoteTableName), constraint, groupingSets, limit, columns);
+    }
+
     @JsonCreator
     public JdbcTableHandle(
-            @JsonProperty("schemaTableName") SchemaTableName schemaTableName,
-            @JsonProperty("remoteTableName") RemoteTableName remoteTableName,
+            @JsonProperty("relationHandle") JdbcRelationHandle relationHandle,
             @JsonProperty("constraint") TupleDomain<ColumnHandle> constraint,
             @JsonProperty("groupingSets") Optional<List<List<JdbcColumnHandle>>> groupingSets,
             @JsonProperty("limit") OptionalLong limit,
             @JsonProperty("columns") Optional<List<JdbcColumnHandle>> columns)
     {
-        this.schemaTableName = requireNonNull(schemaTableName, "schemaTableName is null");
-        this.remoteTableName = requireNonNull(remoteTableName, "remoteTable is null");
+        this.relationHandle = requireNonNull(relationHandle, "relationHandle is null");
         this.constraint = requireNonNull(constraint, "constraint is null");
 
         requireNonNull(groupingSets, "groupingSets is null");
@@ -87,39 +96,59 @@ public final class JdbcTableHandle
 
         requireNonNull(columns, "columns is null");
         checkArgument(groupingSets.isEmpty() || columns.isPresent(), "columns should be present when groupingSets is present");
+        checkArgument(isNamedRelation() || columns.isPresent(), "columns should be present for a relation that is not a table");
         this.columns = columns.map(ImmutableList::copyOf);
     }
 
     @JsonProperty
+    public JdbcRelationHandle getRelationHandle()
+    {
+        return relationHandle;
+    }
+
+    @JsonIgnore
+    public boolean isNamedRelation()
+    {
+        return relationHandle instanceof JdbcNamedRelationHandle;
+    }
+
+    @JsonIgnore
+    public JdbcNamedRelationHandle getRequiredNamedRelation()
+    {
+        checkState(isNamedRelation(), "The table handle does not represent a named relation: %s", this);
+        return (JdbcNamedRelationHandle) relationHandle;
+    }
+
+    @JsonIgnore
     public SchemaTableName getSchemaTableName()
     {
-        return schemaTableName;
+        return getRequiredNamedRelation().getSchemaTableName();
     }
 
-    @JsonProperty
+    @JsonIgnore
     public RemoteTableName getRemoteTableName()
     {
-        return remoteTableName;
+        return getRequiredNamedRelation().getRemoteTableName();
     }
 
     @Deprecated
     @Nullable
     public String getCatalogName()
     {
-        return remoteTableName.getCatalogName().orElse(null);
+        return getRemoteTableName().getCatalogName().orElse(null);
     }
 
     @Deprecated
     @Nullable
     public String getSchemaName()
     {
-        return remoteTableName.getSchemaName().orElse(null);
+        return getRemoteTableName().getSchemaName().orElse(null);
     }
 
     @Deprecated
     public String getTableName()
     {
-        return remoteTableName.getTableName();
+        return getRemoteTableName().getTableName();
     }
 
     @JsonProperty
@@ -149,7 +178,7 @@ public final class JdbcTableHandle
     @JsonIgnore
     public boolean isSynthetic()
     {
-        return !constraint.isAll() || groupingSets.isPresent() || limit.isPresent();
+        return !isNamedRelation() || !constraint.isAll() || groupingSets.isPresent() || limit.isPresent();
     }
 
     @Override
@@ -162,7 +191,7 @@ public final class JdbcTableHandle
             return false;
         }
         JdbcTableHandle o = (JdbcTableHandle) obj;
-        return Objects.equals(this.schemaTableName, o.schemaTableName) &&
+        return Objects.equals(this.relationHandle, o.relationHandle) &&
                 Objects.equals(this.constraint, o.constraint) &&
                 Objects.equals(this.groupingSets, o.groupingSets) &&
                 Objects.equals(this.limit, o.limit) &&
@@ -172,15 +201,14 @@ public final class JdbcTableHandle
     @Override
     public int hashCode()
     {
-        return Objects.hash(schemaTableName, constraint, groupingSets, limit, columns);
+        return Objects.hash(relationHandle, constraint, groupingSets, limit, columns);
     }
 
     @Override
     public String toString()
     {
         StringBuilder builder = new StringBuilder();
-        builder.append(schemaTableName).append(" ");
-        builder.append(remoteTableName);
+        builder.append(relationHandle);
         limit.ifPresent(value -> builder.append(" limit=").append(value));
         columns.ifPresent(value -> builder.append(" columns=").append(value));
         groupingSets.ifPresent(value -> builder.append(" groupingSets=").append(value));
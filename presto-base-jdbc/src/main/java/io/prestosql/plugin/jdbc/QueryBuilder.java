@@ -20,6 +20,7 @@ import io.airlift.log.Logger;
 import io.airlift.slice.Slice;
 import io.prestosql.spi.connector.ColumnHandle;
 import io.prestosql.spi.connector.ConnectorSession;
+import io.prestosql.spi.connector.JoinType;
 import io.prestosql.spi.predicate.Domain;
 import io.prestosql.spi.predicate.Range;
 import io.prestosql.spi.predicate.TupleDomain;
@@ -97,10 +98,41 @@ public class QueryBuilder
             Function<String, String> sqlFunction)
             throws SQLException
     {
-        String sql = "SELECT " + getProjection(columns);
-        sql += " FROM " + getRelation(remoteTableName);
+        List<TypeAndValue> accumulator = new ArrayList<>();
+        String sql = buildQuery(session, connection, getRelation(remoteTableName), groupingSets, columns, tupleDomain, additionalPredicate, accumulator);
+        return prepareStatement(session, connection, sqlFunction.apply(sql), accumulator);
+    }
 
+    public PreparedStatement buildSql(
+            ConnectorSession session,
+            Connection connection,
+            JdbcRelationHandle relationHandle,
+            Optional<List<List<JdbcColumnHandle>>> groupingSets,
+            List<JdbcColumnHandle> columns,
+            TupleDomain<ColumnHandle> tupleDomain,
+            Optional<String> additionalPredicate,
+            Function<String, String> sqlFunction)
+            throws SQLException
+    {
         List<TypeAndValue> accumulator = new ArrayList<>();
+        // the relation is rendered first, so that parameters of its subqueries precede parameters of the WHERE clause
+        String relation = getRelation(session, connection, relationHandle, accumulator);
+        String sql = buildQuery(session, connection, relation, groupingSets, columns, tupleDomain, additionalPredicate, accumulator);
+        return prepareStatement(session, connection, sqlFunction.apply(sql), accumulator);
+    }
+
+    private String buildQuery(
+            ConnectorSession session,
+            Connection connection,
+            String relation,
+            Optional<List<List<JdbcColumnHandle>>> groupingSets,
+            List<JdbcColumnHandle> columns,
+            TupleDomain<ColumnHandle> tupleDomain,
+            Optional<String> additionalPredicate,
+            List<TypeAndValue> accumulator)
+    {
+        String sql = "SELECT " + getProjection(columns);
+        sql += " FROM " + relation;
 
         List<String> clauses = toConjuncts(client, session, connection, tupleDomain, accumulator);
         if (additionalPredicate.isPresent()) {
@@ -114,8 +146,12 @@ public class QueryBuilder
         }
 
         sql += getGroupBy(groupingSets);
+        return sql;
+    }
 
-        String query = sqlFunction.apply(sql);
+    private PreparedStatement prepareStatement(ConnectorSession session, Connection connection, String query, List<TypeAndValue> accumulator)
+            throws SQLException
+    {
         log.debug("Preparing query: %s", query);
         PreparedStatement statement = client.getPreparedStatement(connection, query);
 
@@ -148,6 +184,73 @@ public class QueryBuilder
         return statement;
     }
 
+    private String getRelation(ConnectorSession session, Connection connection, JdbcRelationHandle relationHandle, List<TypeAndValue> accumulator)
+    {
+        if (relationHandle instanceof JdbcNamedRelationHandle) {
+            return getRelation(((JdbcNamedRelationHandle) relationHandle).getRemoteTableName());
+        }
+        if (relationHandle instanceof JdbcJoinRelationHandle) {
+            return "(" + getJoinQuery(session, connection, (JdbcJoinRelationHandle) relationHandle, accumulator) + ") o";
+        }
+        throw new IllegalArgumentException("Unsupported relation: " + relationHandle);
+    }
+
+    private String getJoinQuery(ConnectorSession session, Connection connection, JdbcJoinRelationHandle join, List<TypeAndValue> accumulator)
+    {
+        // sources are rendered in the order they appear in the query, as the order of the accumulated parameters matters
+        String leftQuery = getJoinSourceQuery(session, connection, join.getLeft(), join.getLeftColumns(), accumulator);
+        String rightQuery = getJoinSourceQuery(session, connection, join.getRight(), join.getRightColumns(), accumulator);
+
+        ImmutableList.Builder<String> projections = ImmutableList.builder();
+        for (int i = 0; i < join.getLeftColumns().size(); i++) {
+            projections.add(format("l.%s AS %s", client.quoted(join.getLeftColumns().get(i).getColumnName()), client.quoted(join.getLeftOutputColumns().get(i).getColumnName())));
+        }
+        for (int i = 0; i < join.getRightColumns().size(); i++) {
+            projections.add(format("r.%s AS %s", client.quoted(join.getRightColumns().get(i).getColumnName()), client.quoted(join.getRightOutputColumns().get(i).getColumnName())));
+        }
+
+        return format(
+                "SELECT %s FROM (%s) l %s (%s) r ON %s",
+                Joiner.on(", ").join(projections.build()),
+                leftQuery,
+                formatJoinType(join.getJoinType()),
+                rightQuery,
+                join.getJoinConditions().stream()
+                        .map(this::formatJoinCondition)
+                        .collect(joining(" AND ")));
+    }
+
+    private String getJoinSourceQuery(ConnectorSession session, Connection connection, JdbcTableHandle table, List<JdbcColumnHandle> columns, List<TypeAndValue> accumulator)
+    {
+        verify(table.getLimit().isEmpty(), "Join source with a limit is not supported: %s", table);
+        String relation = getRelation(session, connection, table.getRelationHandle(), accumulator);
+        return buildQuery(session, connection, relation, table.getGroupingSets(), columns, table.getConstraint(), Optional.empty(), accumulator);
+    }
+
+    protected String formatJoinType(JoinType joinType)
+    {
+        switch (joinType) {
+            case INNER:
+                return "INNER JOIN";
+            case LEFT_OUTER:
+                return "LEFT JOIN";
+            case RIGHT_OUTER:
+                return "RIGHT JOIN";
+            case FULL_OUTER:
+                return "FULL JOIN";
+        }
+        throw new IllegalStateException("Unknown join type: " + joinType);
+    }
+
+    protected String formatJoinCondition(JdbcJoinCondition condition)
+    {
+        return format(
+                "l.%s %s r.%s",
+                client.quoted(condition.getLeftColumn().getColumnName()),
+                condition.getOperator().getValue(),
+                client.quoted(condition.getRightColumn().getColumnName()));
+    }
+
     protected String getRelation(RemoteTableName remoteTableName)
     {
         return client.quoted(remoteTableName);
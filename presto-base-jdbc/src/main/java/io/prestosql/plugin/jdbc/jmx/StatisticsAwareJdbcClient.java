@@ -18,6 +18,7 @@ import io.prestosql.plugin.jdbc.JdbcClient;
 import io.prestosql.plugin.jdbc.JdbcColumnHandle;
 import io.prestosql.plugin.jdbc.JdbcExpression;
 import io.prestosql.plugin.jdbc.JdbcIdentity;
+import io.prestosql.plugin.jdbc.JdbcJoinCondition;
 import io.prestosql.plugin.jdbc.JdbcOutputTableHandle;
 import io.prestosql.plugin.jdbc.JdbcSplit;
 import io.prestosql.plugin.jdbc.JdbcTableHandle;
@@ -30,6 +31,7 @@ import io.prestosql.spi.connector.ColumnMetadata;
 import io.prestosql.spi.connector.ConnectorSession;
 import io.prestosql.spi.connector.ConnectorSplitSource;
 import io.prestosql.spi.connector.ConnectorTableMetadata;
+import io.prestosql.spi.connector.JoinType;
 import io.prestosql.spi.connector.SchemaTableName;
 import io.prestosql.spi.connector.SystemTable;
 import io.prestosql.spi.predicate.TupleDomain;
@@ -131,6 +133,12 @@ public final class StatisticsAwareJdbcClient
         return stats.getImplementAggregation().wrap(() -> delegate().implementAggregation(session, aggregate, assignments));
     }
 
+    @Override
+    public boolean supportsJoinPushdown(ConnectorSession session, JoinType joinType, List<JdbcJoinCondition> joinConditions)
+    {
+        return delegate().supportsJoinPushdown(session, joinType, joinConditions);
+    }
+
     @Override
     public ConnectorSplitSource getSplits(ConnectorSession session, JdbcTableHandle layoutHandle)
     {
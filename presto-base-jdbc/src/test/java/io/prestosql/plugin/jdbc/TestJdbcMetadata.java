@@ -17,16 +17,30 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import io.prestosql.spi.PrestoException;
+import io.prestosql.spi.connector.BasicRelationStatistics;
+import io.prestosql.spi.connector.ColumnHandle;
 import io.prestosql.spi.connector.ColumnMetadata;
+import io.prestosql.spi.connector.ConnectorSession;
+import io.prestosql.spi.connector.ConnectorTableHandle;
 import io.prestosql.spi.connector.ConnectorTableMetadata;
+import io.prestosql.spi.connector.JoinApplicationResult;
+import io.prestosql.spi.connector.JoinCondition;
+import io.prestosql.spi.connector.JoinStatistics;
+import io.prestosql.spi.connector.JoinType;
 import io.prestosql.spi.connector.SchemaTableName;
 import io.prestosql.spi.connector.TableNotFoundException;
+import io.prestosql.spi.expression.Variable;
+import io.prestosql.testing.TestingConnectorSession;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import static io.prestosql.plugin.jdbc.JdbcMetadataSessionProperties.ALLOW_JOIN_PUSHDOWN;
+import static io.prestosql.plugin.jdbc.JdbcMetadataSessionProperties.JOIN_PUSHDOWN_STRATEGY;
 import static io.prestosql.plugin.jdbc.TestingJdbcTypeHandle.JDBC_BIGINT;
 import static io.prestosql.plugin.jdbc.TestingJdbcTypeHandle.JDBC_VARCHAR;
 import static io.prestosql.spi.StandardErrorCode.NOT_FOUND;
@@ -37,6 +51,7 @@ import static io.prestosql.spi.type.VarcharType.createVarcharType;
 import static io.prestosql.testing.TestingConnectorSession.SESSION;
 import static java.util.Collections.emptyMap;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
@@ -44,6 +59,27 @@ import static org.testng.Assert.fail;
 @Test(singleThreaded = true)
 public class TestJdbcMetadata
 {
+    private static final JoinStatistics UNKNOWN_JOIN_STATISTICS = new JoinStatistics()
+    {
+        @Override
+        public Optional<BasicRelationStatistics> getLeftStatistics()
+        {
+            return Optional.empty();
+        }
+
+        @Override
+        public Optional<BasicRelationStatistics> getRightStatistics()
+        {
+            return Optional.empty();
+        }
+
+        @Override
+        public Optional<BasicRelationStatistics> getJoinStatistics()
+        {
+            return Optional.empty();
+        }
+    };
+
     private TestingDatabase database;
     private JdbcMetadata metadata;
     private JdbcTableHandle tableHandle;
@@ -94,6 +130,58 @@ public class TestJdbcMetadata
         unknownTableColumnHandle(new JdbcTableHandle(new SchemaTableName("example", "numbers"), null, "example", "unknown"));
     }
 
+    @Test
+    public void testApplyJoin()
+    {
+        JdbcMetadata metadata = new JdbcMetadata(new ForwardingJdbcClient()
+        {
+            @Override
+            protected JdbcClient delegate()
+            {
+                return database.getJdbcClient();
+            }
+
+            @Override
+            public boolean supportsJoinPushdown(ConnectorSession session, JoinType joinType, List<JdbcJoinCondition> joinConditions)
+            {
+                return true;
+            }
+        }, false);
+        ColumnHandle valueColumn = metadata.getColumnHandles(SESSION, tableHandle).get("value");
+        Map<String, ColumnHandle> leftAssignments = ImmutableMap.of("left_value", valueColumn);
+        Map<String, ColumnHandle> rightAssignments = ImmutableMap.of("right_value", valueColumn);
+        List<JoinCondition> joinConditions = ImmutableList.of(new JoinCondition(new Variable("left_value", BIGINT), JoinCondition.Operator.EQUAL, new Variable("right_value", BIGINT)));
+
+        // join pushdown is disabled by default
+        assertTrue(metadata.applyJoin(joinSession(ImmutableMap.of()), JoinType.INNER, tableHandle, tableHandle, joinConditions, leftAssignments, rightAssignments, UNKNOWN_JOIN_STATISTICS).isEmpty());
+        assertTrue(metadata.applyJoin(joinSession(ImmutableMap.of(ALLOW_JOIN_PUSHDOWN, false, JOIN_PUSHDOWN_STRATEGY, "EAGER")), JoinType.INNER, tableHandle, tableHandle, joinConditions, leftAssignments, rightAssignments, UNKNOWN_JOIN_STATISTICS).isEmpty());
+
+        // without estimates, the automatic strategy does not know whether the join reduces the data
+        assertTrue(metadata.applyJoin(joinSession(ImmutableMap.of(ALLOW_JOIN_PUSHDOWN, true)), JoinType.INNER, tableHandle, tableHandle, joinConditions, leftAssignments, rightAssignments, UNKNOWN_JOIN_STATISTICS).isEmpty());
+
+        Optional<JoinApplicationResult<ConnectorTableHandle>> result = metadata.applyJoin(
+                joinSession(ImmutableMap.of(ALLOW_JOIN_PUSHDOWN, true, JOIN_PUSHDOWN_STRATEGY, "EAGER")),
+                JoinType.INNER,
+                tableHandle,
+                tableHandle,
+                joinConditions,
+                leftAssignments,
+                rightAssignments,
+                UNKNOWN_JOIN_STATISTICS);
+        assertTrue(result.isPresent());
+        assertEquals(result.get().getLeftColumnHandles().keySet(), ImmutableSet.of(valueColumn));
+        assertEquals(result.get().getRightColumnHandles().keySet(), ImmutableSet.of(valueColumn));
+        assertNotEquals(result.get().getLeftColumnHandles().get(valueColumn), result.get().getRightColumnHandles().get(valueColumn));
+    }
+
+    private static ConnectorSession joinSession(Map<String, Object> properties)
+    {
+        return TestingConnectorSession.builder()
+                .setPropertyMetadata(new JdbcMetadataSessionProperties(new JdbcMetadataConfig()).getSessionProperties())
+                .setPropertyValues(properties)
+                .build();
+    }
+
     private void unknownTableColumnHandle(JdbcTableHandle tableHandle)
     {
         try {
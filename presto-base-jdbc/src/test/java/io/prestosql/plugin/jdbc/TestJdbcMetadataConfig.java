@@ -29,7 +29,10 @@ public class TestJdbcMetadataConfig
     {
         assertRecordedDefaults(recordDefaults(JdbcMetadataConfig.class)
                 .setAllowDropTable(false)
-                .setAllowAggregationPushdown(true));
+                .setAllowAggregationPushdown(true)
+                .setAllowJoinPushdown(false)
+                .setJoinPushdownStrategy(JoinPushdownStrategy.AUTOMATIC)
+                .setJoinPushdownAutomaticMaxJoinToTablesRatio(1.25));
     }
 
     @Test
@@ -38,11 +41,17 @@ public class TestJdbcMetadataConfig
         Map<String, String> properties = new ImmutableMap.Builder<String, String>()
                 .put("allow-drop-table", "true")
                 .put("allow-aggregation-pushdown", "false")
+                .put("allow-join-pushdown", "true")
+                .put("join-pushdown-strategy", "EAGER")
+                .put("join-pushdown-automatic-max-join-to-tables-ratio", "2.0")
                 .build();
 
         JdbcMetadataConfig expected = new JdbcMetadataConfig()
                 .setAllowDropTable(true)
-                .setAllowAggregationPushdown(false);
+                .setAllowAggregationPushdown(false)
+                .setAllowJoinPushdown(true)
+                .setJoinPushdownStrategy(JoinPushdownStrategy.EAGER)
+                .setJoinPushdownAutomaticMaxJoinToTablesRatio(2.0);
 
         assertFullMapping(properties, expected);
     }
@@ -19,6 +19,9 @@ import com.google.common.collect.ImmutableMultiset;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multiset;
 import io.prestosql.spi.connector.ColumnHandle;
+import io.prestosql.spi.connector.JoinCondition;
+import io.prestosql.spi.connector.JoinType;
+import io.prestosql.spi.connector.SchemaTableName;
 import io.prestosql.spi.predicate.Domain;
 import io.prestosql.spi.predicate.Range;
 import io.prestosql.spi.predicate.SortedRangeSet;
@@ -44,6 +47,7 @@ import java.time.LocalTime;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.function.Function;
 
 import static io.airlift.slice.Slices.utf8Slice;
@@ -508,6 +512,71 @@ public class TestJdbcQueryBuilder
         }
     }
 
+    @Test
+    public void testJoin()
+            throws SQLException
+    {
+        JdbcTableHandle left = new JdbcTableHandle(
+                new SchemaTableName("schema", "test_table"),
+                TEST_TABLE,
+                TupleDomain.withColumnDomains(ImmutableMap.of(
+                        columns.get(0), Domain.create(ValueSet.ofRanges(Range.lessThan(BIGINT, 10L)), false))),
+                Optional.empty(),
+                OptionalLong.empty(),
+                Optional.empty());
+        JdbcTableHandle right = new JdbcTableHandle(
+                new SchemaTableName("schema", "test_table"),
+                TEST_TABLE,
+                TupleDomain.withColumnDomains(ImmutableMap.of(
+                        columns.get(2), Domain.singleValue(BOOLEAN, true))),
+                Optional.empty(),
+                OptionalLong.empty(),
+                Optional.empty());
+
+        JdbcColumnHandle leftOutput = new JdbcColumnHandle("left_col_0", JDBC_BIGINT, BIGINT);
+        JdbcColumnHandle rightOutput = new JdbcColumnHandle("right_col_0", JDBC_BIGINT, BIGINT);
+        JdbcJoinRelationHandle relationHandle = new JdbcJoinRelationHandle(
+                JoinType.INNER,
+                left,
+                right,
+                ImmutableList.of(new JdbcJoinCondition(columns.get(0), JoinCondition.Operator.EQUAL, columns.get(9))),
+                ImmutableList.of(columns.get(0)),
+                ImmutableList.of(columns.get(0), columns.get(9)),
+                ImmutableList.of(leftOutput, rightOutput, new JdbcColumnHandle("right_col_9", JDBC_INTEGER, INTEGER)));
+
+        TupleDomain<ColumnHandle> tupleDomain = TupleDomain.withColumnDomains(ImmutableMap.of(
+                rightOutput, Domain.create(ValueSet.ofRanges(Range.lessThan(BIGINT, 105L)), false)));
+
+        Connection connection = database.getConnection();
+        try (PreparedStatement preparedStatement = new QueryBuilder(jdbcClient).buildSql(
+                SESSION,
+                connection,
+                relationHandle,
+                Optional.empty(),
+                ImmutableList.of(leftOutput, rightOutput),
+                tupleDomain,
+                Optional.empty(),
+                identity())) {
+            assertThat(lastQuery)
+                    .isEqualTo("" +
+                            "SELECT \"left_col_0\" AS \"left_col_0\", \"right_col_0\" AS \"right_col_0\" " +
+                            "FROM (SELECT l.\"col_0\" AS \"left_col_0\", r.\"col_0\" AS \"right_col_0\", r.\"col_9\" AS \"right_col_9\" " +
+                            "FROM (SELECT \"col_0\" AS \"col_0\" FROM \"test_table\" WHERE ((\"col_0\" < ?))) l " +
+                            "INNER JOIN (SELECT \"col_0\" AS \"col_0\", \"col_9\" AS \"col_9\" FROM \"test_table\" WHERE (\"col_2\" = ?)) r " +
+                            "ON l.\"col_0\" = r.\"col_9\") o " +
+                            "WHERE ((\"right_col_0\" < ?))");
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                Multiset<List<Object>> actual = read(resultSet);
+                assertThat(actual)
+                        .isEqualTo(ImmutableMultiset.of(
+                                ImmutableList.of(0L, 100L),
+                                ImmutableList.of(2L, 102L),
+                                ImmutableList.of(4L, 104L)));
+            }
+        }
+    }
+
     private static long toPrestoTimestamp(int year, int month, int day, int hour, int minute, int second)
     {
         return sqlTimestampOf(3, year, month, day, hour, minute, second, 0).getMillis() * MICROSECONDS_PER_MILLISECOND;
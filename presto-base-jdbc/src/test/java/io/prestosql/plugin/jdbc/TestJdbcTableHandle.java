@@ -13,12 +13,23 @@
  */
 package io.prestosql.plugin.jdbc;
 
+import com.google.common.collect.ImmutableList;
 import io.airlift.testing.EquivalenceTester;
+import io.prestosql.spi.connector.JoinCondition;
+import io.prestosql.spi.connector.JoinType;
 import io.prestosql.spi.connector.SchemaTableName;
+import io.prestosql.spi.predicate.TupleDomain;
 import org.testng.annotations.Test;
 
+import java.util.Optional;
+import java.util.OptionalLong;
+
 import static io.prestosql.plugin.jdbc.MetadataUtil.TABLE_CODEC;
 import static io.prestosql.plugin.jdbc.MetadataUtil.assertJsonRoundTrip;
+import static io.prestosql.plugin.jdbc.TestingJdbcTypeHandle.JDBC_BIGINT;
+import static io.prestosql.plugin.jdbc.TestingJdbcTypeHandle.JDBC_VARCHAR;
+import static io.prestosql.spi.type.BigintType.BIGINT;
+import static io.prestosql.spi.type.VarcharType.VARCHAR;
 
 public class TestJdbcTableHandle
 {
@@ -28,6 +39,35 @@ public class TestJdbcTableHandle
         assertJsonRoundTrip(TABLE_CODEC, new JdbcTableHandle(new SchemaTableName("schema", "table"), "jdbcCatalog", "jdbcSchema", "jdbcTable"));
     }
 
+    @Test
+    public void testJoinJsonRoundTrip()
+    {
+        JdbcColumnHandle leftKey = new JdbcColumnHandle("id", JDBC_BIGINT, BIGINT);
+        JdbcColumnHandle leftValue = new JdbcColumnHandle("name", JDBC_VARCHAR, VARCHAR);
+        JdbcColumnHandle rightKey = new JdbcColumnHandle("customer_id", JDBC_BIGINT, BIGINT);
+        JdbcTableHandle left = new JdbcTableHandle(new SchemaTableName("schema", "customer"), "jdbcCatalog", "jdbcSchema", "customer");
+        JdbcTableHandle right = new JdbcTableHandle(new SchemaTableName("schema", "orders"), "jdbcCatalog", "jdbcSchema", "orders");
+
+        JdbcJoinRelationHandle relationHandle = new JdbcJoinRelationHandle(
+                JoinType.LEFT_OUTER,
+                left,
+                right,
+                ImmutableList.of(new JdbcJoinCondition(leftKey, JoinCondition.Operator.EQUAL, rightKey)),
+                ImmutableList.of(leftKey, leftValue),
+                ImmutableList.of(rightKey),
+                ImmutableList.of(
+                        new JdbcColumnHandle("_presto_generated_0", JDBC_BIGINT, BIGINT),
+                        new JdbcColumnHandle("_presto_generated_1", JDBC_VARCHAR, VARCHAR),
+                        new JdbcColumnHandle("_presto_generated_2", JDBC_BIGINT, BIGINT)));
+
+        assertJsonRoundTrip(TABLE_CODEC, new JdbcTableHandle(
+                relationHandle,
+                TupleDomain.all(),
+                Optional.empty(),
+                OptionalLong.empty(),
+                Optional.of(relationHandle.getOutputColumns())));
+    }
+
     @Test
     public void testEquivalence()
     {
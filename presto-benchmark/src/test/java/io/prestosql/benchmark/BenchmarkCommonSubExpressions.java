@@ -0,0 +1,156 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import io.prestosql.metadata.Metadata;
+import io.prestosql.operator.DriverYieldSignal;
+import io.prestosql.operator.project.PageProcessor;
+import io.prestosql.operator.scalar.JsonPath;
+import io.prestosql.spi.Page;
+import io.prestosql.spi.block.BlockBuilder;
+import io.prestosql.sql.gen.ExpressionCompiler;
+import io.prestosql.sql.gen.PageFunctionCompiler;
+import io.prestosql.sql.planner.CompilerConfig;
+import io.prestosql.sql.relational.RowExpression;
+import io.prestosql.sql.relational.SpecialForm;
+import io.prestosql.sql.tree.QualifiedName;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static io.airlift.slice.Slices.utf8Slice;
+import static io.prestosql.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
+import static io.prestosql.metadata.MetadataManager.createTestMetadataManager;
+import static io.prestosql.spi.function.OperatorType.ADD;
+import static io.prestosql.spi.type.BigintType.BIGINT;
+import static io.prestosql.spi.type.BooleanType.BOOLEAN;
+import static io.prestosql.spi.type.VarcharType.VARCHAR;
+import static io.prestosql.sql.analyzer.TypeSignatureProvider.fromTypes;
+import static io.prestosql.sql.relational.Expressions.call;
+import static io.prestosql.sql.relational.Expressions.constant;
+import static io.prestosql.sql.relational.Expressions.field;
+import static io.prestosql.sql.relational.SpecialForm.Form.IS_NULL;
+import static io.prestosql.testing.TestingConnectorSession.SESSION;
+import static io.prestosql.type.JsonPathType.JSON_PATH;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.openjdk.jmh.annotations.Mode.AverageTime;
+import static org.openjdk.jmh.annotations.Scope.Thread;
+
+/**
+ * Filter and wide projections sharing an expensive expression:
+ * <pre>
+ * SELECT CAST(json_extract_scalar(payload, '$.a') AS bigint) + 0, ..., CAST(json_extract_scalar(payload, '$.a') AS bigint) + n
+ * WHERE json_extract_scalar(payload, '$.a') IS NOT NULL
+ * </pre>
+ */
+@SuppressWarnings("MethodMayBeStatic")
+@State(Thread)
+@OutputTimeUnit(MICROSECONDS)
+@BenchmarkMode(AverageTime)
+@Fork(2)
+@Warmup(iterations = 10, time = 500, timeUnit = MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = MILLISECONDS)
+public class BenchmarkCommonSubExpressions
+{
+    private static final int POSITIONS = 1024;
+
+    @Param({"true", "false"})
+    private boolean commonSubExpressionEliminationEnabled;
+
+    @Param({"1", "5", "20"})
+    private int projectionCount;
+
+    private Page inputPage;
+    private PageProcessor processor;
+
+    @Setup
+    public void setup()
+    {
+        Metadata metadata = createTestMetadataManager();
+        ExpressionCompiler expressionCompiler = new ExpressionCompiler(
+                metadata,
+                new PageFunctionCompiler(metadata, 0),
+                new CompilerConfig().setCommonSubExpressionEliminationEnabled(commonSubExpressionEliminationEnabled));
+
+        RowExpression payload = field(0, VARCHAR);
+        RowExpression extract = call(
+                metadata.resolveFunction(QualifiedName.of("json_extract_scalar"), fromTypes(VARCHAR, JSON_PATH)),
+                payload,
+                constant(new JsonPath("$.a"), JSON_PATH));
+        RowExpression filter = call(
+                metadata.resolveFunction(QualifiedName.of("not"), fromTypes(BOOLEAN)),
+                new SpecialForm(IS_NULL, BOOLEAN, extract));
+
+        ImmutableList.Builder<RowExpression> projections = ImmutableList.builder();
+        for (int i = 0; i < projectionCount; i++) {
+            projections.add(call(
+                    metadata.resolveOperator(ADD, ImmutableList.of(BIGINT, BIGINT)),
+                    call(metadata.getCoercion(extract.getType(), BIGINT), extract),
+                    constant((long) i, BIGINT)));
+        }
+
+        processor = expressionCompiler.compilePageProcessor(Optional.of(filter), projections.build(), POSITIONS).get();
+        inputPage = createInputPage();
+    }
+
+    @Benchmark
+    public List<Optional<Page>> process()
+    {
+        return ImmutableList.copyOf(processor.process(
+                SESSION,
+                new DriverYieldSignal(),
+                newSimpleAggregatedMemoryContext().newLocalMemoryContext(PageProcessor.class.getSimpleName()),
+                inputPage));
+    }
+
+    private static Page createInputPage()
+    {
+        Random random = new Random(42);
+        BlockBuilder blockBuilder = VARCHAR.createBlockBuilder(null, POSITIONS);
+        for (int i = 0; i < POSITIONS; i++) {
+            // every tenth document does not contain the extracted field
+            String key = random.nextInt(10) == 0 ? "c" : "a";
+            VARCHAR.writeSlice(blockBuilder, utf8Slice("{\"" + key + "\": \"" + random.nextInt(1_000_000) + "\", \"b\": {\"c\": [1, 2, 3]}}"));
+        }
+        return new Page(blockBuilder.build());
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkCommonSubExpressions.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
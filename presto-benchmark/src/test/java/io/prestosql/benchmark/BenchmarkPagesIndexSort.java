@@ -0,0 +1,152 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import io.prestosql.operator.PagesIndex;
+import io.prestosql.spi.Page;
+import io.prestosql.spi.PageBuilder;
+import io.prestosql.spi.block.BlockBuilder;
+import io.prestosql.spi.type.Type;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.List;
+import java.util.Random;
+
+import static io.airlift.slice.Slices.utf8Slice;
+import static io.prestosql.spi.block.SortOrder.ASC_NULLS_LAST;
+import static io.prestosql.spi.type.BigintType.BIGINT;
+import static io.prestosql.spi.type.DoubleType.DOUBLE;
+import static io.prestosql.spi.type.VarcharType.VARCHAR;
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.openjdk.jmh.annotations.Mode.AverageTime;
+import static org.openjdk.jmh.annotations.Scope.Thread;
+
+/**
+ * Sorts a {@link PagesIndex} the way {@link OrderByBenchmark} does, on a key column
+ * followed by a clerk-like varchar payload, with and without normalized key sort.
+ */
+@SuppressWarnings("MethodMayBeStatic")
+@State(Thread)
+@OutputTimeUnit(MILLISECONDS)
+@BenchmarkMode(AverageTime)
+@Fork(2)
+@Warmup(iterations = 10, time = 500, timeUnit = MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = MILLISECONDS)
+public class BenchmarkPagesIndexSort
+{
+    @Param({"true", "false"})
+    private boolean normalizedKeySort;
+
+    @Param({"bigint", "double", "varchar"})
+    private String keyType;
+
+    @Param({"10000", "1000000"})
+    private int positions;
+
+    private List<Type> types;
+    private List<Page> pages;
+    private PagesIndex pagesIndex;
+
+    @Setup
+    public void setup()
+    {
+        types = ImmutableList.of(getKeyType(), VARCHAR);
+        pages = createPages();
+    }
+
+    @Setup(Level.Invocation)
+    public void createPagesIndex()
+    {
+        pagesIndex = new PagesIndex.TestingFactory(false, normalizedKeySort).newPagesIndex(types, positions);
+        pages.forEach(pagesIndex::addPage);
+    }
+
+    @Benchmark
+    public PagesIndex sort()
+    {
+        pagesIndex.sort(ImmutableList.of(0), ImmutableList.of(ASC_NULLS_LAST));
+        return pagesIndex;
+    }
+
+    private Type getKeyType()
+    {
+        switch (keyType) {
+            case "bigint":
+                return BIGINT;
+            case "double":
+                return DOUBLE;
+            case "varchar":
+                return VARCHAR;
+        }
+        throw new IllegalArgumentException("Unsupported key type: " + keyType);
+    }
+
+    private List<Page> createPages()
+    {
+        Random random = new Random(42);
+        ImmutableList.Builder<Page> pages = ImmutableList.builder();
+        PageBuilder pageBuilder = new PageBuilder(types);
+        for (int i = 0; i < positions; i++) {
+            pageBuilder.declarePosition();
+            BlockBuilder keyBuilder = pageBuilder.getBlockBuilder(0);
+            if (types.get(0).equals(BIGINT)) {
+                BIGINT.writeLong(keyBuilder, random.nextLong());
+            }
+            else if (types.get(0).equals(DOUBLE)) {
+                // prices with cents, as orders.totalprice
+                DOUBLE.writeDouble(keyBuilder, random.nextInt(50_000_000) / 100.0);
+            }
+            else {
+                VARCHAR.writeSlice(keyBuilder, utf8Slice(format("Customer#%09d", random.nextInt(150_000))));
+            }
+            VARCHAR.writeSlice(pageBuilder.getBlockBuilder(1), utf8Slice(format("Clerk#%09d", random.nextInt(1000))));
+
+            if (pageBuilder.isFull()) {
+                pages.add(pageBuilder.build());
+                pageBuilder.reset();
+            }
+        }
+        if (!pageBuilder.isEmpty()) {
+            pages.add(pageBuilder.build());
+        }
+        return pages.build();
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkPagesIndexSort.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
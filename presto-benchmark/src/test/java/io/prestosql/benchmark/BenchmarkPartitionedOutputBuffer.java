@@ -0,0 +1,196 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.airlift.units.DataSize;
+import io.prestosql.execution.StateMachine;
+import io.prestosql.execution.buffer.BufferResult;
+import io.prestosql.execution.buffer.BufferState;
+import io.prestosql.execution.buffer.OutputBuffers;
+import io.prestosql.execution.buffer.OutputBuffers.OutputBufferId;
+import io.prestosql.execution.buffer.PagesSerdeFactory;
+import io.prestosql.execution.buffer.PartitionedOutputBuffer;
+import io.prestosql.execution.buffer.SerializedPage;
+import io.prestosql.spi.Page;
+import io.prestosql.spi.block.BlockBuilder;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.prestosql.execution.buffer.BufferState.OPEN;
+import static io.prestosql.execution.buffer.BufferState.TERMINAL_BUFFER_STATES;
+import static io.prestosql.execution.buffer.OutputBuffers.BufferType.PARTITIONED;
+import static io.prestosql.execution.buffer.OutputBuffers.createInitialEmptyOutputBuffers;
+import static io.prestosql.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
+import static io.prestosql.metadata.MetadataManager.createTestMetadataManager;
+import static io.prestosql.spi.type.BigintType.BIGINT;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.openjdk.jmh.annotations.Mode.Throughput;
+
+/**
+ * Multiple drivers enqueue pages into a {@link PartitionedOutputBuffer} while multiple clients read and acknowledge them.
+ */
+@SuppressWarnings("MethodMayBeStatic")
+@OutputTimeUnit(SECONDS)
+@BenchmarkMode(Throughput)
+@Fork(2)
+@Warmup(iterations = 10, time = 500, timeUnit = MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = MILLISECONDS)
+public class BenchmarkPartitionedOutputBuffer
+{
+    private static final int PRODUCERS = 8;
+    private static final int CONSUMERS = 8;
+    private static final int POSITIONS_PER_PAGE = 256;
+    private static final DataSize MAX_BUFFER_SIZE = DataSize.of(32, DataSize.Unit.MEGABYTE);
+    private static final DataSize MAX_RESPONSE_SIZE = DataSize.of(1, DataSize.Unit.MEGABYTE);
+
+    @State(Scope.Group)
+    public static class BenchmarkData
+    {
+        @Param({"16", "128"})
+        private int partitionCount;
+
+        private ExecutorService executor;
+        private PartitionedOutputBuffer outputBuffer;
+        private SerializedPage page;
+        private final AtomicInteger nextConsumerId = new AtomicInteger();
+
+        @Setup
+        public void setup()
+        {
+            executor = newCachedThreadPool(daemonThreadsNamed("partitioned-output-buffer-%s"));
+
+            OutputBuffers buffers = createInitialEmptyOutputBuffers(PARTITIONED);
+            for (int partition = 0; partition < partitionCount; partition++) {
+                buffers = buffers.withBuffer(new OutputBufferId(partition), partition);
+            }
+            outputBuffer = new PartitionedOutputBuffer(
+                    "task-instance-id",
+                    new StateMachine<BufferState>("bufferState", executor, OPEN, TERMINAL_BUFFER_STATES),
+                    buffers.withNoMoreBufferIds(),
+                    MAX_BUFFER_SIZE,
+                    () -> newSimpleAggregatedMemoryContext().newLocalMemoryContext("test"),
+                    executor);
+
+            BlockBuilder blockBuilder = BIGINT.createBlockBuilder(null, POSITIONS_PER_PAGE);
+            for (int position = 0; position < POSITIONS_PER_PAGE; position++) {
+                BIGINT.writeLong(blockBuilder, position);
+            }
+            page = new PagesSerdeFactory(createTestMetadataManager().getBlockEncodingSerde(), false)
+                    .createPagesSerde()
+                    .serialize(new Page(blockBuilder.build()));
+        }
+
+        @TearDown
+        public void tearDown()
+        {
+            outputBuffer.destroy();
+            executor.shutdownNow();
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters
+    public static class Consumer
+    {
+        public long pagesRead;
+
+        private int[] partitions;
+        private long[] tokens;
+
+        @Setup
+        public void setup(BenchmarkData data)
+        {
+            int consumerId = data.nextConsumerId.getAndIncrement();
+            partitions = IntStream.iterate(consumerId, partition -> partition < data.partitionCount, partition -> partition + CONSUMERS).toArray();
+            tokens = new long[partitions.length];
+        }
+
+        @Setup(Level.Iteration)
+        public void resetCounters()
+        {
+            pagesRead = 0;
+        }
+    }
+
+    @Benchmark
+    @Group("exchange")
+    @GroupThreads(PRODUCERS)
+    public void enqueue(BenchmarkData data)
+            throws InterruptedException, ExecutionException
+    {
+        // wait for the clients to free up space, like a driver blocked on the output operator
+        data.outputBuffer.isFull().get();
+        data.outputBuffer.enqueue(ThreadLocalRandom.current().nextInt(data.partitionCount), ImmutableList.of(data.page));
+    }
+
+    @Benchmark
+    @Group("exchange")
+    @GroupThreads(CONSUMERS)
+    public void read(BenchmarkData data, Consumer consumer)
+            throws InterruptedException, ExecutionException
+    {
+        // never wait for pages, as the drivers may already have stopped at the end of an iteration
+        for (int i = 0; i < consumer.partitions.length; i++) {
+            OutputBufferId bufferId = new OutputBufferId(consumer.partitions[i]);
+            ListenableFuture<BufferResult> future = data.outputBuffer.get(bufferId, consumer.tokens[i], MAX_RESPONSE_SIZE);
+            if (future.isDone()) {
+                List<SerializedPage> pages = future.get().getSerializedPages();
+                consumer.pagesRead += pages.size();
+                consumer.tokens[i] += pages.size();
+                data.outputBuffer.acknowledge(bufferId, consumer.tokens[i]);
+            }
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkPartitionedOutputBuffer.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.units.DataSize;
+import io.prestosql.execution.StateMachine;
+import io.prestosql.execution.buffer.BufferState;
+import io.prestosql.execution.buffer.OutputBuffers;
+import io.prestosql.execution.buffer.PagesSerdeFactory;
+import io.prestosql.execution.buffer.PartitionedOutputBuffer;
+import io.prestosql.operator.DriverContext;
+import io.prestosql.operator.InterpretedHashGenerator;
+import io.prestosql.operator.PartitionedOutputOperator;
+import io.prestosql.operator.PartitionedOutputOperator.PartitionedOutputFactory;
+import io.prestosql.operator.exchange.LocalPartitionGenerator;
+import io.prestosql.spi.Page;
+import io.prestosql.spi.block.Block;
+import io.prestosql.spi.block.BlockBuilder;
+import io.prestosql.spi.block.DictionaryBlock;
+import io.prestosql.spi.type.ArrayType;
+import io.prestosql.spi.type.Type;
+import io.prestosql.sql.planner.plan.PlanNodeId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.slice.Slices.utf8Slice;
+import static io.prestosql.execution.buffer.BufferState.OPEN;
+import static io.prestosql.execution.buffer.BufferState.TERMINAL_BUFFER_STATES;
+import static io.prestosql.execution.buffer.OutputBuffers.BufferType.PARTITIONED;
+import static io.prestosql.execution.buffer.OutputBuffers.createInitialEmptyOutputBuffers;
+import static io.prestosql.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
+import static io.prestosql.metadata.MetadataManager.createTestMetadataManager;
+import static io.prestosql.spi.type.BigintType.BIGINT;
+import static io.prestosql.spi.type.VarcharType.VARCHAR;
+import static io.prestosql.testing.TestingSession.testSessionBuilder;
+import static io.prestosql.testing.TestingTaskContext.createTaskContext;
+import static java.lang.String.format;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.Executors.newScheduledThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.openjdk.jmh.annotations.Mode.AverageTime;
+import static org.openjdk.jmh.annotations.Scope.Thread;
+
+/**
+ * Partitions pages of a bigint key and a payload column over a {@link PartitionedOutputBuffer}.
+ */
+@SuppressWarnings("MethodMayBeStatic")
+@State(Thread)
+@OutputTimeUnit(MILLISECONDS)
+@BenchmarkMode(AverageTime)
+@Fork(2)
+@Warmup(iterations = 10, time = 500, timeUnit = MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = MILLISECONDS)
+public class BenchmarkPartitionedOutputOperator
+{
+    private static final int PAGE_COUNT = 100;
+    private static final int POSITIONS_PER_PAGE = 8192;
+    private static final DataSize MAX_MEMORY = DataSize.of(32, DataSize.Unit.MEGABYTE);
+
+    @Param({"bigint", "varchar", "dictionary", "array"})
+    private String payloadType;
+
+    @Param({"16", "256"})
+    private int partitionCount;
+
+    private ExecutorService executor;
+    private ScheduledExecutorService scheduledExecutor;
+    private List<Type> types;
+    private List<Page> pages;
+    private PartitionedOutputOperator operator;
+
+    @Setup
+    public void setup()
+    {
+        executor = newCachedThreadPool(daemonThreadsNamed("partitioned-output-%s"));
+        scheduledExecutor = newScheduledThreadPool(2, daemonThreadsNamed("partitioned-output-scheduled-%s"));
+        types = ImmutableList.of(BIGINT, getPayloadType());
+        pages = createPages();
+    }
+
+    @Setup(Level.Invocation)
+    public void createOperator()
+    {
+        OutputBuffers buffers = createInitialEmptyOutputBuffers(PARTITIONED);
+        for (int partition = 0; partition < partitionCount; partition++) {
+            buffers = buffers.withBuffer(new OutputBuffers.OutputBufferId(partition), partition);
+        }
+        PartitionedOutputBuffer outputBuffer = new PartitionedOutputBuffer(
+                "task-instance-id",
+                new StateMachine<BufferState>("bufferState", executor, OPEN, TERMINAL_BUFFER_STATES),
+                buffers.withNoMoreBufferIds(),
+                DataSize.of(Long.MAX_VALUE, DataSize.Unit.BYTE),
+                () -> newSimpleAggregatedMemoryContext().newLocalMemoryContext("test"),
+                executor);
+
+        PartitionedOutputFactory outputFactory = new PartitionedOutputFactory(
+                new LocalPartitionGenerator(new InterpretedHashGenerator(ImmutableList.of(BIGINT), new int[] {0}), partitionCount),
+                ImmutableList.of(0),
+                ImmutableList.of(Optional.empty()),
+                false,
+                OptionalInt.empty(),
+                false,
+                outputBuffer,
+                MAX_MEMORY);
+        DriverContext driverContext = createTaskContext(executor, scheduledExecutor, testSessionBuilder().build())
+                .addPipelineContext(0, true, true, false)
+                .addDriverContext();
+        operator = (PartitionedOutputOperator) outputFactory
+                .createOutputOperator(0, new PlanNodeId("test"), types, Function.identity(), new PagesSerdeFactory(createTestMetadataManager().getBlockEncodingSerde(), false))
+                .createOperator(driverContext);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        executor.shutdownNow();
+        scheduledExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public PartitionedOutputOperator partition()
+    {
+        for (Page page : pages) {
+            operator.addInput(page);
+        }
+        operator.finish();
+        return operator;
+    }
+
+    private Type getPayloadType()
+    {
+        switch (payloadType) {
+            case "bigint":
+                return BIGINT;
+            case "varchar":
+            case "dictionary":
+                return VARCHAR;
+            case "array":
+                return new ArrayType(BIGINT);
+        }
+        throw new IllegalArgumentException("Unsupported payload type: " + payloadType);
+    }
+
+    private List<Page> createPages()
+    {
+        Random random = new Random(42);
+        Block dictionary = createDictionary(random);
+        ImmutableList.Builder<Page> pages = ImmutableList.builder();
+        for (int i = 0; i < PAGE_COUNT; i++) {
+            BlockBuilder keyBuilder = BIGINT.createBlockBuilder(null, POSITIONS_PER_PAGE);
+            for (int position = 0; position < POSITIONS_PER_PAGE; position++) {
+                BIGINT.writeLong(keyBuilder, random.nextLong());
+            }
+            pages.add(new Page(keyBuilder.build(), createPayload(random, dictionary)));
+        }
+        return pages.build();
+    }
+
+    private Block createPayload(Random random, Block dictionary)
+    {
+        Type type = getPayloadType();
+        if (payloadType.equals("dictionary")) {
+            int[] ids = new int[POSITIONS_PER_PAGE];
+            for (int position = 0; position < POSITIONS_PER_PAGE; position++) {
+                ids[position] = random.nextInt(dictionary.getPositionCount());
+            }
+            return new DictionaryBlock(dictionary, ids);
+        }
+
+        BlockBuilder blockBuilder = type.createBlockBuilder(null, POSITIONS_PER_PAGE);
+        for (int position = 0; position < POSITIONS_PER_PAGE; position++) {
+            if (type.equals(BIGINT)) {
+                BIGINT.writeLong(blockBuilder, random.nextLong());
+            }
+            else if (type.equals(VARCHAR)) {
+                VARCHAR.writeSlice(blockBuilder, utf8Slice(format("Customer#%09d", random.nextInt(150_000))));
+            }
+            else {
+                BlockBuilder elementBuilder = blockBuilder.beginBlockEntry();
+                int elements = random.nextInt(5);
+                for (int element = 0; element < elements; element++) {
+                    BIGINT.writeLong(elementBuilder, random.nextLong());
+                }
+                blockBuilder.closeEntry();
+            }
+        }
+        return blockBuilder.build();
+    }
+
+    private static Block createDictionary(Random random)
+    {
+        BlockBuilder blockBuilder = VARCHAR.createBlockBuilder(null, 1000);
+        for (int i = 0; i < 1000; i++) {
+            VARCHAR.writeSlice(blockBuilder, utf8Slice(format("Clerk#%09d", random.nextInt(1000))));
+        }
+        return blockBuilder.build();
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkPartitionedOutputOperator.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.airlift.json.JsonCodec;
+import io.airlift.json.ObjectMapperProvider;
+import io.airlift.stats.TestingGcMonitor;
+import io.airlift.units.DataSize;
+import io.prestosql.execution.TaskId;
+import io.prestosql.execution.TaskInfo;
+import io.prestosql.execution.TaskStateMachine;
+import io.prestosql.execution.buffer.BufferInfo;
+import io.prestosql.execution.buffer.OutputBufferInfo;
+import io.prestosql.execution.buffer.OutputBuffers.OutputBufferId;
+import io.prestosql.execution.buffer.PageBufferInfo;
+import io.prestosql.memory.MemoryPool;
+import io.prestosql.memory.QueryContext;
+import io.prestosql.operator.Driver;
+import io.prestosql.operator.TaskContext;
+import io.prestosql.plugin.tpch.TpchConnectorFactory;
+import io.prestosql.server.smile.SmileCodec;
+import io.prestosql.spi.QueryId;
+import io.prestosql.spi.memory.MemoryPoolId;
+import io.prestosql.spiller.SpillSpaceTracker;
+import io.prestosql.testing.LocalQueryRunner;
+import io.prestosql.testing.PageConsumerOperator.PageConsumerOutputFactory;
+import org.joda.time.DateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+import static io.airlift.json.JsonCodec.jsonCodec;
+import static io.airlift.units.DataSize.Unit.GIGABYTE;
+import static io.prestosql.execution.TaskStatus.initialTaskStatus;
+import static io.prestosql.execution.buffer.BufferState.FINISHED;
+import static io.prestosql.server.smile.SmileCodec.smileCodec;
+import static io.prestosql.testing.TestingSession.testSessionBuilder;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static org.openjdk.jmh.annotations.Mode.AverageTime;
+import static org.openjdk.jmh.annotations.Scope.Thread;
+
+/**
+ * Compares the cost of encoding and decoding a {@link TaskInfo} as JSON and as SMILE.
+ * The task statistics come from actually running a join with an aggregation, so the
+ * payload has the pipeline and operator detail a worker reports to the coordinator.
+ */
+@SuppressWarnings("MethodMayBeStatic")
+@State(Thread)
+@OutputTimeUnit(MICROSECONDS)
+@BenchmarkMode(AverageTime)
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+public class BenchmarkTaskInfoSerialization
+{
+    @Benchmark
+    public byte[] serializeJson(BenchmarkData data)
+    {
+        return data.getJsonCodec().toJsonBytes(data.getTaskInfo());
+    }
+
+    @Benchmark
+    public byte[] serializeSmile(BenchmarkData data)
+    {
+        return data.getSmileCodec().toSmileBytes(data.getTaskInfo());
+    }
+
+    @Benchmark
+    public TaskInfo deserializeJson(BenchmarkData data)
+    {
+        return data.getJsonCodec().fromJson(data.getJsonBytes());
+    }
+
+    @Benchmark
+    public TaskInfo deserializeSmile(BenchmarkData data)
+    {
+        return data.getSmileCodec().fromSmile(data.getSmileBytes());
+    }
+
+    @State(Thread)
+    public static class BenchmarkData
+    {
+        @Param({"true", "false"})
+        private boolean summarize;
+
+        private JsonCodec<TaskInfo> jsonCodec;
+        private SmileCodec<TaskInfo> smileCodec;
+        private TaskInfo taskInfo;
+        private byte[] jsonBytes;
+        private byte[] smileBytes;
+
+        @Setup
+        public void setup()
+        {
+            ObjectMapper objectMapper = new ObjectMapperProvider().get();
+            jsonCodec = jsonCodec(TaskInfo.class);
+            smileCodec = smileCodec(objectMapper, TaskInfo.class);
+
+            taskInfo = createTaskInfo();
+            if (summarize) {
+                taskInfo = taskInfo.summarize();
+            }
+            jsonBytes = jsonCodec.toJsonBytes(taskInfo);
+            smileBytes = smileCodec.toSmileBytes(taskInfo);
+        }
+
+        private static TaskInfo createTaskInfo()
+        {
+            try (LocalQueryRunner queryRunner = LocalQueryRunner.builder(testSessionBuilder()
+                    .setCatalog("tpch")
+                    .setSchema("tiny")
+                    .build())
+                    .withInitialTransaction()
+                    .build()) {
+                queryRunner.createCatalog("tpch", new TpchConnectorFactory(1), ImmutableMap.of());
+
+                QueryContext queryContext = new QueryContext(
+                        new QueryId("test"),
+                        DataSize.of(1, GIGABYTE),
+                        DataSize.of(2, GIGABYTE),
+                        new MemoryPool(new MemoryPoolId("test"), DataSize.of(2, GIGABYTE)),
+                        new TestingGcMonitor(),
+                        queryRunner.getExecutor(),
+                        queryRunner.getScheduler(),
+                        DataSize.of(4, GIGABYTE),
+                        new SpillSpaceTracker(DataSize.of(1, GIGABYTE)));
+                TaskId taskId = new TaskId("test", 0, 0);
+                TaskContext taskContext = queryContext.addTaskContext(
+                        new TaskStateMachine(taskId, queryRunner.getExecutor()),
+                        queryRunner.getDefaultSession(),
+                        () -> {},
+                        true,
+                        true,
+                        OptionalInt.empty());
+
+                List<Driver> drivers = queryRunner.createDrivers(
+                        "SELECT o.orderpriority, l.returnflag, count(*), sum(l.extendedprice * (1 - l.discount)) " +
+                                "FROM orders o JOIN lineitem l ON o.orderkey = l.orderkey " +
+                                "WHERE l.shipdate > o.orderdate " +
+                                "GROUP BY o.orderpriority, l.returnflag",
+                        new PageConsumerOutputFactory(types -> page -> {}),
+                        taskContext);
+                boolean done = false;
+                while (!done) {
+                    boolean processed = false;
+                    for (Driver driver : drivers) {
+                        if (!driver.isFinished()) {
+                            driver.process();
+                            processed = true;
+                        }
+                    }
+                    done = !processed;
+                }
+
+                List<BufferInfo> buffers = ImmutableList.of(new BufferInfo(new OutputBufferId(0), true, 0, 12, new PageBufferInfo(0, 0, 0, 12, 24)));
+                return new TaskInfo(
+                        initialTaskStatus(taskId, URI.create("http://127.0.0.1:8080/v1/task/test.0.0"), "worker"),
+                        DateTime.now(),
+                        new OutputBufferInfo("PARTITIONED", FINISHED, false, false, 0, 0, 24, 12, buffers),
+                        ImmutableSet.of(),
+                        taskContext.getTaskStats(),
+                        false,
+                        Optional.empty());
+            }
+        }
+
+        public JsonCodec<TaskInfo> getJsonCodec()
+        {
+            return jsonCodec;
+        }
+
+        public SmileCodec<TaskInfo> getSmileCodec()
+        {
+            return smileCodec;
+        }
+
+        public TaskInfo getTaskInfo()
+        {
+            return taskInfo;
+        }
+
+        public byte[] getJsonBytes()
+        {
+            return jsonBytes;
+        }
+
+        public byte[] getSmileBytes()
+        {
+            return smileBytes;
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkTaskInfoSerialization.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -94,6 +94,7 @@ import static io.prestosql.plugin.hive.HiveErrorCode.HIVE_UNKNOWN_ERROR;
 import static io.prestosql.plugin.hive.HivePartitionManager.partitionMatches;
 import static io.prestosql.plugin.hive.HiveSessionProperties.getMaxInitialSplitSize;
 import static io.prestosql.plugin.hive.HiveSessionProperties.isForceLocalScheduling;
+import static io.prestosql.plugin.hive.HiveSessionProperties.isPropagateTableScanSortingProperties;
 import static io.prestosql.plugin.hive.metastore.MetastoreUtil.getHiveSchema;
 import static io.prestosql.plugin.hive.metastore.MetastoreUtil.getPartitionLocation;
 import static io.prestosql.plugin.hive.s3select.S3SelectPushdown.shouldEnablePushdownForTable;
@@ -518,7 +519,9 @@ public class BackgroundHiveSplitLoader
         // S3 Select pushdown works at the granularity of individual S3 objects,
         // therefore we must not split files when it is enabled.
         // Skip header / footer lines are not splittable except for a special case when skip.header.line.count=1
-        boolean splittable = !s3SelectPushdownEnabled && getFooterCount(schema) == 0 && getHeaderCount(schema) <= 1;
+        // Sorted bucket files must be read by a single split for the engine to rely on their sort order
+        boolean splittable = !s3SelectPushdownEnabled && getFooterCount(schema) == 0 && getHeaderCount(schema) <= 1 &&
+                !(tableBucketInfo.isPresent() && isPropagateTableScanSortingProperties(session) && isSorted(table));
 
         // Bucketed partitions are fully loaded immediately since all files must be loaded to determine the file to bucket mapping
         if (tableBucketInfo.isPresent()) {
@@ -770,6 +773,13 @@ public class BackgroundHiveSplitLoader
         }
     }
 
+    private static boolean isSorted(Table table)
+    {
+        return table.getStorage().getBucketProperty()
+                .map(bucketProperty -> !bucketProperty.getSortedBy().isEmpty())
+                .orElse(false);
+    }
+
     private static List<HivePartitionKey> getPartitionKeys(Table table, Optional<Partition> partition)
     {
         if (partition.isEmpty()) {
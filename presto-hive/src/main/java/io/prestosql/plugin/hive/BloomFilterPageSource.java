@@ -0,0 +1,175 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.plugin.hive;
+
+import com.google.common.collect.ImmutableList;
+import io.prestosql.spi.Page;
+import io.prestosql.spi.block.Block;
+import io.prestosql.spi.connector.ConnectorPageSource;
+import io.prestosql.spi.predicate.BloomFilter;
+import io.prestosql.spi.type.Type;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Removes rows which cannot match any row of the join build side, according to dynamic filter bloom filters.
+ */
+public class BloomFilterPageSource
+        implements ConnectorPageSource
+{
+    private final ConnectorPageSource delegate;
+    private final List<FilteredChannel> filteredChannels;
+
+    private long filteredPositions;
+
+    public BloomFilterPageSource(ConnectorPageSource delegate, List<FilteredChannel> filteredChannels)
+    {
+        this.delegate = requireNonNull(delegate, "delegate is null");
+        this.filteredChannels = ImmutableList.copyOf(requireNonNull(filteredChannels, "filteredChannels is null"));
+        checkArgument(!filteredChannels.isEmpty(), "filteredChannels is empty");
+    }
+
+    @Override
+    public long getCompletedBytes()
+    {
+        return delegate.getCompletedBytes();
+    }
+
+    @Override
+    public long getReadTimeNanos()
+    {
+        return delegate.getReadTimeNanos();
+    }
+
+    @Override
+    public boolean isFinished()
+    {
+        return delegate.isFinished();
+    }
+
+    @Override
+    public Page getNextPage()
+    {
+        Page page = delegate.getNextPage();
+        if (page == null || page.getPositionCount() == 0) {
+            return page;
+        }
+
+        int[] retainedPositions = new int[page.getPositionCount()];
+        int retainedPositionCount = 0;
+        Block[] blocks = new Block[filteredChannels.size()];
+        for (int i = 0; i < filteredChannels.size(); i++) {
+            blocks[i] = page.getBlock(filteredChannels.get(i).getChannel());
+        }
+        for (int position = 0; position < page.getPositionCount(); position++) {
+            if (mightMatch(blocks, position)) {
+                retainedPositions[retainedPositionCount] = position;
+                retainedPositionCount++;
+            }
+        }
+
+        filteredPositions += page.getPositionCount() - retainedPositionCount;
+        if (retainedPositionCount == page.getPositionCount()) {
+            return page;
+        }
+        return page.getPositions(retainedPositions, 0, retainedPositionCount);
+    }
+
+    private boolean mightMatch(Block[] blocks, int position)
+    {
+        for (int i = 0; i < filteredChannels.size(); i++) {
+            FilteredChannel filteredChannel = filteredChannels.get(i);
+            Block block = blocks[i];
+            // join doesn't match rows with null key column values
+            if (block.isNull(position) || !filteredChannel.getBloomFilter().mightContain(filteredChannel.getType(), block, position)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public long getSystemMemoryUsage()
+    {
+        return delegate.getSystemMemoryUsage();
+    }
+
+    @Override
+    public void close()
+            throws IOException
+    {
+        delegate.close();
+    }
+
+    @Override
+    public CompletableFuture<?> isBlocked()
+    {
+        return delegate.isBlocked();
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("delegate", delegate)
+                .add("filteredChannels", filteredChannels)
+                .add("filteredPositions", filteredPositions)
+                .toString();
+    }
+
+    public static class FilteredChannel
+    {
+        private final int channel;
+        private final Type type;
+        private final BloomFilter bloomFilter;
+
+        public FilteredChannel(int channel, Type type, BloomFilter bloomFilter)
+        {
+            this.channel = channel;
+            this.type = requireNonNull(type, "type is null");
+            this.bloomFilter = requireNonNull(bloomFilter, "bloomFilter is null");
+        }
+
+        public int getChannel()
+        {
+            return channel;
+        }
+
+        public Type getType()
+        {
+            return type;
+        }
+
+        public BloomFilter getBloomFilter()
+        {
+            return bloomFilter;
+        }
+
+        @Override
+        public String toString()
+        {
+            return toStringHelper(this)
+                    .add("channel", channel)
+                    .add("type", type)
+                    .add("bloomFilter", bloomFilter)
+                    .toString();
+        }
+    }
+}
@@ -105,6 +105,7 @@ public class HiveConfig
 
     private boolean bucketExecutionEnabled = true;
     private boolean sortedWritingEnabled = true;
+    private boolean propagateTableScanSortingProperties;
 
     private boolean optimizeMismatchedBucketCount;
     private boolean writesToNonManagedTablesEnabled;
@@ -748,6 +749,19 @@ public class HiveConfig
         return this;
     }
 
+    public boolean isPropagateTableScanSortingProperties()
+    {
+        return propagateTableScanSortingProperties;
+    }
+
+    @Config("hive.propagate-table-scan-sorting-properties")
+    @ConfigDescription("Expose the sort order of bucketed sorted tables to the engine, e.g. for merge joins")
+    public HiveConfig setPropagateTableScanSortingProperties(boolean propagateTableScanSortingProperties)
+    {
+        this.propagateTableScanSortingProperties = propagateTableScanSortingProperties;
+        return this;
+    }
+
     @Config("hive.non-managed-table-writes-enabled")
     @ConfigDescription("Enable writes to non-managed (external) tables")
     public HiveConfig setWritesToNonManagedTablesEnabled(boolean writesToNonManagedTablesEnabled)
@@ -25,6 +25,8 @@ import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import io.airlift.json.JsonCodec;
 import io.airlift.slice.Slice;
 import io.prestosql.plugin.base.CatalogName;
@@ -69,10 +71,12 @@ import io.prestosql.spi.connector.Constraint;
 import io.prestosql.spi.connector.ConstraintApplicationResult;
 import io.prestosql.spi.connector.DiscretePredicates;
 import io.prestosql.spi.connector.InMemoryRecordSet;
+import io.prestosql.spi.connector.LocalProperty;
 import io.prestosql.spi.connector.ProjectionApplicationResult;
 import io.prestosql.spi.connector.SchemaNotFoundException;
 import io.prestosql.spi.connector.SchemaTableName;
 import io.prestosql.spi.connector.SchemaTablePrefix;
+import io.prestosql.spi.connector.SortingProperty;
 import io.prestosql.spi.connector.SystemTable;
 import io.prestosql.spi.connector.TableNotFoundException;
 import io.prestosql.spi.connector.ViewNotFoundException;
@@ -95,9 +99,13 @@ import io.prestosql.spi.type.TimestampType;
 import io.prestosql.spi.type.Type;
 import io.prestosql.spi.type.TypeManager;
 import io.prestosql.spi.type.VarcharType;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocatedFileStatus;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
 import org.apache.hadoop.hive.metastore.TableType;
 import org.apache.hadoop.hive.ql.exec.FileSinkOperator;
+import org.apache.hadoop.hive.ql.io.AcidUtils;
 import org.apache.hadoop.hive.serde.serdeConstants;
 import org.apache.hadoop.hive.serde2.OpenCSVSerde;
 import org.apache.hadoop.mapred.JobConf;
@@ -109,6 +117,7 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -166,6 +175,7 @@ import static io.prestosql.plugin.hive.HiveSessionProperties.isCollectColumnStat
 import static io.prestosql.plugin.hive.HiveSessionProperties.isCreateEmptyBucketFiles;
 import static io.prestosql.plugin.hive.HiveSessionProperties.isOptimizedMismatchedBucketCount;
 import static io.prestosql.plugin.hive.HiveSessionProperties.isProjectionPushdownEnabled;
+import static io.prestosql.plugin.hive.HiveSessionProperties.isPropagateTableScanSortingProperties;
 import static io.prestosql.plugin.hive.HiveSessionProperties.isRespectTableFormat;
 import static io.prestosql.plugin.hive.HiveSessionProperties.isSortedWritingEnabled;
 import static io.prestosql.plugin.hive.HiveSessionProperties.isStatisticsEnabled;
@@ -250,6 +260,7 @@ import static io.prestosql.spi.type.TypeUtils.isFloatingPointNaN;
 import static io.prestosql.spi.type.VarcharType.createUnboundedVarcharType;
 import static java.lang.Boolean.parseBoolean;
 import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Locale.ENGLISH;
 import static java.util.Objects.requireNonNull;
 import static java.util.function.Function.identity;
@@ -1978,12 +1989,44 @@ public class HiveMetadata
                             .collect(toImmutableList())));
         }
 
+        List<LocalProperty<ColumnHandle>> localProperties = ImmutableList.of();
+        if (isPropagateTableScanSortingProperties(session) && tablePartitioning.isPresent() && partitions.size() <= 1) {
+            localProperties = getSortingProperties(session, hiveTable);
+        }
+
         return new ConnectorTableProperties(
                 predicate,
                 tablePartitioning,
                 Optional.empty(),
                 discretePredicates,
-                ImmutableList.of());
+                localProperties);
+    }
+
+    private List<LocalProperty<ColumnHandle>> getSortingProperties(ConnectorSession session, HiveTableHandle hiveTable)
+    {
+        HiveBucketHandle bucketHandle = hiveTable.getBucketHandle().get();
+        if (bucketHandle.getReadBucketCount() != bucketHandle.getTableBucketCount()) {
+            // each bucket read would consist of multiple files, which are not sorted with respect to each other
+            return ImmutableList.of();
+        }
+
+        Table table = metastore.getTable(new HiveIdentity(session), hiveTable.getSchemaName(), hiveTable.getTableName())
+                .orElseThrow(() -> new TableNotFoundException(hiveTable.getSchemaTableName()));
+        List<SortingColumn> sortedBy = table.getStorage().getBucketProperty()
+                .map(HiveBucketProperty::getSortedBy)
+                .orElse(ImmutableList.of());
+
+        Map<String, HiveColumnHandle> columnHandles = hiveColumnHandles(table, typeManager, getTimestampPrecision(session).getPrecision()).stream()
+                .collect(toImmutableMap(HiveColumnHandle::getName, identity()));
+        ImmutableList.Builder<LocalProperty<ColumnHandle>> properties = ImmutableList.builder();
+        for (SortingColumn sortingColumn : sortedBy) {
+            HiveColumnHandle column = columnHandles.get(sortingColumn.getColumnName());
+            if (column == null) {
+                break;
+            }
+            properties.add(new SortingProperty<>(column, sortingColumn.getOrder().getSortOrder()));
+        }
+        return properties.build();
     }
 
     @Override
@@ -2025,6 +2068,88 @@ public class HiveMetadata
         }
     }
 
+    @Override
+    public Optional<String> getTableVersion(ConnectorSession session, ConnectorTableHandle tableHandle)
+    {
+        // The version is derived from the metastore parameters of the table and the scanned partitions,
+        // and from the name, length and modification time of every file under their locations, so that
+        // writes which bypass the metastore also change it. Tables that cannot be listed are not versioned.
+        HiveTableHandle handle = (HiveTableHandle) tableHandle;
+        HiveIdentity identity = new HiveIdentity(session);
+        Optional<Table> table = metastore.getTable(identity, handle.getSchemaName(), handle.getTableName());
+        if (table.isEmpty() || AcidUtils.isTransactionalTable(table.get().getParameters())) {
+            return Optional.empty();
+        }
+
+        Hasher hasher = Hashing.sha256().newHasher();
+        putParameters(hasher, table.get().getParameters());
+
+        List<String> partitionNames = partitionManager.getOrLoadPartitions(metastore, identity, handle).stream()
+                .map(HivePartition::getPartitionId)
+                .sorted()
+                .collect(toImmutableList());
+        List<String> locations = new ArrayList<>();
+        if (partitionNames.equals(ImmutableList.of(HivePartition.UNPARTITIONED_ID))) {
+            locations.add(table.get().getStorage().getLocation());
+        }
+        else if (!partitionNames.isEmpty()) {
+            Map<String, Optional<Partition>> partitions = metastore.getPartitionsByNames(identity, handle.getSchemaName(), handle.getTableName(), partitionNames);
+            for (String partitionName : partitionNames) {
+                Optional<Partition> partition = partitions.getOrDefault(partitionName, Optional.empty());
+                if (partition.isEmpty()) {
+                    return Optional.empty();
+                }
+                hasher.putString(partitionName, UTF_8);
+                putParameters(hasher, partition.get().getParameters());
+                locations.add(partition.get().getStorage().getLocation());
+            }
+        }
+
+        HdfsContext context = new HdfsContext(session, handle.getSchemaName(), handle.getTableName());
+        try {
+            for (String location : locations) {
+                Path path = new Path(location);
+                FileSystem fileSystem = hdfsEnvironment.getFileSystem(context, path);
+                boolean listed = hdfsEnvironment.doAs(session.getUser(), () -> putFiles(hasher, fileSystem, path));
+                if (!listed) {
+                    return Optional.empty();
+                }
+            }
+        }
+        catch (IOException e) {
+            return Optional.empty();
+        }
+        return Optional.of(hasher.hash().toString());
+    }
+
+    private static boolean putFiles(Hasher hasher, FileSystem fileSystem, Path path)
+            throws IOException
+    {
+        if (!fileSystem.exists(path)) {
+            return false;
+        }
+        List<LocatedFileStatus> files = new ArrayList<>();
+        RemoteIterator<LocatedFileStatus> iterator = fileSystem.listFiles(path, true);
+        while (iterator.hasNext()) {
+            files.add(iterator.next());
+        }
+        files.sort(Comparator.comparing(file -> file.getPath().toString()));
+        hasher.putString(path.toString(), UTF_8);
+        for (LocatedFileStatus file : files) {
+            hasher.putString(file.getPath().toString(), UTF_8)
+                    .putLong(file.getLen())
+                    .putLong(file.getModificationTime());
+        }
+        return true;
+    }
+
+    private static void putParameters(Hasher hasher, Map<String, String> parameters)
+    {
+        parameters.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> hasher.putString(entry.getKey(), UTF_8).putString(entry.getValue(), UTF_8));
+    }
+
     @Override
     public Optional<ProjectionApplicationResult<ConnectorTableHandle>> applyProjection(
             ConnectorSession session,
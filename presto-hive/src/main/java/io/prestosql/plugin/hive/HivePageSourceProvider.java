@@ -15,6 +15,7 @@ package io.prestosql.plugin.hive;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import io.prestosql.plugin.hive.BloomFilterPageSource.FilteredChannel;
 import io.prestosql.plugin.hive.HdfsEnvironment.HdfsContext;
 import io.prestosql.plugin.hive.HivePageSourceFactory.ReaderPageSourceWithProjections;
 import io.prestosql.plugin.hive.HiveRecordCursorProvider.ReaderRecordCursorWithProjections;
@@ -27,9 +28,12 @@ import io.prestosql.spi.connector.ConnectorSession;
 import io.prestosql.spi.connector.ConnectorSplit;
 import io.prestosql.spi.connector.ConnectorTableHandle;
 import io.prestosql.spi.connector.ConnectorTransactionHandle;
+import io.prestosql.spi.connector.DynamicFilter;
 import io.prestosql.spi.connector.EmptyPageSource;
 import io.prestosql.spi.connector.RecordCursor;
 import io.prestosql.spi.connector.RecordPageSource;
+import io.prestosql.spi.connector.UpdatablePageSource;
+import io.prestosql.spi.predicate.BloomFilter;
 import io.prestosql.spi.predicate.TupleDomain;
 import io.prestosql.spi.type.Type;
 import io.prestosql.spi.type.TypeManager;
@@ -84,6 +88,31 @@ public class HivePageSourceProvider
                 .build();
     }
 
+    @Override
+    public ConnectorPageSource createPageSource(ConnectorTransactionHandle transaction, ConnectorSession session, ConnectorSplit split, ConnectorTableHandle table, List<ColumnHandle> columns, DynamicFilter dynamicFilter)
+    {
+        ConnectorPageSource pageSource = createPageSource(transaction, session, split, table, columns, dynamicFilter.getCurrentPredicate());
+        if (pageSource instanceof UpdatablePageSource) {
+            // wrapping would hide the row deletion interface from the engine
+            return pageSource;
+        }
+
+        // Bloom filters are applied only to the columns which are read anyway
+        Map<ColumnHandle, BloomFilter> bloomFilters = dynamicFilter.getCurrentBloomFilters();
+        ImmutableList.Builder<FilteredChannel> filteredChannels = ImmutableList.builder();
+        for (int channel = 0; channel < columns.size(); channel++) {
+            BloomFilter bloomFilter = bloomFilters.get(columns.get(channel));
+            if (bloomFilter != null) {
+                filteredChannels.add(new FilteredChannel(channel, ((HiveColumnHandle) columns.get(channel)).getType(), bloomFilter));
+            }
+        }
+        List<FilteredChannel> channels = filteredChannels.build();
+        if (channels.isEmpty()) {
+            return pageSource;
+        }
+        return new BloomFilterPageSource(pageSource, channels);
+    }
+
     @Override
     public ConnectorPageSource createPageSource(ConnectorTransactionHandle transaction, ConnectorSession session, ConnectorSplit split, ConnectorTableHandle table, List<ColumnHandle> columns, TupleDomain<ColumnHandle> dynamicFilter)
     {
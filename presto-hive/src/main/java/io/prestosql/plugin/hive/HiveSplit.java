@@ -203,6 +203,12 @@ public class HiveSplit
         return !forceLocalScheduling;
     }
 
+    @Override
+    public Optional<String> getAffinityKey()
+    {
+        return Optional.of(path + ":" + start);
+    }
+
     @JsonProperty
     public boolean isS3SelectPushdownEnabled()
     {
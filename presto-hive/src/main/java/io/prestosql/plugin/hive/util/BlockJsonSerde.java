@@ -74,7 +74,7 @@ public final class BlockJsonSerde
         public Block deserialize(JsonParser jsonParser, DeserializationContext deserializationContext)
                 throws IOException
         {
-            byte[] decoded = Base64.getDecoder().decode(jsonParser.readValueAs(String.class));
+            byte[] decoded = Base64.getDecoder().decode(deserializationContext.readValue(jsonParser, String.class));
             BasicSliceInput input = Slices.wrappedBuffer(decoded).getInput();
             return blockEncodingSerde.readBlock(input);
         }
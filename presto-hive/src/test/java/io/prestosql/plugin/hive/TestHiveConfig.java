@@ -75,6 +75,7 @@ public class TestHiveConfig
                 .setSkipDeletionForAlter(false)
                 .setSkipTargetCleanupOnRollback(false)
                 .setBucketExecutionEnabled(true)
+                .setPropagateTableScanSortingProperties(false)
                 .setTableStatisticsEnabled(true)
                 .setOptimizeMismatchedBucketCount(false)
                 .setWritesToNonManagedTablesEnabled(false)
@@ -146,6 +147,7 @@ public class TestHiveConfig
                 .put("hive.skip-target-cleanup-on-rollback", "true")
                 .put("hive.bucket-execution", "false")
                 .put("hive.sorted-writing", "false")
+                .put("hive.propagate-table-scan-sorting-properties", "true")
                 .put("hive.table-statistics-enabled", "false")
                 .put("hive.optimize-mismatched-bucket-count", "true")
                 .put("hive.non-managed-table-writes-enabled", "true")
@@ -214,6 +216,7 @@ public class TestHiveConfig
                 .setSkipTargetCleanupOnRollback(true)
                 .setBucketExecutionEnabled(false)
                 .setSortedWritingEnabled(false)
+                .setPropagateTableScanSortingProperties(true)
                 .setTableStatisticsEnabled(false)
                 .setOptimizeMismatchedBucketCount(true)
                 .setWritesToNonManagedTablesEnabled(true)
@@ -33,6 +33,9 @@ import io.prestosql.spi.connector.CatalogSchemaTableName;
 import io.prestosql.spi.connector.ColumnHandle;
 import io.prestosql.spi.connector.ColumnMetadata;
 import io.prestosql.spi.connector.Constraint;
+import io.prestosql.spi.connector.ConstraintApplicationResult;
+import io.prestosql.spi.connector.LocalProperty;
+import io.prestosql.spi.connector.SortingProperty;
 import io.prestosql.spi.security.Identity;
 import io.prestosql.spi.security.SelectedRole;
 import io.prestosql.spi.type.DateType;
@@ -41,6 +44,7 @@ import io.prestosql.spi.type.Type;
 import io.prestosql.spi.type.VarcharType;
 import io.prestosql.sql.planner.Plan;
 import io.prestosql.sql.planner.plan.ExchangeNode;
+import io.prestosql.sql.planner.plan.MergeJoinNode;
 import io.prestosql.sql.planner.planprinter.IoPlanPrinter.ColumnConstraint;
 import io.prestosql.sql.planner.planprinter.IoPlanPrinter.EstimatedStatsAndCost;
 import io.prestosql.sql.planner.planprinter.IoPlanPrinter.FormattedDomain;
@@ -84,6 +88,7 @@ import java.util.stream.LongStream;
 
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Verify.verify;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.Iterables.getOnlyElement;
 import static com.google.common.io.Files.asCharSink;
 import static com.google.common.io.Files.createTempDir;
@@ -95,6 +100,7 @@ import static io.prestosql.SystemSessionProperties.DYNAMIC_SCHEDULE_FOR_GROUPED_
 import static io.prestosql.SystemSessionProperties.ENABLE_DYNAMIC_FILTERING;
 import static io.prestosql.SystemSessionProperties.GROUPED_EXECUTION;
 import static io.prestosql.SystemSessionProperties.JOIN_DISTRIBUTION_TYPE;
+import static io.prestosql.SystemSessionProperties.MERGE_JOIN_ENABLED;
 import static io.prestosql.plugin.hive.HiveColumnHandle.BUCKET_COLUMN_NAME;
 import static io.prestosql.plugin.hive.HiveColumnHandle.FILE_MODIFIED_TIME_COLUMN_NAME;
 import static io.prestosql.plugin.hive.HiveColumnHandle.FILE_SIZE_COLUMN_NAME;
@@ -110,6 +116,8 @@ import static io.prestosql.plugin.hive.HiveTableProperties.STORAGE_FORMAT_PROPER
 import static io.prestosql.plugin.hive.HiveTestUtils.TYPE_MANAGER;
 import static io.prestosql.plugin.hive.HiveType.toHiveType;
 import static io.prestosql.plugin.hive.util.HiveUtil.columnExtraInfo;
+import static io.prestosql.spi.block.SortOrder.ASC_NULLS_FIRST;
+import static io.prestosql.spi.block.SortOrder.DESC_NULLS_LAST;
 import static io.prestosql.spi.predicate.Marker.Bound.ABOVE;
 import static io.prestosql.spi.predicate.Marker.Bound.EXACTLY;
 import static io.prestosql.spi.security.SelectedRole.Type.ROLE;
@@ -2911,6 +2919,111 @@ public class TestHiveIntegrationSmokeTest
                 });
     }
 
+    @Test
+    public void testMergeJoinOfSortedBucketedTables()
+    {
+        try {
+            createSortedTable("test_merge_join_left", "key", "orderkey % 4 = 0");
+            createSortedTable("test_merge_join_right", "key", "orderkey % 3 = 0");
+            createSortedTable("test_merge_join_left_desc", "key DESC", "orderkey % 4 = 0");
+            createSortedTable("test_merge_join_right_desc", "key DESC", "orderkey % 3 = 0");
+            assertUpdate(
+                    "CREATE TABLE test_merge_join_unsorted WITH (bucketed_by = ARRAY['key'], bucket_count = 4) AS " +
+                            "SELECT custkey key, orderkey value FROM orders WHERE orderkey % 3 = 0",
+                    "SELECT count(*) FROM orders WHERE orderkey % 3 = 0");
+
+            Session session = Session.builder(getSession())
+                    .setCatalogSessionProperty(catalog, "propagate_table_scan_sorting_properties", "true")
+                    .build();
+            assertEquals(getSortingProperties(session, "test_merge_join_left"), ImmutableList.of(new SortingProperty<>("key", ASC_NULLS_FIRST)));
+            assertEquals(getSortingProperties(session, "test_merge_join_left_desc"), ImmutableList.of(new SortingProperty<>("key", DESC_NULLS_LAST)));
+            assertEquals(getSortingProperties(session, "test_merge_join_unsorted"), ImmutableList.of());
+            assertEquals(getSortingProperties(getSession(), "test_merge_join_left"), ImmutableList.of());
+
+            Session mergeJoinSession = Session.builder(session)
+                    .setSystemProperty(MERGE_JOIN_ENABLED, "true")
+                    .setSystemProperty(GROUPED_EXECUTION, "true")
+                    .setSystemProperty(COLOCATED_JOIN, "true")
+                    .setSystemProperty(ENABLE_DYNAMIC_FILTERING, "false")
+                    .build();
+            @Language("SQL") String expected = "" +
+                    "SELECT l.custkey, l.orderkey, r.orderkey " +
+                    "FROM (SELECT * FROM orders WHERE orderkey % 4 = 0) l " +
+                    "JOIN (SELECT * FROM orders WHERE orderkey % 3 = 0) r ON l.custkey = r.custkey";
+
+            // both sides have many rows per key
+            assertQuery(
+                    mergeJoinSession,
+                    "SELECT l.key, l.value, r.value FROM test_merge_join_left l JOIN test_merge_join_right r ON l.key = r.key",
+                    expected,
+                    assertMergeJoin(true));
+            assertQuery(
+                    mergeJoinSession,
+                    "SELECT l.key, l.value, r.value FROM test_merge_join_left_desc l JOIN test_merge_join_right_desc r ON l.key = r.key",
+                    expected,
+                    assertMergeJoin(true));
+
+            // sorted in opposite directions
+            assertQuery(
+                    mergeJoinSession,
+                    "SELECT l.key, l.value, r.value FROM test_merge_join_left l JOIN test_merge_join_right_desc r ON l.key = r.key",
+                    expected,
+                    assertMergeJoin(false));
+            assertQuery(
+                    mergeJoinSession,
+                    "SELECT l.key, l.value, r.value FROM test_merge_join_left l JOIN test_merge_join_unsorted r ON l.key = r.key",
+                    expected,
+                    assertMergeJoin(false));
+            // sorting properties are only reported with the catalog session property set
+            assertQuery(
+                    Session.builder(mergeJoinSession)
+                            .setCatalogSessionProperty(catalog, "propagate_table_scan_sorting_properties", "false")
+                            .build(),
+                    "SELECT l.key, l.value, r.value FROM test_merge_join_left l JOIN test_merge_join_right r ON l.key = r.key",
+                    expected,
+                    assertMergeJoin(false));
+        }
+        finally {
+            assertUpdate("DROP TABLE IF EXISTS test_merge_join_left");
+            assertUpdate("DROP TABLE IF EXISTS test_merge_join_right");
+            assertUpdate("DROP TABLE IF EXISTS test_merge_join_left_desc");
+            assertUpdate("DROP TABLE IF EXISTS test_merge_join_right_desc");
+            assertUpdate("DROP TABLE IF EXISTS test_merge_join_unsorted");
+        }
+    }
+
+    private void createSortedTable(String tableName, String sortedBy, String filter)
+    {
+        assertUpdate(
+                format("CREATE TABLE %s WITH (bucketed_by = ARRAY['key'], bucket_count = 4, sorted_by = ARRAY['%s']) AS " +
+                        "SELECT custkey key, orderkey value FROM orders WHERE %s", tableName, sortedBy, filter),
+                "SELECT count(*) FROM orders WHERE " + filter);
+    }
+
+    private static Consumer<Plan> assertMergeJoin(boolean expected)
+    {
+        return plan -> assertEquals(searchFrom(plan.getRoot()).where(MergeJoinNode.class::isInstance).matches(), expected);
+    }
+
+    private List<LocalProperty<String>> getSortingProperties(Session session, String tableName)
+    {
+        Metadata metadata = ((DistributedQueryRunner) getQueryRunner()).getCoordinator().getMetadata();
+
+        return transaction(getQueryRunner().getTransactionManager(), getQueryRunner().getAccessControl())
+                .readOnly()
+                .execute(session, transactionSession -> {
+                    QualifiedObjectName name = new QualifiedObjectName(catalog, TPCH_SCHEMA, tableName);
+                    TableHandle table = metadata.getTableHandle(transactionSession, name)
+                            .orElseThrow(() -> new AssertionError("table not found: " + name));
+                    table = metadata.applyFilter(transactionSession, table, Constraint.alwaysTrue())
+                            .map(ConstraintApplicationResult::getHandle)
+                            .orElse(table);
+                    return metadata.getTableProperties(transactionSession, table).getLocalProperties().stream()
+                            .map(property -> property.translate(column -> Optional.of(((HiveColumnHandle) column).getName())).get())
+                            .collect(toImmutableList());
+                });
+    }
+
     private Object getHiveTableProperty(String tableName, Function<HiveTableHandle, Object> propertyGetter)
     {
         Session session = getSession();
@@ -473,6 +473,20 @@ public class IcebergMetadata
         return Optional.of(new IcebergInputInfo(table.getSnapshotId()));
     }
 
+    @Override
+    public Optional<String> getTableVersion(ConnectorSession session, ConnectorTableHandle tableHandle)
+    {
+        IcebergTableHandle table = (IcebergTableHandle) tableHandle;
+        // snapshots are immutable, so the snapshot id identifies the data read by the scan
+        return table.getSnapshotId().map(String::valueOf);
+    }
+
+    @Override
+    public boolean isTableVersionImmutable(ConnectorSession session, ConnectorTableHandle tableHandle)
+    {
+        return true;
+    }
+
     @Override
     public void dropTable(ConnectorSession session, ConnectorTableHandle tableHandle)
     {
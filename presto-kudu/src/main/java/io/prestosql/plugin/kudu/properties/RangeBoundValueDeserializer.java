@@ -31,7 +31,7 @@ public class RangeBoundValueDeserializer
     public RangeBoundValue deserialize(JsonParser jp, DeserializationContext ctxt)
             throws IOException
     {
-        JsonNode node = jp.getCodec().readTree(jp);
+        JsonNode node = ctxt.readTree(jp);
 
         if (node.isNull()) {
             return null;
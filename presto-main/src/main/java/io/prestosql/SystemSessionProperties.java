@@ -19,6 +19,8 @@ import io.airlift.units.Duration;
 import io.prestosql.execution.DynamicFilterConfig;
 import io.prestosql.execution.QueryManagerConfig;
 import io.prestosql.execution.TaskManagerConfig;
+import io.prestosql.execution.buffer.PageCompressionCodec;
+import io.prestosql.execution.resultcache.QueryResultCacheConfig;
 import io.prestosql.memory.MemoryManagerConfig;
 import io.prestosql.memory.NodeMemoryConfig;
 import io.prestosql.spi.PrestoException;
@@ -41,6 +43,8 @@ import static io.prestosql.spi.session.PropertyMetadata.booleanProperty;
 import static io.prestosql.spi.session.PropertyMetadata.enumProperty;
 import static io.prestosql.spi.session.PropertyMetadata.integerProperty;
 import static io.prestosql.spi.session.PropertyMetadata.stringProperty;
+import static io.prestosql.spi.type.BigintType.BIGINT;
+import static io.prestosql.spi.type.DoubleType.DOUBLE;
 import static io.prestosql.spi.type.IntegerType.INTEGER;
 import static java.lang.Math.min;
 import static java.lang.String.format;
@@ -50,6 +54,8 @@ public final class SystemSessionProperties
     public static final String OPTIMIZE_HASH_GENERATION = "optimize_hash_generation";
     public static final String JOIN_DISTRIBUTION_TYPE = "join_distribution_type";
     public static final String JOIN_MAX_BROADCAST_TABLE_SIZE = "join_max_broadcast_table_size";
+    public static final String SHARED_BROADCAST_JOIN_BUILD_ENABLED = "shared_broadcast_join_build_enabled";
+    public static final String MERGE_JOIN_ENABLED = "merge_join_enabled";
     public static final String DISTRIBUTED_INDEX_JOIN = "distributed_index_join";
     public static final String HASH_PARTITION_COUNT = "hash_partition_count";
     public static final String GROUPED_EXECUTION = "grouped_execution";
@@ -58,6 +64,7 @@ public final class SystemSessionProperties
     public static final String TASK_WRITER_COUNT = "task_writer_count";
     public static final String TASK_CONCURRENCY = "task_concurrency";
     public static final String TASK_SHARE_INDEX_LOADING = "task_share_index_loading";
+    public static final String TASK_TIMELINE_SAMPLING_RATIO = "task_timeline_sampling_ratio";
     public static final String QUERY_MAX_MEMORY = "query_max_memory";
     public static final String QUERY_MAX_TOTAL_MEMORY = "query_max_total_memory";
     public static final String QUERY_MAX_EXECUTION_TIME = "query_max_execution_time";
@@ -68,6 +75,7 @@ public final class SystemSessionProperties
     public static final String QUERY_MAX_STAGE_COUNT = "query_max_stage_count";
     public static final String REDISTRIBUTE_WRITES = "redistribute_writes";
     public static final String USE_PREFERRED_WRITE_PARTITIONING = "use_preferred_write_partitioning";
+    public static final String SKEWED_PARTITION_REBALANCING_ENABLED = "skewed_partition_rebalancing_enabled";
     public static final String SCALE_WRITERS = "scale_writers";
     public static final String WRITER_MIN_SIZE = "writer_min_size";
     public static final String PUSH_TABLE_WRITE_THROUGH_UNION = "push_table_write_through_union";
@@ -93,6 +101,8 @@ public final class SystemSessionProperties
     public static final String ITERATIVE_OPTIMIZER_TIMEOUT = "iterative_optimizer_timeout";
     public static final String ENABLE_FORCED_EXCHANGE_BELOW_GROUP_ID = "enable_forced_exchange_below_group_id";
     public static final String EXCHANGE_COMPRESSION = "exchange_compression";
+    public static final String EXCHANGE_COMPRESSION_CODEC = "exchange_compression_codec";
+    public static final String EXCHANGE_ADAPTIVE_COMPRESSION = "exchange_adaptive_compression";
     public static final String ENABLE_INTERMEDIATE_AGGREGATIONS = "enable_intermediate_aggregations";
     public static final String PUSH_AGGREGATION_THROUGH_OUTER_JOIN = "push_aggregation_through_outer_join";
     public static final String PUSH_PARTIAL_AGGREGATION_THROUGH_JOIN = "push_partial_aggregation_through_join";
@@ -101,9 +111,13 @@ public final class SystemSessionProperties
     public static final String FILTER_AND_PROJECT_MIN_OUTPUT_PAGE_SIZE = "filter_and_project_min_output_page_size";
     public static final String FILTER_AND_PROJECT_MIN_OUTPUT_PAGE_ROW_COUNT = "filter_and_project_min_output_page_row_count";
     public static final String DISTRIBUTED_SORT = "distributed_sort";
+    public static final String RANGE_PARTITIONED_SORT = "range_partitioned_sort";
     public static final String MAX_RECURSION_DEPTH = "max_recursion_depth";
     public static final String USE_MARK_DISTINCT = "use_mark_distinct";
     public static final String PREFER_PARTIAL_AGGREGATION = "prefer_partial_aggregation";
+    public static final String ADAPTIVE_PARTIAL_AGGREGATION_ENABLED = "adaptive_partial_aggregation_enabled";
+    public static final String ADAPTIVE_PARTIAL_AGGREGATION_MIN_ROWS = "adaptive_partial_aggregation_min_rows";
+    public static final String ADAPTIVE_PARTIAL_AGGREGATION_UNIQUE_ROWS_RATIO_THRESHOLD = "adaptive_partial_aggregation_unique_rows_ratio_threshold";
     public static final String OPTIMIZE_TOP_N_ROW_NUMBER = "optimize_top_n_row_number";
     public static final String MAX_GROUPING_SETS = "max_grouping_sets";
     public static final String STATISTICS_CPU_TIMER_ENABLED = "statistics_cpu_timer_enabled";
@@ -119,6 +133,7 @@ public final class SystemSessionProperties
     public static final String LATE_MATERIALIZATION = "late_materialization";
     public static final String ENABLE_DYNAMIC_FILTERING = "enable_dynamic_filtering";
     public static final String ENABLE_LARGE_DYNAMIC_FILTERS = "enable_large_dynamic_filters";
+    public static final String ENABLE_BLOOM_DYNAMIC_FILTERS = "enable_bloom_dynamic_filters";
     public static final String QUERY_MAX_MEMORY_PER_NODE = "query_max_memory_per_node";
     public static final String QUERY_MAX_TOTAL_MEMORY_PER_NODE = "query_max_total_memory_per_node";
     public static final String IGNORE_DOWNSTREAM_PREFERENCES = "ignore_downstream_preferences";
@@ -127,12 +142,13 @@ public final class SystemSessionProperties
     public static final String REQUIRED_WORKERS_MAX_WAIT_TIME = "required_workers_max_wait_time";
     public static final String COST_ESTIMATION_WORKER_COUNT = "cost_estimation_worker_count";
     public static final String OMIT_DATETIME_TYPE_PRECISION = "omit_datetime_type_precision";
+    public static final String QUERY_RESULT_CACHE_ENABLED = "query_result_cache_enabled";
 
     private final List<PropertyMetadata<?>> sessionProperties;
 
     public SystemSessionProperties()
     {
-        this(new QueryManagerConfig(), new TaskManagerConfig(), new MemoryManagerConfig(), new FeaturesConfig(), new NodeMemoryConfig(), new DynamicFilterConfig());
+        this(new QueryManagerConfig(), new TaskManagerConfig(), new MemoryManagerConfig(), new FeaturesConfig(), new NodeMemoryConfig(), new DynamicFilterConfig(), new QueryResultCacheConfig());
     }
 
     @Inject
@@ -142,7 +158,8 @@ public final class SystemSessionProperties
             MemoryManagerConfig memoryManagerConfig,
             FeaturesConfig featuresConfig,
             NodeMemoryConfig nodeMemoryConfig,
-            DynamicFilterConfig dynamicFilterConfig)
+            DynamicFilterConfig dynamicFilterConfig,
+            QueryResultCacheConfig queryResultCacheConfig)
     {
         sessionProperties = ImmutableList.of(
                 stringProperty(
@@ -166,6 +183,16 @@ public final class SystemSessionProperties
                         "Maximum estimated size of a table that can be broadcast when using automatic join type selection",
                         featuresConfig.getJoinMaxBroadcastTableSize(),
                         false),
+                booleanProperty(
+                        SHARED_BROADCAST_JOIN_BUILD_ENABLED,
+                        "Share the build side of broadcast joins over unchanged tables between queries running on the same node",
+                        featuresConfig.isSharedBroadcastJoinBuildEnabled(),
+                        false),
+                booleanProperty(
+                        MERGE_JOIN_ENABLED,
+                        "Use merge join for inner joins of inputs that are sorted on the join keys",
+                        featuresConfig.isMergeJoinEnabled(),
+                        false),
                 booleanProperty(
                         DISTRIBUTED_INDEX_JOIN,
                         "Distribute index joins on join keys instead of executing inline",
@@ -210,6 +237,11 @@ public final class SystemSessionProperties
                         "Use preferred write partitioning",
                         featuresConfig.isUsePreferredWritePartitioning(),
                         false),
+                booleanProperty(
+                        SKEWED_PARTITION_REBALANCING_ENABLED,
+                        "Spread rows of skewed partitions across additional writers",
+                        featuresConfig.isSkewedPartitionRebalancingEnabled(),
+                        false),
                 booleanProperty(
                         SCALE_WRITERS,
                         "Scale out writers based on throughput (use minimum necessary)",
@@ -239,6 +271,15 @@ public final class SystemSessionProperties
                         "Share index join lookups and caching within a task",
                         taskManagerConfig.isShareIndexLoading(),
                         false),
+                new PropertyMetadata<>(
+                        TASK_TIMELINE_SAMPLING_RATIO,
+                        "Fraction of drivers that record their timeline for the execution timeline of the query",
+                        DOUBLE,
+                        Double.class,
+                        taskManagerConfig.getTimelineSamplingRatio(),
+                        false,
+                        value -> validateDoubleRange(value, TASK_TIMELINE_SAMPLING_RATIO, 0.0, 1.0),
+                        object -> object),
                 durationProperty(
                         QUERY_MAX_RUN_TIME,
                         "Maximum run time of a query (includes the queueing time)",
@@ -395,6 +436,17 @@ public final class SystemSessionProperties
                         "Enable compression in exchanges",
                         featuresConfig.isExchangeCompressionEnabled(),
                         false),
+                enumProperty(
+                        EXCHANGE_COMPRESSION_CODEC,
+                        "Codec used to compress pages in exchanges",
+                        PageCompressionCodec.class,
+                        featuresConfig.getExchangeCompressionCodec(),
+                        false),
+                booleanProperty(
+                        EXCHANGE_ADAPTIVE_COMPRESSION,
+                        "Stop compressing pages of an exchange for a while when they do not compress well",
+                        featuresConfig.isExchangeAdaptiveCompressionEnabled(),
+                        false),
                 booleanProperty(
                         ENABLE_INTERMEDIATE_AGGREGATIONS,
                         "Enable the use of intermediate aggregations",
@@ -435,6 +487,11 @@ public final class SystemSessionProperties
                         "Parallelize sort across multiple nodes",
                         featuresConfig.isDistributedSortEnabled(),
                         false),
+                booleanProperty(
+                        RANGE_PARTITIONED_SORT,
+                        "Partition distributed sort by ranges of the first sort key",
+                        featuresConfig.isRangePartitionedSortEnabled(),
+                        false),
                 new PropertyMetadata<>(
                         MAX_RECURSION_DEPTH,
                         "Maximum recursion depth for recursive common table expression",
@@ -454,6 +511,29 @@ public final class SystemSessionProperties
                         "Prefer splitting aggregations into partial and final stages",
                         featuresConfig.isPreferPartialAggregation(),
                         false),
+                booleanProperty(
+                        ADAPTIVE_PARTIAL_AGGREGATION_ENABLED,
+                        "When enabled, partial aggregation is disabled at runtime if it does not reduce the number of rows",
+                        featuresConfig.isAdaptivePartialAggregationEnabled(),
+                        false),
+                new PropertyMetadata<>(
+                        ADAPTIVE_PARTIAL_AGGREGATION_MIN_ROWS,
+                        "Minimum number of input rows processed by partial aggregation before it can be disabled",
+                        BIGINT,
+                        Long.class,
+                        featuresConfig.getAdaptivePartialAggregationMinRows(),
+                        false,
+                        value -> validateNonNegativeLongValue(value, ADAPTIVE_PARTIAL_AGGREGATION_MIN_ROWS),
+                        object -> object),
+                new PropertyMetadata<>(
+                        ADAPTIVE_PARTIAL_AGGREGATION_UNIQUE_ROWS_RATIO_THRESHOLD,
+                        "Ratio of output rows to input rows above which partial aggregation is disabled",
+                        DOUBLE,
+                        Double.class,
+                        featuresConfig.getAdaptivePartialAggregationUniqueRowsRatioThreshold(),
+                        false,
+                        value -> validateDoubleRange(value, ADAPTIVE_PARTIAL_AGGREGATION_UNIQUE_ROWS_RATIO_THRESHOLD, 0.0, 1.0),
+                        object -> object),
                 booleanProperty(
                         OPTIMIZE_TOP_N_ROW_NUMBER,
                         "Use top N row number optimization",
@@ -534,6 +614,11 @@ public final class SystemSessionProperties
                         "Enable collection of large dynamic filters",
                         dynamicFilterConfig.isEnableLargeDynamicFilters(),
                         false),
+                booleanProperty(
+                        ENABLE_BLOOM_DYNAMIC_FILTERS,
+                        "Enable collection of bloom filter dynamic filters for join keys with many distinct values",
+                        dynamicFilterConfig.isEnableBloomDynamicFilters(),
+                        false),
                 dataSizeProperty(
                         QUERY_MAX_MEMORY_PER_NODE,
                         "Maximum amount of memory a query can use per node",
@@ -573,6 +658,11 @@ public final class SystemSessionProperties
                         OMIT_DATETIME_TYPE_PRECISION,
                         "Omit precision when rendering datetime type names with default precision",
                         featuresConfig.isOmitDateTimeTypePrecision(),
+                        false),
+                booleanProperty(
+                        QUERY_RESULT_CACHE_ENABLED,
+                        "Serve the query result from the coordinator cache if the plan and the tables it reads did not change",
+                        queryResultCacheConfig.isEnabled(),
                         false));
     }
 
@@ -601,6 +691,16 @@ public final class SystemSessionProperties
         return session.getSystemProperty(JOIN_MAX_BROADCAST_TABLE_SIZE, DataSize.class);
     }
 
+    public static boolean isSharedBroadcastJoinBuildEnabled(Session session)
+    {
+        return session.getSystemProperty(SHARED_BROADCAST_JOIN_BUILD_ENABLED, Boolean.class);
+    }
+
+    public static boolean isMergeJoinEnabled(Session session)
+    {
+        return session.getSystemProperty(MERGE_JOIN_ENABLED, Boolean.class);
+    }
+
     public static boolean isDistributedIndexJoinEnabled(Session session)
     {
         return session.getSystemProperty(DISTRIBUTED_INDEX_JOIN, Boolean.class);
@@ -641,6 +741,11 @@ public final class SystemSessionProperties
         return session.getSystemProperty(USE_PREFERRED_WRITE_PARTITIONING, Boolean.class);
     }
 
+    public static boolean isSkewedPartitionRebalancingEnabled(Session session)
+    {
+        return session.getSystemProperty(SKEWED_PARTITION_REBALANCING_ENABLED, Boolean.class);
+    }
+
     public static boolean isScaleWriters(Session session)
     {
         return session.getSystemProperty(SCALE_WRITERS, Boolean.class);
@@ -666,6 +771,11 @@ public final class SystemSessionProperties
         return session.getSystemProperty(TASK_SHARE_INDEX_LOADING, Boolean.class);
     }
 
+    public static double getTaskTimelineSamplingRatio(Session session)
+    {
+        return session.getSystemProperty(TASK_TIMELINE_SAMPLING_RATIO, Double.class);
+    }
+
     public static boolean isDictionaryAggregationEnabled(Session session)
     {
         return session.getSystemProperty(DICTIONARY_AGGREGATION, Boolean.class);
@@ -820,6 +930,19 @@ public final class SystemSessionProperties
         return session.getSystemProperty(EXCHANGE_COMPRESSION, Boolean.class);
     }
 
+    public static PageCompressionCodec getExchangeCompressionCodec(Session session)
+    {
+        if (!isExchangeCompressionEnabled(session)) {
+            return PageCompressionCodec.NONE;
+        }
+        return session.getSystemProperty(EXCHANGE_COMPRESSION_CODEC, PageCompressionCodec.class);
+    }
+
+    public static boolean isExchangeAdaptiveCompressionEnabled(Session session)
+    {
+        return session.getSystemProperty(EXCHANGE_ADAPTIVE_COMPRESSION, Boolean.class);
+    }
+
     public static boolean isEnableIntermediateAggregations(Session session)
     {
         return session.getSystemProperty(ENABLE_INTERMEDIATE_AGGREGATIONS, Boolean.class);
@@ -865,6 +988,21 @@ public final class SystemSessionProperties
         return session.getSystemProperty(PREFER_PARTIAL_AGGREGATION, Boolean.class);
     }
 
+    public static boolean isAdaptivePartialAggregationEnabled(Session session)
+    {
+        return session.getSystemProperty(ADAPTIVE_PARTIAL_AGGREGATION_ENABLED, Boolean.class);
+    }
+
+    public static long getAdaptivePartialAggregationMinRows(Session session)
+    {
+        return session.getSystemProperty(ADAPTIVE_PARTIAL_AGGREGATION_MIN_ROWS, Long.class);
+    }
+
+    public static double getAdaptivePartialAggregationUniqueRowsRatioThreshold(Session session)
+    {
+        return session.getSystemProperty(ADAPTIVE_PARTIAL_AGGREGATION_UNIQUE_ROWS_RATIO_THRESHOLD, Double.class);
+    }
+
     public static boolean isOptimizeTopNRowNumber(Session session)
     {
         return session.getSystemProperty(OPTIMIZE_TOP_N_ROW_NUMBER, Boolean.class);
@@ -875,6 +1013,11 @@ public final class SystemSessionProperties
         return session.getSystemProperty(DISTRIBUTED_SORT, Boolean.class);
     }
 
+    public static boolean isRangePartitionedSortEnabled(Session session)
+    {
+        return session.getSystemProperty(RANGE_PARTITIONED_SORT, Boolean.class);
+    }
+
     public static int getMaxRecursionDepth(Session session)
     {
         return session.getSystemProperty(MAX_RECURSION_DEPTH, Integer.class);
@@ -927,6 +1070,26 @@ public final class SystemSessionProperties
         return intValue;
     }
 
+    private static long validateNonNegativeLongValue(Object value, String property)
+    {
+        long longValue = (long) value;
+        if (longValue < 0) {
+            throw new PrestoException(INVALID_SESSION_PROPERTY, format("%s must be equal or greater than 0", property));
+        }
+        return longValue;
+    }
+
+    private static double validateDoubleRange(Object value, String property, double lowerBoundIncluded, double upperBoundIncluded)
+    {
+        double doubleValue = (double) value;
+        if (doubleValue < lowerBoundIncluded || doubleValue > upperBoundIncluded) {
+            throw new PrestoException(
+                    INVALID_SESSION_PROPERTY,
+                    format("%s must be in the range [%.2f, %.2f]: %.2f", property, lowerBoundIncluded, upperBoundIncluded, doubleValue));
+        }
+        return doubleValue;
+    }
+
     public static boolean isStatisticsCpuTimerEnabled(Session session)
     {
         return session.getSystemProperty(STATISTICS_CPU_TIMER_ENABLED, Boolean.class);
@@ -987,6 +1150,11 @@ public final class SystemSessionProperties
         return session.getSystemProperty(ENABLE_LARGE_DYNAMIC_FILTERS, Boolean.class);
     }
 
+    public static boolean isEnableBloomDynamicFilters(Session session)
+    {
+        return session.getSystemProperty(ENABLE_BLOOM_DYNAMIC_FILTERS, Boolean.class);
+    }
+
     public static DataSize getQueryMaxMemoryPerNode(Session session)
     {
         return session.getSystemProperty(QUERY_MAX_MEMORY_PER_NODE, DataSize.class);
@@ -1026,4 +1194,9 @@ public final class SystemSessionProperties
     {
         return session.getSystemProperty(OMIT_DATETIME_TYPE_PRECISION, Boolean.class);
     }
+
+    public static boolean isQueryResultCacheEnabled(Session session)
+    {
+        return session.getSystemProperty(QUERY_RESULT_CACHE_ENABLED, Boolean.class);
+    }
 }
@@ -245,7 +245,10 @@ public class LocalDispatchQuery
     @Override
     public QueryInfo getFullQueryInfo()
     {
-        return tryGetQueryExecution()
+        Optional<QueryExecution> queryExecution = tryGetQueryExecution();
+        // full query info is only requested for inspection, so start fetching operator statistics of running tasks
+        queryExecution.ifPresent(QueryExecution::requestDetailedTaskInfo);
+        return queryExecution
                 .map(QueryExecution::getQueryInfo)
                 .orElseGet(() -> stateMachine.updateQueryInfo(Optional.empty()));
     }
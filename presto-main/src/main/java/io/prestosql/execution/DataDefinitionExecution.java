@@ -234,6 +234,12 @@ public class DataDefinitionExecution<T extends Statement>
         // no-op
     }
 
+    @Override
+    public void requestDetailedTaskInfo()
+    {
+        // no-op
+    }
+
     @Override
     public void recordHeartbeat()
     {
@@ -39,6 +39,8 @@ public class DynamicFilterConfig
 {
     private boolean enableDynamicFiltering = true;
     private boolean enableLargeDynamicFilters;
+    private boolean enableBloomDynamicFilters;
+    private DataSize bloomFilterMaxSizePerDriver = DataSize.of(256, KILOBYTE);
     private Duration dynamicFilteringRefreshInterval = new Duration(200, MILLISECONDS);
 
     private int smallBroadcastMaxDistinctValuesPerDriver = 100;
@@ -80,6 +82,32 @@ public class DynamicFilterConfig
         return this;
     }
 
+    public boolean isEnableBloomDynamicFilters()
+    {
+        return enableBloomDynamicFilters;
+    }
+
+    @Config("enable-bloom-dynamic-filters")
+    public DynamicFilterConfig setEnableBloomDynamicFilters(boolean enableBloomDynamicFilters)
+    {
+        this.enableBloomDynamicFilters = enableBloomDynamicFilters;
+        return this;
+    }
+
+    @MaxDataSize("16MB")
+    @NotNull
+    public DataSize getBloomFilterMaxSizePerDriver()
+    {
+        return bloomFilterMaxSizePerDriver;
+    }
+
+    @Config("dynamic-filtering.bloom-filter.max-size-per-driver")
+    public DynamicFilterConfig setBloomFilterMaxSizePerDriver(DataSize bloomFilterMaxSizePerDriver)
+    {
+        this.bloomFilterMaxSizePerDriver = bloomFilterMaxSizePerDriver;
+        return this;
+    }
+
     @MinDuration("1ms")
     @MaxDuration("10s")
     @NotNull
@@ -0,0 +1,330 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.execution;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.prestosql.operator.DriverTimeline;
+import io.prestosql.operator.DriverTimeline.BlockedInterval;
+import io.prestosql.operator.DriverTimeline.Quantum;
+import io.prestosql.operator.ExchangeOperator;
+import io.prestosql.operator.MergeOperator;
+import io.prestosql.operator.PipelineStats;
+import io.prestosql.operator.TaskStats;
+import org.joda.time.DateTime;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.lang.Math.max;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * The execution of a query in the trace event format, which can be loaded
+ * into chrome://tracing or Perfetto to look for scheduling gaps and stragglers.
+ * <p>
+ * The query and its stages are shown as the first process, and each task as a process
+ * with a thread for every pipeline. The drivers sampled by {@code task_timeline_sampling_ratio}
+ * are laid out in lanes below their pipeline with the quanta they were processed in,
+ * and the intervals their operators were blocked, including waits on exchanges.
+ */
+public class ExecutionTimeline
+{
+    private static final int QUERY_PROCESS = 0;
+    private static final int QUERY_THREAD = 0;
+    private static final int TASK_THREAD = 0;
+    // every lane of drivers has a thread for the quanta and one for the blocked intervals
+    private static final int DRIVER_THREADS_PER_PIPELINE = 1_000;
+    private static final int MAX_DRIVER_LANES = DRIVER_THREADS_PER_PIPELINE / 2;
+
+    private final List<TraceEvent> traceEvents;
+
+    public ExecutionTimeline(List<TraceEvent> traceEvents)
+    {
+        this.traceEvents = ImmutableList.copyOf(requireNonNull(traceEvents, "traceEvents is null"));
+    }
+
+    @JsonProperty
+    public List<TraceEvent> getTraceEvents()
+    {
+        return traceEvents;
+    }
+
+    @JsonProperty
+    public String getDisplayTimeUnit()
+    {
+        return "ms";
+    }
+
+    public static ExecutionTimeline createExecutionTimeline(QueryInfo queryInfo)
+    {
+        return new Builder(queryInfo).build();
+    }
+
+    private static class Builder
+    {
+        private final QueryInfo queryInfo;
+        private final long origin;
+        private final long now;
+        private final List<TraceEvent> events = new ArrayList<>();
+
+        public Builder(QueryInfo queryInfo)
+        {
+            this.queryInfo = requireNonNull(queryInfo, "queryInfo is null");
+            QueryStats queryStats = queryInfo.getQueryStats();
+            this.origin = toMicros(queryStats.getCreateTime());
+            this.now = queryStats.getEndTime() == null ? toMicros(DateTime.now()) : toMicros(queryStats.getEndTime());
+        }
+
+        public ExecutionTimeline build()
+        {
+            QueryStats queryStats = queryInfo.getQueryStats();
+            addProcessName(QUERY_PROCESS, "Query " + queryInfo.getQueryId());
+            addThreadName(QUERY_PROCESS, QUERY_THREAD, "query");
+            addSpan("query", "query", QUERY_PROCESS, QUERY_THREAD, origin, now, ImmutableMap.of(
+                    "state", queryInfo.getState().toString(),
+                    "elapsedTime", queryStats.getElapsedTime().toString(),
+                    "queuedTime", queryStats.getQueuedTime().toString(),
+                    "planningTime", queryStats.getPlanningTime().toString()));
+            if (queryStats.getExecutionStartTime() != null) {
+                addSpan("execution", "query", QUERY_PROCESS, QUERY_THREAD, toMicros(queryStats.getExecutionStartTime()), now, ImmutableMap.of());
+            }
+
+            int taskProcess = QUERY_PROCESS + 1;
+            for (StageInfo stage : StageInfo.getAllStages(queryInfo.getOutputStage())) {
+                addStage(stage);
+                for (TaskInfo task : stage.getTasks()) {
+                    addTask(taskProcess, task);
+                    taskProcess++;
+                }
+            }
+            return new ExecutionTimeline(events);
+        }
+
+        private void addStage(StageInfo stage)
+        {
+            int thread = stage.getStageId().getId() + 1;
+            addThreadName(QUERY_PROCESS, thread, "stage " + stage.getStageId().getId());
+
+            Optional<Long> start = stage.getTasks().stream()
+                    .map(task -> toMicros(task.getStats().getCreateTime()))
+                    .min(Comparator.naturalOrder());
+            if (start.isEmpty()) {
+                return;
+            }
+            long end = stage.getTasks().stream()
+                    .map(task -> task.getStats().getEndTime())
+                    .map(endTime -> endTime == null ? now : toMicros(endTime))
+                    .max(Comparator.naturalOrder())
+                    .orElse(now);
+            addSpan("stage " + stage.getStageId().getId(), "stage", QUERY_PROCESS, thread, start.get(), end, ImmutableMap.of(
+                    "state", stage.getState().toString(),
+                    "tasks", stage.getTasks().size(),
+                    "partitioning", stage.getPlan() == null ? "" : stage.getPlan().getPartitioning().toString()));
+        }
+
+        private void addTask(int process, TaskInfo task)
+        {
+            TaskStatus taskStatus = task.getTaskStatus();
+            TaskStats taskStats = task.getStats();
+            addProcessName(process, "Task " + taskStatus.getTaskId() + " on " + taskStatus.getNodeId());
+            addThreadName(process, TASK_THREAD, "task");
+
+            long taskEnd = taskStats.getEndTime() == null ? now : toMicros(taskStats.getEndTime());
+            addSpan("task", "task", process, TASK_THREAD, toMicros(taskStats.getCreateTime()), taskEnd, ImmutableMap.of(
+                    "state", taskStatus.getState().toString(),
+                    "scheduledTime", taskStats.getTotalScheduledTime().toString(),
+                    "cpuTime", taskStats.getTotalCpuTime().toString(),
+                    "blockedTime", taskStats.getTotalBlockedTime().toString()));
+            if (taskStats.getFirstStartTime() != null) {
+                long runningEnd = taskStats.getLastEndTime() == null ? taskEnd : toMicros(taskStats.getLastEndTime());
+                addSpan("running", "task", process, TASK_THREAD, toMicros(taskStats.getFirstStartTime()), runningEnd, ImmutableMap.of());
+            }
+
+            for (PipelineStats pipeline : taskStats.getPipelines()) {
+                addPipeline(process, pipeline, taskEnd);
+            }
+        }
+
+        private void addPipeline(int process, PipelineStats pipeline, long taskEnd)
+        {
+            int thread = pipeline.getPipelineId() + 1;
+            String name = "pipeline " + pipeline.getPipelineId();
+            addThreadName(process, thread, name);
+            if (pipeline.getFirstStartTime() != null) {
+                long end = pipeline.getLastEndTime() == null ? taskEnd : toMicros(pipeline.getLastEndTime());
+                addSpan(name, "pipeline", process, thread, toMicros(pipeline.getFirstStartTime()), end, ImmutableMap.of(
+                        "drivers", pipeline.getTotalDrivers(),
+                        "scheduledTime", pipeline.getTotalScheduledTime().toString(),
+                        "cpuTime", pipeline.getTotalCpuTime().toString(),
+                        "blockedTime", pipeline.getTotalBlockedTime().toString()));
+            }
+
+            // place each driver in the first lane that is free when it is created
+            List<Long> laneEnds = new ArrayList<>();
+            List<DriverTimeline> drivers = pipeline.getDriverTimelines().stream()
+                    .sorted(Comparator.comparingLong(DriverTimeline::getCreateTime))
+                    .collect(toImmutableList());
+            for (DriverTimeline driver : drivers) {
+                long end = driver.getEndTime() == null ? taskEnd : driver.getEndTime();
+                int lane = 0;
+                while (lane < laneEnds.size() && laneEnds.get(lane) > driver.getCreateTime()) {
+                    lane++;
+                }
+                if (lane == MAX_DRIVER_LANES) {
+                    continue;
+                }
+                if (lane == laneEnds.size()) {
+                    laneEnds.add(end);
+                    addThreadName(process, driverThread(pipeline, lane), name + " lane " + lane);
+                    addThreadName(process, driverThread(pipeline, lane) + 1, name + " lane " + lane + " blocked");
+                }
+                laneEnds.set(lane, end);
+                addDriver(process, driverThread(pipeline, lane), driver, end);
+            }
+        }
+
+        private void addDriver(int process, int thread, DriverTimeline driver, long end)
+        {
+            if (driver.getStartTime() == null) {
+                addSpan("queued", "driver", process, thread, driver.getCreateTime(), end, ImmutableMap.of());
+                return;
+            }
+            addSpan("queued", "driver", process, thread, driver.getCreateTime(), driver.getStartTime(), ImmutableMap.of());
+            addSpan("driver", "driver", process, thread, driver.getStartTime(), end, ImmutableMap.of(
+                    "quanta", driver.getQuanta().size(),
+                    "blockedIntervals", driver.getBlockedIntervals().size()));
+            for (Quantum quantum : driver.getQuanta()) {
+                addSpan("quantum", "quantum", process, thread, quantum.getStartTime(), quantum.getEndTime(), ImmutableMap.of(
+                        "cpuTime", quantum.getCpuTime()));
+            }
+            // blocked intervals overlap the quanta they start in, so they have their own thread
+            for (BlockedInterval blocked : driver.getBlockedIntervals()) {
+                addSpan(blocked.getOperatorType(), isExchange(blocked.getOperatorType()) ? "exchange" : "blocked", process, thread + 1, blocked.getStartTime(), blocked.getEndTime(), ImmutableMap.of(
+                        "operatorId", blocked.getOperatorId(),
+                        "reason", blocked.getReason()));
+            }
+        }
+
+        private void addSpan(String name, String category, int process, int thread, long start, long end, Map<String, Object> args)
+        {
+            events.add(new TraceEvent(name, category, "X", start - origin, max(0, end - start), process, thread, args));
+        }
+
+        private void addProcessName(int process, String name)
+        {
+            events.add(new TraceEvent("process_name", "__metadata", "M", 0, 0, process, 0, ImmutableMap.of("name", name)));
+            events.add(new TraceEvent("process_sort_index", "__metadata", "M", 0, 0, process, 0, ImmutableMap.of("sort_index", process)));
+        }
+
+        private void addThreadName(int process, int thread, String name)
+        {
+            events.add(new TraceEvent("thread_name", "__metadata", "M", 0, 0, process, thread, ImmutableMap.of("name", name)));
+            events.add(new TraceEvent("thread_sort_index", "__metadata", "M", 0, 0, process, thread, ImmutableMap.of("sort_index", thread)));
+        }
+
+        private static int driverThread(PipelineStats pipeline, int lane)
+        {
+            return (pipeline.getPipelineId() + 1) * DRIVER_THREADS_PER_PIPELINE + lane * 2;
+        }
+
+        private static boolean isExchange(String operatorType)
+        {
+            return operatorType.equals(ExchangeOperator.class.getSimpleName()) || operatorType.equals(MergeOperator.class.getSimpleName());
+        }
+
+        private static long toMicros(DateTime time)
+        {
+            return MILLISECONDS.toMicros(time.getMillis());
+        }
+    }
+
+    public static class TraceEvent
+    {
+        private final String name;
+        private final String category;
+        private final String phase;
+        private final long timestamp;
+        private final long duration;
+        private final int process;
+        private final int thread;
+        private final Map<String, Object> args;
+
+        public TraceEvent(String name, String category, String phase, long timestamp, long duration, int process, int thread, Map<String, Object> args)
+        {
+            this.name = requireNonNull(name, "name is null");
+            this.category = requireNonNull(category, "category is null");
+            this.phase = requireNonNull(phase, "phase is null");
+            this.timestamp = timestamp;
+            this.duration = duration;
+            this.process = process;
+            this.thread = thread;
+            this.args = ImmutableMap.copyOf(requireNonNull(args, "args is null"));
+        }
+
+        @JsonProperty("name")
+        public String getName()
+        {
+            return name;
+        }
+
+        @JsonProperty("cat")
+        public String getCategory()
+        {
+            return category;
+        }
+
+        @JsonProperty("ph")
+        public String getPhase()
+        {
+            return phase;
+        }
+
+        @JsonProperty("ts")
+        public long getTimestamp()
+        {
+            return timestamp;
+        }
+
+        @JsonProperty("dur")
+        public long getDuration()
+        {
+            return duration;
+        }
+
+        @JsonProperty("pid")
+        public int getProcess()
+        {
+            return process;
+        }
+
+        @JsonProperty("tid")
+        public int getThread()
+        {
+            return thread;
+        }
+
+        @JsonProperty("args")
+        public Map<String, Object> getArgs()
+        {
+            return args;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.execution;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import io.airlift.units.DataSize;
+import io.prestosql.execution.buffer.BufferResult;
+import io.prestosql.execution.buffer.OutputBuffers.OutputBufferId;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+
+import java.net.URI;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Gives exchange clients direct access to the output buffers of tasks running on this node,
+ * so results of co-located tasks do not have to travel through the HTTP stack.
+ */
+@ThreadSafe
+public class LocalTaskResults
+{
+    private static final Pattern RESULTS_PATH = Pattern.compile("/v1/task/(?<taskId>[^/]+)/results/(?<bufferId>[^/]+)");
+
+    private final LocationFactory locationFactory;
+    private final AtomicReference<TaskManager> taskManager = new AtomicReference<>();
+
+    @Inject
+    public LocalTaskResults(LocationFactory locationFactory)
+    {
+        this.locationFactory = requireNonNull(locationFactory, "locationFactory is null");
+    }
+
+    public void setTaskManager(TaskManager taskManager)
+    {
+        requireNonNull(taskManager, "taskManager is null");
+        checkState(this.taskManager.compareAndSet(null, taskManager), "taskManager is already set");
+    }
+
+    /**
+     * Returns the output buffer at the specified results location if it belongs
+     * to a task of this node, or empty if the location must be read remotely.
+     */
+    public Optional<LocalTaskBuffer> getLocalBuffer(URI location)
+    {
+        TaskManager taskManager = this.taskManager.get();
+        if (taskManager == null || location.getPath() == null) {
+            return Optional.empty();
+        }
+
+        Matcher matcher = RESULTS_PATH.matcher(location.getPath());
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+
+        TaskId taskId;
+        OutputBufferId bufferId;
+        try {
+            taskId = TaskId.valueOf(matcher.group("taskId"));
+            bufferId = OutputBufferId.fromString(matcher.group("bufferId"));
+        }
+        catch (RuntimeException e) {
+            return Optional.empty();
+        }
+
+        URI localLocation = locationFactory.createLocalTaskLocation(taskId);
+        if (!location.toString().equals(localLocation + "/results/" + bufferId)) {
+            return Optional.empty();
+        }
+        return Optional.of(new LocalTaskBuffer(taskManager, taskId, bufferId));
+    }
+
+    public static class LocalTaskBuffer
+    {
+        private final TaskManager taskManager;
+        private final TaskId taskId;
+        private final OutputBufferId bufferId;
+
+        private LocalTaskBuffer(TaskManager taskManager, TaskId taskId, OutputBufferId bufferId)
+        {
+            this.taskManager = requireNonNull(taskManager, "taskManager is null");
+            this.taskId = requireNonNull(taskId, "taskId is null");
+            this.bufferId = requireNonNull(bufferId, "bufferId is null");
+        }
+
+        public String getTaskInstanceId()
+        {
+            return taskManager.getTaskInstanceId(taskId);
+        }
+
+        public ListenableFuture<BufferResult> getResults(long startingSequenceId, DataSize maxSize)
+        {
+            return taskManager.getTaskResults(taskId, bufferId, startingSequenceId, maxSize);
+        }
+
+        public void acknowledge(long sequenceId)
+        {
+            taskManager.acknowledgeTaskResults(taskId, bufferId, sequenceId);
+        }
+
+        public void abort()
+        {
+            taskManager.abortTaskResults(taskId, bufferId);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.execution;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.airlift.json.JsonCodec;
+import io.prestosql.operator.PipelineStats;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+import static io.airlift.json.JsonCodec.jsonCodec;
+import static io.prestosql.execution.PipelineStatsVersion.INITIAL_VERSION;
+
+/**
+ * Tracks the pipeline statistics last reported to the coordinator for a task, so that
+ * subsequent task info responses only need to carry the pipelines that changed.
+ * <p>
+ * Pipelines are compared in their serialized form, so a change of any statistic,
+ * including the operator summaries and their infos, is reported.
+ */
+@ThreadSafe
+public class PipelineStatsTracker
+{
+    private static final JsonCodec<PipelineStats> PIPELINE_STATS_CODEC = jsonCodec(PipelineStats.class);
+
+    @GuardedBy("this")
+    private long version = INITIAL_VERSION;
+    @GuardedBy("this")
+    private Map<Integer, byte[]> reportedPipelines = ImmutableMap.of();
+
+    /**
+     * Strips the pipelines that did not change since {@code callersVersion} from the task info.
+     * If the caller does not hold the last reported version, all pipelines are included.
+     */
+    public synchronized TaskInfo withChangedPipelineStats(TaskInfo taskInfo, long callersVersion)
+    {
+        List<PipelineStats> pipelines = taskInfo.getStats().getPipelines();
+        boolean delta = callersVersion == version;
+
+        ImmutableList.Builder<PipelineStats> changedPipelines = ImmutableList.builder();
+        ImmutableMap.Builder<Integer, byte[]> serializedPipelines = ImmutableMap.builder();
+        for (PipelineStats pipeline : pipelines) {
+            Optional<byte[]> serialized = serialize(pipeline);
+            serialized.ifPresent(bytes -> serializedPipelines.put(pipeline.getPipelineId(), bytes));
+            byte[] reported = reportedPipelines.get(pipeline.getPipelineId());
+            if (!delta || reported == null || serialized.isEmpty() || !Arrays.equals(reported, serialized.get())) {
+                changedPipelines.add(pipeline);
+            }
+        }
+
+        PipelineStatsVersion pipelineStatsVersion = new PipelineStatsVersion(version + 1, delta ? OptionalLong.of(version) : OptionalLong.empty());
+        version++;
+        reportedPipelines = serializedPipelines.build();
+
+        return taskInfo.withPipelineStats(changedPipelines.build(), Optional.of(pipelineStatsVersion));
+    }
+
+    private static Optional<byte[]> serialize(PipelineStats pipeline)
+    {
+        try {
+            return Optional.of(PIPELINE_STATS_CODEC.toJsonBytes(pipeline));
+        }
+        catch (IllegalArgumentException e) {
+            // a pipeline which cannot be compared is always reported
+            return Optional.empty();
+        }
+    }
+}
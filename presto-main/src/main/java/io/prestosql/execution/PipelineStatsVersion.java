@@ -0,0 +1,75 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.execution;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.annotation.concurrent.Immutable;
+
+import java.util.OptionalLong;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Identifies the pipeline statistics carried by a {@link TaskInfo}. When {@code baseVersion}
+ * is present, the task info only contains the pipelines that changed since that version, and
+ * the omitted pipelines are unchanged.
+ */
+@Immutable
+public class PipelineStatsVersion
+{
+    public static final long INITIAL_VERSION = 0;
+
+    private final long version;
+    private final OptionalLong baseVersion;
+
+    @JsonCreator
+    public PipelineStatsVersion(
+            @JsonProperty("version") long version,
+            @JsonProperty("baseVersion") OptionalLong baseVersion)
+    {
+        this.version = version;
+        this.baseVersion = requireNonNull(baseVersion, "baseVersion is null");
+        checkArgument(baseVersion.orElse(INITIAL_VERSION) < version, "baseVersion must be less than version");
+    }
+
+    @JsonProperty
+    public long getVersion()
+    {
+        return version;
+    }
+
+    @JsonProperty
+    public OptionalLong getBaseVersion()
+    {
+        return baseVersion;
+    }
+
+    public boolean isDelta()
+    {
+        return baseVersion.isPresent();
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("version", version)
+                .add("baseVersion", baseVersion)
+                .toString();
+    }
+}
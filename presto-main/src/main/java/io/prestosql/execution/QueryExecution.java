@@ -70,6 +70,11 @@ public interface QueryExecution
 
     void cancelStage(StageId stageId);
 
+    /**
+     * Requests pipeline statistics from the running tasks, when these are only fetched on demand.
+     */
+    void requestDetailedTaskInfo();
+
     void recordHeartbeat();
 
     boolean shouldWaitForMinWorkers();
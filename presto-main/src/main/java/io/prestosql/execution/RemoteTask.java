@@ -32,6 +32,12 @@ public interface RemoteTask
 
     TaskInfo getTaskInfo();
 
+    /**
+     * Requests pipeline statistics in subsequent task info updates, when these
+     * are only fetched on demand.
+     */
+    void requestDetailedTaskInfo();
+
     TaskStatus getTaskStatus();
 
     Map<DynamicFilterId, Domain> getDynamicFilterDomains();
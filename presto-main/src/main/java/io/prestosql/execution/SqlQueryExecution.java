@@ -23,11 +23,14 @@ import io.prestosql.Session;
 import io.prestosql.SystemSessionProperties;
 import io.prestosql.connector.CatalogName;
 import io.prestosql.cost.CostCalculator;
+import io.prestosql.cost.StatsAndCosts;
 import io.prestosql.cost.StatsCalculator;
 import io.prestosql.execution.QueryPreparer.PreparedQuery;
 import io.prestosql.execution.StateMachine.StateChangeListener;
 import io.prestosql.execution.buffer.OutputBuffers;
 import io.prestosql.execution.buffer.OutputBuffers.OutputBufferId;
+import io.prestosql.execution.resultcache.QueryResultCache;
+import io.prestosql.execution.resultcache.QueryResultCacheKeyGenerator;
 import io.prestosql.execution.scheduler.ExecutionPolicy;
 import io.prestosql.execution.scheduler.NodeScheduler;
 import io.prestosql.execution.scheduler.SplitSchedulerStats;
@@ -45,6 +48,7 @@ import io.prestosql.server.DynamicFilterService.StageDynamicFilters;
 import io.prestosql.server.protocol.Slug;
 import io.prestosql.spi.PrestoException;
 import io.prestosql.spi.QueryId;
+import io.prestosql.spi.type.Type;
 import io.prestosql.split.SplitManager;
 import io.prestosql.split.SplitSource;
 import io.prestosql.sql.analyzer.Analysis;
@@ -62,8 +66,13 @@ import io.prestosql.sql.planner.PlanNodeIdAllocator;
 import io.prestosql.sql.planner.PlanOptimizers;
 import io.prestosql.sql.planner.StageExecutionPlan;
 import io.prestosql.sql.planner.SubPlan;
+import io.prestosql.sql.planner.Symbol;
+import io.prestosql.sql.planner.SymbolAllocator;
 import io.prestosql.sql.planner.TypeAnalyzer;
 import io.prestosql.sql.planner.optimizations.PlanOptimizer;
+import io.prestosql.sql.planner.plan.CachedResultNode;
+import io.prestosql.sql.planner.plan.OutputNode;
+import io.prestosql.sql.planner.plan.PlanNode;
 import io.prestosql.sql.tree.Explain;
 import io.prestosql.sql.tree.Query;
 import io.prestosql.sql.tree.Statement;
@@ -84,8 +93,11 @@ import java.util.function.Consumer;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Throwables.throwIfInstanceOf;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static io.airlift.units.DataSize.succinctBytes;
+import static io.prestosql.SystemSessionProperties.getTaskTimelineSamplingRatio;
 import static io.prestosql.SystemSessionProperties.isEnableDynamicFiltering;
+import static io.prestosql.SystemSessionProperties.isQueryResultCacheEnabled;
 import static io.prestosql.execution.buffer.OutputBuffers.BROADCAST_PARTITION_ID;
 import static io.prestosql.execution.buffer.OutputBuffers.createInitialEmptyOutputBuffers;
 import static io.prestosql.execution.scheduler.SqlQueryScheduler.createSqlQueryScheduler;
@@ -127,6 +139,7 @@ public class SqlQueryExecution
     private final StatsCalculator statsCalculator;
     private final CostCalculator costCalculator;
     private final DynamicFilterService dynamicFilterService;
+    private final QueryResultCache queryResultCache;
 
     private SqlQueryExecution(
             PreparedQuery preparedQuery,
@@ -152,6 +165,7 @@ public class SqlQueryExecution
             StatsCalculator statsCalculator,
             CostCalculator costCalculator,
             DynamicFilterService dynamicFilterService,
+            QueryResultCache queryResultCache,
             WarningCollector warningCollector)
     {
         try (SetThreadName ignored = new SetThreadName("Query-%s", stateMachine.getQueryId())) {
@@ -172,6 +186,7 @@ public class SqlQueryExecution
             this.statsCalculator = requireNonNull(statsCalculator, "statsCalculator is null");
             this.costCalculator = requireNonNull(costCalculator, "costCalculator is null");
             this.dynamicFilterService = requireNonNull(dynamicFilterService, "dynamicFilterService is null");
+            this.queryResultCache = requireNonNull(queryResultCache, "queryResultCache is null");
 
             checkArgument(scheduleSplitBatchSize > 0, "scheduleSplitBatchSize must be greater than 0");
             this.scheduleSplitBatchSize = scheduleSplitBatchSize;
@@ -189,6 +204,12 @@ public class SqlQueryExecution
                         dynamicFilterService.getDynamicFilteringStats(stateMachine.getQueryId(), stateMachine.getSession()));
             });
 
+            stateMachine.addStateChangeListener(state -> {
+                if (state.isDone()) {
+                    queryResultCache.queryFinished(stateMachine.getQueryId());
+                }
+            });
+
             // when the query finishes cache the final query info, and clear the reference to the output stage
             AtomicReference<SqlQueryScheduler> queryScheduler = this.queryScheduler;
             stateMachine.addStateChangeListener(state -> {
@@ -433,7 +454,6 @@ public class SqlQueryExecution
         PlanNodeIdAllocator idAllocator = new PlanNodeIdAllocator();
         LogicalPlanner logicalPlanner = new LogicalPlanner(stateMachine.getSession(), planOptimizers, idAllocator, metadata, new TypeAnalyzer(sqlParser, metadata), statsCalculator, costCalculator, stateMachine.getWarningCollector());
         Plan plan = logicalPlanner.plan(analysis);
-        queryPlan.set(plan);
 
         // extract inputs
         List<Input> inputs = new InputExtractor(metadata, stateMachine.getSession()).extractInputs(plan.getRoot());
@@ -441,11 +461,46 @@ public class SqlQueryExecution
 
         stateMachine.setOutput(analysis.getTarget());
 
+        if (isQueryResultCacheEnabled(stateMachine.getSession()) && analysis.getStatement() instanceof Query) {
+            plan = lookupCachedResult(plan, idAllocator);
+        }
+        queryPlan.set(plan);
+
         // fragment the plan
         SubPlan fragmentedPlan = planFragmenter.createSubPlans(stateMachine.getSession(), plan, false, stateMachine.getWarningCollector());
 
         boolean explainAnalyze = analysis.getStatement() instanceof Explain && ((Explain) analysis.getStatement()).isAnalyze();
-        return new PlanRoot(fragmentedPlan, !explainAnalyze);
+        // summarized task info does not carry the driver timelines
+        boolean timelineSampled = getTaskTimelineSamplingRatio(stateMachine.getSession()) > 0;
+        return new PlanRoot(fragmentedPlan, !explainAnalyze && !timelineSampled);
+    }
+
+    private Plan lookupCachedResult(Plan plan, PlanNodeIdAllocator idAllocator)
+    {
+        Optional<String> cacheKey = new QueryResultCacheKeyGenerator(metadata, stateMachine.getSession()).generateKey(analysis, plan);
+        if (cacheKey.isEmpty()) {
+            return plan;
+        }
+
+        OutputNode output = (OutputNode) plan.getRoot();
+        List<Type> types = output.getOutputSymbols().stream()
+                .map(plan.getTypes()::get)
+                .collect(toImmutableList());
+        if (queryResultCache.lookup(stateMachine.getQueryId(), cacheKey.get(), types).isEmpty()) {
+            return plan;
+        }
+
+        // the output may reference a symbol more than once, so the cached columns get symbols of their own
+        SymbolAllocator symbolAllocator = new SymbolAllocator();
+        List<Symbol> symbols = types.stream()
+                .map(type -> symbolAllocator.newSymbol("cached", type))
+                .collect(toImmutableList());
+        PlanNode root = new OutputNode(
+                idAllocator.getNextId(),
+                new CachedResultNode(idAllocator.getNextId(), symbols, cacheKey.get()),
+                output.getColumnNames(),
+                symbols);
+        return new Plan(root, symbolAllocator.getTypes(), StatsAndCosts.empty());
     }
 
     private void planDistribution(PlanRoot plan)
@@ -525,6 +580,15 @@ public class SqlQueryExecution
         stateMachine.transitionToCanceled();
     }
 
+    @Override
+    public void requestDetailedTaskInfo()
+    {
+        SqlQueryScheduler scheduler = queryScheduler.get();
+        if (scheduler != null) {
+            scheduler.requestDetailedTaskInfo();
+        }
+    }
+
     @Override
     public void cancelStage(StageId stageId)
     {
@@ -696,6 +760,7 @@ public class SqlQueryExecution
         private final StatsCalculator statsCalculator;
         private final CostCalculator costCalculator;
         private final DynamicFilterService dynamicFilterService;
+        private final QueryResultCache queryResultCache;
 
         @Inject
         SqlQueryExecutionFactory(
@@ -718,7 +783,8 @@ public class SqlQueryExecution
                 SplitSchedulerStats schedulerStats,
                 StatsCalculator statsCalculator,
                 CostCalculator costCalculator,
-                DynamicFilterService dynamicFilterService)
+                DynamicFilterService dynamicFilterService,
+                QueryResultCache queryResultCache)
         {
             requireNonNull(config, "config is null");
             this.schedulerStats = requireNonNull(schedulerStats, "schedulerStats is null");
@@ -741,6 +807,7 @@ public class SqlQueryExecution
             this.statsCalculator = requireNonNull(statsCalculator, "statsCalculator is null");
             this.costCalculator = requireNonNull(costCalculator, "costCalculator is null");
             this.dynamicFilterService = requireNonNull(dynamicFilterService, "dynamicFilterService is null");
+            this.queryResultCache = requireNonNull(queryResultCache, "queryResultCache is null");
         }
 
         @Override
@@ -778,6 +845,7 @@ public class SqlQueryExecution
                     statsCalculator,
                     costCalculator,
                     dynamicFilterService,
+                    queryResultCache,
                     warningCollector);
         }
     }
@@ -259,6 +259,11 @@ public final class SqlStageExecution
         getAllTasks().forEach(RemoteTask::abort);
     }
 
+    public void requestDetailedTaskInfo()
+    {
+        getAllTasks().forEach(RemoteTask::requestDetailedTaskInfo);
+    }
+
     public long getUserMemoryReservation()
     {
         return stateMachine.getUserMemoryReservation();
@@ -319,7 +324,7 @@ public final class SqlStageExecution
             ImmutableMultimap.Builder<PlanNodeId, Split> newSplits = ImmutableMultimap.builder();
             for (RemoteTask sourceTask : sourceTasks) {
                 URI exchangeLocation = sourceTask.getTaskStatus().getSelf();
-                newSplits.put(remoteSource.getId(), createRemoteSplitFor(task.getTaskId(), exchangeLocation));
+                newSplits.put(remoteSource.getId(), createRemoteSplitFor(task.getTaskId(), sourceTask.getTaskId(), exchangeLocation));
             }
             task.addSplits(newSplits.build());
         }
@@ -434,7 +439,7 @@ public final class SqlStageExecution
         sourceTasks.forEach((planNodeId, task) -> {
             TaskStatus status = task.getTaskStatus();
             if (status.getState() != TaskState.FINISHED) {
-                initialSplits.put(planNodeId, createRemoteSplitFor(taskId, status.getSelf()));
+                initialSplits.put(planNodeId, createRemoteSplitFor(taskId, task.getTaskId(), status.getSelf()));
             }
         });
 
@@ -482,11 +487,16 @@ public final class SqlStageExecution
         stateMachine.recordGetSplitTime(start);
     }
 
-    private static Split createRemoteSplitFor(TaskId taskId, URI taskLocation)
+    public void recordSplitAssignmentTime(long start)
+    {
+        stateMachine.recordSplitAssignmentTime(start);
+    }
+
+    private static Split createRemoteSplitFor(TaskId taskId, TaskId sourceTaskId, URI taskLocation)
     {
         // Fetch the results from the buffer assigned to the task based on id
         URI splitLocation = uriBuilderFrom(taskLocation).appendPath("results").appendPath(String.valueOf(taskId.getId())).build();
-        return new Split(REMOTE_CONNECTOR_ID, new RemoteSplit(splitLocation), Lifespan.taskWide());
+        return new Split(REMOTE_CONNECTOR_ID, new RemoteSplit(sourceTaskId, splitLocation), Lifespan.taskWide());
     }
 
     private synchronized void updateTaskStatus(TaskStatus taskStatus)
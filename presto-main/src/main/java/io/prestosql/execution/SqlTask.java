@@ -33,8 +33,10 @@ import io.prestosql.execution.buffer.OutputBuffers.OutputBufferId;
 import io.prestosql.memory.QueryContext;
 import io.prestosql.operator.PipelineContext;
 import io.prestosql.operator.PipelineStatus;
+import io.prestosql.operator.SpillContext;
 import io.prestosql.operator.TaskContext;
 import io.prestosql.operator.TaskStats;
+import io.prestosql.spiller.OutputBufferSpillerFactory;
 import io.prestosql.sql.planner.PlanFragment;
 import io.prestosql.sql.planner.plan.PlanNodeId;
 import org.joda.time.DateTime;
@@ -89,6 +91,7 @@ public class SqlTask
 
     private final AtomicReference<TaskHolder> taskHolderReference = new AtomicReference<>(new TaskHolder());
     private final AtomicBoolean needsPlan = new AtomicBoolean(true);
+    private final PipelineStatsTracker pipelineStatsTracker = new PipelineStatsTracker();
 
     public static SqlTask createSqlTask(
             TaskId taskId,
@@ -99,9 +102,10 @@ public class SqlTask
             ExecutorService taskNotificationExecutor,
             Function<SqlTask, ?> onDone,
             DataSize maxBufferSize,
+            Optional<OutputBufferSpillerFactory> outputBufferSpillerFactory,
             CounterStat failedTasks)
     {
-        SqlTask sqlTask = new SqlTask(taskId, location, nodeId, queryContext, sqlTaskExecutionFactory, taskNotificationExecutor, maxBufferSize);
+        SqlTask sqlTask = new SqlTask(taskId, location, nodeId, queryContext, sqlTaskExecutionFactory, taskNotificationExecutor, maxBufferSize, outputBufferSpillerFactory);
         sqlTask.initialize(onDone, failedTasks);
         return sqlTask;
     }
@@ -113,7 +117,8 @@ public class SqlTask
             QueryContext queryContext,
             SqlTaskExecutionFactory sqlTaskExecutionFactory,
             ExecutorService taskNotificationExecutor,
-            DataSize maxBufferSize)
+            DataSize maxBufferSize,
+            Optional<OutputBufferSpillerFactory> outputBufferSpillerFactory)
     {
         this.taskId = requireNonNull(taskId, "taskId is null");
         this.taskInstanceId = UUID.randomUUID().toString();
@@ -123,7 +128,17 @@ public class SqlTask
         this.sqlTaskExecutionFactory = requireNonNull(sqlTaskExecutionFactory, "sqlTaskExecutionFactory is null");
         this.taskNotificationExecutor = requireNonNull(taskNotificationExecutor, "taskNotificationExecutor is null");
         requireNonNull(maxBufferSize, "maxBufferSize is null");
+        requireNonNull(outputBufferSpillerFactory, "outputBufferSpillerFactory is null");
 
+        // pages spilled by the output buffer count towards the spill limits of the query
+        SpillContext outputBufferSpillContext = bytes -> {
+            if (bytes >= 0) {
+                queryContext.reserveSpill(bytes);
+            }
+            else {
+                queryContext.freeSpill(-bytes);
+            }
+        };
         outputBuffer = new LazyOutputBuffer(
                 taskId,
                 taskInstanceId,
@@ -132,6 +147,7 @@ public class SqlTask
                 // Pass a memory context supplier instead of a memory context to the output buffer,
                 // because we haven't created the task context that holds the the memory context yet.
                 () -> queryContext.getTaskContextByTaskId(taskId).localSystemMemoryContext(),
+                outputBufferSpillerFactory.map(factory -> () -> factory.create(outputBufferSpillContext)),
                 () -> notifyStatusChanged());
         taskStateMachine = new TaskStateMachine(taskId, taskNotificationExecutor);
     }
@@ -222,6 +238,11 @@ public class SqlTask
         }
     }
 
+    public TaskInfo withChangedPipelineStats(TaskInfo taskInfo, long callersPipelineStatsVersion)
+    {
+        return pipelineStatsTracker.withChangedPipelineStats(taskInfo, callersPipelineStatsVersion);
+    }
+
     public TaskStatus getTaskStatus()
     {
         try (SetThreadName ignored = new SetThreadName("Task-%s", taskId)) {
@@ -366,7 +387,8 @@ public class SqlTask
                 outputBuffer.getInfo(),
                 noMoreSplits,
                 taskStats,
-                needsPlan.get());
+                needsPlan.get(),
+                Optional.empty());
     }
 
     public synchronized ListenableFuture<TaskStatus> getTaskStatus(long callersCurrentVersion)
@@ -449,6 +471,14 @@ public class SqlTask
         return outputBuffer.get(bufferId, startingSequenceId, maxSize);
     }
 
+    public ListenableFuture<BufferResult> readAheadTaskResults(OutputBufferId bufferId, long startingSequenceId, DataSize maxSize)
+    {
+        requireNonNull(bufferId, "bufferId is null");
+        checkArgument(maxSize.toBytes() > 0, "maxSize must be at least 1 byte");
+
+        return outputBuffer.readAhead(bufferId, startingSequenceId, maxSize);
+    }
+
     public void acknowledgeTaskResults(OutputBufferId bufferId, long sequenceId)
     {
         requireNonNull(bufferId, "bufferId is null");
@@ -88,6 +88,7 @@ public class SqlTaskExecutionFactory
                         fragment.getPartitioningScheme(),
                         fragment.getStageExecutionDescriptor(),
                         fragment.getPartitionedSources(),
+                        fragment.getBroadcastJoinBuildKeys(),
                         outputBuffer);
             }
             catch (Throwable e) {
@@ -44,6 +44,7 @@ import io.prestosql.spi.PrestoException;
 import io.prestosql.spi.QueryId;
 import io.prestosql.spiller.LocalSpillManager;
 import io.prestosql.spiller.NodeSpillConfig;
+import io.prestosql.spiller.OutputBufferSpillerFactory;
 import io.prestosql.sql.planner.LocalExecutionPlanner;
 import io.prestosql.sql.planner.PlanFragment;
 import org.joda.time.DateTime;
@@ -126,7 +127,9 @@ public class SqlTaskManager
             NodeMemoryConfig nodeMemoryConfig,
             LocalSpillManager localSpillManager,
             NodeSpillConfig nodeSpillConfig,
-            GcMonitor gcMonitor)
+            GcMonitor gcMonitor,
+            LocalTaskResults localTaskResults,
+            OutputBufferSpillerFactory outputBufferSpillerFactory)
     {
         requireNonNull(nodeInfo, "nodeInfo is null");
         requireNonNull(config, "config is null");
@@ -134,6 +137,7 @@ public class SqlTaskManager
         clientTimeout = config.getClientTimeout();
 
         DataSize maxBufferSize = config.getSinkMaxBufferSize();
+        Optional<OutputBufferSpillerFactory> sinkSpillerFactory = config.isSinkSpillEnabled() ? Optional.of(outputBufferSpillerFactory) : Optional.empty();
 
         taskNotificationExecutor = newFixedThreadPool(config.getTaskNotificationThreads(), threadsNamed("task-notification-%s"));
         taskNotificationExecutorMBean = new ThreadPoolExecutorMBean((ThreadPoolExecutor) taskNotificationExecutor);
@@ -168,7 +172,10 @@ public class SqlTaskManager
                             return null;
                         },
                         maxBufferSize,
+                        sinkSpillerFactory,
                         failedTasks)));
+
+        requireNonNull(localTaskResults, "localTaskResults is null").setTaskManager(this);
     }
 
     private QueryContext createQueryContext(
@@ -352,6 +359,15 @@ public class SqlTaskManager
         return sqlTask.getTaskStatus(currentVersion);
     }
 
+    @Override
+    public TaskInfo withChangedPipelineStats(TaskId taskId, TaskInfo taskInfo, long currentPipelineStatsVersion)
+    {
+        requireNonNull(taskId, "taskId is null");
+        requireNonNull(taskInfo, "taskInfo is null");
+
+        return tasks.getUnchecked(taskId).withChangedPipelineStats(taskInfo, currentPipelineStatsVersion);
+    }
+
     @Override
     public VersionedDynamicFilterDomains acknowledgeAndGetNewDynamicFilterDomains(TaskId taskId, long currentDynamicFiltersVersion)
     {
@@ -403,6 +419,17 @@ public class SqlTaskManager
         return tasks.getUnchecked(taskId).getTaskResults(bufferId, startingSequenceId, maxSize);
     }
 
+    @Override
+    public ListenableFuture<BufferResult> readAheadTaskResults(TaskId taskId, OutputBufferId bufferId, long startingSequenceId, DataSize maxSize)
+    {
+        requireNonNull(taskId, "taskId is null");
+        requireNonNull(bufferId, "bufferId is null");
+        checkArgument(startingSequenceId >= 0, "startingSequenceId is negative");
+        requireNonNull(maxSize, "maxSize is null");
+
+        return tasks.getUnchecked(taskId).readAheadTaskResults(bufferId, startingSequenceId, maxSize);
+    }
+
     @Override
     public void acknowledgeTaskResults(TaskId taskId, OutputBufferId bufferId, long sequenceId)
     {
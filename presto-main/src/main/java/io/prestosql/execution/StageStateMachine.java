@@ -571,6 +571,11 @@ public class StageStateMachine
         scheduledStats.getGetSplitTime().add(elapsedNanos, NANOSECONDS);
     }
 
+    public void recordSplitAssignmentTime(long startNanos)
+    {
+        scheduledStats.getSplitAssignmentTime().add(System.nanoTime() - startNanos, NANOSECONDS);
+    }
+
     @Override
     public String toString()
     {
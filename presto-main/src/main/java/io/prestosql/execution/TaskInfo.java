@@ -18,6 +18,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableSet;
 import io.prestosql.execution.buffer.BufferInfo;
 import io.prestosql.execution.buffer.OutputBufferInfo;
+import io.prestosql.operator.PipelineStats;
 import io.prestosql.operator.TaskStats;
 import io.prestosql.sql.planner.plan.PlanNodeId;
 import org.joda.time.DateTime;
@@ -26,6 +27,7 @@ import javax.annotation.concurrent.Immutable;
 
 import java.net.URI;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
@@ -43,6 +45,7 @@ public class TaskInfo
     private final TaskStats stats;
 
     private final boolean needsPlan;
+    private final Optional<PipelineStatsVersion> pipelineStatsVersion;
 
     @JsonCreator
     public TaskInfo(@JsonProperty("taskStatus") TaskStatus taskStatus,
@@ -50,7 +53,8 @@ public class TaskInfo
             @JsonProperty("outputBuffers") OutputBufferInfo outputBuffers,
             @JsonProperty("noMoreSplits") Set<PlanNodeId> noMoreSplits,
             @JsonProperty("stats") TaskStats stats,
-            @JsonProperty("needsPlan") boolean needsPlan)
+            @JsonProperty("needsPlan") boolean needsPlan,
+            @JsonProperty("pipelineStatsVersion") Optional<PipelineStatsVersion> pipelineStatsVersion)
     {
         this.taskStatus = requireNonNull(taskStatus, "taskStatus is null");
         this.lastHeartbeat = requireNonNull(lastHeartbeat, "lastHeartbeat is null");
@@ -59,6 +63,7 @@ public class TaskInfo
         this.stats = requireNonNull(stats, "stats is null");
 
         this.needsPlan = needsPlan;
+        this.pipelineStatsVersion = requireNonNull(pipelineStatsVersion, "pipelineStatsVersion is null");
     }
 
     @JsonProperty
@@ -97,12 +102,23 @@ public class TaskInfo
         return needsPlan;
     }
 
+    @JsonProperty
+    public Optional<PipelineStatsVersion> getPipelineStatsVersion()
+    {
+        return pipelineStatsVersion;
+    }
+
     public TaskInfo summarize()
     {
         if (taskStatus.getState().isDone()) {
-            return new TaskInfo(taskStatus, lastHeartbeat, outputBuffers.summarize(), noMoreSplits, stats.summarizeFinal(), needsPlan);
+            return summarizeWithPipelines();
         }
-        return new TaskInfo(taskStatus, lastHeartbeat, outputBuffers.summarize(), noMoreSplits, stats.summarize(), needsPlan);
+        return new TaskInfo(taskStatus, lastHeartbeat, outputBuffers.summarize(), noMoreSplits, stats.summarize(), needsPlan, Optional.empty());
+    }
+
+    public TaskInfo summarizeWithPipelines()
+    {
+        return new TaskInfo(taskStatus, lastHeartbeat, outputBuffers.summarize(), noMoreSplits, stats.summarizeFinal(), needsPlan, pipelineStatsVersion);
     }
 
     @Override
@@ -122,11 +138,17 @@ public class TaskInfo
                 new OutputBufferInfo("UNINITIALIZED", OPEN, true, true, 0, 0, 0, 0, bufferStates),
                 ImmutableSet.of(),
                 taskStats,
-                true);
+                true,
+                Optional.empty());
     }
 
     public TaskInfo withTaskStatus(TaskStatus newTaskStatus)
     {
-        return new TaskInfo(newTaskStatus, lastHeartbeat, outputBuffers, noMoreSplits, stats, needsPlan);
+        return new TaskInfo(newTaskStatus, lastHeartbeat, outputBuffers, noMoreSplits, stats, needsPlan, pipelineStatsVersion);
+    }
+
+    public TaskInfo withPipelineStats(List<PipelineStats> pipelines, Optional<PipelineStatsVersion> pipelineStatsVersion)
+    {
+        return new TaskInfo(taskStatus, lastHeartbeat, outputBuffers, noMoreSplits, stats.withPipelines(pipelines), needsPlan, pipelineStatsVersion);
     }
 }
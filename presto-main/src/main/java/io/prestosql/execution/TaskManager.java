@@ -78,6 +78,13 @@ public interface TaskManager
      */
     ListenableFuture<TaskStatus> getTaskStatus(TaskId taskId, long currentVersion);
 
+    /**
+     * Removes the pipelines that did not change since the specified pipeline
+     * stats version from the task info, and records the included pipelines
+     * as reported.
+     */
+    TaskInfo withChangedPipelineStats(TaskId taskId, TaskInfo taskInfo, long currentPipelineStatsVersion);
+
     VersionedDynamicFilterDomains acknowledgeAndGetNewDynamicFilterDomains(TaskId taskId, long currentDynamicFiltersVersion);
 
     void updateMemoryPoolAssignments(MemoryPoolAssignmentsRequest assignments);
@@ -110,6 +117,12 @@ public interface TaskManager
      */
     ListenableFuture<BufferResult> getTaskResults(TaskId taskId, OutputBufferId bufferId, long startingSequenceId, DataSize maxSize);
 
+    /**
+     * Gets more results from a task after a previous result, without acknowledging
+     * the results that were received before.
+     */
+    ListenableFuture<BufferResult> readAheadTaskResults(TaskId taskId, OutputBufferId bufferId, long startingSequenceId, DataSize maxSize);
+
     /**
      * Acknowledges previously received results.
      */
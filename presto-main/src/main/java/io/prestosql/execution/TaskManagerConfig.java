@@ -24,6 +24,8 @@ import io.airlift.units.MaxDuration;
 import io.airlift.units.MinDuration;
 import io.prestosql.util.PowerOfTwo;
 
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
@@ -44,6 +46,7 @@ public class TaskManagerConfig
     private boolean perOperatorCpuTimerEnabled = true;
     private boolean taskCpuTimerEnabled = true;
     private boolean statisticsCpuTimerEnabled = true;
+    private double timelineSamplingRatio;
     private DataSize maxPartialAggregationMemoryUsage = DataSize.of(16, Unit.MEGABYTE);
     private DataSize maxLocalExchangeBufferSize = DataSize.of(32, Unit.MEGABYTE);
     private DataSize maxIndexMemoryUsage = DataSize.of(64, Unit.MEGABYTE);
@@ -56,6 +59,7 @@ public class TaskManagerConfig
     private Duration splitConcurrencyAdjustmentInterval = new Duration(100, TimeUnit.MILLISECONDS);
 
     private DataSize sinkMaxBufferSize = DataSize.of(32, Unit.MEGABYTE);
+    private boolean sinkSpillEnabled;
     private DataSize maxPagePartitioningBufferSize = DataSize.of(32, Unit.MEGABYTE);
 
     private Duration clientTimeout = new Duration(2, TimeUnit.MINUTES);
@@ -63,11 +67,13 @@ public class TaskManagerConfig
 
     private Duration statusRefreshMaxWait = new Duration(1, TimeUnit.SECONDS);
     private Duration infoUpdateInterval = new Duration(3, TimeUnit.SECONDS);
+    private boolean infoDeltaUpdatesEnabled;
 
     private int writerCount = 1;
     private int taskConcurrency = 16;
     private int httpResponseThreads = 100;
     private int httpTimeoutThreads = 3;
+    private int maxResultStreams = 50;
 
     private int taskNotificationThreads = 5;
     private int taskYieldThreads = 3;
@@ -105,6 +111,19 @@ public class TaskManagerConfig
         return this;
     }
 
+    public boolean isInfoDeltaUpdatesEnabled()
+    {
+        return infoDeltaUpdatesEnabled;
+    }
+
+    @Config("task.info-delta-updates-enabled")
+    @ConfigDescription("Fetch only the pipeline statistics that changed, and for summarized tasks only while query info is requested")
+    public TaskManagerConfig setInfoDeltaUpdatesEnabled(boolean infoDeltaUpdatesEnabled)
+    {
+        this.infoDeltaUpdatesEnabled = infoDeltaUpdatesEnabled;
+        return this;
+    }
+
     public boolean isPerOperatorCpuTimerEnabled()
     {
         return perOperatorCpuTimerEnabled;
@@ -142,6 +161,21 @@ public class TaskManagerConfig
         return this;
     }
 
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    public double getTimelineSamplingRatio()
+    {
+        return timelineSamplingRatio;
+    }
+
+    @Config("task.timeline-sampling-ratio")
+    @ConfigDescription("Fraction of drivers that record the timeline of their processing quanta and blocked intervals")
+    public TaskManagerConfig setTimelineSamplingRatio(double timelineSamplingRatio)
+    {
+        this.timelineSamplingRatio = timelineSamplingRatio;
+        return this;
+    }
+
     @NotNull
     public DataSize getMaxPartialAggregationMemoryUsage()
     {
@@ -308,6 +342,19 @@ public class TaskManagerConfig
         return this;
     }
 
+    public boolean isSinkSpillEnabled()
+    {
+        return sinkSpillEnabled;
+    }
+
+    @Config("sink.spill-enabled")
+    @ConfigDescription("Spill pages of full output buffers to disk instead of blocking the task")
+    public TaskManagerConfig setSinkSpillEnabled(boolean sinkSpillEnabled)
+    {
+        this.sinkSpillEnabled = sinkSpillEnabled;
+        return this;
+    }
+
     @NotNull
     public DataSize getMaxPagePartitioningBufferSize()
     {
@@ -404,6 +451,20 @@ public class TaskManagerConfig
         return this;
     }
 
+    @Min(0)
+    public int getMaxResultStreams()
+    {
+        return maxResultStreams;
+    }
+
+    @Config("task.max-result-streams")
+    @ConfigDescription("Maximum number of concurrently streamed task results")
+    public TaskManagerConfig setMaxResultStreams(int maxResultStreams)
+    {
+        this.maxResultStreams = maxResultStreams;
+        return this;
+    }
+
     @Min(1)
     public int getTaskNotificationThreads()
     {
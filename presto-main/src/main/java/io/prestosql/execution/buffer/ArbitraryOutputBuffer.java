@@ -24,6 +24,7 @@ import io.prestosql.execution.StateMachine.StateChangeListener;
 import io.prestosql.execution.buffer.ClientBuffer.PagesSupplier;
 import io.prestosql.execution.buffer.OutputBuffers.OutputBufferId;
 import io.prestosql.memory.context.LocalMemoryContext;
+import io.prestosql.spiller.OutputBufferSpiller;
 
 import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
@@ -85,6 +86,17 @@ public class ArbitraryOutputBuffer
             DataSize maxBufferSize,
             Supplier<LocalMemoryContext> systemMemoryContextSupplier,
             Executor notificationExecutor)
+    {
+        this(taskInstanceId, state, maxBufferSize, systemMemoryContextSupplier, notificationExecutor, Optional.empty());
+    }
+
+    public ArbitraryOutputBuffer(
+            String taskInstanceId,
+            StateMachine<BufferState> state,
+            DataSize maxBufferSize,
+            Supplier<LocalMemoryContext> systemMemoryContextSupplier,
+            Executor notificationExecutor,
+            Optional<Supplier<OutputBufferSpiller>> spillerSupplier)
     {
         this.taskInstanceId = requireNonNull(taskInstanceId, "taskInstanceId is null");
         this.state = requireNonNull(state, "state is null");
@@ -94,7 +106,8 @@ public class ArbitraryOutputBuffer
                 maxBufferSize.toBytes(),
                 requireNonNull(systemMemoryContextSupplier, "systemMemoryContextSupplier is null"),
                 requireNonNull(notificationExecutor, "notificationExecutor is null"));
-        this.masterBuffer = new MasterBuffer();
+        this.masterBuffer = new MasterBuffer(requireNonNull(spillerSupplier, "spillerSupplier is null")
+                .map(supplier -> new SpillingPagesSupplier(supplier, memoryManager, notificationExecutor, spilledPages -> processPendingReads())));
     }
 
     @Override
@@ -215,24 +228,33 @@ public class ArbitraryOutputBuffer
             return;
         }
 
-        // reserve memory
-        long bytesAdded = pages.stream().mapToLong(SerializedPage::getRetainedSizeInBytes).sum();
-        memoryManager.updateMemoryUsage(bytesAdded);
-
         // update stats
         long rowCount = pages.stream().mapToLong(SerializedPage::getPositionCount).sum();
         totalRowsAdded.addAndGet(rowCount);
         totalPagesAdded.addAndGet(pages.size());
 
-        // create page reference counts with an initial single reference
-        List<SerializedPageReference> serializedPageReferences = pages.stream()
-                .map(pageSplit -> new SerializedPageReference(pageSplit, 1, () -> memoryManager.updateMemoryUsage(-pageSplit.getRetainedSizeInBytes())))
-                .collect(toImmutableList());
+        long bytesAdded = pages.stream().mapToLong(SerializedPage::getRetainedSizeInBytes).sum();
+        if (!masterBuffer.spillIfNecessary(pages, memoryManager.wouldExceedLimit(bytesAdded))) {
+            // reserve memory
+            memoryManager.updateMemoryUsage(bytesAdded);
 
-        // add pages to the buffer (this will increase the reference count by one)
-        masterBuffer.addPages(serializedPageReferences);
+            // create page reference counts with an initial single reference
+            List<SerializedPageReference> serializedPageReferences = pages.stream()
+                    .map(pageSplit -> new SerializedPageReference(pageSplit, 1, () -> memoryManager.updateMemoryUsage(-pageSplit.getRetainedSizeInBytes())))
+                    .collect(toImmutableList());
 
-        // process any pending reads from the client buffers
+            // add pages to the buffer (this will increase the reference count by one)
+            masterBuffer.addPages(serializedPageReferences);
+        }
+
+        processPendingReads();
+    }
+
+    /**
+     * Processes any pending reads from the client buffers.
+     */
+    private void processPendingReads()
+    {
         List<ClientBuffer> buffers = safeGetBuffersSnapshot();
         if (buffers.isEmpty()) {
             return;
@@ -267,6 +289,16 @@ public class ArbitraryOutputBuffer
         return getBuffer(bufferId).getPages(startingSequenceId, maxSize, Optional.of(masterBuffer));
     }
 
+    @Override
+    public ListenableFuture<BufferResult> readAhead(OutputBufferId bufferId, long startingSequenceId, DataSize maxSize)
+    {
+        checkState(!Thread.holdsLock(this), "Cannot get pages while holding a lock on this");
+        requireNonNull(bufferId, "bufferId is null");
+        checkArgument(maxSize.toBytes() > 0, "maxSize must be at least 1 byte");
+
+        return getBuffer(bufferId).readAhead(startingSequenceId, maxSize, Optional.of(masterBuffer));
+    }
+
     @Override
     public void acknowledge(OutputBufferId bufferId, long sequenceId)
     {
@@ -329,6 +361,7 @@ public class ArbitraryOutputBuffer
         // ignore fail if the buffer already in a terminal state.
         if (state.setIf(FAILED, oldState -> !oldState.isTerminal())) {
             memoryManager.setNoBlockOnFull();
+            masterBuffer.closeSpilledPages();
             forceFreeMemory();
             // DO NOT destroy buffers or set no more pages.  The coordinator manages the teardown of failed queries.
         }
@@ -405,26 +438,42 @@ public class ArbitraryOutputBuffer
         @GuardedBy("this")
         private final LinkedList<SerializedPageReference> masterBuffer = new LinkedList<>();
 
+        // pages which did not fit in memory, read once the in memory pages are gone
+        private final Optional<SpillingPagesSupplier> spilledPages;
+
         @GuardedBy("this")
         private boolean noMorePages;
 
         private final AtomicInteger bufferedPages = new AtomicInteger();
 
+        public MasterBuffer(Optional<SpillingPagesSupplier> spilledPages)
+        {
+            this.spilledPages = requireNonNull(spilledPages, "spilledPages is null");
+        }
+
         public synchronized void addPages(List<SerializedPageReference> pages)
         {
             masterBuffer.addAll(pages);
             bufferedPages.set(masterBuffer.size());
         }
 
+        /**
+         * @return true if the pages were spilled and must not be added to the buffer
+         */
+        public boolean spillIfNecessary(List<SerializedPage> pages, boolean bufferFull)
+        {
+            return spilledPages.isPresent() && spilledPages.get().spillIfNecessary(pages, bufferFull);
+        }
+
         public synchronized boolean isEmpty()
         {
-            return masterBuffer.isEmpty();
+            return masterBuffer.isEmpty() && !spilledPages.map(SpillingPagesSupplier::hasSpilledPages).orElse(false);
         }
 
         @Override
         public synchronized boolean mayHaveMorePages()
         {
-            return !noMorePages || !masterBuffer.isEmpty();
+            return !noMorePages || !isEmpty();
         }
 
         public synchronized void setNoMorePages()
@@ -456,6 +505,9 @@ public class ArbitraryOutputBuffer
 
             bufferedPages.set(masterBuffer.size());
 
+            if (pages.isEmpty() && spilledPages.isPresent()) {
+                return spilledPages.get().getPages(maxSize);
+            }
             return ImmutableList.copyOf(pages);
         }
 
@@ -471,6 +523,13 @@ public class ArbitraryOutputBuffer
 
             // dereference outside of synchronized to avoid making a callback while holding a lock
             pages.forEach(SerializedPageReference::dereferencePage);
+
+            closeSpilledPages();
+        }
+
+        public void closeSpilledPages()
+        {
+            spilledPages.ifPresent(SpillingPagesSupplier::close);
         }
 
         public int getBufferedPages()
@@ -265,6 +265,16 @@ public class BroadcastOutputBuffer
         return getBuffer(outputBufferId).getPages(startingSequenceId, maxSize);
     }
 
+    @Override
+    public ListenableFuture<BufferResult> readAhead(OutputBufferId outputBufferId, long startingSequenceId, DataSize maxSize)
+    {
+        checkState(!Thread.holdsLock(this), "Cannot get pages while holding a lock on this");
+        requireNonNull(outputBufferId, "outputBufferId is null");
+        checkArgument(maxSize.toBytes() > 0, "maxSize must be at least 1 byte");
+
+        return getBuffer(outputBufferId).readAhead(startingSequenceId, maxSize);
+    }
+
     @Override
     public void acknowledge(OutputBufferId bufferId, long sequenceId)
     {
@@ -28,6 +28,8 @@ import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -57,16 +59,20 @@ class ClientBuffer
     @GuardedBy("this")
     private final LinkedList<SerializedPageReference> pages = new LinkedList<>();
 
-    @GuardedBy("this")
-    private boolean noMorePages;
+    // Pages are enqueued without holding the lock, so producers do not contend with each other or with
+    // the client. They are moved to the pages list by the next read or acknowledgement.
+    private final Queue<SerializedPageReference> enqueuedPages = new ConcurrentLinkedQueue<>();
+
+    // noMorePages and pendingRead are only written while holding the lock, but enqueuePages reads them
+    // without it as a fast path and re-checks the pending read under the lock before processing it
+    private volatile boolean noMorePages;
 
     // destroyed is set when the client sends a DELETE to the buffer
     // this is an acknowledgement that the client has observed the end of the buffer
     @GuardedBy("this")
     private final AtomicBoolean destroyed = new AtomicBoolean();
 
-    @GuardedBy("this")
-    private PendingRead pendingRead;
+    private volatile PendingRead pendingRead;
 
     public ClientBuffer(String taskInstanceId, OutputBufferId bufferId)
     {
@@ -108,14 +114,19 @@ class ClientBuffer
         List<SerializedPageReference> removedPages;
         PendingRead pendingRead;
         synchronized (this) {
-            removedPages = ImmutableList.copyOf(pages);
-            pages.clear();
-
-            bufferedBytes.getAndSet(0);
-
             noMorePages = true;
             destroyed.set(true);
 
+            removedPages = ImmutableList.<SerializedPageReference>builder()
+                    .addAll(pages)
+                    .addAll(pollEnqueuedPages())
+                    .build();
+            pages.clear();
+
+            // pages enqueued after this point are dropped by the enqueuing thread
+            long bytesRemoved = removedPages.stream().mapToLong(SerializedPageReference::getRetainedSizeInBytes).sum();
+            verify(bufferedBytes.addAndGet(-bytesRemoved) >= 0);
+
             pendingRead = this.pendingRead;
             this.pendingRead = null;
         }
@@ -129,37 +140,90 @@ class ClientBuffer
 
     public void enqueuePages(Collection<SerializedPageReference> pages)
     {
-        PendingRead pendingRead;
-        synchronized (this) {
-            // ignore pages after no more pages is set
-            // this can happen with limit queries
-            if (noMorePages) {
-                return;
-            }
+        checkState(!Thread.holdsLock(this), "Cannot enqueue pages while holding a lock on this");
 
-            addPages(pages);
+        // ignore pages after no more pages is set
+        // this can happen with limit queries
+        if (noMorePages) {
+            return;
+        }
 
-            pendingRead = this.pendingRead;
-            this.pendingRead = null;
+        addPages(pages, enqueuedPages);
+
+        if (noMorePages) {
+            // No more pages was set concurrently. The pages enqueued before that were moved to the pages
+            // list while holding the lock, so the pages left once the lock is acquired will never be read.
+            List<SerializedPageReference> droppedPages;
+            synchronized (this) {
+                droppedPages = pollEnqueuedPages();
+            }
+            dropPages(droppedPages);
+            return;
         }
 
         // we just added a page, so process the pending read
-        if (pendingRead != null) {
-            processRead(pendingRead);
+        //
+        // The read is registered before checking for enqueued pages and the pages are enqueued before
+        // checking for a pending read, so either this thread sees the pending read or the reader sees the pages.
+        if (this.pendingRead != null) {
+            PendingRead pendingRead;
+            synchronized (this) {
+                pendingRead = this.pendingRead;
+                this.pendingRead = null;
+            }
+            if (pendingRead != null) {
+                processRead(pendingRead);
+            }
         }
     }
 
-    private synchronized void addPages(Collection<SerializedPageReference> pages)
+    private void addPages(Collection<SerializedPageReference> pages, Collection<SerializedPageReference> target)
     {
         pages.forEach(SerializedPageReference::addReference);
-        this.pages.addAll(pages);
 
+        // update the stats before the pages become visible, so an acknowledgement never sees more bytes removed than added
         long rowCount = pages.stream().mapToLong(SerializedPageReference::getPositionCount).sum();
         rowsAdded.addAndGet(rowCount);
         pagesAdded.addAndGet(pages.size());
 
         long bytesAdded = pages.stream().mapToLong(SerializedPageReference::getRetainedSizeInBytes).sum();
         bufferedBytes.addAndGet(bytesAdded);
+
+        target.addAll(pages);
+    }
+
+    /**
+     * Moves the pages enqueued since the last call to the pages list. Pages enqueued
+     * after no more pages is set are left to be dropped by the enqueuing thread.
+     */
+    @GuardedBy("this")
+    private void takeEnqueuedPages()
+    {
+        if (!noMorePages) {
+            pages.addAll(pollEnqueuedPages());
+        }
+    }
+
+    private List<SerializedPageReference> pollEnqueuedPages()
+    {
+        List<SerializedPageReference> polledPages = new ArrayList<>();
+        SerializedPageReference page = enqueuedPages.poll();
+        while (page != null) {
+            polledPages.add(page);
+            page = enqueuedPages.poll();
+        }
+        return polledPages;
+    }
+
+    private void dropPages(List<SerializedPageReference> droppedPages)
+    {
+        checkState(!Thread.holdsLock(this), "Cannot drop pages while holding a lock on this");
+
+        rowsAdded.addAndGet(-droppedPages.stream().mapToLong(SerializedPageReference::getPositionCount).sum());
+        pagesAdded.addAndGet(-droppedPages.size());
+        bufferedBytes.addAndGet(-droppedPages.stream().mapToLong(SerializedPageReference::getRetainedSizeInBytes).sum());
+
+        droppedPages.forEach(SerializedPageReference::dereferencePage);
     }
 
     public ListenableFuture<BufferResult> getPages(long sequenceId, DataSize maxSize)
@@ -168,13 +232,49 @@ class ClientBuffer
     }
 
     public ListenableFuture<BufferResult> getPages(long sequenceId, DataSize maxSize, Optional<PagesSupplier> pagesSupplier)
+    {
+        return getPages(sequenceId, maxSize, pagesSupplier, true);
+    }
+
+    public ListenableFuture<BufferResult> readAhead(long sequenceId, DataSize maxSize)
+    {
+        return readAhead(sequenceId, maxSize, Optional.empty());
+    }
+
+    /**
+     * Gets the pages starting at the specified sequence id, but unlike {@link #getPages}
+     * does not acknowledge the pages before it. The pages stay in the buffer until the
+     * client acknowledges them, so a client can receive several results and still retry
+     * from the last result it has acknowledged.
+     */
+    public ListenableFuture<BufferResult> readAhead(long sequenceId, DataSize maxSize, Optional<PagesSupplier> pagesSupplier)
+    {
+        return getPages(sequenceId, maxSize, pagesSupplier, false);
+    }
+
+    private ListenableFuture<BufferResult> getPages(long sequenceId, DataSize maxSize, Optional<PagesSupplier> pagesSupplier, boolean acknowledge)
     {
         // acknowledge pages first, out side of locks to not trigger callbacks while holding the lock
-        acknowledgePages(sequenceId);
+        if (acknowledge) {
+            acknowledgePages(sequenceId);
+        }
 
         // attempt to load some data before processing the read
-        pagesSupplier.ifPresent(supplier -> loadPagesIfNecessary(supplier, maxSize));
+        pagesSupplier.ifPresent(supplier -> loadPagesIfNecessary(supplier, sequenceId, maxSize));
+
+        ListenableFuture<BufferResult> resultFuture = processReadOrWait(sequenceId, maxSize);
+
+        // The pages supplier may load pages asynchronously, and notify this buffer once they are loaded.
+        // A notification which arrived before the read was registered is not lost, since the loaded
+        // pages are checked again now that the read is registered.
+        if (!resultFuture.isDone()) {
+            pagesSupplier.ifPresent(this::loadPagesIfNecessary);
+        }
+        return resultFuture;
+    }
 
+    private ListenableFuture<BufferResult> processReadOrWait(long sequenceId, DataSize maxSize)
+    {
         PendingRead oldPendingRead = null;
         try {
             synchronized (this) {
@@ -182,15 +282,25 @@ class ClientBuffer
                 oldPendingRead = this.pendingRead;
                 this.pendingRead = null;
 
+                takeEnqueuedPages();
+
                 // Return results immediately if we have data, there will be no more data, or this is
                 // an out of order request
-                if (!pages.isEmpty() || noMorePages || sequenceId != currentSequenceId.get()) {
+                if (hasPagesAt(sequenceId) || noMorePages || sequenceId < currentSequenceId.get()) {
                     return immediateFuture(processRead(sequenceId, maxSize));
                 }
 
                 // otherwise, wait for more data to arrive
                 pendingRead = new PendingRead(taskInstanceId, sequenceId, maxSize);
-                return pendingRead.getResultFuture();
+                if (enqueuedPages.isEmpty()) {
+                    return pendingRead.getResultFuture();
+                }
+
+                // pages were enqueued before the read was registered, so the
+                // enqueuing thread may not have seen it
+                pendingRead = null;
+                takeEnqueuedPages();
+                return immediateFuture(processRead(sequenceId, maxSize));
             }
         }
         finally {
@@ -211,7 +321,9 @@ class ClientBuffer
                 return;
             }
 
+            // pages enqueued before no more pages is set must still be read
             noMorePages = true;
+            pages.addAll(pollEnqueuedPages());
 
             pendingRead = this.pendingRead;
             this.pendingRead = null;
@@ -230,15 +342,32 @@ class ClientBuffer
         // Get the max size from the current pending read, which may not be the
         // same pending read instance by the time pages are loaded but this is
         // safe since the size is rechecked before returning pages.
+        long sequenceId;
         DataSize maxSize;
         synchronized (this) {
             if (pendingRead == null) {
                 return;
             }
+            sequenceId = pendingRead.getSequenceId();
             maxSize = pendingRead.getMaxSize();
         }
 
-        boolean dataAddedOrNoMorePages = loadPagesIfNecessary(pagesSupplier, maxSize);
+        boolean dataAddedOrNoMorePages;
+        try {
+            dataAddedOrNoMorePages = loadPagesIfNecessary(pagesSupplier, sequenceId, maxSize);
+        }
+        catch (RuntimeException e) {
+            // the pages supplier failed, for example when reading spilled pages, so the waiting client gets the failure
+            PendingRead pendingRead;
+            synchronized (this) {
+                pendingRead = this.pendingRead;
+                this.pendingRead = null;
+            }
+            if (pendingRead != null) {
+                pendingRead.getResultFuture().setException(e);
+            }
+            return;
+        }
 
         if (dataAddedOrNoMorePages) {
             PendingRead pendingRead;
@@ -252,9 +381,9 @@ class ClientBuffer
     }
 
     /**
-     * If there no data, attempt to load some from the pages supplier.
+     * If there no data to read at the sequence id, attempt to load some from the pages supplier.
      */
-    private boolean loadPagesIfNecessary(PagesSupplier pagesSupplier, DataSize maxSize)
+    private boolean loadPagesIfNecessary(PagesSupplier pagesSupplier, long sequenceId, DataSize maxSize)
     {
         checkState(!Thread.holdsLock(this), "Cannot load pages while holding a lock on this");
 
@@ -265,7 +394,8 @@ class ClientBuffer
                 return false;
             }
 
-            if (!pages.isEmpty()) {
+            takeEnqueuedPages();
+            if (hasPagesAt(sequenceId)) {
                 return false;
             }
 
@@ -275,11 +405,12 @@ class ClientBuffer
             pageReferences = pagesSupplier.getPages(maxSize);
 
             // add the pages to this buffer, which will increase the reference count
-            addPages(pageReferences);
+            addPages(pageReferences, pages);
 
             // check for no more pages
             if (!pagesSupplier.mayHaveMorePages()) {
                 noMorePages = true;
+                pages.addAll(pollEnqueuedPages());
             }
             dataAddedOrNoMorePages = !pageReferences.isEmpty() || noMorePages;
         }
@@ -330,6 +461,8 @@ class ClientBuffer
         //   when the buffer is destroyed.
         //
 
+        takeEnqueuedPages();
+
         // if request is for pages before the current position, just return an empty result
         if (sequenceId < currentSequenceId.get()) {
             return emptyResults(taskInstanceId, sequenceId, false);
@@ -337,23 +470,24 @@ class ClientBuffer
 
         // if this buffer is finished, notify the client of this, so the client
         // will destroy this buffer
-        if (pages.isEmpty() && noMorePages) {
-            return emptyResults(taskInstanceId, currentSequenceId.get(), true);
+        if (!hasPagesAt(sequenceId) && noMorePages) {
+            return emptyResults(taskInstanceId, destroyed.get() ? currentSequenceId.get() : sequenceId, true);
         }
 
-        // if request is for pages after the current position, there is a bug somewhere
-        // a read call is always proceeded by acknowledge pages, which
-        // will advance the sequence id to at least the request position, unless
-        // the buffer is destroyed, and in that case the buffer will be empty with
-        // no more pages set, which is checked above
-        verify(sequenceId == currentSequenceId.get(), "Invalid sequence id");
+        // if request is for pages after the buffered pages, there is a bug somewhere
+        // a read call is either proceeded by acknowledge pages, which will advance
+        // the sequence id to the request position, or reads ahead from the next
+        // token of a previous read, unless the buffer is destroyed, and in that case
+        // the buffer will be empty with no more pages set, which is checked above
+        int offset = toIntExact(sequenceId - currentSequenceId.get());
+        verify(offset <= pages.size(), "Invalid sequence id");
 
         // read the new pages
         long maxBytes = maxSize.toBytes();
         List<SerializedPage> result = new ArrayList<>();
         long bytes = 0;
 
-        for (SerializedPageReference page : pages) {
+        for (SerializedPageReference page : pages.subList(offset, pages.size())) {
             bytes += page.getRetainedSizeInBytes();
             // break (and don't add) if this page would exceed the limit
             if (!result.isEmpty() && bytes > maxBytes) {
@@ -364,6 +498,12 @@ class ClientBuffer
         return new BufferResult(taskInstanceId, sequenceId, sequenceId + result.size(), false, result);
     }
 
+    @GuardedBy("this")
+    private boolean hasPagesAt(long sequenceId)
+    {
+        return pages.size() > Math.max(sequenceId - currentSequenceId.get(), 0);
+    }
+
     /**
      * Drops pages up to the specified sequence id
      */
@@ -383,6 +523,8 @@ class ClientBuffer
                 return;
             }
 
+            takeEnqueuedPages();
+
             int pagesToRemove = toIntExact(sequenceId - oldCurrentSequenceId);
             checkArgument(pagesToRemove <= pages.size(), "Invalid sequence id");
 
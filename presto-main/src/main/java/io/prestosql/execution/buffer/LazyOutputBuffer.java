@@ -23,12 +23,14 @@ import io.prestosql.execution.StateMachine.StateChangeListener;
 import io.prestosql.execution.TaskId;
 import io.prestosql.execution.buffer.OutputBuffers.OutputBufferId;
 import io.prestosql.memory.context.LocalMemoryContext;
+import io.prestosql.spiller.OutputBufferSpiller;
 
 import javax.annotation.concurrent.GuardedBy;
 
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.function.Supplier;
@@ -50,6 +52,7 @@ public class LazyOutputBuffer
     private final String taskInstanceId;
     private final DataSize maxBufferSize;
     private final Supplier<LocalMemoryContext> systemMemoryContextSupplier;
+    private final Optional<Supplier<OutputBufferSpiller>> spillerSupplier;
     private final Executor executor;
     private final Runnable notifyStatusChanged;
 
@@ -68,6 +71,7 @@ public class LazyOutputBuffer
             Executor executor,
             DataSize maxBufferSize,
             Supplier<LocalMemoryContext> systemMemoryContextSupplier,
+            Optional<Supplier<OutputBufferSpiller>> spillerSupplier,
             Runnable notifyStatusChanged)
     {
         requireNonNull(taskId, "taskId is null");
@@ -77,6 +81,7 @@ public class LazyOutputBuffer
         this.maxBufferSize = requireNonNull(maxBufferSize, "maxBufferSize is null");
         checkArgument(maxBufferSize.toBytes() > 0, "maxBufferSize must be at least 1");
         this.systemMemoryContextSupplier = requireNonNull(systemMemoryContextSupplier, "systemMemoryContextSupplier is null");
+        this.spillerSupplier = requireNonNull(spillerSupplier, "spillerSupplier is null");
         this.notifyStatusChanged = requireNonNull(notifyStatusChanged, "notifyStatusChanged is null");
     }
 
@@ -161,13 +166,13 @@ public class LazyOutputBuffer
                 }
                 switch (newOutputBuffers.getType()) {
                     case PARTITIONED:
-                        delegate = new PartitionedOutputBuffer(taskInstanceId, state, newOutputBuffers, maxBufferSize, systemMemoryContextSupplier, executor);
+                        delegate = new PartitionedOutputBuffer(taskInstanceId, state, newOutputBuffers, maxBufferSize, systemMemoryContextSupplier, executor, spillerSupplier);
                         break;
                     case BROADCAST:
                         delegate = new BroadcastOutputBuffer(taskInstanceId, state, maxBufferSize, systemMemoryContextSupplier, executor, notifyStatusChanged);
                         break;
                     case ARBITRARY:
-                        delegate = new ArbitraryOutputBuffer(taskInstanceId, state, maxBufferSize, systemMemoryContextSupplier, executor);
+                        delegate = new ArbitraryOutputBuffer(taskInstanceId, state, maxBufferSize, systemMemoryContextSupplier, executor, spillerSupplier);
                         break;
                 }
 
@@ -208,6 +213,20 @@ public class LazyOutputBuffer
         return outputBuffer.get(bufferId, token, maxSize);
     }
 
+    @Override
+    public ListenableFuture<BufferResult> readAhead(OutputBufferId bufferId, long token, DataSize maxSize)
+    {
+        OutputBuffer outputBuffer;
+        synchronized (this) {
+            outputBuffer = delegate;
+        }
+        if (outputBuffer == null) {
+            // there are no pages to acknowledge before the buffer is created, so this is the same as a get
+            return get(bufferId, token, maxSize);
+        }
+        return outputBuffer.readAhead(bufferId, token, maxSize);
+    }
+
     @Override
     public void acknowledge(OutputBufferId bufferId, long token)
     {
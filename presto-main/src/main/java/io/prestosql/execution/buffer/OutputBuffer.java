@@ -66,6 +66,14 @@ public interface OutputBuffer
      */
     ListenableFuture<BufferResult> get(OutputBufferId bufferId, long token, DataSize maxSize);
 
+    /**
+     * Gets pages from the output buffer starting at the token, but does not acknowledge any
+     * pages. The token must be the next token of a previous result. This allows a client to
+     * receive several results before it acknowledges them, and to retry from the last
+     * acknowledged token if any of the results is lost.
+     */
+    ListenableFuture<BufferResult> readAhead(OutputBufferId bufferId, long token, DataSize maxSize);
+
     /**
      * Acknowledges the previously received pages from the output buffer.
      */
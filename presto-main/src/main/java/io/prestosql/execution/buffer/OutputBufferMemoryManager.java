@@ -45,13 +45,15 @@ class OutputBufferMemoryManager
     private final AtomicLong peakMemoryUsage = new AtomicLong();
 
     @GuardedBy("this")
-    private boolean closed;
+    private volatile boolean closed;
     @GuardedBy("this")
-    private SettableFuture<?> bufferBlockedFuture;
+    private volatile SettableFuture<?> bufferBlockedFuture;
     @GuardedBy("this")
-    private ListenableFuture<?> blockedOnMemory = Futures.immediateFuture(null);
+    private volatile ListenableFuture<?> blockedOnMemory = Futures.immediateFuture(null);
 
     private final AtomicBoolean blockOnFull = new AtomicBoolean(true);
+    // set while a thread reports the buffered bytes to the memory context
+    private final AtomicBoolean reportingMemoryUsage = new AtomicBoolean();
 
     private final Supplier<LocalMemoryContext> systemMemoryContextSupplier;
     private final Executor notificationExecutor;
@@ -68,7 +70,7 @@ class OutputBufferMemoryManager
         bufferBlockedFuture.set(null);
     }
 
-    public synchronized void updateMemoryUsage(long bytesAdded)
+    public void updateMemoryUsage(long bytesAdded)
     {
         Optional<LocalMemoryContext> systemMemoryContext = getSystemMemoryContext();
 
@@ -82,30 +84,68 @@ class OutputBufferMemoryManager
         }
 
         long currentBufferedBytes = bufferedBytes.updateAndGet(bytes -> {
+            // close() sets closed before clearing the buffered bytes, so an update racing with it is dropped
+            if (closed) {
+                return bytes;
+            }
             long result = bytes + bytesAdded;
             checkArgument(result >= 0, "bufferedBytes (%s) plus delta (%s) would be negative", bytes, bytesAdded);
             return result;
         });
 
         peakMemoryUsage.accumulateAndGet(currentBufferedBytes, Math::max);
-        this.blockedOnMemory = systemMemoryContext.get().setBytes(currentBufferedBytes);
+
+        // Every enqueue and every acknowledged page updates the memory usage, so only one thread at a time
+        // reports it to the memory context. Any other thread leaves its update to the reporting thread,
+        // which reports again if the buffered bytes changed while it held the lock.
+        while (reportingMemoryUsage.compareAndSet(false, true)) {
+            long reportedBytes;
+            try {
+                reportedBytes = reportMemoryUsage(systemMemoryContext.get());
+            }
+            finally {
+                reportingMemoryUsage.set(false);
+            }
+            if (reportedBytes == bufferedBytes.get()) {
+                return;
+            }
+        }
+    }
+
+    private synchronized long reportMemoryUsage(LocalMemoryContext systemMemoryContext)
+    {
+        long currentBufferedBytes = bufferedBytes.get();
+        if (closed) {
+            return currentBufferedBytes;
+        }
+
+        this.blockedOnMemory = systemMemoryContext.setBytes(currentBufferedBytes);
         if (!isBufferFull() && !isBlockedOnMemory() && !bufferBlockedFuture.isDone()) {
             // Complete future in a new thread to avoid making a callback on the caller thread.
             // This make is easier for callers to use this class since they can update the memory
             // usage while holding locks.
             SettableFuture<?> future = this.bufferBlockedFuture;
             notificationExecutor.execute(() -> future.set(null));
-            return;
+            return currentBufferedBytes;
         }
         this.blockedOnMemory.addListener(this::onMemoryAvailable, notificationExecutor);
+        return currentBufferedBytes;
     }
 
-    public synchronized ListenableFuture<?> getBufferBlockedFuture()
+    public ListenableFuture<?> getBufferBlockedFuture()
     {
-        if ((isBufferFull() || isBlockedOnMemory()) && bufferBlockedFuture.isDone()) {
-            bufferBlockedFuture = SettableFuture.create();
+        // this is called for every driver loop of the output operators, so avoid the lock when not blocked
+        SettableFuture<?> future = this.bufferBlockedFuture;
+        if (future.isDone() && !isBufferFull() && !isBlockedOnMemory()) {
+            return future;
+        }
+
+        synchronized (this) {
+            if ((isBufferFull() || isBlockedOnMemory()) && bufferBlockedFuture.isDone()) {
+                bufferBlockedFuture = SettableFuture.create();
+            }
+            return bufferBlockedFuture;
         }
-        return bufferBlockedFuture;
     }
 
     public synchronized void setNoBlockOnFull()
@@ -122,22 +162,30 @@ class OutputBufferMemoryManager
         return bufferedBytes.get();
     }
 
+    /**
+     * Returns true if buffering the specified number of additional bytes would exceed the buffer size
+     */
+    public boolean wouldExceedLimit(long bytesAdded)
+    {
+        return bufferedBytes.get() + bytesAdded > maxBufferedBytes;
+    }
+
     public double getUtilization()
     {
         return bufferedBytes.get() / (double) maxBufferedBytes;
     }
 
-    public synchronized boolean isOverutilized()
+    public boolean isOverutilized()
     {
         return isBufferFull();
     }
 
-    private synchronized boolean isBufferFull()
+    private boolean isBufferFull()
     {
         return bufferedBytes.get() > maxBufferedBytes && blockOnFull.get();
     }
 
-    private synchronized boolean isBlockedOnMemory()
+    private boolean isBlockedOnMemory()
     {
         return !blockedOnMemory.isDone();
     }
@@ -162,9 +210,14 @@ class OutputBufferMemoryManager
 
     public synchronized void close()
     {
-        updateMemoryUsage(-bufferedBytes.get());
-        getSystemMemoryContext().ifPresent(LocalMemoryContext::close);
+        // set closed first, so concurrent updates are dropped instead of applied to the cleared bytes
         closed = true;
+        bufferedBytes.set(0);
+        getSystemMemoryContext().ifPresent(LocalMemoryContext::close);
+
+        // Complete future in a new thread to avoid making a callback on the caller thread.
+        SettableFuture<?> future = this.bufferBlockedFuture;
+        notificationExecutor.execute(() -> future.set(null));
     }
 
     private Optional<LocalMemoryContext> getSystemMemoryContext()
@@ -0,0 +1,103 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.execution.buffer;
+
+import io.airlift.compress.Compressor;
+import io.airlift.compress.Decompressor;
+import io.airlift.compress.lz4.Lz4Compressor;
+import io.airlift.compress.lz4.Lz4Decompressor;
+import io.airlift.compress.snappy.SnappyCompressor;
+import io.airlift.compress.snappy.SnappyDecompressor;
+import io.airlift.compress.zstd.ZstdCompressor;
+import io.airlift.compress.zstd.ZstdDecompressor;
+import io.prestosql.execution.buffer.PageCodecMarker.MarkerSet;
+
+import static io.prestosql.execution.buffer.PageCodecMarker.COMPRESSED;
+
+/**
+ * Compression codec of a {@link SerializedPage}. The codec is recorded in the page codec markers,
+ * with {@link PageCodecMarker#COMPRESSED} alone denoting LZ4, so a page can always be decompressed
+ * regardless of the codec configured on the reading side.
+ */
+public enum PageCompressionCodec
+{
+    NONE,
+    LZ4,
+    SNAPPY,
+    ZSTD;
+
+    public Compressor createCompressor()
+    {
+        switch (this) {
+            case LZ4:
+                return new Lz4Compressor();
+            case SNAPPY:
+                return new SnappyCompressor();
+            case ZSTD:
+                return new ZstdCompressor();
+            case NONE:
+                break;
+        }
+        throw new IllegalStateException("No compressor for codec " + this);
+    }
+
+    public Decompressor createDecompressor()
+    {
+        switch (this) {
+            case LZ4:
+                return new Lz4Decompressor();
+            case SNAPPY:
+                return new SnappyDecompressor();
+            case ZSTD:
+                return new ZstdDecompressor();
+            case NONE:
+                break;
+        }
+        throw new IllegalStateException("No decompressor for codec " + this);
+    }
+
+    public void addMarkers(MarkerSet markers)
+    {
+        switch (this) {
+            case NONE:
+                return;
+            case LZ4:
+                markers.add(COMPRESSED);
+                return;
+            case SNAPPY:
+                markers.add(COMPRESSED);
+                markers.add(PageCodecMarker.SNAPPY);
+                return;
+            case ZSTD:
+                markers.add(COMPRESSED);
+                markers.add(PageCodecMarker.ZSTD);
+                return;
+        }
+        throw new IllegalStateException("Unknown codec " + this);
+    }
+
+    public static PageCompressionCodec fromMarkers(byte markers)
+    {
+        if (!COMPRESSED.isSet(markers)) {
+            return NONE;
+        }
+        if (PageCodecMarker.SNAPPY.isSet(markers)) {
+            return SNAPPY;
+        }
+        if (PageCodecMarker.ZSTD.isSet(markers)) {
+            return ZSTD;
+        }
+        return LZ4;
+    }
+}
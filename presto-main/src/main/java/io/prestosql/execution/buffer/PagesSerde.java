@@ -30,7 +30,6 @@ import java.util.Optional;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
-import static io.prestosql.execution.buffer.PageCodecMarker.COMPRESSED;
 import static io.prestosql.execution.buffer.PageCodecMarker.ENCRYPTED;
 import static io.prestosql.execution.buffer.PagesSerdeUtil.readRawPage;
 import static io.prestosql.execution.buffer.PagesSerdeUtil.writeRawPage;
@@ -41,18 +40,26 @@ import static java.util.Objects.requireNonNull;
 public class PagesSerde
 {
     private static final double MINIMUM_COMPRESSION_RATIO = 0.8;
+    private static final int MIN_SKIPPED_COMPRESSION_PAGES = 4;
+    private static final int MAX_SKIPPED_COMPRESSION_PAGES = 256;
 
     private final BlockEncodingSerde blockEncodingSerde;
     private final Optional<Compressor> compressor;
-    private final Optional<Decompressor> decompressor;
+    private final PageCompressionCodec compressionCodec;
+    private final boolean adaptiveCompression;
     private final Optional<SpillCipher> spillCipher;
+    private final Decompressor[] decompressors = new Decompressor[PageCompressionCodec.values().length];
 
-    public PagesSerde(BlockEncodingSerde blockEncodingSerde, Optional<Compressor> compressor, Optional<Decompressor> decompressor, Optional<SpillCipher> spillCipher)
+    // pages to serialize without trying to compress them, after compression did not pay off
+    private int pagesToSkipCompression;
+    private int skippedCompressionPages = MIN_SKIPPED_COMPRESSION_PAGES;
+
+    public PagesSerde(BlockEncodingSerde blockEncodingSerde, PageCompressionCodec compressionCodec, boolean adaptiveCompression, Optional<SpillCipher> spillCipher)
     {
         this.blockEncodingSerde = requireNonNull(blockEncodingSerde, "blockEncodingSerde is null");
-        checkArgument(compressor.isPresent() == decompressor.isPresent(), "compressor and decompressor must both be present or both be absent");
-        this.compressor = requireNonNull(compressor, "compressor is null");
-        this.decompressor = requireNonNull(decompressor, "decompressor is null");
+        this.compressionCodec = requireNonNull(compressionCodec, "compressionCodec is null");
+        this.compressor = compressionCodec == PageCompressionCodec.NONE ? Optional.empty() : Optional.of(compressionCodec.createCompressor());
+        this.adaptiveCompression = adaptiveCompression;
         this.spillCipher = requireNonNull(spillCipher, "spillCipher is null");
     }
 
@@ -64,7 +71,7 @@ public class PagesSerde
         int uncompressedSize = serializationBuffer.size();
         MarkerSet markers = MarkerSet.empty();
 
-        if (compressor.isPresent()) {
+        if (compressor.isPresent() && !skipCompression()) {
             byte[] compressed = new byte[compressor.get().maxCompressedLength(uncompressedSize)];
             int compressedSize = compressor.get().compress(
                     slice.byteArray(),
@@ -76,7 +83,14 @@ public class PagesSerde
 
             if ((((double) compressedSize) / uncompressedSize) <= MINIMUM_COMPRESSION_RATIO) {
                 slice = Slices.wrappedBuffer(compressed, 0, compressedSize);
-                markers.add(COMPRESSED);
+                compressionCodec.addMarkers(markers);
+                skippedCompressionPages = MIN_SKIPPED_COMPRESSION_PAGES;
+            }
+            else if (adaptiveCompression) {
+                // compression does not pay off for this data, so stop sampling it for a number of pages
+                // which grows each time the sample does not compress well
+                pagesToSkipCompression = skippedCompressionPages;
+                skippedCompressionPages = Math.min(skippedCompressionPages * 2, MAX_SKIPPED_COMPRESSION_PAGES);
             }
         }
 
@@ -121,11 +135,9 @@ public class PagesSerde
         }
 
         if (serializedPage.isCompressed()) {
-            checkState(decompressor.isPresent(), "Page is compressed, but decompressor is missing");
-
             int uncompressedSize = serializedPage.getUncompressedSizeInBytes();
             byte[] decompressed = new byte[uncompressedSize];
-            checkState(decompressor.get().decompress(
+            checkState(getDecompressor(serializedPage.getCompressionCodec()).decompress(
                     slice.byteArray(),
                     slice.byteArrayOffset(),
                     slice.length(),
@@ -138,4 +150,23 @@ public class PagesSerde
 
         return readRawPage(serializedPage.getPositionCount(), slice.getInput(), blockEncodingSerde);
     }
+
+    private boolean skipCompression()
+    {
+        if (pagesToSkipCompression > 0) {
+            pagesToSkipCompression--;
+            return true;
+        }
+        return false;
+    }
+
+    private Decompressor getDecompressor(PageCompressionCodec codec)
+    {
+        Decompressor decompressor = decompressors[codec.ordinal()];
+        if (decompressor == null) {
+            decompressor = codec.createDecompressor();
+            decompressors[codec.ordinal()] = decompressor;
+        }
+        return decompressor;
+    }
 }
@@ -13,8 +13,6 @@
  */
 package io.prestosql.execution.buffer;
 
-import io.airlift.compress.lz4.Lz4Compressor;
-import io.airlift.compress.lz4.Lz4Decompressor;
 import io.prestosql.spi.block.BlockEncodingSerde;
 import io.prestosql.spiller.SpillCipher;
 
@@ -25,12 +23,19 @@ import static java.util.Objects.requireNonNull;
 public class PagesSerdeFactory
 {
     private final BlockEncodingSerde blockEncodingSerde;
-    private final boolean compressionEnabled;
+    private final PageCompressionCodec compressionCodec;
+    private final boolean adaptiveCompression;
 
     public PagesSerdeFactory(BlockEncodingSerde blockEncodingSerde, boolean compressionEnabled)
+    {
+        this(blockEncodingSerde, compressionEnabled ? PageCompressionCodec.LZ4 : PageCompressionCodec.NONE, false);
+    }
+
+    public PagesSerdeFactory(BlockEncodingSerde blockEncodingSerde, PageCompressionCodec compressionCodec, boolean adaptiveCompression)
     {
         this.blockEncodingSerde = requireNonNull(blockEncodingSerde, "blockEncodingSerde is null");
-        this.compressionEnabled = compressionEnabled;
+        this.compressionCodec = requireNonNull(compressionCodec, "compressionCodec is null");
+        this.adaptiveCompression = adaptiveCompression;
     }
 
     public PagesSerde createPagesSerde()
@@ -45,10 +50,6 @@ public class PagesSerdeFactory
 
     private PagesSerde createPagesSerdeInternal(Optional<SpillCipher> spillCipher)
     {
-        if (compressionEnabled) {
-            return new PagesSerde(blockEncodingSerde, Optional.of(new Lz4Compressor()), Optional.of(new Lz4Decompressor()), spillCipher);
-        }
-
-        return new PagesSerde(blockEncodingSerde, Optional.empty(), Optional.empty(), spillCipher);
+        return new PagesSerde(blockEncodingSerde, compressionCodec, adaptiveCompression, spillCipher);
     }
 }
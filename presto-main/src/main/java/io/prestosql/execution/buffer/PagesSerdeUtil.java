@@ -26,6 +26,8 @@ import io.prestosql.spi.block.BlockEncodingSerde;
 import java.util.Iterator;
 import java.util.List;
 
+import static io.airlift.slice.SizeOf.SIZE_OF_BYTE;
+import static io.airlift.slice.SizeOf.SIZE_OF_INT;
 import static io.prestosql.block.BlockSerdeUtil.readBlock;
 import static io.prestosql.block.BlockSerdeUtil.writeBlock;
 import static java.util.Arrays.asList;
@@ -42,6 +44,11 @@ public final class PagesSerdeUtil
      */
     public static final long NO_CHECKSUM = 0x0123456789abcdefL;
 
+    /**
+     * Size of the fields written by {@link #writeSerializedPage} before the page data.
+     */
+    public static final int SERIALIZED_PAGE_HEADER_SIZE = SIZE_OF_INT + SIZE_OF_BYTE + SIZE_OF_INT + SIZE_OF_INT;
+
     static void writeRawPage(Page page, SliceOutput output, BlockEncodingSerde serde)
     {
         output.writeInt(page.getChannelCount());
@@ -81,7 +88,7 @@ public final class PagesSerdeUtil
         hash.update(page.getSlice());
     }
 
-    private static SerializedPage readSerializedPage(SliceInput sliceInput)
+    public static SerializedPage readSerializedPage(SliceInput sliceInput)
     {
         int positionCount = sliceInput.readInt();
         PageCodecMarker.MarkerSet markers = PageCodecMarker.MarkerSet.fromByteValue(sliceInput.readByte());
@@ -21,8 +21,10 @@ import io.prestosql.execution.StateMachine;
 import io.prestosql.execution.StateMachine.StateChangeListener;
 import io.prestosql.execution.buffer.OutputBuffers.OutputBufferId;
 import io.prestosql.memory.context.LocalMemoryContext;
+import io.prestosql.spiller.OutputBufferSpiller;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
@@ -47,6 +49,8 @@ public class PartitionedOutputBuffer
     private final OutputBufferMemoryManager memoryManager;
 
     private final List<ClientBuffer> partitions;
+    // pages of each partition which did not fit in memory; empty when spilling is disabled
+    private final List<SpillingPagesSupplier> spilledPages;
 
     private final AtomicLong totalPagesAdded = new AtomicLong();
     private final AtomicLong totalRowsAdded = new AtomicLong();
@@ -58,6 +62,18 @@ public class PartitionedOutputBuffer
             DataSize maxBufferSize,
             Supplier<LocalMemoryContext> systemMemoryContextSupplier,
             Executor notificationExecutor)
+    {
+        this(taskInstanceId, state, outputBuffers, maxBufferSize, systemMemoryContextSupplier, notificationExecutor, Optional.empty());
+    }
+
+    public PartitionedOutputBuffer(
+            String taskInstanceId,
+            StateMachine<BufferState> state,
+            OutputBuffers outputBuffers,
+            DataSize maxBufferSize,
+            Supplier<LocalMemoryContext> systemMemoryContextSupplier,
+            Executor notificationExecutor,
+            Optional<Supplier<OutputBufferSpiller>> spillerSupplier)
     {
         this.state = requireNonNull(state, "state is null");
 
@@ -78,6 +94,13 @@ public class PartitionedOutputBuffer
         }
         this.partitions = partitions.build();
 
+        requireNonNull(spillerSupplier, "spillerSupplier is null");
+        this.spilledPages = spillerSupplier
+                .map(supplier -> this.partitions.stream()
+                        .map(partition -> new SpillingPagesSupplier(supplier, memoryManager, notificationExecutor, partition::loadPagesIfNecessary))
+                        .collect(toImmutableList()))
+                .orElse(ImmutableList.of());
+
         state.compareAndSet(OPEN, NO_MORE_BUFFERS);
         state.compareAndSet(NO_MORE_PAGES, FLUSHING);
         checkFlushComplete();
@@ -178,15 +201,24 @@ public class PartitionedOutputBuffer
             return;
         }
 
-        // reserve memory
-        long bytesAdded = pages.stream().mapToLong(SerializedPage::getRetainedSizeInBytes).sum();
-        memoryManager.updateMemoryUsage(bytesAdded);
-
         // update stats
         long rowCount = pages.stream().mapToLong(SerializedPage::getPositionCount).sum();
         totalRowsAdded.addAndGet(rowCount);
         totalPagesAdded.addAndGet(pages.size());
 
+        long bytesAdded = pages.stream().mapToLong(SerializedPage::getRetainedSizeInBytes).sum();
+        if (!spilledPages.isEmpty()) {
+            SpillingPagesSupplier partitionSpilledPages = spilledPages.get(partitionNumber);
+            if (partitionSpilledPages.spillIfNecessary(pages, memoryManager.wouldExceedLimit(bytesAdded))) {
+                // a reader waiting for this partition can read the spilled pages
+                partitions.get(partitionNumber).loadPagesIfNecessary(partitionSpilledPages);
+                return;
+            }
+        }
+
+        // reserve memory
+        memoryManager.updateMemoryUsage(bytesAdded);
+
         // create page reference counts with an initial single reference
         List<SerializedPageReference> serializedPageReferences = pages.stream()
                 .map(bufferedPage -> new SerializedPageReference(bufferedPage, 1, () -> memoryManager.updateMemoryUsage(-bufferedPage.getRetainedSizeInBytes())))
@@ -205,7 +237,24 @@ public class PartitionedOutputBuffer
         requireNonNull(outputBufferId, "outputBufferId is null");
         checkArgument(maxSize.toBytes() > 0, "maxSize must be at least 1 byte");
 
-        return partitions.get(outputBufferId.getId()).getPages(startingSequenceId, maxSize);
+        ClientBuffer partition = partitions.get(outputBufferId.getId());
+        if (spilledPages.isEmpty()) {
+            return partition.getPages(startingSequenceId, maxSize);
+        }
+        return partition.getPages(startingSequenceId, maxSize, Optional.of(spilledPages.get(outputBufferId.getId())));
+    }
+
+    @Override
+    public ListenableFuture<BufferResult> readAhead(OutputBufferId outputBufferId, long startingSequenceId, DataSize maxSize)
+    {
+        requireNonNull(outputBufferId, "outputBufferId is null");
+        checkArgument(maxSize.toBytes() > 0, "maxSize must be at least 1 byte");
+
+        ClientBuffer partition = partitions.get(outputBufferId.getId());
+        if (spilledPages.isEmpty()) {
+            return partition.readAhead(startingSequenceId, maxSize);
+        }
+        return partition.readAhead(startingSequenceId, maxSize, Optional.of(spilledPages.get(outputBufferId.getId())));
     }
 
     @Override
@@ -222,6 +271,9 @@ public class PartitionedOutputBuffer
         requireNonNull(bufferId, "bufferId is null");
 
         partitions.get(bufferId.getId()).destroy();
+        if (!spilledPages.isEmpty()) {
+            spilledPages.get(bufferId.getId()).close();
+        }
 
         checkFlushComplete();
     }
@@ -233,7 +285,16 @@ public class PartitionedOutputBuffer
         state.compareAndSet(NO_MORE_BUFFERS, FLUSHING);
         memoryManager.setNoBlockOnFull();
 
-        partitions.forEach(ClientBuffer::setNoMorePages);
+        if (spilledPages.isEmpty()) {
+            partitions.forEach(ClientBuffer::setNoMorePages);
+        }
+        else {
+            // the client buffers finish once their spilled pages have been read
+            for (int partition = 0; partition < partitions.size(); partition++) {
+                spilledPages.get(partition).setNoMorePages();
+                partitions.get(partition).loadPagesIfNecessary(spilledPages.get(partition));
+            }
+        }
 
         checkFlushComplete();
     }
@@ -244,6 +305,7 @@ public class PartitionedOutputBuffer
         // ignore destroy if the buffer already in a terminal state.
         if (state.setIf(FINISHED, oldState -> !oldState.isTerminal())) {
             partitions.forEach(ClientBuffer::destroy);
+            spilledPages.forEach(SpillingPagesSupplier::close);
             memoryManager.setNoBlockOnFull();
             forceFreeMemory();
         }
@@ -255,6 +317,7 @@ public class PartitionedOutputBuffer
         // ignore fail if the buffer already in a terminal state.
         if (state.setIf(FAILED, oldState -> !oldState.isTerminal())) {
             memoryManager.setNoBlockOnFull();
+            spilledPages.forEach(SpillingPagesSupplier::close);
             forceFreeMemory();
             // DO NOT destroy buffers or set no more pages.  The coordinator manages the teardown of failed queries.
         }
@@ -84,6 +84,11 @@ public class SerializedPage
         return COMPRESSED.isSet(pageCodecMarkers);
     }
 
+    public PageCompressionCodec getCompressionCodec()
+    {
+        return PageCompressionCodec.fromMarkers(pageCodecMarkers);
+    }
+
     public boolean isEncrypted()
     {
         return ENCRYPTED.isSet(pageCodecMarkers);
@@ -0,0 +1,290 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.execution.buffer;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.airlift.units.DataSize;
+import io.prestosql.execution.buffer.ClientBuffer.PagesSupplier;
+import io.prestosql.spi.PrestoException;
+import io.prestosql.spiller.OutputBufferSpiller;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static com.google.common.util.concurrent.Futures.addCallback;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static io.prestosql.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Pages of an output buffer which did not fit in the memory of the buffer.
+ * Once a page has been spilled, the following pages are spilled as well until all spilled
+ * pages have been read back, so pages are returned in the order they were enqueued.
+ * <p>
+ * The spiller writes and reads the pages asynchronously, so no disk I/O is performed
+ * while holding a lock of this class or of the buffers calling it. Pages being spilled are
+ * accounted in the memory of the buffer until they are written, and pages read back
+ * are accounted until they are dereferenced. When a read finishes, the listener is
+ * notified, so a reader waiting for the pages can get them.
+ */
+@ThreadSafe
+class SpillingPagesSupplier
+        implements PagesSupplier
+{
+    private final Supplier<OutputBufferSpiller> spillerSupplier;
+    private final OutputBufferMemoryManager memoryManager;
+    private final Executor notificationExecutor;
+    private final Consumer<PagesSupplier> pagesLoadedListener;
+
+    @GuardedBy("this")
+    private OutputBufferSpiller spiller;
+    // spilled pages which have not been returned by getPages yet, including the pages being written and the loaded pages
+    @GuardedBy("this")
+    private long spilledPageCount;
+    @GuardedBy("this")
+    private final Deque<SerializedPage> loadedPages = new ArrayDeque<>();
+    @GuardedBy("this")
+    private long loadedBytes;
+    @GuardedBy("this")
+    private boolean readInProgress;
+    @GuardedBy("this")
+    private Throwable failure;
+    @GuardedBy("this")
+    private boolean noMorePages;
+    @GuardedBy("this")
+    private boolean closed;
+
+    public SpillingPagesSupplier(
+            Supplier<OutputBufferSpiller> spillerSupplier,
+            OutputBufferMemoryManager memoryManager,
+            Executor notificationExecutor,
+            Consumer<PagesSupplier> pagesLoadedListener)
+    {
+        this.spillerSupplier = requireNonNull(spillerSupplier, "spillerSupplier is null");
+        this.memoryManager = requireNonNull(memoryManager, "memoryManager is null");
+        this.notificationExecutor = requireNonNull(notificationExecutor, "notificationExecutor is null");
+        this.pagesLoadedListener = requireNonNull(pagesLoadedListener, "pagesLoadedListener is null");
+    }
+
+    /**
+     * Spills the pages if the buffer is full or previously spilled pages have not been read yet.
+     * The pages are written asynchronously.
+     *
+     * @return true if the pages were spilled and must not be added to the buffer
+     */
+    public synchronized boolean spillIfNecessary(List<SerializedPage> pages, boolean bufferFull)
+    {
+        if (closed) {
+            // the buffer is destroyed, so the pages are dropped
+            return true;
+        }
+        checkNotFailed();
+        if (!bufferFull && spilledPageCount == 0) {
+            return false;
+        }
+
+        if (spiller == null) {
+            spiller = spillerSupplier.get();
+        }
+        long bytes = pages.stream().mapToLong(SerializedPage::getRetainedSizeInBytes).sum();
+        memoryManager.updateMemoryUsage(bytes);
+        spilledPageCount += pages.size();
+
+        ListenableFuture<?> spillFuture = spiller.spill(pages);
+        addCallback(spillFuture, new FutureCallback<Object>()
+        {
+            @Override
+            public void onSuccess(Object result)
+            {
+                memoryManager.updateMemoryUsage(-bytes);
+            }
+
+            @Override
+            public void onFailure(Throwable throwable)
+            {
+                memoryManager.updateMemoryUsage(-bytes);
+                failed(throwable);
+            }
+        }, directExecutor());
+        return true;
+    }
+
+    public synchronized boolean hasSpilledPages()
+    {
+        return !closed && spilledPageCount > 0;
+    }
+
+    /**
+     * Returns the spilled pages which have been read back, up to the specified size limit.
+     * If none have been read back, reading them is initiated and an empty list is returned.
+     */
+    @Override
+    public List<SerializedPageReference> getPages(DataSize maxSize)
+    {
+        ImmutableList.Builder<SerializedPageReference> pages = ImmutableList.builder();
+        synchronized (this) {
+            checkNotFailed();
+            if (!hasSpilledPages()) {
+                return ImmutableList.of();
+            }
+            if (loadedPages.isEmpty()) {
+                readPagesIfNecessary(maxSize);
+                return ImmutableList.of();
+            }
+
+            long maxBytes = maxSize.toBytes();
+            long bytes = 0;
+            int pageCount = 0;
+            while (!loadedPages.isEmpty()) {
+                SerializedPage page = loadedPages.peek();
+                // break (and don't add) if this page would exceed the limit
+                if (pageCount > 0 && bytes + page.getRetainedSizeInBytes() > maxBytes) {
+                    break;
+                }
+                loadedPages.poll();
+                bytes += page.getRetainedSizeInBytes();
+                pageCount++;
+                // the memory of the page has been reserved when it was loaded
+                pages.add(new SerializedPageReference(page, 1, () -> memoryManager.updateMemoryUsage(-page.getRetainedSizeInBytes())));
+            }
+            loadedBytes -= bytes;
+            spilledPageCount -= pageCount;
+
+            // read the next pages while the returned ones are sent
+            readPagesIfNecessary(maxSize);
+        }
+        return pages.build();
+    }
+
+    @GuardedBy("this")
+    private void readPagesIfNecessary(DataSize maxSize)
+    {
+        if (readInProgress || !loadedPages.isEmpty() || spilledPageCount == 0) {
+            return;
+        }
+
+        readInProgress = true;
+        ListenableFuture<List<SerializedPage>> readFuture = spiller.readPages(maxSize.toBytes());
+        addCallback(readFuture, new FutureCallback<List<SerializedPage>>()
+        {
+            @Override
+            public void onSuccess(List<SerializedPage> pages)
+            {
+                pagesLoaded(pages);
+            }
+
+            @Override
+            public void onFailure(Throwable throwable)
+            {
+                failed(throwable);
+            }
+        }, directExecutor());
+    }
+
+    private void pagesLoaded(List<SerializedPage> pages)
+    {
+        synchronized (this) {
+            readInProgress = false;
+            if (closed) {
+                return;
+            }
+            long bytes = pages.stream().mapToLong(SerializedPage::getRetainedSizeInBytes).sum();
+            memoryManager.updateMemoryUsage(bytes);
+            loadedPages.addAll(pages);
+            loadedBytes += bytes;
+        }
+        notifyPagesLoaded();
+    }
+
+    private void failed(Throwable throwable)
+    {
+        synchronized (this) {
+            readInProgress = false;
+            if (failure == null) {
+                failure = throwable;
+            }
+        }
+        // the reader waiting for the pages gets the failure
+        notifyPagesLoaded();
+    }
+
+    private void notifyPagesLoaded()
+    {
+        notificationExecutor.execute(() -> pagesLoadedListener.accept(this));
+    }
+
+    @GuardedBy("this")
+    private void checkNotFailed()
+    {
+        if (failure != null) {
+            throwIfUnchecked(failure);
+            throw new PrestoException(GENERIC_INTERNAL_ERROR, "Failed to spill output buffer pages", failure);
+        }
+    }
+
+    @Override
+    public synchronized boolean mayHaveMorePages()
+    {
+        return !noMorePages || hasSpilledPages();
+    }
+
+    public synchronized void setNoMorePages()
+    {
+        noMorePages = true;
+    }
+
+    public void close()
+    {
+        OutputBufferSpiller spiller;
+        long loadedBytes;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            noMorePages = true;
+            spiller = this.spiller;
+            loadedBytes = this.loadedBytes;
+            loadedPages.clear();
+            this.loadedBytes = 0;
+        }
+        memoryManager.updateMemoryUsage(-loadedBytes);
+        if (spiller != null) {
+            spiller.close();
+        }
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return toStringHelper(this)
+                .add("spilledPages", spilledPageCount)
+                .add("loadedPages", loadedPages.size())
+                .add("readInProgress", readInProgress)
+                .add("noMorePages", noMorePages)
+                .add("closed", closed)
+                .toString();
+    }
+}
@@ -22,6 +22,7 @@ import io.airlift.stats.CpuTimer;
 import io.airlift.stats.TimeStat;
 import io.airlift.units.Duration;
 import io.prestosql.execution.SplitRunner;
+import io.prestosql.jfr.SplitQuantumEvent;
 
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -159,9 +160,12 @@ public class PrioritizedSplitRunner
 
             waitNanos.getAndAdd(startNanos - lastReady.get());
 
+            SplitQuantumEvent event = new SplitQuantumEvent();
+            event.begin();
             CpuTimer timer = new CpuTimer();
             ListenableFuture<?> blocked = split.processFor(SPLIT_RUN_QUANTA);
             CpuTimer.CpuDuration elapsed = timer.elapsedTime();
+            event.end();
 
             long quantaScheduledNanos = ticker.read() - startNanos;
             scheduledNanos.addAndGet(quantaScheduledNanos);
@@ -179,6 +183,14 @@ public class PrioritizedSplitRunner
             long quantaCpuNanos = elapsed.getCpu().roundTo(NANOSECONDS);
             cpuTimeNanos.addAndGet(quantaCpuNanos);
 
+            if (event.shouldCommit()) {
+                event.setTaskId(taskHandle.getTaskId());
+                event.setSplit(splitId, split.getInfo());
+                event.setCpuTime(quantaCpuNanos);
+                event.setBlocked(blocked != NOT_BLOCKED);
+                event.commit();
+            }
+
             globalCpuTimeMicros.update(quantaCpuNanos / 1000);
             globalScheduledTimeMicros.update(quantaScheduledNanos / 1000);
 
@@ -0,0 +1,51 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.execution.resultcache;
+
+import com.google.common.collect.ImmutableList;
+import io.prestosql.spi.Page;
+import io.prestosql.spi.type.Type;
+
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+public final class CachedQueryResult
+{
+    private final List<Type> types;
+    private final List<Page> pages;
+    private final long retainedSizeInBytes;
+
+    public CachedQueryResult(List<Type> types, List<Page> pages, long retainedSizeInBytes)
+    {
+        this.types = ImmutableList.copyOf(requireNonNull(types, "types is null"));
+        this.pages = ImmutableList.copyOf(requireNonNull(pages, "pages is null"));
+        this.retainedSizeInBytes = retainedSizeInBytes;
+    }
+
+    public List<Type> getTypes()
+    {
+        return types;
+    }
+
+    public List<Page> getPages()
+    {
+        return pages;
+    }
+
+    public long getRetainedSizeInBytes()
+    {
+        return retainedSizeInBytes;
+    }
+}
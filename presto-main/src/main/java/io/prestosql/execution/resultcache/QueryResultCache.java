@@ -0,0 +1,286 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.execution.resultcache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.ImmutableList;
+import io.airlift.stats.CounterStat;
+import io.prestosql.memory.LocalMemoryManager;
+import io.prestosql.memory.MemoryPool;
+import io.prestosql.memory.MemoryPoolListener;
+import io.prestosql.spi.Page;
+import io.prestosql.spi.QueryId;
+import io.prestosql.spi.type.Type;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.Math.min;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Coordinator cache of final query results, keyed by the canonical form of the optimized
+ * plan and the versions of the tables it reads (see {@link QueryResultCacheKeyGenerator}).
+ * <p>
+ * A query that misses the cache registers its key, and the result is stored once the client
+ * has fetched all of it (see {@link ResultCollector}). A query that hits the cache pins the
+ * cached pages until it is done, so that they can be served even if the entry is evicted
+ * in the meantime.
+ * <p>
+ * The memory of the results, both while they are collected and while they are cached or pinned,
+ * is reserved in the general pool on behalf of the node rather than any query. A result is not
+ * cached if the pool cannot accommodate it, and the cache is emptied when the pool runs out of memory.
+ */
+@ThreadSafe
+public class QueryResultCache
+{
+    private final MemoryPool memoryPool;
+    private final long maxEntrySizeInBytes;
+    private final Cache<String, Entry> results;
+    private final MemoryPoolListener memoryPoolListener = MemoryPoolListener.onMemoryReserved(this::onMemoryReserved);
+
+    private final Map<QueryId, Entry> pinnedResults = new ConcurrentHashMap<>();
+    private final Map<QueryId, ResultCollector> pendingResults = new ConcurrentHashMap<>();
+
+    private final CounterStat hits = new CounterStat();
+    private final CounterStat misses = new CounterStat();
+
+    @Inject
+    public QueryResultCache(LocalMemoryManager localMemoryManager, QueryResultCacheConfig config)
+    {
+        this(localMemoryManager.getGeneralPool(), config);
+    }
+
+    public QueryResultCache(MemoryPool memoryPool, QueryResultCacheConfig config)
+    {
+        this.memoryPool = requireNonNull(memoryPool, "memoryPool is null");
+        requireNonNull(config, "config is null");
+        this.maxEntrySizeInBytes = min(config.getMaxEntrySize().toBytes(), config.getMaxSize().toBytes());
+        this.results = CacheBuilder.newBuilder()
+                .maximumWeight(config.getMaxSize().toBytes())
+                .weigher((String key, Entry entry) -> (int) min(entry.getResult().getRetainedSizeInBytes(), Integer.MAX_VALUE))
+                .expireAfterWrite(config.getTtl().toMillis(), MILLISECONDS)
+                .removalListener((RemovalNotification<String, Entry> notification) -> release(notification.getValue()))
+                .build();
+    }
+
+    @PostConstruct
+    public void start()
+    {
+        memoryPool.addListener(memoryPoolListener);
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        memoryPool.removeListener(memoryPoolListener);
+    }
+
+    /**
+     * Returns the cached result for the key, pinned for the duration of the query, or registers
+     * the query to populate the cache with its result if there is none.
+     */
+    public Optional<CachedQueryResult> lookup(QueryId queryId, String key, List<Type> types)
+    {
+        requireNonNull(queryId, "queryId is null");
+        requireNonNull(key, "key is null");
+        Entry entry = results.getIfPresent(key);
+        // the entry may be released concurrently once it is evicted
+        if (entry != null && entry.getResult().getTypes().equals(types) && retain(entry)) {
+            hits.update(1);
+            Entry previous = pinnedResults.put(queryId, entry);
+            if (previous != null) {
+                release(previous);
+            }
+            return Optional.of(entry.getResult());
+        }
+        misses.update(1);
+        pendingResults.put(queryId, new ResultCollector(key, types));
+        return Optional.empty();
+    }
+
+    public Optional<CachedQueryResult> getPinnedResult(QueryId queryId)
+    {
+        return Optional.ofNullable(pinnedResults.get(queryId))
+                .map(Entry::getResult);
+    }
+
+    /**
+     * Returns the collector for the result of a query registered by {@link #lookup}. The caller is
+     * responsible for adding all pages of the result, in order, before committing it.
+     */
+    public Optional<ResultCollector> takeResultCollector(QueryId queryId)
+    {
+        return Optional.ofNullable(pendingResults.remove(queryId));
+    }
+
+    public void queryFinished(QueryId queryId)
+    {
+        Entry entry = pinnedResults.remove(queryId);
+        if (entry != null) {
+            release(entry);
+        }
+        pendingResults.remove(queryId);
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getHits()
+    {
+        return hits;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getMisses()
+    {
+        return misses;
+    }
+
+    @Managed
+    public long getCachedResults()
+    {
+        return results.size();
+    }
+
+    @Managed
+    public long getCachedBytes()
+    {
+        return results.asMap().values().stream()
+                .map(Entry::getResult)
+                .mapToLong(CachedQueryResult::getRetainedSizeInBytes)
+                .sum();
+    }
+
+    @Managed
+    public void invalidateAll()
+    {
+        results.invalidateAll();
+    }
+
+    private void onMemoryReserved(MemoryPool memoryPool)
+    {
+        if (memoryPool.getFreeBytes() <= 0 && results.size() > 0) {
+            results.invalidateAll();
+        }
+    }
+
+    private synchronized boolean retain(Entry entry)
+    {
+        if (entry.references == 0) {
+            return false;
+        }
+        entry.references++;
+        return true;
+    }
+
+    private void release(Entry entry)
+    {
+        synchronized (this) {
+            checkState(entry.references > 0, "entry is already released");
+            entry.references--;
+            if (entry.references > 0) {
+                return;
+            }
+        }
+        memoryPool.freeNodeMemory(entry.getResult().getRetainedSizeInBytes());
+    }
+
+    private static class Entry
+    {
+        private final CachedQueryResult result;
+
+        // guarded by the cache, initially referenced by the cache itself
+        private int references = 1;
+
+        private Entry(CachedQueryResult result)
+        {
+            this.result = requireNonNull(result, "result is null");
+        }
+
+        public CachedQueryResult getResult()
+        {
+            return result;
+        }
+    }
+
+    public class ResultCollector
+    {
+        private final String key;
+        private final List<Type> types;
+
+        @GuardedBy("this")
+        private List<Page> pages = new ArrayList<>();
+        @GuardedBy("this")
+        private long retainedSizeInBytes;
+
+        private ResultCollector(String key, List<Type> types)
+        {
+            this.key = key;
+            this.types = ImmutableList.copyOf(types);
+        }
+
+        /**
+         * Adds the next page of the result. Once the result exceeds the maximum entry size, or its memory
+         * cannot be reserved, it is abandoned, and the remaining pages are ignored.
+         */
+        public synchronized void addPage(Page page)
+        {
+            if (pages == null) {
+                return;
+            }
+            long pageSizeInBytes = page.getRetainedSizeInBytes();
+            if (retainedSizeInBytes + pageSizeInBytes > maxEntrySizeInBytes || !memoryPool.tryReserveNodeMemory(pageSizeInBytes)) {
+                abandon();
+                return;
+            }
+            retainedSizeInBytes += pageSizeInBytes;
+            pages.add(page);
+        }
+
+        public synchronized void abandon()
+        {
+            if (pages == null) {
+                return;
+            }
+            memoryPool.freeNodeMemory(retainedSizeInBytes);
+            pages = null;
+        }
+
+        public synchronized void commit()
+        {
+            if (pages == null) {
+                return;
+            }
+            // the reservation is transferred to the entry, which frees it once it is evicted and no longer pinned
+            results.put(key, new Entry(new CachedQueryResult(types, pages, retainedSizeInBytes)));
+            pages = null;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.execution.resultcache;
+
+import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+import io.airlift.units.MinDuration;
+
+import javax.validation.constraints.NotNull;
+
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.util.concurrent.TimeUnit.HOURS;
+
+public class QueryResultCacheConfig
+{
+    private boolean enabled;
+    private DataSize maxSize = DataSize.of(256, MEGABYTE);
+    private DataSize maxEntrySize = DataSize.of(16, MEGABYTE);
+    private Duration ttl = new Duration(1, HOURS);
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    @Config("query-result-cache.enabled")
+    @ConfigDescription("Serve results of repeated queries over unchanged tables from the coordinator cache by default")
+    public QueryResultCacheConfig setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getMaxSize()
+    {
+        return maxSize;
+    }
+
+    @Config("query-result-cache.max-size")
+    @ConfigDescription("Maximum memory used by cached query results on the coordinator")
+    public QueryResultCacheConfig setMaxSize(DataSize maxSize)
+    {
+        this.maxSize = maxSize;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getMaxEntrySize()
+    {
+        return maxEntrySize;
+    }
+
+    @Config("query-result-cache.max-entry-size")
+    @ConfigDescription("Results larger than this size are not cached")
+    public QueryResultCacheConfig setMaxEntrySize(DataSize maxEntrySize)
+    {
+        this.maxEntrySize = maxEntrySize;
+        return this;
+    }
+
+    @MinDuration("1s")
+    @NotNull
+    public Duration getTtl()
+    {
+        return ttl;
+    }
+
+    @Config("query-result-cache.ttl")
+    @ConfigDescription("Time after which a cached result is discarded even if the tables it was computed from did not change")
+    public QueryResultCacheConfig setTtl(Duration ttl)
+    {
+        this.ttl = ttl;
+        return this;
+    }
+}
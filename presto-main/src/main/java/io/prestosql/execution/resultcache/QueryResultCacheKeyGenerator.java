@@ -0,0 +1,189 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.execution.resultcache;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import io.prestosql.Session;
+import io.prestosql.cost.StatsAndCosts;
+import io.prestosql.metadata.Metadata;
+import io.prestosql.metadata.TableHandle;
+import io.prestosql.spi.eventlistener.RoutineInfo;
+import io.prestosql.spi.type.TimeType;
+import io.prestosql.spi.type.TimeWithTimeZoneType;
+import io.prestosql.spi.type.Type;
+import io.prestosql.sql.analyzer.Analysis;
+import io.prestosql.sql.analyzer.ExpressionTreeUtils;
+import io.prestosql.sql.planner.Plan;
+import io.prestosql.sql.planner.Symbol;
+import io.prestosql.sql.planner.TypeProvider;
+import io.prestosql.sql.planner.plan.IndexSourceNode;
+import io.prestosql.sql.planner.plan.OutputNode;
+import io.prestosql.sql.planner.plan.PlanNode;
+import io.prestosql.sql.planner.plan.TableScanNode;
+import io.prestosql.sql.tree.CurrentTime;
+import io.prestosql.sql.tree.Expression;
+import io.prestosql.sql.tree.FunctionCall;
+import io.prestosql.sql.tree.NodeRef;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static io.prestosql.sql.planner.DeterminismEvaluator.isDeterministic;
+import static io.prestosql.sql.planner.ExpressionExtractor.extractExpressions;
+import static io.prestosql.sql.planner.SymbolsExtractor.extractOutputSymbols;
+import static io.prestosql.sql.planner.optimizations.PlanNodeSearcher.searchFrom;
+import static io.prestosql.sql.planner.planprinter.PlanPrinter.textLogicalPlan;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Computes the {@link QueryResultCache} key of an optimized plan. Plans are only cacheable if their result
+ * is fully determined by the plan and the data of the tables it reads, that is if all expressions are
+ * deterministic, do not depend on the query start time, and all scanned tables expose a version.
+ * The key of a subtree also identifies the build side of broadcast joins shared between queries
+ * (see {@link io.prestosql.operator.BroadcastLookupSourceCache}).
+ */
+public class QueryResultCacheKeyGenerator
+{
+    // functions (and the casts of time types) that depend on the start time of the query
+    private static final Set<String> START_TIME_FUNCTIONS = ImmutableSet.of(
+            "now",
+            "current_date",
+            "$current_time",
+            "$current_timestamp",
+            "$localtime",
+            "$localtimestamp");
+
+    private final Metadata metadata;
+    private final Session session;
+
+    public QueryResultCacheKeyGenerator(Metadata metadata, Session session)
+    {
+        this.metadata = requireNonNull(metadata, "metadata is null");
+        this.session = requireNonNull(session, "session is null");
+    }
+
+    /**
+     * Computes the key of the result of a query. References to the start time of the query are folded
+     * into constants by the optimizer, so they are detected in the analysis of the statement.
+     */
+    public Optional<String> generateKey(Analysis analysis, Plan plan)
+    {
+        for (NodeRef<Expression> expression : analysis.getTypes().keySet()) {
+            if (expression.getNode() instanceof CurrentTime) {
+                return Optional.empty();
+            }
+        }
+        for (RoutineInfo routine : analysis.getRoutines()) {
+            if (START_TIME_FUNCTIONS.contains(routine.getRoutine())) {
+                return Optional.empty();
+            }
+        }
+        return generateKey(plan);
+    }
+
+    public Optional<String> generateKey(Plan plan)
+    {
+        if (!(plan.getRoot() instanceof OutputNode)) {
+            return Optional.empty();
+        }
+        return generateKey(plan.getRoot(), plan.getTypes());
+    }
+
+    /**
+     * Computes the key of the rows produced by a subtree of a plan. The key is derived from table versions
+     * which may be computed on a best effort basis, so it is only suitable for caches whose entries expire.
+     */
+    public Optional<String> generateKey(PlanNode root, TypeProvider types)
+    {
+        return generateKey(root, types, false);
+    }
+
+    /**
+     * Computes the key of the build side of a join, which identifies the lookup source shared between queries
+     * for as long as it is cached. The key is only computed if all tables read by the build side have versions
+     * which the connector guarantees to identify their data.
+     */
+    public Optional<String> generateBuildKey(PlanNode root, TypeProvider types)
+    {
+        return generateKey(root, types, true);
+    }
+
+    private Optional<String> generateKey(PlanNode root, TypeProvider types, boolean immutableVersionsRequired)
+    {
+        for (Symbol symbol : extractOutputSymbols(root)) {
+            Type type = types.get(symbol);
+            if (type instanceof TimeType || type instanceof TimeWithTimeZoneType) {
+                return Optional.empty();
+            }
+        }
+
+        List<Expression> expressions = extractExpressions(root);
+        for (Expression expression : expressions) {
+            if (!isDeterministic(expression, metadata)) {
+                return Optional.empty();
+            }
+        }
+        for (FunctionCall functionCall : ExpressionTreeUtils.extractExpressions(expressions, FunctionCall.class)) {
+            String name = metadata.decodeFunction(functionCall.getName()).getSignature().getName();
+            if (START_TIME_FUNCTIONS.contains(name)) {
+                return Optional.empty();
+            }
+        }
+
+        ImmutableList.Builder<String> tableVersions = ImmutableList.builder();
+        for (PlanNode node : searchFrom(root).findAll()) {
+            if (node instanceof IndexSourceNode) {
+                return Optional.empty();
+            }
+            if (node instanceof TableScanNode) {
+                TableHandle table = ((TableScanNode) node).getTable();
+                Optional<String> version = metadata.getTableVersion(session, table);
+                if (version.isEmpty() || (immutableVersionsRequired && !metadata.isTableVersionImmutable(session, table))) {
+                    return Optional.empty();
+                }
+                tableVersions.add(version.get());
+            }
+        }
+
+        Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putString(textLogicalPlan(root, types, metadata, StatsAndCosts.empty(), session, 0, false), UTF_8);
+        for (String tableVersion : tableVersions.build()) {
+            hasher.putString(tableVersion, UTF_8);
+        }
+        hasher.putString(session.getUser(), UTF_8);
+        hasher.putString(session.getTimeZoneKey().getId(), UTF_8);
+        hasher.putString(session.getPath().toString(), UTF_8);
+        putProperties(hasher, session.getSystemProperties());
+        session.getConnectorProperties().entrySet().stream()
+                .sorted(Comparator.comparing(entry -> entry.getKey().getCatalogName()))
+                .forEach(entry -> {
+                    hasher.putString(entry.getKey().getCatalogName(), UTF_8);
+                    putProperties(hasher, entry.getValue());
+                });
+        return Optional.of(hasher.hash().toString());
+    }
+
+    private static void putProperties(Hasher hasher, Map<String, String> properties)
+    {
+        new TreeMap<>(properties).forEach((name, value) -> hasher.putString(name, UTF_8).putString(value, UTF_8));
+    }
+}
@@ -23,6 +23,7 @@ import io.prestosql.sql.planner.PlanFragment;
 import io.prestosql.sql.planner.plan.ExchangeNode;
 import io.prestosql.sql.planner.plan.IndexJoinNode;
 import io.prestosql.sql.planner.plan.JoinNode;
+import io.prestosql.sql.planner.plan.MergeJoinNode;
 import io.prestosql.sql.planner.plan.PlanFragmentId;
 import io.prestosql.sql.planner.plan.PlanNode;
 import io.prestosql.sql.planner.plan.PlanVisitor;
@@ -157,6 +158,14 @@ public class AllAtOnceExecutionSchedule
             return null;
         }
 
+        @Override
+        public Void visitMergeJoin(MergeJoinNode node, Void context)
+        {
+            node.getRight().accept(this, context);
+            node.getLeft().accept(this, context);
+            return null;
+        }
+
         @Override
         public Void visitIndexJoin(IndexJoinNode node, Void context)
         {
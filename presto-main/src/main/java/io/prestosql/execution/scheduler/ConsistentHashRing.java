@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.execution.scheduler;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashFunction;
+import io.prestosql.metadata.InternalNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.hash.Hashing.murmur3_128;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Comparator.comparingLong;
+
+/**
+ * Places every node at a number of pseudo random positions on a ring of hashes. The preferred nodes
+ * of a key are the first distinct nodes found walking the ring clockwise from the hash of the key,
+ * so a node joining or leaving the ring only changes the preferred nodes of the keys next to its positions.
+ */
+final class ConsistentHashRing
+{
+    private static final HashFunction HASH_FUNCTION = murmur3_128();
+    private static final int VIRTUAL_NODES_PER_NODE = 64;
+
+    private final Set<InternalNode> nodes;
+    private final long[] positions;
+    private final InternalNode[] positionNodes;
+
+    ConsistentHashRing(Collection<InternalNode> nodes)
+    {
+        this.nodes = new HashSet<>(nodes);
+
+        List<RingEntry> entries = new ArrayList<>(nodes.size() * VIRTUAL_NODES_PER_NODE);
+        for (InternalNode node : nodes) {
+            for (int i = 0; i < VIRTUAL_NODES_PER_NODE; i++) {
+                entries.add(new RingEntry(hash(node.getNodeIdentifier() + "#" + i), node));
+            }
+        }
+        entries.sort(comparingLong(RingEntry::getPosition));
+
+        positions = new long[entries.size()];
+        positionNodes = new InternalNode[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            positions[i] = entries.get(i).getPosition();
+            positionNodes[i] = entries.get(i).getNode();
+        }
+    }
+
+    boolean hasSameNodes(Collection<InternalNode> nodes)
+    {
+        return this.nodes.size() == nodes.size() && this.nodes.containsAll(nodes);
+    }
+
+    List<InternalNode> getPreferredNodes(String key, int count)
+    {
+        checkArgument(count > 0, "count must be positive");
+        if (positions.length == 0) {
+            return ImmutableList.of();
+        }
+
+        int index = Arrays.binarySearch(positions, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+
+        List<InternalNode> preferredNodes = new ArrayList<>(count);
+        for (int i = 0; i < positions.length && preferredNodes.size() < count; i++) {
+            InternalNode node = positionNodes[(index + i) % positions.length];
+            if (!preferredNodes.contains(node)) {
+                preferredNodes.add(node);
+            }
+        }
+        return preferredNodes;
+    }
+
+    private static long hash(String value)
+    {
+        return HASH_FUNCTION.hashString(value, UTF_8).asLong();
+    }
+
+    private static class RingEntry
+    {
+        private final long position;
+        private final InternalNode node;
+
+        public RingEntry(long position, InternalNode node)
+        {
+            this.position = position;
+            this.node = node;
+        }
+
+        public long getPosition()
+        {
+            return position;
+        }
+
+        public InternalNode getNode()
+        {
+            return node;
+        }
+    }
+}
@@ -14,6 +14,7 @@
 package io.prestosql.execution.scheduler;
 
 import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
 import io.airlift.configuration.DefunctConfig;
 import io.airlift.configuration.LegacyConfig;
 
@@ -36,6 +37,8 @@ public class NodeSchedulerConfig
     private int maxPendingSplitsPerTask = 10;
     private NodeSchedulerPolicy nodeSchedulerPolicy = NodeSchedulerPolicy.UNIFORM;
     private boolean optimizedLocalScheduling = true;
+    private boolean cacheAffinityEnabled;
+    private int cacheAffinityReplicas = 2;
 
     @NotNull
     public NodeSchedulerPolicy getNodeSchedulerPolicy()
@@ -127,4 +130,31 @@ public class NodeSchedulerConfig
         this.optimizedLocalScheduling = optimizedLocalScheduling;
         return this;
     }
+
+    public boolean isCacheAffinityEnabled()
+    {
+        return cacheAffinityEnabled;
+    }
+
+    @Config("node-scheduler.cache-affinity-enabled")
+    @ConfigDescription("Prefer scheduling splits reading the same data on the same nodes, so that node local caches are reused")
+    public NodeSchedulerConfig setCacheAffinityEnabled(boolean cacheAffinityEnabled)
+    {
+        this.cacheAffinityEnabled = cacheAffinityEnabled;
+        return this;
+    }
+
+    @Min(1)
+    public int getCacheAffinityReplicas()
+    {
+        return cacheAffinityReplicas;
+    }
+
+    @Config("node-scheduler.cache-affinity-replicas")
+    @ConfigDescription("Number of preferred nodes for splits reading the same data")
+    public NodeSchedulerConfig setCacheAffinityReplicas(int cacheAffinityReplicas)
+    {
+        this.cacheAffinityReplicas = cacheAffinityReplicas;
+        return this;
+    }
 }
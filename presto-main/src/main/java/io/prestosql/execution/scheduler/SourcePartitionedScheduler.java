@@ -87,6 +87,9 @@ public class SourcePartitionedScheduler
         FINISHED
     }
 
+    // batches requested from the split source grow up to this multiple of splitBatchSize while splits are placed without blocking
+    private static final int MAX_SPLIT_BATCH_SIZE_MULTIPLIER = 8;
+
     private final SqlStageExecution stage;
     private final SplitSource splitSource;
     private final SplitPlacementPolicy splitPlacementPolicy;
@@ -212,7 +215,7 @@ public class SourcePartitionedScheduler
     public synchronized void startLifespan(Lifespan lifespan, ConnectorPartitionHandle partitionHandle)
     {
         checkState(state == State.INITIALIZED || state == State.SPLITS_ADDED);
-        scheduleGroups.put(lifespan, new ScheduleGroup(partitionHandle));
+        scheduleGroups.put(lifespan, new ScheduleGroup(partitionHandle, splitBatchSize));
         whenFinishedOrNewLifespanAdded.set(null);
         whenFinishedOrNewLifespanAdded = SettableFuture.create();
     }
@@ -249,16 +252,17 @@ public class SourcePartitionedScheduler
             if (scheduleGroup.state == ScheduleGroupState.NO_MORE_SPLITS || scheduleGroup.state == ScheduleGroupState.DONE) {
                 verify(scheduleGroup.nextSplitBatchFuture == null);
             }
-            else if (pendingSplits.isEmpty()) {
-                // try to get the next batch
-                if (scheduleGroup.nextSplitBatchFuture == null) {
-                    scheduleGroup.nextSplitBatchFuture = splitSource.getNextBatch(scheduleGroup.partitionHandle, lifespan, splitBatchSize - pendingSplits.size());
+            else {
+                // try to get the next batch, and pre-fetch it while the pending splits are less than a batch,
+                // so that the enumeration of splits overlaps with their placement
+                if (scheduleGroup.nextSplitBatchFuture == null && pendingSplits.size() < scheduleGroup.splitBatchSize) {
+                    scheduleGroup.nextSplitBatchFuture = splitSource.getNextBatch(scheduleGroup.partitionHandle, lifespan, scheduleGroup.splitBatchSize);
 
                     long start = System.nanoTime();
                     addSuccessCallback(scheduleGroup.nextSplitBatchFuture, () -> stage.recordGetSplitTime(start));
                 }
 
-                if (scheduleGroup.nextSplitBatchFuture.isDone()) {
+                if (scheduleGroup.nextSplitBatchFuture != null && scheduleGroup.nextSplitBatchFuture.isDone()) {
                     SplitBatch nextSplits = getFutureValue(scheduleGroup.nextSplitBatchFuture);
                     scheduleGroup.nextSplitBatchFuture = null;
                     pendingSplits.addAll(nextSplits.getSplits());
@@ -278,13 +282,14 @@ public class SourcePartitionedScheduler
                         scheduleGroup.state = ScheduleGroupState.NO_MORE_SPLITS;
                     }
                 }
-                else {
+                else if (pendingSplits.isEmpty()) {
                     overallBlockedFutures.add(scheduleGroup.nextSplitBatchFuture);
                     anyBlockedOnNextSplitBatch = true;
                     continue;
                 }
             }
 
+            long assignmentStart = System.nanoTime();
             Multimap<InternalNode, Split> splitAssignment = ImmutableMultimap.of();
             if (!pendingSplits.isEmpty()) {
                 if (!scheduleGroup.placementFuture.isDone()) {
@@ -312,6 +317,12 @@ public class SourcePartitionedScheduler
                     scheduleGroup.placementFuture = splitPlacementResult.getBlocked();
                     overallBlockedFutures.add(scheduleGroup.placementFuture);
                     anyBlockedOnPlacements = true;
+                    // larger batches do not help while the split queues of the nodes are full
+                    scheduleGroup.splitBatchSize = splitBatchSize;
+                }
+                else {
+                    // all splits were placed right away, so ask the split source for more of them at once
+                    scheduleGroup.splitBatchSize = Math.min(scheduleGroup.splitBatchSize * 2, splitBatchSize * MAX_SPLIT_BATCH_SIZE_MULTIPLIER);
                 }
             }
 
@@ -327,6 +338,15 @@ public class SourcePartitionedScheduler
 
             // assign the splits with successful placements
             overallNewTasks.addAll(assignSplits(splitAssignment, noMoreSplitsNotification));
+            if (!splitAssignment.isEmpty()) {
+                stage.recordSplitAssignmentTime(assignmentStart);
+            }
+
+            // all pending splits are placed, but the pre-fetched batch has not arrived yet
+            if (scheduleGroup.nextSplitBatchFuture != null && !scheduleGroup.nextSplitBatchFuture.isDone() && pendingSplits.isEmpty()) {
+                overallBlockedFutures.add(scheduleGroup.nextSplitBatchFuture);
+                anyBlockedOnNextSplitBatch = true;
+            }
 
             // Assert that "placement future is not done" implies "pendingSplits is not empty".
             // The other way around is not true. One obvious reason is (un)lucky timing, where the placement is unblocked between `computeAssignments` and this line.
@@ -335,7 +355,7 @@ public class SourcePartitionedScheduler
             // 1. It always returns a completed future when there are no tasks, regardless of whether all nodes are blocked.
             // 2. The returned future will only be completed when a node with an assigned task becomes unblocked. Other nodes don't trigger future completion.
             // As a result, to avoid busy loops caused by 1, we check pendingSplits.isEmpty() instead of placementFuture.isDone() here.
-            if (scheduleGroup.nextSplitBatchFuture == null && scheduleGroup.pendingSplits.isEmpty() && scheduleGroup.state != ScheduleGroupState.DONE) {
+            if ((scheduleGroup.nextSplitBatchFuture == null || scheduleGroup.nextSplitBatchFuture.isDone()) && scheduleGroup.pendingSplits.isEmpty() && scheduleGroup.state != ScheduleGroupState.DONE) {
                 anyNotBlocked = true;
             }
         }
@@ -538,10 +558,12 @@ public class SourcePartitionedScheduler
         public ListenableFuture<?> placementFuture = Futures.immediateFuture(null);
         public final Set<Split> pendingSplits = new HashSet<>();
         public ScheduleGroupState state = ScheduleGroupState.INITIALIZED;
+        public int splitBatchSize;
 
-        public ScheduleGroup(ConnectorPartitionHandle partitionHandle)
+        public ScheduleGroup(ConnectorPartitionHandle partitionHandle, int splitBatchSize)
         {
             this.partitionHandle = requireNonNull(partitionHandle, "partitionHandle is null");
+            this.splitBatchSize = splitBatchSize;
         }
     }
 
@@ -28,6 +28,7 @@ public class SplitSchedulerStats
 {
     private final TimeStat sleepTime = new TimeStat(MILLISECONDS);
     private final TimeStat getSplitTime = new TimeStat(MILLISECONDS);
+    private final TimeStat splitAssignmentTime = new TimeStat(MILLISECONDS);
     private final CounterStat waitingForSource = new CounterStat();
     private final CounterStat splitQueuesFull = new CounterStat();
     private final DistributionStat splitsPerIteration = new DistributionStat();
@@ -46,6 +47,13 @@ public class SplitSchedulerStats
         return getSplitTime;
     }
 
+    @Managed
+    @Nested
+    public TimeStat getSplitAssignmentTime()
+    {
+        return splitAssignmentTime;
+    }
+
     @Managed
     @Nested
     public DistributionStat getSplitsScheduledPerIteration()
@@ -646,6 +646,11 @@ public class SqlQueryScheduler
         }
     }
 
+    public void requestDetailedTaskInfo()
+    {
+        stages.values().forEach(SqlStageExecution::requestDetailedTaskInfo);
+    }
+
     public void abort()
     {
         try (SetThreadName ignored = new SetThreadName("Query-%s", queryStateMachine.getQueryId())) {
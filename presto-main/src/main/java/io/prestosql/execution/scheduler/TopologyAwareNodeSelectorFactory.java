@@ -105,6 +105,7 @@ public class TopologyAwareNodeSelectorFactory
         this.placementCountersByName = placementCountersByName.build();
     }
 
+    @Override
     public Map<String, CounterStat> getPlacementCountersByName()
     {
         return placementCountersByName;
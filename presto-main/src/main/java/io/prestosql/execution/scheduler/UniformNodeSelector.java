@@ -21,6 +21,7 @@ import com.google.common.collect.Multimap;
 import com.google.common.collect.SetMultimap;
 import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.log.Logger;
+import io.airlift.stats.CounterStat;
 import io.prestosql.execution.NodeTaskMap;
 import io.prestosql.execution.RemoteTask;
 import io.prestosql.execution.resourcegroups.IndexedPriorityQueue;
@@ -66,6 +67,11 @@ public class UniformNodeSelector
     private final int maxSplitsPerNode;
     private final int maxPendingSplitsPerTask;
     private final boolean optimizedLocalScheduling;
+    private final boolean cacheAffinityEnabled;
+    private final int cacheAffinityReplicas;
+    private final CounterStat cacheAffinityPreferredSplits;
+    private final CounterStat cacheAffinityFallbackSplits;
+    private final AtomicReference<ConsistentHashRing> hashRing = new AtomicReference<>();
 
     public UniformNodeSelector(
             InternalNodeManager nodeManager,
@@ -75,7 +81,11 @@ public class UniformNodeSelector
             int minCandidates,
             int maxSplitsPerNode,
             int maxPendingSplitsPerTask,
-            boolean optimizedLocalScheduling)
+            boolean optimizedLocalScheduling,
+            boolean cacheAffinityEnabled,
+            int cacheAffinityReplicas,
+            CounterStat cacheAffinityPreferredSplits,
+            CounterStat cacheAffinityFallbackSplits)
     {
         this.nodeManager = requireNonNull(nodeManager, "nodeManager is null");
         this.nodeTaskMap = requireNonNull(nodeTaskMap, "nodeTaskMap is null");
@@ -85,6 +95,10 @@ public class UniformNodeSelector
         this.maxSplitsPerNode = maxSplitsPerNode;
         this.maxPendingSplitsPerTask = maxPendingSplitsPerTask;
         this.optimizedLocalScheduling = optimizedLocalScheduling;
+        this.cacheAffinityEnabled = cacheAffinityEnabled;
+        this.cacheAffinityReplicas = cacheAffinityReplicas;
+        this.cacheAffinityPreferredSplits = requireNonNull(cacheAffinityPreferredSplits, "cacheAffinityPreferredSplits is null");
+        this.cacheAffinityFallbackSplits = requireNonNull(cacheAffinityFallbackSplits, "cacheAffinityFallbackSplits is null");
     }
 
     @Override
@@ -150,7 +164,25 @@ public class UniformNodeSelector
             remainingSplits = splits;
         }
 
+        Optional<ConsistentHashRing> cacheAffinityRing = cacheAffinityEnabled ? Optional.of(getHashRing(nodeMap)) : Optional.empty();
         for (Split split : remainingSplits) {
+            // cacheAffinityEnabled schedules splits reading the same data on the same nodes, as long as these nodes are not saturated
+            if (cacheAffinityRing.isPresent() && split.isRemotelyAccessible() && split.getAffinityKey().isPresent()) {
+                List<InternalNode> preferredNodes = cacheAffinityRing.get().getPreferredNodes(split.getAffinityKey().get(), cacheAffinityReplicas);
+
+                Optional<InternalNode> chosenNode = preferredNodes.stream()
+                        .filter(preferredNode -> assignmentStats.getTotalSplitCount(preferredNode) < maxSplitsPerNode)
+                        .min(comparingInt(assignmentStats::getTotalSplitCount));
+
+                if (chosenNode.isPresent()) {
+                    assignment.put(chosenNode.get(), split);
+                    assignmentStats.addAssignedSplit(chosenNode.get());
+                    cacheAffinityPreferredSplits.update(1);
+                    continue;
+                }
+                cacheAffinityFallbackSplits.update(1);
+            }
+
             randomCandidates.reset();
 
             List<InternalNode> candidateNodes;
@@ -214,6 +246,17 @@ public class UniformNodeSelector
         return new SplitPlacementResult(blocked, assignment);
     }
 
+    private ConsistentHashRing getHashRing(NodeMap nodeMap)
+    {
+        List<InternalNode> nodes = getAllNodes(nodeMap, includeCoordinator);
+        ConsistentHashRing ring = hashRing.get();
+        if (ring == null || !ring.hasSameNodes(nodes)) {
+            ring = new ConsistentHashRing(nodes);
+            hashRing.set(ring);
+        }
+        return ring;
+    }
+
     @Override
     public SplitPlacementResult computeAssignments(Set<Split> splits, List<RemoteTask> existingTasks, BucketNodeMap bucketNodeMap)
     {
@@ -17,8 +17,10 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Suppliers;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSetMultimap;
 import io.airlift.log.Logger;
+import io.airlift.stats.CounterStat;
 import io.airlift.units.Duration;
 import io.prestosql.connector.CatalogName;
 import io.prestosql.execution.NodeTaskMap;
@@ -30,6 +32,7 @@ import javax.inject.Inject;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -57,6 +60,10 @@ public class UniformNodeSelectorFactory
     private final int maxSplitsPerNode;
     private final int maxPendingSplitsPerTask;
     private final boolean optimizedLocalScheduling;
+    private final boolean cacheAffinityEnabled;
+    private final int cacheAffinityReplicas;
+    private final CounterStat cacheAffinityPreferredSplits = new CounterStat();
+    private final CounterStat cacheAffinityFallbackSplits = new CounterStat();
     private final NodeTaskMap nodeTaskMap;
     private final Duration nodeMapMemoizationDuration;
 
@@ -86,11 +93,24 @@ public class UniformNodeSelectorFactory
         this.maxSplitsPerNode = config.getMaxSplitsPerNode();
         this.maxPendingSplitsPerTask = config.getMaxPendingSplitsPerTask();
         this.optimizedLocalScheduling = config.getOptimizedLocalScheduling();
+        this.cacheAffinityEnabled = config.isCacheAffinityEnabled();
+        this.cacheAffinityReplicas = config.getCacheAffinityReplicas();
         this.nodeTaskMap = requireNonNull(nodeTaskMap, "nodeTaskMap is null");
         checkArgument(maxSplitsPerNode >= maxPendingSplitsPerTask, "maxSplitsPerNode must be > maxPendingSplitsPerTask");
         this.nodeMapMemoizationDuration = nodeMapMemoizationDuration;
     }
 
+    @Override
+    public Map<String, CounterStat> getPlacementCountersByName()
+    {
+        if (!cacheAffinityEnabled) {
+            return ImmutableMap.of();
+        }
+        return ImmutableMap.of(
+                "cache_affinity_preferred", cacheAffinityPreferredSplits,
+                "cache_affinity_fallback", cacheAffinityFallbackSplits);
+    }
+
     @Override
     public NodeSelector createNodeSelector(Optional<CatalogName> catalogName)
     {
@@ -116,7 +136,11 @@ public class UniformNodeSelectorFactory
                 minCandidates,
                 maxSplitsPerNode,
                 maxPendingSplitsPerTask,
-                optimizedLocalScheduling);
+                optimizedLocalScheduling,
+                cacheAffinityEnabled,
+                cacheAffinityReplicas,
+                cacheAffinityPreferredSplits,
+                cacheAffinityFallbackSplits);
     }
 
     private NodeMap createNodeMap(Optional<CatalogName> catalogName)
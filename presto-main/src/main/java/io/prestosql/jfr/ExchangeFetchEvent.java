@@ -0,0 +1,62 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.prestosql.ExchangeFetch")
+@Label("Exchange Fetch")
+@Category({"Presto", "Exchange"})
+@Description("A request for pages from the output buffer of a task, which the event is tagged with")
+public class ExchangeFetchEvent
+        extends TaskEvent
+{
+    @Label("Location")
+    private String location;
+
+    @Label("Transport")
+    @Description("Whether the pages were read from a local buffer, a stream or a single response")
+    private String transport;
+
+    @Label("Bytes")
+    @DataAmount
+    private long bytes;
+
+    @Label("Failed")
+    private boolean failed;
+
+    public void setLocation(String location)
+    {
+        this.location = location;
+    }
+
+    public void setTransport(String transport)
+    {
+        this.transport = transport;
+    }
+
+    public void setBytes(long bytes)
+    {
+        this.bytes = bytes;
+    }
+
+    public void setFailed(boolean failed)
+    {
+        this.failed = failed;
+    }
+}
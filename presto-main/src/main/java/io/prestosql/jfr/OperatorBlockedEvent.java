@@ -0,0 +1,37 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+@Name("io.prestosql.OperatorBlocked")
+@Label("Operator Blocked")
+@Category({"Presto", "Operator"})
+@Description("An interval during which an operator blocked its driver")
+@Threshold("1 ms")
+public class OperatorBlockedEvent
+        extends OperatorEvent
+{
+    @Label("Blocked Reason")
+    private String blockedReason;
+
+    public void setBlockedReason(String blockedReason)
+    {
+        this.blockedReason = blockedReason;
+    }
+}
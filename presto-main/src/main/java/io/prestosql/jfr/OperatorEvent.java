@@ -0,0 +1,39 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.jfr;
+
+import io.prestosql.operator.OperatorContext;
+import jdk.jfr.Label;
+
+public abstract class OperatorEvent
+        extends TaskEvent
+{
+    // the flight recorder does not record private fields of super classes
+    @Label("Pipeline Id")
+    protected int pipelineId;
+
+    @Label("Operator Id")
+    protected int operatorId;
+
+    @Label("Operator Type")
+    protected String operatorType;
+
+    public void setOperatorContext(OperatorContext operatorContext)
+    {
+        setTaskId(operatorContext.getDriverContext().getTaskId());
+        this.pipelineId = operatorContext.getDriverContext().getPipelineContext().getPipelineId();
+        this.operatorId = operatorContext.getOperatorId();
+        this.operatorType = operatorContext.getOperatorType();
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.prestosql.SpillWrite")
+@Label("Spill Write")
+@Category({"Presto", "Spill"})
+@Description("Pages written by an operator to a spill file")
+public class SpillWriteEvent
+        extends OperatorEvent
+{
+    @Label("Path")
+    private String path;
+
+    @Label("Pages")
+    private long pages;
+
+    @Label("Bytes")
+    @DataAmount
+    private long bytes;
+
+    public void setPath(String path)
+    {
+        this.path = path;
+    }
+
+    public void setWrittenData(long pages, long bytes)
+    {
+        this.pages = pages;
+        this.bytes = bytes;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+@Name("io.prestosql.SplitQuantum")
+@Label("Split Quantum")
+@Category({"Presto", "Execution"})
+@Description("A quantum of split processing by a task executor thread")
+@Threshold("1 ms")
+public class SplitQuantumEvent
+        extends TaskEvent
+{
+    @Label("Split Id")
+    private int splitId;
+
+    @Label("Split Info")
+    private String splitInfo;
+
+    @Label("CPU Time")
+    @Timespan
+    private long cpuTime;
+
+    @Label("Blocked")
+    @Description("Whether the split is blocked at the end of the quantum")
+    private boolean blocked;
+
+    public void setSplit(int splitId, String splitInfo)
+    {
+        this.splitId = splitId;
+        this.splitInfo = splitInfo;
+    }
+
+    public void setCpuTime(long cpuTimeNanos)
+    {
+        this.cpuTime = cpuTimeNanos;
+    }
+
+    public void setBlocked(boolean blocked)
+    {
+        this.blocked = blocked;
+    }
+}
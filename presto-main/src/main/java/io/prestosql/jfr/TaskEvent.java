@@ -0,0 +1,46 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.jfr;
+
+import io.prestosql.execution.TaskId;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Base of the flight recorder events of Presto, which are tagged with the task they belong to.
+ */
+@Category("Presto")
+@StackTrace(false)
+public abstract class TaskEvent
+        extends Event
+{
+    // the flight recorder does not record private fields of super classes
+    @Label("Query Id")
+    protected String queryId;
+
+    @Label("Stage Id")
+    protected String stageId;
+
+    @Label("Task Id")
+    protected String taskId;
+
+    public void setTaskId(TaskId taskId)
+    {
+        this.queryId = taskId.getQueryId().getId();
+        this.stageId = taskId.getStageId().toString();
+        this.taskId = taskId.toString();
+    }
+}
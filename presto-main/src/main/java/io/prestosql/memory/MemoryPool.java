@@ -33,7 +33,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkArgument;
@@ -48,25 +50,27 @@ public class MemoryPool
     private final MemoryPoolId id;
     private final long maxBytes;
 
-    @GuardedBy("this")
-    private long reservedBytes;
-    @GuardedBy("this")
-    private long reservedRevocableBytes;
+    // The pool totals are updated without holding the monitor of this, so that drivers of different queries
+    // do not contend on it. The monitor is only taken to create or complete the future when the pool is full.
+    private final AtomicLong reservedBytes = new AtomicLong();
+    private final AtomicLong reservedRevocableBytes = new AtomicLong();
+    // part of reservedBytes which is reserved on behalf of the node rather than a query
+    private final AtomicLong nodeReservedBytes = new AtomicLong();
 
+    // written while holding the monitor of this, but read without it when memory is freed
     @Nullable
     @GuardedBy("this")
-    private NonCancellableMemoryFuture<?> future;
+    private volatile NonCancellableMemoryFuture<?> future;
 
-    @GuardedBy("this")
+    // The per query maps are updated with the atomic operations of ConcurrentHashMap, which only lock the bin of the query.
     // TODO: It would be better if we just tracked QueryContexts, but their lifecycle is managed by a weak reference, so we can't do that
-    private final Map<QueryId, Long> queryMemoryReservations = new HashMap<>();
+    private final Map<QueryId, Long> queryMemoryReservations = new ConcurrentHashMap<>();
 
     // This map keeps track of all the tagged allocations, e.g., query-1 -> ['TableScanOperator': 10MB, 'LazyOutputBuffer': 5MB, ...]
-    @GuardedBy("this")
-    private final Map<QueryId, Map<String, Long>> taggedMemoryAllocations = new HashMap<>();
+    // It is only updated while holding the bin of the query in queryMemoryReservations.
+    private final Map<QueryId, Map<String, Long>> taggedMemoryAllocations = new ConcurrentHashMap<>();
 
-    @GuardedBy("this")
-    private final Map<QueryId, Long> queryMemoryRevocableReservations = new HashMap<>();
+    private final Map<QueryId, Long> queryMemoryRevocableReservations = new ConcurrentHashMap<>();
 
     private final List<MemoryPoolListener> listeners = new CopyOnWriteArrayList<>();
 
@@ -82,7 +86,7 @@ public class MemoryPool
         return id;
     }
 
-    public synchronized MemoryPoolInfo getInfo()
+    public MemoryPoolInfo getInfo()
     {
         Map<QueryId, List<MemoryAllocation>> memoryAllocations = new HashMap<>();
         for (Entry<QueryId, Map<String, Long>> entry : taggedMemoryAllocations.entrySet()) {
@@ -92,7 +96,7 @@ public class MemoryPool
             }
             memoryAllocations.put(entry.getKey(), allocations);
         }
-        return new MemoryPoolInfo(maxBytes, reservedBytes, reservedRevocableBytes, queryMemoryReservations, memoryAllocations, queryMemoryRevocableReservations);
+        return new MemoryPoolInfo(maxBytes, reservedBytes.get(), reservedRevocableBytes.get(), queryMemoryReservations, memoryAllocations, queryMemoryRevocableReservations);
     }
 
     public void addListener(MemoryPoolListener listener)
@@ -112,29 +116,48 @@ public class MemoryPool
     {
         checkArgument(bytes >= 0, "bytes is negative");
 
-        ListenableFuture<?> result;
-        synchronized (this) {
-            if (bytes != 0) {
-                queryMemoryReservations.merge(queryId, bytes, Long::sum);
-                updateTaggedMemoryAllocations(queryId, allocationTag, bytes);
-            }
-            reservedBytes += bytes;
-            if (getFreeBytes() <= 0) {
-                if (future == null) {
-                    future = NonCancellableMemoryFuture.create();
-                }
-                checkState(!future.isDone(), "future is already completed");
-                result = future;
-            }
-            else {
-                result = NOT_BLOCKED;
-            }
+        if (bytes != 0) {
+            updateQueryMemoryReservation(queryId, allocationTag, bytes);
+        }
+        reservedBytes.addAndGet(bytes);
+
+        ListenableFuture<?> result = NOT_BLOCKED;
+        if (getFreeBytes() <= 0) {
+            result = getMemoryFuture();
         }
 
         onMemoryReserved();
         return result;
     }
 
+    private synchronized ListenableFuture<?> getMemoryFuture()
+    {
+        if (future == null) {
+            future = NonCancellableMemoryFuture.create();
+        }
+        checkState(!future.isDone(), "future is already completed");
+        // Memory is freed without holding the monitor of this, so check again after the future has been published.
+        // Either this sees the freed memory, or the thread freeing the memory sees the future and completes it.
+        if (getFreeBytes() > 0) {
+            future.set(null);
+            future = null;
+            return NOT_BLOCKED;
+        }
+        return future;
+    }
+
+    private void onMemoryFreed()
+    {
+        if (getFreeBytes() > 0 && future != null) {
+            synchronized (this) {
+                if (getFreeBytes() > 0 && future != null) {
+                    future.set(null);
+                    future = null;
+                }
+            }
+        }
+    }
+
     private void onMemoryReserved()
     {
         listeners.forEach(listener -> listener.onMemoryReserved(this));
@@ -144,22 +167,14 @@ public class MemoryPool
     {
         checkArgument(bytes >= 0, "bytes is negative");
 
-        ListenableFuture<?> result;
-        synchronized (this) {
-            if (bytes != 0) {
-                queryMemoryRevocableReservations.merge(queryId, bytes, Long::sum);
-            }
-            reservedRevocableBytes += bytes;
-            if (getFreeBytes() <= 0) {
-                if (future == null) {
-                    future = NonCancellableMemoryFuture.create();
-                }
-                checkState(!future.isDone(), "future is already completed");
-                result = future;
-            }
-            else {
-                result = NOT_BLOCKED;
-            }
+        if (bytes != 0) {
+            queryMemoryRevocableReservations.merge(queryId, bytes, Long::sum);
+        }
+        reservedRevocableBytes.addAndGet(bytes);
+
+        ListenableFuture<?> result = NOT_BLOCKED;
+        if (getFreeBytes() <= 0) {
+            result = getMemoryFuture();
         }
 
         onMemoryReserved();
@@ -172,73 +187,107 @@ public class MemoryPool
     public boolean tryReserve(QueryId queryId, String allocationTag, long bytes)
     {
         checkArgument(bytes >= 0, "bytes is negative");
-        synchronized (this) {
-            if (getFreeBytes() - bytes < 0) {
+        long reserved;
+        do {
+            reserved = reservedBytes.get();
+            if (maxBytes - reserved - reservedRevocableBytes.get() - bytes < 0) {
                 return false;
             }
-            reservedBytes += bytes;
-            if (bytes != 0) {
-                queryMemoryReservations.merge(queryId, bytes, Long::sum);
-                updateTaggedMemoryAllocations(queryId, allocationTag, bytes);
-            }
+        }
+        while (!reservedBytes.compareAndSet(reserved, reserved + bytes));
+        if (bytes != 0) {
+            updateQueryMemoryReservation(queryId, allocationTag, bytes);
         }
 
         onMemoryReserved();
         return true;
     }
 
-    public synchronized void free(QueryId queryId, String allocationTag, long bytes)
+    public void free(QueryId queryId, String allocationTag, long bytes)
     {
         checkArgument(bytes >= 0, "bytes is negative");
-        checkArgument(reservedBytes >= bytes, "tried to free more memory than is reserved");
+        checkArgument(reservedBytes.get() >= bytes, "tried to free more memory than is reserved");
         if (bytes == 0) {
             // Freeing zero bytes is a no-op
             return;
         }
 
-        Long queryReservation = queryMemoryReservations.get(queryId);
-        requireNonNull(queryReservation, "queryReservation is null");
-        checkArgument(queryReservation - bytes >= 0, "tried to free more memory than is reserved by query");
-        queryReservation -= bytes;
-        if (queryReservation == 0) {
-            queryMemoryReservations.remove(queryId);
-            taggedMemoryAllocations.remove(queryId);
-        }
-        else {
-            queryMemoryReservations.put(queryId, queryReservation);
-            updateTaggedMemoryAllocations(queryId, allocationTag, -bytes);
-        }
-        reservedBytes -= bytes;
-        if (getFreeBytes() > 0 && future != null) {
-            future.set(null);
-            future = null;
-        }
+        updateQueryMemoryReservation(queryId, allocationTag, -bytes);
+        reservedBytes.addAndGet(-bytes);
+        onMemoryFreed();
     }
 
-    public synchronized void freeRevocable(QueryId queryId, long bytes)
+    public void freeRevocable(QueryId queryId, long bytes)
     {
         checkArgument(bytes >= 0, "bytes is negative");
-        checkArgument(reservedRevocableBytes >= bytes, "tried to free more revocable memory than is reserved");
+        checkArgument(reservedRevocableBytes.get() >= bytes, "tried to free more revocable memory than is reserved");
         if (bytes == 0) {
             // Freeing zero bytes is a no-op
             return;
         }
 
-        Long queryReservation = queryMemoryRevocableReservations.get(queryId);
-        requireNonNull(queryReservation, "queryReservation is null");
-        checkArgument(queryReservation - bytes >= 0, "tried to free more revocable memory than is reserved by query");
-        queryReservation -= bytes;
-        if (queryReservation == 0) {
-            queryMemoryRevocableReservations.remove(queryId);
-        }
-        else {
-            queryMemoryRevocableReservations.put(queryId, queryReservation);
+        queryMemoryRevocableReservations.compute(queryId, (ignored, queryReservation) -> {
+            requireNonNull(queryReservation, "queryReservation is null");
+            checkArgument(queryReservation - bytes >= 0, "tried to free more revocable memory than is reserved by query");
+            long newReservation = queryReservation - bytes;
+            return newReservation == 0 ? null : newReservation;
+        });
+        reservedRevocableBytes.addAndGet(-bytes);
+        onMemoryFreed();
+    }
+
+    /**
+     * Try to reserve the given number of bytes on behalf of the node rather than a query, e.g. for data cached across queries.
+     * The reservation counts towards the pool, but it is not attributed to any query.
+     */
+    public boolean tryReserveNodeMemory(long bytes)
+    {
+        checkArgument(bytes >= 0, "bytes is negative");
+        long reserved;
+        do {
+            reserved = reservedBytes.get();
+            if (maxBytes - reserved - reservedRevocableBytes.get() - bytes < 0) {
+                return false;
+            }
         }
-        reservedRevocableBytes -= bytes;
-        if (getFreeBytes() > 0 && future != null) {
-            future.set(null);
-            future = null;
+        while (!reservedBytes.compareAndSet(reserved, reserved + bytes));
+        nodeReservedBytes.addAndGet(bytes);
+
+        onMemoryReserved();
+        return true;
+    }
+
+    public void freeNodeMemory(long bytes)
+    {
+        checkArgument(bytes >= 0, "bytes is negative");
+        checkArgument(nodeReservedBytes.get() >= bytes, "tried to free more memory than is reserved by the node");
+        if (bytes == 0) {
+            // Freeing zero bytes is a no-op
+            return;
         }
+
+        nodeReservedBytes.addAndGet(-bytes);
+        reservedBytes.addAndGet(-bytes);
+        onMemoryFreed();
+    }
+
+    private void updateQueryMemoryReservation(QueryId queryId, String allocationTag, long delta)
+    {
+        queryMemoryReservations.compute(queryId, (ignored, queryReservation) -> {
+            if (delta > 0) {
+                updateTaggedMemoryAllocations(queryId, allocationTag, delta);
+                return queryReservation == null ? delta : queryReservation + delta;
+            }
+            requireNonNull(queryReservation, "queryReservation is null");
+            checkArgument(queryReservation + delta >= 0, "tried to free more memory than is reserved by query");
+            long newReservation = queryReservation + delta;
+            if (newReservation == 0) {
+                taggedMemoryAllocations.remove(queryId);
+                return null;
+            }
+            updateTaggedMemoryAllocations(queryId, allocationTag, delta);
+            return newReservation;
+        });
     }
 
     // When this method returns the MOVE_QUERY_TAG won't be visible in the tagged memory allocations map.
@@ -267,35 +316,41 @@ public class MemoryPool
      * Returns the number of free bytes. This value may be negative, which indicates that the pool is over-committed.
      */
     @Managed
-    public synchronized long getFreeBytes()
+    public long getFreeBytes()
     {
-        return maxBytes - reservedBytes - reservedRevocableBytes;
+        return maxBytes - reservedBytes.get() - reservedRevocableBytes.get();
     }
 
     @Managed
-    public synchronized long getMaxBytes()
+    public long getMaxBytes()
     {
         return maxBytes;
     }
 
     @Managed
-    public synchronized long getReservedBytes()
+    public long getReservedBytes()
+    {
+        return reservedBytes.get();
+    }
+
+    @Managed
+    public long getNodeReservedBytes()
     {
-        return reservedBytes;
+        return nodeReservedBytes.get();
     }
 
     @Managed
-    public synchronized long getReservedRevocableBytes()
+    public long getReservedRevocableBytes()
     {
-        return reservedRevocableBytes;
+        return reservedRevocableBytes.get();
     }
 
-    synchronized long getQueryMemoryReservation(QueryId queryId)
+    long getQueryMemoryReservation(QueryId queryId)
     {
         return queryMemoryReservations.getOrDefault(queryId, 0L);
     }
 
-    synchronized long getQueryRevocableMemoryReservation(QueryId queryId)
+    long getQueryRevocableMemoryReservation(QueryId queryId)
     {
         return queryMemoryRevocableReservations.getOrDefault(queryId, 0L);
     }
@@ -307,8 +362,8 @@ public class MemoryPool
                 .add("id", id)
                 .add("maxBytes", maxBytes)
                 .add("freeBytes", getFreeBytes())
-                .add("reservedBytes", reservedBytes)
-                .add("reservedRevocableBytes", reservedRevocableBytes)
+                .add("reservedBytes", reservedBytes.get())
+                .add("reservedRevocableBytes", reservedRevocableBytes.get())
                 .add("future", future)
                 .toString();
     }
@@ -334,13 +389,13 @@ public class MemoryPool
         }
     }
 
-    private synchronized void updateTaggedMemoryAllocations(QueryId queryId, String allocationTag, long delta)
+    private void updateTaggedMemoryAllocations(QueryId queryId, String allocationTag, long delta)
     {
         if (delta == 0) {
             return;
         }
 
-        Map<String, Long> allocations = taggedMemoryAllocations.computeIfAbsent(queryId, ignored -> new HashMap<>());
+        Map<String, Long> allocations = taggedMemoryAllocations.computeIfAbsent(queryId, ignored -> new ConcurrentHashMap<>());
         allocations.compute(allocationTag, (ignored, oldValue) -> {
             if (oldValue == null) {
                 return delta;
@@ -354,7 +409,7 @@ public class MemoryPool
     }
 
     @VisibleForTesting
-    synchronized Map<QueryId, Map<String, Long>> getTaggedMemoryAllocations()
+    Map<QueryId, Map<String, Long>> getTaggedMemoryAllocations()
     {
         return ImmutableMap.copyOf(taggedMemoryAllocations);
     }
@@ -45,6 +45,7 @@ import static com.google.common.base.Verify.verify;
 import static com.google.common.base.Verify.verifyNotNull;
 import static com.google.common.collect.ImmutableMap.toImmutableMap;
 import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static io.airlift.units.DataSize.Unit.KILOBYTE;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
 import static io.airlift.units.DataSize.succinctBytes;
 import static io.prestosql.ExceededMemoryLimitException.exceededLocalTotalMemoryLimit;
@@ -61,6 +62,12 @@ import static java.util.stream.Collectors.toList;
 public class QueryContext
 {
     private static final long GUARANTEED_MEMORY = DataSize.of(1, MEGABYTE).toBytes();
+    // Local memory contexts of the query only propagate changes of at least RESERVATION_GRANULARITY to the memory pool,
+    // as long as the changes of all of them which are not propagated yet add up to at most MAX_UNREPORTED_MEMORY. The user
+    // and the system memory reservations of the query are each off by at most that, however many drivers the query runs.
+    // Revocable memory is always exact, as it drives memory revoking.
+    private static final long RESERVATION_GRANULARITY = DataSize.of(64, KILOBYTE).toBytes();
+    private static final long MAX_UNREPORTED_MEMORY = DataSize.of(1, MEGABYTE).toBytes();
 
     private final QueryId queryId;
     private final GcMonitor gcMonitor;
@@ -105,9 +112,9 @@ public class QueryContext
         this.maxSpill = requireNonNull(maxSpill, "maxSpill is null").toBytes();
         this.spillSpaceTracker = requireNonNull(spillSpaceTracker, "spillSpaceTracker is null");
         this.queryMemoryContext = new MemoryTrackingContext(
-                newRootAggregatedMemoryContext(new QueryMemoryReservationHandler(this::updateUserMemory, this::tryUpdateUserMemory), GUARANTEED_MEMORY),
+                newRootAggregatedMemoryContext(new QueryMemoryReservationHandler(this::updateUserMemory, this::tryUpdateUserMemory), GUARANTEED_MEMORY, RESERVATION_GRANULARITY, MAX_UNREPORTED_MEMORY),
                 newRootAggregatedMemoryContext(new QueryMemoryReservationHandler(this::updateRevocableMemory, this::tryReserveMemoryNotSupported), 0L),
-                newRootAggregatedMemoryContext(new QueryMemoryReservationHandler(this::updateSystemMemory, this::tryReserveMemoryNotSupported), 0L));
+                newRootAggregatedMemoryContext(new QueryMemoryReservationHandler(this::updateSystemMemory, this::tryReserveMemoryNotSupported), 0L, RESERVATION_GRANULARITY, MAX_UNREPORTED_MEMORY));
     }
 
     // TODO: This method should be removed, and the correct limit set in the constructor. However, due to the way QueryContext is constructed the memory limit is not known in advance
@@ -33,6 +33,10 @@ import io.prestosql.spi.connector.ConnectorTableMetadata;
 import io.prestosql.spi.connector.ConnectorViewDefinition;
 import io.prestosql.spi.connector.Constraint;
 import io.prestosql.spi.connector.ConstraintApplicationResult;
+import io.prestosql.spi.connector.JoinApplicationResult;
+import io.prestosql.spi.connector.JoinCondition;
+import io.prestosql.spi.connector.JoinStatistics;
+import io.prestosql.spi.connector.JoinType;
 import io.prestosql.spi.connector.LimitApplicationResult;
 import io.prestosql.spi.connector.MaterializedViewFreshness;
 import io.prestosql.spi.connector.ProjectionApplicationResult;
@@ -393,8 +397,28 @@ public interface Metadata
             List<SortItem> sortItems,
             Map<String, ColumnHandle> assignments);
 
+    Optional<JoinApplicationResult<TableHandle>> applyJoin(
+            Session session,
+            JoinType joinType,
+            TableHandle left,
+            TableHandle right,
+            List<JoinCondition> joinConditions,
+            Map<String, ColumnHandle> leftAssignments,
+            Map<String, ColumnHandle> rightAssignments,
+            JoinStatistics statistics);
+
     default void validateScan(Session session, TableHandle table) {}
 
+    /**
+     * Returns a token that identifies the version of the data of the table, or empty if the connector cannot track it.
+     */
+    Optional<String> getTableVersion(Session session, TableHandle table);
+
+    /**
+     * Returns whether the version of the table is guaranteed to identify its data, e.g. because it refers to an immutable snapshot.
+     */
+    boolean isTableVersionImmutable(Session session, TableHandle table);
+
     //
     // Roles and Grants
     //
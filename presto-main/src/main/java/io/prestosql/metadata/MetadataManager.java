@@ -70,6 +70,10 @@ import io.prestosql.spi.connector.ConnectorTransactionHandle;
 import io.prestosql.spi.connector.ConnectorViewDefinition;
 import io.prestosql.spi.connector.Constraint;
 import io.prestosql.spi.connector.ConstraintApplicationResult;
+import io.prestosql.spi.connector.JoinApplicationResult;
+import io.prestosql.spi.connector.JoinCondition;
+import io.prestosql.spi.connector.JoinStatistics;
+import io.prestosql.spi.connector.JoinType;
 import io.prestosql.spi.connector.LimitApplicationResult;
 import io.prestosql.spi.connector.MaterializedViewFreshness;
 import io.prestosql.spi.connector.ProjectionApplicationResult;
@@ -1263,6 +1267,47 @@ public final class MetadataManager
                         result.isTopNGuaranteed()));
     }
 
+    @Override
+    public Optional<JoinApplicationResult<TableHandle>> applyJoin(
+            Session session,
+            JoinType joinType,
+            TableHandle left,
+            TableHandle right,
+            List<JoinCondition> joinConditions,
+            Map<String, ColumnHandle> leftAssignments,
+            Map<String, ColumnHandle> rightAssignments,
+            JoinStatistics statistics)
+    {
+        if (!left.getCatalogName().equals(right.getCatalogName())) {
+            // Exact comparison is fine as catalog name here is passed from CatalogMetadata and is normalized to lowercase
+            return Optional.empty();
+        }
+        CatalogName catalogName = left.getCatalogName();
+
+        ConnectorTransactionHandle transaction = left.getTransaction();
+        verify(transaction.equals(right.getTransaction()), "Transaction mismatch between join sources: %s, %s", left, right);
+
+        ConnectorMetadata metadata = getMetadata(session, catalogName);
+        if (metadata.usesLegacyTableLayouts()) {
+            return Optional.empty();
+        }
+
+        ConnectorSession connectorSession = session.toConnectorSession(catalogName);
+        return metadata.applyJoin(
+                connectorSession,
+                joinType,
+                left.getConnectorHandle(),
+                right.getConnectorHandle(),
+                joinConditions,
+                leftAssignments,
+                rightAssignments,
+                statistics)
+                .map(result -> new JoinApplicationResult<>(
+                        new TableHandle(catalogName, result.getTableHandle(), transaction, Optional.empty()),
+                        result.getLeftColumnHandles(),
+                        result.getRightColumnHandles()));
+    }
+
     private void verifyProjection(TableHandle table, List<ConnectorExpression> projections, List<Assignment> assignments, int expectedProjectionSize)
     {
         projections.forEach(projection -> requireNonNull(projection, "one of the projections is null"));
@@ -1294,6 +1339,22 @@ public final class MetadataManager
         metadata.validateScan(session.toConnectorSession(catalogName), table.getConnectorHandle());
     }
 
+    @Override
+    public Optional<String> getTableVersion(Session session, TableHandle table)
+    {
+        CatalogName catalogName = table.getCatalogName();
+        ConnectorMetadata metadata = getMetadata(session, catalogName);
+        return metadata.getTableVersion(session.toConnectorSession(catalogName), table.getConnectorHandle());
+    }
+
+    @Override
+    public boolean isTableVersionImmutable(Session session, TableHandle table)
+    {
+        CatalogName catalogName = table.getCatalogName();
+        ConnectorMetadata metadata = getMetadata(session, catalogName);
+        return metadata.isTableVersionImmutable(session.toConnectorSession(catalogName), table.getConnectorHandle());
+    }
+
     @Override
     public Optional<ConstraintApplicationResult<TableHandle>> applyFilter(Session session, TableHandle table, Constraint constraint)
     {
@@ -0,0 +1,334 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.operator;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.stats.CounterStat;
+import io.airlift.units.DataSize;
+import io.prestosql.memory.LocalMemoryManager;
+import io.prestosql.memory.MemoryPool;
+import io.prestosql.memory.MemoryPoolListener;
+import io.prestosql.spi.type.Type;
+import io.prestosql.sql.analyzer.FeaturesConfig;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.function.Supplier;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Node-wide cache of the build sides of replicated (broadcast) joins, shared between queries.
+ * <p>
+ * An entry is keyed by the {@link io.prestosql.execution.resultcache.QueryResultCacheKeyGenerator key} of the
+ * build side plan, which covers the versions of the tables it reads, so a build side is only reused as long as
+ * the underlying tables are unchanged. Each task joins through its own {@link PartitionedLookupSourceFactory}:
+ * <ul>
+ * <li>on a miss, the task builds the lookup source as usual and offers it to the cache once it is built.
+ * The partitions are then handed over with {@link PartitionedLookupSourceFactory#transferPartitions()},
+ * so the operators which built them release their memory without clearing them.</li>
+ * <li>on a hit, the cached partitions are lent to the factory of the task. The build side still has to be
+ * consumed (the exchange feeding it would block otherwise), but its rows are discarded.</li>
+ * </ul>
+ * Entries are reference counted: the cache holds one reference, and each factory using the entry holds
+ * another one until it is destroyed. The memory of an entry is reserved in the general pool on behalf of the
+ * node rather than any query, and is freed once the entry is evicted and no longer in use. Unused entries are
+ * evicted in least recently used order when the cache exceeds its maximum size or the pool runs out of memory.
+ */
+@ThreadSafe
+public class BroadcastLookupSourceCache
+{
+    private final MemoryPool memoryPool;
+    private final long maxSizeInBytes;
+    private final MemoryPoolListener memoryPoolListener = MemoryPoolListener.onMemoryReserved(this::onMemoryReserved);
+
+    @GuardedBy("this")
+    private final Map<CacheKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    @GuardedBy("this")
+    private long cachedBytes;
+
+    private final CounterStat hits = new CounterStat();
+    private final CounterStat misses = new CounterStat();
+
+    @Inject
+    public BroadcastLookupSourceCache(LocalMemoryManager localMemoryManager, FeaturesConfig featuresConfig)
+    {
+        this(localMemoryManager.getGeneralPool(), featuresConfig.getSharedBroadcastJoinBuildMaxCacheSize());
+    }
+
+    public BroadcastLookupSourceCache(MemoryPool memoryPool, DataSize maxSize)
+    {
+        this.memoryPool = requireNonNull(memoryPool, "memoryPool is null");
+        this.maxSizeInBytes = requireNonNull(maxSize, "maxSize is null").toBytes();
+    }
+
+    @PostConstruct
+    public void start()
+    {
+        memoryPool.addListener(memoryPoolListener);
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        memoryPool.removeListener(memoryPoolListener);
+    }
+
+    /**
+     * Lends the cached partitions of the build side to the given lookup source factory, which keeps the entry
+     * in use until it is destroyed.
+     *
+     * @return false if the build side is not cached, in which case the caller has to build it
+     */
+    public boolean lendCachedPartitions(CacheKey key, PartitionedLookupSourceFactory lookupSourceFactory)
+    {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null) {
+                misses.update(1);
+                return false;
+            }
+            entry.references++;
+            hits.update(1);
+        }
+
+        lookupSourceFactory.isDestroyed().addListener(() -> release(entry), directExecutor());
+        for (int partition = 0; partition < entry.partitions.size(); partition++) {
+            lookupSourceFactory.lendPartitionLookupSource(partition, entry.partitions.get(partition));
+        }
+        return true;
+    }
+
+    /**
+     * Caches the build side once the given lookup source factory has built it in memory.
+     */
+    public void offer(CacheKey key, PartitionedLookupSourceFactory lookupSourceFactory)
+    {
+        lookupSourceFactory.whenBuildFinishes().addListener(() -> transfer(key, lookupSourceFactory), directExecutor());
+    }
+
+    private void transfer(CacheKey key, PartitionedLookupSourceFactory lookupSourceFactory)
+    {
+        synchronized (this) {
+            if (entries.containsKey(key)) {
+                // built concurrently by another task
+                return;
+            }
+        }
+
+        Optional<List<Supplier<LookupSource>>> partitions = lookupSourceFactory.getTransferablePartitions();
+        if (partitions.isEmpty()) {
+            return;
+        }
+
+        long sizeInBytes = 0;
+        for (Supplier<LookupSource> partition : partitions.get()) {
+            try (LookupSource lookupSource = partition.get()) {
+                sizeInBytes += lookupSource.getInMemorySizeInBytes();
+            }
+        }
+        if (sizeInBytes > maxSizeInBytes || !memoryPool.tryReserveNodeMemory(sizeInBytes)) {
+            return;
+        }
+        if (!lookupSourceFactory.transferPartitions()) {
+            memoryPool.freeNodeMemory(sizeInBytes);
+            return;
+        }
+
+        // referenced by the factory which built it until it is destroyed
+        Entry entry = new Entry(key, partitions.get(), sizeInBytes);
+        List<Entry> evicted = new ArrayList<>();
+        synchronized (this) {
+            if (!entries.containsKey(key) && evictUnused(maxSizeInBytes - sizeInBytes, evicted)) {
+                entries.put(key, entry);
+                entry.references++;
+                cachedBytes += sizeInBytes;
+            }
+        }
+        // registered only now, as the factory may already be destroyed and release the entry right away
+        lookupSourceFactory.isDestroyed().addListener(() -> release(entry), directExecutor());
+        evicted.forEach(this::release);
+    }
+
+    private void onMemoryReserved(MemoryPool memoryPool)
+    {
+        if (memoryPool.getFreeBytes() > 0) {
+            return;
+        }
+
+        List<Entry> evicted = new ArrayList<>();
+        synchronized (this) {
+            evictUnused(cachedBytes + memoryPool.getFreeBytes() - 1, evicted);
+        }
+        evicted.forEach(this::release);
+    }
+
+    /**
+     * Evicts the least recently used entries which are not in use until at most the given number of bytes is cached.
+     * The evicted entries have to be released by the caller, outside of the lock.
+     *
+     * @return true if the cache has been shrunk to the given size
+     */
+    @GuardedBy("this")
+    private boolean evictUnused(long targetBytes, List<Entry> evicted)
+    {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (cachedBytes > targetBytes && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.references == 1) {
+                iterator.remove();
+                cachedBytes -= entry.sizeInBytes;
+                evicted.add(entry);
+            }
+        }
+        return cachedBytes <= targetBytes;
+    }
+
+    private void release(Entry entry)
+    {
+        synchronized (this) {
+            entry.references--;
+            if (entry.references > 0) {
+                return;
+            }
+        }
+        memoryPool.freeNodeMemory(entry.sizeInBytes);
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getHits()
+    {
+        return hits;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getMisses()
+    {
+        return misses;
+    }
+
+    @Managed
+    public synchronized int getCachedEntries()
+    {
+        return entries.size();
+    }
+
+    @Managed
+    public synchronized long getCachedBytes()
+    {
+        return cachedBytes;
+    }
+
+    private static final class Entry
+    {
+        private final CacheKey key;
+        private final List<Supplier<LookupSource>> partitions;
+        private final long sizeInBytes;
+
+        @GuardedBy("BroadcastLookupSourceCache.this")
+        private int references = 1;
+
+        private Entry(CacheKey key, List<Supplier<LookupSource>> partitions, long sizeInBytes)
+        {
+            this.key = requireNonNull(key, "key is null");
+            this.partitions = ImmutableList.copyOf(requireNonNull(partitions, "partitions is null"));
+            this.sizeInBytes = sizeInBytes;
+        }
+
+        @Override
+        public String toString()
+        {
+            return toStringHelper(this)
+                    .add("key", key)
+                    .add("sizeInBytes", sizeInBytes)
+                    .toString();
+        }
+    }
+
+    public static final class CacheKey
+    {
+        private final String buildSideKey;
+        private final List<Type> types;
+        private final List<Integer> joinChannels;
+        private final List<Integer> outputChannels;
+        private final OptionalInt hashChannel;
+        private final int partitionCount;
+
+        public CacheKey(String buildSideKey, List<Type> types, List<Integer> joinChannels, List<Integer> outputChannels, OptionalInt hashChannel, int partitionCount)
+        {
+            this.buildSideKey = requireNonNull(buildSideKey, "buildSideKey is null");
+            this.types = ImmutableList.copyOf(requireNonNull(types, "types is null"));
+            this.joinChannels = ImmutableList.copyOf(requireNonNull(joinChannels, "joinChannels is null"));
+            this.outputChannels = ImmutableList.copyOf(requireNonNull(outputChannels, "outputChannels is null"));
+            this.hashChannel = requireNonNull(hashChannel, "hashChannel is null");
+            this.partitionCount = partitionCount;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            CacheKey that = (CacheKey) o;
+            return partitionCount == that.partitionCount &&
+                    buildSideKey.equals(that.buildSideKey) &&
+                    types.equals(that.types) &&
+                    joinChannels.equals(that.joinChannels) &&
+                    outputChannels.equals(that.outputChannels) &&
+                    hashChannel.equals(that.hashChannel);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(buildSideKey, types, joinChannels, outputChannels, hashChannel, partitionCount);
+        }
+
+        @Override
+        public String toString()
+        {
+            return toStringHelper(this)
+                    .add("buildSideKey", buildSideKey)
+                    .add("types", types)
+                    .add("joinChannels", joinChannels)
+                    .add("outputChannels", outputChannels)
+                    .add("hashChannel", hashChannel)
+                    .add("partitionCount", partitionCount)
+                    .toString();
+        }
+    }
+}
@@ -24,15 +24,21 @@ import io.prestosql.execution.Lifespan;
 import io.prestosql.execution.TaskId;
 import io.prestosql.memory.QueryContextVisitor;
 import io.prestosql.memory.context.MemoryTrackingContext;
+import io.prestosql.operator.DriverTimeline.BlockedInterval;
+import io.prestosql.operator.DriverTimeline.Quantum;
 import io.prestosql.operator.OperationTimer.OperationTiming;
 import io.prestosql.sql.planner.plan.PlanNodeId;
 import org.joda.time.DateTime;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -52,6 +58,8 @@ import static java.util.stream.Collectors.toList;
  */
 public class DriverContext
 {
+    private static final int MAX_TIMELINE_INTERVALS = 1_000;
+
     private final PipelineContext pipelineContext;
     private final Executor notificationExecutor;
     private final ScheduledExecutorService yieldExecutor;
@@ -79,12 +87,20 @@ public class DriverContext
     private final List<OperatorContext> operatorContexts = new CopyOnWriteArrayList<>();
     private final Lifespan lifespan;
 
+    private final boolean timelineSampled;
+    private final Queue<Quantum> timelineQuanta = new ConcurrentLinkedQueue<>();
+    private final Queue<BlockedInterval> timelineBlockedIntervals = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger timelineIntervals = new AtomicInteger();
+    private volatile long quantumStartNanos;
+    private volatile long quantumStartCpuNanos;
+
     public DriverContext(
             PipelineContext pipelineContext,
             Executor notificationExecutor,
             ScheduledExecutorService yieldExecutor,
             MemoryTrackingContext driverMemoryContext,
-            Lifespan lifespan)
+            Lifespan lifespan,
+            boolean timelineSampled)
     {
         this.pipelineContext = requireNonNull(pipelineContext, "pipelineContext is null");
         this.notificationExecutor = requireNonNull(notificationExecutor, "notificationExecutor is null");
@@ -92,6 +108,7 @@ public class DriverContext
         this.driverMemoryContext = requireNonNull(driverMemoryContext, "driverMemoryContext is null");
         this.lifespan = requireNonNull(lifespan, "lifespan is null");
         this.yieldSignal = new DriverYieldSignal();
+        this.timelineSampled = timelineSampled;
     }
 
     public TaskId getTaskId()
@@ -139,11 +156,33 @@ public class DriverContext
             pipelineContext.start();
             executionStartTime.set(DateTime.now());
         }
+        if (timelineSampled) {
+            quantumStartNanos = System.nanoTime();
+            quantumStartCpuNanos = overallTiming.getCpuNanos();
+        }
     }
 
     public void recordProcessed(OperationTimer operationTimer)
     {
         operationTimer.end(overallTiming);
+        if (timelineSampled && timelineIntervals.getAndIncrement() < MAX_TIMELINE_INTERVALS) {
+            timelineQuanta.add(new Quantum(
+                    toEpochMicros(quantumStartNanos),
+                    toEpochMicros(System.nanoTime()),
+                    NANOSECONDS.toMicros(overallTiming.getCpuNanos() - quantumStartCpuNanos)));
+        }
+    }
+
+    public boolean isTimelineSampled()
+    {
+        return timelineSampled;
+    }
+
+    public void recordOperatorBlocked(int operatorId, String operatorType, String reason, long startNanos, long endNanos)
+    {
+        if (timelineSampled && timelineIntervals.getAndIncrement() < MAX_TIMELINE_INTERVALS) {
+            timelineBlockedIntervals.add(new BlockedInterval(toEpochMicros(startNanos), toEpochMicros(endNanos), operatorId, operatorType, reason));
+        }
     }
 
     public void recordBlocked(ListenableFuture<?> blocked)
@@ -454,6 +493,26 @@ public class DriverContext
         return yieldExecutor;
     }
 
+    public Optional<DriverTimeline> getDriverTimeline()
+    {
+        if (!timelineSampled) {
+            return Optional.empty();
+        }
+        long startNanos = this.startNanos.get();
+        long endNanos = this.endNanos.get();
+        return Optional.of(new DriverTimeline(
+                toEpochMicros(createNanos),
+                startNanos == 0 ? null : toEpochMicros(startNanos),
+                endNanos == 0 ? null : toEpochMicros(endNanos),
+                ImmutableList.copyOf(timelineQuanta),
+                ImmutableList.copyOf(timelineBlockedIntervals)));
+    }
+
+    private long toEpochMicros(long nanos)
+    {
+        return MILLISECONDS.toMicros(createdTime.getMillis()) + NANOSECONDS.toMicros(nanos - createNanos);
+    }
+
     private static long nanosBetween(long start, long end)
     {
         return max(0, end - start);
@@ -0,0 +1,182 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.operator;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * When a sampled driver ran and why it did not, as the processing quanta it was
+ * given by the task executor and the intervals its operators were blocked.
+ * All times are microseconds since the epoch.
+ */
+@Immutable
+public class DriverTimeline
+{
+    private final long createTime;
+    private final Long startTime;
+    private final Long endTime;
+    private final List<Quantum> quanta;
+    private final List<BlockedInterval> blockedIntervals;
+
+    @JsonCreator
+    public DriverTimeline(
+            @JsonProperty("createTime") long createTime,
+            @JsonProperty("startTime") Long startTime,
+            @JsonProperty("endTime") Long endTime,
+            @JsonProperty("quanta") List<Quantum> quanta,
+            @JsonProperty("blockedIntervals") List<BlockedInterval> blockedIntervals)
+    {
+        this.createTime = createTime;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.quanta = ImmutableList.copyOf(requireNonNull(quanta, "quanta is null"));
+        this.blockedIntervals = ImmutableList.copyOf(requireNonNull(blockedIntervals, "blockedIntervals is null"));
+    }
+
+    @JsonProperty
+    public long getCreateTime()
+    {
+        return createTime;
+    }
+
+    @Nullable
+    @JsonProperty
+    public Long getStartTime()
+    {
+        return startTime;
+    }
+
+    @Nullable
+    @JsonProperty
+    public Long getEndTime()
+    {
+        return endTime;
+    }
+
+    @JsonProperty
+    public List<Quantum> getQuanta()
+    {
+        return quanta;
+    }
+
+    @JsonProperty
+    public List<BlockedInterval> getBlockedIntervals()
+    {
+        return blockedIntervals;
+    }
+
+    @Immutable
+    public static class Quantum
+    {
+        private final long startTime;
+        private final long endTime;
+        private final long cpuTime;
+
+        @JsonCreator
+        public Quantum(
+                @JsonProperty("startTime") long startTime,
+                @JsonProperty("endTime") long endTime,
+                @JsonProperty("cpuTime") long cpuTime)
+        {
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.cpuTime = cpuTime;
+        }
+
+        @JsonProperty
+        public long getStartTime()
+        {
+            return startTime;
+        }
+
+        @JsonProperty
+        public long getEndTime()
+        {
+            return endTime;
+        }
+
+        /**
+         * CPU time of the quantum in microseconds
+         */
+        @JsonProperty
+        public long getCpuTime()
+        {
+            return cpuTime;
+        }
+    }
+
+    @Immutable
+    public static class BlockedInterval
+    {
+        private final long startTime;
+        private final long endTime;
+        private final int operatorId;
+        private final String operatorType;
+        private final String reason;
+
+        @JsonCreator
+        public BlockedInterval(
+                @JsonProperty("startTime") long startTime,
+                @JsonProperty("endTime") long endTime,
+                @JsonProperty("operatorId") int operatorId,
+                @JsonProperty("operatorType") String operatorType,
+                @JsonProperty("reason") String reason)
+        {
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.operatorId = operatorId;
+            this.operatorType = requireNonNull(operatorType, "operatorType is null");
+            this.reason = requireNonNull(reason, "reason is null");
+        }
+
+        @JsonProperty
+        public long getStartTime()
+        {
+            return startTime;
+        }
+
+        @JsonProperty
+        public long getEndTime()
+        {
+            return endTime;
+        }
+
+        @JsonProperty
+        public int getOperatorId()
+        {
+            return operatorId;
+        }
+
+        @JsonProperty
+        public String getOperatorType()
+        {
+            return operatorType;
+        }
+
+        @JsonProperty
+        public String getReason()
+        {
+            return reason;
+        }
+    }
+}
@@ -16,10 +16,12 @@ package io.prestosql.operator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import io.airlift.units.DataSize;
+import io.prestosql.memory.context.LocalMemoryContext;
 import io.prestosql.operator.aggregation.TypedSet;
 import io.prestosql.spi.Page;
 import io.prestosql.spi.block.Block;
 import io.prestosql.spi.block.BlockBuilder;
+import io.prestosql.spi.predicate.BloomFilter;
 import io.prestosql.spi.predicate.Domain;
 import io.prestosql.spi.predicate.TupleDomain;
 import io.prestosql.spi.predicate.ValueSet;
@@ -30,6 +32,7 @@ import io.prestosql.sql.planner.plan.PlanNodeId;
 import javax.annotation.Nullable;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Consumer;
 
@@ -48,11 +51,16 @@ import static java.util.stream.Collectors.toSet;
  * The collected pages' value are used for creating a run-time filtering constraint (for probe-side table scan in an inner join).
  * We record all values for the run-time filter only for small build-side pages (which should be the case when using "broadcast" join).
  * For large inputs on build side, we can optionally record the min and max values per channel for orderable types (except Double and Real).
+ * Optionally, a bloom filter of all values is also collected per channel (except Double and Real), which remains selective
+ * for build sides with too many distinct values to be recorded exactly.
  */
 public class DynamicFilterSourceOperator
         implements Operator
 {
+    public static final double BLOOM_FILTER_MAX_FALSE_POSITIVE_PROBABILITY = 0.1;
+
     private static final int EXPECTED_BLOCK_BUILDER_SIZE = 8;
+    private static final int BLOOM_FILTER_BITS_PER_VALUE = 8;
 
     public static class Channel
     {
@@ -78,6 +86,8 @@ public class DynamicFilterSourceOperator
         private final int maxDisinctValues;
         private final DataSize maxFilterSize;
         private final int minMaxCollectionLimit;
+        private final Consumer<Map<DynamicFilterId, BloomFilter>> bloomFilterConsumer;
+        private final Optional<DataSize> bloomFilterMaxSize;
 
         private boolean closed;
 
@@ -89,6 +99,20 @@ public class DynamicFilterSourceOperator
                 int maxDisinctValues,
                 DataSize maxFilterSize,
                 int minMaxCollectionLimit)
+        {
+            this(operatorId, planNodeId, dynamicPredicateConsumer, channels, maxDisinctValues, maxFilterSize, minMaxCollectionLimit, bloomFilters -> {}, Optional.empty());
+        }
+
+        public DynamicFilterSourceOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                Consumer<TupleDomain<DynamicFilterId>> dynamicPredicateConsumer,
+                List<Channel> channels,
+                int maxDisinctValues,
+                DataSize maxFilterSize,
+                int minMaxCollectionLimit,
+                Consumer<Map<DynamicFilterId, BloomFilter>> bloomFilterConsumer,
+                Optional<DataSize> bloomFilterMaxSize)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -101,6 +125,8 @@ public class DynamicFilterSourceOperator
             this.maxDisinctValues = maxDisinctValues;
             this.maxFilterSize = maxFilterSize;
             this.minMaxCollectionLimit = minMaxCollectionLimit;
+            this.bloomFilterConsumer = requireNonNull(bloomFilterConsumer, "bloomFilterConsumer is null");
+            this.bloomFilterMaxSize = requireNonNull(bloomFilterMaxSize, "bloomFilterMaxSize is null");
         }
 
         @Override
@@ -114,7 +140,9 @@ public class DynamicFilterSourceOperator
                     planNodeId,
                     maxDisinctValues,
                     maxFilterSize,
-                    minMaxCollectionLimit);
+                    minMaxCollectionLimit,
+                    bloomFilterConsumer,
+                    bloomFilterMaxSize);
         }
 
         @Override
@@ -132,6 +160,7 @@ public class DynamicFilterSourceOperator
     }
 
     private final OperatorContext context;
+    private final LocalMemoryContext systemMemoryContext;
     private boolean finished;
     private Page current;
     private final Consumer<TupleDomain<DynamicFilterId>> dynamicPredicateConsumer;
@@ -153,6 +182,14 @@ public class DynamicFilterSourceOperator
     @Nullable
     private Block[] maxValues;
 
+    private final Consumer<Map<DynamicFilterId, BloomFilter>> bloomFilterConsumer;
+    private final List<Integer> bloomFilterChannels;
+    // Individual bloom filters are dropped once they are no longer selective.
+    @Nullable
+    private BloomFilter.Builder[] bloomFilterBuilders;
+    private long bloomFilterPositions;
+    private long nextBloomFilterCheckPositions;
+
     private DynamicFilterSourceOperator(
             OperatorContext context,
             Consumer<TupleDomain<DynamicFilterId>> dynamicPredicateConsumer,
@@ -160,9 +197,12 @@ public class DynamicFilterSourceOperator
             PlanNodeId planNodeId,
             int maxDistinctValues,
             DataSize maxFilterSize,
-            int minMaxCollectionLimit)
+            int minMaxCollectionLimit,
+            Consumer<Map<DynamicFilterId, BloomFilter>> bloomFilterConsumer,
+            Optional<DataSize> bloomFilterMaxSize)
     {
         this.context = requireNonNull(context, "context is null");
+        this.systemMemoryContext = context.newLocalSystemMemoryContext(DynamicFilterSourceOperator.class.getSimpleName());
         this.maxDistinctValues = maxDistinctValues;
         this.maxFilterSizeInBytes = maxFilterSize.toBytes();
 
@@ -194,6 +234,23 @@ public class DynamicFilterSourceOperator
             this.minValues = new Block[channels.size()];
             this.maxValues = new Block[channels.size()];
         }
+
+        this.bloomFilterConsumer = requireNonNull(bloomFilterConsumer, "bloomFilterConsumer is null");
+        ImmutableList.Builder<Integer> bloomFilterChannelsBuilder = ImmutableList.builder();
+        if (bloomFilterMaxSize.isPresent()) {
+            this.bloomFilterBuilders = new BloomFilter.Builder[channels.size()];
+            for (int channelIndex = 0; channelIndex < channels.size(); ++channelIndex) {
+                Type type = channels.get(channelIndex).type;
+                // Skipping DOUBLE and REAL, as values which are equal (e.g. 0.0 and -0.0) may have different hashes
+                if (type.isComparable() && type != DOUBLE && type != REAL) {
+                    bloomFilterChannelsBuilder.add(channelIndex);
+                    bloomFilterBuilders[channelIndex] = BloomFilter.builder(bloomFilterMaxSize.get().toBytes());
+                }
+            }
+            this.nextBloomFilterCheckPositions = bloomFilterMaxSize.get().toBytes() * Byte.SIZE / BLOOM_FILTER_BITS_PER_VALUE;
+        }
+        this.bloomFilterChannels = bloomFilterChannelsBuilder.build();
+        updateMemoryUsage();
     }
 
     @Override
@@ -213,6 +270,15 @@ public class DynamicFilterSourceOperator
     {
         verify(!finished, "DynamicFilterSourceOperator: addInput() may not be called after finish()");
         current = page;
+        if (bloomFilterBuilders != null) {
+            updateBloomFilters(page);
+        }
+        collectValues(page);
+        updateMemoryUsage();
+    }
+
+    private void collectValues(Page page)
+    {
         if (valueSets == null) {
             if (minValues == null) {
                 // there are too many rows to collect min/max range
@@ -231,7 +297,6 @@ public class DynamicFilterSourceOperator
             return;
         }
         minMaxCollectionLimit -= page.getPositionCount();
-        // TODO: we should account for the memory used for collecting build-side values using MemoryContext
         long filterSizeInBytes = 0;
         int filterMaxDistinctValues = 0;
         // Collect only the columns which are relevant for the JOIN.
@@ -250,6 +315,54 @@ public class DynamicFilterSourceOperator
         }
     }
 
+    private void updateBloomFilters(Page page)
+    {
+        for (Integer channelIndex : bloomFilterChannels) {
+            BloomFilter.Builder bloomFilterBuilder = bloomFilterBuilders[channelIndex];
+            if (bloomFilterBuilder == null) {
+                continue;
+            }
+            Type type = channels.get(channelIndex).type;
+            Block block = page.getBlock(channels.get(channelIndex).index);
+            for (int position = 0; position < block.getPositionCount(); ++position) {
+                if (!block.isNull(position)) {
+                    bloomFilterBuilder.add(type, block, position);
+                }
+            }
+        }
+
+        bloomFilterPositions += page.getPositionCount();
+        if (bloomFilterPositions >= nextBloomFilterCheckPositions) {
+            // Checking the false positive probability requires a pass over the filter, so only do it when the number of positions doubles.
+            // The number of positions is an upper bound of the number of distinct values.
+            nextBloomFilterCheckPositions *= 2;
+            for (Integer channelIndex : bloomFilterChannels) {
+                BloomFilter.Builder bloomFilterBuilder = bloomFilterBuilders[channelIndex];
+                if (bloomFilterBuilder != null && bloomFilterBuilder.getEstimatedFalsePositiveProbability() > BLOOM_FILTER_MAX_FALSE_POSITIVE_PROBABILITY) {
+                    bloomFilterBuilders[channelIndex] = null;
+                }
+            }
+        }
+    }
+
+    private void updateMemoryUsage()
+    {
+        long sizeInBytes = 0;
+        if (valueSets != null) {
+            for (TypedSet valueSet : valueSets) {
+                sizeInBytes += valueSet.getRetainedSizeInBytes();
+            }
+        }
+        if (bloomFilterBuilders != null) {
+            for (BloomFilter.Builder bloomFilterBuilder : bloomFilterBuilders) {
+                if (bloomFilterBuilder != null) {
+                    sizeInBytes += bloomFilterBuilder.getSizeInBytes();
+                }
+            }
+        }
+        systemMemoryContext.setBytes(sizeInBytes);
+    }
+
     private void handleTooLargePredicate()
     {
         // The resulting predicate is too large
@@ -346,6 +459,13 @@ public class DynamicFilterSourceOperator
             return;
         }
         finished = true;
+        publishDomains();
+        publishBloomFilters();
+        systemMemoryContext.setBytes(0);
+    }
+
+    private void publishDomains()
+    {
         ImmutableMap.Builder<DynamicFilterId, Domain> domainsBuilder = new ImmutableMap.Builder<>();
         if (valueSets == null) {
             if (minValues == null) {
@@ -384,6 +504,22 @@ public class DynamicFilterSourceOperator
         dynamicPredicateConsumer.accept(TupleDomain.withColumnDomains(domainsBuilder.build()));
     }
 
+    private void publishBloomFilters()
+    {
+        // Bloom filters are always published (even when empty), so that consumers can tell when all build-side partitions are done.
+        ImmutableMap.Builder<DynamicFilterId, BloomFilter> bloomFilters = ImmutableMap.builder();
+        if (bloomFilterBuilders != null) {
+            for (Integer channelIndex : bloomFilterChannels) {
+                BloomFilter.Builder bloomFilterBuilder = bloomFilterBuilders[channelIndex];
+                if (bloomFilterBuilder != null && bloomFilterBuilder.getEstimatedFalsePositiveProbability() <= BLOOM_FILTER_MAX_FALSE_POSITIVE_PROBABILITY) {
+                    bloomFilters.put(channels.get(channelIndex).filterId, bloomFilterBuilder.build());
+                }
+            }
+            bloomFilterBuilders = null;
+        }
+        bloomFilterConsumer.accept(bloomFilters.build());
+    }
+
     private Domain convertToDomain(Type type, Block block)
     {
         ImmutableList.Builder<Object> values = ImmutableList.builder();
@@ -406,4 +542,13 @@ public class DynamicFilterSourceOperator
     {
         return current == null && finished;
     }
+
+    @Override
+    public void close()
+    {
+        valueSets = null;
+        blockBuilders = null;
+        bloomFilterBuilders = null;
+        systemMemoryContext.close();
+    }
 }
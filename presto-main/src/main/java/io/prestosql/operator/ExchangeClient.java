@@ -14,13 +14,16 @@
 package io.prestosql.operator;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 import io.airlift.http.client.HttpClient;
 import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
+import io.prestosql.execution.LocalTaskResults;
 import io.prestosql.execution.buffer.PageCodecMarker;
+import io.prestosql.execution.buffer.PageCompressionCodec;
 import io.prestosql.execution.buffer.SerializedPage;
 import io.prestosql.memory.context.LocalMemoryContext;
 import io.prestosql.operator.HttpPageBufferClient.ClientCallback;
@@ -37,10 +40,12 @@ import java.util.ArrayList;
 import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -61,10 +66,12 @@ public class ExchangeClient
     private final String selfAddress;
     private final DataIntegrityVerification dataIntegrityVerification;
     private final long bufferCapacity;
+    private final DataSize minResponseSize;
     private final DataSize maxResponseSize;
     private final int concurrentRequestMultiplier;
     private final Duration maxErrorDuration;
     private final boolean acknowledgePages;
+    private final Optional<LocalTaskResults> localTaskResults;
     private final HttpClient httpClient;
     private final ScheduledExecutorService scheduler;
 
@@ -90,12 +97,19 @@ public class ExchangeClient
     private long successfulRequests;
     @GuardedBy("this")
     private long averageBytesPerRequest;
+    @GuardedBy("this")
+    private final long[] codecPages = new long[PageCompressionCodec.values().length];
+    @GuardedBy("this")
+    private final long[] codecSizeInBytes = new long[PageCompressionCodec.values().length];
+    @GuardedBy("this")
+    private final long[] codecUncompressedSizeInBytes = new long[PageCompressionCodec.values().length];
 
     private final AtomicBoolean closed = new AtomicBoolean();
     private final AtomicReference<Throwable> failure = new AtomicReference<>();
 
     private final LocalMemoryContext systemMemoryContext;
     private final Executor pageBufferClientCallbackExecutor;
+    private final Optional<ExecutorService> streamingExecutor;
 
     // ExchangeClientStatus.mergeWith assumes all clients have the same bufferCapacity.
     // Please change that method accordingly when this assumption becomes not true.
@@ -103,27 +117,33 @@ public class ExchangeClient
             String selfAddress,
             DataIntegrityVerification dataIntegrityVerification,
             DataSize bufferCapacity,
+            DataSize minResponseSize,
             DataSize maxResponseSize,
             int concurrentRequestMultiplier,
             Duration maxErrorDuration,
             boolean acknowledgePages,
+            Optional<LocalTaskResults> localTaskResults,
             HttpClient httpClient,
             ScheduledExecutorService scheduler,
             LocalMemoryContext systemMemoryContext,
-            Executor pageBufferClientCallbackExecutor)
+            Executor pageBufferClientCallbackExecutor,
+            Optional<ExecutorService> streamingExecutor)
     {
         this.selfAddress = requireNonNull(selfAddress, "selfAddress is null");
         this.dataIntegrityVerification = requireNonNull(dataIntegrityVerification, "dataIntegrityVerification is null");
         this.bufferCapacity = bufferCapacity.toBytes();
+        this.minResponseSize = minResponseSize;
         this.maxResponseSize = maxResponseSize;
         this.concurrentRequestMultiplier = concurrentRequestMultiplier;
         this.maxErrorDuration = maxErrorDuration;
         this.acknowledgePages = acknowledgePages;
+        this.localTaskResults = requireNonNull(localTaskResults, "localTaskResults is null");
         this.httpClient = httpClient;
         this.scheduler = scheduler;
         this.systemMemoryContext = systemMemoryContext;
         this.maxBufferRetainedSizeInBytes = Long.MIN_VALUE;
         this.pageBufferClientCallbackExecutor = requireNonNull(pageBufferClientCallbackExecutor, "pageBufferClientCallbackExecutor is null");
+        this.streamingExecutor = requireNonNull(streamingExecutor, "streamingExecutor is null");
     }
 
     public ExchangeClientStatus getStatus()
@@ -136,12 +156,23 @@ public class ExchangeClient
             pageBufferClientStatusBuilder.add(client.getStatus());
         }
         List<PageBufferClientStatus> pageBufferClientStatus = pageBufferClientStatusBuilder.build();
+        long averageSourceBytesPerSecond = (long) pageBufferClientStatus.stream()
+                .filter(status -> status.getBytesReceived() > 0)
+                .mapToLong(PageBufferClientStatus::getBytesPerSecond)
+                .average()
+                .orElse(0);
         synchronized (this) {
             int bufferedPages = pageBuffer.size();
             if (bufferedPages > 0 && pageBuffer.peekLast() == NO_MORE_PAGES) {
                 bufferedPages--;
             }
-            return new ExchangeClientStatus(bufferRetainedSizeInBytes, maxBufferRetainedSizeInBytes, averageBytesPerRequest, successfulRequests, bufferedPages, noMoreLocations, pageBufferClientStatus);
+            ImmutableMap.Builder<PageCompressionCodec, PageCodecStatus> codecStatuses = ImmutableMap.builder();
+            for (PageCompressionCodec codec : PageCompressionCodec.values()) {
+                if (codecPages[codec.ordinal()] > 0) {
+                    codecStatuses.put(codec, new PageCodecStatus(codecPages[codec.ordinal()], codecSizeInBytes[codec.ordinal()], codecUncompressedSizeInBytes[codec.ordinal()]));
+                }
+            }
+            return new ExchangeClientStatus(bufferRetainedSizeInBytes, maxBufferRetainedSizeInBytes, averageBytesPerRequest, successfulRequests, averageSourceBytesPerSecond, bufferedPages, noMoreLocations, pageBufferClientStatus, codecStatuses.build());
         }
     }
 
@@ -166,13 +197,16 @@ public class ExchangeClient
                 selfAddress,
                 httpClient,
                 dataIntegrityVerification,
+                minResponseSize,
                 maxResponseSize,
                 maxErrorDuration,
                 acknowledgePages,
                 location,
+                localTaskResults.flatMap(results -> results.getLocalBuffer(location)),
                 new ExchangeClientCallback(),
                 scheduler,
-                pageBufferClientCallbackExecutor);
+                pageBufferClientCallbackExecutor,
+                streamingExecutor);
         allClients.put(location, client);
         queuedClients.add(client);
 
@@ -318,7 +352,7 @@ public class ExchangeClient
                 // no more clients available
                 return;
             }
-            client.scheduleRequest();
+            client.scheduleRequest(neededBytes);
         }
     }
 
@@ -354,9 +388,14 @@ public class ExchangeClient
         systemMemoryContext.setBytes(bufferRetainedSizeInBytes);
         successfulRequests++;
 
-        long responseSize = pages.stream()
-                .mapToLong(SerializedPage::getSizeInBytes)
-                .sum();
+        long responseSize = 0;
+        for (SerializedPage page : pages) {
+            int codec = page.getCompressionCodec().ordinal();
+            codecPages[codec]++;
+            codecSizeInBytes[codec] += page.getSizeInBytes();
+            codecUncompressedSizeInBytes[codec] += page.getUncompressedSizeInBytes();
+            responseSize += page.getSizeInBytes();
+        }
         // AVG_n = AVG_(n-1) * (n-1)/n + VALUE_n / n
         averageBytesPerRequest = (long) (1.0 * averageBytesPerRequest * (successfulRequests - 1) / successfulRequests + responseSize / successfulRequests);
 
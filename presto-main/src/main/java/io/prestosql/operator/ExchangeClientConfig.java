@@ -33,9 +33,14 @@ public class ExchangeClientConfig
     private Duration minErrorDuration = new Duration(1, TimeUnit.MINUTES);
     private Duration maxErrorDuration = new Duration(5, TimeUnit.MINUTES);
     private DataSize maxResponseSize = new HttpClientConfig().getMaxContentLength();
+    private boolean adaptiveResponseSizeEnabled;
+    private DataSize minResponseSize = DataSize.of(1, Unit.MEGABYTE);
     private int clientThreads = 25;
     private int pageBufferClientMaxCallbackThreads = 25;
     private boolean acknowledgePages = true;
+    private boolean localTaskResultsEnabled = true;
+    private boolean streamingEnabled;
+    private int maxConcurrentStreams = 50;
 
     @NotNull
     public DataSize getMaxBufferSize()
@@ -104,6 +109,32 @@ public class ExchangeClientConfig
         return this;
     }
 
+    public boolean isAdaptiveResponseSizeEnabled()
+    {
+        return adaptiveResponseSizeEnabled;
+    }
+
+    @Config("exchange.adaptive-response-size-enabled")
+    public ExchangeClientConfig setAdaptiveResponseSizeEnabled(boolean adaptiveResponseSizeEnabled)
+    {
+        this.adaptiveResponseSizeEnabled = adaptiveResponseSizeEnabled;
+        return this;
+    }
+
+    @NotNull
+    @MinDataSize("1kB")
+    public DataSize getMinResponseSize()
+    {
+        return minResponseSize;
+    }
+
+    @Config("exchange.min-response-size")
+    public ExchangeClientConfig setMinResponseSize(DataSize minResponseSize)
+    {
+        this.minResponseSize = minResponseSize;
+        return this;
+    }
+
     @Min(1)
     public int getClientThreads()
     {
@@ -141,4 +172,41 @@ public class ExchangeClientConfig
         this.acknowledgePages = acknowledgePages;
         return this;
     }
+
+    public boolean isLocalTaskResultsEnabled()
+    {
+        return localTaskResultsEnabled;
+    }
+
+    @Config("exchange.local-task-results-enabled")
+    public ExchangeClientConfig setLocalTaskResultsEnabled(boolean localTaskResultsEnabled)
+    {
+        this.localTaskResultsEnabled = localTaskResultsEnabled;
+        return this;
+    }
+
+    public boolean isStreamingEnabled()
+    {
+        return streamingEnabled;
+    }
+
+    @Config("exchange.streaming-enabled")
+    public ExchangeClientConfig setStreamingEnabled(boolean streamingEnabled)
+    {
+        this.streamingEnabled = streamingEnabled;
+        return this;
+    }
+
+    @Min(1)
+    public int getMaxConcurrentStreams()
+    {
+        return maxConcurrentStreams;
+    }
+
+    @Config("exchange.max-concurrent-streams")
+    public ExchangeClientConfig setMaxConcurrentStreams(int maxConcurrentStreams)
+    {
+        this.maxConcurrentStreams = maxConcurrentStreams;
+        return this;
+    }
 }
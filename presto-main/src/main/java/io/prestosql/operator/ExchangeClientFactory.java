@@ -18,6 +18,7 @@ import io.airlift.http.client.HttpClient;
 import io.airlift.node.NodeInfo;
 import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
+import io.prestosql.execution.LocalTaskResults;
 import io.prestosql.memory.context.LocalMemoryContext;
 import io.prestosql.sql.analyzer.FeaturesConfig;
 import io.prestosql.sql.analyzer.FeaturesConfig.DataIntegrityVerification;
@@ -27,14 +28,18 @@ import org.weakref.jmx.Nested;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 
+import java.util.Optional;
+import java.util.OptionalInt;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 public class ExchangeClientFactory
         implements ExchangeClientSupplier
@@ -45,17 +50,21 @@ public class ExchangeClientFactory
     private final int concurrentRequestMultiplier;
     private final Duration maxErrorDuration;
     private final HttpClient httpClient;
+    private final DataSize minResponseSize;
     private final DataSize maxResponseSize;
     private final boolean acknowledgePages;
+    private final Optional<LocalTaskResults> localTaskResults;
     private final ScheduledExecutorService scheduler;
     private final ThreadPoolExecutorMBean executorMBean;
     private final ExecutorService pageBufferClientCallbackExecutor;
+    private final Optional<ExecutorService> streamingExecutor;
 
     @Inject
     public ExchangeClientFactory(
             NodeInfo nodeInfo,
             FeaturesConfig featuresConfig,
             ExchangeClientConfig config,
+            LocalTaskResults localTaskResults,
             @ForExchange HttpClient httpClient,
             @ForExchange ScheduledExecutorService scheduler)
     {
@@ -63,11 +72,14 @@ public class ExchangeClientFactory
                 nodeInfo,
                 featuresConfig.getExchangeDataIntegrityVerification(),
                 config.getMaxBufferSize(),
+                config.isAdaptiveResponseSizeEnabled() ? Optional.of(config.getMinResponseSize()) : Optional.empty(),
                 config.getMaxResponseSize(),
                 config.getConcurrentRequestMultiplier(),
                 config.getMaxErrorDuration(),
                 config.isAcknowledgePages(),
                 config.getPageBufferClientMaxCallbackThreads(),
+                config.isLocalTaskResultsEnabled() ? Optional.of(localTaskResults) : Optional.empty(),
+                config.isStreamingEnabled() ? OptionalInt.of(config.getMaxConcurrentStreams()) : OptionalInt.empty(),
                 httpClient,
                 scheduler);
     }
@@ -76,11 +88,14 @@ public class ExchangeClientFactory
             NodeInfo nodeInfo,
             DataIntegrityVerification dataIntegrityVerification,
             DataSize maxBufferedBytes,
+            Optional<DataSize> minResponseSize,
             DataSize maxResponseSize,
             int concurrentRequestMultiplier,
             Duration maxErrorDuration,
             boolean acknowledgePages,
             int pageBufferClientMaxCallbackThreads,
+            Optional<LocalTaskResults> localTaskResults,
+            OptionalInt maxConcurrentStreams,
             HttpClient httpClient,
             ScheduledExecutorService scheduler)
     {
@@ -90,6 +105,7 @@ public class ExchangeClientFactory
         this.concurrentRequestMultiplier = concurrentRequestMultiplier;
         this.maxErrorDuration = requireNonNull(maxErrorDuration, "maxErrorDuration is null");
         this.acknowledgePages = acknowledgePages;
+        this.localTaskResults = requireNonNull(localTaskResults, "localTaskResults is null");
         this.httpClient = requireNonNull(httpClient, "httpClient is null");
 
         // Use only 0.75 of the maxResponseSize to leave room for additional bytes from the encoding
@@ -97,11 +113,23 @@ public class ExchangeClientFactory
         requireNonNull(maxResponseSize, "maxResponseSize is null");
         long maxResponseSizeBytes = (long) (Math.min(httpClient.getMaxContentLength(), maxResponseSize.toBytes()) * 0.75);
         this.maxResponseSize = DataSize.ofBytes(maxResponseSizeBytes);
+        // without adaptive sizing every request asks for the maximum response size
+        requireNonNull(minResponseSize, "minResponseSize is null");
+        this.minResponseSize = DataSize.ofBytes(Math.min(minResponseSize.map(DataSize::toBytes).orElse(maxResponseSizeBytes), maxResponseSizeBytes));
 
         this.scheduler = requireNonNull(scheduler, "scheduler is null");
 
         this.pageBufferClientCallbackExecutor = newFixedThreadPool(pageBufferClientMaxCallbackThreads, daemonThreadsNamed("page-buffer-client-callback-%s"));
         this.executorMBean = new ThreadPoolExecutorMBean((ThreadPoolExecutor) pageBufferClientCallbackExecutor);
+        // a streamed response is read by a thread for as long as the response lasts, so once all
+        // threads are busy, the stream is rejected and the source is read with a regular request
+        requireNonNull(maxConcurrentStreams, "maxConcurrentStreams is null");
+        if (maxConcurrentStreams.isPresent()) {
+            this.streamingExecutor = Optional.of(new ThreadPoolExecutor(0, maxConcurrentStreams.getAsInt(), 60, SECONDS, new SynchronousQueue<>(), daemonThreadsNamed("exchange-stream-%s")));
+        }
+        else {
+            this.streamingExecutor = Optional.empty();
+        }
 
         checkArgument(maxBufferedBytes.toBytes() > 0, "maxBufferSize must be at least 1 byte: %s", maxBufferedBytes);
         checkArgument(maxResponseSize.toBytes() > 0, "maxResponseSize must be at least 1 byte: %s", maxResponseSize);
@@ -112,6 +140,7 @@ public class ExchangeClientFactory
     public void stop()
     {
         pageBufferClientCallbackExecutor.shutdownNow();
+        streamingExecutor.ifPresent(ExecutorService::shutdownNow);
     }
 
     @Managed
@@ -128,13 +157,16 @@ public class ExchangeClientFactory
                 nodeInfo.getExternalAddress(),
                 dataIntegrityVerification,
                 maxBufferedBytes,
+                minResponseSize,
                 maxResponseSize,
                 concurrentRequestMultiplier,
                 maxErrorDuration,
                 acknowledgePages,
+                localTaskResults,
                 httpClient,
                 scheduler,
                 systemMemoryContext,
-                pageBufferClientCallbackExecutor);
+                pageBufferClientCallbackExecutor,
+                streamingExecutor);
     }
 }
@@ -16,9 +16,13 @@ package io.prestosql.operator;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.prestosql.execution.buffer.PageCompressionCodec;
 import io.prestosql.util.Mergeable;
 
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static java.util.Objects.requireNonNull;
@@ -30,9 +34,11 @@ public class ExchangeClientStatus
     private final long maxBufferedBytes;
     private final long averageBytesPerRequest;
     private final long successfulRequestsCount;
+    private final long averageSourceBytesPerSecond;
     private final int bufferedPages;
     private final boolean noMoreLocations;
     private final List<PageBufferClientStatus> pageBufferClientStatuses;
+    private final Map<PageCompressionCodec, PageCodecStatus> codecStatuses;
 
     @JsonCreator
     public ExchangeClientStatus(
@@ -40,17 +46,21 @@ public class ExchangeClientStatus
             @JsonProperty("maxBufferedBytes") long maxBufferedBytes,
             @JsonProperty("averageBytesPerRequest") long averageBytesPerRequest,
             @JsonProperty("successfulRequestsCount") long successFullRequestsCount,
+            @JsonProperty("averageSourceBytesPerSecond") long averageSourceBytesPerSecond,
             @JsonProperty("bufferedPages") int bufferedPages,
             @JsonProperty("noMoreLocations") boolean noMoreLocations,
-            @JsonProperty("pageBufferClientStatuses") List<PageBufferClientStatus> pageBufferClientStatuses)
+            @JsonProperty("pageBufferClientStatuses") List<PageBufferClientStatus> pageBufferClientStatuses,
+            @JsonProperty("codecStatuses") Map<PageCompressionCodec, PageCodecStatus> codecStatuses)
     {
         this.bufferedBytes = bufferedBytes;
         this.maxBufferedBytes = maxBufferedBytes;
         this.averageBytesPerRequest = averageBytesPerRequest;
         this.successfulRequestsCount = successFullRequestsCount;
+        this.averageSourceBytesPerSecond = averageSourceBytesPerSecond;
         this.bufferedPages = bufferedPages;
         this.noMoreLocations = noMoreLocations;
         this.pageBufferClientStatuses = ImmutableList.copyOf(requireNonNull(pageBufferClientStatuses, "pageBufferClientStatuses is null"));
+        this.codecStatuses = ImmutableMap.copyOf(requireNonNull(codecStatuses, "codecStatuses is null"));
     }
 
     @JsonProperty
@@ -77,6 +87,15 @@ public class ExchangeClientStatus
         return successfulRequestsCount;
     }
 
+    /**
+     * Average effective bandwidth of the sources of this exchange.
+     */
+    @JsonProperty
+    public long getAverageSourceBytesPerSecond()
+    {
+        return averageSourceBytesPerSecond;
+    }
+
     @JsonProperty
     public int getBufferedPages()
     {
@@ -95,6 +114,12 @@ public class ExchangeClientStatus
         return pageBufferClientStatuses;
     }
 
+    @JsonProperty
+    public Map<PageCompressionCodec, PageCodecStatus> getCodecStatuses()
+    {
+        return codecStatuses;
+    }
+
     @Override
     public boolean isFinal()
     {
@@ -109,9 +134,11 @@ public class ExchangeClientStatus
                 .add("maxBufferedBytes", maxBufferedBytes)
                 .add("averageBytesPerRequest", averageBytesPerRequest)
                 .add("successfulRequestsCount", successfulRequestsCount)
+                .add("averageSourceBytesPerSecond", averageSourceBytesPerSecond)
                 .add("bufferedPages", bufferedPages)
                 .add("noMoreLocations", noMoreLocations)
                 .add("pageBufferClientStatuses", pageBufferClientStatuses)
+                .add("codecStatuses", codecStatuses)
                 .toString();
     }
 
@@ -123,9 +150,19 @@ public class ExchangeClientStatus
                 Math.max(maxBufferedBytes, other.maxBufferedBytes),
                 mergeAvgs(averageBytesPerRequest, successfulRequestsCount, other.averageBytesPerRequest, other.successfulRequestsCount),
                 successfulRequestsCount + other.successfulRequestsCount,
+                mergeAvgs(averageSourceBytesPerSecond, successfulRequestsCount, other.averageSourceBytesPerSecond, other.successfulRequestsCount),
                 bufferedPages + other.bufferedPages,
                 noMoreLocations && other.noMoreLocations, // if at least one has some locations, mergee has some too
-                ImmutableList.of()); // pageBufferClientStatuses may be long, so we don't want to combine the lists
+                ImmutableList.of(), // pageBufferClientStatuses may be long, so we don't want to combine the lists
+                mergeCodecStatuses(codecStatuses, other.codecStatuses));
+    }
+
+    private static Map<PageCompressionCodec, PageCodecStatus> mergeCodecStatuses(Map<PageCompressionCodec, PageCodecStatus> first, Map<PageCompressionCodec, PageCodecStatus> second)
+    {
+        Map<PageCompressionCodec, PageCodecStatus> merged = new EnumMap<>(PageCompressionCodec.class);
+        merged.putAll(first);
+        second.forEach((codec, status) -> merged.merge(codec, status, PageCodecStatus::mergeWith));
+        return merged;
     }
 
     private static long mergeAvgs(long value1, long count1, long value2, long count2)
@@ -17,20 +17,26 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Ordering;
+import io.prestosql.array.LongBigArray;
 import io.prestosql.array.ObjectBigArray;
 import io.prestosql.spi.Page;
 import io.prestosql.spi.PageBuilder;
 import io.prestosql.spi.type.Type;
+import io.prestosql.sql.planner.plan.TopNRowNumberNode.RankingFunction;
 import it.unimi.dsi.fastutil.ints.IntArrayFIFOQueue;
 import it.unimi.dsi.fastutil.ints.IntIterator;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectHeapPriorityQueue;
 import org.openjdk.jol.info.ClassLayout;
 
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 import java.util.stream.IntStream;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
@@ -40,10 +46,14 @@ import static com.google.common.base.Verify.verify;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static io.airlift.slice.SizeOf.sizeOf;
 import static io.prestosql.spi.type.BigintType.BIGINT;
+import static io.prestosql.sql.planner.plan.TopNRowNumberNode.RankingFunction.RANK;
+import static io.prestosql.sql.planner.plan.TopNRowNumberNode.RankingFunction.ROW_NUMBER;
 import static java.util.Objects.requireNonNull;
 
 /**
  * This class finds the top N rows defined by {@param comparator} for each group specified by {@param groupByHash}.
+ * For {@code rank()} and {@code dense_rank()} the rows whose rank is at most N are kept, which includes the rows
+ * tied with the N-th row.
  */
 public class GroupedTopNBuilder
 {
@@ -52,12 +62,13 @@ public class GroupedTopNBuilder
     private static final int COMPACT_THRESHOLD = 2;
 
     private final List<Type> sourceTypes;
+    private final RankingFunction rankingFunction;
     private final int topN;
     private final boolean produceRowNumber;
     private final GroupByHash groupByHash;
 
-    // a map of heaps, each of which records the top N rows
-    private final ObjectBigArray<RowHeap> groupedRows = new ObjectBigArray<>();
+    // a map of heaps (or peer groups for rank functions), each of which records the top N rows
+    private final ObjectBigArray<TopRows> groupedRows = new ObjectBigArray<>();
     // a list of input pages, each of which has information of which row in which heap references which position
     private final ObjectBigArray<PageReference> pageReferences = new ObjectBigArray<>();
     // for heap element comparison
@@ -72,11 +83,13 @@ public class GroupedTopNBuilder
     public GroupedTopNBuilder(
             List<Type> sourceTypes,
             PageWithPositionComparator comparator,
+            RankingFunction rankingFunction,
             int topN,
             boolean produceRowNumber,
             GroupByHash groupByHash)
     {
         this.sourceTypes = requireNonNull(sourceTypes, "sourceTypes is null");
+        this.rankingFunction = requireNonNull(rankingFunction, "rankingFunction is null");
         checkArgument(topN > 0, "topN must be > 0");
         this.topN = topN;
         this.produceRowNumber = produceRowNumber;
@@ -148,14 +161,24 @@ public class GroupedTopNBuilder
 
         // update the affected heaps and record candidate pages that need compaction
         IntSet pagesToCompact = new IntOpenHashSet();
+        Consumer<Row> evictedRowConsumer = previousRow -> {
+            PageReference previousPageReference = pageReferences.get(previousRow.getPageId());
+            previousPageReference.dereference(previousRow.getPosition());
+
+            // compact a page if it is not the current input page and the reference count is below the threshold
+            if (previousPageReference.getPage() != newPage &&
+                    previousPageReference.getUsedPositionCount() * COMPACT_THRESHOLD < previousPageReference.getPage().getPositionCount()) {
+                pagesToCompact.add(previousRow.getPageId());
+            }
+        };
         for (int position = 0; position < newPage.getPositionCount(); position++) {
             long groupId = groupIds.getGroupId(position);
             groupedRows.ensureCapacity(groupId + 1);
 
-            RowHeap rows = groupedRows.get(groupId);
+            TopRows rows = groupedRows.get(groupId);
             if (rows == null) {
                 // a new group
-                rows = new RowHeap(Ordering.from(comparator).reversed());
+                rows = createTopRows();
                 groupedRows.set(groupId, rows);
             }
             else {
@@ -164,30 +187,9 @@ public class GroupedTopNBuilder
                 memorySizeInBytes -= rows.getEstimatedSizeInBytes();
             }
 
-            if (rows.size() < topN) {
-                // still have space for the current group
-                Row row = new Row(newPageId, position);
-                rows.enqueue(row);
-                newPageReference.reference(row);
-            }
-            else {
-                // may compare with the topN-th element with in the heap to decide if update is necessary
-                Row previousRow = rows.first();
-                Row newRow = new Row(newPageId, position);
-                if (comparator.compare(newRow, previousRow) < 0) {
-                    // update reference and the heap
-                    rows.dequeue();
-                    PageReference previousPageReference = pageReferences.get(previousRow.getPageId());
-                    previousPageReference.dereference(previousRow.getPosition());
-                    newPageReference.reference(newRow);
-                    rows.enqueue(newRow);
-
-                    // compact a page if it is not the current input page and the reference count is below the threshold
-                    if (previousPageReference.getPage() != newPage &&
-                            previousPageReference.getUsedPositionCount() * COMPACT_THRESHOLD < previousPageReference.getPage().getPositionCount()) {
-                        pagesToCompact.add(previousRow.getPageId());
-                    }
-                }
+            Row newRow = new Row(newPageId, position);
+            if (rows.add(newRow, evictedRowConsumer)) {
+                newPageReference.reference(newRow);
             }
 
             memorySizeInBytes += rows.getEstimatedSizeInBytes();
@@ -227,6 +229,14 @@ public class GroupedTopNBuilder
         }
     }
 
+    private TopRows createTopRows()
+    {
+        if (rankingFunction == ROW_NUMBER) {
+            return new RowHeap(Ordering.from(comparator).reversed(), topN);
+        }
+        return new PeerGroups(comparator, rankingFunction, topN);
+    }
+
     /**
      * The class is a pointer to a row in a page.
      * The actual position in the page is mutable because as pages are compacted, the position will change.
@@ -363,24 +373,203 @@ public class GroupedTopNBuilder
         }
     }
 
+    /**
+     * The top rows of a single group.
+     */
+    private interface TopRows
+    {
+        /**
+         * Adds the row if it belongs to the top rows of the group.
+         * Rows that no longer belong to the top rows are passed to {@code evictedRowConsumer}.
+         *
+         * @return true if the row was added
+         */
+        boolean add(Row row, Consumer<Row> evictedRowConsumer);
+
+        /**
+         * Removes all the rows and returns them in output order.
+         * The ranks of the rows are stored in {@code ranks} unless they are row numbers.
+         */
+        ObjectBigArray<Row> drainSorted(LongBigArray ranks);
+
+        int size();
+
+        long getEstimatedSizeInBytes();
+    }
+
     // this class is for precise memory tracking
     private static class RowHeap
             extends ObjectHeapPriorityQueue<Row>
+            implements TopRows
     {
         private static final long INSTANCE_SIZE = ClassLayout.parseClass(RowHeap.class).instanceSize();
         private static final long ROW_ENTRY_SIZE = ClassLayout.parseClass(Row.class).instanceSize();
 
-        private RowHeap(Comparator<Row> comparator)
+        private final int topN;
+
+        private RowHeap(Comparator<Row> comparator, int topN)
         {
             super(1, comparator);
+            this.topN = topN;
         }
 
-        private long getEstimatedSizeInBytes()
+        @Override
+        public boolean add(Row row, Consumer<Row> evictedRowConsumer)
+        {
+            if (size() < topN) {
+                // still have space for the current group
+                enqueue(row);
+                return true;
+            }
+
+            // may compare with the topN-th element with in the heap to decide if update is necessary;
+            // the heap comparator is reversed, so the row is better than the topN-th element if it compares greater
+            Row previousRow = first();
+            if (comparator().compare(row, previousRow) <= 0) {
+                return false;
+            }
+            dequeue();
+            evictedRowConsumer.accept(previousRow);
+            enqueue(row);
+            return true;
+        }
+
+        @Override
+        public ObjectBigArray<Row> drainSorted(LongBigArray ranks)
+        {
+            // sort output rows in a big array in case there are too many rows
+            ObjectBigArray<Row> sortedRows = new ObjectBigArray<>();
+            sortedRows.ensureCapacity(size());
+            int index = size() - 1;
+            while (!isEmpty()) {
+                sortedRows.set(index, dequeue());
+                index--;
+            }
+            return sortedRows;
+        }
+
+        @Override
+        public long getEstimatedSizeInBytes()
         {
             return INSTANCE_SIZE + sizeOf(heap) + size() * ROW_ENTRY_SIZE;
         }
     }
 
+    /**
+     * Keeps the rows of a group as peer groups of equal rows, ordered from the best to the worst one,
+     * so that all the rows tied at the cutoff are kept, and whole peer groups are evicted once enough
+     * better rows are known.
+     */
+    private static class PeerGroups
+            implements TopRows
+    {
+        private static final long INSTANCE_SIZE = ClassLayout.parseClass(PeerGroups.class).instanceSize();
+        private static final long ROW_ENTRY_SIZE = ClassLayout.parseClass(Row.class).instanceSize();
+        private static final long PEER_GROUP_INSTANCE_SIZE = ClassLayout.parseClass(ObjectArrayList.class).instanceSize();
+        // object header, key, value, left, right, parent and color of a TreeMap entry
+        private static final long TREE_MAP_ENTRY_SIZE = 40;
+
+        private final Comparator<Row> comparator;
+        private final RankingFunction rankingFunction;
+        private final int topN;
+
+        // the peer groups keyed by their first row
+        private final TreeMap<Row, ObjectArrayList<Row>> peerGroups;
+        private int rowCount;
+        private long peerGroupsSizeInBytes;
+
+        private PeerGroups(Comparator<Row> comparator, RankingFunction rankingFunction, int topN)
+        {
+            checkArgument(rankingFunction != ROW_NUMBER, "row numbers should be computed with a heap");
+            this.comparator = requireNonNull(comparator, "comparator is null");
+            this.rankingFunction = rankingFunction;
+            this.topN = topN;
+            this.peerGroups = new TreeMap<>(comparator);
+        }
+
+        @Override
+        public boolean add(Row row, Consumer<Row> evictedRowConsumer)
+        {
+            // rows worse than the last peer group of a full group have a rank greater than N
+            if (isFull() && comparator.compare(row, peerGroups.lastKey()) > 0) {
+                return false;
+            }
+
+            ObjectArrayList<Row> peerGroup = peerGroups.get(row);
+            if (peerGroup == null) {
+                peerGroup = new ObjectArrayList<>(1);
+                peerGroups.put(row, peerGroup);
+                peerGroupsSizeInBytes += TREE_MAP_ENTRY_SIZE + PEER_GROUP_INSTANCE_SIZE;
+            }
+            peerGroupsSizeInBytes -= sizeOf(peerGroup.elements());
+            peerGroup.add(row);
+            peerGroupsSizeInBytes += sizeOf(peerGroup.elements());
+            rowCount++;
+
+            // a new row is never evicted right away, since only rows better than the last peer group open a new peer group
+            while (canEvictLastPeerGroup()) {
+                Map.Entry<Row, ObjectArrayList<Row>> lastPeerGroup = peerGroups.pollLastEntry();
+                ObjectArrayList<Row> evictedRows = lastPeerGroup.getValue();
+                rowCount -= evictedRows.size();
+                peerGroupsSizeInBytes -= TREE_MAP_ENTRY_SIZE + PEER_GROUP_INSTANCE_SIZE + sizeOf(evictedRows.elements());
+                evictedRows.forEach(evictedRowConsumer);
+            }
+            return true;
+        }
+
+        private boolean isFull()
+        {
+            if (rankingFunction == RANK) {
+                return rowCount >= topN;
+            }
+            return peerGroups.size() >= topN;
+        }
+
+        private boolean canEvictLastPeerGroup()
+        {
+            if (rankingFunction == RANK) {
+                // rank of the last peer group is the number of rows before it plus one
+                return rowCount - peerGroups.lastEntry().getValue().size() >= topN;
+            }
+            // dense rank of the last peer group is the number of peer groups
+            return peerGroups.size() > topN;
+        }
+
+        @Override
+        public ObjectBigArray<Row> drainSorted(LongBigArray ranks)
+        {
+            ObjectBigArray<Row> sortedRows = new ObjectBigArray<>();
+            sortedRows.ensureCapacity(rowCount);
+            ranks.ensureCapacity(rowCount);
+            long index = 0;
+            long denseRank = 0;
+            while (!peerGroups.isEmpty()) {
+                ObjectArrayList<Row> peerGroup = peerGroups.pollFirstEntry().getValue();
+                long rank = rankingFunction == RANK ? index + 1 : ++denseRank;
+                for (Row row : peerGroup) {
+                    sortedRows.set(index, row);
+                    ranks.set(index, rank);
+                    index++;
+                }
+            }
+            rowCount = 0;
+            peerGroupsSizeInBytes = 0;
+            return sortedRows;
+        }
+
+        @Override
+        public int size()
+        {
+            return rowCount;
+        }
+
+        @Override
+        public long getEstimatedSizeInBytes()
+        {
+            return INSTANCE_SIZE + peerGroupsSizeInBytes + rowCount * ROW_ENTRY_SIZE;
+        }
+    }
+
     private class ResultIterator
             extends AbstractIterator<Page>
     {
@@ -396,6 +585,8 @@ public class GroupedTopNBuilder
         // number of rows in the group
         private int currentGroupSize;
 
+        // ranks of the rows in the current group; unused for row numbers
+        private final LongBigArray currentRanks = new LongBigArray();
         private ObjectBigArray<Row> currentRows = nextGroupedRows();
 
         ResultIterator()
@@ -431,7 +622,8 @@ public class GroupedTopNBuilder
                 }
 
                 if (produceRowNumber) {
-                    BIGINT.writeLong(pageBuilder.getBlockBuilder(sourceTypes.size()), currentGroupPosition + 1);
+                    long rowNumber = rankingFunction == ROW_NUMBER ? currentGroupPosition + 1 : currentRanks.get(currentGroupPosition);
+                    BIGINT.writeLong(pageBuilder.getBlockBuilder(sourceTypes.size()), rowNumber);
                 }
                 pageBuilder.declarePosition();
                 currentGroupPosition++;
@@ -454,23 +646,14 @@ public class GroupedTopNBuilder
         private ObjectBigArray<Row> nextGroupedRows()
         {
             if (currentGroupNumber < groupCount) {
-                RowHeap rows = groupedRows.get(currentGroupNumber);
-                verify(rows != null && !rows.isEmpty(), "impossible to have inserted a group without a witness row");
+                TopRows rows = groupedRows.get(currentGroupNumber);
+                verify(rows != null && rows.size() > 0, "impossible to have inserted a group without a witness row");
                 groupedRows.set(currentGroupNumber, null);
                 currentGroupSizeInBytes = rows.getEstimatedSizeInBytes();
                 currentGroupNumber++;
                 currentGroupSize = rows.size();
 
-                // sort output rows in a big array in case there are too many rows
-                ObjectBigArray<Row> sortedRows = new ObjectBigArray<>();
-                sortedRows.ensureCapacity(currentGroupSize);
-                int index = currentGroupSize - 1;
-                while (!rows.isEmpty()) {
-                    sortedRows.set(index, rows.dequeue());
-                    index--;
-                }
-
-                return sortedRows;
+                return rows.drainSorted(currentRanks);
             }
             return null;
         }
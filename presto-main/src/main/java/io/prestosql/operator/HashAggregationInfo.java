@@ -0,0 +1,60 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.operator;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.prestosql.util.Mergeable;
+
+import static java.util.Objects.requireNonNull;
+
+public class HashAggregationInfo
+        implements Mergeable<HashAggregationInfo>, OperatorInfo
+{
+    private final HashCollisionsInfo hashCollisionsInfo;
+    private final long passThroughPositions;
+
+    @JsonCreator
+    public HashAggregationInfo(
+            @JsonProperty("hashCollisionsInfo") HashCollisionsInfo hashCollisionsInfo,
+            @JsonProperty("passThroughPositions") long passThroughPositions)
+    {
+        this.hashCollisionsInfo = requireNonNull(hashCollisionsInfo, "hashCollisionsInfo is null");
+        this.passThroughPositions = passThroughPositions;
+    }
+
+    @JsonProperty
+    public HashCollisionsInfo getHashCollisionsInfo()
+    {
+        return hashCollisionsInfo;
+    }
+
+    /**
+     * Number of input rows that were converted to intermediate state one by one,
+     * because partial aggregation was disabled for not reducing the number of rows.
+     */
+    @JsonProperty
+    public long getPassThroughPositions()
+    {
+        return passThroughPositions;
+    }
+
+    @Override
+    public HashAggregationInfo mergeWith(HashAggregationInfo other)
+    {
+        return new HashAggregationInfo(
+                hashCollisionsInfo.mergeWith(other.getHashCollisionsInfo()),
+                passThroughPositions + other.getPassThroughPositions());
+    }
+}
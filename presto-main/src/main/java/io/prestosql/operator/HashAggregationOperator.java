@@ -22,6 +22,7 @@ import io.prestosql.operator.aggregation.Accumulator;
 import io.prestosql.operator.aggregation.AccumulatorFactory;
 import io.prestosql.operator.aggregation.builder.HashAggregationBuilder;
 import io.prestosql.operator.aggregation.builder.InMemoryHashAggregationBuilder;
+import io.prestosql.operator.aggregation.builder.SkipAggregationBuilder;
 import io.prestosql.operator.aggregation.builder.SpillableHashAggregationBuilder;
 import io.prestosql.operator.scalar.CombineHashFunction;
 import io.prestosql.spi.Page;
@@ -37,6 +38,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Verify.verify;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
@@ -72,6 +74,7 @@ public class HashAggregationOperator
         private final SpillerFactory spillerFactory;
         private final JoinCompiler joinCompiler;
         private final boolean useSystemMemory;
+        private final Optional<PartialAggregationController> partialAggregationController;
 
         private boolean closed;
 
@@ -110,7 +113,8 @@ public class HashAggregationOperator
                         throw new UnsupportedOperationException();
                     },
                     joinCompiler,
-                    useSystemMemory);
+                    useSystemMemory,
+                    Optional.empty());
         }
 
         public HashAggregationOperatorFactory(
@@ -130,7 +134,8 @@ public class HashAggregationOperator
                 DataSize unspillMemoryLimit,
                 SpillerFactory spillerFactory,
                 JoinCompiler joinCompiler,
-                boolean useSystemMemory)
+                boolean useSystemMemory,
+                Optional<PartialAggregationController> partialAggregationController)
         {
             this(operatorId,
                     planNodeId,
@@ -149,7 +154,8 @@ public class HashAggregationOperator
                     DataSize.succinctBytes((long) (unspillMemoryLimit.toBytes() * MERGE_WITH_MEMORY_RATIO)),
                     spillerFactory,
                     joinCompiler,
-                    useSystemMemory);
+                    useSystemMemory,
+                    partialAggregationController);
         }
 
         @VisibleForTesting
@@ -171,7 +177,8 @@ public class HashAggregationOperator
                 DataSize memoryLimitForMergeWithMemory,
                 SpillerFactory spillerFactory,
                 JoinCompiler joinCompiler,
-                boolean useSystemMemory)
+                boolean useSystemMemory,
+                Optional<PartialAggregationController> partialAggregationController)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -191,6 +198,7 @@ public class HashAggregationOperator
             this.spillerFactory = requireNonNull(spillerFactory, "spillerFactory is null");
             this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
             this.useSystemMemory = useSystemMemory;
+            this.partialAggregationController = requireNonNull(partialAggregationController, "partialAggregationController is null");
         }
 
         @Override
@@ -216,7 +224,8 @@ public class HashAggregationOperator
                     memoryLimitForMergeWithMemory,
                     spillerFactory,
                     joinCompiler,
-                    useSystemMemory);
+                    useSystemMemory,
+                    partialAggregationController);
             return hashAggregationOperator;
         }
 
@@ -247,7 +256,8 @@ public class HashAggregationOperator
                     memoryLimitForMergeWithMemory,
                     spillerFactory,
                     joinCompiler,
-                    useSystemMemory);
+                    useSystemMemory,
+                    partialAggregationController.map(PartialAggregationController::duplicate));
         }
     }
 
@@ -268,6 +278,7 @@ public class HashAggregationOperator
     private final SpillerFactory spillerFactory;
     private final JoinCompiler joinCompiler;
     private final boolean useSystemMemory;
+    private final Optional<PartialAggregationController> partialAggregationController;
 
     private final List<Type> types;
     private final HashCollisionsCounter hashCollisionsCounter;
@@ -279,6 +290,10 @@ public class HashAggregationOperator
     private boolean finishing;
     private boolean finished;
 
+    // input rows aggregated by the current in-memory builder, reported to partialAggregationController on flush
+    private long partialAggregationInputPositions;
+    private long passThroughPositions;
+
     // for yield when memory is not available
     private Work<?> unfinishedWork;
 
@@ -299,7 +314,8 @@ public class HashAggregationOperator
             DataSize memoryLimitForMergeWithMemory,
             SpillerFactory spillerFactory,
             JoinCompiler joinCompiler,
-            boolean useSystemMemory)
+            boolean useSystemMemory,
+            Optional<PartialAggregationController> partialAggregationController)
     {
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
         requireNonNull(step, "step is null");
@@ -323,8 +339,15 @@ public class HashAggregationOperator
         this.spillerFactory = requireNonNull(spillerFactory, "spillerFactory is null");
         this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
         this.hashCollisionsCounter = new HashCollisionsCounter(operatorContext);
-        operatorContext.setInfoSupplier(hashCollisionsCounter);
         this.useSystemMemory = useSystemMemory;
+        this.partialAggregationController = requireNonNull(partialAggregationController, "partialAggregationController is null");
+        checkArgument(partialAggregationController.isEmpty() || step == Step.PARTIAL, "partialAggregationController is only supported for partial aggregation");
+        if (partialAggregationController.isPresent()) {
+            operatorContext.setInfoSupplier(() -> new HashAggregationInfo(hashCollisionsCounter.get(), passThroughPositions));
+        }
+        else {
+            operatorContext.setInfoSupplier(hashCollisionsCounter);
+        }
 
         this.memoryContext = operatorContext.localUserMemoryContext();
         if (useSystemMemory) {
@@ -373,8 +396,11 @@ public class HashAggregationOperator
         inputProcessed = true;
 
         if (aggregationBuilder == null) {
+            if (partialAggregationController.isPresent() && partialAggregationController.get().isPartialAggregationDisabled()) {
+                aggregationBuilder = new SkipAggregationBuilder(groupByChannels, hashChannel, accumulatorFactories, memoryContext);
+            }
             // TODO: We ignore spillEnabled here if any aggregate has ORDER BY clause or DISTINCT because they are not yet implemented for spilling.
-            if (step.isOutputPartial() || !spillEnabled || hasOrderBy() || hasDistinct()) {
+            else if (step.isOutputPartial() || !spillEnabled || hasOrderBy() || hasDistinct()) {
                 aggregationBuilder = new InMemoryHashAggregationBuilder(
                         accumulatorFactories,
                         step,
@@ -416,6 +442,13 @@ public class HashAggregationOperator
             checkState(!aggregationBuilder.isFull(), "Aggregation buffer is full");
         }
 
+        if (aggregationBuilder instanceof SkipAggregationBuilder) {
+            passThroughPositions += page.getPositionCount();
+        }
+        else {
+            partialAggregationInputPositions += page.getPositionCount();
+        }
+
         // process the current page; save the unfinished work if we are waiting for memory
         unfinishedWork = aggregationBuilder.processPage(page);
         if (unfinishedWork.process()) {
@@ -487,6 +520,12 @@ public class HashAggregationOperator
                 return null;
             }
 
+            if (partialAggregationController.isPresent() && aggregationBuilder instanceof InMemoryHashAggregationBuilder) {
+                long uniqueRows = ((InMemoryHashAggregationBuilder) aggregationBuilder).getGroupCount();
+                partialAggregationController.get().onFlush(partialAggregationInputPositions, uniqueRows);
+                partialAggregationInputPositions = 0;
+            }
+
             outputPages = aggregationBuilder.buildResult();
         }
 
@@ -503,7 +503,7 @@ public class HashBuilderOperator
             return;
         }
 
-        index.clear();
+        clearIndex();
         localRevocableMemoryContext.setBytes(0);
         localUserMemoryContext.setBytes(index.getEstimatedSize().toBytes());
         lookupSourceSupplier = null;
@@ -610,6 +610,14 @@ public class HashBuilderOperator
         return spiller.orElseThrow(() -> new IllegalStateException("Spiller not created"));
     }
 
+    private void clearIndex()
+    {
+        // the index is still in use if the lookup source factory handed the partitions over to another owner
+        if (lookupSourceFactory.releasePartition()) {
+            index.clear();
+        }
+    }
+
     @Override
     public void close()
     {
@@ -623,7 +631,7 @@ public class HashBuilderOperator
         finishMemoryRevoke = finishMemoryRevoke.map(ifPresent -> () -> {});
 
         try (Closer closer = Closer.create()) {
-            closer.register(index::clear);
+            closer.register(this::clearIndex);
             spiller.ifPresent(closer::register);
             closer.register(() -> localUserMemoryContext.setBytes(0));
             closer.register(() -> localRevocableMemoryContext.setBytes(0));
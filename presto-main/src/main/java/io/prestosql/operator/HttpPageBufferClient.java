@@ -13,11 +13,16 @@
  */
 package io.prestosql.operator;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Splitter;
 import com.google.common.base.Ticker;
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
 import com.google.common.net.MediaType;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
 import io.airlift.http.client.HttpClient;
 import io.airlift.http.client.HttpClient.HttpResponseFuture;
 import io.airlift.http.client.HttpStatus;
@@ -28,10 +33,16 @@ import io.airlift.http.client.ResponseHandler;
 import io.airlift.http.client.ResponseTooLargeException;
 import io.airlift.log.Logger;
 import io.airlift.slice.InputStreamSliceInput;
+import io.airlift.slice.Slice;
 import io.airlift.slice.SliceInput;
+import io.airlift.slice.Slices;
 import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
+import io.prestosql.execution.LocalTaskResults.LocalTaskBuffer;
+import io.prestosql.execution.TaskId;
+import io.prestosql.execution.buffer.BufferResult;
 import io.prestosql.execution.buffer.SerializedPage;
+import io.prestosql.jfr.ExchangeFetchEvent;
 import io.prestosql.server.remotetask.Backoff;
 import io.prestosql.spi.PrestoException;
 import io.prestosql.sql.analyzer.FeaturesConfig.DataIntegrityVerification;
@@ -44,27 +55,41 @@ import javax.annotation.concurrent.ThreadSafe;
 import java.io.BufferedReader;
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.util.List;
+import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Strings.isNullOrEmpty;
 import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
+import static com.google.common.util.concurrent.Futures.immediateFailedFuture;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static io.airlift.concurrent.MoreFutures.addTimeout;
 import static io.airlift.http.client.HttpStatus.familyForStatusCode;
 import static io.airlift.http.client.Request.Builder.prepareDelete;
 import static io.airlift.http.client.Request.Builder.prepareGet;
 import static io.airlift.http.client.ResponseHandlerUtils.propagate;
-import static io.airlift.http.client.StatusResponseHandler.StatusResponse;
 import static io.airlift.http.client.StatusResponseHandler.createStatusResponseHandler;
+import static io.airlift.slice.SizeOf.SIZE_OF_BYTE;
+import static io.airlift.slice.SizeOf.SIZE_OF_INT;
+import static io.airlift.slice.SizeOf.SIZE_OF_LONG;
+import static io.prestosql.PrestoMediaTypes.PRESTO_PAGES_STREAM_TYPE;
 import static io.prestosql.PrestoMediaTypes.PRESTO_PAGES_TYPE;
 import static io.prestosql.client.PrestoHeaders.PRESTO_BUFFER_COMPLETE;
 import static io.prestosql.client.PrestoHeaders.PRESTO_MAX_SIZE;
@@ -73,10 +98,13 @@ import static io.prestosql.client.PrestoHeaders.PRESTO_PAGE_TOKEN;
 import static io.prestosql.client.PrestoHeaders.PRESTO_TASK_INSTANCE_ID;
 import static io.prestosql.execution.buffer.PagesSerdeUtil.NO_CHECKSUM;
 import static io.prestosql.execution.buffer.PagesSerdeUtil.calculateChecksum;
+import static io.prestosql.execution.buffer.PagesSerdeUtil.readSerializedPage;
 import static io.prestosql.execution.buffer.PagesSerdeUtil.readSerializedPages;
 import static io.prestosql.operator.HttpPageBufferClient.PagesResponse.createEmptyPagesResponse;
 import static io.prestosql.operator.HttpPageBufferClient.PagesResponse.createPagesResponse;
 import static io.prestosql.server.PagesResponseWriter.SERIALIZED_PAGES_MAGIC;
+import static io.prestosql.server.PagesStreamWriter.SERIALIZED_PAGES_STREAM_MAGIC;
+import static io.prestosql.server.TaskResource.DEFAULT_MAX_WAIT_TIME;
 import static io.prestosql.spi.HostAddress.fromUri;
 import static io.prestosql.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
 import static io.prestosql.spi.StandardErrorCode.REMOTE_BUFFER_CLOSE_FAILED;
@@ -117,9 +145,11 @@ public final class HttpPageBufferClient
     private final String selfAddress;
     private final HttpClient httpClient;
     private final DataIntegrityVerification dataIntegrityVerification;
+    private final DataSize minResponseSize;
     private final DataSize maxResponseSize;
     private final boolean acknowledgePages;
     private final URI location;
+    private final Optional<LocalTaskBuffer> localBuffer;
     private final ClientCallback clientCallback;
     private final ScheduledExecutorService scheduler;
     private final Backoff backoff;
@@ -127,7 +157,7 @@ public final class HttpPageBufferClient
     @GuardedBy("this")
     private boolean closed;
     @GuardedBy("this")
-    private HttpResponseFuture<?> future;
+    private ListenableFuture<?> future;
     @GuardedBy("this")
     private DateTime lastUpdate = DateTime.now();
     @GuardedBy("this")
@@ -138,9 +168,19 @@ public final class HttpPageBufferClient
     private boolean completed;
     @GuardedBy("this")
     private String taskInstanceId;
+    // grows towards maxResponseSize while the source fills the responses
+    @GuardedBy("this")
+    private long responseSizeLimitInBytes;
+    @GuardedBy("this")
+    private DataSize requestResponseSize;
+    // after a streamed response fails, the results are fetched with separate requests
+    @GuardedBy("this")
+    private boolean streamingFailed;
 
     private final AtomicLong rowsReceived = new AtomicLong();
     private final AtomicInteger pagesReceived = new AtomicInteger();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLong requestTimeNanos = new AtomicLong();
 
     private final AtomicLong rowsRejected = new AtomicLong();
     private final AtomicInteger pagesRejected = new AtomicInteger();
@@ -150,55 +190,71 @@ public final class HttpPageBufferClient
     private final AtomicInteger requestsFailed = new AtomicInteger();
 
     private final Executor pageBufferClientCallbackExecutor;
+    private final Optional<ExecutorService> streamingExecutor;
 
     public HttpPageBufferClient(
             String selfAddress,
             HttpClient httpClient,
             DataIntegrityVerification dataIntegrityVerification,
+            DataSize minResponseSize,
             DataSize maxResponseSize,
             Duration maxErrorDuration,
             boolean acknowledgePages,
             URI location,
+            Optional<LocalTaskBuffer> localBuffer,
             ClientCallback clientCallback,
             ScheduledExecutorService scheduler,
-            Executor pageBufferClientCallbackExecutor)
+            Executor pageBufferClientCallbackExecutor,
+            Optional<ExecutorService> streamingExecutor)
     {
         this(
                 selfAddress,
                 httpClient,
                 dataIntegrityVerification,
+                minResponseSize,
                 maxResponseSize,
                 maxErrorDuration,
                 acknowledgePages,
                 location,
+                localBuffer,
                 clientCallback,
                 scheduler,
                 Ticker.systemTicker(),
-                pageBufferClientCallbackExecutor);
+                pageBufferClientCallbackExecutor,
+                streamingExecutor);
     }
 
     public HttpPageBufferClient(
             String selfAddress,
             HttpClient httpClient,
             DataIntegrityVerification dataIntegrityVerification,
+            DataSize minResponseSize,
             DataSize maxResponseSize,
             Duration maxErrorDuration,
             boolean acknowledgePages,
             URI location,
+            Optional<LocalTaskBuffer> localBuffer,
             ClientCallback clientCallback,
             ScheduledExecutorService scheduler,
             Ticker ticker,
-            Executor pageBufferClientCallbackExecutor)
+            Executor pageBufferClientCallbackExecutor,
+            Optional<ExecutorService> streamingExecutor)
     {
         this.selfAddress = requireNonNull(selfAddress, "selfAddress is null");
         this.httpClient = requireNonNull(httpClient, "httpClient is null");
         this.dataIntegrityVerification = requireNonNull(dataIntegrityVerification, "dataIntegrityVerification is null");
+        this.minResponseSize = requireNonNull(minResponseSize, "minResponseSize is null");
         this.maxResponseSize = requireNonNull(maxResponseSize, "maxResponseSize is null");
+        checkArgument(minResponseSize.toBytes() <= maxResponseSize.toBytes(), "minResponseSize is greater than maxResponseSize");
+        this.responseSizeLimitInBytes = minResponseSize.toBytes();
+        this.requestResponseSize = minResponseSize;
         this.acknowledgePages = acknowledgePages;
         this.location = requireNonNull(location, "location is null");
+        this.localBuffer = requireNonNull(localBuffer, "localBuffer is null");
         this.clientCallback = requireNonNull(clientCallback, "clientCallback is null");
         this.scheduler = requireNonNull(scheduler, "scheduler is null");
         this.pageBufferClientCallbackExecutor = requireNonNull(pageBufferClientCallbackExecutor, "pageBufferClientCallbackExecutor is null");
+        this.streamingExecutor = requireNonNull(streamingExecutor, "streamingExecutor is null");
         requireNonNull(maxErrorDuration, "maxErrorDuration is null");
         requireNonNull(ticker, "ticker is null");
         this.backoff = new Backoff(maxErrorDuration, ticker);
@@ -223,13 +279,20 @@ public final class HttpPageBufferClient
             state = "queued";
         }
         String httpRequestState = "not scheduled";
-        if (future != null) {
-            httpRequestState = future.getState();
+        if (future instanceof HttpResponseFuture) {
+            httpRequestState = ((HttpResponseFuture<?>) future).getState();
+        }
+        else if (future != null) {
+            httpRequestState = localBuffer.isPresent() ? "local" : "streaming";
         }
 
         long rejectedRows = rowsRejected.get();
         int rejectedPages = pagesRejected.get();
 
+        long receivedBytes = bytesReceived.get();
+        long totalRequestTimeNanos = requestTimeNanos.get();
+        long bytesPerSecond = totalRequestTimeNanos == 0 ? 0 : (long) (receivedBytes * (double) SECONDS.toNanos(1) / totalRequestTimeNanos);
+
         return new PageBufferClientStatus(
                 location,
                 state,
@@ -241,6 +304,9 @@ public final class HttpPageBufferClient
                 requestsScheduled.get(),
                 requestsCompleted.get(),
                 requestsFailed.get(),
+                receivedBytes,
+                bytesPerSecond,
+                DataSize.ofBytes(responseSizeLimitInBytes),
                 httpRequestState);
     }
 
@@ -276,12 +342,18 @@ public final class HttpPageBufferClient
         }
     }
 
-    public synchronized void scheduleRequest()
+    /**
+     * Schedules the next request. The size of the response is limited by
+     * the buffer capacity that is still available, but never below the
+     * minimum response size.
+     */
+    public synchronized void scheduleRequest(long remainingBufferCapacityInBytes)
     {
         if (closed || (future != null) || scheduled) {
             return;
         }
         scheduled = true;
+        requestResponseSize = DataSize.ofBytes(getRequestResponseSize(minResponseSize.toBytes(), responseSizeLimitInBytes, remainingBufferCapacityInBytes));
 
         // start before scheduling to include error delay
         backoff.startRequest();
@@ -301,6 +373,28 @@ public final class HttpPageBufferClient
         requestsScheduled.incrementAndGet();
     }
 
+    @VisibleForTesting
+    static long getRequestResponseSize(long minResponseSizeInBytes, long responseSizeLimitInBytes, long remainingBufferCapacityInBytes)
+    {
+        return Math.max(minResponseSizeInBytes, Math.min(responseSizeLimitInBytes, remainingBufferCapacityInBytes));
+    }
+
+    /**
+     * Doubles the response size limit, up to the maximum response size, when a response is at
+     * least half full, as this suggests that the source has more data buffered.
+     */
+    @VisibleForTesting
+    static long getNextResponseSizeLimit(long responseSizeLimitInBytes, long maxResponseSizeInBytes, long requestedResponseSizeInBytes, long receivedBytes)
+    {
+        if (receivedBytes * 2 < requestedResponseSizeInBytes) {
+            return responseSizeLimitInBytes;
+        }
+        if (responseSizeLimitInBytes > maxResponseSizeInBytes / 2) {
+            return maxResponseSizeInBytes;
+        }
+        return responseSizeLimitInBytes * 2;
+    }
+
     private synchronized void initiateRequest()
     {
         scheduled = false;
@@ -321,11 +415,31 @@ public final class HttpPageBufferClient
     private synchronized void sendGetResults()
     {
         URI uri = HttpUriBuilder.uriBuilderFrom(location).appendPath(String.valueOf(token)).build();
-        HttpResponseFuture<PagesResponse> resultFuture = httpClient.executeAsync(
-                prepareGet()
-                        .setHeader(PRESTO_MAX_SIZE, maxResponseSize.toString())
-                        .setUri(uri).build(),
-                new PageResponseHandler(dataIntegrityVerification != DataIntegrityVerification.NONE));
+        DataSize responseSize = requestResponseSize;
+        AtomicLong streamedBytes = new AtomicLong();
+        long requestStartNanos = System.nanoTime();
+        ExchangeFetchEvent event = new ExchangeFetchEvent();
+        event.begin();
+        Optional<ListenableFuture<PagesResponse>> streamFuture = Optional.empty();
+        if (localBuffer.isEmpty() && streamingExecutor.isPresent() && !streamingFailed) {
+            // the response size is the credit for all pages of the stream
+            streamFuture = tryStreamResults(streamingExecutor.get(), uri, responseSize, streamedBytes);
+        }
+        boolean streaming = streamFuture.isPresent();
+        ListenableFuture<PagesResponse> resultFuture;
+        if (localBuffer.isPresent()) {
+            resultFuture = getLocalResults(localBuffer.get(), token, responseSize);
+        }
+        else if (streaming) {
+            resultFuture = streamFuture.get();
+        }
+        else {
+            resultFuture = httpClient.executeAsync(
+                    prepareGet()
+                            .setHeader(PRESTO_MAX_SIZE, responseSize.toString())
+                            .setUri(uri).build(),
+                    new PageResponseHandler(dataIntegrityVerification != DataIntegrityVerification.NONE, Optional.empty()));
+        }
 
         future = resultFuture;
         Futures.addCallback(resultFuture, new FutureCallback<>()
@@ -337,75 +451,25 @@ public final class HttpPageBufferClient
 
                 backoff.success();
 
-                List<SerializedPage> pages;
-                try {
-                    boolean shouldAcknowledge = false;
-                    synchronized (HttpPageBufferClient.this) {
-                        if (taskInstanceId == null) {
-                            taskInstanceId = result.getTaskInstanceId();
-                        }
-
-                        if (!isNullOrEmpty(taskInstanceId) && !result.getTaskInstanceId().equals(taskInstanceId)) {
-                            throw new PrestoException(REMOTE_TASK_MISMATCH, format("%s (%s). Expected taskInstanceId: %s, received taskInstanceId: %s",
-                                    REMOTE_TASK_MISMATCH_ERROR,
-                                    fromUri(uri),
-                                    taskInstanceId,
-                                    result.getTaskInstanceId()));
-                        }
-
-                        if (result.getToken() == token) {
-                            pages = result.getPages();
-                            token = result.getNextToken();
-                            shouldAcknowledge = pages.size() > 0;
-                        }
-                        else {
-                            pages = ImmutableList.of();
-                        }
-                    }
-
-                    if (shouldAcknowledge && acknowledgePages) {
-                        // Acknowledge token without handling the response.
-                        // The next request will also make sure the token is acknowledged.
-                        // This is to fast release the pages on the buffer side.
-                        URI uri = HttpUriBuilder.uriBuilderFrom(location).appendPath(String.valueOf(result.getNextToken())).appendPath("acknowledge").build();
-                        httpClient.executeAsync(prepareGet().setUri(uri).build(), new ResponseHandler<Void, RuntimeException>()
-                        {
-                            @Override
-                            public Void handleException(Request request, Exception exception)
-                            {
-                                log.debug(exception, "Acknowledge request failed: %s", uri);
-                                return null;
-                            }
-
-                            @Override
-                            public Void handle(Request request, Response response)
-                            {
-                                if (familyForStatusCode(response.getStatusCode()) != HttpStatus.Family.SUCCESSFUL) {
-                                    log.debug("Unexpected acknowledge response code: %s", response.getStatusCode());
-                                }
-                                return null;
-                            }
-                        });
+                long pagesSizeInBytes;
+                if (streaming) {
+                    // the pages were added as they were streamed, so only acknowledge them
+                    pagesSizeInBytes = streamedBytes.get();
+                    if (pagesSizeInBytes > 0 && acknowledgePages) {
+                        sendAcknowledge(result.getNextToken());
                     }
                 }
-                catch (PrestoException e) {
-                    handleFailure(e, resultFuture);
-                    return;
-                }
-
-                // add pages:
-                // addPages must be called regardless of whether pages is an empty list because
-                // clientCallback can keep stats of requests and responses. For example, it may
-                // keep track of how often a client returns empty response and adjust request
-                // frequency or buffer size.
-                if (clientCallback.addPages(HttpPageBufferClient.this, pages)) {
-                    pagesReceived.addAndGet(pages.size());
-                    rowsReceived.addAndGet(pages.stream().mapToLong(SerializedPage::getPositionCount).sum());
-                }
                 else {
-                    pagesRejected.addAndGet(pages.size());
-                    rowsRejected.addAndGet(pages.stream().mapToLong(SerializedPage::getPositionCount).sum());
+                    try {
+                        pagesSizeInBytes = addPages(result, uri, acknowledgePages);
+                    }
+                    catch (PrestoException e) {
+                        handleFailure(e, resultFuture);
+                        return;
+                    }
                 }
+                requestTimeNanos.addAndGet(System.nanoTime() - requestStartNanos);
+                recordFetch(event, streaming, pagesSizeInBytes, false);
 
                 synchronized (HttpPageBufferClient.this) {
                     // client is complete, acknowledge it by sending it a delete in the next request
@@ -415,6 +479,7 @@ public final class HttpPageBufferClient
                     if (future == resultFuture) {
                         future = null;
                     }
+                    responseSizeLimitInBytes = getNextResponseSizeLimit(responseSizeLimitInBytes, maxResponseSize.toBytes(), responseSize.toBytes(), pagesSizeInBytes);
                     lastUpdate = DateTime.now();
                 }
                 requestsCompleted.incrementAndGet();
@@ -426,6 +491,15 @@ public final class HttpPageBufferClient
             {
                 log.debug("Request to %s failed %s", uri, t);
                 checkNotHoldsLock(this);
+                recordFetch(event, streaming, streamedBytes.get(), true);
+
+                if (streaming) {
+                    // the pages of the stream are not acknowledged yet, so the
+                    // request can be retried from the last token that was received
+                    synchronized (HttpPageBufferClient.this) {
+                        streamingFailed = true;
+                    }
+                }
 
                 if (t instanceof ChecksumVerificationException) {
                     switch (dataIntegrityVerification) {
@@ -458,14 +532,181 @@ public final class HttpPageBufferClient
         }, pageBufferClientCallbackExecutor);
     }
 
+    private void recordFetch(ExchangeFetchEvent event, boolean streaming, long bytes, boolean failed)
+    {
+        event.end();
+        if (event.shouldCommit()) {
+            // the location of a task output buffer is .../task/{taskId}/results/{bufferId}
+            List<String> segments = Splitter.on('/').omitEmptyStrings().splitToList(location.getPath());
+            int taskSegment = segments.indexOf("task");
+            if (taskSegment >= 0 && taskSegment + 1 < segments.size()) {
+                event.setTaskId(TaskId.valueOf(segments.get(taskSegment + 1)));
+            }
+            event.setLocation(location.toString());
+            event.setTransport(localBuffer.isPresent() ? "local" : streaming ? "stream" : "http");
+            event.setBytes(bytes);
+            event.setFailed(failed);
+            event.commit();
+        }
+    }
+
+    /**
+     * Hands the pages of a response to the client callback, and advances the token.
+     *
+     * @return the size of the pages in bytes
+     */
+    private long addPages(PagesResponse result, URI uri, boolean acknowledge)
+    {
+        checkNotHoldsLock(this);
+
+        List<SerializedPage> pages;
+        boolean shouldAcknowledge = false;
+        synchronized (this) {
+            if (taskInstanceId == null) {
+                taskInstanceId = result.getTaskInstanceId();
+            }
+
+            if (!isNullOrEmpty(taskInstanceId) && !result.getTaskInstanceId().equals(taskInstanceId)) {
+                throw new PrestoException(REMOTE_TASK_MISMATCH, format("%s (%s). Expected taskInstanceId: %s, received taskInstanceId: %s",
+                        REMOTE_TASK_MISMATCH_ERROR,
+                        fromUri(uri),
+                        taskInstanceId,
+                        result.getTaskInstanceId()));
+            }
+
+            if (result.getToken() == token) {
+                pages = result.getPages();
+                token = result.getNextToken();
+                shouldAcknowledge = pages.size() > 0;
+            }
+            else {
+                pages = ImmutableList.of();
+            }
+        }
+
+        if (shouldAcknowledge && acknowledge) {
+            sendAcknowledge(result.getNextToken());
+        }
+
+        // add pages:
+        // addPages must be called regardless of whether pages is an empty list because
+        // clientCallback can keep stats of requests and responses. For example, it may
+        // keep track of how often a client returns empty response and adjust request
+        // frequency or buffer size.
+        long pagesSizeInBytes = pages.stream().mapToLong(SerializedPage::getSizeInBytes).sum();
+        if (clientCallback.addPages(this, pages)) {
+            pagesReceived.addAndGet(pages.size());
+            rowsReceived.addAndGet(pages.stream().mapToLong(SerializedPage::getPositionCount).sum());
+            bytesReceived.addAndGet(pagesSizeInBytes);
+        }
+        else {
+            pagesRejected.addAndGet(pages.size());
+            rowsRejected.addAndGet(pages.stream().mapToLong(SerializedPage::getPositionCount).sum());
+        }
+        return pagesSizeInBytes;
+    }
+
+    private void sendAcknowledge(long nextToken)
+    {
+        if (localBuffer.isPresent()) {
+            localBuffer.get().acknowledge(nextToken);
+            return;
+        }
+
+        // Acknowledge token without handling the response.
+        // The next request will also make sure the token is acknowledged.
+        // This is to fast release the pages on the buffer side.
+        URI uri = HttpUriBuilder.uriBuilderFrom(location).appendPath(String.valueOf(nextToken)).appendPath("acknowledge").build();
+        httpClient.executeAsync(prepareGet().setUri(uri).build(), new ResponseHandler<Void, RuntimeException>()
+        {
+            @Override
+            public Void handleException(Request request, Exception exception)
+            {
+                log.debug(exception, "Acknowledge request failed: %s", uri);
+                return null;
+            }
+
+            @Override
+            public Void handle(Request request, Response response)
+            {
+                if (familyForStatusCode(response.getStatusCode()) != HttpStatus.Family.SUCCESSFUL) {
+                    log.debug("Unexpected acknowledge response code: %s", response.getStatusCode());
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * @return empty if all stream threads are busy, in which case the results are read with a regular request
+     */
+    private Optional<ListenableFuture<PagesResponse>> tryStreamResults(ExecutorService executor, URI uri, DataSize credit, AtomicLong streamedBytes)
+    {
+        Request request = prepareGet()
+                .setHeader(PRESTO_MAX_SIZE, credit.toString())
+                .setUri(HttpUriBuilder.uriBuilderFrom(uri).appendPath("stream").build())
+                .build();
+        // each result is added as soon as it is read, and the pages are acknowledged by the next request
+        PageResponseHandler responseHandler = new PageResponseHandler(
+                dataIntegrityVerification != DataIntegrityVerification.NONE,
+                Optional.of(result -> streamedBytes.addAndGet(addPages(result, uri, false))));
+        // the stream is read with a blocking request, which is interrupted when the client is closed
+        ListenableFutureTask<PagesResponse> streamTask = ListenableFutureTask.create(() -> httpClient.execute(request, responseHandler));
+        try {
+            executor.execute(streamTask);
+        }
+        catch (RejectedExecutionException e) {
+            return Optional.empty();
+        }
+        return Optional.of(streamTask);
+    }
+
+    private ListenableFuture<PagesResponse> getLocalResults(LocalTaskBuffer buffer, long token, DataSize maxSize)
+    {
+        // pages of a local buffer are handed over as they are, so there is nothing to verify
+        try {
+            ListenableFuture<BufferResult> bufferResult = addTimeout(
+                    buffer.getResults(token, maxSize),
+                    () -> BufferResult.emptyResults(buffer.getTaskInstanceId(), token, false),
+                    // same as the wait time of the task results resource, so a read of a local
+                    // buffer of an abandoned task does not block forever
+                    DEFAULT_MAX_WAIT_TIME,
+                    scheduler);
+            return Futures.transform(
+                    bufferResult,
+                    result -> createPagesResponse(result.getTaskInstanceId(), result.getToken(), result.getNextToken(), result.getSerializedPages(), result.isBufferComplete()),
+                    directExecutor());
+        }
+        catch (RuntimeException e) {
+            return immediateFailedFuture(e);
+        }
+    }
+
+    private static ListenableFuture<?> abortLocalBuffer(LocalTaskBuffer buffer)
+    {
+        try {
+            buffer.abort();
+            return immediateFuture(null);
+        }
+        catch (RuntimeException e) {
+            return immediateFailedFuture(e);
+        }
+    }
+
     private synchronized void sendDelete()
     {
-        HttpResponseFuture<StatusResponse> resultFuture = httpClient.executeAsync(prepareDelete().setUri(location).build(), createStatusResponseHandler());
+        ListenableFuture<?> resultFuture;
+        if (localBuffer.isPresent()) {
+            resultFuture = abortLocalBuffer(localBuffer.get());
+        }
+        else {
+            resultFuture = httpClient.executeAsync(prepareDelete().setUri(location).build(), createStatusResponseHandler());
+        }
         future = resultFuture;
-        Futures.addCallback(resultFuture, new FutureCallback<>()
+        Futures.addCallback(resultFuture, new FutureCallback<Object>()
         {
             @Override
-            public void onSuccess(@Nullable StatusResponse result)
+            public void onSuccess(@Nullable Object result)
             {
                 checkNotHoldsLock(this);
                 backoff.success();
@@ -504,7 +745,7 @@ public final class HttpPageBufferClient
         checkState(!Thread.holdsLock(lock), "Cannot execute this method while holding a lock");
     }
 
-    private void handleFailure(Throwable t, HttpResponseFuture<?> expectedFuture)
+    private void handleFailure(Throwable t, ListenableFuture<?> expectedFuture)
     {
         // Cannot delegate to other callback while holding a lock on this
         checkNotHoldsLock(this);
@@ -582,11 +823,20 @@ public final class HttpPageBufferClient
     public static class PageResponseHandler
             implements ResponseHandler<PagesResponse, RuntimeException>
     {
+        // token, next token, buffer complete, checksum, page count and size of the pages of a streamed result
+        private static final int STREAM_RESULT_HEADER_SIZE = SIZE_OF_LONG + SIZE_OF_LONG + SIZE_OF_BYTE + SIZE_OF_LONG + SIZE_OF_INT + SIZE_OF_INT;
+
         private final boolean dataIntegrityVerificationEnabled;
+        private final Optional<Consumer<PagesResponse>> streamedResponseConsumer;
 
-        private PageResponseHandler(boolean dataIntegrityVerificationEnabled)
+        /**
+         * @param streamedResponseConsumer if present, the response is a stream of results which are passed
+         * to the consumer as they are read, and the handler returns an empty response with the final token
+         */
+        private PageResponseHandler(boolean dataIntegrityVerificationEnabled, Optional<Consumer<PagesResponse>> streamedResponseConsumer)
         {
             this.dataIntegrityVerificationEnabled = dataIntegrityVerificationEnabled;
+            this.streamedResponseConsumer = requireNonNull(streamedResponseConsumer, "streamedResponseConsumer is null");
         }
 
         @Override
@@ -603,7 +853,9 @@ public final class HttpPageBufferClient
                 // no content means no content was created within the wait period, but query is still ok
                 // if job is finished, complete is set in the response
                 if (response.getStatusCode() == HttpStatus.NO_CONTENT.code()) {
-                    return createEmptyPagesResponse(getTaskInstanceId(response, uri), getToken(response, uri), getNextToken(response, uri), getComplete(response, uri));
+                    PagesResponse pagesResponse = createEmptyPagesResponse(getTaskInstanceId(response, uri), getToken(response, uri), getNextToken(response, uri), getComplete(response, uri));
+                    streamedResponseConsumer.ifPresent(consumer -> consumer.accept(pagesResponse));
+                    return pagesResponse;
                 }
 
                 // otherwise we must have gotten an OK response, everything else is considered fatal
@@ -631,8 +883,9 @@ public final class HttpPageBufferClient
                 if (contentType == null) {
                     throw new PageTransportErrorException(fromUri(uri), format("%s header is not set: %s", CONTENT_TYPE, response));
                 }
-                if (!mediaTypeMatches(contentType, PRESTO_PAGES_TYPE)) {
-                    throw new PageTransportErrorException(fromUri(uri), format("Expected %s response from server but got %s", PRESTO_PAGES_TYPE, contentType));
+                MediaType expectedType = streamedResponseConsumer.isPresent() ? PRESTO_PAGES_STREAM_TYPE : PRESTO_PAGES_TYPE;
+                if (!mediaTypeMatches(contentType, expectedType)) {
+                    throw new PageTransportErrorException(fromUri(uri), format("Expected %s response from server but got %s", expectedType, contentType));
                 }
 
                 String taskInstanceId = getTaskInstanceId(response, uri);
@@ -640,6 +893,15 @@ public final class HttpPageBufferClient
                 long nextToken = getNextToken(response, uri);
                 boolean complete = getComplete(response, uri);
 
+                if (streamedResponseConsumer.isPresent()) {
+                    try (InputStream input = response.getInputStream()) {
+                        return readPagesStream(input, taskInstanceId, token, streamedResponseConsumer.get());
+                    }
+                    catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+
                 try (SliceInput input = new InputStreamSliceInput(response.getInputStream())) {
                     int magic = input.readInt();
                     if (magic != SERIALIZED_PAGES_MAGIC) {
@@ -661,6 +923,47 @@ public final class HttpPageBufferClient
             }
         }
 
+        /**
+         * Reads each result of the stream as soon as it is complete. The results are read
+         * with exact sizes, since a buffered input would wait for more data than a small
+         * result has, and delay it until the stream ends.
+         */
+        private PagesResponse readPagesStream(InputStream input, String taskInstanceId, long token, Consumer<PagesResponse> consumer)
+                throws IOException
+        {
+            int magic = readFully(input, SIZE_OF_INT).getInt(0);
+            if (magic != SERIALIZED_PAGES_STREAM_MAGIC) {
+                throw new IllegalStateException(format("Invalid stream header, expected 0x%08x, but was 0x%08x", SERIALIZED_PAGES_STREAM_MAGIC, magic));
+            }
+            long nextToken = token;
+            boolean complete = false;
+            while (readFully(input, SIZE_OF_BYTE).getByte(0) != 0) {
+                SliceInput header = readFully(input, STREAM_RESULT_HEADER_SIZE).getInput();
+                long resultToken = header.readLong();
+                nextToken = header.readLong();
+                complete = header.readBoolean();
+                long checksum = header.readLong();
+                int pagesCount = header.readInt();
+                SliceInput pagesInput = readFully(input, header.readInt()).getInput();
+                ImmutableList.Builder<SerializedPage> pages = ImmutableList.builderWithExpectedSize(pagesCount);
+                for (int i = 0; i < pagesCount; i++) {
+                    pages.add(readSerializedPage(pagesInput));
+                }
+                PagesResponse pagesResponse = createPagesResponse(taskInstanceId, resultToken, nextToken, pages.build(), complete);
+                verifyChecksum(checksum, pagesResponse.getPages());
+                consumer.accept(pagesResponse);
+            }
+            return createEmptyPagesResponse(taskInstanceId, nextToken, nextToken, complete);
+        }
+
+        private static Slice readFully(InputStream input, int length)
+                throws IOException
+        {
+            byte[] bytes = new byte[length];
+            ByteStreams.readFully(input, bytes);
+            return Slices.wrappedBuffer(bytes);
+        }
+
         private void verifyChecksum(long readChecksum, List<SerializedPage> pages)
         {
             if (dataIntegrityVerificationEnabled) {
@@ -0,0 +1,521 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.operator;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.prestosql.execution.Lifespan;
+import io.prestosql.memory.context.LocalMemoryContext;
+import io.prestosql.spi.Page;
+import io.prestosql.spi.PageBuilder;
+import io.prestosql.spi.PrestoException;
+import io.prestosql.spi.block.SortOrder;
+import io.prestosql.spi.type.Type;
+import io.prestosql.sql.planner.plan.PlanNodeId;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.prestosql.spi.StandardErrorCode.MERGE_JOIN_INPUT_NOT_SORTED;
+import static io.prestosql.spi.StandardErrorCode.NOT_SUPPORTED;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Inner join of two inputs sorted on the join keys. The left input is consumed
+ * by this operator and the right input is streamed through a {@link MergeJoinSource}.
+ * Only the right rows sharing the current join key are retained, so memory usage
+ * does not depend on the size of either input.
+ */
+public class MergeJoinOperator
+        implements Operator
+{
+    public static class MergeJoinOperatorFactory
+            implements OperatorFactory
+    {
+        private final int operatorId;
+        private final PlanNodeId planNodeId;
+        private final JoinBridgeManager<MergeJoinSource> mergeJoinSourceManager;
+        private final List<Type> probeTypes;
+        private final List<Integer> probeJoinChannels;
+        private final List<Integer> probeOutputChannels;
+        private final List<Integer> buildJoinChannels;
+        private final List<Integer> buildOutputChannels;
+        private final List<SortOrder> sortOrders;
+        private final Set<Lifespan> lifespans;
+        private boolean closed;
+
+        public MergeJoinOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                JoinBridgeManager<MergeJoinSource> mergeJoinSourceManager,
+                List<Type> probeTypes,
+                List<Integer> probeJoinChannels,
+                List<Integer> probeOutputChannels,
+                List<Integer> buildJoinChannels,
+                List<Integer> buildOutputChannels,
+                List<SortOrder> sortOrders)
+        {
+            this.operatorId = operatorId;
+            this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
+            this.mergeJoinSourceManager = requireNonNull(mergeJoinSourceManager, "mergeJoinSourceManager is null");
+            this.probeTypes = ImmutableList.copyOf(requireNonNull(probeTypes, "probeTypes is null"));
+            this.probeJoinChannels = ImmutableList.copyOf(requireNonNull(probeJoinChannels, "probeJoinChannels is null"));
+            this.probeOutputChannels = ImmutableList.copyOf(requireNonNull(probeOutputChannels, "probeOutputChannels is null"));
+            this.buildJoinChannels = ImmutableList.copyOf(requireNonNull(buildJoinChannels, "buildJoinChannels is null"));
+            this.buildOutputChannels = ImmutableList.copyOf(requireNonNull(buildOutputChannels, "buildOutputChannels is null"));
+            this.sortOrders = ImmutableList.copyOf(requireNonNull(sortOrders, "sortOrders is null"));
+            this.lifespans = ConcurrentHashMap.newKeySet();
+            checkArgument(probeJoinChannels.size() == buildJoinChannels.size(), "probe and build join channels do not match");
+            checkArgument(probeJoinChannels.size() == sortOrders.size(), "join channels and sort orders do not match");
+
+            mergeJoinSourceManager.incrementProbeFactoryCount();
+        }
+
+        private MergeJoinOperatorFactory(MergeJoinOperatorFactory other)
+        {
+            requireNonNull(other, "other is null");
+            this.operatorId = other.operatorId;
+            this.planNodeId = other.planNodeId;
+            this.mergeJoinSourceManager = other.mergeJoinSourceManager;
+            this.probeTypes = other.probeTypes;
+            this.probeJoinChannels = other.probeJoinChannels;
+            this.probeOutputChannels = other.probeOutputChannels;
+            this.buildJoinChannels = other.buildJoinChannels;
+            this.buildOutputChannels = other.buildOutputChannels;
+            this.sortOrders = other.sortOrders;
+            this.lifespans = other.lifespans;
+
+            // closed is intentionally not copied
+            closed = false;
+
+            mergeJoinSourceManager.incrementProbeFactoryCount();
+        }
+
+        @Override
+        public Operator createOperator(DriverContext driverContext)
+        {
+            checkState(!closed, "Factory is already closed");
+            Lifespan lifespan = driverContext.getLifespan();
+            if (!lifespans.add(lifespan)) {
+                throw new PrestoException(NOT_SUPPORTED, format("Merge join requires the left input to be read by a single driver, but more than one was created for %s", lifespan));
+            }
+            MergeJoinSource mergeJoinSource = mergeJoinSourceManager.getJoinBridge(lifespan);
+
+            OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, planNodeId, MergeJoinOperator.class.getSimpleName());
+
+            mergeJoinSourceManager.probeOperatorCreated(lifespan);
+            return new MergeJoinOperator(
+                    operatorContext,
+                    mergeJoinSource,
+                    probeTypes,
+                    probeJoinChannels,
+                    probeOutputChannels,
+                    mergeJoinSourceManager.getBuildOutputTypes(),
+                    buildJoinChannels,
+                    buildOutputChannels,
+                    sortOrders,
+                    () -> mergeJoinSourceManager.probeOperatorClosed(lifespan));
+        }
+
+        @Override
+        public void noMoreOperators()
+        {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            mergeJoinSourceManager.probeOperatorFactoryClosedForAllLifespans();
+        }
+
+        @Override
+        public void noMoreOperators(Lifespan lifespan)
+        {
+            mergeJoinSourceManager.probeOperatorFactoryClosed(lifespan);
+        }
+
+        @Override
+        public OperatorFactory duplicate()
+        {
+            return new MergeJoinOperatorFactory(this);
+        }
+    }
+
+    private final OperatorContext operatorContext;
+    private final MergeJoinSource mergeJoinSource;
+    private final LocalMemoryContext localUserMemoryContext;
+    private final Runnable afterClose;
+
+    private final List<Type> probeTypes;
+    private final List<Integer> probeJoinChannels;
+    private final List<Integer> probeOutputChannels;
+    private final List<Type> buildTypes;
+    private final List<Integer> buildJoinChannels;
+    private final List<Integer> buildOutputChannels;
+    private final List<Type> keyTypes;
+    private final List<SortOrder> sortOrders;
+    private final PageBuilder pageBuilder;
+
+    private ListenableFuture<?> blocked = NOT_BLOCKED;
+    private boolean finishing;
+    private boolean buildFinished;
+    private boolean closed;
+
+    private Page probePage;
+    private int probePosition;
+    // last non-null probe row, used to verify that the probe input is sorted
+    private Page previousProbePage;
+    private int previousProbePosition;
+
+    private Page buildPage;
+    private int buildPosition;
+    // last non-null build row, used to verify that the build input is sorted
+    private Page previousBuildPage;
+    private int previousBuildPosition;
+
+    // build rows sharing the join key of the first row of the first page
+    private final List<Page> group = new ArrayList<>();
+    private boolean groupComplete;
+    // position in group of the next row to be joined with the current probe row, if the probe row is being joined
+    private int groupPageIndex = -1;
+    private int groupPosition;
+
+    private MergeJoinOperator(
+            OperatorContext operatorContext,
+            MergeJoinSource mergeJoinSource,
+            List<Type> probeTypes,
+            List<Integer> probeJoinChannels,
+            List<Integer> probeOutputChannels,
+            List<Type> buildTypes,
+            List<Integer> buildJoinChannels,
+            List<Integer> buildOutputChannels,
+            List<SortOrder> sortOrders,
+            Runnable afterClose)
+    {
+        this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
+        this.mergeJoinSource = requireNonNull(mergeJoinSource, "mergeJoinSource is null");
+        this.localUserMemoryContext = operatorContext.localUserMemoryContext();
+        this.afterClose = requireNonNull(afterClose, "afterClose is null");
+        this.probeTypes = probeTypes;
+        this.probeJoinChannels = probeJoinChannels;
+        this.probeOutputChannels = probeOutputChannels;
+        this.buildTypes = buildTypes;
+        this.buildJoinChannels = buildJoinChannels;
+        this.buildOutputChannels = buildOutputChannels;
+        this.keyTypes = probeJoinChannels.stream()
+                .map(probeTypes::get)
+                .collect(toImmutableList());
+        this.sortOrders = sortOrders;
+        this.pageBuilder = new PageBuilder(ImmutableList.<Type>builder()
+                .addAll(probeOutputChannels.stream().map(probeTypes::get).iterator())
+                .addAll(buildOutputChannels.stream().map(buildTypes::get).iterator())
+                .build());
+    }
+
+    @Override
+    public OperatorContext getOperatorContext()
+    {
+        return operatorContext;
+    }
+
+    @Override
+    public void finish()
+    {
+        finishing = true;
+    }
+
+    @Override
+    public boolean isFinished()
+    {
+        boolean finished = (finishing || buildFinished) && probePage == null && pageBuilder.isEmpty();
+
+        if (finished) {
+            close();
+        }
+        return finished;
+    }
+
+    @Override
+    public ListenableFuture<?> isBlocked()
+    {
+        return blocked;
+    }
+
+    @Override
+    public boolean needsInput()
+    {
+        return !finishing && !buildFinished && probePage == null;
+    }
+
+    @Override
+    public void addInput(Page page)
+    {
+        requireNonNull(page, "page is null");
+        checkState(needsInput(), "Operator cannot accept input");
+
+        if (page.getPositionCount() > 0) {
+            probePage = page;
+            probePosition = 0;
+        }
+    }
+
+    @Override
+    public Page getOutput()
+    {
+        if (probePage != null && blocked.isDone()) {
+            processProbe();
+        }
+        if (pageBuilder.isEmpty() || (!pageBuilder.isFull() && probePage != null && blocked.isDone())) {
+            return null;
+        }
+        Page page = pageBuilder.build();
+        pageBuilder.reset();
+        return page;
+    }
+
+    @Override
+    public void close()
+    {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        probePage = null;
+        buildPage = null;
+        previousProbePage = null;
+        previousBuildPage = null;
+        group.clear();
+        localUserMemoryContext.setBytes(0);
+        mergeJoinSource.probeFinished();
+        afterClose.run();
+    }
+
+    private void processProbe()
+    {
+        while (probePage != null && !pageBuilder.isFull()) {
+            if (groupPageIndex >= 0) {
+                joinCurrentProbeRow();
+                continue;
+            }
+            if (probePosition == probePage.getPositionCount()) {
+                probePage = null;
+                return;
+            }
+            if (hasNullKey(probePage, probeJoinChannels, probePosition)) {
+                probePosition++;
+                continue;
+            }
+            verifyProbeSorted();
+
+            if (!group.isEmpty()) {
+                int comparison = compare(probePage, probePosition, probeJoinChannels, group.get(0), 0, buildJoinChannels);
+                if (comparison == 0) {
+                    if (!groupComplete && !fillGroup()) {
+                        return;
+                    }
+                    groupPageIndex = 0;
+                    groupPosition = 0;
+                    continue;
+                }
+                if (comparison < 0) {
+                    probePosition++;
+                    continue;
+                }
+                // the probe has moved past the group, which is no longer needed
+                group.clear();
+                localUserMemoryContext.setBytes(0);
+            }
+
+            if (!advanceBuild()) {
+                if (buildFinished) {
+                    // no more build rows, so the remaining probe rows cannot match
+                    probePage = null;
+                }
+                return;
+            }
+            int comparison = compare(probePage, probePosition, probeJoinChannels, buildPage, buildPosition, buildJoinChannels);
+            if (comparison > 0) {
+                buildPosition++;
+            }
+            else if (comparison < 0) {
+                probePosition++;
+            }
+            else {
+                groupComplete = false;
+                if (!fillGroup()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Positions the build cursor on the next build row with non-null join keys.
+     * Returns false if no such row is currently available.
+     */
+    private boolean advanceBuild()
+    {
+        while (true) {
+            if (buildPage == null || buildPosition == buildPage.getPositionCount()) {
+                buildPage = mergeJoinSource.pollPage();
+                buildPosition = 0;
+                if (buildPage == null) {
+                    if (mergeJoinSource.isFinished()) {
+                        buildFinished = true;
+                    }
+                    else {
+                        blocked = mergeJoinSource.isBlocked();
+                    }
+                    return false;
+                }
+                continue;
+            }
+            if (hasNullKey(buildPage, buildJoinChannels, buildPosition)) {
+                buildPosition++;
+                continue;
+            }
+            verifyBuildSorted();
+            return true;
+        }
+    }
+
+    /**
+     * Appends the build rows sharing the join key of the group to the group.
+     * Returns false if more build rows are needed to complete the group, but none are available yet.
+     */
+    private boolean fillGroup()
+    {
+        while (!groupComplete) {
+            if (buildPage == null || buildPosition == buildPage.getPositionCount()) {
+                buildPage = mergeJoinSource.pollPage();
+                buildPosition = 0;
+                if (buildPage == null) {
+                    if (!mergeJoinSource.isFinished()) {
+                        blocked = mergeJoinSource.isBlocked();
+                        return false;
+                    }
+                    groupComplete = true;
+                    break;
+                }
+                continue;
+            }
+
+            int start = buildPosition;
+            int end = start;
+            Page keyPage = group.isEmpty() ? buildPage : group.get(0);
+            int keyPosition = group.isEmpty() ? start : 0;
+            while (end < buildPage.getPositionCount() &&
+                    !hasNullKey(buildPage, buildJoinChannels, end) &&
+                    compare(keyPage, keyPosition, buildJoinChannels, buildPage, end, buildJoinChannels) == 0) {
+                end++;
+            }
+            if (end > start) {
+                group.add(buildPage.getRegion(start, end - start));
+                previousBuildPage = buildPage;
+                previousBuildPosition = end - 1;
+                buildPosition = end;
+            }
+            groupComplete = end < buildPage.getPositionCount();
+        }
+
+        long retainedSize = 0;
+        for (Page page : group) {
+            retainedSize += page.getRetainedSizeInBytes();
+        }
+        localUserMemoryContext.setBytes(retainedSize);
+        return true;
+    }
+
+    private void joinCurrentProbeRow()
+    {
+        while (groupPageIndex < group.size()) {
+            Page groupPage = group.get(groupPageIndex);
+            while (groupPosition < groupPage.getPositionCount()) {
+                if (pageBuilder.isFull()) {
+                    return;
+                }
+                pageBuilder.declarePosition();
+                int outputChannel = 0;
+                for (int channel : probeOutputChannels) {
+                    probeTypes.get(channel).appendTo(probePage.getBlock(channel), probePosition, pageBuilder.getBlockBuilder(outputChannel));
+                    outputChannel++;
+                }
+                for (int channel : buildOutputChannels) {
+                    buildTypes.get(channel).appendTo(groupPage.getBlock(channel), groupPosition, pageBuilder.getBlockBuilder(outputChannel));
+                    outputChannel++;
+                }
+                groupPosition++;
+            }
+            groupPageIndex++;
+            groupPosition = 0;
+        }
+        groupPageIndex = -1;
+        probePosition++;
+    }
+
+    private void verifyProbeSorted()
+    {
+        if (previousProbePage == probePage && previousProbePosition == probePosition) {
+            return;
+        }
+        if (previousProbePage != null && compare(previousProbePage, previousProbePosition, probeJoinChannels, probePage, probePosition, probeJoinChannels) > 0) {
+            throw new PrestoException(MERGE_JOIN_INPUT_NOT_SORTED, "Left input of merge join is not sorted on the join keys");
+        }
+        previousProbePage = probePage;
+        previousProbePosition = probePosition;
+    }
+
+    private void verifyBuildSorted()
+    {
+        if (previousBuildPage == buildPage && previousBuildPosition == buildPosition) {
+            return;
+        }
+        if (previousBuildPage != null && compare(previousBuildPage, previousBuildPosition, buildJoinChannels, buildPage, buildPosition, buildJoinChannels) > 0) {
+            throw new PrestoException(MERGE_JOIN_INPUT_NOT_SORTED, "Right input of merge join is not sorted on the join keys");
+        }
+        previousBuildPage = buildPage;
+        previousBuildPosition = buildPosition;
+    }
+
+    private int compare(Page left, int leftPosition, List<Integer> leftChannels, Page right, int rightPosition, List<Integer> rightChannels)
+    {
+        for (int i = 0; i < keyTypes.size(); i++) {
+            int comparison = sortOrders.get(i).compareBlockValue(
+                    keyTypes.get(i),
+                    left.getBlock(leftChannels.get(i)),
+                    leftPosition,
+                    right.getBlock(rightChannels.get(i)),
+                    rightPosition);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    private static boolean hasNullKey(Page page, List<Integer> channels, int position)
+    {
+        for (int channel : channels) {
+            if (page.getBlock(channel).isNull(position)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
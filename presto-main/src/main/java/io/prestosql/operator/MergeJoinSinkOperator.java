@@ -0,0 +1,155 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.operator;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import io.prestosql.execution.Lifespan;
+import io.prestosql.spi.Page;
+import io.prestosql.spi.PrestoException;
+import io.prestosql.sql.planner.plan.PlanNodeId;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.google.common.base.Preconditions.checkState;
+import static io.prestosql.spi.StandardErrorCode.NOT_SUPPORTED;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Streams the sorted right side of a merge join into the {@link MergeJoinSource}.
+ */
+public class MergeJoinSinkOperator
+        implements Operator
+{
+    public static class MergeJoinSinkOperatorFactory
+            implements OperatorFactory
+    {
+        private final int operatorId;
+        private final PlanNodeId planNodeId;
+        private final JoinBridgeManager<MergeJoinSource> mergeJoinSourceManager;
+        private final Set<Lifespan> lifespans;
+
+        private boolean closed;
+
+        public MergeJoinSinkOperatorFactory(int operatorId, PlanNodeId planNodeId, JoinBridgeManager<MergeJoinSource> mergeJoinSourceManager)
+        {
+            this(operatorId, planNodeId, mergeJoinSourceManager, ConcurrentHashMap.newKeySet());
+        }
+
+        private MergeJoinSinkOperatorFactory(int operatorId, PlanNodeId planNodeId, JoinBridgeManager<MergeJoinSource> mergeJoinSourceManager, Set<Lifespan> lifespans)
+        {
+            this.operatorId = operatorId;
+            this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
+            this.mergeJoinSourceManager = requireNonNull(mergeJoinSourceManager, "mergeJoinSourceManager is null");
+            this.lifespans = requireNonNull(lifespans, "lifespans is null");
+        }
+
+        @Override
+        public Operator createOperator(DriverContext driverContext)
+        {
+            checkState(!closed, "Factory is already closed");
+            Lifespan lifespan = driverContext.getLifespan();
+            if (!lifespans.add(lifespan)) {
+                throw new PrestoException(NOT_SUPPORTED, format("Merge join requires the right input to be read by a single driver, but more than one was created for %s", lifespan));
+            }
+            OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, planNodeId, MergeJoinSinkOperator.class.getSimpleName());
+            return new MergeJoinSinkOperator(operatorContext, mergeJoinSourceManager.getJoinBridge(lifespan));
+        }
+
+        @Override
+        public void noMoreOperators()
+        {
+            closed = true;
+        }
+
+        @Override
+        public OperatorFactory duplicate()
+        {
+            return new MergeJoinSinkOperatorFactory(operatorId, planNodeId, mergeJoinSourceManager, lifespans);
+        }
+    }
+
+    private final OperatorContext operatorContext;
+    private final MergeJoinSource mergeJoinSource;
+
+    private ListenableFuture<?> blocked = NOT_BLOCKED;
+    private boolean finishing;
+
+    public MergeJoinSinkOperator(OperatorContext operatorContext, MergeJoinSource mergeJoinSource)
+    {
+        this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
+        this.mergeJoinSource = requireNonNull(mergeJoinSource, "mergeJoinSource is null");
+    }
+
+    @Override
+    public OperatorContext getOperatorContext()
+    {
+        return operatorContext;
+    }
+
+    @Override
+    public void finish()
+    {
+        if (finishing) {
+            return;
+        }
+        finishing = true;
+        mergeJoinSource.finish();
+    }
+
+    @Override
+    public boolean isFinished()
+    {
+        return finishing || mergeJoinSource.isProbeFinished();
+    }
+
+    @Override
+    public ListenableFuture<?> isBlocked()
+    {
+        return blocked;
+    }
+
+    @Override
+    public boolean needsInput()
+    {
+        return !isFinished() && blocked.isDone();
+    }
+
+    @Override
+    public void addInput(Page page)
+    {
+        requireNonNull(page, "page is null");
+        checkState(needsInput(), "Operator is already finishing");
+
+        if (page.getPositionCount() == 0) {
+            return;
+        }
+        blocked = mergeJoinSource.addPage(page);
+        operatorContext.recordOutput(page.getSizeInBytes(), page.getPositionCount());
+    }
+
+    @Override
+    public Page getOutput()
+    {
+        return null;
+    }
+
+    @Override
+    public void close()
+    {
+        // the right side may stop early when the left side no longer needs pages
+        mergeJoinSource.finish();
+    }
+}
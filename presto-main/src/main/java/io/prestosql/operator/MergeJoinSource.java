@@ -0,0 +1,202 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.operator;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.prestosql.spi.Page;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Bounded queue of sorted pages handed over from the {@link MergeJoinSinkOperator}
+ * (right side) to the {@link MergeJoinOperator} (left side) of a merge join.
+ * Unlike the other join bridges, pages are streamed rather than accumulated,
+ * so the right side is never fully buffered.
+ */
+@ThreadSafe
+public class MergeJoinSource
+        implements JoinBridge
+{
+    private static final ListenableFuture<?> NOT_BLOCKED = immediateFuture(null);
+
+    private final long maxBufferedBytes;
+    private final SettableFuture<?> buildFinished = SettableFuture.create();
+
+    @GuardedBy("this")
+    private final Queue<Page> pages = new ArrayDeque<>();
+    @GuardedBy("this")
+    private long bufferedBytes;
+    @GuardedBy("this")
+    private boolean finishing;
+    @GuardedBy("this")
+    private boolean probeFinished;
+    @GuardedBy("this")
+    private SettableFuture<?> notFullFuture;
+    @GuardedBy("this")
+    private SettableFuture<?> notEmptyFuture;
+
+    public MergeJoinSource(long maxBufferedBytes)
+    {
+        checkArgument(maxBufferedBytes > 0, "maxBufferedBytes must be > 0");
+        this.maxBufferedBytes = maxBufferedBytes;
+    }
+
+    /**
+     * Returns a future that completes when the sink may add more pages.
+     */
+    public ListenableFuture<?> addPage(Page page)
+    {
+        requireNonNull(page, "page is null");
+        SettableFuture<?> notEmpty;
+        ListenableFuture<?> result;
+        synchronized (this) {
+            if (probeFinished) {
+                return NOT_BLOCKED;
+            }
+            checkState(!finishing, "source is already finishing");
+            pages.add(page);
+            bufferedBytes += page.getRetainedSizeInBytes();
+            notEmpty = notEmptyFuture;
+            notEmptyFuture = null;
+            if (bufferedBytes <= maxBufferedBytes) {
+                result = NOT_BLOCKED;
+            }
+            else {
+                if (notFullFuture == null) {
+                    notFullFuture = SettableFuture.create();
+                }
+                result = notFullFuture;
+            }
+        }
+        // complete future outside of lock since this can invoke callbacks
+        if (notEmpty != null) {
+            notEmpty.set(null);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the next page, or null when no page is currently buffered.
+     */
+    @Nullable
+    public Page pollPage()
+    {
+        Page page;
+        SettableFuture<?> notFull = null;
+        synchronized (this) {
+            page = pages.poll();
+            if (page == null) {
+                return null;
+            }
+            bufferedBytes -= page.getRetainedSizeInBytes();
+            if (bufferedBytes <= maxBufferedBytes) {
+                notFull = notFullFuture;
+                notFullFuture = null;
+            }
+        }
+        if (notFull != null) {
+            notFull.set(null);
+        }
+        return page;
+    }
+
+    /**
+     * Returns a future that completes when a page is buffered or the sink has finished.
+     */
+    public synchronized ListenableFuture<?> isBlocked()
+    {
+        if (!pages.isEmpty() || finishing) {
+            return NOT_BLOCKED;
+        }
+        if (notEmptyFuture == null) {
+            notEmptyFuture = SettableFuture.create();
+        }
+        return notEmptyFuture;
+    }
+
+    /**
+     * Returns true when the sink has finished and all pages were consumed.
+     */
+    public synchronized boolean isFinished()
+    {
+        return finishing && pages.isEmpty();
+    }
+
+    public void finish()
+    {
+        SettableFuture<?> notEmpty;
+        synchronized (this) {
+            finishing = true;
+            notEmpty = notEmptyFuture;
+            notEmptyFuture = null;
+        }
+        if (notEmpty != null) {
+            notEmpty.set(null);
+        }
+        buildFinished.set(null);
+    }
+
+    /**
+     * Called by the probe when it no longer needs pages. Buffered pages are
+     * released and the sink is unblocked so that it can finish early.
+     */
+    public void probeFinished()
+    {
+        SettableFuture<?> notFull;
+        synchronized (this) {
+            probeFinished = true;
+            pages.clear();
+            bufferedBytes = 0;
+            notFull = notFullFuture;
+            notFullFuture = null;
+        }
+        if (notFull != null) {
+            notFull.set(null);
+        }
+    }
+
+    public synchronized boolean isProbeFinished()
+    {
+        return probeFinished;
+    }
+
+    @Override
+    public OuterPositionIterator getOuterPositionIterator()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void destroy()
+    {
+        probeFinished();
+    }
+
+    @Override
+    public ListenableFuture<?> whenBuildFinishes()
+    {
+        return buildFinished;
+    }
+}
@@ -14,6 +14,7 @@
 package io.prestosql.operator;
 
 import com.google.common.io.Closer;
+import com.google.common.primitives.Ints;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 import io.prestosql.execution.buffer.PagesSerde;
@@ -32,7 +33,9 @@ import java.io.UncheckedIOException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.function.Supplier;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -40,6 +43,7 @@ import static com.google.common.base.Preconditions.checkState;
 import static io.prestosql.util.MergeSortedPages.mergeSortedPages;
 import static io.prestosql.util.MoreLists.mappedCopy;
 import static java.util.Objects.requireNonNull;
+import static java.util.function.Function.identity;
 
 public class MergeOperator
         implements SourceOperator
@@ -57,6 +61,7 @@ public class MergeOperator
         private final List<Integer> sortChannels;
         private final List<SortOrder> sortOrder;
         private final OrderingCompiler orderingCompiler;
+        private final boolean orderedPartitions;
         private boolean closed;
 
         public MergeOperatorFactory(
@@ -68,7 +73,8 @@ public class MergeOperator
                 List<Type> types,
                 List<Integer> outputChannels,
                 List<Integer> sortChannels,
-                List<SortOrder> sortOrder)
+                List<SortOrder> sortOrder,
+                boolean orderedPartitions)
         {
             this.operatorId = operatorId;
             this.sourceId = requireNonNull(sourceId, "sourceId is null");
@@ -80,6 +86,7 @@ public class MergeOperator
             this.sortChannels = requireNonNull(sortChannels, "sortChannels is null");
             this.sortOrder = requireNonNull(sortOrder, "sortOrder is null");
             this.orderingCompiler = requireNonNull(orderingCompiler, "mergeSortComparatorFactory is null");
+            this.orderedPartitions = orderedPartitions;
         }
 
         @Override
@@ -101,7 +108,8 @@ public class MergeOperator
                     serdeFactory.createPagesSerde(),
                     orderingCompiler.compilePageWithPositionComparator(types, sortChannels, sortOrder),
                     outputChannels,
-                    outputTypes);
+                    outputTypes,
+                    orderedPartitions);
         }
 
         @Override
@@ -118,10 +126,12 @@ public class MergeOperator
     private final PageWithPositionComparator comparator;
     private final List<Integer> outputChannels;
     private final List<Type> outputTypes;
+    private final boolean orderedPartitions;
 
     private final SettableFuture<Void> blockedOnSplits = SettableFuture.create();
 
     private final List<WorkProcessor<Page>> pageProducers = new ArrayList<>();
+    private final Map<Integer, WorkProcessor<Page>> partitionPageProducers = new TreeMap<>();
     private final Closer closer = Closer.create();
 
     private WorkProcessor<Page> mergedPages;
@@ -134,7 +144,8 @@ public class MergeOperator
             PagesSerde pagesSerde,
             PageWithPositionComparator comparator,
             List<Integer> outputChannels,
-            List<Type> outputTypes)
+            List<Type> outputTypes,
+            boolean orderedPartitions)
     {
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
         this.sourceId = requireNonNull(sourceId, "sourceId is null");
@@ -143,6 +154,7 @@ public class MergeOperator
         this.comparator = requireNonNull(comparator, "comparator is null");
         this.outputChannels = requireNonNull(outputChannels, "outputChannels is null");
         this.outputTypes = requireNonNull(outputTypes, "outputTypes is null");
+        this.orderedPartitions = orderedPartitions;
     }
 
     @Override
@@ -158,15 +170,24 @@ public class MergeOperator
         checkArgument(split.getConnectorSplit() instanceof RemoteSplit, "split is not a remote split");
         checkState(!blockedOnSplits.isDone(), "noMoreSplits has been called already");
 
-        URI location = ((RemoteSplit) split.getConnectorSplit()).getLocation();
+        RemoteSplit remoteSplit = (RemoteSplit) split.getConnectorSplit();
+        URI location = remoteSplit.getLocation();
         ExchangeClient exchangeClient = closer.register(exchangeClientSupplier.get(operatorContext.localSystemMemoryContext()));
         exchangeClient.addLocation(location);
         exchangeClient.noMoreLocations();
-        pageProducers.add(exchangeClient.pages()
+        WorkProcessor<Page> pageProducer = exchangeClient.pages()
                 .map(serializedPage -> {
                     operatorContext.recordNetworkInput(serializedPage.getSizeInBytes(), serializedPage.getPositionCount());
                     return pagesSerde.deserialize(serializedPage);
-                }));
+                });
+
+        if (orderedPartitions) {
+            int partition = remoteSplit.getSourceTaskId().getId();
+            checkState(partitionPageProducers.put(partition, pageProducer) == null, "Duplicate split for partition %s", partition);
+        }
+        else {
+            pageProducers.add(pageProducer);
+        }
 
         return Optional::empty;
     }
@@ -174,6 +195,16 @@ public class MergeOperator
     @Override
     public void noMoreSplits()
     {
+        if (orderedPartitions) {
+            // each partition holds a range of the ordering that follows the range of the previous partition
+            int[] channels = Ints.toArray(outputChannels);
+            mergedPages = WorkProcessor.fromIterable(partitionPageProducers.values())
+                    .flatMap(identity())
+                    .map(page -> page.getColumns(channels));
+            blockedOnSplits.set(null);
+            return;
+        }
+
         mergedPages = mergeSortedPages(
                 pageProducers,
                 comparator,
@@ -0,0 +1,257 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.operator;
+
+import io.airlift.slice.Slice;
+import io.prestosql.memory.context.LocalMemoryContext;
+import io.prestosql.spi.block.SortOrder;
+import io.prestosql.spi.type.DecimalType;
+import io.prestosql.spi.type.TimestampType;
+import io.prestosql.spi.type.Type;
+import io.prestosql.spi.type.VarcharType;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static io.airlift.slice.SizeOf.sizeOfLongArray;
+import static io.prestosql.spi.type.BigintType.BIGINT;
+import static io.prestosql.spi.type.DateType.DATE;
+import static io.prestosql.spi.type.DoubleType.DOUBLE;
+import static io.prestosql.spi.type.IntegerType.INTEGER;
+import static io.prestosql.spi.type.RealType.REAL;
+import static io.prestosql.spi.type.SmallintType.SMALLINT;
+import static io.prestosql.spi.type.TinyintType.TINYINT;
+import static java.lang.Double.doubleToLongBits;
+import static java.lang.Float.intBitsToFloat;
+import static java.lang.Math.min;
+import static java.lang.Math.toIntExact;
+
+/**
+ * Sorts a range of a {@link PagesIndex} on the first sort channel using normalized keys.
+ * <p>
+ * The value of the first sort channel is encoded into a {@code long} that compares, as an
+ * unsigned number, in the same order as the value does under the sort order. The keys are
+ * sorted together with the value addresses using a least significant digit radix sort.
+ * Positions with equal keys are then sorted with the comparator, when the key does not
+ * encode the full value or there are more sort channels.
+ */
+public final class NormalizedKeySort
+{
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX = 1 << RADIX_BITS;
+    private static final int RADIX_MASK = RADIX - 1;
+    private static final int RADIX_PASSES = Long.SIZE / RADIX_BITS;
+    private static final int SCRATCH_ARRAYS = 4;
+
+    private NormalizedKeySort() {}
+
+    public static boolean isSupportedType(Type type)
+    {
+        return type.equals(BIGINT) ||
+                type.equals(INTEGER) ||
+                type.equals(SMALLINT) ||
+                type.equals(TINYINT) ||
+                type.equals(DATE) ||
+                type.equals(DOUBLE) ||
+                type.equals(REAL) ||
+                (type instanceof DecimalType && ((DecimalType) type).isShort()) ||
+                (type instanceof TimestampType && ((TimestampType) type).isShort()) ||
+                type instanceof VarcharType;
+    }
+
+    /**
+     * The scratch arrays of the sort are reserved in the given memory context while the sort runs.
+     */
+    public static void sort(PagesIndex pagesIndex, PagesIndexOrdering ordering, List<Integer> sortChannels, List<SortOrder> sortOrders, int startPosition, int endPosition, LocalMemoryContext memoryContext)
+    {
+        int channel = sortChannels.get(0);
+        Type type = pagesIndex.getTypes().get(channel);
+        SortOrder sortOrder = sortOrders.get(0);
+        LongArrayList valueAddresses = pagesIndex.getValueAddresses();
+
+        // values that share a prefix are only distinguished by the bytes after it
+        int prefixLength = type instanceof VarcharType ? getCommonPrefixLength(pagesIndex, channel, startPosition, endPosition) : 0;
+
+        // the keys and addresses, and the targets of the radix sort passes
+        int positionCount = endPosition - startPosition;
+        memoryContext.setBytes(SCRATCH_ARRAYS * sizeOfLongArray(positionCount));
+        try {
+            long[] keys = new long[positionCount];
+            long[] addresses = new long[positionCount];
+            int keyCount = 0;
+            int nullCount = 0;
+            for (int position = startPosition; position < endPosition; position++) {
+                if (pagesIndex.isNull(channel, position)) {
+                    // nulls are compacted in place at the start of the range, which is never ahead of the position
+                    valueAddresses.set(startPosition + nullCount, valueAddresses.getLong(position));
+                    nullCount++;
+                    continue;
+                }
+                long key = encode(pagesIndex, type, channel, position, prefixLength);
+                keys[keyCount] = sortOrder.isAscending() ? key : ~key;
+                addresses[keyCount] = valueAddresses.getLong(position);
+                keyCount++;
+            }
+
+            radixSort(keys, addresses, keyCount, new long[keyCount], new long[keyCount]);
+
+            int keyStart = sortOrder.isNullsFirst() ? startPosition + nullCount : startPosition;
+            int nullStart = sortOrder.isNullsFirst() ? startPosition : startPosition + keyCount;
+            // move the nulls to the end of the range, backwards as the source and target may overlap
+            for (int i = nullCount - 1; i >= 0 && nullStart != startPosition; i--) {
+                valueAddresses.set(nullStart + i, valueAddresses.getLong(startPosition + i));
+            }
+            for (int i = 0; i < keyCount; i++) {
+                valueAddresses.set(keyStart + i, addresses[i]);
+            }
+
+            breakTies(pagesIndex, ordering, type, sortChannels, keys, keyCount, keyStart, nullCount, nullStart);
+        }
+        finally {
+            memoryContext.setBytes(0);
+        }
+    }
+
+    private static void breakTies(PagesIndex pagesIndex, PagesIndexOrdering ordering, Type type, List<Integer> sortChannels, long[] keys, int keyCount, int keyStart, int nullCount, int nullStart)
+    {
+        boolean exactKeys = !(type instanceof VarcharType);
+        if (exactKeys && sortChannels.size() == 1) {
+            return;
+        }
+
+        // break ties between positions with equal keys
+        if (nullCount > 1 && sortChannels.size() > 1) {
+            ordering.sort(pagesIndex, nullStart, nullStart + nullCount);
+        }
+        int runStart = 0;
+        for (int i = 1; i <= keyCount; i++) {
+            if (i == keyCount || keys[i] != keys[runStart]) {
+                if (i - runStart > 1) {
+                    ordering.sort(pagesIndex, keyStart + runStart, keyStart + i);
+                }
+                runStart = i;
+            }
+        }
+    }
+
+    private static long encode(PagesIndex pagesIndex, Type type, int channel, int position, int prefixLength)
+    {
+        if (type.equals(DOUBLE)) {
+            return encodeDouble(pagesIndex.getDouble(channel, position));
+        }
+        if (type.equals(REAL)) {
+            return encodeDouble(intBitsToFloat(toIntExact(pagesIndex.getLong(channel, position))));
+        }
+        if (type instanceof VarcharType) {
+            return encodePrefix(pagesIndex.getSlice(channel, position), prefixLength);
+        }
+        // flip the sign bit so that signed values compare as unsigned
+        return pagesIndex.getLong(channel, position) ^ Long.MIN_VALUE;
+    }
+
+    private static long encodeDouble(double value)
+    {
+        // same order as Double.compare: negative values have all bits flipped, positive values only the sign bit
+        long bits = doubleToLongBits(value);
+        return bits < 0 ? ~bits : bits ^ Long.MIN_VALUE;
+    }
+
+    private static long encodePrefix(Slice slice, int offset)
+    {
+        // bytes of the value after the offset in big endian order, shorter values are padded with zeros
+        if (slice.length() - offset >= Long.BYTES) {
+            return Long.reverseBytes(slice.getLong(offset));
+        }
+        long key = 0;
+        int length = slice.length() - offset;
+        for (int i = 0; i < length; i++) {
+            key |= (slice.getByte(offset + i) & 0xFFL) << (Long.SIZE - Byte.SIZE * (i + 1));
+        }
+        return key;
+    }
+
+    private static int getCommonPrefixLength(PagesIndex pagesIndex, int channel, int startPosition, int endPosition)
+    {
+        Slice first = null;
+        int prefixLength = 0;
+        for (int position = startPosition; position < endPosition && (first == null || prefixLength > 0); position++) {
+            if (pagesIndex.isNull(channel, position)) {
+                continue;
+            }
+            Slice slice = pagesIndex.getSlice(channel, position);
+            if (first == null) {
+                first = slice;
+                prefixLength = slice.length();
+                continue;
+            }
+            int length = min(prefixLength, slice.length());
+            int i = 0;
+            while (i < length && first.getByte(i) == slice.getByte(i)) {
+                i++;
+            }
+            prefixLength = i;
+        }
+        return prefixLength;
+    }
+
+    private static void radixSort(long[] keys, long[] addresses, int count, long[] targetKeys, long[] targetAddresses)
+    {
+        if (count < 2) {
+            return;
+        }
+
+        long[] sourceKeys = keys;
+        long[] sourceAddresses = addresses;
+        int[] counts = new int[RADIX];
+
+        for (int pass = 0; pass < RADIX_PASSES; pass++) {
+            int shift = pass * RADIX_BITS;
+            for (int i = 0; i < count; i++) {
+                counts[(int) (sourceKeys[i] >>> shift) & RADIX_MASK]++;
+            }
+            // skip digits that are equal for all keys
+            if (counts[(int) (sourceKeys[0] >>> shift) & RADIX_MASK] == count) {
+                counts[(int) (sourceKeys[0] >>> shift) & RADIX_MASK] = 0;
+                continue;
+            }
+
+            int offset = 0;
+            for (int digit = 0; digit < RADIX; digit++) {
+                int digitCount = counts[digit];
+                counts[digit] = offset;
+                offset += digitCount;
+            }
+            for (int i = 0; i < count; i++) {
+                int digit = (int) (sourceKeys[i] >>> shift) & RADIX_MASK;
+                int target = counts[digit]++;
+                targetKeys[target] = sourceKeys[i];
+                targetAddresses[target] = sourceAddresses[i];
+            }
+
+            long[] swap = sourceKeys;
+            sourceKeys = targetKeys;
+            targetKeys = swap;
+            swap = sourceAddresses;
+            sourceAddresses = targetAddresses;
+            targetAddresses = swap;
+            Arrays.fill(counts, 0);
+        }
+
+        if (sourceKeys != keys) {
+            System.arraycopy(sourceKeys, 0, keys, 0, count);
+            System.arraycopy(sourceAddresses, 0, addresses, 0, count);
+        }
+    }
+}
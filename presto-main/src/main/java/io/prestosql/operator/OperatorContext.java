@@ -20,6 +20,8 @@ import com.google.common.util.concurrent.SettableFuture;
 import io.airlift.stats.CounterStat;
 import io.airlift.units.Duration;
 import io.prestosql.Session;
+import io.prestosql.jfr.MemoryRevocationEvent;
+import io.prestosql.jfr.OperatorBlockedEvent;
 import io.prestosql.memory.QueryContextVisitor;
 import io.prestosql.memory.context.AggregatedMemoryContext;
 import io.prestosql.memory.context.LocalMemoryContext;
@@ -92,7 +94,9 @@ public class OperatorContext
 
     private final OperationTiming finishTiming = new OperationTiming();
 
-    private final OperatorSpillContext spillContext;
+    // created on first use, so that the operator context does not escape its constructor
+    @GuardedBy("this")
+    private OperatorSpillContext spillContext;
     private final AtomicReference<Supplier<OperatorInfo>> infoSupplier = new AtomicReference<>();
     private final AtomicReference<Supplier<List<OperatorStats>>> nestedOperatorStatsSupplier = new AtomicReference<>();
 
@@ -123,7 +127,6 @@ public class OperatorContext
         this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
         this.operatorType = requireNonNull(operatorType, "operatorType is null");
         this.driverContext = requireNonNull(driverContext, "driverContext is null");
-        this.spillContext = new OperatorSpillContext(this.driverContext);
         this.executor = requireNonNull(executor, "executor is null");
         this.memoryFuture = new AtomicReference<>(SettableFuture.create());
         this.memoryFuture.get().set(null);
@@ -374,11 +377,19 @@ public class OperatorContext
         }
     }
 
-    public SpillContext getSpillContext()
+    public synchronized SpillContext getSpillContext()
     {
+        if (spillContext == null) {
+            spillContext = new OperatorSpillContext(this);
+        }
         return spillContext;
     }
 
+    private synchronized long getSpilledBytes()
+    {
+        return spillContext == null ? 0 : spillContext.getSpilledBytes();
+    }
+
     public void moreMemoryAvailable()
     {
         memoryFuture.get().set(null);
@@ -404,6 +415,12 @@ public class OperatorContext
             }
         }
         if (listener != null) {
+            MemoryRevocationEvent event = new MemoryRevocationEvent();
+            if (event.shouldCommit()) {
+                event.setOperatorContext(this);
+                event.setRevocableBytes(revokedMemory);
+                event.commit();
+            }
             runListener(listener);
         }
         return revokedMemory;
@@ -537,7 +554,7 @@ public class OperatorContext
                 succinctBytes(peakRevocableMemoryReservation.get()),
                 succinctBytes(peakTotalMemoryReservation.get()),
 
-                succinctBytes(spillContext.getSpilledBytes()),
+                succinctBytes(getSpilledBytes()),
 
                 memoryFuture.get().isDone() ? Optional.empty() : Optional.of(WAITING_FOR_MEMORY),
                 info);
@@ -561,12 +578,35 @@ public class OperatorContext
         return max(0, end - start);
     }
 
+    private String getBlockedReason()
+    {
+        // in the order the driver checks the blocked futures of an operator, except that the operator itself is not visible here
+        if (isMemoryRevokingRequested()) {
+            return "MEMORY_REVOKING";
+        }
+        if (!memoryFuture.get().isDone()) {
+            return WAITING_FOR_MEMORY.name();
+        }
+        if (!revocableMemoryFuture.get().isDone()) {
+            return "WAITING_FOR_REVOCABLE_MEMORY";
+        }
+        return "WAITING_FOR_OPERATOR";
+    }
+
     private class BlockedMonitor
             implements Runnable
     {
         private final long start = System.nanoTime();
+        private final OperatorBlockedEvent event = new OperatorBlockedEvent();
+        private final String blockedReason;
         private boolean finished;
 
+        public BlockedMonitor()
+        {
+            event.begin();
+            blockedReason = event.isEnabled() || driverContext.isTimelineSampled() ? getBlockedReason() : null;
+        }
+
         @Override
         public synchronized void run()
         {
@@ -575,7 +615,16 @@ public class OperatorContext
             }
             finished = true;
             blockedMonitor.compareAndSet(this, null);
-            blockedWallNanos.getAndAdd(getBlockedTime());
+            long end = System.nanoTime();
+            blockedWallNanos.getAndAdd(nanosBetween(start, end));
+            driverContext.recordOperatorBlocked(operatorId, operatorType, blockedReason, start, end);
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.setOperatorContext(OperatorContext.this);
+                event.setBlockedReason(blockedReason);
+                event.commit();
+            }
         }
 
         public long getBlockedTime()
@@ -588,13 +637,21 @@ public class OperatorContext
     private static class OperatorSpillContext
             implements SpillContext
     {
+        private final OperatorContext operatorContext;
         private final DriverContext driverContext;
         private final AtomicLong reservedBytes = new AtomicLong();
         private final AtomicLong spilledBytes = new AtomicLong();
 
-        public OperatorSpillContext(DriverContext driverContext)
+        public OperatorSpillContext(OperatorContext operatorContext)
+        {
+            this.operatorContext = operatorContext;
+            this.driverContext = operatorContext.getDriverContext();
+        }
+
+        @Override
+        public Optional<OperatorContext> getOperatorContext()
         {
-            this.driverContext = driverContext;
+            return Optional.of(operatorContext);
         }
 
         @Override
@@ -146,6 +146,7 @@ public class OrderByOperator
     private final int[] outputChannels;
     private final LocalMemoryContext revocableMemoryContext;
     private final LocalMemoryContext localUserMemoryContext;
+    private final LocalMemoryContext sortMemoryContext;
 
     private final PagesIndex pageIndex;
 
@@ -184,6 +185,7 @@ public class OrderByOperator
         this.sourceTypes = ImmutableList.copyOf(requireNonNull(sourceTypes, "sourceTypes is null"));
         this.localUserMemoryContext = operatorContext.localUserMemoryContext();
         this.revocableMemoryContext = operatorContext.localRevocableMemoryContext();
+        this.sortMemoryContext = operatorContext.aggregateUserMemoryContext().newLocalMemoryContext(OrderByOperator.class.getSimpleName());
 
         this.pageIndex = pagesIndexFactory.newPagesIndex(sourceTypes, expectedPositions);
         this.spillEnabled = spillEnabled;
@@ -224,7 +226,7 @@ public class OrderByOperator
                 }
             }
 
-            pageIndex.sort(sortChannels, sortOrder);
+            pageIndex.sort(sortChannels, sortOrder, sortMemoryContext);
             Iterator<Page> sortedPagesIndex = pageIndex.getSortedPages();
 
             List<WorkProcessor<Page>> spilledPages = getSpilledPages();
@@ -315,7 +317,7 @@ public class OrderByOperator
                     operatorContext.newAggregateSystemMemoryContext()));
         }
 
-        pageIndex.sort(sortChannels, sortOrder);
+        pageIndex.sort(sortChannels, sortOrder, sortMemoryContext);
         spillInProgress = spiller.get().spill(pageIndex.getSortedPages());
         finishMemoryRevoke = () -> {
             pageIndex.clear();
@@ -15,6 +15,7 @@ package io.prestosql.operator;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import io.airlift.units.DataSize;
 import org.joda.time.DateTime;
 
 import java.net.URI;
@@ -37,6 +38,9 @@ public class PageBufferClientStatus
     private final int requestsScheduled;
     private final int requestsCompleted;
     private final int requestsFailed;
+    private final long bytesReceived;
+    private final long bytesPerSecond;
+    private final DataSize responseSizeLimit;
     private final String httpRequestState;
 
     @JsonCreator
@@ -50,6 +54,9 @@ public class PageBufferClientStatus
             @JsonProperty("requestsScheduled") int requestsScheduled,
             @JsonProperty("requestsCompleted") int requestsCompleted,
             @JsonProperty("requestsFailed") int requestsFailed,
+            @JsonProperty("bytesReceived") long bytesReceived,
+            @JsonProperty("bytesPerSecond") long bytesPerSecond,
+            @JsonProperty("responseSizeLimit") DataSize responseSizeLimit,
             @JsonProperty("httpRequestState") String httpRequestState)
     {
         this.uri = uri;
@@ -62,6 +69,9 @@ public class PageBufferClientStatus
         this.requestsScheduled = requestsScheduled;
         this.requestsCompleted = requestsCompleted;
         this.requestsFailed = requestsFailed;
+        this.bytesReceived = bytesReceived;
+        this.bytesPerSecond = bytesPerSecond;
+        this.responseSizeLimit = requireNonNull(responseSizeLimit, "responseSizeLimit is null");
         this.httpRequestState = httpRequestState;
     }
 
@@ -125,6 +135,27 @@ public class PageBufferClientStatus
         return requestsFailed;
     }
 
+    @JsonProperty
+    public long getBytesReceived()
+    {
+        return bytesReceived;
+    }
+
+    /**
+     * Effective bandwidth of the source, that is the bytes received divided by the total duration of the requests.
+     */
+    @JsonProperty
+    public long getBytesPerSecond()
+    {
+        return bytesPerSecond;
+    }
+
+    @JsonProperty
+    public DataSize getResponseSizeLimit()
+    {
+        return responseSizeLimit;
+    }
+
     @JsonProperty
     public String getHttpRequestState()
     {
@@ -140,6 +171,8 @@ public class PageBufferClientStatus
                 .add("lastUpdate", lastUpdate)
                 .add("rowsReceived", rowsReceived)
                 .add("pagesReceived", pagesReceived)
+                .add("bytesReceived", bytesReceived)
+                .add("bytesPerSecond", bytesPerSecond)
                 .add("httpRequestState", httpRequestState)
                 .toString();
     }
@@ -0,0 +1,88 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.operator;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.prestosql.util.Mergeable;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+
+/**
+ * Pages received by an exchange client with one compression codec
+ */
+public class PageCodecStatus
+        implements Mergeable<PageCodecStatus>
+{
+    private final long pages;
+    private final long sizeInBytes;
+    private final long uncompressedSizeInBytes;
+
+    @JsonCreator
+    public PageCodecStatus(
+            @JsonProperty("pages") long pages,
+            @JsonProperty("sizeInBytes") long sizeInBytes,
+            @JsonProperty("uncompressedSizeInBytes") long uncompressedSizeInBytes)
+    {
+        this.pages = pages;
+        this.sizeInBytes = sizeInBytes;
+        this.uncompressedSizeInBytes = uncompressedSizeInBytes;
+    }
+
+    @JsonProperty
+    public long getPages()
+    {
+        return pages;
+    }
+
+    @JsonProperty
+    public long getSizeInBytes()
+    {
+        return sizeInBytes;
+    }
+
+    @JsonProperty
+    public long getUncompressedSizeInBytes()
+    {
+        return uncompressedSizeInBytes;
+    }
+
+    @JsonProperty
+    public double getCompressionRatio()
+    {
+        if (uncompressedSizeInBytes == 0) {
+            return 1.0;
+        }
+        return (double) sizeInBytes / uncompressedSizeInBytes;
+    }
+
+    @Override
+    public PageCodecStatus mergeWith(PageCodecStatus other)
+    {
+        return new PageCodecStatus(
+                pages + other.pages,
+                sizeInBytes + other.sizeInBytes,
+                uncompressedSizeInBytes + other.uncompressedSizeInBytes);
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("pages", pages)
+                .add("sizeInBytes", sizeInBytes)
+                .add("uncompressedSizeInBytes", uncompressedSizeInBytes)
+                .toString();
+    }
+}
@@ -20,6 +20,7 @@ import io.airlift.slice.Slice;
 import io.airlift.units.DataSize;
 import io.prestosql.Session;
 import io.prestosql.geospatial.Rectangle;
+import io.prestosql.memory.context.LocalMemoryContext;
 import io.prestosql.metadata.Metadata;
 import io.prestosql.operator.SpatialIndexBuilderOperator.SpatialPredicate;
 import io.prestosql.spi.Page;
@@ -56,6 +57,7 @@ import java.util.stream.Stream;
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static io.airlift.slice.SizeOf.sizeOf;
+import static io.prestosql.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
 import static io.prestosql.metadata.MetadataManager.createTestMetadataManager;
 import static io.prestosql.operator.SyntheticAddress.decodePosition;
 import static io.prestosql.operator.SyntheticAddress.decodeSliceIndex;
@@ -77,6 +79,8 @@ public class PagesIndex
 {
     private static final int INSTANCE_SIZE = ClassLayout.parseClass(PagesIndex.class).instanceSize();
     private static final Logger log = Logger.get(PagesIndex.class);
+    // below this size the comparator based sort is faster than extracting the keys
+    private static final int MIN_NORMALIZED_KEY_SORT_POSITIONS = 256;
 
     private final OrderingCompiler orderingCompiler;
     private final JoinCompiler joinCompiler;
@@ -87,6 +91,7 @@ public class PagesIndex
     private final ObjectArrayList<Block>[] channels;
     private final IntArrayList positionCounts;
     private final boolean eagerCompact;
+    private final boolean normalizedKeySort;
 
     private int pageCount;
     private int nextBlockToCompact;
@@ -100,7 +105,8 @@ public class PagesIndex
             Metadata metadata,
             List<Type> types,
             int expectedPositions,
-            boolean eagerCompact)
+            boolean eagerCompact,
+            boolean normalizedKeySort)
     {
         this.orderingCompiler = requireNonNull(orderingCompiler, "orderingCompiler is null");
         this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
@@ -108,6 +114,7 @@ public class PagesIndex
         this.types = ImmutableList.copyOf(requireNonNull(types, "types is null"));
         this.valueAddresses = new LongArrayList(expectedPositions);
         this.eagerCompact = eagerCompact;
+        this.normalizedKeySort = normalizedKeySort;
 
         //noinspection unchecked
         channels = (ObjectArrayList<Block>[]) new ObjectArrayList[types.size()];
@@ -132,16 +139,23 @@ public class PagesIndex
         private static final Metadata METADATA = createTestMetadataManager();
         private static final JoinCompiler JOIN_COMPILER = new JoinCompiler(METADATA);
         private final boolean eagerCompact;
+        private final boolean normalizedKeySort;
 
         public TestingFactory(boolean eagerCompact)
+        {
+            this(eagerCompact, false);
+        }
+
+        public TestingFactory(boolean eagerCompact, boolean normalizedKeySort)
         {
             this.eagerCompact = eagerCompact;
+            this.normalizedKeySort = normalizedKeySort;
         }
 
         @Override
         public PagesIndex newPagesIndex(List<Type> types, int expectedPositions)
         {
-            return new PagesIndex(ORDERING_COMPILER, JOIN_COMPILER, METADATA, types, expectedPositions, eagerCompact);
+            return new PagesIndex(ORDERING_COMPILER, JOIN_COMPILER, METADATA, types, expectedPositions, eagerCompact, normalizedKeySort);
         }
     }
 
@@ -151,6 +165,7 @@ public class PagesIndex
         private final OrderingCompiler orderingCompiler;
         private final JoinCompiler joinCompiler;
         private final boolean eagerCompact;
+        private final boolean normalizedKeySort;
         private final Metadata metadata;
 
         @Inject
@@ -159,13 +174,14 @@ public class PagesIndex
             this.orderingCompiler = requireNonNull(orderingCompiler, "orderingCompiler is null");
             this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
             this.eagerCompact = requireNonNull(featuresConfig, "featuresConfig is null").isPagesIndexEagerCompactionEnabled();
+            this.normalizedKeySort = featuresConfig.isPagesIndexNormalizedKeySortEnabled();
             this.metadata = requireNonNull(metadata, "metadata is null");
         }
 
         @Override
         public PagesIndex newPagesIndex(List<Type> types, int expectedPositions)
         {
-            return new PagesIndex(orderingCompiler, joinCompiler, metadata, types, expectedPositions, eagerCompact);
+            return new PagesIndex(orderingCompiler, joinCompiler, metadata, types, expectedPositions, eagerCompact, normalizedKeySort);
         }
     }
 
@@ -388,7 +404,27 @@ public class PagesIndex
 
     public void sort(List<Integer> sortChannels, List<SortOrder> sortOrders, int startPosition, int endPosition)
     {
-        createPagesIndexComparator(sortChannels, sortOrders).sort(this, startPosition, endPosition);
+        sort(sortChannels, sortOrders, startPosition, endPosition, newSimpleAggregatedMemoryContext().newLocalMemoryContext(PagesIndex.class.getSimpleName()));
+    }
+
+    public void sort(List<Integer> sortChannels, List<SortOrder> sortOrders, LocalMemoryContext sortMemoryContext)
+    {
+        sort(sortChannels, sortOrders, 0, getPositionCount(), sortMemoryContext);
+    }
+
+    /**
+     * @param sortMemoryContext memory context in which the scratch memory of the sort is reserved while it runs
+     */
+    public void sort(List<Integer> sortChannels, List<SortOrder> sortOrders, int startPosition, int endPosition, LocalMemoryContext sortMemoryContext)
+    {
+        PagesIndexOrdering ordering = createPagesIndexComparator(sortChannels, sortOrders);
+        if (normalizedKeySort &&
+                endPosition - startPosition >= MIN_NORMALIZED_KEY_SORT_POSITIONS &&
+                NormalizedKeySort.isSupportedType(types.get(sortChannels.get(0)))) {
+            NormalizedKeySort.sort(this, ordering, sortChannels, sortOrders, startPosition, endPosition, sortMemoryContext);
+            return;
+        }
+        ordering.sort(this, startPosition, endPosition);
     }
 
     public boolean positionEqualsPosition(PagesHashStrategy partitionHashStrategy, int leftPosition, int rightPosition)
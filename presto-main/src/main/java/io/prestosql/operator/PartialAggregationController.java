@@ -0,0 +1,69 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.operator;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Decides whether partial aggregation should be disabled based on the aggregation
+ * results observed so far. The controller is shared by all operators created from
+ * the same {@link HashAggregationOperator.HashAggregationOperatorFactory}.
+ * Once disabled, partial aggregation stays disabled for the lifetime of the factory.
+ */
+@ThreadSafe
+public class PartialAggregationController
+{
+    private final long minRows;
+    private final double uniqueRowsRatioThreshold;
+
+    private volatile boolean partialAggregationDisabled;
+    @GuardedBy("this")
+    private long totalRowsProcessed;
+    @GuardedBy("this")
+    private long totalUniqueRowsProduced;
+
+    public PartialAggregationController(long minRows, double uniqueRowsRatioThreshold)
+    {
+        checkArgument(minRows >= 0, "minRows must be non-negative");
+        checkArgument(uniqueRowsRatioThreshold >= 0 && uniqueRowsRatioThreshold <= 1, "uniqueRowsRatioThreshold must be in the range [0, 1]");
+        this.minRows = minRows;
+        this.uniqueRowsRatioThreshold = uniqueRowsRatioThreshold;
+    }
+
+    public boolean isPartialAggregationDisabled()
+    {
+        return partialAggregationDisabled;
+    }
+
+    public synchronized void onFlush(long rowsProcessed, long uniqueRowsProduced)
+    {
+        if (partialAggregationDisabled) {
+            return;
+        }
+
+        totalRowsProcessed += rowsProcessed;
+        totalUniqueRowsProduced += uniqueRowsProduced;
+        if (totalRowsProcessed >= minRows && totalUniqueRowsProduced > totalRowsProcessed * uniqueRowsRatioThreshold) {
+            partialAggregationDisabled = true;
+        }
+    }
+
+    public PartialAggregationController duplicate()
+    {
+        return new PartialAggregationController(minRows, uniqueRowsRatioThreshold);
+    }
+}
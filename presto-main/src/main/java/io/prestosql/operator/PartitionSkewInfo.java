@@ -0,0 +1,101 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.operator;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.prestosql.util.Mergeable;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Bytes sent to each consumer of a hash partitioning, and the number of partitions
+ * which were spread over multiple consumers because of skew
+ */
+public class PartitionSkewInfo
+        implements Mergeable<PartitionSkewInfo>, OperatorInfo
+{
+    private final long[] partitionBytes;
+    private final int rebalancedPartitions;
+
+    @JsonCreator
+    public PartitionSkewInfo(
+            @JsonProperty("partitionBytes") long[] partitionBytes,
+            @JsonProperty("rebalancedPartitions") int rebalancedPartitions)
+    {
+        this.partitionBytes = requireNonNull(partitionBytes, "partitionBytes is null");
+        this.rebalancedPartitions = rebalancedPartitions;
+    }
+
+    @JsonProperty
+    public long[] getPartitionBytes()
+    {
+        return partitionBytes;
+    }
+
+    @JsonProperty
+    public int getRebalancedPartitions()
+    {
+        return rebalancedPartitions;
+    }
+
+    /**
+     * Ratio of the bytes sent to the most loaded partition and the average bytes per partition
+     */
+    @JsonProperty
+    public double getSkew()
+    {
+        long totalBytes = 0;
+        long maxBytes = 0;
+        for (long bytes : partitionBytes) {
+            totalBytes += bytes;
+            maxBytes = Math.max(maxBytes, bytes);
+        }
+        if (totalBytes == 0) {
+            return 1.0;
+        }
+        return (double) maxBytes * partitionBytes.length / totalBytes;
+    }
+
+    @Override
+    public PartitionSkewInfo mergeWith(PartitionSkewInfo other)
+    {
+        // all operators of a plan node partition to the same number of partitions
+        if (partitionBytes.length != other.partitionBytes.length) {
+            return this;
+        }
+        long[] mergedBytes = new long[partitionBytes.length];
+        for (int partition = 0; partition < partitionBytes.length; partition++) {
+            mergedBytes[partition] = partitionBytes[partition] + other.partitionBytes[partition];
+        }
+        return new PartitionSkewInfo(mergedBytes, Math.max(rebalancedPartitions, other.rebalancedPartitions));
+    }
+
+    @Override
+    public boolean isFinal()
+    {
+        return true;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("partitions", partitionBytes.length)
+                .add("skew", getSkew())
+                .add("rebalancedPartitions", rebalancedPartitions)
+                .toString();
+    }
+}
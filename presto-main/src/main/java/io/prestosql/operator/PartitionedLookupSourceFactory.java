@@ -31,6 +31,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -69,6 +70,14 @@ public final class PartitionedLookupSourceFactory
 
     private final SettableFuture<?> partitionsNoLongerNeeded = SettableFuture.create();
 
+    // Set when the partitions are handed over to another owner (see BroadcastLookupSourceCache), so the operators which built them must not clear them
+    @GuardedBy("lock")
+    private boolean partitionsTransferred;
+
+    // Set when an operator clears the partition it built, after which the partitions can no longer be handed over
+    @GuardedBy("lock")
+    private boolean partitionsReleased;
+
     @GuardedBy("lock")
     private final SettableFuture<?> destroyed = SettableFuture.create();
 
@@ -374,6 +383,73 @@ public final class PartitionedLookupSourceFactory
         return lookupSourceSupplier.getOuterPositionIterator();
     }
 
+    /**
+     * Returns the built partitions, if all of them are built in memory and they can still be handed over with {@link #transferPartitions()}.
+     */
+    public Optional<List<Supplier<LookupSource>>> getTransferablePartitions()
+    {
+        lock.readLock().lock();
+        try {
+            if (!canTransferPartitions()) {
+                return Optional.empty();
+            }
+            return Optional.of(ImmutableList.copyOf(partitions));
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Hands the built partitions over to another owner, which from then on retains them and accounts for their memory.
+     * This factory keeps using them until it is destroyed, but the operators which built them release them without clearing them.
+     *
+     * @return false if the partitions can no longer be handed over, e.g. because the factory has been destroyed
+     */
+    public boolean transferPartitions()
+    {
+        lock.writeLock().lock();
+        try {
+            if (!canTransferPartitions()) {
+                return false;
+            }
+            partitionsTransferred = true;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+
+        // Let the HashBuilderOperators release their accounted memory
+        partitionsNoLongerNeeded.set(null);
+        return true;
+    }
+
+    @GuardedBy("lock")
+    private boolean canTransferPartitions()
+    {
+        return lookupSourceSupplier != null && !spillingInfo.hasSpilled() && !partitionsTransferred && !partitionsReleased && !destroyed.isDone();
+    }
+
+    /**
+     * Must be called by an operator before it clears the partition it built.
+     *
+     * @return false if the partitions have been handed over to another owner, in which case the operator must not clear the partition
+     */
+    public boolean releasePartition()
+    {
+        lock.writeLock().lock();
+        try {
+            if (partitionsTransferred) {
+                return false;
+            }
+            partitionsReleased = true;
+            return true;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
     @Override
     public void destroy()
     {
@@ -25,12 +25,14 @@ import io.prestosql.memory.context.LocalMemoryContext;
 import io.prestosql.spi.Page;
 import io.prestosql.spi.PageBuilder;
 import io.prestosql.spi.block.Block;
+import io.prestosql.spi.block.BlockBuilder;
 import io.prestosql.spi.block.RunLengthEncodedBlock;
 import io.prestosql.spi.predicate.NullableValue;
 import io.prestosql.spi.type.Type;
 import io.prestosql.sql.planner.plan.PlanNodeId;
 import io.prestosql.util.Mergeable;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.OptionalInt;
@@ -58,6 +60,7 @@ public class PartitionedOutputOperator
         private final OutputBuffer outputBuffer;
         private final boolean replicatesAnyRow;
         private final OptionalInt nullChannel;
+        private final boolean skewedPartitionRebalancing;
         private final DataSize maxMemory;
 
         public PartitionedOutputFactory(
@@ -66,6 +69,7 @@ public class PartitionedOutputOperator
                 List<Optional<NullableValue>> partitionConstants,
                 boolean replicatesAnyRow,
                 OptionalInt nullChannel,
+                boolean skewedPartitionRebalancing,
                 OutputBuffer outputBuffer,
                 DataSize maxMemory)
         {
@@ -74,6 +78,7 @@ public class PartitionedOutputOperator
             this.partitionConstants = requireNonNull(partitionConstants, "partitionConstants is null");
             this.replicatesAnyRow = replicatesAnyRow;
             this.nullChannel = requireNonNull(nullChannel, "nullChannel is null");
+            this.skewedPartitionRebalancing = skewedPartitionRebalancing;
             this.outputBuffer = requireNonNull(outputBuffer, "outputBuffer is null");
             this.maxMemory = requireNonNull(maxMemory, "maxMemory is null");
         }
@@ -96,6 +101,7 @@ public class PartitionedOutputOperator
                     partitionConstants,
                     replicatesAnyRow,
                     nullChannel,
+                    skewedPartitionRebalancing,
                     outputBuffer,
                     serdeFactory,
                     maxMemory);
@@ -114,6 +120,7 @@ public class PartitionedOutputOperator
         private final List<Optional<NullableValue>> partitionConstants;
         private final boolean replicatesAnyRow;
         private final OptionalInt nullChannel;
+        private final boolean skewedPartitionRebalancing;
         private final OutputBuffer outputBuffer;
         private final PagesSerdeFactory serdeFactory;
         private final DataSize maxMemory;
@@ -128,6 +135,7 @@ public class PartitionedOutputOperator
                 List<Optional<NullableValue>> partitionConstants,
                 boolean replicatesAnyRow,
                 OptionalInt nullChannel,
+                boolean skewedPartitionRebalancing,
                 OutputBuffer outputBuffer,
                 PagesSerdeFactory serdeFactory,
                 DataSize maxMemory)
@@ -141,6 +149,7 @@ public class PartitionedOutputOperator
             this.partitionConstants = requireNonNull(partitionConstants, "partitionConstants is null");
             this.replicatesAnyRow = replicatesAnyRow;
             this.nullChannel = requireNonNull(nullChannel, "nullChannel is null");
+            this.skewedPartitionRebalancing = skewedPartitionRebalancing;
             this.outputBuffer = requireNonNull(outputBuffer, "outputBuffer is null");
             this.serdeFactory = requireNonNull(serdeFactory, "serdeFactory is null");
             this.maxMemory = requireNonNull(maxMemory, "maxMemory is null");
@@ -159,6 +168,7 @@ public class PartitionedOutputOperator
                     partitionConstants,
                     replicatesAnyRow,
                     nullChannel,
+                    skewedPartitionRebalancing,
                     outputBuffer,
                     serdeFactory,
                     maxMemory);
@@ -182,6 +192,7 @@ public class PartitionedOutputOperator
                     partitionConstants,
                     replicatesAnyRow,
                     nullChannel,
+                    skewedPartitionRebalancing,
                     outputBuffer,
                     serdeFactory,
                     maxMemory);
@@ -204,6 +215,7 @@ public class PartitionedOutputOperator
             List<Optional<NullableValue>> partitionConstants,
             boolean replicatesAnyRow,
             OptionalInt nullChannel,
+            boolean skewedPartitionRebalancing,
             OutputBuffer outputBuffer,
             PagesSerdeFactory serdeFactory,
             DataSize maxMemory)
@@ -216,6 +228,7 @@ public class PartitionedOutputOperator
                 partitionConstants,
                 replicatesAnyRow,
                 nullChannel,
+                skewedPartitionRebalancing,
                 outputBuffer,
                 serdeFactory,
                 sourceTypes,
@@ -294,6 +307,8 @@ public class PartitionedOutputOperator
 
     private static class PagePartitioner
     {
+        private static final int REPLICATED = -1;
+
         private final OutputBuffer outputBuffer;
         private final List<Type> sourceTypes;
         private final PartitionFunction partitionFunction;
@@ -301,10 +316,16 @@ public class PartitionedOutputOperator
         private final List<Optional<Block>> partitionConstants;
         private final PagesSerde serde;
         private final PageBuilder[] pageBuilders;
+        private final int pageSize;
         private final boolean replicatesAnyRow;
         private final OptionalInt nullChannel; // when present, send the position to every partition if this channel is null.
+        private final SkewedPartitionRebalancer rebalancer;
         private final AtomicLong rowsAdded = new AtomicLong();
         private final AtomicLong pagesAdded = new AtomicLong();
+        private final int[] partitionCounts;
+        private final int[] partitionOffsets;
+        private int[] positionPartitions = new int[0];
+        private int[] partitionPositions = new int[0];
         private boolean hasAnyRowBeenReplicated;
         private OperatorContext operatorContext;
 
@@ -314,6 +335,7 @@ public class PartitionedOutputOperator
                 List<Optional<NullableValue>> partitionConstants,
                 boolean replicatesAnyRow,
                 OptionalInt nullChannel,
+                boolean skewedPartitionRebalancing,
                 OutputBuffer outputBuffer,
                 PagesSerdeFactory serdeFactory,
                 List<Type> sourceTypes,
@@ -333,9 +355,12 @@ public class PartitionedOutputOperator
             this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
 
             int partitionCount = partitionFunction.getPartitionCount();
+            this.rebalancer = new SkewedPartitionRebalancer(partitionCount, skewedPartitionRebalancing);
             int pageSize = toIntExact(min(DEFAULT_MAX_PAGE_SIZE_IN_BYTES, maxMemory.toBytes() / partitionCount));
-            pageSize = max(1, pageSize);
+            this.pageSize = max(1, pageSize);
 
+            this.partitionCounts = new int[partitionCount];
+            this.partitionOffsets = new int[partitionCount + 1];
             this.pageBuilders = new PageBuilder[partitionCount];
             for (int i = 0; i < partitionCount; i++) {
                 pageBuilders[i] = PageBuilder.withMaxPageSize(pageSize, sourceTypes);
@@ -372,29 +397,87 @@ public class PartitionedOutputOperator
 
         public PartitionedOutputInfo getInfo()
         {
-            return new PartitionedOutputInfo(rowsAdded.get(), pagesAdded.get(), outputBuffer.getPeakMemoryUsage());
+            return new PartitionedOutputInfo(rowsAdded.get(), pagesAdded.get(), outputBuffer.getPeakMemoryUsage(), rebalancer.getInfo());
         }
 
         public void partitionPage(Page page)
         {
             requireNonNull(page, "page is null");
 
+            assignPartitions(page);
+            rebalancer.pageProcessed(page);
+
+            long bytesPerPosition = max(1, page.getSizeInBytes() / page.getPositionCount());
+            for (int partition = 0; partition < pageBuilders.length; partition++) {
+                int offset = partitionOffsets[partition];
+                int length = partitionOffsets[partition + 1] - offset;
+                if (length == 0) {
+                    continue;
+                }
+                if (length * bytesPerPosition >= pageSize / 4) {
+                    // large enough to be sent on its own, which also keeps dictionary and run length encoded blocks
+                    enqueuePage(partition, page.copyPositions(partitionPositions, offset, length));
+                }
+                else {
+                    appendPositions(pageBuilders[partition], page, offset, length);
+                }
+            }
+            flush(false);
+        }
+
+        /**
+         * Computes the partition of every position of the page and groups the positions
+         * by partition in {@code partitionPositions}, delimited by {@code partitionOffsets}.
+         * Replicated positions are added to the positions of every partition.
+         */
+        private void assignPartitions(Page page)
+        {
+            int positionCount = page.getPositionCount();
+            if (positionPartitions.length < positionCount) {
+                positionPartitions = new int[positionCount];
+            }
+
+            int partitionCount = pageBuilders.length;
+            Arrays.fill(partitionCounts, 0);
+            int replicatedCount = 0;
             Page partitionFunctionArgs = getPartitionFunctionArguments(page);
-            for (int position = 0; position < page.getPositionCount(); position++) {
+            Block nullBlock = nullChannel.isPresent() ? page.getBlock(nullChannel.getAsInt()) : null;
+            for (int position = 0; position < positionCount; position++) {
                 boolean shouldReplicate = (replicatesAnyRow && !hasAnyRowBeenReplicated) ||
-                        nullChannel.isPresent() && page.getBlock(nullChannel.getAsInt()).isNull(position);
+                        nullBlock != null && nullBlock.isNull(position);
                 if (shouldReplicate) {
-                    for (PageBuilder pageBuilder : pageBuilders) {
-                        appendRow(pageBuilder, page, position);
-                    }
+                    positionPartitions[position] = REPLICATED;
+                    replicatedCount++;
                     hasAnyRowBeenReplicated = true;
                 }
                 else {
-                    int partition = partitionFunction.getPartition(partitionFunctionArgs, position);
-                    appendRow(pageBuilders[partition], page, position);
+                    int partition = rebalancer.getConsumer(partitionFunction.getPartition(partitionFunctionArgs, position));
+                    positionPartitions[position] = partition;
+                    partitionCounts[partition]++;
+                }
+            }
+
+            partitionOffsets[0] = 0;
+            for (int partition = 0; partition < partitionCount; partition++) {
+                partitionOffsets[partition + 1] = partitionOffsets[partition] + partitionCounts[partition] + replicatedCount;
+            }
+            if (partitionPositions.length < partitionOffsets[partitionCount]) {
+                partitionPositions = new int[partitionOffsets[partitionCount]];
+            }
+
+            // reuse the counts as the next free index of each partition
+            System.arraycopy(partitionOffsets, 0, partitionCounts, 0, partitionCount);
+            for (int position = 0; position < positionCount; position++) {
+                int partition = positionPartitions[position];
+                if (partition == REPLICATED) {
+                    for (int target = 0; target < partitionCount; target++) {
+                        partitionPositions[partitionCounts[target]++] = position;
+                    }
+                }
+                else {
+                    partitionPositions[partitionCounts[partition]++] = position;
                 }
             }
-            flush(false);
         }
 
         private Page getPartitionFunctionArguments(Page page)
@@ -412,13 +495,17 @@ public class PartitionedOutputOperator
             return new Page(page.getPositionCount(), blocks);
         }
 
-        private void appendRow(PageBuilder pageBuilder, Page page, int position)
+        private void appendPositions(PageBuilder pageBuilder, Page page, int offset, int length)
         {
-            pageBuilder.declarePosition();
+            pageBuilder.declarePositions(length);
 
             for (int channel = 0; channel < sourceTypes.size(); channel++) {
                 Type type = sourceTypes.get(channel);
-                type.appendTo(page.getBlock(channel), position, pageBuilder.getBlockBuilder(channel));
+                Block block = page.getBlock(channel);
+                BlockBuilder blockBuilder = pageBuilder.getBlockBuilder(channel);
+                for (int i = offset; i < offset + length; i++) {
+                    type.appendTo(block, partitionPositions[i], blockBuilder);
+                }
             }
         }
 
@@ -430,18 +517,22 @@ public class PartitionedOutputOperator
                 if (!partitionPageBuilder.isEmpty() && (force || partitionPageBuilder.isFull())) {
                     Page pagePartition = partitionPageBuilder.build();
                     partitionPageBuilder.reset();
+                    enqueuePage(partition, pagePartition);
+                }
+            }
+        }
 
-                    operatorContext.recordOutput(pagePartition.getSizeInBytes(), pagePartition.getPositionCount());
+        private void enqueuePage(int partition, Page pagePartition)
+        {
+            operatorContext.recordOutput(pagePartition.getSizeInBytes(), pagePartition.getPositionCount());
 
-                    List<SerializedPage> serializedPages = splitPage(pagePartition, DEFAULT_MAX_PAGE_SIZE_IN_BYTES).stream()
-                            .map(serde::serialize)
-                            .collect(toImmutableList());
+            List<SerializedPage> serializedPages = splitPage(pagePartition, DEFAULT_MAX_PAGE_SIZE_IN_BYTES).stream()
+                    .map(serde::serialize)
+                    .collect(toImmutableList());
 
-                    outputBuffer.enqueue(partition, serializedPages);
-                    pagesAdded.incrementAndGet();
-                    rowsAdded.addAndGet(pagePartition.getPositionCount());
-                }
-            }
+            outputBuffer.enqueue(partition, serializedPages);
+            pagesAdded.incrementAndGet();
+            rowsAdded.addAndGet(pagePartition.getPositionCount());
         }
     }
 
@@ -451,16 +542,19 @@ public class PartitionedOutputOperator
         private final long rowsAdded;
         private final long pagesAdded;
         private final long outputBufferPeakMemoryUsage;
+        private final PartitionSkewInfo partitionSkew;
 
         @JsonCreator
         public PartitionedOutputInfo(
                 @JsonProperty("rowsAdded") long rowsAdded,
                 @JsonProperty("pagesAdded") long pagesAdded,
-                @JsonProperty("outputBufferPeakMemoryUsage") long outputBufferPeakMemoryUsage)
+                @JsonProperty("outputBufferPeakMemoryUsage") long outputBufferPeakMemoryUsage,
+                @JsonProperty("partitionSkew") PartitionSkewInfo partitionSkew)
         {
             this.rowsAdded = rowsAdded;
             this.pagesAdded = pagesAdded;
             this.outputBufferPeakMemoryUsage = outputBufferPeakMemoryUsage;
+            this.partitionSkew = requireNonNull(partitionSkew, "partitionSkew is null");
         }
 
         @JsonProperty
@@ -481,13 +575,20 @@ public class PartitionedOutputOperator
             return outputBufferPeakMemoryUsage;
         }
 
+        @JsonProperty
+        public PartitionSkewInfo getPartitionSkew()
+        {
+            return partitionSkew;
+        }
+
         @Override
         public PartitionedOutputInfo mergeWith(PartitionedOutputInfo other)
         {
             return new PartitionedOutputInfo(
                     rowsAdded + other.rowsAdded,
                     pagesAdded + other.pagesAdded,
-                    Math.max(outputBufferPeakMemoryUsage, other.outputBufferPeakMemoryUsage));
+                    Math.max(outputBufferPeakMemoryUsage, other.outputBufferPeakMemoryUsage),
+                    partitionSkew.mergeWith(other.partitionSkew));
         }
 
         @Override
@@ -503,6 +604,7 @@ public class PartitionedOutputOperator
                     .add("rowsAdded", rowsAdded)
                     .add("pagesAdded", pagesAdded)
                     .add("outputBufferPeakMemoryUsage", outputBufferPeakMemoryUsage)
+                    .add("partitionSkew", partitionSkew)
                     .toString();
         }
     }
@@ -36,13 +36,16 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -50,6 +53,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static io.airlift.units.DataSize.succinctBytes;
+import static io.prestosql.SystemSessionProperties.getTaskTimelineSamplingRatio;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.stream.Collectors.toList;
@@ -57,6 +61,8 @@ import static java.util.stream.Collectors.toList;
 @ThreadSafe
 public class PipelineContext
 {
+    private static final int MAX_DRIVER_TIMELINES = 100;
+
     private final TaskContext taskContext;
     private final Executor notificationExecutor;
     private final ScheduledExecutorService yieldExecutor;
@@ -104,6 +110,10 @@ public class PipelineContext
 
     private final MemoryTrackingContext pipelineMemoryContext;
 
+    private final double timelineSamplingRatio;
+    private final Queue<DriverTimeline> completedDriverTimelines = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger sampledDrivers = new AtomicInteger();
+
     public PipelineContext(int pipelineId, TaskContext taskContext, Executor notificationExecutor, ScheduledExecutorService yieldExecutor, MemoryTrackingContext pipelineMemoryContext, boolean inputPipeline, boolean outputPipeline, boolean partitioned)
     {
         this.pipelineId = pipelineId;
@@ -114,6 +124,7 @@ public class PipelineContext
         this.notificationExecutor = requireNonNull(notificationExecutor, "notificationExecutor is null");
         this.yieldExecutor = requireNonNull(yieldExecutor, "yieldExecutor is null");
         this.pipelineMemoryContext = requireNonNull(pipelineMemoryContext, "pipelineMemoryContext is null");
+        this.timelineSamplingRatio = getTaskTimelineSamplingRatio(taskContext.getSession());
         // Initialize the local memory contexts with the ExchangeOperator tag as ExchangeOperator will do the local memory allocations
         pipelineMemoryContext.initializeLocalMemoryContexts(ExchangeOperator.class.getSimpleName());
     }
@@ -155,11 +166,20 @@ public class PipelineContext
                 notificationExecutor,
                 yieldExecutor,
                 pipelineMemoryContext.newMemoryTrackingContext(),
-                lifespan);
+                lifespan,
+                isTimelineSampled());
         drivers.add(driverContext);
         return driverContext;
     }
 
+    private boolean isTimelineSampled()
+    {
+        // the number of timelines is bounded, as a pipeline can process a very large number of splits
+        return timelineSamplingRatio > 0 &&
+                ThreadLocalRandom.current().nextDouble() < timelineSamplingRatio &&
+                sampledDrivers.getAndIncrement() < MAX_DRIVER_TIMELINES;
+    }
+
     public Session getSession()
     {
         return taskContext.getSession();
@@ -183,6 +203,7 @@ public class PipelineContext
         lastExecutionEndTime.set(DateTime.now());
 
         DriverStats driverStats = driverContext.getDriverStats();
+        driverContext.getDriverTimeline().ifPresent(completedDriverTimelines::add);
 
         completedDrivers.getAndIncrement();
 
@@ -365,12 +386,15 @@ public class PipelineContext
         long physicalWrittenDataSize = this.physicalWrittenDataSize.get();
 
         List<DriverStats> drivers = new ArrayList<>();
+        ImmutableList.Builder<DriverTimeline> driverTimelines = ImmutableList.<DriverTimeline>builder()
+                .addAll(completedDriverTimelines);
 
         TreeMap<Integer, OperatorStats> operatorSummaries = new TreeMap<>(this.operatorSummaries);
         Multimap<Integer, OperatorStats> runningOperators = ArrayListMultimap.create();
         for (DriverContext driverContext : driverContexts) {
             DriverStats driverStats = driverContext.getDriverStats();
             drivers.add(driverStats);
+            driverContext.getDriverTimeline().ifPresent(driverTimelines::add);
 
             queuedTime.add(driverStats.getQueuedTime().roundTo(NANOSECONDS));
             elapsedTime.add(driverStats.getElapsedTime().roundTo(NANOSECONDS));
@@ -474,7 +498,8 @@ public class PipelineContext
                 succinctBytes(physicalWrittenDataSize),
 
                 ImmutableList.copyOf(operatorSummaries.values()),
-                drivers);
+                drivers,
+                driverTimelines.build());
     }
 
     public <C, R> R accept(QueryContextVisitor<C, R> visitor, C context)
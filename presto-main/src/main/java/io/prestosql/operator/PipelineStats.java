@@ -85,6 +85,7 @@ public class PipelineStats
 
     private final List<OperatorStats> operatorSummaries;
     private final List<DriverStats> drivers;
+    private final List<DriverTimeline> driverTimelines;
 
     @JsonCreator
     public PipelineStats(
@@ -137,7 +138,8 @@ public class PipelineStats
             @JsonProperty("physicalWrittenDataSize") DataSize physicalWrittenDataSize,
 
             @JsonProperty("operatorSummaries") List<OperatorStats> operatorSummaries,
-            @JsonProperty("drivers") List<DriverStats> drivers)
+            @JsonProperty("drivers") List<DriverStats> drivers,
+            @JsonProperty("driverTimelines") List<DriverTimeline> driverTimelines)
     {
         this.pipelineId = pipelineId;
 
@@ -201,6 +203,7 @@ public class PipelineStats
 
         this.operatorSummaries = ImmutableList.copyOf(requireNonNull(operatorSummaries, "operatorSummaries is null"));
         this.drivers = ImmutableList.copyOf(requireNonNull(drivers, "drivers is null"));
+        this.driverTimelines = ImmutableList.copyOf(requireNonNull(driverTimelines, "driverTimelines is null"));
     }
 
     @JsonProperty
@@ -428,6 +431,16 @@ public class PipelineStats
         return drivers;
     }
 
+    /**
+     * Timelines of the drivers sampled for the execution timeline of the query,
+     * which are dropped when the stats are summarized.
+     */
+    @JsonProperty
+    public List<DriverTimeline> getDriverTimelines()
+    {
+        return driverTimelines;
+    }
+
     public PipelineStats summarize()
     {
         return new PipelineStats(
@@ -469,6 +482,7 @@ public class PipelineStats
                 operatorSummaries.stream()
                         .map(OperatorStats::summarize)
                         .collect(Collectors.toList()),
+                ImmutableList.of(),
                 ImmutableList.of());
     }
 }
@@ -0,0 +1,190 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.operator;
+
+import io.airlift.units.DataSize;
+import io.prestosql.spi.Page;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+
+/**
+ * Routes the rows of a hash partitioning to consumers and counts the bytes sent to each of them.
+ * When rebalancing is allowed, a partition which makes its consumer receive much more data than
+ * the average consumer is spread round-robin over additional, least loaded consumers. This is only
+ * legal when the consumers do not rely on seeing all rows with the same partitioning key.
+ * <p>
+ * Only {@link #getInfo()} may be called by a thread other than the one partitioning the pages.
+ */
+public final class SkewedPartitionRebalancer
+{
+    // a consumer is skewed when it receives this many times the bytes of the average consumer
+    private static final double SKEW_RATIO = 2.0;
+    private static final long REBALANCE_WINDOW_BYTES = DataSize.of(4, MEGABYTE).toBytes();
+
+    private final int partitionCount;
+    private final boolean rebalancingAllowed;
+    private final int[][] partitionConsumers;
+    private final int[] nextConsumerIndex;
+
+    // rows routed since the last processed page
+    private final int[] pagePartitionRows;
+    private final int[] pageConsumerRows;
+
+    // bytes routed since the last rebalancing decision
+    private final long[] windowPartitionBytes;
+    private final long[] windowConsumerBytes;
+    private long windowBytes;
+
+    @GuardedBy("this")
+    private final long[] consumerBytes;
+    @GuardedBy("this")
+    private int rebalancedPartitions;
+
+    public SkewedPartitionRebalancer(int partitionCount, boolean rebalancingAllowed)
+    {
+        checkArgument(partitionCount > 0, "partitionCount must be positive");
+        this.partitionCount = partitionCount;
+        this.rebalancingAllowed = rebalancingAllowed;
+
+        partitionConsumers = new int[partitionCount][];
+        for (int partition = 0; partition < partitionCount; partition++) {
+            partitionConsumers[partition] = new int[] {partition};
+        }
+        nextConsumerIndex = new int[partitionCount];
+        pagePartitionRows = new int[partitionCount];
+        pageConsumerRows = new int[partitionCount];
+        windowPartitionBytes = new long[partitionCount];
+        windowConsumerBytes = new long[partitionCount];
+        consumerBytes = new long[partitionCount];
+    }
+
+    /**
+     * Returns the consumer of a row assigned to the specified partition
+     */
+    public int getConsumer(int partition)
+    {
+        int[] consumers = partitionConsumers[partition];
+        int consumer;
+        if (consumers.length == 1) {
+            consumer = consumers[0];
+        }
+        else {
+            int index = nextConsumerIndex[partition];
+            consumer = consumers[index];
+            index++;
+            nextConsumerIndex[partition] = index == consumers.length ? 0 : index;
+        }
+        pagePartitionRows[partition]++;
+        pageConsumerRows[consumer]++;
+        return consumer;
+    }
+
+    /**
+     * Accounts the rows routed since the previous call as bytes of the specified page,
+     * and rebalances the partitions when enough data was routed since the last decision.
+     */
+    public void pageProcessed(Page page)
+    {
+        if (page.getPositionCount() == 0) {
+            return;
+        }
+        double bytesPerRow = (double) page.getSizeInBytes() / page.getPositionCount();
+
+        synchronized (this) {
+            for (int partition = 0; partition < partitionCount; partition++) {
+                if (pagePartitionRows[partition] > 0) {
+                    windowPartitionBytes[partition] += (long) (pagePartitionRows[partition] * bytesPerRow);
+                    pagePartitionRows[partition] = 0;
+                }
+                if (pageConsumerRows[partition] > 0) {
+                    long bytes = (long) (pageConsumerRows[partition] * bytesPerRow);
+                    windowConsumerBytes[partition] += bytes;
+                    consumerBytes[partition] += bytes;
+                    windowBytes += bytes;
+                    pageConsumerRows[partition] = 0;
+                }
+            }
+
+            if (windowBytes >= REBALANCE_WINDOW_BYTES) {
+                if (rebalancingAllowed) {
+                    rebalance();
+                }
+                Arrays.fill(windowPartitionBytes, 0);
+                Arrays.fill(windowConsumerBytes, 0);
+                windowBytes = 0;
+            }
+        }
+    }
+
+    @GuardedBy("this")
+    private void rebalance()
+    {
+        int maxConsumer = 0;
+        int minConsumer = 0;
+        for (int consumer = 1; consumer < partitionCount; consumer++) {
+            if (windowConsumerBytes[consumer] > windowConsumerBytes[maxConsumer]) {
+                maxConsumer = consumer;
+            }
+            if (windowConsumerBytes[consumer] < windowConsumerBytes[minConsumer]) {
+                minConsumer = consumer;
+            }
+        }
+
+        double averageConsumerBytes = (double) windowBytes / partitionCount;
+        if (windowConsumerBytes[maxConsumer] < SKEW_RATIO * averageConsumerBytes) {
+            return;
+        }
+
+        // spread the heaviest partition of the overloaded consumer to the least loaded consumer
+        int hotPartition = -1;
+        for (int partition = 0; partition < partitionCount; partition++) {
+            if (windowPartitionBytes[partition] > 0 &&
+                    contains(partitionConsumers[partition], maxConsumer) &&
+                    (hotPartition == -1 || windowPartitionBytes[partition] > windowPartitionBytes[hotPartition])) {
+                hotPartition = partition;
+            }
+        }
+        if (hotPartition == -1 || contains(partitionConsumers[hotPartition], minConsumer)) {
+            return;
+        }
+
+        int[] consumers = partitionConsumers[hotPartition];
+        if (consumers.length == 1) {
+            rebalancedPartitions++;
+        }
+        int[] newConsumers = Arrays.copyOf(consumers, consumers.length + 1);
+        newConsumers[consumers.length] = minConsumer;
+        partitionConsumers[hotPartition] = newConsumers;
+    }
+
+    public synchronized PartitionSkewInfo getInfo()
+    {
+        return new PartitionSkewInfo(consumerBytes.clone(), rebalancedPartitions);
+    }
+
+    private static boolean contains(int[] values, int value)
+    {
+        for (int element : values) {
+            if (element == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
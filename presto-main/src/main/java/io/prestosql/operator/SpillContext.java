@@ -16,6 +16,7 @@ package io.prestosql.operator;
 import io.prestosql.spiller.LocalSpillContext;
 
 import java.io.Closeable;
+import java.util.Optional;
 
 @FunctionalInterface
 public interface SpillContext
@@ -28,6 +29,14 @@ public interface SpillContext
         return new LocalSpillContext(this);
     }
 
+    /**
+     * Returns the context of the operator whose spilled bytes are accounted by this context, if any.
+     */
+    default Optional<OperatorContext> getOperatorContext()
+    {
+        return Optional.empty();
+    }
+
     @Override
     default void close() {}
 }
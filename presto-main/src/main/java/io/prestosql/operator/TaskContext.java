@@ -26,6 +26,7 @@ import io.prestosql.Session;
 import io.prestosql.execution.DynamicFiltersCollector;
 import io.prestosql.execution.DynamicFiltersCollector.VersionedDynamicFilterDomains;
 import io.prestosql.execution.Lifespan;
+import io.prestosql.execution.StateMachine.StateChangeListener;
 import io.prestosql.execution.TaskId;
 import io.prestosql.execution.TaskState;
 import io.prestosql.execution.TaskStateMachine;
@@ -254,6 +255,11 @@ public class TaskContext
         return taskStateMachine.getState();
     }
 
+    public void addStateChangeListener(StateChangeListener<TaskState> stateChangeListener)
+    {
+        taskStateMachine.addStateChangeListener(stateChangeListener);
+    }
+
     public DataSize getMemoryReservation()
     {
         return DataSize.ofBytes(taskMemoryContext.getUserMemory());
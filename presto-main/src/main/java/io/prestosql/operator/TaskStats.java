@@ -479,48 +479,17 @@ public class TaskStats
 
     public TaskStats summarize()
     {
-        return new TaskStats(
-                createTime,
-                firstStartTime,
-                lastStartTime,
-                lastEndTime,
-                endTime,
-                elapsedTime,
-                queuedTime,
-                totalDrivers,
-                queuedDrivers,
-                queuedPartitionedDrivers,
-                runningDrivers,
-                runningPartitionedDrivers,
-                blockedDrivers,
-                completedDrivers,
-                cumulativeUserMemory,
-                userMemoryReservation,
-                revocableMemoryReservation,
-                systemMemoryReservation,
-                totalScheduledTime,
-                totalCpuTime,
-                totalBlockedTime,
-                fullyBlocked,
-                blockedReasons,
-                physicalInputDataSize,
-                physicalInputPositions,
-                physicalInputReadTime,
-                internalNetworkInputDataSize,
-                internalNetworkInputPositions,
-                rawInputDataSize,
-                rawInputPositions,
-                processedInputDataSize,
-                processedInputPositions,
-                outputDataSize,
-                outputPositions,
-                physicalWrittenDataSize,
-                fullGcCount,
-                fullGcTime,
-                ImmutableList.of());
+        return withPipelines(ImmutableList.of());
     }
 
     public TaskStats summarizeFinal()
+    {
+        return withPipelines(pipelines.stream()
+                .map(PipelineStats::summarize)
+                .collect(Collectors.toList()));
+    }
+
+    public TaskStats withPipelines(List<PipelineStats> pipelines)
     {
         return new TaskStats(
                 createTime,
@@ -560,8 +529,6 @@ public class TaskStats
                 physicalWrittenDataSize,
                 fullGcCount,
                 fullGcTime,
-                pipelines.stream()
-                        .map(PipelineStats::summarize)
-                        .collect(Collectors.toList()));
+                pipelines);
     }
 }
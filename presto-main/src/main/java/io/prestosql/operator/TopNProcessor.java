@@ -26,6 +26,7 @@ import java.util.List;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Verify.verify;
+import static io.prestosql.sql.planner.plan.TopNRowNumberNode.RankingFunction.ROW_NUMBER;
 import static java.util.Collections.emptyIterator;
 import static java.util.Objects.requireNonNull;
 
@@ -58,6 +59,7 @@ public class TopNProcessor
             topNBuilder = new GroupedTopNBuilder(
                     types,
                     new SimplePageWithPositionComparator(types, sortChannels, sortOrders),
+                    ROW_NUMBER,
                     n,
                     false,
                     new NoChannelGroupByHash());
@@ -22,6 +22,7 @@ import io.prestosql.spi.block.SortOrder;
 import io.prestosql.spi.type.Type;
 import io.prestosql.sql.gen.JoinCompiler;
 import io.prestosql.sql.planner.plan.PlanNodeId;
+import io.prestosql.sql.planner.plan.TopNRowNumberNode.RankingFunction;
 
 import java.util.Iterator;
 import java.util.List;
@@ -42,6 +43,7 @@ public class TopNRowNumberOperator
     {
         private final int operatorId;
         private final PlanNodeId planNodeId;
+        private final RankingFunction rankingFunction;
 
         private final List<Type> sourceTypes;
 
@@ -62,6 +64,7 @@ public class TopNRowNumberOperator
         public TopNRowNumberOperatorFactory(
                 int operatorId,
                 PlanNodeId planNodeId,
+                RankingFunction rankingFunction,
                 List<? extends Type> sourceTypes,
                 List<Integer> outputChannels,
                 List<Integer> partitionChannels,
@@ -76,6 +79,7 @@ public class TopNRowNumberOperator
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
+            this.rankingFunction = requireNonNull(rankingFunction, "rankingFunction is null");
             this.sourceTypes = ImmutableList.copyOf(sourceTypes);
             this.outputChannels = ImmutableList.copyOf(requireNonNull(outputChannels, "outputChannels is null"));
             this.partitionChannels = ImmutableList.copyOf(requireNonNull(partitionChannels, "partitionChannels is null"));
@@ -99,6 +103,7 @@ public class TopNRowNumberOperator
             OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, planNodeId, TopNRowNumberOperator.class.getSimpleName());
             return new TopNRowNumberOperator(
                     operatorContext,
+                    rankingFunction,
                     sourceTypes,
                     outputChannels,
                     partitionChannels,
@@ -121,7 +126,7 @@ public class TopNRowNumberOperator
         @Override
         public OperatorFactory duplicate()
         {
-            return new TopNRowNumberOperatorFactory(operatorId, planNodeId, sourceTypes, outputChannels, partitionChannels, partitionTypes, sortChannels, sortOrder, maxRowCountPerPartition, partial, hashChannel, expectedPositions, joinCompiler);
+            return new TopNRowNumberOperatorFactory(operatorId, planNodeId, rankingFunction, sourceTypes, outputChannels, partitionChannels, partitionTypes, sortChannels, sortOrder, maxRowCountPerPartition, partial, hashChannel, expectedPositions, joinCompiler);
         }
     }
 
@@ -139,6 +144,7 @@ public class TopNRowNumberOperator
 
     public TopNRowNumberOperator(
             OperatorContext operatorContext,
+            RankingFunction rankingFunction,
             List<? extends Type> sourceTypes,
             List<Integer> outputChannels,
             List<Integer> partitionChannels,
@@ -184,6 +190,7 @@ public class TopNRowNumberOperator
         this.groupedTopNBuilder = new GroupedTopNBuilder(
                 ImmutableList.copyOf(sourceTypes),
                 new SimplePageWithPositionComparator(types, sortChannels, sortOrders),
+                rankingFunction,
                 maxRowCountPerPartition,
                 generateRowNumber,
                 groupByHash);
@@ -0,0 +1,162 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.operator.aggregation.builder;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.prestosql.memory.context.LocalMemoryContext;
+import io.prestosql.operator.CompletedWork;
+import io.prestosql.operator.GroupByIdBlock;
+import io.prestosql.operator.HashCollisionsCounter;
+import io.prestosql.operator.Work;
+import io.prestosql.operator.WorkProcessor;
+import io.prestosql.operator.aggregation.AccumulatorFactory;
+import io.prestosql.operator.aggregation.GroupedAccumulator;
+import io.prestosql.spi.Page;
+import io.prestosql.spi.block.Block;
+import io.prestosql.spi.block.BlockBuilder;
+import io.prestosql.spi.block.LongArrayBlock;
+
+import javax.annotation.Nullable;
+
+import java.util.List;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link HashAggregationBuilder} used when partial aggregation has been disabled.
+ * Instead of grouping, every input row is converted to its own intermediate state,
+ * so the output of this builder can be consumed by the final aggregation unchanged.
+ */
+public class SkipAggregationBuilder
+        implements HashAggregationBuilder
+{
+    private final LocalMemoryContext memoryContext;
+    private final List<AccumulatorFactory> accumulatorFactories;
+    private final List<Integer> groupByChannels;
+    private final Optional<Integer> hashChannel;
+
+    @Nullable
+    private Page currentPage;
+
+    public SkipAggregationBuilder(
+            List<Integer> groupByChannels,
+            Optional<Integer> hashChannel,
+            List<AccumulatorFactory> accumulatorFactories,
+            LocalMemoryContext memoryContext)
+    {
+        this.memoryContext = requireNonNull(memoryContext, "memoryContext is null");
+        this.groupByChannels = ImmutableList.copyOf(requireNonNull(groupByChannels, "groupByChannels is null"));
+        this.hashChannel = requireNonNull(hashChannel, "hashChannel is null");
+        this.accumulatorFactories = ImmutableList.copyOf(requireNonNull(accumulatorFactories, "accumulatorFactories is null"));
+    }
+
+    @Override
+    public Work<?> processPage(Page page)
+    {
+        checkState(currentPage == null, "Previous page has not been consumed yet");
+        currentPage = requireNonNull(page, "page is null");
+        return new CompletedWork<>(page);
+    }
+
+    @Override
+    public WorkProcessor<Page> buildResult()
+    {
+        if (currentPage == null) {
+            return WorkProcessor.of();
+        }
+
+        Page result = buildOutputPage(currentPage);
+        currentPage = null;
+        // the input page is no longer retained
+        memoryContext.setBytes(0);
+        return WorkProcessor.of(result);
+    }
+
+    @Override
+    public boolean isFull()
+    {
+        return currentPage != null;
+    }
+
+    @Override
+    public void updateMemory()
+    {
+        if (currentPage != null) {
+            memoryContext.setBytes(currentPage.getSizeInBytes());
+        }
+    }
+
+    @Override
+    public void recordHashCollisions(HashCollisionsCounter hashCollisionsCounter) {}
+
+    @Override
+    public void close()
+    {
+        currentPage = null;
+        memoryContext.setBytes(0);
+    }
+
+    @Override
+    public ListenableFuture<?> startMemoryRevoke()
+    {
+        throw new UnsupportedOperationException("startMemoryRevoke not supported for SkipAggregationBuilder");
+    }
+
+    @Override
+    public void finishMemoryRevoke()
+    {
+        throw new UnsupportedOperationException("finishMemoryRevoke not supported for SkipAggregationBuilder");
+    }
+
+    private Page buildOutputPage(Page page)
+    {
+        int positionCount = page.getPositionCount();
+        Block[] outputBlocks = new Block[groupByChannels.size() + (hashChannel.isPresent() ? 1 : 0) + accumulatorFactories.size()];
+        int outputChannel = 0;
+        for (int groupByChannel : groupByChannels) {
+            outputBlocks[outputChannel++] = page.getBlock(groupByChannel);
+        }
+        if (hashChannel.isPresent()) {
+            outputBlocks[outputChannel++] = page.getBlock(hashChannel.get());
+        }
+
+        // every row forms its own group
+        GroupByIdBlock groupIds = new GroupByIdBlock(positionCount, consecutiveIds(positionCount));
+        for (AccumulatorFactory accumulatorFactory : accumulatorFactories) {
+            GroupedAccumulator accumulator = accumulatorFactory.createGroupedAccumulator();
+            accumulator.addInput(groupIds, page);
+            accumulator.prepareFinal();
+
+            BlockBuilder output = accumulator.getIntermediateType().createBlockBuilder(null, positionCount);
+            for (int position = 0; position < positionCount; position++) {
+                accumulator.evaluateIntermediate(position, output);
+            }
+            outputBlocks[outputChannel++] = output.build();
+        }
+
+        return new Page(positionCount, outputBlocks);
+    }
+
+    private static Block consecutiveIds(int positionCount)
+    {
+        long[] ids = new long[positionCount];
+        for (int position = 0; position < positionCount; position++) {
+            ids[position] = position;
+        }
+        return new LongArrayBlock(positionCount, Optional.empty(), ids);
+    }
+}
@@ -83,6 +83,7 @@ public class LocalExchange
             List<? extends Type> types,
             List<Integer> partitionChannels,
             Optional<Integer> partitionHashChannel,
+            boolean skewedPartitionRebalancing,
             DataSize maxBufferedBytes)
     {
         this.allSinkFactories = Stream.generate(() -> new LocalExchangeSinkFactory(LocalExchange.this))
@@ -112,7 +113,7 @@ public class LocalExchange
             exchangerSupplier = () -> new RandomExchanger(buffers, memoryManager);
         }
         else if (partitioning.equals(FIXED_HASH_DISTRIBUTION)) {
-            exchangerSupplier = () -> new PartitioningExchanger(buffers, memoryManager, types, partitionChannels, partitionHashChannel);
+            exchangerSupplier = () -> new PartitioningExchanger(buffers, memoryManager, types, partitionChannels, partitionHashChannel, skewedPartitionRebalancing);
         }
         else if (partitioning.equals(FIXED_PASSTHROUGH_DISTRIBUTION)) {
             Iterator<LocalExchangeSource> sourceIterator = this.sources.iterator();
@@ -261,6 +262,7 @@ public class LocalExchange
         private final List<Type> types;
         private final List<Integer> partitionChannels;
         private final Optional<Integer> partitionHashChannel;
+        private final boolean skewedPartitionRebalancing;
         private final PipelineExecutionStrategy exchangeSourcePipelineExecutionStrategy;
         private final DataSize maxBufferedBytes;
         private final int bufferCount;
@@ -283,6 +285,7 @@ public class LocalExchange
                 List<Type> types,
                 List<Integer> partitionChannels,
                 Optional<Integer> partitionHashChannel,
+                boolean skewedPartitionRebalancing,
                 PipelineExecutionStrategy exchangeSourcePipelineExecutionStrategy,
                 DataSize maxBufferedBytes)
         {
@@ -290,6 +293,7 @@ public class LocalExchange
             this.types = requireNonNull(types, "types is null");
             this.partitionChannels = requireNonNull(partitionChannels, "partitioningChannels is null");
             this.partitionHashChannel = requireNonNull(partitionHashChannel, "partitionHashChannel is null");
+            this.skewedPartitionRebalancing = skewedPartitionRebalancing;
             this.exchangeSourcePipelineExecutionStrategy = requireNonNull(exchangeSourcePipelineExecutionStrategy, "exchangeSourcePipelineExecutionStrategy is null");
             this.maxBufferedBytes = requireNonNull(maxBufferedBytes, "maxBufferedBytes is null");
 
@@ -325,7 +329,7 @@ public class LocalExchange
             return localExchangeMap.computeIfAbsent(lifespan, ignored -> {
                 checkState(noMoreSinkFactories);
                 LocalExchange localExchange =
-                        new LocalExchange(numSinkFactories, bufferCount, partitioning, types, partitionChannels, partitionHashChannel, maxBufferedBytes);
+                        new LocalExchange(numSinkFactories, bufferCount, partitioning, types, partitionChannels, partitionHashChannel, skewedPartitionRebalancing, maxBufferedBytes);
                 for (LocalExchangeSinkFactoryId closedSinkFactoryId : closedSinkFactories) {
                     localExchange.getSinkFactory(closedSinkFactoryId).close();
                 }
@@ -14,8 +14,10 @@
 package io.prestosql.operator.exchange;
 
 import com.google.common.util.concurrent.ListenableFuture;
+import io.prestosql.operator.PartitionSkewInfo;
 import io.prestosql.spi.Page;
 
+import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
@@ -74,6 +76,11 @@ public class LocalExchangeSink
         exchanger.accept(page);
     }
 
+    public Optional<PartitionSkewInfo> getSkewInfo()
+    {
+        return exchanger.getSkewInfo();
+    }
+
     public ListenableFuture<?> waitForWriting()
     {
         if (isFinished()) {
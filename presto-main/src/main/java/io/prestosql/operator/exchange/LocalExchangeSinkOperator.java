@@ -105,6 +105,9 @@ public class LocalExchangeSinkOperator
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
         this.sink = requireNonNull(sink, "sink is null");
         this.pagePreprocessor = requireNonNull(pagePreprocessor, "pagePreprocessor is null");
+        if (sink.getSkewInfo().isPresent()) {
+            operatorContext.setInfoSupplier(() -> sink.getSkewInfo().orElse(null));
+        }
     }
 
     @Override
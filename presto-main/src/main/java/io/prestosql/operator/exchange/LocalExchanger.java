@@ -14,8 +14,11 @@
 package io.prestosql.operator.exchange;
 
 import com.google.common.util.concurrent.ListenableFuture;
+import io.prestosql.operator.PartitionSkewInfo;
 import io.prestosql.spi.Page;
 
+import java.util.Optional;
+
 import static io.prestosql.operator.Operator.NOT_BLOCKED;
 
 public interface LocalExchanger
@@ -37,4 +40,9 @@ public interface LocalExchanger
     ListenableFuture<?> waitForWriting();
 
     default void finish() {}
+
+    default Optional<PartitionSkewInfo> getSkewInfo()
+    {
+        return Optional.empty();
+    }
 }
@@ -18,7 +18,9 @@ import com.google.common.primitives.Ints;
 import com.google.common.util.concurrent.ListenableFuture;
 import io.prestosql.operator.HashGenerator;
 import io.prestosql.operator.InterpretedHashGenerator;
+import io.prestosql.operator.PartitionSkewInfo;
 import io.prestosql.operator.PrecomputedHashGenerator;
+import io.prestosql.operator.SkewedPartitionRebalancer;
 import io.prestosql.spi.Page;
 import io.prestosql.spi.type.Type;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
@@ -37,6 +39,7 @@ class PartitioningExchanger
     private final List<Consumer<PageReference>> buffers;
     private final LocalExchangeMemoryManager memoryManager;
     private final LocalPartitionGenerator partitionGenerator;
+    private final SkewedPartitionRebalancer rebalancer;
     private final IntArrayList[] partitionAssignments;
 
     public PartitioningExchanger(
@@ -44,7 +47,8 @@ class PartitioningExchanger
             LocalExchangeMemoryManager memoryManager,
             List<? extends Type> types,
             List<Integer> partitionChannels,
-            Optional<Integer> hashChannel)
+            Optional<Integer> hashChannel,
+            boolean skewedPartitionRebalancing)
     {
         this.buffers = ImmutableList.copyOf(requireNonNull(partitions, "partitions is null"));
         this.memoryManager = requireNonNull(memoryManager, "memoryManager is null");
@@ -60,6 +64,7 @@ class PartitioningExchanger
             hashGenerator = new InterpretedHashGenerator(partitionChannelTypes, Ints.toArray(partitionChannels));
         }
         partitionGenerator = new LocalPartitionGenerator(hashGenerator, buffers.size());
+        rebalancer = new SkewedPartitionRebalancer(buffers.size(), skewedPartitionRebalancing);
 
         partitionAssignments = new IntArrayList[partitions.size()];
         for (int i = 0; i < partitionAssignments.length; i++) {
@@ -77,9 +82,10 @@ class PartitioningExchanger
 
         // assign each row to a partition
         for (int position = 0; position < page.getPositionCount(); position++) {
-            int partition = partitionGenerator.getPartition(page, position);
+            int partition = rebalancer.getConsumer(partitionGenerator.getPartition(page, position));
             partitionAssignments[partition].add(position);
         }
+        rebalancer.pageProcessed(page);
 
         // build a page for each partition
         for (int partition = 0; partition < buffers.size(); partition++) {
@@ -92,6 +98,12 @@ class PartitioningExchanger
         }
     }
 
+    @Override
+    public Optional<PartitionSkewInfo> getSkewInfo()
+    {
+        return Optional.of(rebalancer.getInfo());
+    }
+
     @Override
     public ListenableFuture<?> waitForWriting()
     {
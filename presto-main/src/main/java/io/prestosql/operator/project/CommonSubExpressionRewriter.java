@@ -0,0 +1,394 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.operator.project;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import io.prestosql.sql.relational.CallExpression;
+import io.prestosql.sql.relational.ConstantExpression;
+import io.prestosql.sql.relational.DeterminismEvaluator;
+import io.prestosql.sql.relational.InputReferenceExpression;
+import io.prestosql.sql.relational.RowExpression;
+import io.prestosql.sql.relational.SpecialForm;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.prestosql.sql.relational.Expressions.field;
+import static io.prestosql.sql.relational.SpecialForm.Form.ROW_CONSTRUCTOR;
+import static io.prestosql.sql.relational.SpecialForm.Form.WHEN;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Extract subexpressions shared by the filter and the projections of a page processor,
+ * so they can be computed once per page into a temporary block. The rewritten expressions
+ * read the temporary blocks as additional input channels, which follow the input channels
+ * referenced by the original expressions.
+ * <p>
+ * A subexpression is only extracted if it is evaluated for every position, either by the
+ * filter or by one of the projections. Otherwise it could fail for positions where the
+ * original expression never evaluates it (e.g. {@code IF(x <> 0, 1 / x)}).
+ */
+public final class CommonSubExpressionRewriter
+{
+    private CommonSubExpressionRewriter() {}
+
+    public static Result extractCommonSubExpressions(Optional<RowExpression> filter, List<? extends RowExpression> projections, DeterminismEvaluator determinismEvaluator)
+    {
+        requireNonNull(filter, "filter is null");
+        requireNonNull(projections, "projections is null");
+        requireNonNull(determinismEvaluator, "determinismEvaluator is null");
+
+        Rewriter rewriter = new Rewriter(filter, projections, determinismEvaluator);
+        rewriter.extractFilterSubExpressions();
+        rewriter.extractProjectionSubExpressions();
+        return rewriter.build();
+    }
+
+    private static class Rewriter
+    {
+        private final DeterminismEvaluator determinismEvaluator;
+        private final int subExpressionsChannel;
+
+        private Optional<RowExpression> filter;
+        private List<RowExpression> projections;
+        // sub expressions in the order they are extracted, i.e. largest first
+        private final List<RowExpression> filterSubExpressions = new ArrayList<>();
+        private final List<RowExpression> projectionSubExpressions = new ArrayList<>();
+
+        public Rewriter(Optional<RowExpression> filter, List<? extends RowExpression> projections, DeterminismEvaluator determinismEvaluator)
+        {
+            this.filter = filter;
+            this.projections = ImmutableList.copyOf(projections);
+            this.determinismEvaluator = determinismEvaluator;
+            this.subExpressionsChannel = getMaxInputChannel(ImmutableList.<RowExpression>builder()
+                    .addAll(filter.map(ImmutableList::of).orElse(ImmutableList.of()))
+                    .addAll(projections)
+                    .build()) + 1;
+        }
+
+        public void extractFilterSubExpressions()
+        {
+            if (filter.isEmpty()) {
+                return;
+            }
+            while (true) {
+                // the filter is evaluated for all positions of the page, so the extracted
+                // sub expressions can be used by the projections as well
+                SubExpressionCounter counter = new SubExpressionCounter(determinismEvaluator, getChannels(filterSubExpressions, subExpressionsChannel));
+                counter.add(filter.get(), true);
+                filterSubExpressions.forEach(expression -> counter.add(expression, true));
+                projections.forEach(expression -> counter.add(expression, false));
+
+                Optional<RowExpression> subExpression = counter.getLargestCommonSubExpression();
+                if (subExpression.isEmpty()) {
+                    return;
+                }
+                RowExpression reference = field(subExpressionsChannel + filterSubExpressions.size(), subExpression.get().getType());
+                rewrite(ImmutableMap.of(subExpression.get(), reference));
+                filterSubExpressions.add(subExpression.get());
+            }
+        }
+
+        public void extractProjectionSubExpressions()
+        {
+            int firstChannel = subExpressionsChannel + filterSubExpressions.size();
+            while (true) {
+                // projections are evaluated for the selected positions only, so the
+                // extracted sub expressions cannot be used by the filter
+                SubExpressionCounter counter = new SubExpressionCounter(determinismEvaluator, getChannels(projectionSubExpressions, firstChannel));
+                projections.forEach(expression -> counter.add(expression, true));
+                projectionSubExpressions.forEach(expression -> counter.add(expression, true));
+
+                Optional<RowExpression> subExpression = counter.getLargestCommonSubExpression();
+                if (subExpression.isEmpty()) {
+                    return;
+                }
+                RowExpression reference = field(firstChannel + projectionSubExpressions.size(), subExpression.get().getType());
+                rewrite(ImmutableMap.of(subExpression.get(), reference));
+                projectionSubExpressions.add(subExpression.get());
+            }
+        }
+
+        public Result build()
+        {
+            if (filterSubExpressions.isEmpty() && projectionSubExpressions.isEmpty()) {
+                return new Result(filter, projections, subExpressionsChannel, ImmutableList.of(), ImmutableList.of());
+            }
+
+            // A sub expression extracted later is smaller and may be referenced by the sub expressions
+            // extracted before it, but not the other way round. Evaluate them in reverse order and
+            // renumber the channels accordingly.
+            ImmutableMap.Builder<RowExpression, RowExpression> builder = ImmutableMap.builder();
+            int channel = subExpressionsChannel;
+            for (List<RowExpression> subExpressions : ImmutableList.of(filterSubExpressions, projectionSubExpressions)) {
+                for (int i = 0; i < subExpressions.size(); i++) {
+                    RowExpression expression = subExpressions.get(i);
+                    builder.put(field(channel + i, expression.getType()), field(channel + subExpressions.size() - 1 - i, expression.getType()));
+                }
+                channel += subExpressions.size();
+            }
+            Map<RowExpression, RowExpression> channelMapping = builder.build();
+
+            return new Result(
+                    filter.map(expression -> replace(expression, channelMapping)),
+                    replace(projections, channelMapping),
+                    subExpressionsChannel,
+                    replace(Lists.reverse(filterSubExpressions), channelMapping),
+                    replace(Lists.reverse(projectionSubExpressions), channelMapping));
+        }
+
+        private void rewrite(Map<RowExpression, RowExpression> replacements)
+        {
+            filter = filter.map(expression -> replace(expression, replacements));
+            projections = replace(projections, replacements);
+            filterSubExpressions.replaceAll(expression -> replace(expression, replacements));
+            projectionSubExpressions.replaceAll(expression -> replace(expression, replacements));
+        }
+    }
+
+    private static class SubExpressionCounter
+    {
+        private final DeterminismEvaluator determinismEvaluator;
+        private final Set<Integer> excludedChannels;
+        private final Map<RowExpression, Integer> occurrences = new LinkedHashMap<>();
+        private final Set<RowExpression> unconditionallyEvaluated = new HashSet<>();
+
+        public SubExpressionCounter(DeterminismEvaluator determinismEvaluator, Set<Integer> excludedChannels)
+        {
+            this.determinismEvaluator = determinismEvaluator;
+            this.excludedChannels = excludedChannels;
+        }
+
+        public void add(RowExpression expression, boolean unconditionallyEvaluated)
+        {
+            visit(expression, unconditionallyEvaluated);
+        }
+
+        public Optional<RowExpression> getLargestCommonSubExpression()
+        {
+            RowExpression result = null;
+            int resultSize = 0;
+            for (Map.Entry<RowExpression, Integer> entry : occurrences.entrySet()) {
+                if (entry.getValue() < 2 || !unconditionallyEvaluated.contains(entry.getKey())) {
+                    continue;
+                }
+                int size = getSize(entry.getKey());
+                if (size > resultSize) {
+                    result = entry.getKey();
+                    resultSize = size;
+                }
+            }
+            return Optional.ofNullable(result);
+        }
+
+        private Extractability visit(RowExpression expression, boolean unconditionallyEvaluated)
+        {
+            if (expression instanceof InputReferenceExpression) {
+                if (excludedChannels.contains(((InputReferenceExpression) expression).getField())) {
+                    return Extractability.NONE;
+                }
+                return Extractability.INPUT_DEPENDENT;
+            }
+            if (expression instanceof ConstantExpression) {
+                return Extractability.CONSTANT;
+            }
+            if (!(expression instanceof CallExpression) && !(expression instanceof SpecialForm)) {
+                // do not look into lambda expressions, they are evaluated in a different scope
+                return Extractability.NONE;
+            }
+
+            List<RowExpression> arguments = getArguments(expression);
+            Extractability extractability = Extractability.CONSTANT;
+            for (int i = 0; i < arguments.size(); i++) {
+                Extractability argument = visit(arguments.get(i), unconditionallyEvaluated && isArgumentUnconditionallyEvaluated(expression, i));
+                if (argument.ordinal() > extractability.ordinal()) {
+                    extractability = argument;
+                }
+            }
+
+            if (extractability == Extractability.INPUT_DEPENDENT) {
+                if (expression instanceof SpecialForm && ((SpecialForm) expression).getForm() == WHEN) {
+                    // WHEN clauses are not expressions on their own
+                    return Extractability.NONE;
+                }
+                if (!determinismEvaluator.isDeterministic(expression)) {
+                    return Extractability.NONE;
+                }
+                occurrences.merge(expression, 1, Integer::sum);
+                if (unconditionallyEvaluated) {
+                    this.unconditionallyEvaluated.add(expression);
+                }
+            }
+            return extractability;
+        }
+
+        private static boolean isArgumentUnconditionallyEvaluated(RowExpression expression, int argument)
+        {
+            if (argument == 0) {
+                return true;
+            }
+            if (expression instanceof SpecialForm) {
+                // conditional special forms (IF, SWITCH, AND, OR, COALESCE, etc.) always evaluate the first argument only
+                return ((SpecialForm) expression).getForm() == ROW_CONSTRUCTOR;
+            }
+            // a function call skips the remaining arguments as soon as an argument is null
+            List<RowExpression> arguments = ((CallExpression) expression).getArguments();
+            for (int i = 0; i < argument; i++) {
+                if (!(arguments.get(i) instanceof ConstantExpression) || ((ConstantExpression) arguments.get(i)).getValue() == null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int getSize(RowExpression expression)
+        {
+            int size = 1;
+            for (RowExpression argument : getArguments(expression)) {
+                size += getSize(argument);
+            }
+            return size;
+        }
+
+        private enum Extractability
+        {
+            // ordered by precedence when combining the arguments of an expression
+            CONSTANT,
+            INPUT_DEPENDENT,
+            NONE,
+        }
+    }
+
+    private static List<RowExpression> getArguments(RowExpression expression)
+    {
+        if (expression instanceof CallExpression) {
+            return ((CallExpression) expression).getArguments();
+        }
+        if (expression instanceof SpecialForm) {
+            return ((SpecialForm) expression).getArguments();
+        }
+        return ImmutableList.of();
+    }
+
+    private static List<RowExpression> replace(List<RowExpression> expressions, Map<RowExpression, RowExpression> replacements)
+    {
+        return expressions.stream()
+                .map(expression -> replace(expression, replacements))
+                .collect(toImmutableList());
+    }
+
+    private static RowExpression replace(RowExpression expression, Map<RowExpression, RowExpression> replacements)
+    {
+        RowExpression replacement = replacements.get(expression);
+        if (replacement != null) {
+            return replacement;
+        }
+        if (expression instanceof CallExpression) {
+            CallExpression call = (CallExpression) expression;
+            return new CallExpression(call.getResolvedFunction(), replace(call.getArguments(), replacements));
+        }
+        if (expression instanceof SpecialForm) {
+            SpecialForm specialForm = (SpecialForm) expression;
+            return new SpecialForm(specialForm.getForm(), specialForm.getType(), replace(specialForm.getArguments(), replacements), specialForm.getFunctionDependencies());
+        }
+        return expression;
+    }
+
+    private static int getMaxInputChannel(List<RowExpression> expressions)
+    {
+        int channel = -1;
+        for (RowExpression expression : expressions) {
+            if (expression instanceof InputReferenceExpression) {
+                channel = Math.max(channel, ((InputReferenceExpression) expression).getField());
+            }
+            channel = Math.max(channel, getMaxInputChannel(getArguments(expression)));
+        }
+        return channel;
+    }
+
+    private static Set<Integer> getChannels(List<RowExpression> subExpressions, int firstChannel)
+    {
+        Set<Integer> channels = new HashSet<>();
+        for (int i = 0; i < subExpressions.size(); i++) {
+            channels.add(firstChannel + i);
+        }
+        return channels;
+    }
+
+    public static class Result
+    {
+        private final Optional<RowExpression> filter;
+        private final List<RowExpression> projections;
+        private final int subExpressionsChannel;
+        private final List<RowExpression> filterSubExpressions;
+        private final List<RowExpression> projectionSubExpressions;
+
+        public Result(
+                Optional<RowExpression> filter,
+                List<RowExpression> projections,
+                int subExpressionsChannel,
+                List<RowExpression> filterSubExpressions,
+                List<RowExpression> projectionSubExpressions)
+        {
+            this.filter = filter;
+            this.projections = projections;
+            this.subExpressionsChannel = subExpressionsChannel;
+            this.filterSubExpressions = filterSubExpressions;
+            this.projectionSubExpressions = projectionSubExpressions;
+        }
+
+        public Optional<RowExpression> getFilter()
+        {
+            return filter;
+        }
+
+        public List<RowExpression> getProjections()
+        {
+            return projections;
+        }
+
+        /**
+         * Channel of the first extracted sub expression. The filter sub expressions are followed by the
+         * projection sub expressions, each of them may reference the sub expressions preceding it.
+         */
+        public int getSubExpressionsChannel()
+        {
+            return subExpressionsChannel;
+        }
+
+        /**
+         * Sub expressions to compute for all positions of the page before evaluating the filter.
+         */
+        public List<RowExpression> getFilterSubExpressions()
+        {
+            return filterSubExpressions;
+        }
+
+        /**
+         * Sub expressions to compute for the positions selected by the filter before evaluating the projections.
+         */
+        public List<RowExpression> getProjectionSubExpressions()
+        {
+            return projectionSubExpressions;
+        }
+    }
+}
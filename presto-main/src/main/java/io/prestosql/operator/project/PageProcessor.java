@@ -14,6 +14,7 @@
 package io.prestosql.operator.project;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
 import io.airlift.slice.SizeOf;
 import io.prestosql.array.ReferenceCountMap;
 import io.prestosql.memory.context.LocalMemoryContext;
@@ -37,6 +38,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.function.Function;
+import java.util.stream.IntStream;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Verify.verify;
@@ -61,6 +63,9 @@ public class PageProcessor
     private final DictionarySourceIdFunction dictionarySourceIdFunction = new DictionarySourceIdFunction();
     private final Optional<PageFilter> filter;
     private final List<PageProjection> projections;
+    private final int subExpressionsChannel;
+    private final List<PageProjection> filterSubExpressions;
+    private final List<PageProjection> projectionSubExpressions;
 
     private int projectBatchSize;
 
@@ -72,6 +77,24 @@ public class PageProcessor
 
     @VisibleForTesting
     public PageProcessor(Optional<PageFilter> filter, List<? extends PageProjection> projections, OptionalInt initialBatchSize, ExpressionProfiler expressionProfiler)
+    {
+        this(filter, projections, 0, ImmutableList.of(), ImmutableList.of(), initialBatchSize, expressionProfiler);
+    }
+
+    /**
+     * @param subExpressionsChannel channel at which the blocks of the sub expressions are appended to the page,
+     * the input channels following it are not referenced by the filter nor by the projections
+     * @param filterSubExpressions common sub expressions computed for all positions of the page before the filter
+     * @param projectionSubExpressions common sub expressions computed for the selected positions before the projections
+     */
+    public PageProcessor(
+            Optional<PageFilter> filter,
+            List<? extends PageProjection> projections,
+            int subExpressionsChannel,
+            List<? extends PageProjection> filterSubExpressions,
+            List<? extends PageProjection> projectionSubExpressions,
+            OptionalInt initialBatchSize,
+            ExpressionProfiler expressionProfiler)
     {
         this.filter = requireNonNull(filter, "filter is null")
                 .map(pageFilter -> {
@@ -88,6 +111,10 @@ public class PageProcessor
                     return projection;
                 })
                 .collect(toImmutableList());
+        checkArgument(subExpressionsChannel >= 0, "subExpressionsChannel is negative");
+        this.subExpressionsChannel = subExpressionsChannel;
+        this.filterSubExpressions = ImmutableList.copyOf(requireNonNull(filterSubExpressions, "filterSubExpressions is null"));
+        this.projectionSubExpressions = ImmutableList.copyOf(requireNonNull(projectionSubExpressions, "projectionSubExpressions is null"));
         this.projectBatchSize = initialBatchSize.orElse(1);
         this.expressionProfiler = requireNonNull(expressionProfiler, "expressionProfiler is null");
     }
@@ -117,6 +144,11 @@ public class PageProcessor
             return WorkProcessor.of();
         }
 
+        if (!filterSubExpressions.isEmpty()) {
+            verify(filter.isPresent(), "filter sub expressions without a filter");
+            return WorkProcessor.create(new FilterRegions(session, yieldSignal, memoryContext, page, avoidPageMaterialization));
+        }
+
         if (filter.isPresent()) {
             SelectedPositions selectedPositions = filter.get().filter(session, filter.get().getInputChannels().getInputChannels(page));
             if (selectedPositions.isEmpty()) {
@@ -136,6 +168,220 @@ public class PageProcessor
         return WorkProcessor.create(new ProjectSelectedPositions(session, yieldSignal, memoryContext, page, positionsRange(0, page.getPositionCount()), avoidPageMaterialization));
     }
 
+    private void updateBatchSize(int positionCount, long pageSize)
+    {
+        // if we produced a large page or if the expression is expensive, halve the batch size for the next call
+        if (positionCount > 1 && (pageSize > MAX_PAGE_SIZE_IN_BYTES || expressionProfiler.isExpressionExpensive())) {
+            projectBatchSize = projectBatchSize / 2;
+        }
+
+        // if we produced a small page, double the batch size for the next call
+        if (pageSize < MIN_PAGE_SIZE_IN_BYTES && projectBatchSize < MAX_BATCH_SIZE && !expressionProfiler.isExpressionExpensive()) {
+            projectBatchSize = projectBatchSize * 2;
+        }
+    }
+
+    private static long getRetainedSizeInBytes(Page page, ReferenceCountMap referenceCountMap)
+    {
+        if (page == null) {
+            return 0;
+        }
+        long retainedSizeInBytes = Page.INSTANCE_SIZE + SizeOf.sizeOfObjectArray(page.getChannelCount());
+        for (int channel = 0; channel < page.getChannelCount(); channel++) {
+            Block block = page.getBlock(channel);
+            // TODO: block might be partially loaded
+            if (block.isLoaded()) {
+                retainedSizeInBytes += getRetainedSizeInBytes(block, referenceCountMap);
+            }
+        }
+        return retainedSizeInBytes;
+    }
+
+    private static long getRetainedSizeInBytes(Block block, ReferenceCountMap referenceCountMap)
+    {
+        // increment the size only when it is the first reference
+        long[] retainedSizeInBytes = new long[1];
+        block.retainedBytesForEachPart((object, size) -> {
+            if (referenceCountMap.incrementAndGet(object) == 1) {
+                retainedSizeInBytes[0] += size;
+            }
+        });
+        return retainedSizeInBytes[0];
+    }
+
+    /**
+     * Applies the filter to the page region by region, as the filter reads sub expressions
+     * which are computed for every position of a region before it is filtered.
+     */
+    private class FilterRegions
+            implements WorkProcessor.Process<Page>
+    {
+        private final ConnectorSession session;
+        private final DriverYieldSignal yieldSignal;
+        private final LocalMemoryContext memoryContext;
+        private final boolean avoidPageMaterialization;
+
+        private Page page;
+        private int offset;
+        private int regionSize;
+        private SubExpressionsWork subExpressionsWork;
+        private ProjectSelectedPositions projectRegion;
+
+        private FilterRegions(
+                ConnectorSession session,
+                DriverYieldSignal yieldSignal,
+                LocalMemoryContext memoryContext,
+                Page page,
+                boolean avoidPageMaterialization)
+        {
+            this.session = session;
+            this.yieldSignal = yieldSignal;
+            this.memoryContext = memoryContext;
+            this.page = page;
+            this.avoidPageMaterialization = avoidPageMaterialization;
+        }
+
+        @Override
+        public ProcessState<Page> process()
+        {
+            while (true) {
+                if (projectRegion != null) {
+                    ProcessState<Page> state = projectRegion.process();
+                    if (state.getType() != ProcessState.Type.FINISHED) {
+                        return state;
+                    }
+                    projectRegion = null;
+                }
+
+                if (offset == page.getPositionCount()) {
+                    page = null;
+                    memoryContext.setBytes(0);
+                    return finished();
+                }
+
+                if (subExpressionsWork == null) {
+                    regionSize = Math.min(page.getPositionCount() - offset, projectBatchSize);
+                    subExpressionsWork = new SubExpressionsWork(
+                            session,
+                            yieldSignal,
+                            page.getRegion(offset, regionSize),
+                            subExpressionsChannel,
+                            filterSubExpressions,
+                            positionsRange(0, regionSize));
+                }
+                if (!subExpressionsWork.process()) {
+                    ReferenceCountMap referenceCountMap = new ReferenceCountMap();
+                    memoryContext.setBytes(getRetainedSizeInBytes(page, referenceCountMap) + getRetainedSizeInBytes(subExpressionsWork.getPage(), referenceCountMap));
+                    return yield();
+                }
+                Page region = subExpressionsWork.getResult();
+                subExpressionsWork = null;
+                offset += regionSize;
+
+                SelectedPositions selectedPositions = filter.get().filter(session, filter.get().getInputChannels().getInputChannels(region));
+                if (selectedPositions.isEmpty()) {
+                    // an empty page is small
+                    updateBatchSize(0, 0);
+                    continue;
+                }
+
+                if (projections.isEmpty()) {
+                    // retained memory for empty page is negligible
+                    return ofResult(new Page(selectedPositions.size()));
+                }
+
+                projectRegion = new ProjectSelectedPositions(session, yieldSignal, memoryContext, region, selectedPositions, avoidPageMaterialization);
+            }
+        }
+    }
+
+    /**
+     * Computes sub expressions for the selected positions of a page, and appends their blocks to the page.
+     */
+    private class SubExpressionsWork
+            implements Work<Page>
+    {
+        private final ConnectorSession session;
+        private final DriverYieldSignal yieldSignal;
+        private final List<PageProjection> subExpressions;
+        private final SelectedPositions selectedPositions;
+        private final int positionCount;
+
+        private Page page;
+        private int computedSubExpressions;
+        private Work<Block> subExpressionWork;
+
+        private SubExpressionsWork(
+                ConnectorSession session,
+                DriverYieldSignal yieldSignal,
+                Page page,
+                int channel,
+                List<PageProjection> subExpressions,
+                SelectedPositions selectedPositions)
+        {
+            this.session = session;
+            this.yieldSignal = yieldSignal;
+            this.subExpressions = subExpressions;
+            this.selectedPositions = selectedPositions;
+            this.positionCount = page.getPositionCount();
+
+            if (page.getChannelCount() > channel) {
+                // drop the unreferenced channels, so the sub expressions end up on the channels the expressions were compiled for
+                page = page.getColumns(IntStream.range(0, channel).toArray());
+            }
+            verify(page.getChannelCount() == channel, "page has %s channels, expected %s", page.getChannelCount(), channel);
+            this.page = page;
+        }
+
+        @Override
+        public boolean process()
+        {
+            while (computedSubExpressions < subExpressions.size()) {
+                if (subExpressionWork == null) {
+                    if (yieldSignal.isSet()) {
+                        return false;
+                    }
+                    PageProjection subExpression = subExpressions.get(computedSubExpressions);
+                    expressionProfiler.start();
+                    subExpressionWork = subExpression.project(session, yieldSignal, subExpression.getInputChannels().getInputChannels(page), selectedPositions);
+                    expressionProfiler.stop(selectedPositions.size());
+                }
+                if (!subExpressionWork.process()) {
+                    return false;
+                }
+                Block block = subExpressionWork.getResult();
+                subExpressionWork = null;
+                if (block.getPositionCount() != positionCount) {
+                    // map the selected positions back to the positions of the page, the other positions are never read
+                    int[] ids = new int[positionCount];
+                    for (int i = 0; i < selectedPositions.size(); i++) {
+                        int position = selectedPositions.isList() ? selectedPositions.getPositions()[selectedPositions.getOffset() + i] : selectedPositions.getOffset() + i;
+                        ids[position] = i;
+                    }
+                    block = new DictionaryBlock(block, ids);
+                }
+                page = page.appendColumn(block);
+                computedSubExpressions++;
+            }
+            return true;
+        }
+
+        /**
+         * Returns the page with the blocks of the sub expressions computed so far
+         */
+        public Page getPage()
+        {
+            return page;
+        }
+
+        @Override
+        public Page getResult()
+        {
+            verify(computedSubExpressions == subExpressions.size(), "sub expressions are not computed");
+            return page;
+        }
+    }
+
     private class ProjectSelectedPositions
             implements WorkProcessor.Process<Page>
     {
@@ -147,7 +393,11 @@ public class PageProcessor
         private Page page;
         private Block[] previouslyComputedResults;
         private SelectedPositions selectedPositions;
-        private long retainedSizeInBytes;
+
+        // the page with the projection sub expressions of the leading selected positions appended
+        private Page subExpressionsPage;
+        private int subExpressionsPositionCount;
+        private SubExpressionsWork subExpressionsWork;
 
         // remember if we need to re-use the same batch size if we yield last time
         private boolean lastComputeYielded;
@@ -235,8 +485,13 @@ public class PageProcessor
                     recordMaterializedBytes(resultPage, sizeInBytes -> outputPageSizeInBytes += sizeInBytes);
                 }
 
-                // remove batch from selectedPositions and previouslyComputedResults
+                // remove batch from selectedPositions, subExpressionsPage and previouslyComputedResults
                 selectedPositions = selectedPositions.subRange(batchSize, selectedPositions.size());
+                subExpressionsPositionCount -= batchSize;
+                if (subExpressionsPositionCount <= 0) {
+                    subExpressionsPage = null;
+                    subExpressionsPositionCount = 0;
+                }
                 for (int i = 0; i < previouslyComputedResults.length; i++) {
                     if (previouslyComputedResults[i] != null && previouslyComputedResults[i].getPositionCount() > batchSize) {
                         previouslyComputedResults[i] = previouslyComputedResults[i].getRegion(batchSize, previouslyComputedResults[i].getPositionCount() - batchSize);
@@ -252,6 +507,7 @@ public class PageProcessor
                 }
                 else {
                     page = null;
+                    subExpressionsPage = null;
                     for (int i = 0; i < previouslyComputedResults.length; i++) {
                         previouslyComputedResults[i] = null;
                     }
@@ -262,45 +518,18 @@ public class PageProcessor
             }
         }
 
-        private void updateBatchSize(int positionCount, long pageSize)
-        {
-            // if we produced a large page or if the expression is expensive, halve the batch size for the next call
-            if (positionCount > 1 && (pageSize > MAX_PAGE_SIZE_IN_BYTES || expressionProfiler.isExpressionExpensive())) {
-                projectBatchSize = projectBatchSize / 2;
-            }
-
-            // if we produced a small page, double the batch size for the next call
-            if (pageSize < MIN_PAGE_SIZE_IN_BYTES && projectBatchSize < MAX_BATCH_SIZE && !expressionProfiler.isExpressionExpensive()) {
-                projectBatchSize = projectBatchSize * 2;
-            }
-        }
-
         private void updateRetainedSize()
         {
-            // increment the size only when it is the first reference
-            retainedSizeInBytes = Page.INSTANCE_SIZE + SizeOf.sizeOfObjectArray(page.getChannelCount());
             ReferenceCountMap referenceCountMap = new ReferenceCountMap();
-            for (int channel = 0; channel < page.getChannelCount(); channel++) {
-                Block block = page.getBlock(channel);
-                // TODO: block might be partially loaded
-                if (block.isLoaded()) {
-                    block.retainedBytesForEachPart((object, size) -> {
-                        if (referenceCountMap.incrementAndGet(object) == 1) {
-                            retainedSizeInBytes += size;
-                        }
-                    });
-                }
+            long retainedSizeInBytes = getRetainedSizeInBytes(page, referenceCountMap) + getRetainedSizeInBytes(subExpressionsPage, referenceCountMap);
+            if (subExpressionsWork != null) {
+                retainedSizeInBytes += getRetainedSizeInBytes(subExpressionsWork.getPage(), referenceCountMap);
             }
             for (Block previouslyComputedResult : previouslyComputedResults) {
                 if (previouslyComputedResult != null) {
-                    previouslyComputedResult.retainedBytesForEachPart((object, size) -> {
-                        if (referenceCountMap.incrementAndGet(object) == 1) {
-                            retainedSizeInBytes += size;
-                        }
-                    });
+                    retainedSizeInBytes += getRetainedSizeInBytes(previouslyComputedResult, referenceCountMap);
                 }
             }
-
             memoryContext.setBytes(retainedSizeInBytes);
         }
 
@@ -310,6 +539,27 @@ public class PageProcessor
 
             int pageSize = 0;
             SelectedPositions positionsBatch = selectedPositions.subRange(0, batchSize);
+            Page projectionsPage = page;
+            if (!projectionSubExpressions.isEmpty()) {
+                if (subExpressionsPositionCount < batchSize) {
+                    if (subExpressionsWork == null) {
+                        subExpressionsWork = new SubExpressionsWork(
+                                session,
+                                yieldSignal,
+                                page,
+                                subExpressionsChannel + filterSubExpressions.size(),
+                                projectionSubExpressions,
+                                positionsBatch);
+                    }
+                    if (!subExpressionsWork.process()) {
+                        return ProcessBatchResult.processBatchYield();
+                    }
+                    subExpressionsPage = subExpressionsWork.getResult();
+                    subExpressionsPositionCount = batchSize;
+                    subExpressionsWork = null;
+                }
+                projectionsPage = subExpressionsPage;
+            }
             for (int i = 0; i < projections.size(); i++) {
                 if (yieldSignal.isSet()) {
                     return ProcessBatchResult.processBatchYield();
@@ -327,7 +577,7 @@ public class PageProcessor
                 else {
                     if (pageProjectWork == null) {
                         expressionProfiler.start();
-                        pageProjectWork = projection.project(session, yieldSignal, projection.getInputChannels().getInputChannels(page), positionsBatch);
+                        pageProjectWork = projection.project(session, yieldSignal, projection.getInputChannels().getInputChannels(projectionsPage), positionsBatch);
                         expressionProfiler.stop(positionsBatch.size());
                     }
                     if (!pageProjectWork.process()) {
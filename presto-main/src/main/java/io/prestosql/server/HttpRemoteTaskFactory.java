@@ -13,6 +13,7 @@
  */
 package io.prestosql.server;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Multimap;
 import io.airlift.concurrent.BoundedExecutor;
 import io.airlift.concurrent.ThreadPoolExecutorMBean;
@@ -36,6 +37,7 @@ import io.prestosql.metadata.Split;
 import io.prestosql.operator.ForScheduler;
 import io.prestosql.server.remotetask.HttpRemoteTask;
 import io.prestosql.server.remotetask.RemoteTaskStats;
+import io.prestosql.server.smile.SmileCodec;
 import io.prestosql.sql.planner.PlanFragment;
 import io.prestosql.sql.planner.plan.PlanNodeId;
 import org.weakref.jmx.Managed;
@@ -44,6 +46,7 @@ import org.weakref.jmx.Nested;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 
+import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
@@ -51,6 +54,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
 
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.prestosql.server.smile.SmileCodec.smileCodec;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
@@ -64,9 +68,14 @@ public class HttpRemoteTaskFactory
     private final JsonCodec<VersionedDynamicFilterDomains> dynamicFilterDomainsCodec;
     private final JsonCodec<TaskInfo> taskInfoCodec;
     private final JsonCodec<TaskUpdateRequest> taskUpdateRequestCodec;
+    private final Optional<SmileCodec<TaskStatus>> taskStatusSmileCodec;
+    private final Optional<SmileCodec<VersionedDynamicFilterDomains>> dynamicFilterDomainsSmileCodec;
+    private final Optional<SmileCodec<TaskInfo>> taskInfoSmileCodec;
+    private final Optional<SmileCodec<TaskUpdateRequest>> taskUpdateRequestSmileCodec;
     private final Duration maxErrorDuration;
     private final Duration taskStatusRefreshMaxWait;
     private final Duration taskInfoUpdateInterval;
+    private final boolean taskInfoDeltaUpdatesEnabled;
     private final ExecutorService coreExecutor;
     private final Executor executor;
     private final ThreadPoolExecutorMBean executorMBean;
@@ -78,12 +87,14 @@ public class HttpRemoteTaskFactory
     public HttpRemoteTaskFactory(
             QueryManagerConfig config,
             TaskManagerConfig taskConfig,
+            InternalCommunicationConfig communicationConfig,
             @ForScheduler HttpClient httpClient,
             LocationFactory locationFactory,
             JsonCodec<TaskStatus> taskStatusCodec,
             JsonCodec<VersionedDynamicFilterDomains> dynamicFilterDomainsCodec,
             JsonCodec<TaskInfo> taskInfoCodec,
             JsonCodec<TaskUpdateRequest> taskUpdateRequestCodec,
+            ObjectMapper objectMapper,
             RemoteTaskStats stats)
     {
         this.httpClient = httpClient;
@@ -92,9 +103,22 @@ public class HttpRemoteTaskFactory
         this.dynamicFilterDomainsCodec = dynamicFilterDomainsCodec;
         this.taskInfoCodec = taskInfoCodec;
         this.taskUpdateRequestCodec = taskUpdateRequestCodec;
+        if (communicationConfig.isBinaryEncodingEnabled()) {
+            this.taskStatusSmileCodec = Optional.of(smileCodec(objectMapper, TaskStatus.class));
+            this.dynamicFilterDomainsSmileCodec = Optional.of(smileCodec(objectMapper, VersionedDynamicFilterDomains.class));
+            this.taskInfoSmileCodec = Optional.of(smileCodec(objectMapper, TaskInfo.class));
+            this.taskUpdateRequestSmileCodec = Optional.of(smileCodec(objectMapper, TaskUpdateRequest.class));
+        }
+        else {
+            this.taskStatusSmileCodec = Optional.empty();
+            this.dynamicFilterDomainsSmileCodec = Optional.empty();
+            this.taskInfoSmileCodec = Optional.empty();
+            this.taskUpdateRequestSmileCodec = Optional.empty();
+        }
         this.maxErrorDuration = config.getRemoteTaskMaxErrorDuration();
         this.taskStatusRefreshMaxWait = taskConfig.getStatusRefreshMaxWait();
         this.taskInfoUpdateInterval = taskConfig.getInfoUpdateInterval();
+        this.taskInfoDeltaUpdatesEnabled = taskConfig.isInfoDeltaUpdatesEnabled();
         this.coreExecutor = newCachedThreadPool(daemonThreadsNamed("remote-task-callback-%s"));
         this.executor = new BoundedExecutor(coreExecutor, config.getRemoteTaskMaxCallbackThreads());
         this.executorMBean = new ThreadPoolExecutorMBean((ThreadPoolExecutor) coreExecutor);
@@ -147,10 +171,15 @@ public class HttpRemoteTaskFactory
                 taskStatusRefreshMaxWait,
                 taskInfoUpdateInterval,
                 summarizeTaskInfo,
+                taskInfoDeltaUpdatesEnabled,
                 taskStatusCodec,
+                taskStatusSmileCodec,
                 dynamicFilterDomainsCodec,
+                dynamicFilterDomainsSmileCodec,
                 taskInfoCodec,
+                taskInfoSmileCodec,
                 taskUpdateRequestCodec,
+                taskUpdateRequestSmileCodec,
                 partitionedSplitCountTracker,
                 stats);
     }
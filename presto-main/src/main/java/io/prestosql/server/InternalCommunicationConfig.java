@@ -33,6 +33,7 @@ public class InternalCommunicationConfig
 {
     private String sharedSecret;
     private boolean http2Enabled;
+    private boolean binaryEncodingEnabled;
     private boolean httpsRequired;
     private String keyStorePath;
     private String keyStorePassword;
@@ -66,6 +67,19 @@ public class InternalCommunicationConfig
         return this;
     }
 
+    public boolean isBinaryEncodingEnabled()
+    {
+        return binaryEncodingEnabled;
+    }
+
+    @Config("internal-communication.binary-encoding.enabled")
+    @ConfigDescription("Use the binary SMILE encoding instead of JSON for task updates, task status and task info")
+    public InternalCommunicationConfig setBinaryEncodingEnabled(boolean binaryEncodingEnabled)
+    {
+        this.binaryEncodingEnabled = binaryEncodingEnabled;
+        return this;
+    }
+
     public boolean isHttpsRequired()
     {
         return httpsRequired;
@@ -0,0 +1,279 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.server;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+import io.prestosql.jfr.ExchangeFetchEvent;
+import io.prestosql.jfr.MemoryRevocationEvent;
+import io.prestosql.jfr.OperatorBlockedEvent;
+import io.prestosql.jfr.SpillWriteEvent;
+import io.prestosql.jfr.SplitQuantumEvent;
+import io.prestosql.server.security.ResourceSecurity;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.EventSettings;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.concurrent.GuardedBy;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.util.List;
+
+import static io.prestosql.server.security.ResourceSecurity.AccessType.MANAGEMENT_READ;
+import static io.prestosql.server.security.ResourceSecurity.AccessType.MANAGEMENT_WRITE;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static javax.ws.rs.core.MediaType.APPLICATION_OCTET_STREAM;
+import static javax.ws.rs.core.MediaType.TEXT_PLAIN;
+import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
+import static javax.ws.rs.core.Response.Status.NOT_FOUND;
+
+/**
+ * Manages a continuous flight recording of the Presto events, which can be dumped
+ * while the server is running and opened with JDK Mission Control.
+ */
+@Path("/v1/jfr")
+public class JfrResource
+{
+    private static final String RECORDING_NAME = "presto";
+    private static final List<Class<? extends Event>> PRESTO_EVENTS = ImmutableList.of(
+            SplitQuantumEvent.class,
+            OperatorBlockedEvent.class,
+            MemoryRevocationEvent.class,
+            SpillWriteEvent.class,
+            ExchangeFetchEvent.class);
+
+    @GuardedBy("this")
+    private Recording recording;
+
+    @ResourceSecurity(MANAGEMENT_READ)
+    @GET
+    @Produces(APPLICATION_JSON)
+    public synchronized RecordingInfo getRecordingInfo()
+    {
+        if (recording == null) {
+            return new RecordingInfo(RecordingState.CLOSED.name(), null, 0, null, null);
+        }
+        return toInfo(recording);
+    }
+
+    @ResourceSecurity(MANAGEMENT_WRITE)
+    @POST
+    @Path("start")
+    @Produces(APPLICATION_JSON)
+    public synchronized RecordingInfo start(
+            @QueryParam("maxAge") String maxAge,
+            @QueryParam("maxSize") String maxSize,
+            @QueryParam("threshold") String threshold,
+            @QueryParam("jvmEvents") boolean jvmEvents)
+    {
+        Recording newRecording;
+        if (jvmEvents) {
+            try {
+                newRecording = new Recording(Configuration.getConfiguration("default"));
+            }
+            catch (IOException | ParseException e) {
+                throw new WebApplicationException(e);
+            }
+        }
+        else {
+            newRecording = new Recording();
+        }
+
+        try {
+            newRecording.setName(RECORDING_NAME);
+            newRecording.setToDisk(true);
+            if (maxAge != null) {
+                newRecording.setMaxAge(toJavaTime(maxAge));
+            }
+            if (maxSize != null) {
+                newRecording.setMaxSize(DataSize.valueOf(maxSize).toBytes());
+            }
+            for (Class<? extends Event> eventClass : PRESTO_EVENTS) {
+                EventSettings settings = newRecording.enable(eventClass);
+                if (threshold != null) {
+                    // overrides the thresholds the events declare
+                    settings.withThreshold(toJavaTime(threshold));
+                }
+            }
+        }
+        catch (IllegalArgumentException e) {
+            newRecording.close();
+            throw badRequest(e.getMessage());
+        }
+
+        if (recording != null) {
+            recording.close();
+        }
+        recording = newRecording;
+        recording.start();
+        return toInfo(recording);
+    }
+
+    @ResourceSecurity(MANAGEMENT_WRITE)
+    @POST
+    @Path("stop")
+    @Produces(APPLICATION_JSON)
+    public synchronized RecordingInfo stop()
+    {
+        if (recording == null) {
+            throw new WebApplicationException(NOT_FOUND);
+        }
+        RecordingInfo info = toInfo(recording);
+        recording.close();
+        recording = null;
+        return info;
+    }
+
+    @ResourceSecurity(MANAGEMENT_READ)
+    @GET
+    @Path("dump")
+    @Produces(APPLICATION_OCTET_STREAM)
+    public Response dump()
+    {
+        java.nio.file.Path file;
+        synchronized (this) {
+            if (recording == null) {
+                throw new WebApplicationException(NOT_FOUND);
+            }
+            try {
+                file = Files.createTempFile("presto-", ".jfr");
+                // the copy is stopped, so it only contains what has been recorded until now
+                try (Recording copy = recording.copy(true)) {
+                    copy.dump(file);
+                }
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        StreamingOutput output = outputStream -> {
+            try {
+                Files.copy(file, outputStream);
+            }
+            finally {
+                Files.deleteIfExists(file);
+            }
+        };
+        return Response.ok(output)
+                .header("Content-Disposition", "attachment; filename=\"presto.jfr\"")
+                .build();
+    }
+
+    @PreDestroy
+    public synchronized void stopRecording()
+    {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    private static RecordingInfo toInfo(Recording recording)
+    {
+        return new RecordingInfo(
+                recording.getState().name(),
+                recording.getStartTime() == null ? null : recording.getStartTime().toString(),
+                recording.getSize(),
+                recording.getMaxAge() == null ? null : new Duration(recording.getMaxAge().toMillis(), MILLISECONDS).convertToMostSuccinctTimeUnit(),
+                recording.getMaxSize() == 0 ? null : DataSize.ofBytes(recording.getMaxSize()).succinct());
+    }
+
+    private static java.time.Duration toJavaTime(String duration)
+    {
+        return java.time.Duration.ofNanos(Duration.valueOf(duration).roundTo(NANOSECONDS));
+    }
+
+    private static WebApplicationException badRequest(String message)
+    {
+        return new WebApplicationException(Response.status(BAD_REQUEST)
+                .type(TEXT_PLAIN)
+                .entity(message)
+                .build());
+    }
+
+    public static class RecordingInfo
+    {
+        private final String state;
+        private final String startTime;
+        private final long size;
+        private final Duration maxAge;
+        private final DataSize maxSize;
+
+        @JsonCreator
+        public RecordingInfo(
+                @JsonProperty("state") String state,
+                @JsonProperty("startTime") String startTime,
+                @JsonProperty("size") long size,
+                @JsonProperty("maxAge") Duration maxAge,
+                @JsonProperty("maxSize") DataSize maxSize)
+        {
+            this.state = requireNonNull(state, "state is null");
+            this.startTime = startTime;
+            this.size = size;
+            this.maxAge = maxAge;
+            this.maxSize = maxSize;
+        }
+
+        @JsonProperty
+        public String getState()
+        {
+            return state;
+        }
+
+        @JsonProperty
+        public String getStartTime()
+        {
+            return startTime;
+        }
+
+        @JsonProperty
+        public long getSize()
+        {
+            return size;
+        }
+
+        @JsonProperty
+        public Duration getMaxAge()
+        {
+            return maxAge;
+        }
+
+        @JsonProperty
+        public DataSize getMaxSize()
+        {
+            return maxSize;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.server;
+
+import io.airlift.slice.OutputStreamSliceOutput;
+import io.airlift.slice.SliceOutput;
+import io.prestosql.execution.buffer.BufferResult;
+import io.prestosql.execution.buffer.SerializedPage;
+import io.prestosql.server.TaskResultsStream.Chunk;
+import io.prestosql.sql.analyzer.FeaturesConfig;
+import io.prestosql.sql.analyzer.FeaturesConfig.DataIntegrityVerification;
+
+import javax.inject.Inject;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import static io.prestosql.PrestoMediaTypes.PRESTO_PAGES_STREAM;
+import static io.prestosql.execution.buffer.PagesSerdeUtil.NO_CHECKSUM;
+import static io.prestosql.execution.buffer.PagesSerdeUtil.SERIALIZED_PAGE_HEADER_SIZE;
+import static io.prestosql.execution.buffer.PagesSerdeUtil.calculateChecksum;
+import static io.prestosql.execution.buffer.PagesSerdeUtil.writeSerializedPages;
+import static java.lang.Math.toIntExact;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Writes the chunks of a {@link TaskResultsStream}. Each result is preceded by a marker byte,
+ * and a final marker ends the stream. The size of the serialized pages of each result is
+ * written before them, so the client can read a complete result without waiting for more data:
+ * <pre>
+ * int   magic
+ * (
+ *   byte  1
+ *   long  token
+ *   long  next token
+ *   byte  buffer complete
+ *   long  checksum
+ *   int   page count
+ *   int   size of the serialized pages
+ *   ...   serialized pages
+ * )*
+ * byte  0
+ * </pre>
+ * The first chunk starts with the magic and the last chunk ends with the final marker.
+ */
+@Provider
+@Produces(PRESTO_PAGES_STREAM)
+public class PagesStreamWriter
+        implements MessageBodyWriter<Chunk>
+{
+    public static final int SERIALIZED_PAGES_STREAM_MAGIC = 0xfea4f002;
+
+    private static final MediaType PRESTO_PAGES_STREAM_TYPE = MediaType.valueOf(PRESTO_PAGES_STREAM);
+
+    private final boolean dataIntegrityVerificationEnabled;
+
+    @Inject
+    public PagesStreamWriter(FeaturesConfig featuresConfig)
+    {
+        requireNonNull(featuresConfig, "featuresConfig is null");
+        this.dataIntegrityVerificationEnabled = featuresConfig.getExchangeDataIntegrityVerification() != DataIntegrityVerification.NONE;
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType)
+    {
+        return Chunk.class.isAssignableFrom(type) && mediaType.isCompatible(PRESTO_PAGES_STREAM_TYPE);
+    }
+
+    @Override
+    public long getSize(Chunk chunk, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType)
+    {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(Chunk chunk,
+            Class<?> type,
+            Type genericType,
+            Annotation[] annotations,
+            MediaType mediaType,
+            MultivaluedMap<String, Object> httpHeaders,
+            OutputStream output)
+            throws IOException, WebApplicationException
+    {
+        try {
+            SliceOutput sliceOutput = new OutputStreamSliceOutput(output);
+            if (chunk.isFirst()) {
+                sliceOutput.writeInt(SERIALIZED_PAGES_STREAM_MAGIC);
+            }
+            if (chunk.getResult().isPresent()) {
+                BufferResult result = chunk.getResult().get();
+                List<SerializedPage> serializedPages = result.getSerializedPages();
+                sliceOutput.writeBoolean(true);
+                sliceOutput.writeLong(result.getToken());
+                sliceOutput.writeLong(result.getNextToken());
+                sliceOutput.writeBoolean(result.isBufferComplete());
+                sliceOutput.writeLong(dataIntegrityVerificationEnabled ? calculateChecksum(serializedPages) : NO_CHECKSUM);
+                sliceOutput.writeInt(serializedPages.size());
+                sliceOutput.writeInt(toIntExact(serializedPages.stream()
+                        .mapToLong(page -> SERIALIZED_PAGE_HEADER_SIZE + page.getSizeInBytes())
+                        .sum()));
+                writeSerializedPages(sliceOutput, serializedPages);
+            }
+            if (chunk.isLast()) {
+                sliceOutput.writeBoolean(false);
+            }
+            // the client processes each result as soon as it arrives
+            // We use flush instead of close, because the underlying stream would be closed and that is not allowed.
+            sliceOutput.flush();
+        }
+        catch (UncheckedIOException e) {
+            // the stream stops writing when the client disconnects
+            throw e.getCause();
+        }
+    }
+}
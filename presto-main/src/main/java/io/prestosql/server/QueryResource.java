@@ -45,6 +45,7 @@ import java.util.Optional;
 
 import static io.prestosql.connector.system.KillQueryProcedure.createKillQueryException;
 import static io.prestosql.connector.system.KillQueryProcedure.createPreemptQueryException;
+import static io.prestosql.execution.ExecutionTimeline.createExecutionTimeline;
 import static io.prestosql.security.AccessControlUtil.checkCanKillQueryOwnedBy;
 import static io.prestosql.security.AccessControlUtil.checkCanViewQueryOwnedBy;
 import static io.prestosql.security.AccessControlUtil.filterQueries;
@@ -108,6 +109,26 @@ public class QueryResource
         }
     }
 
+    @ResourceSecurity(AUTHENTICATED_USER)
+    @GET
+    @Path("{queryId}/timeline")
+    public Response getExecutionTimeline(@PathParam("queryId") QueryId queryId, @Context HttpServletRequest servletRequest, @Context HttpHeaders httpHeaders)
+    {
+        requireNonNull(queryId, "queryId is null");
+
+        Optional<QueryInfo> queryInfo = dispatchManager.getFullQueryInfo(queryId);
+        if (queryInfo.isEmpty()) {
+            return Response.status(Status.GONE).build();
+        }
+        try {
+            checkCanViewQueryOwnedBy(extractAuthorizedIdentity(servletRequest, httpHeaders, accessControl, groupProvider), queryInfo.get().getSession().getUser(), accessControl);
+            return Response.ok(createExecutionTimeline(queryInfo.get())).build();
+        }
+        catch (AccessDeniedException e) {
+            throw new ForbiddenException();
+        }
+    }
+
     @ResourceSecurity(AUTHENTICATED_USER)
     @DELETE
     @Path("{queryId}")
@@ -42,6 +42,7 @@ import io.prestosql.execution.DynamicFilterConfig;
 import io.prestosql.execution.DynamicFiltersCollector.VersionedDynamicFilterDomains;
 import io.prestosql.execution.ExecutionFailureInfo;
 import io.prestosql.execution.ExplainAnalyzeContext;
+import io.prestosql.execution.LocalTaskResults;
 import io.prestosql.execution.LocationFactory;
 import io.prestosql.execution.MemoryRevokingScheduler;
 import io.prestosql.execution.NodeTaskMap;
@@ -55,6 +56,8 @@ import io.prestosql.execution.TaskManagerConfig;
 import io.prestosql.execution.TaskStatus;
 import io.prestosql.execution.executor.MultilevelSplitQueue;
 import io.prestosql.execution.executor.TaskExecutor;
+import io.prestosql.execution.resultcache.QueryResultCache;
+import io.prestosql.execution.resultcache.QueryResultCacheConfig;
 import io.prestosql.execution.scheduler.NodeScheduler;
 import io.prestosql.execution.scheduler.NodeSchedulerConfig;
 import io.prestosql.execution.scheduler.TopologyAwareNodeSelectorModule;
@@ -81,6 +84,7 @@ import io.prestosql.metadata.SessionPropertyManager;
 import io.prestosql.metadata.StaticCatalogStore;
 import io.prestosql.metadata.StaticCatalogStoreConfig;
 import io.prestosql.metadata.TablePropertyManager;
+import io.prestosql.operator.BroadcastLookupSourceCache;
 import io.prestosql.operator.ExchangeClientConfig;
 import io.prestosql.operator.ExchangeClientFactory;
 import io.prestosql.operator.ExchangeClientSupplier;
@@ -106,6 +110,7 @@ import io.prestosql.spiller.GenericPartitioningSpillerFactory;
 import io.prestosql.spiller.GenericSpillerFactory;
 import io.prestosql.spiller.LocalSpillManager;
 import io.prestosql.spiller.NodeSpillConfig;
+import io.prestosql.spiller.OutputBufferSpillerFactory;
 import io.prestosql.spiller.PartitioningSpillerFactory;
 import io.prestosql.spiller.SingleStreamSpillerFactory;
 import io.prestosql.spiller.SpillerFactory;
@@ -264,6 +269,7 @@ public class ServerMainModule
         newExporter(binder).export(TaskExecutorResource.class).withGeneratedName();
         binder.bind(TaskManagementExecutor.class).in(Scopes.SINGLETON);
         binder.bind(SqlTaskManager.class).in(Scopes.SINGLETON);
+        binder.bind(LocalTaskResults.class).in(Scopes.SINGLETON);
         binder.bind(TaskManager.class).to(Key.get(SqlTaskManager.class));
 
         // memory revoking scheduler
@@ -284,6 +290,11 @@ public class ServerMainModule
         binder.bind(MultilevelSplitQueue.class).in(Scopes.SINGLETON);
         newExporter(binder).export(MultilevelSplitQueue.class).withGeneratedName();
         binder.bind(LocalExecutionPlanner.class).in(Scopes.SINGLETON);
+        binder.bind(BroadcastLookupSourceCache.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(BroadcastLookupSourceCache.class).withGeneratedName();
+        configBinder(binder).bindConfig(QueryResultCacheConfig.class);
+        binder.bind(QueryResultCache.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(QueryResultCache.class).withGeneratedName();
         configBinder(binder).bindConfig(CompilerConfig.class);
         binder.bind(ExpressionCompiler.class).in(Scopes.SINGLETON);
         newExporter(binder).export(ExpressionCompiler.class).withGeneratedName();
@@ -310,6 +321,7 @@ public class ServerMainModule
         jsonCodecBinder(binder).bindJsonCodec(OperatorStats.class);
         jsonCodecBinder(binder).bindJsonCodec(ExecutionFailureInfo.class);
         jaxrsBinder(binder).bind(PagesResponseWriter.class);
+        jaxrsBinder(binder).bind(PagesStreamWriter.class);
 
         // exchange client
         binder.bind(ExchangeClientSupplier.class).to(ExchangeClientFactory.class).in(Scopes.SINGLETON);
@@ -419,6 +431,7 @@ public class ServerMainModule
 
         // thread visualizer
         jaxrsBinder(binder).bind(ThreadResource.class);
+        jaxrsBinder(binder).bind(JfrResource.class);
 
         // catalog resource
         jaxrsBinder(binder).bind(CatalogResource.class);
@@ -437,7 +450,9 @@ public class ServerMainModule
 
         // Spiller
         binder.bind(SpillerFactory.class).to(GenericSpillerFactory.class).in(Scopes.SINGLETON);
-        binder.bind(SingleStreamSpillerFactory.class).to(FileSingleStreamSpillerFactory.class).in(Scopes.SINGLETON);
+        binder.bind(FileSingleStreamSpillerFactory.class).in(Scopes.SINGLETON);
+        binder.bind(SingleStreamSpillerFactory.class).to(FileSingleStreamSpillerFactory.class);
+        binder.bind(OutputBufferSpillerFactory.class).to(FileSingleStreamSpillerFactory.class);
         binder.bind(PartitioningSpillerFactory.class).to(GenericPartitioningSpillerFactory.class).in(Scopes.SINGLETON);
         binder.bind(SpillerStats.class).in(Scopes.SINGLETON);
         newExporter(binder).export(SpillerFactory.class).withGeneratedName();
@@ -26,12 +26,15 @@ import io.prestosql.execution.DynamicFiltersCollector.VersionedDynamicFilterDoma
 import io.prestosql.execution.TaskId;
 import io.prestosql.execution.TaskInfo;
 import io.prestosql.execution.TaskManager;
+import io.prestosql.execution.TaskManagerConfig;
 import io.prestosql.execution.TaskStatus;
 import io.prestosql.execution.buffer.BufferResult;
 import io.prestosql.execution.buffer.OutputBuffers.OutputBufferId;
 import io.prestosql.execution.buffer.SerializedPage;
 import io.prestosql.metadata.SessionPropertyManager;
+import io.prestosql.server.TaskResultsStream.Chunk;
 import io.prestosql.server.security.ResourceSecurity;
+import org.glassfish.jersey.server.ChunkedOutput;
 import org.weakref.jmx.Managed;
 import org.weakref.jmx.Nested;
 
@@ -59,19 +62,23 @@ import javax.ws.rs.core.UriInfo;
 import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadLocalRandom;
 
 import static com.google.common.collect.Iterables.transform;
 import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static io.airlift.concurrent.MoreFutures.addTimeout;
 import static io.airlift.jaxrs.AsyncResponseHandler.bindAsyncResponse;
+import static io.prestosql.PrestoMediaTypes.APPLICATION_JACKSON_SMILE;
 import static io.prestosql.PrestoMediaTypes.PRESTO_PAGES;
+import static io.prestosql.PrestoMediaTypes.PRESTO_PAGES_STREAM;
 import static io.prestosql.client.PrestoHeaders.PRESTO_BUFFER_COMPLETE;
 import static io.prestosql.client.PrestoHeaders.PRESTO_CURRENT_VERSION;
 import static io.prestosql.client.PrestoHeaders.PRESTO_MAX_SIZE;
 import static io.prestosql.client.PrestoHeaders.PRESTO_MAX_WAIT;
 import static io.prestosql.client.PrestoHeaders.PRESTO_PAGE_NEXT_TOKEN;
 import static io.prestosql.client.PrestoHeaders.PRESTO_PAGE_TOKEN;
+import static io.prestosql.client.PrestoHeaders.PRESTO_PIPELINE_STATS_VERSION;
 import static io.prestosql.client.PrestoHeaders.PRESTO_TASK_INSTANCE_ID;
 import static io.prestosql.server.security.ResourceSecurity.AccessType.INTERNAL_ONLY;
 import static java.util.Objects.requireNonNull;
@@ -85,12 +92,15 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 public class TaskResource
 {
     private static final Duration ADDITIONAL_WAIT_TIME = new Duration(5, SECONDS);
-    private static final Duration DEFAULT_MAX_WAIT_TIME = new Duration(2, SECONDS);
+    // also bounds reads of task results by exchange clients on the same node
+    public static final Duration DEFAULT_MAX_WAIT_TIME = new Duration(2, SECONDS);
+    private static final Duration MAX_STREAM_IDLE_TIME = new Duration(200, MILLISECONDS);
 
     private final TaskManager taskManager;
     private final SessionPropertyManager sessionPropertyManager;
     private final Executor responseExecutor;
     private final ScheduledExecutorService timeoutExecutor;
+    private final Semaphore resultStreams;
     private final TimeStat readFromOutputBufferTime = new TimeStat();
     private final TimeStat resultsRequestTime = new TimeStat();
 
@@ -98,6 +108,7 @@ public class TaskResource
     public TaskResource(
             TaskManager taskManager,
             SessionPropertyManager sessionPropertyManager,
+            TaskManagerConfig taskManagerConfig,
             @ForAsyncHttp BoundedExecutor responseExecutor,
             @ForAsyncHttp ScheduledExecutorService timeoutExecutor)
     {
@@ -105,6 +116,7 @@ public class TaskResource
         this.sessionPropertyManager = requireNonNull(sessionPropertyManager, "sessionPropertyManager is null");
         this.responseExecutor = requireNonNull(responseExecutor, "responseExecutor is null");
         this.timeoutExecutor = requireNonNull(timeoutExecutor, "timeoutExecutor is null");
+        this.resultStreams = new Semaphore(requireNonNull(taskManagerConfig, "taskManagerConfig is null").getMaxResultStreams());
     }
 
     @ResourceSecurity(INTERNAL_ONLY)
@@ -122,8 +134,8 @@ public class TaskResource
     @ResourceSecurity(INTERNAL_ONLY)
     @POST
     @Path("{taskId}")
-    @Consumes(MediaType.APPLICATION_JSON)
-    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes({MediaType.APPLICATION_JSON, APPLICATION_JACKSON_SMILE})
+    @Produces({MediaType.APPLICATION_JSON, APPLICATION_JACKSON_SMILE})
     public Response createOrUpdateTask(@PathParam("taskId") TaskId taskId, TaskUpdateRequest taskUpdateRequest, @Context UriInfo uriInfo)
     {
         requireNonNull(taskUpdateRequest, "taskUpdateRequest is null");
@@ -146,11 +158,12 @@ public class TaskResource
     @ResourceSecurity(INTERNAL_ONLY)
     @GET
     @Path("{taskId}")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, APPLICATION_JACKSON_SMILE})
     public void getTaskInfo(
             @PathParam("taskId") TaskId taskId,
             @HeaderParam(PRESTO_CURRENT_VERSION) Long currentVersion,
             @HeaderParam(PRESTO_MAX_WAIT) Duration maxWait,
+            @HeaderParam(PRESTO_PIPELINE_STATS_VERSION) Long pipelineStatsVersion,
             @Context UriInfo uriInfo,
             @Suspended AsyncResponse asyncResponse)
     {
@@ -159,7 +172,10 @@ public class TaskResource
         if (currentVersion == null || maxWait == null) {
             TaskInfo taskInfo = taskManager.getTaskInfo(taskId);
             if (shouldSummarize(uriInfo)) {
-                taskInfo = taskInfo.summarize();
+                taskInfo = summarize(taskInfo, pipelineStatsVersion != null);
+            }
+            if (pipelineStatsVersion != null) {
+                taskInfo = taskManager.withChangedPipelineStats(taskId, taskInfo, pipelineStatsVersion);
             }
             asyncResponse.resume(taskInfo);
             return;
@@ -173,7 +189,10 @@ public class TaskResource
                 timeoutExecutor);
 
         if (shouldSummarize(uriInfo)) {
-            futureTaskInfo = Futures.transform(futureTaskInfo, TaskInfo::summarize, directExecutor());
+            futureTaskInfo = Futures.transform(futureTaskInfo, taskInfo -> summarize(taskInfo, pipelineStatsVersion != null), directExecutor());
+        }
+        if (pipelineStatsVersion != null) {
+            futureTaskInfo = Futures.transform(futureTaskInfo, taskInfo -> taskManager.withChangedPipelineStats(taskId, taskInfo, pipelineStatsVersion), directExecutor());
         }
 
         // For hard timeout, add an additional time to max wait for thread scheduling contention and GC
@@ -185,7 +204,7 @@ public class TaskResource
     @ResourceSecurity(INTERNAL_ONLY)
     @GET
     @Path("{taskId}/status")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, APPLICATION_JACKSON_SMILE})
     public void getTaskStatus(
             @PathParam("taskId") TaskId taskId,
             @HeaderParam(PRESTO_CURRENT_VERSION) Long currentVersion,
@@ -220,7 +239,7 @@ public class TaskResource
     @ResourceSecurity(INTERNAL_ONLY)
     @GET
     @Path("{taskId}/dynamicfilters")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, APPLICATION_JACKSON_SMILE})
     public VersionedDynamicFilterDomains acknowledgeAndGetNewDynamicFilterDomains(
             @PathParam("taskId") TaskId taskId,
             @HeaderParam(PRESTO_CURRENT_VERSION) Long currentDynamicFiltersVersion,
@@ -234,7 +253,7 @@ public class TaskResource
     @ResourceSecurity(INTERNAL_ONLY)
     @DELETE
     @Path("{taskId}")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, APPLICATION_JACKSON_SMILE})
     public TaskInfo deleteTask(
             @PathParam("taskId") TaskId taskId,
             @QueryParam("abort") @DefaultValue("true") boolean abort,
@@ -270,6 +289,33 @@ public class TaskResource
         requireNonNull(taskId, "taskId is null");
         requireNonNull(bufferId, "bufferId is null");
 
+        getResults(taskId, bufferId, token, maxSize, asyncResponse, false);
+    }
+
+    /**
+     * Gets the results like {@link #getResults}, but once pages are available keeps streaming
+     * the following results in the same response. The max size is the credit for the whole
+     * stream, and the pages are only acknowledged by the next request or acknowledgement.
+     */
+    @ResourceSecurity(INTERNAL_ONLY)
+    @GET
+    @Path("{taskId}/results/{bufferId}/{token}/stream")
+    @Produces(PRESTO_PAGES_STREAM)
+    public void streamResults(
+            @PathParam("taskId") TaskId taskId,
+            @PathParam("bufferId") OutputBufferId bufferId,
+            @PathParam("token") long token,
+            @HeaderParam(PRESTO_MAX_SIZE) DataSize maxSize,
+            @Suspended AsyncResponse asyncResponse)
+    {
+        requireNonNull(taskId, "taskId is null");
+        requireNonNull(bufferId, "bufferId is null");
+
+        getResults(taskId, bufferId, token, maxSize, asyncResponse, true);
+    }
+
+    private void getResults(TaskId taskId, OutputBufferId bufferId, long token, DataSize maxSize, AsyncResponse asyncResponse, boolean stream)
+    {
         long start = System.nanoTime();
         ListenableFuture<BufferResult> bufferResultFuture = taskManager.getTaskResults(taskId, bufferId, token, maxSize);
         Duration waitTime = randomizeWaitTime(DEFAULT_MAX_WAIT_TIME);
@@ -282,11 +328,15 @@ public class TaskResource
         ListenableFuture<Response> responseFuture = Futures.transform(bufferResultFuture, result -> {
             List<SerializedPage> serializedPages = result.getSerializedPages();
 
-            GenericEntity<?> entity = null;
+            Object entity = null;
             Status status;
             if (serializedPages.isEmpty()) {
                 status = Status.NO_CONTENT;
             }
+            else if (stream) {
+                entity = startResultsStream(taskId, bufferId, result, maxSize, waitTime);
+                status = Status.OK;
+            }
             else {
                 entity = new GenericEntity<>(serializedPages, new TypeToken<List<SerializedPage>>() {}.getType());
                 status = Status.OK;
@@ -316,6 +366,25 @@ public class TaskResource
         asyncResponse.register((CompletionCallback) throwable -> resultsRequestTime.add(Duration.nanosSince(start)));
     }
 
+    private ChunkedOutput<Chunk> startResultsStream(TaskId taskId, OutputBufferId bufferId, BufferResult firstResult, DataSize credit, Duration maxDuration)
+    {
+        // once the maximum number of streams is reached, only the first result is
+        // written and the client reads the rest with regular requests
+        boolean streaming = resultStreams.tryAcquire();
+        TaskResultsStream resultsStream = new TaskResultsStream(
+                taskManager,
+                taskId,
+                bufferId,
+                credit,
+                MAX_STREAM_IDLE_TIME,
+                maxDuration,
+                responseExecutor,
+                timeoutExecutor,
+                streaming ? resultStreams::release : () -> {});
+        resultsStream.start(firstResult, streaming);
+        return resultsStream.getOutput();
+    }
+
     @ResourceSecurity(INTERNAL_ONLY)
     @GET
     @Path("{taskId}/results/{bufferId}/{token}/acknowledge")
@@ -361,6 +430,15 @@ public class TaskResource
         return uriInfo.getQueryParameters().containsKey("summarize");
     }
 
+    private static TaskInfo summarize(TaskInfo taskInfo, boolean pipelineStatsRequested)
+    {
+        // callers request pipeline statistics by sending the version of the ones they have
+        if (pipelineStatsRequested) {
+            return taskInfo.summarizeWithPipelines();
+        }
+        return taskInfo.summarize();
+    }
+
     private static Duration randomizeWaitTime(Duration waitTime)
     {
         // Randomize in [T/2, T], so wait is not near zero and the client-supplied max wait time is respected
@@ -0,0 +1,274 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.server;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.airlift.log.Logger;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+import io.prestosql.execution.TaskId;
+import io.prestosql.execution.TaskManager;
+import io.prestosql.execution.buffer.BufferResult;
+import io.prestosql.execution.buffer.OutputBuffers.OutputBufferId;
+import io.prestosql.execution.buffer.SerializedPage;
+import org.glassfish.jersey.server.ChunkedOutput;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.util.concurrent.Futures.addCallback;
+import static com.google.common.util.concurrent.Futures.withTimeout;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Results of a task output buffer which are streamed to the client in a single response.
+ * <p>
+ * The first result is read like any other result, which acknowledges the pages before the
+ * requested token. The following results are read ahead without acknowledging anything, so
+ * if the stream breaks, the client can retry from the last token it has acknowledged. The
+ * stream ends when the credit granted by the client is used up, the buffer is complete,
+ * the maximum stream duration has elapsed, or no pages arrive within the idle time.
+ * <p>
+ * Each result is written to the response by the callback of its read, so an open stream
+ * does not hold a thread while it waits for results. Reads are chained, so at most one
+ * callback of a stream runs at a time.
+ */
+public class TaskResultsStream
+{
+    private static final Logger log = Logger.get(TaskResultsStream.class);
+
+    private final TaskManager taskManager;
+    private final TaskId taskId;
+    private final OutputBufferId bufferId;
+    private final Duration maxIdleTime;
+    private final long endNanos;
+    private final Executor executor;
+    private final ScheduledExecutorService timeoutExecutor;
+    private final Runnable onClose;
+    private final ChunkedOutput<Chunk> output = new SerializedChunkedOutput();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private long token;
+    private long remainingCreditInBytes;
+    private boolean complete;
+
+    public TaskResultsStream(
+            TaskManager taskManager,
+            TaskId taskId,
+            OutputBufferId bufferId,
+            DataSize credit,
+            Duration maxIdleTime,
+            Duration maxDuration,
+            Executor executor,
+            ScheduledExecutorService timeoutExecutor,
+            Runnable onClose)
+    {
+        this.taskManager = requireNonNull(taskManager, "taskManager is null");
+        this.taskId = requireNonNull(taskId, "taskId is null");
+        this.bufferId = requireNonNull(bufferId, "bufferId is null");
+        this.remainingCreditInBytes = requireNonNull(credit, "credit is null").toBytes();
+        this.maxIdleTime = requireNonNull(maxIdleTime, "maxIdleTime is null");
+        this.endNanos = System.nanoTime() + requireNonNull(maxDuration, "maxDuration is null").roundTo(NANOSECONDS);
+        this.executor = requireNonNull(executor, "executor is null");
+        this.timeoutExecutor = requireNonNull(timeoutExecutor, "timeoutExecutor is null");
+        this.onClose = requireNonNull(onClose, "onClose is null");
+    }
+
+    /**
+     * The response entity. Chunks written before the response is committed are buffered.
+     */
+    public ChunkedOutput<Chunk> getOutput()
+    {
+        return output;
+    }
+
+    /**
+     * Writes the first result and, if {@code streaming} is set, keeps writing the results which follow it.
+     */
+    public void start(BufferResult firstResult, boolean streaming)
+    {
+        token = firstResult.getToken();
+        accept(firstResult);
+        boolean last = !streaming || isExhausted();
+        if (write(new Chunk(true, Optional.of(firstResult), last))) {
+            if (last) {
+                close();
+            }
+            else {
+                readNext();
+            }
+        }
+    }
+
+    private void readNext()
+    {
+        ListenableFuture<BufferResult> resultFuture;
+        try {
+            resultFuture = withTimeout(
+                    taskManager.readAheadTaskResults(taskId, bufferId, token, DataSize.ofBytes(remainingCreditInBytes)),
+                    maxIdleTime.toMillis(),
+                    MILLISECONDS,
+                    timeoutExecutor);
+        }
+        catch (RuntimeException e) {
+            // the next request of the client reports the failure
+            finish();
+            return;
+        }
+
+        addCallback(resultFuture, new FutureCallback<>()
+        {
+            @Override
+            public void onSuccess(BufferResult result)
+            {
+                // an empty result means the read was replaced by another read of the client
+                if (result.getToken() != token || (result.isEmpty() && !result.isBufferComplete())) {
+                    finish();
+                    return;
+                }
+                accept(result);
+                boolean last = isExhausted();
+                if (write(new Chunk(false, Optional.of(result), last))) {
+                    if (last) {
+                        close();
+                    }
+                    else {
+                        readNext();
+                    }
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t)
+            {
+                // no pages arrived within the idle time, or the read failed, in
+                // which case the next request of the client reports the failure
+                finish();
+            }
+        }, executor);
+    }
+
+    private void accept(BufferResult result)
+    {
+        token = result.getNextToken();
+        complete = result.isBufferComplete();
+        remainingCreditInBytes -= result.getSerializedPages().stream()
+                .mapToLong(SerializedPage::getRetainedSizeInBytes)
+                .sum();
+    }
+
+    private boolean isExhausted()
+    {
+        return complete || remainingCreditInBytes <= 0 || System.nanoTime() - endNanos >= 0;
+    }
+
+    private void finish()
+    {
+        if (write(new Chunk(false, Optional.empty(), true))) {
+            close();
+        }
+    }
+
+    private boolean write(Chunk chunk)
+    {
+        try {
+            output.write(chunk);
+            return true;
+        }
+        catch (IOException | RuntimeException e) {
+            // the client disconnected
+            log.debug(e, "Failed to write results of %s buffer %s", taskId, bufferId);
+            close();
+            return false;
+        }
+    }
+
+    private void close()
+    {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        onClose.run();
+        try {
+            output.close();
+        }
+        catch (IOException e) {
+            log.debug(e, "Failed to close results stream of %s buffer %s", taskId, bufferId);
+        }
+    }
+
+    /**
+     * The chunks written before the response is committed are flushed by the thread which commits
+     * the response. Another chunk, or the close of the stream, racing with that flush could close
+     * the response while it is still written, which leaves the response unfinished, so the flushes
+     * run one at a time.
+     */
+    private static class SerializedChunkedOutput
+            extends ChunkedOutput<Chunk>
+    {
+        private final Object flushLock = new Object();
+
+        public SerializedChunkedOutput()
+        {
+            super(Chunk.class);
+        }
+
+        @Override
+        protected void flushQueue()
+                throws IOException
+        {
+            synchronized (flushLock) {
+                super.flushQueue();
+            }
+        }
+    }
+
+    /**
+     * A part of the stream, written and flushed by {@link PagesStreamWriter} as a whole.
+     */
+    public static class Chunk
+    {
+        private final boolean first;
+        private final Optional<BufferResult> result;
+        private final boolean last;
+
+        public Chunk(boolean first, Optional<BufferResult> result, boolean last)
+        {
+            this.first = first;
+            this.result = requireNonNull(result, "result is null");
+            this.last = last;
+        }
+
+        public boolean isFirst()
+        {
+            return first;
+        }
+
+        public Optional<BufferResult> getResult()
+        {
+            return result;
+        }
+
+        public boolean isLast()
+        {
+            return last;
+        }
+    }
+}
@@ -23,6 +23,7 @@ import io.airlift.units.Duration;
 import io.prestosql.Session;
 import io.prestosql.client.QueryResults;
 import io.prestosql.execution.QueryManager;
+import io.prestosql.execution.resultcache.QueryResultCache;
 import io.prestosql.memory.context.SimpleLocalMemoryContext;
 import io.prestosql.operator.ExchangeClient;
 import io.prestosql.operator.ExchangeClientSupplier;
@@ -96,6 +97,7 @@ public class ExecutingStatementResource
     private final BlockEncodingSerde blockEncodingSerde;
     private final BoundedExecutor responseExecutor;
     private final ScheduledExecutorService timeoutExecutor;
+    private final QueryResultCache queryResultCache;
 
     private final ConcurrentMap<QueryId, Query> queries = new ConcurrentHashMap<>();
     private final ScheduledExecutorService queryPurger = newSingleThreadScheduledExecutor(threadsNamed("execution-query-purger"));
@@ -106,13 +108,15 @@ public class ExecutingStatementResource
             ExchangeClientSupplier exchangeClientSupplier,
             BlockEncodingSerde blockEncodingSerde,
             @ForStatementResource BoundedExecutor responseExecutor,
-            @ForStatementResource ScheduledExecutorService timeoutExecutor)
+            @ForStatementResource ScheduledExecutorService timeoutExecutor,
+            QueryResultCache queryResultCache)
     {
         this.queryManager = requireNonNull(queryManager, "queryManager is null");
         this.exchangeClientSupplier = requireNonNull(exchangeClientSupplier, "exchangeClientSupplier is null");
         this.blockEncodingSerde = requireNonNull(blockEncodingSerde, "blockEncodingSerde is null");
         this.responseExecutor = requireNonNull(responseExecutor, "responseExecutor is null");
         this.timeoutExecutor = requireNonNull(timeoutExecutor, "timeoutExecutor is null");
+        this.queryResultCache = requireNonNull(queryResultCache, "queryResultCache is null");
 
         queryPurger.scheduleWithFixedDelay(
                 () -> {
@@ -125,6 +129,7 @@ public class ExecutingStatementResource
                             catch (NoSuchElementException e) {
                                 // query is no longer registered
                                 queries.remove(entry.getKey());
+                                entry.getValue().dispose();
                             }
                         }
                     }
@@ -193,7 +198,8 @@ public class ExecutingStatementResource
                     exchangeClient,
                     responseExecutor,
                     timeoutExecutor,
-                    blockEncodingSerde);
+                    blockEncodingSerde,
+                    queryResultCache);
         });
         return query;
     }
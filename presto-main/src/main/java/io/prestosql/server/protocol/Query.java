@@ -47,6 +47,8 @@ import io.prestosql.execution.TaskInfo;
 import io.prestosql.execution.buffer.PagesSerde;
 import io.prestosql.execution.buffer.PagesSerdeFactory;
 import io.prestosql.execution.buffer.SerializedPage;
+import io.prestosql.execution.resultcache.QueryResultCache;
+import io.prestosql.execution.resultcache.QueryResultCache.ResultCollector;
 import io.prestosql.operator.ExchangeClient;
 import io.prestosql.spi.ErrorCode;
 import io.prestosql.spi.Page;
@@ -96,7 +98,8 @@ import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static io.airlift.concurrent.MoreFutures.addTimeout;
-import static io.prestosql.SystemSessionProperties.isExchangeCompressionEnabled;
+import static io.prestosql.SystemSessionProperties.getExchangeCompressionCodec;
+import static io.prestosql.SystemSessionProperties.isExchangeAdaptiveCompressionEnabled;
 import static io.prestosql.execution.QueryState.FAILED;
 import static io.prestosql.server.protocol.QueryResultRows.queryResultRowsBuilder;
 import static io.prestosql.server.protocol.Slug.Context.EXECUTING_QUERY;
@@ -129,6 +132,7 @@ class Query
     private final ScheduledExecutorService timeoutExecutor;
 
     private final PagesSerde serde;
+    private final QueryResultCache queryResultCache;
     private final boolean supportsParametricDateTime;
 
     @GuardedBy("this")
@@ -182,6 +186,9 @@ class Query
     @GuardedBy("this")
     private Long updateCount;
 
+    @GuardedBy("this")
+    private Optional<ResultCollector> resultCollector = Optional.empty();
+
     public static Query create(
             Session session,
             Slug slug,
@@ -189,9 +196,10 @@ class Query
             ExchangeClient exchangeClient,
             Executor dataProcessorExecutor,
             ScheduledExecutorService timeoutExecutor,
-            BlockEncodingSerde blockEncodingSerde)
+            BlockEncodingSerde blockEncodingSerde,
+            QueryResultCache queryResultCache)
     {
-        Query result = new Query(session, slug, queryManager, exchangeClient, dataProcessorExecutor, timeoutExecutor, blockEncodingSerde);
+        Query result = new Query(session, slug, queryManager, exchangeClient, dataProcessorExecutor, timeoutExecutor, blockEncodingSerde, queryResultCache);
 
         result.queryManager.addOutputInfoListener(result.getQueryId(), result::setQueryOutputInfo);
 
@@ -212,7 +220,8 @@ class Query
             ExchangeClient exchangeClient,
             Executor resultsProcessorExecutor,
             ScheduledExecutorService timeoutExecutor,
-            BlockEncodingSerde blockEncodingSerde)
+            BlockEncodingSerde blockEncodingSerde,
+            QueryResultCache queryResultCache)
     {
         requireNonNull(session, "session is null");
         requireNonNull(slug, "slug is null");
@@ -221,6 +230,7 @@ class Query
         requireNonNull(resultsProcessorExecutor, "resultsProcessorExecutor is null");
         requireNonNull(timeoutExecutor, "timeoutExecutor is null");
         requireNonNull(blockEncodingSerde, "serde is null");
+        requireNonNull(queryResultCache, "queryResultCache is null");
 
         this.queryManager = queryManager;
 
@@ -230,8 +240,9 @@ class Query
         this.exchangeClient = exchangeClient;
         this.resultsProcessorExecutor = resultsProcessorExecutor;
         this.timeoutExecutor = timeoutExecutor;
+        this.queryResultCache = queryResultCache;
         this.supportsParametricDateTime = session.getClientCapabilities().contains(ClientCapabilities.PARAMETRIC_DATETIME.toString());
-        serde = new PagesSerdeFactory(blockEncodingSerde, isExchangeCompressionEnabled(session)).createPagesSerde();
+        serde = new PagesSerdeFactory(blockEncodingSerde, getExchangeCompressionCodec(session), isExchangeAdaptiveCompressionEnabled(session)).createPagesSerde();
     }
 
     public void cancel()
@@ -242,6 +253,8 @@ class Query
 
     public void partialCancel(int id)
     {
+        // the result of a partially canceled query is incomplete
+        abandonResultCollector();
         StageId stageId = new StageId(queryId, id);
         queryManager.cancelStage(stageId);
     }
@@ -253,6 +266,8 @@ class Query
 
     public synchronized void dispose()
     {
+        // the result may not have been fully fetched, and the memory of the collected pages must be freed
+        abandonResultCollector();
         exchangeClient.close();
     }
 
@@ -421,6 +436,16 @@ class Query
 
         closeExchangeClientIfNecessary(queryInfo);
 
+        if (resultCollector.isPresent()) {
+            if (queryInfo.getState() == QueryState.FINISHED && exchangeClient.isClosed()) {
+                resultCollector.get().commit();
+                resultCollector = Optional.empty();
+            }
+            else if (queryInfo.getState().isDone()) {
+                abandonResultCollector();
+            }
+        }
+
         // advance next token
         // only return a next if
         // (1) the query is not done AND the query state is not FAILED
@@ -514,6 +539,7 @@ class Query
                 Page page = serde.deserialize(serializedPage);
                 bytes += page.getLogicalSizeInBytes();
                 resultBuilder.addPage(page);
+                resultCollector.ifPresent(collector -> collector.addPage(page));
             }
         }
         catch (Throwable cause) {
@@ -523,6 +549,12 @@ class Query
         return resultBuilder.build();
     }
 
+    private synchronized void abandonResultCollector()
+    {
+        resultCollector.ifPresent(ResultCollector::abandon);
+        resultCollector = Optional.empty();
+    }
+
     private synchronized void closeExchangeClientIfNecessary(QueryInfo queryInfo)
     {
         // Close the exchange client if the query has failed, or if the query
@@ -563,6 +595,8 @@ class Query
             }
             columns = list.build();
             types = outputInfo.getColumnTypes();
+
+            resultCollector = queryResultCache.takeResultCollector(queryId);
         }
 
         for (URI outputLocation : outputInfo.getBufferLocations()) {
@@ -16,7 +16,6 @@ package io.prestosql.server.remotetask;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.concurrent.SetThreadName;
-import io.airlift.http.client.FullJsonResponseHandler;
 import io.airlift.http.client.HttpClient;
 import io.airlift.http.client.Request;
 import io.airlift.json.JsonCodec;
@@ -25,11 +24,14 @@ import io.airlift.units.Duration;
 import io.prestosql.execution.StateMachine;
 import io.prestosql.execution.TaskId;
 import io.prestosql.execution.TaskStatus;
+import io.prestosql.server.smile.BaseResponse;
+import io.prestosql.server.smile.SmileCodec;
 import io.prestosql.spi.HostAddress;
 import io.prestosql.spi.PrestoException;
 
 import javax.annotation.concurrent.GuardedBy;
 
+import java.util.Optional;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -37,14 +39,16 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 import static com.google.common.base.Strings.isNullOrEmpty;
+import static com.google.common.net.HttpHeaders.ACCEPT;
 import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
 import static com.google.common.net.MediaType.JSON_UTF_8;
-import static io.airlift.http.client.FullJsonResponseHandler.createFullJsonResponseHandler;
 import static io.airlift.http.client.HttpUriBuilder.uriBuilderFrom;
 import static io.airlift.http.client.Request.Builder.prepareGet;
 import static io.airlift.units.Duration.nanosSince;
+import static io.prestosql.PrestoMediaTypes.APPLICATION_JACKSON_SMILE;
 import static io.prestosql.client.PrestoHeaders.PRESTO_CURRENT_VERSION;
 import static io.prestosql.client.PrestoHeaders.PRESTO_MAX_WAIT;
+import static io.prestosql.server.smile.AdaptingJsonResponseHandler.createAdaptingJsonResponseHandler;
 import static io.prestosql.spi.StandardErrorCode.REMOTE_TASK_MISMATCH;
 import static io.prestosql.util.Failures.REMOTE_TASK_MISMATCH_ERROR;
 import static java.lang.String.format;
@@ -59,6 +63,7 @@ class ContinuousTaskStatusFetcher
     private final Consumer<Throwable> onFail;
     private final StateMachine<TaskStatus> taskStatus;
     private final JsonCodec<TaskStatus> taskStatusCodec;
+    private final Optional<SmileCodec<TaskStatus>> taskStatusSmileCodec;
     private final DynamicFiltersFetcher dynamicFiltersFetcher;
 
     private final Duration refreshMaxWait;
@@ -73,13 +78,14 @@ class ContinuousTaskStatusFetcher
     private boolean running;
 
     @GuardedBy("this")
-    private ListenableFuture<FullJsonResponseHandler.JsonResponse<TaskStatus>> future;
+    private ListenableFuture<BaseResponse<TaskStatus>> future;
 
     public ContinuousTaskStatusFetcher(
             Consumer<Throwable> onFail,
             TaskStatus initialTaskStatus,
             Duration refreshMaxWait,
             JsonCodec<TaskStatus> taskStatusCodec,
+            Optional<SmileCodec<TaskStatus>> taskStatusSmileCodec,
             DynamicFiltersFetcher dynamicFiltersFetcher,
             Executor executor,
             HttpClient httpClient,
@@ -95,6 +101,7 @@ class ContinuousTaskStatusFetcher
 
         this.refreshMaxWait = requireNonNull(refreshMaxWait, "refreshMaxWait is null");
         this.taskStatusCodec = requireNonNull(taskStatusCodec, "taskStatusCodec is null");
+        this.taskStatusSmileCodec = requireNonNull(taskStatusSmileCodec, "taskStatusSmileCodec is null");
         this.dynamicFiltersFetcher = requireNonNull(dynamicFiltersFetcher, "dynamicFiltersFetcher is null");
 
         this.executor = requireNonNull(executor, "executor is null");
@@ -148,12 +155,13 @@ class ContinuousTaskStatusFetcher
         Request request = prepareGet()
                 .setUri(uriBuilderFrom(taskStatus.getSelf()).appendPath("status").build())
                 .setHeader(CONTENT_TYPE, JSON_UTF_8.toString())
+                .setHeader(ACCEPT, taskStatusSmileCodec.isPresent() ? APPLICATION_JACKSON_SMILE : JSON_UTF_8.toString())
                 .setHeader(PRESTO_CURRENT_VERSION, Long.toString(taskStatus.getVersion()))
                 .setHeader(PRESTO_MAX_WAIT, refreshMaxWait.toString())
                 .build();
 
         errorTracker.startRequest();
-        future = httpClient.executeAsync(request, createFullJsonResponseHandler(taskStatusCodec));
+        future = httpClient.executeAsync(request, createAdaptingJsonResponseHandler(taskStatusCodec, taskStatusSmileCodec));
         currentRequestStartNanos.set(System.nanoTime());
         Futures.addCallback(future, new SimpleHttpResponseHandler<>(this, request.getUri(), stats), executor);
     }
@@ -16,13 +16,14 @@ package io.prestosql.server.remotetask;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.concurrent.SetThreadName;
-import io.airlift.http.client.FullJsonResponseHandler.JsonResponse;
 import io.airlift.http.client.HttpClient;
 import io.airlift.http.client.Request;
 import io.airlift.json.JsonCodec;
 import io.airlift.units.Duration;
 import io.prestosql.execution.DynamicFiltersCollector.VersionedDynamicFilterDomains;
 import io.prestosql.execution.TaskId;
+import io.prestosql.server.smile.BaseResponse;
+import io.prestosql.server.smile.SmileCodec;
 import io.prestosql.spi.predicate.Domain;
 import io.prestosql.sql.planner.plan.DynamicFilterId;
 
@@ -30,6 +31,7 @@ import javax.annotation.concurrent.GuardedBy;
 
 import java.net.URI;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicLong;
@@ -37,16 +39,18 @@ import java.util.function.Consumer;
 
 import static com.google.common.collect.ImmutableMap.toImmutableMap;
 import static com.google.common.collect.Streams.concat;
+import static com.google.common.net.HttpHeaders.ACCEPT;
 import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
 import static com.google.common.net.MediaType.JSON_UTF_8;
 import static com.google.common.util.concurrent.Futures.addCallback;
-import static io.airlift.http.client.FullJsonResponseHandler.createFullJsonResponseHandler;
 import static io.airlift.http.client.HttpUriBuilder.uriBuilderFrom;
 import static io.airlift.http.client.Request.Builder.prepareGet;
 import static io.airlift.units.Duration.nanosSince;
+import static io.prestosql.PrestoMediaTypes.APPLICATION_JACKSON_SMILE;
 import static io.prestosql.client.PrestoHeaders.PRESTO_CURRENT_VERSION;
 import static io.prestosql.client.PrestoHeaders.PRESTO_MAX_WAIT;
 import static io.prestosql.execution.DynamicFiltersCollector.INITIAL_DYNAMIC_FILTERS_VERSION;
+import static io.prestosql.server.smile.AdaptingJsonResponseHandler.createAdaptingJsonResponseHandler;
 import static java.util.Objects.requireNonNull;
 
 class DynamicFiltersFetcher
@@ -56,6 +60,7 @@ class DynamicFiltersFetcher
     private final URI taskUri;
     private final Consumer<Throwable> onFail;
     private final JsonCodec<VersionedDynamicFilterDomains> dynamicFilterDomainsCodec;
+    private final Optional<SmileCodec<VersionedDynamicFilterDomains>> dynamicFilterDomainsSmileCodec;
     private final Duration refreshMaxWait;
     private final Executor executor;
     private final HttpClient httpClient;
@@ -72,7 +77,7 @@ class DynamicFiltersFetcher
     @GuardedBy("this")
     private boolean running;
     @GuardedBy("this")
-    private ListenableFuture<JsonResponse<VersionedDynamicFilterDomains>> future;
+    private ListenableFuture<BaseResponse<VersionedDynamicFilterDomains>> future;
 
     public DynamicFiltersFetcher(
             Consumer<Throwable> onFail,
@@ -80,6 +85,7 @@ class DynamicFiltersFetcher
             URI taskUri,
             Duration refreshMaxWait,
             JsonCodec<VersionedDynamicFilterDomains> dynamicFilterDomainsCodec,
+            Optional<SmileCodec<VersionedDynamicFilterDomains>> dynamicFilterDomainsSmileCodec,
             Executor executor,
             HttpClient httpClient,
             Duration maxErrorDuration,
@@ -92,6 +98,7 @@ class DynamicFiltersFetcher
 
         this.refreshMaxWait = requireNonNull(refreshMaxWait, "refreshMaxWait is null");
         this.dynamicFilterDomainsCodec = requireNonNull(dynamicFilterDomainsCodec, "dynamicFilterDomainsCodec is null");
+        this.dynamicFilterDomainsSmileCodec = requireNonNull(dynamicFilterDomainsSmileCodec, "dynamicFilterDomainsSmileCodec is null");
 
         this.executor = requireNonNull(executor, "executor is null");
         this.httpClient = requireNonNull(httpClient, "httpClient is null");
@@ -161,12 +168,13 @@ class DynamicFiltersFetcher
         Request request = prepareGet()
                 .setUri(uriBuilderFrom(taskUri).appendPath("dynamicfilters").build())
                 .setHeader(CONTENT_TYPE, JSON_UTF_8.toString())
+                .setHeader(ACCEPT, dynamicFilterDomainsSmileCodec.isPresent() ? APPLICATION_JACKSON_SMILE : JSON_UTF_8.toString())
                 .setHeader(PRESTO_CURRENT_VERSION, Long.toString(localDynamicFiltersVersion))
                 .setHeader(PRESTO_MAX_WAIT, refreshMaxWait.toString())
                 .build();
 
         errorTracker.startRequest();
-        future = httpClient.executeAsync(request, createFullJsonResponseHandler(dynamicFilterDomainsCodec));
+        future = httpClient.executeAsync(request, createAdaptingJsonResponseHandler(dynamicFilterDomainsCodec, dynamicFilterDomainsSmileCodec));
         currentRequestStartNanos.set(System.nanoTime());
         addCallback(future, new SimpleHttpResponseHandler<>(this, request.getUri(), stats), executor);
     }
@@ -24,7 +24,6 @@ import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.concurrent.SetThreadName;
-import io.airlift.http.client.FullJsonResponseHandler.JsonResponse;
 import io.airlift.http.client.HttpClient;
 import io.airlift.http.client.HttpUriBuilder;
 import io.airlift.http.client.Request;
@@ -50,6 +49,8 @@ import io.prestosql.execution.buffer.PageBufferInfo;
 import io.prestosql.metadata.Split;
 import io.prestosql.operator.TaskStats;
 import io.prestosql.server.TaskUpdateRequest;
+import io.prestosql.server.smile.BaseResponse;
+import io.prestosql.server.smile.SmileCodec;
 import io.prestosql.spi.predicate.Domain;
 import io.prestosql.sql.planner.PlanFragment;
 import io.prestosql.sql.planner.plan.DynamicFilterId;
@@ -84,16 +85,17 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.util.concurrent.Futures.immediateFuture;
-import static io.airlift.http.client.FullJsonResponseHandler.createFullJsonResponseHandler;
 import static io.airlift.http.client.HttpUriBuilder.uriBuilderFrom;
 import static io.airlift.http.client.Request.Builder.prepareDelete;
 import static io.airlift.http.client.Request.Builder.preparePost;
 import static io.airlift.http.client.StaticBodyGenerator.createStaticBodyGenerator;
+import static io.prestosql.PrestoMediaTypes.APPLICATION_JACKSON_SMILE;
 import static io.prestosql.execution.TaskInfo.createInitialTask;
 import static io.prestosql.execution.TaskState.ABORTED;
 import static io.prestosql.execution.TaskState.FAILED;
 import static io.prestosql.execution.TaskStatus.failWith;
 import static io.prestosql.server.remotetask.RequestErrorTracker.logError;
+import static io.prestosql.server.smile.AdaptingJsonResponseHandler.createAdaptingJsonResponseHandler;
 import static io.prestosql.util.Failures.toFailure;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
@@ -149,7 +151,9 @@ public final class HttpRemoteTask
     private final ScheduledExecutorService errorScheduledExecutor;
 
     private final JsonCodec<TaskInfo> taskInfoCodec;
+    private final Optional<SmileCodec<TaskInfo>> taskInfoSmileCodec;
     private final JsonCodec<TaskUpdateRequest> taskUpdateRequestCodec;
+    private final Optional<SmileCodec<TaskUpdateRequest>> taskUpdateRequestSmileCodec;
 
     private final RequestErrorTracker updateErrorTracker;
 
@@ -177,10 +181,15 @@ public final class HttpRemoteTask
             Duration taskStatusRefreshMaxWait,
             Duration taskInfoUpdateInterval,
             boolean summarizeTaskInfo,
+            boolean infoDeltaUpdatesEnabled,
             JsonCodec<TaskStatus> taskStatusCodec,
+            Optional<SmileCodec<TaskStatus>> taskStatusSmileCodec,
             JsonCodec<VersionedDynamicFilterDomains> dynamicFilterDomainsCodec,
+            Optional<SmileCodec<VersionedDynamicFilterDomains>> dynamicFilterDomainsSmileCodec,
             JsonCodec<TaskInfo> taskInfoCodec,
+            Optional<SmileCodec<TaskInfo>> taskInfoSmileCodec,
             JsonCodec<TaskUpdateRequest> taskUpdateRequestCodec,
+            Optional<SmileCodec<TaskUpdateRequest>> taskUpdateRequestSmileCodec,
             PartitionedSplitCountTracker partitionedSplitCountTracker,
             RemoteTaskStats stats)
     {
@@ -196,6 +205,8 @@ public final class HttpRemoteTask
         requireNonNull(taskStatusCodec, "taskStatusCodec is null");
         requireNonNull(taskInfoCodec, "taskInfoCodec is null");
         requireNonNull(taskUpdateRequestCodec, "taskUpdateRequestCodec is null");
+        requireNonNull(taskInfoSmileCodec, "taskInfoSmileCodec is null");
+        requireNonNull(taskUpdateRequestSmileCodec, "taskUpdateRequestSmileCodec is null");
         requireNonNull(partitionedSplitCountTracker, "partitionedSplitCountTracker is null");
         requireNonNull(stats, "stats is null");
 
@@ -211,7 +222,9 @@ public final class HttpRemoteTask
             this.errorScheduledExecutor = errorScheduledExecutor;
             this.summarizeTaskInfo = summarizeTaskInfo;
             this.taskInfoCodec = taskInfoCodec;
+            this.taskInfoSmileCodec = taskInfoSmileCodec;
             this.taskUpdateRequestCodec = taskUpdateRequestCodec;
+            this.taskUpdateRequestSmileCodec = taskUpdateRequestSmileCodec;
             this.updateErrorTracker = new RequestErrorTracker(taskId, location, maxErrorDuration, errorScheduledExecutor, "updating task");
             this.partitionedSplitCountTracker = requireNonNull(partitionedSplitCountTracker, "partitionedSplitCountTracker is null");
             this.stats = stats;
@@ -238,6 +251,7 @@ public final class HttpRemoteTask
                     location,
                     taskStatusRefreshMaxWait,
                     dynamicFilterDomainsCodec,
+                    dynamicFilterDomainsSmileCodec,
                     executor,
                     httpClient,
                     maxErrorDuration,
@@ -249,6 +263,7 @@ public final class HttpRemoteTask
                     initialTask.getTaskStatus(),
                     taskStatusRefreshMaxWait,
                     taskStatusCodec,
+                    taskStatusSmileCodec,
                     dynamicFiltersFetcher,
                     executor,
                     httpClient,
@@ -262,8 +277,10 @@ public final class HttpRemoteTask
                     httpClient,
                     taskInfoUpdateInterval,
                     taskInfoCodec,
+                    taskInfoSmileCodec,
                     maxErrorDuration,
                     summarizeTaskInfo,
+                    infoDeltaUpdatesEnabled,
                     executor,
                     updateScheduledExecutor,
                     errorScheduledExecutor,
@@ -303,6 +320,12 @@ public final class HttpRemoteTask
         return taskInfoFetcher.getTaskInfo();
     }
 
+    @Override
+    public void requestDetailedTaskInfo()
+    {
+        taskInfoFetcher.requestDetailedTaskInfo();
+    }
+
     @Override
     public TaskStatus getTaskStatus()
     {
@@ -535,21 +558,31 @@ public final class HttpRemoteTask
                 sources,
                 outputBuffers.get(),
                 totalPartitions);
-        byte[] taskUpdateRequestJson = taskUpdateRequestCodec.toJsonBytes(updateRequest);
+        byte[] taskUpdateRequestBytes;
+        String contentType;
+        if (taskUpdateRequestSmileCodec.isPresent()) {
+            taskUpdateRequestBytes = taskUpdateRequestSmileCodec.get().toSmileBytes(updateRequest);
+            contentType = APPLICATION_JACKSON_SMILE;
+        }
+        else {
+            taskUpdateRequestBytes = taskUpdateRequestCodec.toJsonBytes(updateRequest);
+            contentType = MediaType.JSON_UTF_8.toString();
+        }
         if (fragment.isPresent()) {
-            stats.updateWithPlanBytes(taskUpdateRequestJson.length);
+            stats.updateWithPlanBytes(taskUpdateRequestBytes.length);
         }
 
         HttpUriBuilder uriBuilder = getHttpUriBuilder(taskStatus);
         Request request = preparePost()
                 .setUri(uriBuilder.build())
-                .setHeader(HttpHeaders.CONTENT_TYPE, MediaType.JSON_UTF_8.toString())
-                .setBodyGenerator(createStaticBodyGenerator(taskUpdateRequestJson))
+                .setHeader(HttpHeaders.CONTENT_TYPE, contentType)
+                .setHeader(HttpHeaders.ACCEPT, taskInfoSmileCodec.isPresent() ? APPLICATION_JACKSON_SMILE : MediaType.JSON_UTF_8.toString())
+                .setBodyGenerator(createStaticBodyGenerator(taskUpdateRequestBytes))
                 .build();
 
         updateErrorTracker.startRequest();
 
-        ListenableFuture<JsonResponse<TaskInfo>> future = httpClient.executeAsync(request, createFullJsonResponseHandler(taskInfoCodec));
+        ListenableFuture<BaseResponse<TaskInfo>> future = httpClient.executeAsync(request, createAdaptingJsonResponseHandler(taskInfoCodec, taskInfoSmileCodec));
         currentRequest = future;
         currentRequestStartNanos = System.nanoTime();
 
@@ -671,10 +704,10 @@ public final class HttpRemoteTask
 
     private void doScheduleAsyncCleanupRequest(Backoff cleanupBackoff, Request request, String action)
     {
-        Futures.addCallback(httpClient.executeAsync(request, createFullJsonResponseHandler(taskInfoCodec)), new FutureCallback<>()
+        Futures.addCallback(httpClient.executeAsync(request, createAdaptingJsonResponseHandler(taskInfoCodec, taskInfoSmileCodec)), new FutureCallback<>()
         {
             @Override
-            public void onSuccess(JsonResponse<TaskInfo> result)
+            public void onSuccess(BaseResponse<TaskInfo> result)
             {
                 try {
                     updateTaskInfo(result.getValue());
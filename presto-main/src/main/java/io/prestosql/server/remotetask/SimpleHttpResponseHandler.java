@@ -14,8 +14,8 @@
 package io.prestosql.server.remotetask;
 
 import com.google.common.util.concurrent.FutureCallback;
-import io.airlift.http.client.FullJsonResponseHandler;
 import io.airlift.http.client.HttpStatus;
+import io.prestosql.server.smile.BaseResponse;
 import io.prestosql.spi.PrestoException;
 
 import java.net.URI;
@@ -25,7 +25,7 @@ import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
 
 public class SimpleHttpResponseHandler<T>
-        implements FutureCallback<FullJsonResponseHandler.JsonResponse<T>>
+        implements FutureCallback<BaseResponse<T>>
 {
     private final SimpleHttpResponseCallback<T> callback;
 
@@ -40,7 +40,7 @@ public class SimpleHttpResponseHandler<T>
     }
 
     @Override
-    public void onSuccess(FullJsonResponseHandler.JsonResponse<T> response)
+    public void onSuccess(BaseResponse<T> response)
     {
         stats.updateSuccess();
         stats.responseSize(response.getResponseSize());
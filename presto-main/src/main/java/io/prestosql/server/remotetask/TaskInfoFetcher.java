@@ -13,24 +13,31 @@
  */
 package io.prestosql.server.remotetask;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.concurrent.SetThreadName;
-import io.airlift.http.client.FullJsonResponseHandler;
 import io.airlift.http.client.HttpClient;
 import io.airlift.http.client.HttpUriBuilder;
 import io.airlift.http.client.Request;
 import io.airlift.json.JsonCodec;
 import io.airlift.units.Duration;
+import io.prestosql.execution.PipelineStatsVersion;
 import io.prestosql.execution.StateMachine;
 import io.prestosql.execution.StateMachine.StateChangeListener;
 import io.prestosql.execution.TaskId;
 import io.prestosql.execution.TaskInfo;
 import io.prestosql.execution.TaskStatus;
+import io.prestosql.operator.PipelineStats;
+import io.prestosql.server.smile.BaseResponse;
+import io.prestosql.server.smile.SmileCodec;
 
 import javax.annotation.concurrent.GuardedBy;
 
 import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
@@ -39,23 +46,31 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
+import static com.google.common.net.HttpHeaders.ACCEPT;
 import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
 import static com.google.common.net.MediaType.JSON_UTF_8;
-import static io.airlift.http.client.FullJsonResponseHandler.createFullJsonResponseHandler;
 import static io.airlift.http.client.HttpUriBuilder.uriBuilderFrom;
 import static io.airlift.http.client.Request.Builder.prepareGet;
 import static io.airlift.units.Duration.nanosSince;
+import static io.prestosql.PrestoMediaTypes.APPLICATION_JACKSON_SMILE;
+import static io.prestosql.client.PrestoHeaders.PRESTO_PIPELINE_STATS_VERSION;
+import static io.prestosql.execution.PipelineStatsVersion.INITIAL_VERSION;
+import static io.prestosql.server.smile.AdaptingJsonResponseHandler.createAdaptingJsonResponseHandler;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 public class TaskInfoFetcher
         implements SimpleHttpResponseCallback<TaskInfo>
 {
+    private static final Duration DETAILED_TASK_INFO_REQUEST_TIMEOUT = new Duration(10, SECONDS);
+
     private final TaskId taskId;
     private final Consumer<Throwable> onFail;
     private final StateMachine<TaskInfo> taskInfo;
     private final StateMachine<Optional<TaskInfo>> finalTaskInfo;
     private final JsonCodec<TaskInfo> taskInfoCodec;
+    private final Optional<SmileCodec<TaskInfo>> taskInfoSmileCodec;
 
     private final long updateIntervalMillis;
     private final AtomicLong lastUpdateNanos = new AtomicLong();
@@ -66,6 +81,16 @@ public class TaskInfoFetcher
     private final RequestErrorTracker errorTracker;
 
     private final boolean summarizeTaskInfo;
+    private final boolean infoDeltaUpdatesEnabled;
+
+    @GuardedBy("this")
+    private long pipelineStatsVersion = INITIAL_VERSION;
+
+    @GuardedBy("this")
+    private boolean detailedTaskInfoRequested;
+
+    @GuardedBy("this")
+    private long detailedTaskInfoRequestNanos;
 
     @GuardedBy("this")
     private final AtomicLong currentRequestStartNanos = new AtomicLong();
@@ -79,7 +104,7 @@ public class TaskInfoFetcher
     private ScheduledFuture<?> scheduledFuture;
 
     @GuardedBy("this")
-    private ListenableFuture<FullJsonResponseHandler.JsonResponse<TaskInfo>> future;
+    private ListenableFuture<BaseResponse<TaskInfo>> future;
 
     public TaskInfoFetcher(
             Consumer<Throwable> onFail,
@@ -87,8 +112,10 @@ public class TaskInfoFetcher
             HttpClient httpClient,
             Duration updateInterval,
             JsonCodec<TaskInfo> taskInfoCodec,
+            Optional<SmileCodec<TaskInfo>> taskInfoSmileCodec,
             Duration maxErrorDuration,
             boolean summarizeTaskInfo,
+            boolean infoDeltaUpdatesEnabled,
             Executor executor,
             ScheduledExecutorService updateScheduledExecutor,
             ScheduledExecutorService errorScheduledExecutor,
@@ -102,12 +129,14 @@ public class TaskInfoFetcher
         this.taskInfo = new StateMachine<>("task " + taskId, executor, initialTask);
         this.finalTaskInfo = new StateMachine<>("task-" + taskId, executor, Optional.empty());
         this.taskInfoCodec = requireNonNull(taskInfoCodec, "taskInfoCodec is null");
+        this.taskInfoSmileCodec = requireNonNull(taskInfoSmileCodec, "taskInfoSmileCodec is null");
 
         this.updateIntervalMillis = requireNonNull(updateInterval, "updateInterval is null").toMillis();
         this.updateScheduledExecutor = requireNonNull(updateScheduledExecutor, "updateScheduledExecutor is null");
         this.errorTracker = new RequestErrorTracker(taskId, initialTask.getTaskStatus().getSelf(), maxErrorDuration, errorScheduledExecutor, "getting info for task");
 
         this.summarizeTaskInfo = summarizeTaskInfo;
+        this.infoDeltaUpdatesEnabled = infoDeltaUpdatesEnabled;
 
         this.executor = requireNonNull(executor, "executor is null");
         this.httpClient = requireNonNull(httpClient, "httpClient is null");
@@ -119,6 +148,15 @@ public class TaskInfoFetcher
         return taskInfo.get();
     }
 
+    /**
+     * Fetch pipeline statistics of the running task for a while, when these are only fetched on demand.
+     */
+    public synchronized void requestDetailedTaskInfo()
+    {
+        detailedTaskInfoRequested = true;
+        detailedTaskInfoRequestNanos = System.nanoTime();
+    }
+
     public synchronized void start()
     {
         if (running) {
@@ -200,22 +238,32 @@ public class TaskInfoFetcher
             return;
         }
 
+        // summarized task info only includes the pipeline statistics of running tasks when they were requested recently
+        boolean fetchPipelineStats = infoDeltaUpdatesEnabled &&
+                (!summarizeTaskInfo || (detailedTaskInfoRequested && nanosSince(detailedTaskInfoRequestNanos).compareTo(DETAILED_TASK_INFO_REQUEST_TIMEOUT) < 0));
+
         HttpUriBuilder httpUriBuilder = uriBuilderFrom(taskStatus.getSelf());
         URI uri = summarizeTaskInfo ? httpUriBuilder.addParameter("summarize").build() : httpUriBuilder.build();
-        Request request = prepareGet()
+        Request.Builder requestBuilder = prepareGet()
                 .setUri(uri)
                 .setHeader(CONTENT_TYPE, JSON_UTF_8.toString())
-                .build();
+                .setHeader(ACCEPT, taskInfoSmileCodec.isPresent() ? APPLICATION_JACKSON_SMILE : JSON_UTF_8.toString());
+        if (fetchPipelineStats) {
+            // only pipelines that changed since this version are returned
+            requestBuilder.setHeader(PRESTO_PIPELINE_STATS_VERSION, String.valueOf(pipelineStatsVersion));
+        }
+        Request request = requestBuilder.build();
 
         errorTracker.startRequest();
-        future = httpClient.executeAsync(request, createFullJsonResponseHandler(taskInfoCodec));
+        future = httpClient.executeAsync(request, createAdaptingJsonResponseHandler(taskInfoCodec, taskInfoSmileCodec));
         currentRequestStartNanos.set(System.nanoTime());
         Futures.addCallback(future, new SimpleHttpResponseHandler<>(this, request.getUri(), stats), executor);
     }
 
     synchronized void updateTaskInfo(TaskInfo newValue)
     {
-        boolean updated = taskInfo.setIf(newValue, oldValue -> {
+        TaskInfo mergedValue = mergePipelineStats(newValue);
+        boolean updated = taskInfo.setIf(mergedValue, oldValue -> {
             TaskStatus oldTaskStatus = oldValue.getTaskStatus();
             TaskStatus newTaskStatus = newValue.getTaskStatus();
             if (oldTaskStatus.getState().isDone()) {
@@ -226,12 +274,52 @@ public class TaskInfoFetcher
             return newTaskStatus.getVersion() >= oldTaskStatus.getVersion();
         });
 
+        if (updated) {
+            mergedValue.getPipelineStatsVersion().ifPresent(version -> pipelineStatsVersion = version.getVersion());
+        }
+
         if (updated && newValue.getTaskStatus().getState().isDone()) {
-            finalTaskInfo.compareAndSet(Optional.empty(), Optional.of(newValue));
+            finalTaskInfo.compareAndSet(Optional.empty(), Optional.of(mergedValue));
             stop();
         }
     }
 
+    @GuardedBy("this")
+    private TaskInfo mergePipelineStats(TaskInfo newValue)
+    {
+        if (!infoDeltaUpdatesEnabled) {
+            return newValue;
+        }
+
+        List<PipelineStats> currentPipelines = taskInfo.get().getStats().getPipelines();
+        Optional<PipelineStatsVersion> version = newValue.getPipelineStatsVersion();
+        if (version.isEmpty()) {
+            if (!isDone(newValue) && newValue.getStats().getPipelines().isEmpty()) {
+                // pipeline statistics were not requested, so keep the last fetched ones
+                return newValue.withPipelineStats(currentPipelines, Optional.empty());
+            }
+            return newValue;
+        }
+
+        if (!version.get().isDelta()) {
+            return newValue;
+        }
+        if (version.get().getBaseVersion().getAsLong() != pipelineStatsVersion) {
+            // the delta does not apply to the pipelines we have, and dropping the version
+            // makes the next request fetch all pipelines
+            return newValue.withPipelineStats(currentPipelines, Optional.empty());
+        }
+
+        Map<Integer, PipelineStats> mergedPipelines = new LinkedHashMap<>();
+        for (PipelineStats pipeline : currentPipelines) {
+            mergedPipelines.put(pipeline.getPipelineId(), pipeline);
+        }
+        for (PipelineStats pipeline : newValue.getStats().getPipelines()) {
+            mergedPipelines.put(pipeline.getPipelineId(), pipeline);
+        }
+        return newValue.withPipelineStats(ImmutableList.copyOf(mergedPipelines.values()), version);
+    }
+
     @Override
     public void success(TaskInfo newValue)
     {
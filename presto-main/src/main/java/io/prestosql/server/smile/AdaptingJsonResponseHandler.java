@@ -0,0 +1,124 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.server.smile;
+
+import io.airlift.http.client.FullJsonResponseHandler;
+import io.airlift.http.client.FullJsonResponseHandler.JsonResponse;
+import io.airlift.http.client.Request;
+import io.airlift.http.client.Response;
+import io.airlift.http.client.ResponseHandler;
+import io.airlift.json.JsonCodec;
+
+import java.util.Optional;
+
+import static io.airlift.http.client.FullJsonResponseHandler.createFullJsonResponseHandler;
+import static io.airlift.http.client.ResponseHandlerUtils.propagate;
+import static io.prestosql.server.smile.FullSmileResponseHandler.isSmile;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Decodes a response as SMILE or JSON depending on its content type, so a client which
+ * asks for SMILE still works with servers that respond with JSON.
+ */
+public class AdaptingJsonResponseHandler<T>
+        implements ResponseHandler<BaseResponse<T>, RuntimeException>
+{
+    private final FullJsonResponseHandler<T> jsonResponseHandler;
+    private final Optional<FullSmileResponseHandler<T>> smileResponseHandler;
+
+    public static <T> AdaptingJsonResponseHandler<T> createAdaptingJsonResponseHandler(JsonCodec<T> jsonCodec, Optional<SmileCodec<T>> smileCodec)
+    {
+        return new AdaptingJsonResponseHandler<>(jsonCodec, smileCodec);
+    }
+
+    private AdaptingJsonResponseHandler(JsonCodec<T> jsonCodec, Optional<SmileCodec<T>> smileCodec)
+    {
+        this.jsonResponseHandler = createFullJsonResponseHandler(requireNonNull(jsonCodec, "jsonCodec is null"));
+        this.smileResponseHandler = requireNonNull(smileCodec, "smileCodec is null").map(FullSmileResponseHandler::createFullSmileResponseHandler);
+    }
+
+    @Override
+    public BaseResponse<T> handleException(Request request, Exception exception)
+    {
+        throw propagate(request, exception);
+    }
+
+    @Override
+    public BaseResponse<T> handle(Request request, Response response)
+    {
+        if (smileResponseHandler.isPresent() && isSmile(response)) {
+            return smileResponseHandler.get().handle(request, response);
+        }
+        return new JsonResponseWrapper<>(jsonResponseHandler.handle(request, response));
+    }
+
+    private static class JsonResponseWrapper<T>
+            implements BaseResponse<T>
+    {
+        private final JsonResponse<T> response;
+
+        private JsonResponseWrapper(JsonResponse<T> response)
+        {
+            this.response = requireNonNull(response, "response is null");
+        }
+
+        @Override
+        public int getStatusCode()
+        {
+            return response.getStatusCode();
+        }
+
+        @Override
+        public String getHeader(String name)
+        {
+            return response.getHeader(name);
+        }
+
+        @Override
+        public boolean hasValue()
+        {
+            return response.hasValue();
+        }
+
+        @Override
+        public T getValue()
+        {
+            return response.getValue();
+        }
+
+        @Override
+        public int getResponseSize()
+        {
+            return response.getResponseSize();
+        }
+
+        @Override
+        public String getResponseBody()
+        {
+            return response.getResponseBody();
+        }
+
+        @Override
+        public IllegalArgumentException getException()
+        {
+            return response.getException();
+        }
+
+        @Override
+        public String toString()
+        {
+            return response.toString();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.server.smile;
+
+import com.google.common.collect.ListMultimap;
+import com.google.common.io.ByteStreams;
+import com.google.common.net.MediaType;
+import io.airlift.http.client.HeaderName;
+import io.airlift.http.client.Request;
+import io.airlift.http.client.Response;
+import io.airlift.http.client.ResponseHandler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
+import static io.airlift.http.client.ResponseHandlerUtils.propagate;
+import static io.prestosql.PrestoMediaTypes.APPLICATION_JACKSON_SMILE_TYPE;
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+public class FullSmileResponseHandler<T>
+        implements ResponseHandler<FullSmileResponseHandler.SmileResponse<T>, RuntimeException>
+{
+    private final SmileCodec<T> smileCodec;
+
+    public static <T> FullSmileResponseHandler<T> createFullSmileResponseHandler(SmileCodec<T> smileCodec)
+    {
+        return new FullSmileResponseHandler<>(smileCodec);
+    }
+
+    private FullSmileResponseHandler(SmileCodec<T> smileCodec)
+    {
+        this.smileCodec = requireNonNull(smileCodec, "smileCodec is null");
+    }
+
+    @Override
+    public SmileResponse<T> handleException(Request request, Exception exception)
+    {
+        throw propagate(request, exception);
+    }
+
+    @Override
+    public SmileResponse<T> handle(Request request, Response response)
+    {
+        byte[] bytes = readResponseBytes(response);
+        if (!isSmile(response)) {
+            return new SmileResponse<>(response.getStatusCode(), response.getHeaders(), bytes);
+        }
+        return new SmileResponse<>(response.getStatusCode(), response.getHeaders(), smileCodec, bytes);
+    }
+
+    static boolean isSmile(Response response)
+    {
+        String contentType = response.getHeader(CONTENT_TYPE);
+        return contentType != null && MediaType.parse(contentType).is(APPLICATION_JACKSON_SMILE_TYPE);
+    }
+
+    private static byte[] readResponseBytes(Response response)
+    {
+        try {
+            return ByteStreams.toByteArray(response.getInputStream());
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Error reading response from server", e);
+        }
+    }
+
+    public static class SmileResponse<T>
+            implements BaseResponse<T>
+    {
+        private final int statusCode;
+        private final ListMultimap<HeaderName, String> headers;
+        private final boolean hasValue;
+        private final byte[] responseBytes;
+        private final T value;
+        private final IllegalArgumentException exception;
+
+        public SmileResponse(int statusCode, ListMultimap<HeaderName, String> headers, byte[] responseBytes)
+        {
+            this.statusCode = statusCode;
+            this.headers = requireNonNull(headers, "headers is null");
+            this.responseBytes = requireNonNull(responseBytes, "responseBytes is null");
+            this.hasValue = false;
+            this.value = null;
+            this.exception = null;
+        }
+
+        public SmileResponse(int statusCode, ListMultimap<HeaderName, String> headers, SmileCodec<T> smileCodec, byte[] smileBytes)
+        {
+            this.statusCode = statusCode;
+            this.headers = requireNonNull(headers, "headers is null");
+            this.responseBytes = requireNonNull(smileBytes, "smileBytes is null");
+
+            T value = null;
+            IllegalArgumentException exception = null;
+            try {
+                value = smileCodec.fromSmile(smileBytes);
+            }
+            catch (IllegalArgumentException e) {
+                exception = new IllegalArgumentException(format("Unable to create %s from SMILE response:\n[%s]", smileCodec.getType(), new String(smileBytes, UTF_8)), e);
+            }
+            this.hasValue = (exception == null);
+            this.value = value;
+            this.exception = exception;
+        }
+
+        @Override
+        public int getStatusCode()
+        {
+            return statusCode;
+        }
+
+        @Override
+        public String getHeader(String name)
+        {
+            return headers.get(HeaderName.of(name)).stream()
+                    .findFirst()
+                    .orElse(null);
+        }
+
+        @Override
+        public boolean hasValue()
+        {
+            return hasValue;
+        }
+
+        @Override
+        public T getValue()
+        {
+            if (!hasValue) {
+                throw new IllegalStateException("Response does not contain a SMILE value", exception);
+            }
+            return value;
+        }
+
+        @Override
+        public int getResponseSize()
+        {
+            return responseBytes.length;
+        }
+
+        @Override
+        public String getResponseBody()
+        {
+            return new String(responseBytes, UTF_8);
+        }
+
+        @Override
+        public IllegalArgumentException getException()
+        {
+            return exception;
+        }
+
+        @Override
+        public String toString()
+        {
+            return toStringHelper(this)
+                    .add("statusCode", statusCode)
+                    .add("headers", headers)
+                    .add("hasValue", hasValue)
+                    .add("value", value)
+                    .toString();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.server.smile;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Encodes and decodes values in the binary SMILE format. The JSON object mapper is used
+ * for the data binding, so the same serializers apply as for the corresponding JSON codec.
+ */
+public class SmileCodec<T>
+{
+    private final Type type;
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
+
+    public static <T> SmileCodec<T> smileCodec(ObjectMapper objectMapper, Class<T> type)
+    {
+        return new SmileCodec<>(objectMapper, type);
+    }
+
+    private SmileCodec(ObjectMapper objectMapper, Class<T> type)
+    {
+        requireNonNull(objectMapper, "objectMapper is null");
+        this.type = requireNonNull(type, "type is null");
+        JavaType javaType = objectMapper.getTypeFactory().constructType(type);
+        SmileFactory smileFactory = new SmileFactory();
+        this.reader = objectMapper.readerFor(javaType).with(smileFactory);
+        this.writer = objectMapper.writerFor(javaType).with(smileFactory);
+    }
+
+    public Type getType()
+    {
+        return type;
+    }
+
+    public byte[] toSmileBytes(T instance)
+            throws IllegalArgumentException
+    {
+        try {
+            return writer.writeValueAsBytes(instance);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException(format("%s could not be converted to SMILE", instance.getClass().getName()), e);
+        }
+    }
+
+    public T fromSmile(byte[] bytes)
+            throws IllegalArgumentException
+    {
+        try {
+            return reader.readValue(bytes);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException(format("Invalid SMILE bytes for %s", type), e);
+        }
+    }
+}
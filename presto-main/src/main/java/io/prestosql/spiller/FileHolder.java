@@ -42,6 +42,11 @@ final class FileHolder
         this.filePath = requireNonNull(filePath, "filePath is null");
     }
 
+    public Path getFilePath()
+    {
+        return filePath;
+    }
+
     public synchronized OutputStream newOutputStream(OpenOption... options)
             throws IOException
     {
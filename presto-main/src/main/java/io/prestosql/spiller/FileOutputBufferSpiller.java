@@ -0,0 +1,281 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.spiller;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Closer;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import io.airlift.log.Logger;
+import io.airlift.slice.DynamicSliceOutput;
+import io.airlift.slice.Slice;
+import io.airlift.slice.SliceInput;
+import io.airlift.slice.Slices;
+import io.prestosql.execution.buffer.SerializedPage;
+import io.prestosql.operator.SpillContext;
+import io.prestosql.spi.PrestoException;
+import it.unimi.dsi.fastutil.ints.IntArrayFIFOQueue;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.util.concurrent.MoreExecutors.newSequentialExecutor;
+import static io.prestosql.execution.buffer.PagesSerdeUtil.readSerializedPages;
+import static io.prestosql.execution.buffer.PagesSerdeUtil.writeSerializedPage;
+import static io.prestosql.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
+import static io.prestosql.spiller.FileSingleStreamSpillerFactory.SPILL_FILE_PREFIX;
+import static io.prestosql.spiller.FileSingleStreamSpillerFactory.SPILL_FILE_SUFFIX;
+import static java.lang.Math.toIntExact;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Appends serialized pages to a spill file and reads them back from the position
+ * of the oldest unread page. Pages are written as they are, so they keep the
+ * compression of the exchange, and are encrypted one by one when a cipher is given.
+ * The file is truncated whenever all spilled pages have been read.
+ * <p>
+ * All file operations, including the creation of the file, run one at a time on the
+ * spiller executor in the order they were requested, so the callers never wait for disk I/O.
+ */
+@ThreadSafe
+public class FileOutputBufferSpiller
+        implements OutputBufferSpiller
+{
+    private static final Logger log = Logger.get(FileOutputBufferSpiller.class);
+
+    private final Path spillPath;
+    private final Executor executor;
+    private final Closer closer = Closer.create();
+    private final SpillerStats spillerStats;
+    private final SpillContext localSpillContext;
+    private final Optional<SpillCipher> spillCipher;
+    private final Runnable fileSystemErrorHandler;
+
+    private volatile boolean closed;
+
+    @GuardedBy("this")
+    private FileChannel channel;
+
+    // sizes of the spilled pages on disk which have not been read yet, oldest first
+    @GuardedBy("this")
+    private final IntArrayFIFOQueue spilledPageSizes = new IntArrayFIFOQueue();
+    @GuardedBy("this")
+    private long writePosition;
+    @GuardedBy("this")
+    private long readPosition;
+
+    public FileOutputBufferSpiller(
+            Path spillPath,
+            Executor executor,
+            SpillerStats spillerStats,
+            SpillContext spillContext,
+            Optional<SpillCipher> spillCipher,
+            Runnable fileSystemErrorHandler)
+    {
+        this.spillPath = requireNonNull(spillPath, "spillPath is null");
+        this.executor = newSequentialExecutor(requireNonNull(executor, "executor is null"));
+        this.spillerStats = requireNonNull(spillerStats, "spillerStats is null");
+        this.localSpillContext = closer.register(spillContext.newLocalSpillContext());
+        this.spillCipher = requireNonNull(spillCipher, "spillCipher is null");
+        spillCipher.ifPresent(cipher -> closer.register(cipher::close));
+        this.fileSystemErrorHandler = requireNonNull(fileSystemErrorHandler, "fileSystemErrorHandler is null");
+    }
+
+    @Override
+    public ListenableFuture<?> spill(List<SerializedPage> pages)
+    {
+        requireNonNull(pages, "pages is null");
+        checkState(!closed, "Spiller is closed");
+        return submit(() -> {
+            writePages(pages);
+            return null;
+        });
+    }
+
+    @Override
+    public ListenableFuture<List<SerializedPage>> readPages(long maxBytes)
+    {
+        checkState(!closed, "Spiller is closed");
+        return submit(() -> readSpilledPages(maxBytes));
+    }
+
+    @Override
+    public void close()
+    {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        // the spills and reads already submitted skip the file once closed is set,
+        // and the file is removed after them, unless the executor is already shut down
+        try {
+            executor.execute(this::closeFile);
+        }
+        catch (RejectedExecutionException e) {
+            closeFile();
+        }
+    }
+
+    private <T> ListenableFuture<T> submit(Callable<T> task)
+    {
+        ListenableFutureTask<T> future = ListenableFutureTask.create(task);
+        executor.execute(future);
+        return future;
+    }
+
+    private synchronized void writePages(List<SerializedPage> pages)
+    {
+        if (closed) {
+            return;
+        }
+        if (channel == null) {
+            createFile();
+        }
+
+        DynamicSliceOutput output = new DynamicSliceOutput(toIntExact(pages.stream().mapToLong(SerializedPage::getSizeInBytes).sum()) + pages.size() * 64);
+        int[] pageSizes = new int[pages.size()];
+        for (int i = 0; i < pages.size(); i++) {
+            int start = output.size();
+            if (spillCipher.isPresent()) {
+                DynamicSliceOutput pageOutput = new DynamicSliceOutput(pages.get(i).getSizeInBytes() + 64);
+                writeSerializedPage(pageOutput, pages.get(i));
+                Slice page = pageOutput.slice();
+                byte[] encrypted = new byte[spillCipher.get().encryptedMaxLength(page.length())];
+                int encryptedLength = spillCipher.get().encrypt(page.byteArray(), page.byteArrayOffset(), page.length(), encrypted, 0);
+                output.writeBytes(encrypted, 0, encryptedLength);
+            }
+            else {
+                writeSerializedPage(output, pages.get(i));
+            }
+            pageSizes[i] = output.size() - start;
+        }
+
+        ByteBuffer buffer = output.slice().toByteBuffer();
+        long bytesWritten = buffer.remaining();
+        try {
+            while (buffer.hasRemaining()) {
+                writePosition += channel.write(buffer, writePosition);
+            }
+        }
+        catch (IOException e) {
+            fileSystemErrorHandler.run();
+            throw new PrestoException(GENERIC_INTERNAL_ERROR, "Failed to spill pages", e);
+        }
+        for (int pageSize : pageSizes) {
+            spilledPageSizes.enqueue(pageSize);
+        }
+        localSpillContext.updateBytes(bytesWritten);
+        spillerStats.addToTotalSpilledBytes(bytesWritten);
+    }
+
+    @GuardedBy("this")
+    private void createFile()
+    {
+        try {
+            Path file = Files.createTempFile(spillPath, SPILL_FILE_PREFIX, SPILL_FILE_SUFFIX);
+            closer.register(new FileHolder(file));
+            channel = closer.register(FileChannel.open(file, READ, WRITE));
+        }
+        catch (IOException e) {
+            fileSystemErrorHandler.run();
+            throw new PrestoException(GENERIC_INTERNAL_ERROR, "Failed to create spill file", e);
+        }
+    }
+
+    private synchronized List<SerializedPage> readSpilledPages(long maxBytes)
+    {
+        if (closed || spilledPageSizes.isEmpty()) {
+            return ImmutableList.of();
+        }
+
+        int[] pageSizes = new int[spilledPageSizes.size()];
+        int pageCount = 0;
+        long bytes = 0;
+        while (!spilledPageSizes.isEmpty()) {
+            int pageSize = spilledPageSizes.firstInt();
+            // break (and don't read) if this page would exceed the limit
+            if (pageCount > 0 && bytes + pageSize > maxBytes) {
+                break;
+            }
+            pageSizes[pageCount++] = spilledPageSizes.dequeueInt();
+            bytes += pageSize;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(toIntExact(bytes));
+        try {
+            while (buffer.hasRemaining()) {
+                int bytesRead = channel.read(buffer, readPosition + buffer.position());
+                checkState(bytesRead >= 0, "Unexpected end of spill file");
+            }
+            readPosition += bytes;
+            if (spilledPageSizes.isEmpty()) {
+                // everything spilled has been read, so the file is reused from the start
+                channel.truncate(0);
+                writePosition = 0;
+                readPosition = 0;
+            }
+        }
+        catch (IOException e) {
+            fileSystemErrorHandler.run();
+            throw new PrestoException(GENERIC_INTERNAL_ERROR, "Failed to read spilled pages", e);
+        }
+        localSpillContext.updateBytes(-bytes);
+
+        ImmutableList.Builder<SerializedPage> pages = ImmutableList.builder();
+        if (spillCipher.isEmpty()) {
+            Iterator<SerializedPage> iterator = readSerializedPages(Slices.wrappedBuffer(buffer.array()).getInput());
+            for (int i = 0; i < pageCount; i++) {
+                pages.add(iterator.next());
+            }
+            return pages.build();
+        }
+
+        int offset = 0;
+        for (int i = 0; i < pageCount; i++) {
+            byte[] decrypted = new byte[spillCipher.get().decryptedMaxLength(pageSizes[i])];
+            int decryptedLength = spillCipher.get().decrypt(buffer.array(), offset, pageSizes[i], decrypted, 0);
+            SliceInput input = Slices.wrappedBuffer(decrypted, 0, decryptedLength).getInput();
+            pages.add(readSerializedPages(input).next());
+            offset += pageSizes[i];
+        }
+        return pages.build();
+    }
+
+    private synchronized void closeFile()
+    {
+        try {
+            closer.close();
+        }
+        catch (IOException | RuntimeException e) {
+            fileSystemErrorHandler.run();
+            log.warn(e, "Failed to close spiller");
+        }
+    }
+}
@@ -26,6 +26,7 @@ import io.airlift.slice.SliceOutput;
 import io.prestosql.execution.buffer.PagesSerde;
 import io.prestosql.execution.buffer.PagesSerdeUtil;
 import io.prestosql.execution.buffer.SerializedPage;
+import io.prestosql.jfr.SpillWriteEvent;
 import io.prestosql.memory.context.LocalMemoryContext;
 import io.prestosql.operator.SpillContext;
 import io.prestosql.spi.Page;
@@ -143,6 +144,10 @@ public class FileSingleStreamSpiller
     private void writePages(Iterator<Page> pageIterator)
     {
         checkState(writable, "Spilling no longer allowed. The spiller has been made non-writable on first read for subsequent reads to be consistent");
+        SpillWriteEvent event = new SpillWriteEvent();
+        event.begin();
+        long writtenPages = 0;
+        long writtenBytes = 0;
         try (SliceOutput output = new OutputStreamSliceOutput(targetFile.newOutputStream(APPEND), BUFFER_SIZE)) {
             while (pageIterator.hasNext()) {
                 Page page = pageIterator.next();
@@ -152,12 +157,22 @@ public class FileSingleStreamSpiller
                 localSpillContext.updateBytes(pageSize);
                 spillerStats.addToTotalSpilledBytes(pageSize);
                 writeSerializedPage(output, serializedPage);
+                writtenPages++;
+                writtenBytes += pageSize;
             }
         }
         catch (UncheckedIOException | IOException e) {
             fileSystemErrorHandler.run();
             throw new PrestoException(GENERIC_INTERNAL_ERROR, "Failed to spill pages", e);
         }
+
+        event.end();
+        if (event.shouldCommit()) {
+            localSpillContext.getOperatorContext().ifPresent(event::setOperatorContext);
+            event.setPath(targetFile.getFilePath().toString());
+            event.setWrittenData(writtenPages, writtenBytes);
+            event.commit();
+        }
     }
 
     private Iterator<Page> readPages()
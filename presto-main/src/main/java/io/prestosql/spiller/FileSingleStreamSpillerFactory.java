@@ -60,7 +60,7 @@ import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.Executors.newFixedThreadPool;
 
 public class FileSingleStreamSpillerFactory
-        implements SingleStreamSpillerFactory
+        implements SingleStreamSpillerFactory, OutputBufferSpillerFactory
 {
     private static final Logger log = Logger.get(FileSingleStreamSpillerFactory.class);
 
@@ -179,6 +179,22 @@ public class FileSingleStreamSpillerFactory
                 spillPathHealthCache::invalidateAll);
     }
 
+    @Override
+    public OutputBufferSpiller create(SpillContext spillContext)
+    {
+        Optional<SpillCipher> spillCipher = Optional.empty();
+        if (spillEncryptionEnabled) {
+            spillCipher = Optional.of(new AesSpillCipher());
+        }
+        return new FileOutputBufferSpiller(
+                getNextSpillPath(),
+                executor,
+                spillerStats,
+                spillContext,
+                spillCipher,
+                spillPathHealthCache::invalidateAll);
+    }
+
     private synchronized Path getNextSpillPath()
     {
         int spillPathsCount = spillPaths.size();
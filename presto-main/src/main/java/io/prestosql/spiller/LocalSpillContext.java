@@ -13,10 +13,13 @@
  */
 package io.prestosql.spiller;
 
+import io.prestosql.operator.OperatorContext;
 import io.prestosql.operator.SpillContext;
 
 import javax.annotation.concurrent.ThreadSafe;
 
+import java.util.Optional;
+
 import static com.google.common.base.Preconditions.checkState;
 
 @ThreadSafe
@@ -40,6 +43,12 @@ public final class LocalSpillContext
         spilledBytes += bytes;
     }
 
+    @Override
+    public Optional<OperatorContext> getOperatorContext()
+    {
+        return parentSpillContext.getOperatorContext();
+    }
+
     @Override
     public synchronized void close()
     {
@@ -0,0 +1,47 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.spiller;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import io.prestosql.execution.buffer.SerializedPage;
+
+import java.io.Closeable;
+import java.util.List;
+
+/**
+ * Stores serialized pages of an output buffer which do not fit in memory, and
+ * returns them in the order they were spilled. Spills and reads are performed
+ * asynchronously in the order they were requested, so pages may be read right
+ * after they are spilled, without waiting for the spill to finish.
+ */
+public interface OutputBufferSpiller
+        extends Closeable
+{
+    /**
+     * Initiates spilling of the pages. The returned future completes once the pages are written.
+     */
+    ListenableFuture<?> spill(List<SerializedPage> pages);
+
+    /**
+     * Initiates reading of the oldest spilled pages up to the specified size limit, or a single page that exceeds the size limit.
+     * The pages are removed from the spiller once they are read.
+     */
+    ListenableFuture<List<SerializedPage>> readPages(long maxBytes);
+
+    /**
+     * Close removes all underlying resources, like the spill file, once the spills and reads in progress are finished.
+     */
+    @Override
+    void close();
+}
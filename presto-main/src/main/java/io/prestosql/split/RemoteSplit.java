@@ -16,6 +16,7 @@ package io.prestosql.split;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableList;
+import io.prestosql.execution.TaskId;
 import io.prestosql.spi.HostAddress;
 import io.prestosql.spi.connector.ConnectorSplit;
 
@@ -28,14 +29,22 @@ import static java.util.Objects.requireNonNull;
 public class RemoteSplit
         implements ConnectorSplit
 {
+    private final TaskId sourceTaskId;
     private final URI location;
 
     @JsonCreator
-    public RemoteSplit(@JsonProperty("location") URI location)
+    public RemoteSplit(@JsonProperty("sourceTaskId") TaskId sourceTaskId, @JsonProperty("location") URI location)
     {
+        this.sourceTaskId = requireNonNull(sourceTaskId, "sourceTaskId is null");
         this.location = requireNonNull(location, "location is null");
     }
 
+    @JsonProperty
+    public TaskId getSourceTaskId()
+    {
+        return sourceTaskId;
+    }
+
     @JsonProperty
     public URI getLocation()
     {
@@ -64,6 +73,7 @@ public class RemoteSplit
     public String toString()
     {
         return toStringHelper(this)
+                .add("sourceTaskId", sourceTaskId)
                 .add("location", location)
                 .toString();
     }
@@ -23,6 +23,7 @@ import io.airlift.configuration.LegacyConfig;
 import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
 import io.airlift.units.MaxDataSize;
+import io.prestosql.execution.buffer.PageCompressionCodec;
 import io.prestosql.operator.aggregation.arrayagg.ArrayAggGroupImplementation;
 import io.prestosql.operator.aggregation.histogram.HistogramGroupImplementation;
 import io.prestosql.operator.aggregation.multimapagg.MultimapAggGroupImplementation;
@@ -69,6 +70,9 @@ public class FeaturesConfig
     private double networkCostWeight = 15;
     private boolean distributedIndexJoinsEnabled;
     private DataSize joinMaxBroadcastTableSize = DataSize.of(100, MEGABYTE);
+    private boolean sharedBroadcastJoinBuildEnabled;
+    private DataSize sharedBroadcastJoinBuildMaxCacheSize = DataSize.of(256, MEGABYTE);
+    private boolean mergeJoinEnabled;
     private JoinDistributionType joinDistributionType = JoinDistributionType.AUTOMATIC;
     private boolean colocatedJoinsEnabled;
     private boolean groupedExecutionEnabled;
@@ -80,6 +84,7 @@ public class FeaturesConfig
     private int maxReorderedJoins = 9;
     private boolean redistributeWrites = true;
     private boolean usePreferredWritePartitioning;
+    private boolean skewedPartitionRebalancingEnabled = true;
     private boolean scaleWriters;
     private DataSize writerMinSize = DataSize.of(32, DataSize.Unit.MEGABYTE);
     private boolean optimizeMetadataQueries;
@@ -88,11 +93,15 @@ public class FeaturesConfig
     private boolean pushTableWriteThroughUnion = true;
     private DataIntegrityVerification exchangeDataIntegrityVerification = DataIntegrityVerification.ABORT;
     private boolean exchangeCompressionEnabled;
+    private PageCompressionCodec exchangeCompressionCodec = PageCompressionCodec.LZ4;
+    private boolean exchangeAdaptiveCompressionEnabled;
     private boolean optimizeMixedDistinctAggregations;
     private boolean unwrapCasts = true;
     private boolean forceSingleNodeOutput = true;
     private boolean pagesIndexEagerCompactionEnabled;
+    private boolean pagesIndexNormalizedKeySortEnabled;
     private boolean distributedSort = true;
+    private boolean rangePartitionedSort;
     private boolean omitDateTimeTypePrecision;
     private int maxRecursionDepth = 10;
 
@@ -123,6 +132,9 @@ public class FeaturesConfig
     private boolean parseDecimalLiteralsAsDouble;
     private boolean useMarkDistinct = true;
     private boolean preferPartialAggregation = true;
+    private boolean adaptivePartialAggregationEnabled;
+    private long adaptivePartialAggregationMinRows = 100_000;
+    private double adaptivePartialAggregationUniqueRowsRatioThreshold = 0.8;
     private boolean optimizeTopNRowNumber = true;
     private boolean lateMaterializationEnabled;
     private boolean skipRedundantSort = true;
@@ -254,6 +266,46 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isSharedBroadcastJoinBuildEnabled()
+    {
+        return sharedBroadcastJoinBuildEnabled;
+    }
+
+    @Config("shared-broadcast-join-build.enabled")
+    @ConfigDescription("Share the build side of broadcast joins over unchanged tables between queries running on the same node")
+    public FeaturesConfig setSharedBroadcastJoinBuildEnabled(boolean sharedBroadcastJoinBuildEnabled)
+    {
+        this.sharedBroadcastJoinBuildEnabled = sharedBroadcastJoinBuildEnabled;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getSharedBroadcastJoinBuildMaxCacheSize()
+    {
+        return sharedBroadcastJoinBuildMaxCacheSize;
+    }
+
+    @Config("shared-broadcast-join-build.max-cache-size")
+    @ConfigDescription("Maximum memory used by the build sides of broadcast joins cached on a node")
+    public FeaturesConfig setSharedBroadcastJoinBuildMaxCacheSize(DataSize sharedBroadcastJoinBuildMaxCacheSize)
+    {
+        this.sharedBroadcastJoinBuildMaxCacheSize = sharedBroadcastJoinBuildMaxCacheSize;
+        return this;
+    }
+
+    public boolean isMergeJoinEnabled()
+    {
+        return mergeJoinEnabled;
+    }
+
+    @Config("merge-join.enabled")
+    @ConfigDescription("Use merge join for inner joins of inputs that are sorted on the join keys")
+    public FeaturesConfig setMergeJoinEnabled(boolean mergeJoinEnabled)
+    {
+        this.mergeJoinEnabled = mergeJoinEnabled;
+        return this;
+    }
+
     public boolean isGroupedExecutionEnabled()
     {
         return groupedExecutionEnabled;
@@ -385,6 +437,19 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isSkewedPartitionRebalancingEnabled()
+    {
+        return skewedPartitionRebalancingEnabled;
+    }
+
+    @Config("skewed-partition-rebalancing-enabled")
+    @ConfigDescription("Spread rows of heavily loaded partitions across additional consumers when the plan does not depend on key locality")
+    public FeaturesConfig setSkewedPartitionRebalancingEnabled(boolean skewedPartitionRebalancingEnabled)
+    {
+        this.skewedPartitionRebalancingEnabled = skewedPartitionRebalancingEnabled;
+        return this;
+    }
+
     public boolean isScaleWriters()
     {
         return scaleWriters;
@@ -447,6 +512,48 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isAdaptivePartialAggregationEnabled()
+    {
+        return adaptivePartialAggregationEnabled;
+    }
+
+    @Config("adaptive-partial-aggregation.enabled")
+    @ConfigDescription("Disable partial aggregation at runtime when it does not reduce the number of rows")
+    public FeaturesConfig setAdaptivePartialAggregationEnabled(boolean adaptivePartialAggregationEnabled)
+    {
+        this.adaptivePartialAggregationEnabled = adaptivePartialAggregationEnabled;
+        return this;
+    }
+
+    @Min(0)
+    public long getAdaptivePartialAggregationMinRows()
+    {
+        return adaptivePartialAggregationMinRows;
+    }
+
+    @Config("adaptive-partial-aggregation.min-rows")
+    @ConfigDescription("Minimum number of input rows processed by partial aggregation before it can be disabled")
+    public FeaturesConfig setAdaptivePartialAggregationMinRows(long adaptivePartialAggregationMinRows)
+    {
+        this.adaptivePartialAggregationMinRows = adaptivePartialAggregationMinRows;
+        return this;
+    }
+
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    public double getAdaptivePartialAggregationUniqueRowsRatioThreshold()
+    {
+        return adaptivePartialAggregationUniqueRowsRatioThreshold;
+    }
+
+    @Config("adaptive-partial-aggregation.unique-rows-ratio-threshold")
+    @ConfigDescription("Disable partial aggregation when the ratio of output rows to input rows is above this threshold")
+    public FeaturesConfig setAdaptivePartialAggregationUniqueRowsRatioThreshold(double adaptivePartialAggregationUniqueRowsRatioThreshold)
+    {
+        this.adaptivePartialAggregationUniqueRowsRatioThreshold = adaptivePartialAggregationUniqueRowsRatioThreshold;
+        return this;
+    }
+
     public boolean isOptimizeTopNRowNumber()
     {
         return optimizeTopNRowNumber;
@@ -770,6 +877,33 @@ public class FeaturesConfig
         return this;
     }
 
+    @NotNull
+    public PageCompressionCodec getExchangeCompressionCodec()
+    {
+        return exchangeCompressionCodec;
+    }
+
+    @Config("exchange.compression-codec")
+    @ConfigDescription("Codec used to compress pages in exchanges, when exchange compression is enabled")
+    public FeaturesConfig setExchangeCompressionCodec(PageCompressionCodec exchangeCompressionCodec)
+    {
+        this.exchangeCompressionCodec = exchangeCompressionCodec;
+        return this;
+    }
+
+    public boolean isExchangeAdaptiveCompressionEnabled()
+    {
+        return exchangeAdaptiveCompressionEnabled;
+    }
+
+    @Config("exchange.adaptive-compression-enabled")
+    @ConfigDescription("Stop compressing pages of an exchange for a while when they do not compress well")
+    public FeaturesConfig setExchangeAdaptiveCompressionEnabled(boolean exchangeAdaptiveCompressionEnabled)
+    {
+        this.exchangeAdaptiveCompressionEnabled = exchangeAdaptiveCompressionEnabled;
+        return this;
+    }
+
     public DataIntegrityVerification getExchangeDataIntegrityVerification()
     {
         return exchangeDataIntegrityVerification;
@@ -855,6 +989,19 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isPagesIndexNormalizedKeySortEnabled()
+    {
+        return pagesIndexNormalizedKeySortEnabled;
+    }
+
+    @Config("pages-index.normalized-key-sort-enabled")
+    @ConfigDescription("Sort on fixed width and varchar prefix keys with a radix sort before comparing positions")
+    public FeaturesConfig setPagesIndexNormalizedKeySortEnabled(boolean pagesIndexNormalizedKeySortEnabled)
+    {
+        this.pagesIndexNormalizedKeySortEnabled = pagesIndexNormalizedKeySortEnabled;
+        return this;
+    }
+
     @MaxDataSize("1MB")
     public DataSize getFilterAndProjectMinOutputPageSize()
     {
@@ -931,6 +1078,19 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isRangePartitionedSortEnabled()
+    {
+        return rangePartitionedSort;
+    }
+
+    @Config("range-partitioned-sort.enabled")
+    @ConfigDescription("Partition distributed sort by ranges of the first sort key and concatenate the sorted partitions instead of merging them")
+    public FeaturesConfig setRangePartitionedSortEnabled(boolean enabled)
+    {
+        rangePartitionedSort = enabled;
+        return this;
+    }
+
     public int getMaxRecursionDepth()
     {
         return maxRecursionDepth;
@@ -22,11 +22,14 @@ import io.airlift.bytecode.ClassDefinition;
 import io.airlift.bytecode.CompilationException;
 import io.airlift.jmx.CacheStatsMBean;
 import io.prestosql.metadata.Metadata;
+import io.prestosql.operator.project.CommonSubExpressionRewriter;
 import io.prestosql.operator.project.CursorProcessor;
 import io.prestosql.operator.project.PageFilter;
 import io.prestosql.operator.project.PageProcessor;
 import io.prestosql.operator.project.PageProjection;
 import io.prestosql.spi.PrestoException;
+import io.prestosql.sql.planner.CompilerConfig;
+import io.prestosql.sql.relational.DeterminismEvaluator;
 import io.prestosql.sql.relational.RowExpression;
 import org.weakref.jmx.Managed;
 import org.weakref.jmx.Nested;
@@ -45,6 +48,7 @@ import static io.airlift.bytecode.Access.FINAL;
 import static io.airlift.bytecode.Access.PUBLIC;
 import static io.airlift.bytecode.Access.a;
 import static io.airlift.bytecode.ParameterizedType.type;
+import static io.prestosql.operator.project.CommonSubExpressionRewriter.extractCommonSubExpressions;
 import static io.prestosql.spi.StandardErrorCode.COMPILER_ERROR;
 import static io.prestosql.spi.type.BooleanType.BOOLEAN;
 import static io.prestosql.sql.gen.BytecodeUtils.invoke;
@@ -56,14 +60,23 @@ import static java.util.Objects.requireNonNull;
 public class ExpressionCompiler
 {
     private final PageFunctionCompiler pageFunctionCompiler;
+    private final DeterminismEvaluator determinismEvaluator;
+    private final boolean commonSubExpressionEliminationEnabled;
     private final LoadingCache<CacheKey, Class<? extends CursorProcessor>> cursorProcessors;
     private final CacheStatsMBean cacheStatsMBean;
 
-    @Inject
     public ExpressionCompiler(Metadata metadata, PageFunctionCompiler pageFunctionCompiler)
+    {
+        this(metadata, pageFunctionCompiler, new CompilerConfig());
+    }
+
+    @Inject
+    public ExpressionCompiler(Metadata metadata, PageFunctionCompiler pageFunctionCompiler, CompilerConfig config)
     {
         requireNonNull(metadata, "metadata is null");
         this.pageFunctionCompiler = requireNonNull(pageFunctionCompiler, "pageFunctionCompiler is null");
+        this.determinismEvaluator = new DeterminismEvaluator(metadata);
+        this.commonSubExpressionEliminationEnabled = requireNonNull(config, "config is null").isCommonSubExpressionEliminationEnabled();
         this.cursorProcessors = CacheBuilder.newBuilder()
                 .recordStats()
                 .maximumSize(1000)
@@ -102,20 +115,47 @@ public class ExpressionCompiler
             Optional<String> classNameSuffix,
             OptionalInt initialBatchSize)
     {
-        Optional<Supplier<PageFilter>> filterFunctionSupplier = filter.map(expression -> pageFunctionCompiler.compileFilter(expression, classNameSuffix));
-        List<Supplier<PageProjection>> pageProjectionSuppliers = projections.stream()
-                .map(projection -> pageFunctionCompiler.compileProjection(projection, classNameSuffix))
-                .collect(toImmutableList());
+        CommonSubExpressionRewriter.Result result;
+        if (commonSubExpressionEliminationEnabled) {
+            result = extractCommonSubExpressions(filter, projections, determinismEvaluator);
+        }
+        else {
+            result = new CommonSubExpressionRewriter.Result(filter, ImmutableList.copyOf(projections), 0, ImmutableList.of(), ImmutableList.of());
+        }
+
+        Optional<Supplier<PageFilter>> filterFunctionSupplier = result.getFilter().map(expression -> pageFunctionCompiler.compileFilter(expression, classNameSuffix));
+        List<Supplier<PageProjection>> pageProjectionSuppliers = compileProjections(result.getProjections(), classNameSuffix);
+        List<Supplier<PageProjection>> filterSubExpressionSuppliers = compileProjections(result.getFilterSubExpressions(), classNameSuffix);
+        List<Supplier<PageProjection>> projectionSubExpressionSuppliers = compileProjections(result.getProjectionSubExpressions(), classNameSuffix);
+        int subExpressionsChannel = result.getSubExpressionsChannel();
 
         return () -> {
             Optional<PageFilter> filterFunction = filterFunctionSupplier.map(Supplier::get);
-            List<PageProjection> pageProjections = pageProjectionSuppliers.stream()
-                    .map(Supplier::get)
-                    .collect(toImmutableList());
-            return new PageProcessor(filterFunction, pageProjections, initialBatchSize);
+            return new PageProcessor(
+                    filterFunction,
+                    getProjections(pageProjectionSuppliers),
+                    subExpressionsChannel,
+                    getProjections(filterSubExpressionSuppliers),
+                    getProjections(projectionSubExpressionSuppliers),
+                    initialBatchSize,
+                    new ExpressionProfiler());
         };
     }
 
+    private List<Supplier<PageProjection>> compileProjections(List<RowExpression> projections, Optional<String> classNameSuffix)
+    {
+        return projections.stream()
+                .map(projection -> pageFunctionCompiler.compileProjection(projection, classNameSuffix))
+                .collect(toImmutableList());
+    }
+
+    private static List<PageProjection> getProjections(List<Supplier<PageProjection>> pageProjectionSuppliers)
+    {
+        return pageProjectionSuppliers.stream()
+                .map(Supplier::get)
+                .collect(toImmutableList());
+    }
+
     public Supplier<PageProcessor> compilePageProcessor(Optional<RowExpression> filter, List<? extends RowExpression> projections)
     {
         return compilePageProcessor(filter, projections, Optional.empty());
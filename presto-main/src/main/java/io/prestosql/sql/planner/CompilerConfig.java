@@ -23,6 +23,7 @@ import javax.validation.constraints.Min;
 public class CompilerConfig
 {
     private int expressionCacheSize = 10_000;
+    private boolean commonSubExpressionEliminationEnabled = true;
 
     @Min(0)
     public int getExpressionCacheSize()
@@ -37,4 +38,17 @@ public class CompilerConfig
         this.expressionCacheSize = expressionCacheSize;
         return this;
     }
+
+    public boolean isCommonSubExpressionEliminationEnabled()
+    {
+        return commonSubExpressionEliminationEnabled;
+    }
+
+    @Config("compiler.common-subexpression-elimination-enabled")
+    @Description("Compute subexpressions shared by the filter and projections only once")
+    public CompilerConfig setCommonSubExpressionEliminationEnabled(boolean commonSubExpressionEliminationEnabled)
+    {
+        this.commonSubExpressionEliminationEnabled = commonSubExpressionEliminationEnabled;
+        return this;
+    }
 }
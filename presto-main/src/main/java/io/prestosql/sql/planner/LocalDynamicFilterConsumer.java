@@ -17,6 +17,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
+import io.prestosql.spi.predicate.BloomFilter;
 import io.prestosql.spi.predicate.Domain;
 import io.prestosql.spi.predicate.TupleDomain;
 import io.prestosql.spi.type.Type;
@@ -28,6 +29,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
 
@@ -35,7 +37,9 @@ import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Verify.verify;
 import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static com.google.common.util.concurrent.Futures.getDone;
 import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static io.prestosql.operator.DynamicFilterSourceOperator.BLOOM_FILTER_MAX_FALSE_POSITIVE_PROBABILITY;
 import static java.util.Objects.requireNonNull;
 import static java.util.function.Function.identity;
 
@@ -55,6 +59,11 @@ public class LocalDynamicFilterConsumer
     // The resulting predicates from each build-side partition.
     private final List<TupleDomain<DynamicFilterId>> partitions;
 
+    private final SettableFuture<Map<DynamicFilterId, BloomFilter>> bloomFiltersFuture;
+
+    // The resulting bloom filters from each build-side partition.
+    private final List<Map<DynamicFilterId, BloomFilter>> bloomFilterPartitions;
+
     public LocalDynamicFilterConsumer(Map<DynamicFilterId, Integer> buildChannels, Map<DynamicFilterId, Type> filterBuildTypes, int partitionCount)
     {
         this.buildChannels = requireNonNull(buildChannels, "buildChannels is null");
@@ -65,6 +74,9 @@ public class LocalDynamicFilterConsumer
 
         this.partitionCount = partitionCount;
         this.partitions = new ArrayList<>(partitionCount);
+
+        this.bloomFiltersFuture = SettableFuture.create();
+        this.bloomFilterPartitions = new ArrayList<>(partitionCount);
     }
 
     public ListenableFuture<Map<DynamicFilterId, Domain>> getDynamicFilterDomains()
@@ -72,6 +84,30 @@ public class LocalDynamicFilterConsumer
         return Futures.transform(resultFuture, this::convertTupleDomain, directExecutor());
     }
 
+    /**
+     * Returns bloom filters for all dynamic filters, which are present only if the
+     * dynamic filter domain is not already an exact set of values.
+     */
+    public ListenableFuture<Map<DynamicFilterId, Optional<BloomFilter>>> getDynamicFilterBloomFilters()
+    {
+        ListenableFuture<Map<DynamicFilterId, Domain>> domainsFuture = getDynamicFilterDomains();
+        return Futures.whenAllSucceed(domainsFuture, bloomFiltersFuture)
+                .call(() -> {
+                    Map<DynamicFilterId, Domain> domains = getDone(domainsFuture);
+                    Map<DynamicFilterId, BloomFilter> bloomFilters = getDone(bloomFiltersFuture);
+                    return buildChannels.keySet().stream()
+                            .collect(toImmutableMap(
+                                    identity(),
+                                    filterId -> Optional.ofNullable(bloomFilters.get(filterId))
+                                            .filter(bloomFilter -> !isExact(domains.get(filterId)))));
+                }, directExecutor());
+    }
+
+    private static boolean isExact(Domain domain)
+    {
+        return domain.getValues().isNone() || domain.getValues().isDiscreteSet();
+    }
+
     private void addPartition(TupleDomain<DynamicFilterId> tupleDomain)
     {
         TupleDomain<DynamicFilterId> result = null;
@@ -92,6 +128,42 @@ public class LocalDynamicFilterConsumer
         }
     }
 
+    private void addBloomFilterPartition(Map<DynamicFilterId, BloomFilter> bloomFilters)
+    {
+        Map<DynamicFilterId, BloomFilter> result = null;
+        synchronized (this) {
+            // Called concurrently by each DynamicFilterSourceOperator instance (when collection is over).
+            verify(bloomFilterPartitions.size() < partitionCount);
+            bloomFilterPartitions.add(bloomFilters);
+            if (bloomFilterPartitions.size() == partitionCount) {
+                result = unionBloomFilters(bloomFilterPartitions);
+            }
+        }
+
+        if (result != null) {
+            bloomFiltersFuture.set(result);
+        }
+    }
+
+    private Map<DynamicFilterId, BloomFilter> unionBloomFilters(List<Map<DynamicFilterId, BloomFilter>> partitions)
+    {
+        ImmutableMap.Builder<DynamicFilterId, BloomFilter> result = ImmutableMap.builder();
+        for (DynamicFilterId filterId : buildChannels.keySet()) {
+            // A partition without a bloom filter may contain any value
+            if (!partitions.stream().allMatch(partition -> partition.containsKey(filterId))) {
+                continue;
+            }
+            BloomFilter bloomFilter = partitions.stream()
+                    .map(partition -> partition.get(filterId))
+                    .reduce(BloomFilter::union)
+                    .orElseThrow();
+            if (bloomFilter.getEstimatedFalsePositiveProbability() <= BLOOM_FILTER_MAX_FALSE_POSITIVE_PROBABILITY) {
+                result.put(filterId, bloomFilter);
+            }
+        }
+        return result.build();
+    }
+
     private Map<DynamicFilterId, Domain> convertTupleDomain(TupleDomain<DynamicFilterId> result)
     {
         if (result.isNone()) {
@@ -147,6 +219,11 @@ public class LocalDynamicFilterConsumer
         return this::addPartition;
     }
 
+    public Consumer<Map<DynamicFilterId, BloomFilter>> getBloomFilterConsumer()
+    {
+        return this::addBloomFilterPartition;
+    }
+
     @Override
     public String toString()
     {
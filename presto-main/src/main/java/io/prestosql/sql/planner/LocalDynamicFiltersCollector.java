@@ -13,12 +13,14 @@
  */
 package io.prestosql.sql.planner;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Multimap;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 import io.prestosql.spi.connector.ColumnHandle;
 import io.prestosql.spi.connector.DynamicFilter;
+import io.prestosql.spi.predicate.BloomFilter;
 import io.prestosql.spi.predicate.Domain;
 import io.prestosql.spi.predicate.TupleDomain;
 import io.prestosql.sql.planner.plan.DynamicFilterId;
@@ -29,6 +31,7 @@ import javax.annotation.concurrent.ThreadSafe;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 
@@ -49,8 +52,18 @@ class LocalDynamicFiltersCollector
     // Each future blocks until its dynamic filter is collected.
     private final Map<DynamicFilterId, SettableFuture<Domain>> futures = new HashMap<>();
 
+    private final boolean bloomFiltersEnabled;
+    // Each future blocks until the bloom filter of its dynamic filter is collected (if bloom filters are enabled).
+    private final Map<DynamicFilterId, SettableFuture<Optional<BloomFilter>>> bloomFilterFutures = new HashMap<>();
+
     public LocalDynamicFiltersCollector()
     {
+        this(false);
+    }
+
+    public LocalDynamicFiltersCollector(boolean bloomFiltersEnabled)
+    {
+        this.bloomFiltersEnabled = bloomFiltersEnabled;
     }
 
     // Called during JoinNode planning (no need to be synchronized as local planning is single threaded)
@@ -59,6 +72,14 @@ class LocalDynamicFiltersCollector
         filterIds.forEach(filterId -> verify(
                 futures.put(filterId, SettableFuture.create()) == null,
                 "LocalDynamicFiltersCollector: duplicate filter %s", filterId));
+        if (bloomFiltersEnabled) {
+            filterIds.forEach(filterId -> bloomFilterFutures.put(filterId, SettableFuture.create()));
+        }
+    }
+
+    public boolean isBloomFiltersEnabled()
+    {
+        return bloomFiltersEnabled;
     }
 
     // Used during execution (after build-side dynamic filter collection is over).
@@ -76,6 +97,21 @@ class LocalDynamicFiltersCollector
                 });
     }
 
+    // Used during execution (after build-side bloom filter collection is over).
+    // No need to be synchronized as the futures map doesn't change.
+    public void collectDynamicFilterBloomFilters(Map<DynamicFilterId, Optional<BloomFilter>> dynamicFilterBloomFilters)
+    {
+        dynamicFilterBloomFilters
+                .entrySet()
+                .forEach(entry -> {
+                    SettableFuture<Optional<BloomFilter>> future = bloomFilterFutures.get(entry.getKey());
+                    // Skip dynamic filters that are not applied locally.
+                    if (future != null) {
+                        verify(future.set(entry.getValue()), "Bloom filter of dynamic filter %s already collected", entry.getKey());
+                    }
+                });
+    }
+
     // Called during TableScan planning (no need to be synchronized as local planning is single threaded)
     public DynamicFilter createDynamicFilter(List<Descriptor> descriptors, Map<Symbol, ColumnHandle> columnsMap)
     {
@@ -103,7 +139,23 @@ class LocalDynamicFiltersCollector
                             directExecutor());
                 })
                 .collect(toImmutableList());
-        return new TableSpecificDynamicFilter(predicateFutures);
+        List<ListenableFuture<Map<ColumnHandle, BloomFilter>>> bloomFilterFutures = symbolsMap.keySet().stream()
+                .filter(this.bloomFilterFutures.keySet()::contains)
+                .map(filterId -> {
+                    List<ColumnHandle> probeColumns = symbolsMap.get(filterId).stream()
+                            .map(probeSymbol -> requireNonNull(columnsMap.get(probeSymbol), () -> format("Missing probe column for %s", probeSymbol)))
+                            .collect(toImmutableList());
+                    return Futures.transform(
+                            this.bloomFilterFutures.get(filterId),
+                            bloomFilter -> bloomFilter
+                                    .<Map<ColumnHandle, BloomFilter>>map(filter -> probeColumns.stream()
+                                            .distinct()
+                                            .collect(toImmutableMap(column -> column, column -> filter)))
+                                    .orElse(ImmutableMap.of()),
+                            directExecutor());
+                })
+                .collect(toImmutableList());
+        return new TableSpecificDynamicFilter(predicateFutures, bloomFilterFutures);
     }
 
     // Table-specific dynamic filter (collects all domains for a specific table scan)
@@ -116,32 +168,60 @@ class LocalDynamicFiltersCollector
         @GuardedBy("this")
         private TupleDomain<ColumnHandle> currentPredicate;
 
+        @GuardedBy("this")
+        private Map<ColumnHandle, BloomFilter> currentBloomFilters;
+
         @GuardedBy("this")
         private int futuresLeft;
 
-        private TableSpecificDynamicFilter(List<ListenableFuture<TupleDomain<ColumnHandle>>> predicateFutures)
+        private TableSpecificDynamicFilter(
+                List<ListenableFuture<TupleDomain<ColumnHandle>>> predicateFutures,
+                List<ListenableFuture<Map<ColumnHandle, BloomFilter>>> bloomFilterFutures)
         {
-            this.futuresLeft = predicateFutures.size();
-            this.isBlocked = predicateFutures.isEmpty() ? NOT_BLOCKED : new CompletableFuture();
+            this.futuresLeft = predicateFutures.size() + bloomFilterFutures.size();
+            this.isBlocked = futuresLeft == 0 ? NOT_BLOCKED : new CompletableFuture();
             this.currentPredicate = TupleDomain.all();
+            this.currentBloomFilters = ImmutableMap.of();
             predicateFutures.stream().forEach(future -> addSuccessCallback(future, this::update, directExecutor()));
+            bloomFilterFutures.stream().forEach(future -> addSuccessCallback(future, this::updateBloomFilters, directExecutor()));
         }
 
         private void update(TupleDomain<ColumnHandle> predicate)
         {
             CompletableFuture<?> currentFuture;
             synchronized (this) {
-                futuresLeft -= 1;
-                verify(futuresLeft >= 0);
                 currentPredicate = currentPredicate.intersect(predicate);
-                currentFuture = isBlocked;
-                // create next blocking future (if needed)
-                isBlocked = isComplete() ? NOT_BLOCKED : new CompletableFuture();
+                currentFuture = futureCollected();
+            }
+            // notify readers outside of lock since this may result in a callback
+            verify(currentFuture.complete(null));
+        }
+
+        private void updateBloomFilters(Map<ColumnHandle, BloomFilter> bloomFilters)
+        {
+            CompletableFuture<?> currentFuture;
+            synchronized (this) {
+                // Any of the bloom filters of a column can be used, as all of them must match
+                Map<ColumnHandle, BloomFilter> updatedBloomFilters = new HashMap<>(bloomFilters);
+                updatedBloomFilters.putAll(currentBloomFilters);
+                currentBloomFilters = ImmutableMap.copyOf(updatedBloomFilters);
+                currentFuture = futureCollected();
             }
             // notify readers outside of lock since this may result in a callback
             verify(currentFuture.complete(null));
         }
 
+        @GuardedBy("this")
+        private CompletableFuture<?> futureCollected()
+        {
+            futuresLeft -= 1;
+            verify(futuresLeft >= 0);
+            CompletableFuture<?> currentFuture = isBlocked;
+            // create next blocking future (if needed)
+            isBlocked = isComplete() ? NOT_BLOCKED : new CompletableFuture();
+            return currentFuture;
+        }
+
         @Override
         public synchronized CompletableFuture<?> isBlocked()
         {
@@ -165,5 +245,11 @@ class LocalDynamicFiltersCollector
         {
             return currentPredicate;
         }
+
+        @Override
+        public synchronized Map<ColumnHandle, BloomFilter> getCurrentBloomFilters()
+        {
+            return currentBloomFilters;
+        }
     }
 }
@@ -33,17 +33,23 @@ import io.prestosql.Session;
 import io.prestosql.SystemSessionProperties;
 import io.prestosql.execution.DynamicFilterConfig;
 import io.prestosql.execution.ExplainAnalyzeContext;
+import io.prestosql.execution.Lifespan;
 import io.prestosql.execution.StageId;
+import io.prestosql.execution.StateMachine.StateChangeListener;
 import io.prestosql.execution.TaskId;
 import io.prestosql.execution.TaskManagerConfig;
+import io.prestosql.execution.TaskState;
 import io.prestosql.execution.buffer.OutputBuffer;
 import io.prestosql.execution.buffer.PagesSerdeFactory;
+import io.prestosql.execution.resultcache.CachedQueryResult;
+import io.prestosql.execution.resultcache.QueryResultCache;
 import io.prestosql.index.IndexManager;
 import io.prestosql.metadata.Metadata;
 import io.prestosql.metadata.ResolvedFunction;
 import io.prestosql.metadata.TableHandle;
 import io.prestosql.operator.AggregationOperator.AggregationOperatorFactory;
 import io.prestosql.operator.AssignUniqueIdOperator;
+import io.prestosql.operator.BroadcastLookupSourceCache;
 import io.prestosql.operator.DeleteOperator.DeleteOperatorFactory;
 import io.prestosql.operator.DevNullOperator.DevNullOperatorFactory;
 import io.prestosql.operator.DriverFactory;
@@ -67,6 +73,9 @@ import io.prestosql.operator.LookupJoinOperators;
 import io.prestosql.operator.LookupOuterOperator.LookupOuterOperatorFactory;
 import io.prestosql.operator.LookupSourceFactory;
 import io.prestosql.operator.MarkDistinctOperator.MarkDistinctOperatorFactory;
+import io.prestosql.operator.MergeJoinOperator.MergeJoinOperatorFactory;
+import io.prestosql.operator.MergeJoinSinkOperator.MergeJoinSinkOperatorFactory;
+import io.prestosql.operator.MergeJoinSource;
 import io.prestosql.operator.MergeOperator.MergeOperatorFactory;
 import io.prestosql.operator.NestedLoopJoinBridge;
 import io.prestosql.operator.NestedLoopJoinPagesSupplier;
@@ -75,6 +84,7 @@ import io.prestosql.operator.OrderByOperator.OrderByOperatorFactory;
 import io.prestosql.operator.OutputFactory;
 import io.prestosql.operator.PagesIndex;
 import io.prestosql.operator.PagesSpatialIndexFactory;
+import io.prestosql.operator.PartialAggregationController;
 import io.prestosql.operator.PartitionFunction;
 import io.prestosql.operator.PartitionedLookupSourceFactory;
 import io.prestosql.operator.PartitionedOutputOperator.PartitionedOutputFactory;
@@ -127,6 +137,7 @@ import io.prestosql.spi.connector.ConnectorIndex;
 import io.prestosql.spi.connector.ConnectorSession;
 import io.prestosql.spi.connector.DynamicFilter;
 import io.prestosql.spi.connector.RecordSet;
+import io.prestosql.spi.predicate.BloomFilter;
 import io.prestosql.spi.predicate.Domain;
 import io.prestosql.spi.predicate.NullableValue;
 import io.prestosql.spi.type.Type;
@@ -149,6 +160,7 @@ import io.prestosql.sql.planner.plan.AggregationNode.Aggregation;
 import io.prestosql.sql.planner.plan.AggregationNode.Step;
 import io.prestosql.sql.planner.plan.AssignUniqueId;
 import io.prestosql.sql.planner.plan.Assignments;
+import io.prestosql.sql.planner.plan.CachedResultNode;
 import io.prestosql.sql.planner.plan.DeleteNode;
 import io.prestosql.sql.planner.plan.DistinctLimitNode;
 import io.prestosql.sql.planner.plan.DynamicFilterId;
@@ -162,6 +174,7 @@ import io.prestosql.sql.planner.plan.IndexSourceNode;
 import io.prestosql.sql.planner.plan.JoinNode;
 import io.prestosql.sql.planner.plan.LimitNode;
 import io.prestosql.sql.planner.plan.MarkDistinctNode;
+import io.prestosql.sql.planner.plan.MergeJoinNode;
 import io.prestosql.sql.planner.plan.OutputNode;
 import io.prestosql.sql.planner.plan.PlanNode;
 import io.prestosql.sql.planner.plan.PlanNodeId;
@@ -230,14 +243,20 @@ import static com.google.common.collect.Iterables.concat;
 import static com.google.common.collect.Iterables.getOnlyElement;
 import static com.google.common.collect.Range.closedOpen;
 import static io.airlift.concurrent.MoreFutures.addSuccessCallback;
+import static io.prestosql.SystemSessionProperties.getAdaptivePartialAggregationMinRows;
+import static io.prestosql.SystemSessionProperties.getAdaptivePartialAggregationUniqueRowsRatioThreshold;
 import static io.prestosql.SystemSessionProperties.getAggregationOperatorUnspillMemoryLimit;
+import static io.prestosql.SystemSessionProperties.getExchangeCompressionCodec;
 import static io.prestosql.SystemSessionProperties.getFilterAndProjectMinOutputPageRowCount;
 import static io.prestosql.SystemSessionProperties.getFilterAndProjectMinOutputPageSize;
 import static io.prestosql.SystemSessionProperties.getTaskConcurrency;
 import static io.prestosql.SystemSessionProperties.getTaskWriterCount;
+import static io.prestosql.SystemSessionProperties.isAdaptivePartialAggregationEnabled;
+import static io.prestosql.SystemSessionProperties.isEnableBloomDynamicFilters;
 import static io.prestosql.SystemSessionProperties.isEnableLargeDynamicFilters;
-import static io.prestosql.SystemSessionProperties.isExchangeCompressionEnabled;
+import static io.prestosql.SystemSessionProperties.isExchangeAdaptiveCompressionEnabled;
 import static io.prestosql.SystemSessionProperties.isLateMaterializationEnabled;
+import static io.prestosql.SystemSessionProperties.isSharedBroadcastJoinBuildEnabled;
 import static io.prestosql.SystemSessionProperties.isSpillEnabled;
 import static io.prestosql.SystemSessionProperties.isSpillOrderBy;
 import static io.prestosql.SystemSessionProperties.isSpillWindowOperator;
@@ -271,9 +290,12 @@ import static io.prestosql.sql.planner.SystemPartitioningHandle.FIXED_BROADCAST_
 import static io.prestosql.sql.planner.SystemPartitioningHandle.FIXED_HASH_DISTRIBUTION;
 import static io.prestosql.sql.planner.SystemPartitioningHandle.SCALED_WRITER_DISTRIBUTION;
 import static io.prestosql.sql.planner.SystemPartitioningHandle.SINGLE_DISTRIBUTION;
+import static io.prestosql.sql.planner.optimizations.PlanNodeSearcher.searchFrom;
 import static io.prestosql.sql.planner.plan.AggregationNode.Step.FINAL;
 import static io.prestosql.sql.planner.plan.AggregationNode.Step.PARTIAL;
 import static io.prestosql.sql.planner.plan.ExchangeNode.Scope.LOCAL;
+import static io.prestosql.sql.planner.plan.ExchangeNode.gatheringExchange;
+import static io.prestosql.sql.planner.plan.JoinNode.DistributionType.PARTITIONED;
 import static io.prestosql.sql.planner.plan.JoinNode.Type.FULL;
 import static io.prestosql.sql.planner.plan.JoinNode.Type.INNER;
 import static io.prestosql.sql.planner.plan.JoinNode.Type.LEFT;
@@ -322,6 +344,8 @@ public class LocalExecutionPlanner
     private final LookupJoinOperators lookupJoinOperators;
     private final OrderingCompiler orderingCompiler;
     private final DynamicFilterConfig dynamicFilterConfig;
+    private final BroadcastLookupSourceCache broadcastLookupSourceCache;
+    private final QueryResultCache queryResultCache;
 
     @Inject
     public LocalExecutionPlanner(
@@ -345,7 +369,9 @@ public class LocalExecutionPlanner
             JoinCompiler joinCompiler,
             LookupJoinOperators lookupJoinOperators,
             OrderingCompiler orderingCompiler,
-            DynamicFilterConfig dynamicFilterConfig)
+            DynamicFilterConfig dynamicFilterConfig,
+            BroadcastLookupSourceCache broadcastLookupSourceCache,
+            QueryResultCache queryResultCache)
     {
         this.explainAnalyzeContext = requireNonNull(explainAnalyzeContext, "explainAnalyzeContext is null");
         this.pageSourceProvider = requireNonNull(pageSourceProvider, "pageSourceProvider is null");
@@ -371,6 +397,8 @@ public class LocalExecutionPlanner
         this.lookupJoinOperators = requireNonNull(lookupJoinOperators, "lookupJoinOperators is null");
         this.orderingCompiler = requireNonNull(orderingCompiler, "orderingCompiler is null");
         this.dynamicFilterConfig = requireNonNull(dynamicFilterConfig, "dynamicFilterConfig is null");
+        this.broadcastLookupSourceCache = requireNonNull(broadcastLookupSourceCache, "broadcastLookupSourceCache is null");
+        this.queryResultCache = requireNonNull(queryResultCache, "queryResultCache is null");
     }
 
     public LocalExecutionPlan plan(
@@ -380,6 +408,7 @@ public class LocalExecutionPlanner
             PartitioningScheme partitioningScheme,
             StageExecutionDescriptor stageExecutionDescriptor,
             List<PlanNodeId> partitionedSourceOrder,
+            Map<PlanNodeId, String> broadcastJoinBuildKeys,
             OutputBuffer outputBuffer)
     {
         List<Symbol> outputLayout = partitioningScheme.getOutputLayout();
@@ -389,7 +418,7 @@ public class LocalExecutionPlanner
                 partitioningScheme.getPartitioning().getHandle().equals(SCALED_WRITER_DISTRIBUTION) ||
                 partitioningScheme.getPartitioning().getHandle().equals(SINGLE_DISTRIBUTION) ||
                 partitioningScheme.getPartitioning().getHandle().equals(COORDINATOR_DISTRIBUTION)) {
-            return plan(taskContext, stageExecutionDescriptor, plan, outputLayout, types, partitionedSourceOrder, new TaskOutputFactory(outputBuffer));
+            return plan(taskContext, stageExecutionDescriptor, plan, outputLayout, types, partitionedSourceOrder, broadcastJoinBuildKeys, new TaskOutputFactory(outputBuffer));
         }
 
         // We can convert the symbols directly into channels, because the root must be a sink and therefore the layout is fixed
@@ -428,7 +457,7 @@ public class LocalExecutionPlanner
                     .collect(toImmutableList());
         }
 
-        PartitionFunction partitionFunction = nodePartitioningManager.getPartitionFunction(taskContext.getSession(), partitioningScheme, partitionChannelTypes);
+        PartitionFunction partitionFunction = nodePartitioningManager.getPartitionFunction(taskContext.getSession(), partitioningScheme, partitionChannelTypes, partitionConstants);
         OptionalInt nullChannel = OptionalInt.empty();
         Set<Symbol> partitioningColumns = partitioningScheme.getPartitioning().getColumns();
 
@@ -445,12 +474,14 @@ public class LocalExecutionPlanner
                 outputLayout,
                 types,
                 partitionedSourceOrder,
+                broadcastJoinBuildKeys,
                 new PartitionedOutputFactory(
                         partitionFunction,
                         partitionChannels,
                         partitionConstants,
                         partitioningScheme.isReplicateNullsAndAny(),
                         nullChannel,
+                        partitioningScheme.isSkewedPartitionRebalancingAllowed(),
                         outputBuffer,
                         maxPagePartitioningBufferSize));
     }
@@ -462,12 +493,13 @@ public class LocalExecutionPlanner
             List<Symbol> outputLayout,
             TypeProvider types,
             List<PlanNodeId> partitionedSourceOrder,
+            Map<PlanNodeId, String> broadcastJoinBuildKeys,
             OutputFactory outputOperatorFactory)
     {
         Session session = taskContext.getSession();
         LocalExecutionPlanContext context = new LocalExecutionPlanContext(taskContext, types);
 
-        PhysicalOperation physicalOperation = plan.accept(new Visitor(session, stageExecutionDescriptor), context);
+        PhysicalOperation physicalOperation = plan.accept(new Visitor(session, stageExecutionDescriptor, broadcastJoinBuildKeys), context);
 
         Function<Page, Page> pagePreprocessor = enforceLayoutProcessor(outputLayout, physicalOperation.getLayout());
 
@@ -485,7 +517,7 @@ public class LocalExecutionPlanner
                                 plan.getId(),
                                 outputTypes,
                                 pagePreprocessor,
-                                new PagesSerdeFactory(metadata.getBlockEncodingSerde(), isExchangeCompressionEnabled(session))))
+                                new PagesSerdeFactory(metadata.getBlockEncodingSerde(), getExchangeCompressionCodec(session), isExchangeAdaptiveCompressionEnabled(session))))
                         .build(),
                 context.getDriverInstanceCount(),
                 physicalOperation.getPipelineExecutionStrategy());
@@ -553,7 +585,7 @@ public class LocalExecutionPlanner
 
         public LocalExecutionPlanContext(TaskContext taskContext, TypeProvider types)
         {
-            this(taskContext, types, new ArrayList<>(), Optional.empty(), new LocalDynamicFiltersCollector(), new AtomicInteger(0));
+            this(taskContext, types, new ArrayList<>(), Optional.empty(), new LocalDynamicFiltersCollector(isEnableBloomDynamicFilters(taskContext.getSession())), new AtomicInteger(0));
         }
 
         private LocalExecutionPlanContext(
@@ -611,6 +643,11 @@ public class LocalExecutionPlanner
             return taskContext.getTaskId();
         }
 
+        public void addTaskStateChangeListener(StateChangeListener<TaskState> stateChangeListener)
+        {
+            taskContext.addStateChangeListener(stateChangeListener);
+        }
+
         public TypeProvider getTypes()
         {
             return types;
@@ -626,6 +663,11 @@ public class LocalExecutionPlanner
             dynamicFiltersCollector.collectDynamicFilterDomains(dynamicTupleDomain);
         }
 
+        private void addLocalDynamicFilterBloomFilters(Map<DynamicFilterId, Optional<BloomFilter>> bloomFilters)
+        {
+            dynamicFiltersCollector.collectDynamicFilterBloomFilters(bloomFilters);
+        }
+
         private void addCoordinatorDynamicFilters(Map<DynamicFilterId, Domain> dynamicTupleDomain)
         {
             taskContext.updateDomains(dynamicTupleDomain);
@@ -731,11 +773,13 @@ public class LocalExecutionPlanner
     {
         private final Session session;
         private final StageExecutionDescriptor stageExecutionDescriptor;
+        private final Map<PlanNodeId, String> broadcastJoinBuildKeys;
 
-        private Visitor(Session session, StageExecutionDescriptor stageExecutionDescriptor)
+        private Visitor(Session session, StageExecutionDescriptor stageExecutionDescriptor, Map<PlanNodeId, String> broadcastJoinBuildKeys)
         {
             this.session = session;
             this.stageExecutionDescriptor = stageExecutionDescriptor;
+            this.broadcastJoinBuildKeys = broadcastJoinBuildKeys;
         }
 
         @Override
@@ -769,12 +813,13 @@ public class LocalExecutionPlanner
                     context.getNextOperatorId(),
                     node.getId(),
                     exchangeClientSupplier,
-                    new PagesSerdeFactory(metadata.getBlockEncodingSerde(), isExchangeCompressionEnabled(session)),
+                    new PagesSerdeFactory(metadata.getBlockEncodingSerde(), getExchangeCompressionCodec(session), isExchangeAdaptiveCompressionEnabled(session)),
                     orderingCompiler,
                     types,
                     outputChannels,
                     sortChannels,
-                    sortOrder);
+                    sortOrder,
+                    node.isOrderedPartitions());
 
             return new PhysicalOperation(operatorFactory, makeLayout(node), context, UNGROUPED_EXECUTION);
         }
@@ -789,7 +834,7 @@ public class LocalExecutionPlanner
                     context.getNextOperatorId(),
                     node.getId(),
                     exchangeClientSupplier,
-                    new PagesSerdeFactory(metadata.getBlockEncodingSerde(), isExchangeCompressionEnabled(session)));
+                    new PagesSerdeFactory(metadata.getBlockEncodingSerde(), getExchangeCompressionCodec(session), isExchangeAdaptiveCompressionEnabled(session)));
 
             return new PhysicalOperation(operatorFactory, makeLayout(node), context, UNGROUPED_EXECUTION);
         }
@@ -891,6 +936,7 @@ public class LocalExecutionPlanner
             OperatorFactory operatorFactory = new TopNRowNumberOperator.TopNRowNumberOperatorFactory(
                     context.getNextOperatorId(),
                     node.getId(),
+                    node.getRankingFunction(),
                     source.getTypes(),
                     outputChannels.build(),
                     partitionChannels,
@@ -1419,6 +1465,17 @@ public class LocalExecutionPlanner
             return new PhysicalOperation(operatorFactory, makeLayout(node), context, UNGROUPED_EXECUTION);
         }
 
+        @Override
+        public PhysicalOperation visitCachedResult(CachedResultNode node, LocalExecutionPlanContext context)
+        {
+            context.setDriverInstanceCount(1);
+
+            CachedQueryResult result = queryResultCache.getPinnedResult(context.getSession().getQueryId())
+                    .orElseThrow(() -> new IllegalStateException("Cached result is not pinned for query: " + context.getSession().getQueryId()));
+            OperatorFactory operatorFactory = new ValuesOperatorFactory(context.getNextOperatorId(), node.getId(), result.getPages());
+            return new PhysicalOperation(operatorFactory, makeLayout(node), context, UNGROUPED_EXECUTION);
+        }
+
         @Override
         public PhysicalOperation visitUnnest(UnnestNode node, LocalExecutionPlanContext context)
         {
@@ -1738,6 +1795,84 @@ public class LocalExecutionPlanner
             throw new VerifyException("No valid spatial relationship found for spatial join");
         }
 
+        @Override
+        public PhysicalOperation visitMergeJoin(MergeJoinNode node, LocalExecutionPlanContext context)
+        {
+            if (!isScanGroupedExecution(node.getLeft()) || !isScanGroupedExecution(node.getRight())) {
+                // A merge join needs one sorted stream per side, which only grouped execution over sorted buckets provides.
+                // Otherwise the splits of the scans run in concurrent drivers, so fall back to a hash join.
+                return visitJoin(new JoinNode(
+                        node.getId(),
+                        INNER,
+                        node.getLeft(),
+                        gatheringExchange(node.getId(), LOCAL, node.getRight()),
+                        node.getCriteria(),
+                        node.getLeftOutputSymbols(),
+                        node.getRightOutputSymbols(),
+                        Optional.empty(),
+                        Optional.empty(),
+                        Optional.empty(),
+                        Optional.of(PARTITIONED),
+                        Optional.of(false),
+                        ImmutableMap.of(),
+                        Optional.empty()), context);
+            }
+
+            PhysicalOperation probeSource = node.getLeft().accept(this, context);
+
+            LocalExecutionPlanContext buildContext = context.createSubContext();
+            PhysicalOperation buildSource = node.getRight().accept(this, buildContext);
+
+            checkState(
+                    buildSource.getPipelineExecutionStrategy() == probeSource.getPipelineExecutionStrategy(),
+                    "Both sources of a merge join are expected to have the same execution strategy");
+            checkArgument(buildContext.getDriverInstanceCount().orElse(1) == 1, "Expected local execution to not be parallel");
+
+            JoinBridgeManager<MergeJoinSource> mergeJoinSourceManager = new JoinBridgeManager<>(
+                    false,
+                    probeSource.getPipelineExecutionStrategy(),
+                    buildSource.getPipelineExecutionStrategy(),
+                    lifespan -> new MergeJoinSource(maxLocalExchangeBufferSize.toBytes()),
+                    buildSource.getTypes());
+            context.addDriverFactory(
+                    buildContext.isInputDriver(),
+                    false,
+                    ImmutableList.<OperatorFactory>builder()
+                            .addAll(buildSource.getOperatorFactories())
+                            .add(new MergeJoinSinkOperatorFactory(buildContext.getNextOperatorId(), node.getId(), mergeJoinSourceManager))
+                            .build(),
+                    buildContext.getDriverInstanceCount(),
+                    buildSource.getPipelineExecutionStrategy());
+
+            ImmutableMap.Builder<Symbol, Integer> outputMappings = ImmutableMap.builder();
+            List<Symbol> outputSymbols = node.getOutputSymbols();
+            for (int i = 0; i < outputSymbols.size(); i++) {
+                outputMappings.put(outputSymbols.get(i), i);
+            }
+
+            List<Symbol> probeSymbols = Lists.transform(node.getCriteria(), JoinNode.EquiJoinClause::getLeft);
+            List<Symbol> buildSymbols = Lists.transform(node.getCriteria(), JoinNode.EquiJoinClause::getRight);
+            OperatorFactory operatorFactory = new MergeJoinOperatorFactory(
+                    context.getNextOperatorId(),
+                    node.getId(),
+                    mergeJoinSourceManager,
+                    probeSource.getTypes(),
+                    getChannelsForSymbols(probeSymbols, probeSource.getLayout()),
+                    getChannelsForSymbols(node.getLeftOutputSymbols(), probeSource.getLayout()),
+                    getChannelsForSymbols(buildSymbols, buildSource.getLayout()),
+                    getChannelsForSymbols(node.getRightOutputSymbols(), buildSource.getLayout()),
+                    node.getSortOrders());
+            return new PhysicalOperation(operatorFactory, outputMappings.build(), context, probeSource);
+        }
+
+        private boolean isScanGroupedExecution(PlanNode node)
+        {
+            return searchFrom(node)
+                    .where(TableScanNode.class::isInstance)
+                    .findAll().stream()
+                    .allMatch(scan -> stageExecutionDescriptor.isScanGroupedExecution(scan.getId()));
+        }
+
         private Optional<PhysicalOperation> tryCreateSpatialJoin(
                 LocalExecutionPlanContext context,
                 SpatialJoinNode node,
@@ -2026,7 +2161,7 @@ public class LocalExecutionPlanner
 
             // Plan build
             boolean spillEnabled = isSpillEnabled(session) && node.isSpillable().orElseThrow(() -> new IllegalArgumentException("spillable not yet set"));
-            JoinBridgeManager<PartitionedLookupSourceFactory> lookupSourceFactory =
+            JoinBridgeManager<? extends LookupSourceFactory> lookupSourceFactory =
                     createLookupSourceFactory(node, buildNode, buildSymbols, buildHashSymbol, probeSource, context, spillEnabled, localDynamicFilters);
 
             OperatorFactory operator = createLookupJoin(node, probeSource, probeSymbols, probeHashSymbol, lookupSourceFactory, context, spillEnabled);
@@ -2041,7 +2176,7 @@ public class LocalExecutionPlanner
             return new PhysicalOperation(operator, outputMappings.build(), context, probeSource);
         }
 
-        private JoinBridgeManager<PartitionedLookupSourceFactory> createLookupSourceFactory(
+        private JoinBridgeManager<? extends LookupSourceFactory> createLookupSourceFactory(
                 JoinNode node,
                 PlanNode buildNode,
                 List<Symbol> buildSymbols,
@@ -2099,19 +2234,14 @@ public class LocalExecutionPlanner
             ImmutableList<Type> buildOutputTypes = buildOutputChannels.stream()
                     .map(buildSource.getTypes()::get)
                     .collect(toImmutableList());
-            JoinBridgeManager<PartitionedLookupSourceFactory> lookupSourceFactoryManager = new JoinBridgeManager<>(
-                    buildOuter,
-                    probeSource.getPipelineExecutionStrategy(),
-                    buildSource.getPipelineExecutionStrategy(),
-                    lifespan -> new PartitionedLookupSourceFactory(
-                            buildSource.getTypes(),
-                            buildOutputTypes,
-                            buildChannels.stream()
-                                    .map(buildSource.getTypes()::get)
-                                    .collect(toImmutableList()),
-                            partitionCount,
-                            buildOuter),
-                    buildOutputTypes);
+            Function<Lifespan, PartitionedLookupSourceFactory> lookupSourceFactoryProvider = lifespan -> new PartitionedLookupSourceFactory(
+                    buildSource.getTypes(),
+                    buildOutputTypes,
+                    buildChannels.stream()
+                            .map(buildSource.getTypes()::get)
+                            .collect(toImmutableList()),
+                    partitionCount,
+                    buildOuter);
 
             ImmutableList.Builder<OperatorFactory> factoriesBuilder = new ImmutableList.Builder<>();
             factoriesBuilder.addAll(buildSource.getOperatorFactories());
@@ -2119,6 +2249,57 @@ public class LocalExecutionPlanner
             createDynamicFilter(buildSource, node, context, partitionCount, localDynamicFilters).ifPresent(
                     filter -> factoriesBuilder.add(createDynamicFilterSourceOperatorFactory(filter, node, buildSource, buildContext)));
 
+            Optional<String> broadcastJoinBuildKey = Optional.ofNullable(broadcastJoinBuildKeys.get(node.getId()));
+            boolean canShareLookupSource = isSharedBroadcastJoinBuildEnabled(session) &&
+                    isBuildSideReplicated(node) &&
+                    broadcastJoinBuildKey.isPresent() &&
+                    node.getFilter().isEmpty() &&
+                    !spillEnabled &&
+                    probeSource.getPipelineExecutionStrategy() == UNGROUPED_EXECUTION &&
+                    buildSource.getPipelineExecutionStrategy() == UNGROUPED_EXECUTION;
+            if (canShareLookupSource) {
+                BroadcastLookupSourceCache.CacheKey cacheKey = new BroadcastLookupSourceCache.CacheKey(
+                        broadcastJoinBuildKey.get(),
+                        buildSource.getTypes(),
+                        buildChannels,
+                        buildOutputChannels,
+                        buildHashChannel,
+                        partitionCount);
+                PartitionedLookupSourceFactory lookupSourceFactory = lookupSourceFactoryProvider.apply(Lifespan.taskWide());
+                // The factory is destroyed by the JoinBridgeManager once the probe side is done, but a task failing before that must not keep a cache entry referenced
+                context.addTaskStateChangeListener(state -> {
+                    if (state.isDone()) {
+                        lookupSourceFactory.destroy();
+                    }
+                });
+                if (broadcastLookupSourceCache.lendCachedPartitions(cacheKey, lookupSourceFactory)) {
+                    log.debug("[Join] Using cached build side for %s", node.getId());
+                    // The build side must still be consumed (and dynamic filters collected), but the rows are discarded
+                    factoriesBuilder.add(new DevNullOperatorFactory(buildContext.getNextOperatorId(), node.getId()));
+                    context.addDriverFactory(
+                            buildContext.isInputDriver(),
+                            false,
+                            factoriesBuilder.build(),
+                            buildContext.getDriverInstanceCount(),
+                            buildSource.getPipelineExecutionStrategy());
+                    return new JoinBridgeManager<>(
+                            buildOuter,
+                            UNGROUPED_EXECUTION,
+                            UNGROUPED_EXECUTION,
+                            lifespan -> lookupSourceFactory,
+                            buildOutputTypes);
+                }
+                broadcastLookupSourceCache.offer(cacheKey, lookupSourceFactory);
+                lookupSourceFactoryProvider = lifespan -> lookupSourceFactory;
+            }
+
+            JoinBridgeManager<PartitionedLookupSourceFactory> lookupSourceFactoryManager = new JoinBridgeManager<>(
+                    buildOuter,
+                    probeSource.getPipelineExecutionStrategy(),
+                    buildSource.getPipelineExecutionStrategy(),
+                    lookupSourceFactoryProvider,
+                    buildOutputTypes);
+
             HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(
                     buildContext.getNextOperatorId(),
                     node.getId(),
@@ -2168,7 +2349,17 @@ public class LocalExecutionPlanner
                     filterBuildChannels,
                     getDynamicFilteringMaxDistinctValuesPerDriver(context.getSession(), isReplicatedJoin),
                     getDynamicFilteringMaxSizePerDriver(context.getSession(), isReplicatedJoin),
-                    getDynamicFilteringRangeRowLimitPerDriver(context.getSession(), isReplicatedJoin));
+                    getDynamicFilteringRangeRowLimitPerDriver(context.getSession(), isReplicatedJoin),
+                    dynamicFilter.getBloomFilterConsumer(),
+                    getBloomFilterMaxSize(context));
+        }
+
+        private Optional<DataSize> getBloomFilterMaxSize(LocalExecutionPlanContext context)
+        {
+            if (!context.getDynamicFiltersCollector().isBloomFiltersEnabled()) {
+                return Optional.empty();
+            }
+            return Optional.of(dynamicFilterConfig.getBloomFilterMaxSizePerDriver());
         }
 
         private Optional<LocalDynamicFilterConsumer> createDynamicFilter(
@@ -2194,6 +2385,7 @@ public class LocalExecutionPlanner
             ListenableFuture<Map<DynamicFilterId, Domain>> domainsFuture = filterConsumer.getDynamicFilterDomains();
             if (!localDynamicFilters.isEmpty()) {
                 addSuccessCallback(domainsFuture, context::addLocalDynamicFilters);
+                addSuccessCallback(filterConsumer.getDynamicFilterBloomFilters(), context::addLocalDynamicFilterBloomFilters);
             }
             if (!coordinatorDynamicFilters.isEmpty()) {
                 addSuccessCallback(
@@ -2300,6 +2492,7 @@ public class LocalExecutionPlanner
                 ListenableFuture<Map<DynamicFilterId, Domain>> domainsFuture = filterConsumer.getDynamicFilterDomains();
                 if (isLocalDynamicFilter) {
                     addSuccessCallback(domainsFuture, context::addLocalDynamicFilters);
+                    addSuccessCallback(filterConsumer.getDynamicFilterBloomFilters(), context::addLocalDynamicFilterBloomFilters);
                 }
                 if (isCoordinatorDynamicFilter) {
                     addSuccessCallback(domainsFuture, context::addCoordinatorDynamicFilters);
@@ -2312,7 +2505,9 @@ public class LocalExecutionPlanner
                         ImmutableList.of(new DynamicFilterSourceOperator.Channel(filterId, buildSource.getTypes().get(buildChannel), buildChannel)),
                         getDynamicFilteringMaxDistinctValuesPerDriver(context.getSession(), isReplicatedJoin),
                         getDynamicFilteringMaxSizePerDriver(context.getSession(), isReplicatedJoin),
-                        getDynamicFilteringRangeRowLimitPerDriver(context.getSession(), isReplicatedJoin)));
+                        getDynamicFilteringRangeRowLimitPerDriver(context.getSession(), isReplicatedJoin),
+                        filterConsumer.getBloomFilterConsumer(),
+                        getBloomFilterMaxSize(context)));
             }
 
             Optional<Integer> buildHashChannel = node.getFilteringSourceHashSymbol().map(channelGetter(buildSource));
@@ -2597,6 +2792,7 @@ public class LocalExecutionPlanner
                     types,
                     ImmutableList.of(),
                     Optional.empty(),
+                    false,
                     source.getPipelineExecutionStrategy(),
                     maxLocalExchangeBufferSize);
 
@@ -2670,6 +2866,7 @@ public class LocalExecutionPlanner
                     types,
                     channels,
                     hashChannel,
+                    node.getPartitioningScheme().isSkewedPartitionRebalancingAllowed(),
                     exchangeSourcePipelineExecutionStrategy,
                     maxLocalExchangeBufferSize);
             for (int i = 0; i < node.getSources().size(); i++) {
@@ -2963,6 +3160,12 @@ public class LocalExecutionPlanner
             }
             else {
                 Optional<Integer> hashChannel = hashSymbol.map(channelGetter(source));
+                Optional<PartialAggregationController> partialAggregationController = Optional.empty();
+                if (step == PARTIAL && isAdaptivePartialAggregationEnabled(context.getSession())) {
+                    partialAggregationController = Optional.of(new PartialAggregationController(
+                            getAdaptivePartialAggregationMinRows(context.getSession()),
+                            getAdaptivePartialAggregationUniqueRowsRatioThreshold(context.getSession())));
+                }
                 return new HashAggregationOperatorFactory(
                         context.getNextOperatorId(),
                         planNodeId,
@@ -2980,7 +3183,8 @@ public class LocalExecutionPlanner
                         unspillMemoryLimit,
                         spillerFactory,
                         joinCompiler,
-                        useSystemMemory);
+                        useSystemMemory,
+                        partialAggregationController);
             }
         }
     }
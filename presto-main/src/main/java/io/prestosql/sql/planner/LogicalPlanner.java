@@ -102,6 +102,7 @@ import static com.google.common.collect.ImmutableMap.toImmutableMap;
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static com.google.common.collect.Streams.zip;
 import static io.prestosql.SystemSessionProperties.isCollectPlanStatisticsForAllQueries;
+import static io.prestosql.SystemSessionProperties.isSkewedPartitionRebalancingEnabled;
 import static io.prestosql.SystemSessionProperties.isUsePreferredWritePartitioning;
 import static io.prestosql.spi.StandardErrorCode.NOT_SUPPORTED;
 import static io.prestosql.spi.statistics.TableStatisticType.ROW_COUNT;
@@ -489,9 +490,11 @@ public class LogicalPlanner
             else if (isUsePreferredWritePartitioning(session)) {
                 // TODO: move to iterative optimizer and use CBO
                 // empty connector partitioning handle means evenly partitioning on partitioning columns
+                // rows of a partition may be written by any number of writers, so hot partitions can be spread out
                 partitioningScheme = Optional.of(new PartitioningScheme(
                         Partitioning.create(FIXED_HASH_DISTRIBUTION, partitionFunctionArguments),
-                        outputLayout));
+                        outputLayout)
+                        .withSkewedPartitionRebalancing(isSkewedPartitionRebalancingEnabled(session)));
             }
         }
 
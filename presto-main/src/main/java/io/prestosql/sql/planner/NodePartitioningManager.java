@@ -30,6 +30,7 @@ import io.prestosql.spi.connector.ConnectorBucketNodeMap;
 import io.prestosql.spi.connector.ConnectorNodePartitioningProvider;
 import io.prestosql.spi.connector.ConnectorPartitionHandle;
 import io.prestosql.spi.connector.ConnectorSplit;
+import io.prestosql.spi.predicate.NullableValue;
 import io.prestosql.spi.type.Type;
 import io.prestosql.split.EmptySplit;
 
@@ -77,7 +78,8 @@ public class NodePartitioningManager
     public PartitionFunction getPartitionFunction(
             Session session,
             PartitioningScheme partitioningScheme,
-            List<Type> partitionChannelTypes)
+            List<Type> partitionChannelTypes,
+            List<Optional<NullableValue>> partitionConstants)
     {
         Optional<int[]> bucketToPartition = partitioningScheme.getBucketToPartition();
         checkArgument(bucketToPartition.isPresent(), "Bucket to partition must be set before a partition function can be created");
@@ -89,6 +91,7 @@ public class NodePartitioningManager
 
             return ((SystemPartitioningHandle) partitioningHandle.getConnectorHandle()).getPartitionFunction(
                     partitionChannelTypes,
+                    partitionConstants,
                     partitioningScheme.getHashColumn().isPresent(),
                     partitioningScheme.getBucketToPartition().get());
         }
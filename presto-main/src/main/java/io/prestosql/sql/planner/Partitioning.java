@@ -59,6 +59,11 @@ public final class Partitioning
                 .collect(toImmutableList()));
     }
 
+    public static Partitioning createWithArguments(PartitioningHandle handle, List<ArgumentBinding> arguments)
+    {
+        return new Partitioning(handle, arguments);
+    }
+
     // Factory method for JSON serde only!
     @JsonCreator
     public static Partitioning jsonCreate(
@@ -34,6 +34,7 @@ public class PartitioningScheme
     private final Optional<Symbol> hashColumn;
     private final boolean replicateNullsAndAny;
     private final Optional<int[]> bucketToPartition;
+    private final boolean skewedPartitionRebalancingAllowed;
 
     public PartitioningScheme(Partitioning partitioning, List<Symbol> outputLayout)
     {
@@ -55,13 +56,30 @@ public class PartitioningScheme
                 Optional.empty());
     }
 
+    public PartitioningScheme(
+            Partitioning partitioning,
+            List<Symbol> outputLayout,
+            Optional<Symbol> hashColumn,
+            boolean replicateNullsAndAny,
+            Optional<int[]> bucketToPartition)
+    {
+        this(
+                partitioning,
+                outputLayout,
+                hashColumn,
+                replicateNullsAndAny,
+                bucketToPartition,
+                false);
+    }
+
     @JsonCreator
     public PartitioningScheme(
             @JsonProperty("partitioning") Partitioning partitioning,
             @JsonProperty("outputLayout") List<Symbol> outputLayout,
             @JsonProperty("hashColumn") Optional<Symbol> hashColumn,
             @JsonProperty("replicateNullsAndAny") boolean replicateNullsAndAny,
-            @JsonProperty("bucketToPartition") Optional<int[]> bucketToPartition)
+            @JsonProperty("bucketToPartition") Optional<int[]> bucketToPartition,
+            @JsonProperty("skewedPartitionRebalancingAllowed") boolean skewedPartitionRebalancingAllowed)
     {
         this.partitioning = requireNonNull(partitioning, "partitioning is null");
         this.outputLayout = ImmutableList.copyOf(requireNonNull(outputLayout, "outputLayout is null"));
@@ -77,6 +95,7 @@ public class PartitioningScheme
         checkArgument(!replicateNullsAndAny || columns.size() <= 1, "Must have at most one partitioning column when nullPartition is REPLICATE.");
         this.replicateNullsAndAny = replicateNullsAndAny;
         this.bucketToPartition = requireNonNull(bucketToPartition, "bucketToPartition is null");
+        this.skewedPartitionRebalancingAllowed = skewedPartitionRebalancingAllowed;
     }
 
     @JsonProperty
@@ -109,9 +128,24 @@ public class PartitioningScheme
         return bucketToPartition;
     }
 
+    /**
+     * Whether rows with the same partitioning key may be sent to different consumers
+     * when a partition receives a disproportionate share of the data
+     */
+    @JsonProperty
+    public boolean isSkewedPartitionRebalancingAllowed()
+    {
+        return skewedPartitionRebalancingAllowed;
+    }
+
     public PartitioningScheme withBucketToPartition(Optional<int[]> bucketToPartition)
     {
-        return new PartitioningScheme(partitioning, outputLayout, hashColumn, replicateNullsAndAny, bucketToPartition);
+        return new PartitioningScheme(partitioning, outputLayout, hashColumn, replicateNullsAndAny, bucketToPartition, skewedPartitionRebalancingAllowed);
+    }
+
+    public PartitioningScheme withSkewedPartitionRebalancing(boolean skewedPartitionRebalancingAllowed)
+    {
+        return new PartitioningScheme(partitioning, outputLayout, hashColumn, replicateNullsAndAny, bucketToPartition, skewedPartitionRebalancingAllowed);
     }
 
     public PartitioningScheme translateOutputLayout(List<Symbol> newOutputLayout)
@@ -126,7 +160,7 @@ public class PartitioningScheme
                 .map(outputLayout::indexOf)
                 .map(newOutputLayout::get);
 
-        return new PartitioningScheme(newPartitioning, newOutputLayout, newHashSymbol, replicateNullsAndAny, bucketToPartition);
+        return new PartitioningScheme(newPartitioning, newOutputLayout, newHashSymbol, replicateNullsAndAny, bucketToPartition, skewedPartitionRebalancingAllowed);
     }
 
     @Override
@@ -142,13 +176,14 @@ public class PartitioningScheme
         return Objects.equals(partitioning, that.partitioning) &&
                 Objects.equals(outputLayout, that.outputLayout) &&
                 replicateNullsAndAny == that.replicateNullsAndAny &&
-                Objects.equals(bucketToPartition, that.bucketToPartition);
+                Objects.equals(bucketToPartition, that.bucketToPartition) &&
+                skewedPartitionRebalancingAllowed == that.skewedPartitionRebalancingAllowed;
     }
 
     @Override
     public int hashCode()
     {
-        return Objects.hash(partitioning, outputLayout, replicateNullsAndAny, bucketToPartition);
+        return Objects.hash(partitioning, outputLayout, replicateNullsAndAny, bucketToPartition, skewedPartitionRebalancingAllowed);
     }
 
     @Override
@@ -160,6 +195,7 @@ public class PartitioningScheme
                 .add("hashChannel", hashColumn)
                 .add("replicateNullsAndAny", replicateNullsAndAny)
                 .add("bucketToPartition", bucketToPartition)
+                .add("skewedPartitionRebalancingAllowed", skewedPartitionRebalancingAllowed)
                 .toString();
     }
 }
@@ -14,12 +14,14 @@
 package io.prestosql.sql.planner;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 import io.prestosql.Session;
 import io.prestosql.SystemSessionProperties;
 import io.prestosql.cost.StatsAndCosts;
 import io.prestosql.execution.QueryManagerConfig;
+import io.prestosql.execution.resultcache.QueryResultCacheKeyGenerator;
 import io.prestosql.execution.scheduler.BucketNodeMap;
 import io.prestosql.execution.warnings.WarningCollector;
 import io.prestosql.metadata.Metadata;
@@ -31,9 +33,11 @@ import io.prestosql.spi.connector.ConnectorPartitionHandle;
 import io.prestosql.spi.connector.ConnectorPartitioningHandle;
 import io.prestosql.spi.type.Type;
 import io.prestosql.sql.planner.plan.AggregationNode;
+import io.prestosql.sql.planner.plan.CachedResultNode;
 import io.prestosql.sql.planner.plan.ExchangeNode;
 import io.prestosql.sql.planner.plan.ExplainAnalyzeNode;
 import io.prestosql.sql.planner.plan.JoinNode;
+import io.prestosql.sql.planner.plan.MergeJoinNode;
 import io.prestosql.sql.planner.plan.OutputNode;
 import io.prestosql.sql.planner.plan.PlanFragmentId;
 import io.prestosql.sql.planner.plan.PlanNode;
@@ -64,20 +68,25 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Predicates.in;
 import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static com.google.common.collect.Iterables.getOnlyElement;
 import static io.prestosql.SystemSessionProperties.getQueryMaxStageCount;
 import static io.prestosql.SystemSessionProperties.isDynamicScheduleForGroupedExecution;
 import static io.prestosql.SystemSessionProperties.isForceSingleNodeOutput;
+import static io.prestosql.SystemSessionProperties.isSharedBroadcastJoinBuildEnabled;
 import static io.prestosql.operator.StageExecutionDescriptor.ungroupedExecution;
 import static io.prestosql.spi.StandardErrorCode.QUERY_HAS_TOO_MANY_STAGES;
 import static io.prestosql.spi.connector.NotPartitionedPartitionHandle.NOT_PARTITIONED;
 import static io.prestosql.spi.connector.StandardWarningCode.TOO_MANY_STAGES;
 import static io.prestosql.sql.planner.SchedulingOrderVisitor.scheduleOrder;
 import static io.prestosql.sql.planner.SystemPartitioningHandle.COORDINATOR_DISTRIBUTION;
+import static io.prestosql.sql.planner.SystemPartitioningHandle.FIXED_RANGE_DISTRIBUTION;
 import static io.prestosql.sql.planner.SystemPartitioningHandle.SINGLE_DISTRIBUTION;
 import static io.prestosql.sql.planner.SystemPartitioningHandle.SOURCE_DISTRIBUTION;
+import static io.prestosql.sql.planner.optimizations.PlanNodeSearcher.searchFrom;
 import static io.prestosql.sql.planner.plan.ExchangeNode.Scope.REMOTE;
 import static io.prestosql.sql.planner.plan.ExchangeNode.Type.REPLICATE;
+import static io.prestosql.sql.planner.plan.JoinNode.DistributionType.REPLICATED;
 import static io.prestosql.sql.planner.planprinter.PlanPrinter.jsonFragmentPlan;
 import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
@@ -105,7 +114,7 @@ public class PlanFragmenter
 
     public SubPlan createSubPlans(Session session, Plan plan, boolean forceSingleNode, WarningCollector warningCollector)
     {
-        Fragmenter fragmenter = new Fragmenter(session, metadata, plan.getTypes(), plan.getStatsAndCosts());
+        Fragmenter fragmenter = new Fragmenter(session, metadata, plan.getTypes(), plan.getStatsAndCosts(), generateBroadcastJoinBuildKeys(session, plan));
 
         FragmentProperties properties = new FragmentProperties(new PartitioningScheme(Partitioning.create(SINGLE_DISTRIBUTION, ImmutableList.of()), plan.getRoot().getOutputSymbols()));
         if (forceSingleNode || isForceSingleNodeOutput(session)) {
@@ -125,6 +134,25 @@ public class PlanFragmenter
         return subPlan;
     }
 
+    private Map<PlanNodeId, String> generateBroadcastJoinBuildKeys(Session session, Plan plan)
+    {
+        if (!isSharedBroadcastJoinBuildEnabled(session)) {
+            return ImmutableMap.of();
+        }
+
+        QueryResultCacheKeyGenerator keyGenerator = new QueryResultCacheKeyGenerator(metadata, session);
+        ImmutableMap.Builder<PlanNodeId, String> keys = ImmutableMap.builder();
+        for (PlanNode node : searchFrom(plan.getRoot()).where(JoinNode.class::isInstance).findAll()) {
+            JoinNode join = (JoinNode) node;
+            // the lookup source of a join with a filter depends on the layout of the probe side as well
+            if (join.getDistributionType().equals(Optional.of(REPLICATED)) && join.getFilter().isEmpty()) {
+                keyGenerator.generateBuildKey(join.getRight(), plan.getTypes())
+                        .ifPresent(key -> keys.put(join.getId(), key));
+            }
+        }
+        return keys.build();
+    }
+
     private void sanityCheckFragmentedPlan(SubPlan subPlan, WarningCollector warningCollector, int maxStageCount, int stageCountSoftLimit)
     {
         subPlan.sanityCheck();
@@ -199,9 +227,11 @@ public class PlanFragmenter
                         outputPartitioningScheme.getOutputLayout(),
                         outputPartitioningScheme.getHashColumn(),
                         outputPartitioningScheme.isReplicateNullsAndAny(),
-                        outputPartitioningScheme.getBucketToPartition()),
+                        outputPartitioningScheme.getBucketToPartition(),
+                        outputPartitioningScheme.isSkewedPartitionRebalancingAllowed()),
                 fragment.getStageExecutionDescriptor(),
                 fragment.getStatsAndCosts(),
+                fragment.getBroadcastJoinBuildKeys(),
                 fragment.getJsonRepresentation());
 
         ImmutableList.Builder<SubPlan> childrenBuilder = ImmutableList.builder();
@@ -220,14 +250,16 @@ public class PlanFragmenter
         private final Metadata metadata;
         private final TypeProvider types;
         private final StatsAndCosts statsAndCosts;
+        private final Map<PlanNodeId, String> broadcastJoinBuildKeys;
         private int nextFragmentId = ROOT_FRAGMENT_ID + 1;
 
-        public Fragmenter(Session session, Metadata metadata, TypeProvider types, StatsAndCosts statsAndCosts)
+        public Fragmenter(Session session, Metadata metadata, TypeProvider types, StatsAndCosts statsAndCosts, Map<PlanNodeId, String> broadcastJoinBuildKeys)
         {
             this.session = requireNonNull(session, "session is null");
             this.metadata = requireNonNull(metadata, "metadata is null");
             this.types = requireNonNull(types, "types is null");
             this.statsAndCosts = requireNonNull(statsAndCosts, "statsAndCosts is null");
+            this.broadcastJoinBuildKeys = requireNonNull(broadcastJoinBuildKeys, "broadcastJoinBuildKeys is null");
         }
 
         public SubPlan buildRootFragment(PlanNode root, FragmentProperties properties)
@@ -250,6 +282,10 @@ public class PlanFragmenter
 
             Map<Symbol, Type> symbols = Maps.filterKeys(types.allTypes(), in(dependencies));
 
+            Set<PlanNodeId> joins = searchFrom(root).where(JoinNode.class::isInstance).findAll().stream()
+                    .map(PlanNode::getId)
+                    .collect(toImmutableSet());
+
             PlanFragment fragment = new PlanFragment(
                     fragmentId,
                     root,
@@ -259,6 +295,7 @@ public class PlanFragmenter
                     properties.getPartitioningScheme(),
                     ungroupedExecution(),
                     statsAndCosts.getForSubplan(root),
+                    Maps.filterKeys(broadcastJoinBuildKeys, in(joins)),
                     Optional.of(jsonFragmentPlan(root, symbols, metadata, session)));
 
             return new SubPlan(fragment, properties.getChildren());
@@ -330,6 +367,14 @@ public class PlanFragmenter
             return context.defaultRewrite(node, context.get());
         }
 
+        @Override
+        public PlanNode visitCachedResult(CachedResultNode node, RewriteContext<FragmentProperties> context)
+        {
+            // cached results are only available in the memory of the coordinator
+            context.get().setCoordinatorOnlyDistribution();
+            return context.defaultRewrite(node, context.get());
+        }
+
         @Override
         public PlanNode visitExchange(ExchangeNode exchange, RewriteContext<FragmentProperties> context)
         {
@@ -360,7 +405,12 @@ public class PlanFragmenter
                     .map(PlanFragment::getId)
                     .collect(toImmutableList());
 
-            return new RemoteSourceNode(exchange.getId(), childrenIds, exchange.getOutputSymbols(), exchange.getOrderingScheme(), exchange.getType());
+            // range partitioned sources produce consecutive ranges of the ordering in partition order
+            boolean orderedPartitions = exchange.getOrderingScheme().isPresent() &&
+                    children.size() == 1 &&
+                    getOnlyElement(children).getFragment().getPartitioning().equals(FIXED_RANGE_DISTRIBUTION);
+
+            return new RemoteSourceNode(exchange.getId(), childrenIds, exchange.getOutputSymbols(), exchange.getOrderingScheme(), exchange.getType(), orderedPartitions);
         }
 
         private SubPlan buildSubPlan(PlanNode node, FragmentProperties properties, RewriteContext<FragmentProperties> context)
@@ -621,6 +671,25 @@ public class PlanFragmenter
             }
         }
 
+        @Override
+        public GroupedExecutionProperties visitMergeJoin(MergeJoinNode node, Void context)
+        {
+            GroupedExecutionProperties left = node.getLeft().accept(this, null);
+            GroupedExecutionProperties right = node.getRight().accept(this, null);
+
+            // Both sides are streamed, so grouped execution is only possible when both sides are capable of it.
+            if (groupedExecutionEnabled && left.currentNodeCapable && right.currentNodeCapable) {
+                return new GroupedExecutionProperties(
+                        true,
+                        true,
+                        ImmutableList.<PlanNodeId>builder()
+                                .addAll(left.capableTableScanNodes)
+                                .addAll(right.capableTableScanNodes)
+                                .build());
+            }
+            return GroupedExecutionProperties.notCapable();
+        }
+
         @Override
         public GroupedExecutionProperties visitAggregation(AggregationNode node, Void context)
         {
@@ -124,6 +124,7 @@ import io.prestosql.sql.planner.iterative.rule.PushDownDereferencesThroughSort;
 import io.prestosql.sql.planner.iterative.rule.PushDownDereferencesThroughTopN;
 import io.prestosql.sql.planner.iterative.rule.PushDownDereferencesThroughTopNRowNumber;
 import io.prestosql.sql.planner.iterative.rule.PushDownDereferencesThroughWindow;
+import io.prestosql.sql.planner.iterative.rule.PushJoinIntoTableScan;
 import io.prestosql.sql.planner.iterative.rule.PushLimitIntoTableScan;
 import io.prestosql.sql.planner.iterative.rule.PushLimitThroughMarkDistinct;
 import io.prestosql.sql.planner.iterative.rule.PushLimitThroughOffset;
@@ -197,6 +198,7 @@ import io.prestosql.sql.planner.optimizations.StatsRecordingPlanOptimizer;
 import io.prestosql.sql.planner.optimizations.TableDeleteOptimizer;
 import io.prestosql.sql.planner.optimizations.TransformQuantifiedComparisonApplyToCorrelatedJoin;
 import io.prestosql.sql.planner.optimizations.UnaliasSymbolReferences;
+import io.prestosql.sql.planner.optimizations.UseMergeJoin;
 import io.prestosql.sql.planner.optimizations.WindowFilterPushDown;
 import org.weakref.jmx.MBeanExporter;
 
@@ -534,6 +536,7 @@ public class PlanOptimizers
                                 .add(new PushPredicateIntoTableScan(metadata, typeAnalyzer))
                                 .add(new PushSampleIntoTableScan(metadata))
                                 .add(new PushAggregationIntoTableScan(metadata))
+                                .add(new PushJoinIntoTableScan(metadata))
                                 .build()),
                 new IterativeOptimizer(
                         ruleStats,
@@ -677,7 +680,7 @@ public class PlanOptimizers
             // unalias symbols before adding exchanges to use same partitioning symbols in joins, aggregations and other
             // operators that require node partitioning
             builder.add(new UnaliasSymbolReferences(metadata));
-            builder.add(new StatsRecordingPlanOptimizer(optimizerStats, new AddExchanges(metadata, typeAnalyzer)));
+            builder.add(new StatsRecordingPlanOptimizer(optimizerStats, new AddExchanges(metadata, typeAnalyzer, statsCalculator)));
         }
         //noinspection UnusedAssignment
         estimatedExchangesCostCalculator = null; // Prevent accidental use after AddExchanges
@@ -726,6 +729,10 @@ public class PlanOptimizers
                         .add(new InlineProjections())
                         .build()));
 
+        // Merge joins rely on the sort order of table scans, which is only known after AddExchanges
+        builder.add(new UseMergeJoin(metadata, typeAnalyzer));
+        builder.add(new RemoveUnsupportedDynamicFilters(metadata)); // Remove dynamic filters of joins replaced by UseMergeJoin
+
         // Optimizers above this don't understand local exchanges, so be careful moving this.
         builder.add(new AddLocalExchanges(metadata, typeAnalyzer));
 
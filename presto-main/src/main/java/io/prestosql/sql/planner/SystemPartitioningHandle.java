@@ -26,8 +26,10 @@ import io.prestosql.operator.InterpretedHashGenerator;
 import io.prestosql.operator.PartitionFunction;
 import io.prestosql.operator.PrecomputedHashGenerator;
 import io.prestosql.spi.Page;
+import io.prestosql.spi.block.Block;
 import io.prestosql.spi.connector.BucketFunction;
 import io.prestosql.spi.connector.ConnectorPartitioningHandle;
+import io.prestosql.spi.predicate.NullableValue;
 import io.prestosql.spi.type.Type;
 
 import java.util.List;
@@ -38,7 +40,17 @@ import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkArgument;
 import static io.prestosql.SystemSessionProperties.getHashPartitionCount;
 import static io.prestosql.spi.StandardErrorCode.NO_NODES_AVAILABLE;
+import static io.prestosql.spi.type.BigintType.BIGINT;
+import static io.prestosql.spi.type.BooleanType.BOOLEAN;
+import static io.prestosql.spi.type.DateType.DATE;
+import static io.prestosql.spi.type.DoubleType.DOUBLE;
+import static io.prestosql.spi.type.IntegerType.INTEGER;
+import static io.prestosql.spi.type.RealType.REAL;
+import static io.prestosql.spi.type.SmallintType.SMALLINT;
+import static io.prestosql.spi.type.TinyintType.TINYINT;
 import static io.prestosql.util.Failures.checkCondition;
+import static java.lang.Float.intBitsToFloat;
+import static java.lang.Math.toIntExact;
 import static java.util.Objects.requireNonNull;
 
 public final class SystemPartitioningHandle
@@ -58,6 +70,7 @@ public final class SystemPartitioningHandle
     public static final PartitioningHandle COORDINATOR_DISTRIBUTION = createSystemPartitioning(SystemPartitioning.COORDINATOR_ONLY, SystemPartitionFunction.SINGLE);
     public static final PartitioningHandle FIXED_HASH_DISTRIBUTION = createSystemPartitioning(SystemPartitioning.FIXED, SystemPartitionFunction.HASH);
     public static final PartitioningHandle FIXED_ARBITRARY_DISTRIBUTION = createSystemPartitioning(SystemPartitioning.FIXED, SystemPartitionFunction.ROUND_ROBIN);
+    public static final PartitioningHandle FIXED_RANGE_DISTRIBUTION = createSystemPartitioning(SystemPartitioning.FIXED, SystemPartitionFunction.RANGE);
     public static final PartitioningHandle FIXED_BROADCAST_DISTRIBUTION = createSystemPartitioning(SystemPartitioning.FIXED, SystemPartitionFunction.BROADCAST);
     public static final PartitioningHandle SCALED_WRITER_DISTRIBUTION = createSystemPartitioning(SystemPartitioning.SCALED, SystemPartitionFunction.ROUND_ROBIN);
     public static final PartitioningHandle SOURCE_DISTRIBUTION = createSystemPartitioning(SystemPartitioning.SOURCE, SystemPartitionFunction.UNKNOWN);
@@ -134,6 +147,21 @@ public final class SystemPartitioningHandle
         return partitioning.toString();
     }
 
+    /**
+     * Returns true if values of the given type can be assigned to ranges by {@link SystemPartitionFunction#RANGE}.
+     * The range boundaries are doubles, so only types whose values have a monotonic double representation are supported.
+     */
+    public static boolean isRangePartitioningSupported(Type type)
+    {
+        return type.equals(BIGINT)
+                || type.equals(INTEGER)
+                || type.equals(SMALLINT)
+                || type.equals(TINYINT)
+                || type.equals(DATE)
+                || type.equals(DOUBLE)
+                || type.equals(REAL);
+    }
+
     public NodePartitionMap getNodePartitionMap(Session session, NodeScheduler nodeScheduler)
     {
         NodeSelector nodeSelector = nodeScheduler.createNodeSelector(Optional.empty());
@@ -158,12 +186,13 @@ public final class SystemPartitioningHandle
         });
     }
 
-    public PartitionFunction getPartitionFunction(List<Type> partitionChannelTypes, boolean isHashPrecomputed, int[] bucketToPartition)
+    public PartitionFunction getPartitionFunction(List<Type> partitionChannelTypes, List<Optional<NullableValue>> partitionConstants, boolean isHashPrecomputed, int[] bucketToPartition)
     {
         requireNonNull(partitionChannelTypes, "partitionChannelTypes is null");
+        requireNonNull(partitionConstants, "partitionConstants is null");
         requireNonNull(bucketToPartition, "bucketToPartition is null");
 
-        BucketFunction bucketFunction = function.createBucketFunction(partitionChannelTypes, isHashPrecomputed, bucketToPartition.length);
+        BucketFunction bucketFunction = function.createBucketFunction(partitionChannelTypes, partitionConstants, isHashPrecomputed, bucketToPartition.length);
         return new BucketPartitionFunction(bucketFunction, bucketToPartition);
     }
 
@@ -192,6 +221,45 @@ public final class SystemPartitioningHandle
                 return new HashBucketFunction(new InterpretedHashGenerator(partitionChannelTypes, hashChannels), bucketCount);
             }
         },
+        /**
+         * Assigns rows to buckets by ranges of the first argument, so that the buckets are ordered
+         * according to the sort order of that argument. The remaining arguments must be constants:
+         * a boolean for ascending order, a boolean for nulls first, followed by the ascending double
+         * boundaries of the ranges. The ranges are spread evenly over the buckets, so the number of
+         * buckets does not have to match the number of ranges.
+         */
+        RANGE {
+            @Override
+            public BucketFunction createBucketFunction(List<Type> partitionChannelTypes, boolean isHashPrecomputed, int bucketCount)
+            {
+                throw new UnsupportedOperationException("Range partitioning requires the values of the constant arguments");
+            }
+
+            @Override
+            public BucketFunction createBucketFunction(List<Type> partitionChannelTypes, List<Optional<NullableValue>> partitionConstants, boolean isHashPrecomputed, int bucketCount)
+            {
+                checkArgument(!isHashPrecomputed, "Range partitioning does not support precomputed hash");
+                checkArgument(partitionChannelTypes.size() >= 3, "Range partitioning requires a sort key, a sort order and boundaries");
+                checkArgument(partitionConstants.size() == partitionChannelTypes.size(), "Expected a constant binding for every argument");
+                checkArgument(partitionConstants.get(0).isEmpty(), "Range partitioning sort key must not be a constant");
+                checkArgument(isRangePartitioningSupported(partitionChannelTypes.get(0)), "Unsupported range partitioning type: %s", partitionChannelTypes.get(0));
+                boolean ascending = getConstant(partitionConstants.get(1), BOOLEAN, "sort order");
+                boolean nullsFirst = getConstant(partitionConstants.get(2), BOOLEAN, "sort order");
+                double[] boundaries = new double[partitionConstants.size() - 3];
+                for (int i = 0; i < boundaries.length; i++) {
+                    boundaries[i] = getConstant(partitionConstants.get(i + 3), DOUBLE, "boundaries");
+                    checkArgument(i == 0 || boundaries[i - 1] <= boundaries[i], "Range boundaries are not sorted");
+                }
+                return new RangeBucketFunction(partitionChannelTypes.get(0), ascending, nullsFirst, boundaries, bucketCount);
+            }
+
+            @SuppressWarnings("unchecked")
+            private <T> T getConstant(Optional<NullableValue> constant, Type type, String name)
+            {
+                checkArgument(constant.isPresent() && constant.get().getType().equals(type) && !constant.get().isNull(), "Range partitioning %s must be a constant %s", name, type);
+                return (T) constant.get().getValue();
+            }
+        },
         ROUND_ROBIN {
             @Override
             public BucketFunction createBucketFunction(List<Type> partitionChannelTypes, boolean isHashPrecomputed, int bucketCount)
@@ -216,6 +284,11 @@ public final class SystemPartitioningHandle
 
         public abstract BucketFunction createBucketFunction(List<Type> partitionChannelTypes, boolean isHashPrecomputed, int bucketCount);
 
+        public BucketFunction createBucketFunction(List<Type> partitionChannelTypes, List<Optional<NullableValue>> partitionConstants, boolean isHashPrecomputed, int bucketCount)
+        {
+            return createBucketFunction(partitionChannelTypes, isHashPrecomputed, bucketCount);
+        }
+
         private static class SingleBucketFunction
                 implements BucketFunction
         {
@@ -255,6 +328,81 @@ public final class SystemPartitioningHandle
             }
         }
 
+        private static class RangeBucketFunction
+                implements BucketFunction
+        {
+            private final Type type;
+            private final int bucketCount;
+            private final boolean ascending;
+            private final boolean nullsFirst;
+            private final double[] boundaries;
+
+            public RangeBucketFunction(Type type, boolean ascending, boolean nullsFirst, double[] boundaries, int bucketCount)
+            {
+                checkArgument(bucketCount > 0, "bucketCount must be at least 1");
+                this.type = requireNonNull(type, "type is null");
+                this.bucketCount = bucketCount;
+                this.ascending = ascending;
+                this.nullsFirst = nullsFirst;
+                this.boundaries = requireNonNull(boundaries, "boundaries is null").clone();
+            }
+
+            @Override
+            public int getBucket(Page page, int position)
+            {
+                Block block = page.getBlock(0);
+                int range;
+                if (block.isNull(position)) {
+                    range = nullsFirst ? 0 : boundaries.length;
+                }
+                else {
+                    range = findRange(toDouble(block, position));
+                    if (!ascending) {
+                        range = boundaries.length - range;
+                    }
+                }
+                return toIntExact((long) range * bucketCount / (boundaries.length + 1));
+            }
+
+            private int findRange(double value)
+            {
+                // number of boundaries that are less than or equal to the value, NaN sorts last
+                int low = 0;
+                int high = boundaries.length;
+                while (low < high) {
+                    int middle = (low + high) >>> 1;
+                    if (Double.compare(value, boundaries[middle]) < 0) {
+                        high = middle;
+                    }
+                    else {
+                        low = middle + 1;
+                    }
+                }
+                return low;
+            }
+
+            private double toDouble(Block block, int position)
+            {
+                if (type.equals(DOUBLE)) {
+                    return DOUBLE.getDouble(block, position);
+                }
+                if (type.equals(REAL)) {
+                    return intBitsToFloat(toIntExact(REAL.getLong(block, position)));
+                }
+                return type.getLong(block, position);
+            }
+
+            @Override
+            public String toString()
+            {
+                return toStringHelper(this)
+                        .add("type", type)
+                        .add("ranges", boundaries.length + 1)
+                        .add("bucketCount", bucketCount)
+                        .toString();
+            }
+        }
+
         private static class HashBucketFunction
                 implements BucketFunction
         {
@@ -0,0 +1,273 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.sql.planner.iterative.rule;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.prestosql.Session;
+import io.prestosql.cost.PlanNodeStatsEstimate;
+import io.prestosql.matching.Capture;
+import io.prestosql.matching.Captures;
+import io.prestosql.matching.Pattern;
+import io.prestosql.metadata.Metadata;
+import io.prestosql.metadata.TableHandle;
+import io.prestosql.spi.connector.BasicRelationStatistics;
+import io.prestosql.spi.connector.ColumnHandle;
+import io.prestosql.spi.connector.JoinApplicationResult;
+import io.prestosql.spi.connector.JoinCondition;
+import io.prestosql.spi.connector.JoinStatistics;
+import io.prestosql.spi.connector.JoinType;
+import io.prestosql.spi.expression.Variable;
+import io.prestosql.sql.planner.Symbol;
+import io.prestosql.sql.planner.TypeProvider;
+import io.prestosql.sql.planner.iterative.Rule;
+import io.prestosql.sql.planner.plan.JoinNode;
+import io.prestosql.sql.planner.plan.PlanNode;
+import io.prestosql.sql.planner.plan.TableScanNode;
+import io.prestosql.sql.tree.ComparisonExpression;
+import io.prestosql.sql.tree.Expression;
+import io.prestosql.sql.tree.SymbolReference;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.google.common.base.Verify.verify;
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static io.prestosql.SystemSessionProperties.isAllowPushdownIntoConnectors;
+import static io.prestosql.matching.Capture.newCapture;
+import static io.prestosql.sql.ExpressionUtils.extractConjuncts;
+import static io.prestosql.sql.planner.plan.Patterns.Join.left;
+import static io.prestosql.sql.planner.plan.Patterns.Join.right;
+import static io.prestosql.sql.planner.plan.Patterns.join;
+import static io.prestosql.sql.planner.plan.Patterns.tableScan;
+import static java.lang.Double.isNaN;
+
+/**
+ * Replaces a join of two table scans of the same catalog with a single table scan
+ * if the connector is able to compute the join itself.
+ */
+public class PushJoinIntoTableScan
+        implements Rule<JoinNode>
+{
+    private static final Capture<TableScanNode> LEFT_TABLE_SCAN = newCapture();
+    private static final Capture<TableScanNode> RIGHT_TABLE_SCAN = newCapture();
+
+    private static final Pattern<JoinNode> PATTERN =
+            join()
+                    .matching(node -> node.getDynamicFilters().isEmpty())
+                    .matching(node -> node.getLeftHashSymbol().isEmpty() && node.getRightHashSymbol().isEmpty())
+                    .with(left().matching(tableScan().capturedAs(LEFT_TABLE_SCAN)))
+                    .with(right().matching(tableScan().capturedAs(RIGHT_TABLE_SCAN)));
+
+    private final Metadata metadata;
+
+    public PushJoinIntoTableScan(Metadata metadata)
+    {
+        this.metadata = metadata;
+    }
+
+    @Override
+    public Pattern<JoinNode> getPattern()
+    {
+        return PATTERN;
+    }
+
+    @Override
+    public boolean isEnabled(Session session)
+    {
+        return isAllowPushdownIntoConnectors(session);
+    }
+
+    @Override
+    public Result apply(JoinNode joinNode, Captures captures, Context context)
+    {
+        TableScanNode left = captures.get(LEFT_TABLE_SCAN);
+        TableScanNode right = captures.get(RIGHT_TABLE_SCAN);
+        Optional<List<JoinCondition>> joinConditions = getJoinConditions(joinNode, left, right, context);
+        if (joinConditions.isEmpty() || joinConditions.get().isEmpty()) {
+            return Result.empty();
+        }
+
+        Map<String, ColumnHandle> leftAssignments = left.getAssignments().entrySet().stream()
+                .collect(toImmutableMap(entry -> entry.getKey().getName(), Entry::getValue));
+        Map<String, ColumnHandle> rightAssignments = right.getAssignments().entrySet().stream()
+                .collect(toImmutableMap(entry -> entry.getKey().getName(), Entry::getValue));
+
+        Optional<JoinApplicationResult<TableHandle>> joinApplicationResult = metadata.applyJoin(
+                context.getSession(),
+                getJoinType(joinNode),
+                left.getTable(),
+                right.getTable(),
+                joinConditions.get(),
+                leftAssignments,
+                rightAssignments,
+                new LazyJoinStatistics(joinNode, left, right, context));
+
+        if (joinApplicationResult.isEmpty()) {
+            return Result.empty();
+        }
+
+        JoinApplicationResult<TableHandle> result = joinApplicationResult.get();
+
+        ImmutableMap.Builder<Symbol, ColumnHandle> assignments = ImmutableMap.builder();
+        for (Symbol symbol : joinNode.getLeftOutputSymbols()) {
+            ColumnHandle column = result.getLeftColumnHandles().get(left.getAssignments().get(symbol));
+            verify(column != null, "Column handle for %s not returned by connector", symbol);
+            assignments.put(symbol, column);
+        }
+        for (Symbol symbol : joinNode.getRightOutputSymbols()) {
+            ColumnHandle column = result.getRightColumnHandles().get(right.getAssignments().get(symbol));
+            verify(column != null, "Column handle for %s not returned by connector", symbol);
+            assignments.put(symbol, column);
+        }
+
+        return Result.ofPlanNode(
+                TableScanNode.newInstance(
+                        context.getIdAllocator().getNextId(),
+                        result.getTableHandle(),
+                        joinNode.getOutputSymbols(),
+                        assignments.build()));
+    }
+
+    private static Optional<List<JoinCondition>> getJoinConditions(JoinNode joinNode, TableScanNode left, TableScanNode right, Context context)
+    {
+        TypeProvider types = context.getSymbolAllocator().getTypes();
+        Set<Symbol> leftSymbols = ImmutableSet.copyOf(left.getOutputSymbols());
+        Set<Symbol> rightSymbols = ImmutableSet.copyOf(right.getOutputSymbols());
+
+        ImmutableList.Builder<JoinCondition> conditions = ImmutableList.builder();
+        for (JoinNode.EquiJoinClause clause : joinNode.getCriteria()) {
+            conditions.add(new JoinCondition(
+                    new Variable(clause.getLeft().getName(), types.get(clause.getLeft())),
+                    JoinCondition.Operator.EQUAL,
+                    new Variable(clause.getRight().getName(), types.get(clause.getRight()))));
+        }
+
+        if (joinNode.getFilter().isPresent()) {
+            for (Expression conjunct : extractConjuncts(joinNode.getFilter().get())) {
+                if (!(conjunct instanceof ComparisonExpression)) {
+                    return Optional.empty();
+                }
+                ComparisonExpression comparison = (ComparisonExpression) conjunct;
+                if (!(comparison.getLeft() instanceof SymbolReference) || !(comparison.getRight() instanceof SymbolReference)) {
+                    return Optional.empty();
+                }
+                Symbol first = Symbol.from(comparison.getLeft());
+                Symbol second = Symbol.from(comparison.getRight());
+                ComparisonExpression.Operator operator = comparison.getOperator();
+                if (rightSymbols.contains(first) && leftSymbols.contains(second)) {
+                    Symbol swap = first;
+                    first = second;
+                    second = swap;
+                    operator = operator.flip();
+                }
+                if (!leftSymbols.contains(first) || !rightSymbols.contains(second)) {
+                    return Optional.empty();
+                }
+                conditions.add(new JoinCondition(
+                        new Variable(first.getName(), types.get(first)),
+                        toJoinConditionOperator(operator),
+                        new Variable(second.getName(), types.get(second))));
+            }
+        }
+
+        return Optional.of(conditions.build());
+    }
+
+    private static JoinCondition.Operator toJoinConditionOperator(ComparisonExpression.Operator operator)
+    {
+        switch (operator) {
+            case EQUAL:
+                return JoinCondition.Operator.EQUAL;
+            case NOT_EQUAL:
+                return JoinCondition.Operator.NOT_EQUAL;
+            case LESS_THAN:
+                return JoinCondition.Operator.LESS_THAN;
+            case LESS_THAN_OR_EQUAL:
+                return JoinCondition.Operator.LESS_THAN_OR_EQUAL;
+            case GREATER_THAN:
+                return JoinCondition.Operator.GREATER_THAN;
+            case GREATER_THAN_OR_EQUAL:
+                return JoinCondition.Operator.GREATER_THAN_OR_EQUAL;
+            case IS_DISTINCT_FROM:
+                return JoinCondition.Operator.IS_DISTINCT_FROM;
+        }
+        throw new IllegalArgumentException("Unknown operator: " + operator);
+    }
+
+    private static JoinType getJoinType(JoinNode joinNode)
+    {
+        switch (joinNode.getType()) {
+            case INNER:
+                return JoinType.INNER;
+            case LEFT:
+                return JoinType.LEFT_OUTER;
+            case RIGHT:
+                return JoinType.RIGHT_OUTER;
+            case FULL:
+                return JoinType.FULL_OUTER;
+        }
+        throw new IllegalArgumentException("Unknown join type: " + joinNode.getType());
+    }
+
+    private static class LazyJoinStatistics
+            implements JoinStatistics
+    {
+        private final JoinNode joinNode;
+        private final TableScanNode left;
+        private final TableScanNode right;
+        private final Context context;
+
+        public LazyJoinStatistics(JoinNode joinNode, TableScanNode left, TableScanNode right, Context context)
+        {
+            this.joinNode = joinNode;
+            this.left = left;
+            this.right = right;
+            this.context = context;
+        }
+
+        @Override
+        public Optional<BasicRelationStatistics> getLeftStatistics()
+        {
+            return getBasicRelationStatistics(left, left.getOutputSymbols());
+        }
+
+        @Override
+        public Optional<BasicRelationStatistics> getRightStatistics()
+        {
+            return getBasicRelationStatistics(right, right.getOutputSymbols());
+        }
+
+        @Override
+        public Optional<BasicRelationStatistics> getJoinStatistics()
+        {
+            return getBasicRelationStatistics(joinNode, joinNode.getOutputSymbols());
+        }
+
+        private Optional<BasicRelationStatistics> getBasicRelationStatistics(PlanNode node, List<Symbol> outputSymbols)
+        {
+            PlanNodeStatsEstimate stats = context.getStatsProvider().getStats(node);
+            double outputRowCount = stats.getOutputRowCount();
+            double outputSize = stats.getOutputSizeInBytes(outputSymbols, context.getSymbolAllocator().getTypes());
+            if (isNaN(outputRowCount) || isNaN(outputSize)) {
+                return Optional.empty();
+            }
+            return Optional.of(new BasicRelationStatistics((long) outputRowCount, (long) outputSize));
+        }
+    }
+}
@@ -14,6 +14,7 @@
 package io.prestosql.sql.planner.iterative.rule;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import io.prestosql.Session;
 import io.prestosql.matching.Capture;
 import io.prestosql.matching.Captures;
@@ -31,11 +32,13 @@ import io.prestosql.sql.planner.iterative.Rule;
 import io.prestosql.sql.planner.plan.FilterNode;
 import io.prestosql.sql.planner.plan.ProjectNode;
 import io.prestosql.sql.planner.plan.TopNRowNumberNode;
+import io.prestosql.sql.planner.plan.TopNRowNumberNode.RankingFunction;
 import io.prestosql.sql.planner.plan.ValuesNode;
 import io.prestosql.sql.planner.plan.WindowNode;
 import io.prestosql.sql.tree.Expression;
 import io.prestosql.sql.tree.QualifiedName;
 
+import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
 
@@ -54,7 +57,7 @@ import static java.lang.Math.toIntExact;
 import static java.util.Objects.requireNonNull;
 
 /**
- * This rule pushes filter predicate concerning row number symbol into WindowNode
+ * This rule pushes filter predicate concerning row number (or rank, dense rank) symbol into WindowNode
  * by converting it into TopNRowNumberNode. It skips an identity projection
  * separating FilterNode from WindowNode in the plan tree.
  * TODO This rule should be removed as soon as WindowNode becomes capable of absorbing pruning projections (i.e. capable of pruning outputs).
@@ -82,10 +85,16 @@ public class PushPredicateThroughProjectIntoWindow
 
     private final Pattern<FilterNode> pattern;
     private final Metadata metadata;
+    private final Map<FunctionId, RankingFunction> rankingFunctions;
 
     public PushPredicateThroughProjectIntoWindow(Metadata metadata)
     {
         this.metadata = requireNonNull(metadata, "metadata is null");
+        ImmutableMap.Builder<FunctionId, RankingFunction> builder = ImmutableMap.builder();
+        for (RankingFunction rankingFunction : RankingFunction.values()) {
+            builder.put(metadata.resolveFunction(QualifiedName.of(rankingFunction.getName()), ImmutableList.of()).getFunctionId(), rankingFunction);
+        }
+        this.rankingFunctions = builder.build();
         this.pattern = filter()
                 .with(source().matching(project()
                         .matching(ProjectNode::isIdentity)
@@ -99,7 +108,7 @@ public class PushPredicateThroughProjectIntoWindow
                                         return false;
                                     }
                                     FunctionId functionId = getOnlyElement(window.getWindowFunctions().values()).getResolvedFunction().getFunctionId();
-                                    return functionId.equals(metadata.resolveFunction(QualifiedName.of("row_number"), ImmutableList.of()).getFunctionId());
+                                    return rankingFunctions.containsKey(functionId);
                                 })
                                 .capturedAs(WINDOW)))));
     }
@@ -140,6 +149,7 @@ public class PushPredicateThroughProjectIntoWindow
                 window.getId(),
                 window.getSource(),
                 window.getSpecification(),
+                rankingFunctions.get(getOnlyElement(window.getWindowFunctions().values()).getResolvedFunction().getFunctionId()),
                 rowNumberSymbol,
                 upperBound.getAsInt(),
                 false,
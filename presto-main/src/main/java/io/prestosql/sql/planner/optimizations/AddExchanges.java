@@ -21,13 +21,20 @@ import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.SetMultimap;
 import io.prestosql.Session;
 import io.prestosql.SystemSessionProperties;
+import io.prestosql.cost.CachingStatsProvider;
+import io.prestosql.cost.StatsCalculator;
+import io.prestosql.cost.StatsProvider;
+import io.prestosql.cost.SymbolStatsEstimate;
 import io.prestosql.execution.warnings.WarningCollector;
 import io.prestosql.metadata.Metadata;
+import io.prestosql.spi.block.SortOrder;
 import io.prestosql.spi.connector.GroupingProperty;
 import io.prestosql.spi.connector.LocalProperty;
 import io.prestosql.spi.connector.SortingProperty;
+import io.prestosql.spi.predicate.NullableValue;
 import io.prestosql.sql.planner.DomainTranslator;
 import io.prestosql.sql.planner.Partitioning;
+import io.prestosql.sql.planner.Partitioning.ArgumentBinding;
 import io.prestosql.sql.planner.PartitioningScheme;
 import io.prestosql.sql.planner.PlanNodeIdAllocator;
 import io.prestosql.sql.planner.Symbol;
@@ -85,16 +92,22 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Verify.verify;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.Iterables.getOnlyElement;
+import static io.prestosql.SystemSessionProperties.getHashPartitionCount;
 import static io.prestosql.SystemSessionProperties.ignoreDownStreamPreferences;
 import static io.prestosql.SystemSessionProperties.isColocatedJoinEnabled;
 import static io.prestosql.SystemSessionProperties.isDistributedSortEnabled;
 import static io.prestosql.SystemSessionProperties.isForceSingleNodeOutput;
+import static io.prestosql.SystemSessionProperties.isRangePartitionedSortEnabled;
+import static io.prestosql.spi.type.BooleanType.BOOLEAN;
+import static io.prestosql.spi.type.DoubleType.DOUBLE;
 import static io.prestosql.sql.planner.FragmentTableScanCounter.countSources;
 import static io.prestosql.sql.planner.FragmentTableScanCounter.hasMultipleSources;
 import static io.prestosql.sql.planner.SystemPartitioningHandle.FIXED_ARBITRARY_DISTRIBUTION;
 import static io.prestosql.sql.planner.SystemPartitioningHandle.FIXED_HASH_DISTRIBUTION;
+import static io.prestosql.sql.planner.SystemPartitioningHandle.FIXED_RANGE_DISTRIBUTION;
 import static io.prestosql.sql.planner.SystemPartitioningHandle.SCALED_WRITER_DISTRIBUTION;
 import static io.prestosql.sql.planner.SystemPartitioningHandle.SINGLE_DISTRIBUTION;
+import static io.prestosql.sql.planner.SystemPartitioningHandle.isRangePartitioningSupported;
 import static io.prestosql.sql.planner.optimizations.ActualProperties.Global.partitionedOn;
 import static io.prestosql.sql.planner.optimizations.ActualProperties.Global.singleStreamPartition;
 import static io.prestosql.sql.planner.optimizations.LocalProperties.grouped;
@@ -108,6 +121,7 @@ import static io.prestosql.sql.planner.plan.ExchangeNode.partitionedExchange;
 import static io.prestosql.sql.planner.plan.ExchangeNode.replicatedExchange;
 import static io.prestosql.sql.planner.plan.ExchangeNode.roundRobinExchange;
 import static io.prestosql.sql.tree.BooleanLiteral.TRUE_LITERAL;
+import static java.lang.Double.isFinite;
 import static java.lang.String.format;
 import static java.util.stream.Collectors.toList;
 
@@ -117,12 +131,14 @@ public class AddExchanges
     private final TypeAnalyzer typeAnalyzer;
     private final Metadata metadata;
     private final DomainTranslator domainTranslator;
+    private final StatsCalculator statsCalculator;
 
-    public AddExchanges(Metadata metadata, TypeAnalyzer typeAnalyzer)
+    public AddExchanges(Metadata metadata, TypeAnalyzer typeAnalyzer, StatsCalculator statsCalculator)
     {
         this.metadata = metadata;
         this.domainTranslator = new DomainTranslator(metadata);
         this.typeAnalyzer = typeAnalyzer;
+        this.statsCalculator = statsCalculator;
     }
 
     @Override
@@ -143,6 +159,7 @@ public class AddExchanges
         private final boolean preferStreamingOperators;
         private final boolean redistributeWrites;
         private final boolean scaleWriters;
+        private final StatsProvider statsProvider;
 
         public Rewriter(PlanNodeIdAllocator idAllocator, SymbolAllocator symbolAllocator, Session session)
         {
@@ -150,6 +167,7 @@ public class AddExchanges
             this.symbolAllocator = symbolAllocator;
             this.types = symbolAllocator.getTypes();
             this.session = session;
+            this.statsProvider = new CachingStatsProvider(statsCalculator, session, types);
             this.distributedIndexJoins = SystemSessionProperties.isDistributedIndexJoinEnabled(session);
             this.redistributeWrites = SystemSessionProperties.isRedistributeWrites(session);
             this.scaleWriters = SystemSessionProperties.isScaleWriters(session);
@@ -382,6 +400,7 @@ public class AddExchanges
                                 idAllocator.getNextId(),
                                 child.getNode(),
                                 node.getSpecification(),
+                                node.getRankingFunction(),
                                 node.getRowNumberSymbol(),
                                 node.getMaxRowCountPerPartition(),
                                 true,
@@ -438,9 +457,21 @@ public class AddExchanges
             }
 
             if (isDistributedSortEnabled(session)) {
+                Optional<Partitioning> rangePartitioning = getSortRangePartitioning(node);
                 child = planChild(node, PreferredProperties.any());
-                // insert round robin exchange to eliminate skewness issues
-                PlanNode source = roundRobinExchange(idAllocator.getNextId(), REMOTE, child.getNode());
+                PlanNode source;
+                if (rangePartitioning.isPresent()) {
+                    // partition by ranges of the first sort key, so that the sorted partitions can be concatenated in order
+                    source = partitionedExchange(
+                            idAllocator.getNextId(),
+                            REMOTE,
+                            child.getNode(),
+                            new PartitioningScheme(rangePartitioning.get(), child.getNode().getOutputSymbols()));
+                }
+                else {
+                    // insert round robin exchange to eliminate skewness issues
+                    source = roundRobinExchange(idAllocator.getNextId(), REMOTE, child.getNode());
+                }
                 return withDerivedProperties(
                         mergingExchange(
                                 idAllocator.getNextId(),
@@ -463,6 +494,38 @@ public class AddExchanges
             return rebaseAndDeriveProperties(node, child);
         }
 
+        private Optional<Partitioning> getSortRangePartitioning(SortNode node)
+        {
+            if (!isRangePartitionedSortEnabled(session)) {
+                return Optional.empty();
+            }
+
+            Symbol sortKey = node.getOrderingScheme().getOrderBy().get(0);
+            if (!isRangePartitioningSupported(types.get(sortKey))) {
+                return Optional.empty();
+            }
+
+            // range boundaries are derived from the estimated value range of the first sort key
+            SymbolStatsEstimate keyStats = statsProvider.getStats(node.getSource()).getSymbolStatistics(sortKey);
+            double low = keyStats.getLowValue();
+            double high = keyStats.getHighValue();
+            int rangeCount = getHashPartitionCount(session);
+            if (!isFinite(low) || !isFinite(high) || low >= high || rangeCount < 2) {
+                return Optional.empty();
+            }
+
+            SortOrder sortOrder = node.getOrderingScheme().getOrdering(sortKey);
+            ImmutableList.Builder<ArgumentBinding> arguments = ImmutableList.builder();
+            arguments.add(ArgumentBinding.expressionBinding(sortKey.toSymbolReference()));
+            arguments.add(ArgumentBinding.constantBinding(new NullableValue(BOOLEAN, sortOrder.isAscending())));
+            arguments.add(ArgumentBinding.constantBinding(new NullableValue(BOOLEAN, sortOrder.isNullsFirst())));
+            for (int range = 1; range < rangeCount; range++) {
+                double boundary = low + (high - low) * range / rangeCount;
+                arguments.add(ArgumentBinding.constantBinding(new NullableValue(DOUBLE, boundary)));
+            }
+            return Optional.of(Partitioning.createWithArguments(FIXED_RANGE_DISTRIBUTION, arguments.build()));
+        }
+
         @Override
         public PlanWithProperties visitLimit(LimitNode node, PreferredProperties preferredProperties)
         {
@@ -42,6 +42,7 @@ import io.prestosql.sql.planner.plan.IndexJoinNode;
 import io.prestosql.sql.planner.plan.JoinNode;
 import io.prestosql.sql.planner.plan.LimitNode;
 import io.prestosql.sql.planner.plan.MarkDistinctNode;
+import io.prestosql.sql.planner.plan.MergeJoinNode;
 import io.prestosql.sql.planner.plan.OutputNode;
 import io.prestosql.sql.planner.plan.PlanNode;
 import io.prestosql.sql.planner.plan.PlanVisitor;
@@ -71,6 +72,7 @@ import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Verify.verify;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static com.google.common.collect.Iterables.getOnlyElement;
 import static io.prestosql.SystemSessionProperties.getTaskConcurrency;
 import static io.prestosql.SystemSessionProperties.getTaskWriterCount;
 import static io.prestosql.SystemSessionProperties.isDistributedSortEnabled;
@@ -556,7 +558,25 @@ public class AddLocalExchanges
                 requiredProperties = singleStream();
                 preferredProperties = defaultParallelism(session);
             }
-            return planAndEnforceChildren(node, requiredProperties, preferredProperties);
+            PlanWithProperties result = planAndEnforceChildren(node, requiredProperties, preferredProperties);
+            if (node.getPartitioningScheme().map(PartitioningScheme::isSkewedPartitionRebalancingAllowed).orElse(false)) {
+                // writers do not depend on seeing all rows of a partition, so the local exchange may spread hot partitions as well
+                PlanNode source = getOnlyElement(result.getNode().getSources());
+                if (source instanceof ExchangeNode && ((ExchangeNode) source).getScope() == LOCAL &&
+                        ((ExchangeNode) source).getPartitioningScheme().getPartitioning().getHandle().equals(FIXED_HASH_DISTRIBUTION)) {
+                    ExchangeNode exchange = (ExchangeNode) source;
+                    ExchangeNode rebalancingExchange = new ExchangeNode(
+                            exchange.getId(),
+                            exchange.getType(),
+                            exchange.getScope(),
+                            exchange.getPartitioningScheme().withSkewedPartitionRebalancing(true),
+                            exchange.getSources(),
+                            exchange.getInputs(),
+                            exchange.getOrderingScheme());
+                    return new PlanWithProperties(replaceChildren(result.getNode(), ImmutableList.of(rebalancingExchange)), result.getProperties());
+                }
+            }
+            return result;
         }
 
         //
@@ -706,6 +726,13 @@ public class AddLocalExchanges
             return rebaseAndDeriveProperties(node, ImmutableList.of(probe, build));
         }
 
+        @Override
+        public PlanWithProperties visitMergeJoin(MergeJoinNode node, StreamPreferredProperties parentPreferences)
+        {
+            // local exchanges would interleave the sorted input streams, so both sides are planned as they are
+            return planAndEnforceChildren(node, any(), any());
+        }
+
         @Override
         public PlanWithProperties visitIndexJoin(IndexJoinNode node, StreamPreferredProperties parentPreferences)
         {
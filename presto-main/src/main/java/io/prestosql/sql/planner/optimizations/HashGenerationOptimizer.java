@@ -48,6 +48,7 @@ import io.prestosql.sql.planner.plan.IndexJoinNode;
 import io.prestosql.sql.planner.plan.IndexJoinNode.EquiJoinClause;
 import io.prestosql.sql.planner.plan.JoinNode;
 import io.prestosql.sql.planner.plan.MarkDistinctNode;
+import io.prestosql.sql.planner.plan.MergeJoinNode;
 import io.prestosql.sql.planner.plan.PlanNode;
 import io.prestosql.sql.planner.plan.PlanVisitor;
 import io.prestosql.sql.planner.plan.ProjectNode;
@@ -297,6 +298,7 @@ public class HashGenerationOptimizer
                             node.getId(),
                             child.getNode(),
                             node.getSpecification(),
+                            node.getRankingFunction(),
                             node.getRowNumberSymbol(),
                             node.getMaxRowCountPerPartition(),
                             node.isPartial(),
@@ -431,6 +433,18 @@ public class HashGenerationOptimizer
                     ImmutableMap.of());
         }
 
+        @Override
+        public PlanWithProperties visitMergeJoin(MergeJoinNode node, HashComputationSet parentPreference)
+        {
+            PlanWithProperties left = planAndEnforce(node.getLeft(), new HashComputationSet(), true, new HashComputationSet());
+            PlanWithProperties right = planAndEnforce(node.getRight(), new HashComputationSet(), true, new HashComputationSet());
+            verify(left.getHashSymbols().isEmpty(), "left side of the merge join should not include hash symbols");
+            verify(right.getHashSymbols().isEmpty(), "right side of the merge join should not include hash symbols");
+            return new PlanWithProperties(
+                    replaceChildren(node, ImmutableList.of(left.getNode(), right.getNode())),
+                    ImmutableMap.of());
+        }
+
         @Override
         public PlanWithProperties visitIndexJoin(IndexJoinNode node, HashComputationSet parentPreference)
         {
@@ -59,6 +59,7 @@ import static com.google.common.collect.ImmutableMap.toImmutableMap;
 import static io.prestosql.spi.type.BigintType.BIGINT;
 import static io.prestosql.sql.planner.optimizations.SymbolMapper.symbolMapper;
 import static io.prestosql.sql.planner.plan.AggregationNode.singleGroupingSet;
+import static io.prestosql.sql.planner.plan.TopNRowNumberNode.RankingFunction.ROW_NUMBER;
 import static io.prestosql.sql.tree.ComparisonExpression.Operator.EQUAL;
 import static java.lang.Math.toIntExact;
 import static java.util.Objects.requireNonNull;
@@ -322,6 +323,7 @@ public class PlanNodeDecorrelator
                                 new Specification(
                                         ImmutableList.copyOf(childDecorrelationResult.symbolsToPropagate),
                                         Optional.of(orderingScheme)),
+                                ROW_NUMBER,
                                 symbolAllocator.newSymbol("row_number", BIGINT),
                                 toIntExact(node.getCount()),
                                 false,
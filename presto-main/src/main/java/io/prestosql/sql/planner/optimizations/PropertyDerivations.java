@@ -55,6 +55,7 @@ import io.prestosql.sql.planner.plan.IndexSourceNode;
 import io.prestosql.sql.planner.plan.JoinNode;
 import io.prestosql.sql.planner.plan.LimitNode;
 import io.prestosql.sql.planner.plan.MarkDistinctNode;
+import io.prestosql.sql.planner.plan.MergeJoinNode;
 import io.prestosql.sql.planner.plan.OutputNode;
 import io.prestosql.sql.planner.plan.PlanNode;
 import io.prestosql.sql.planner.plan.PlanVisitor;
@@ -454,6 +455,22 @@ public final class PropertyDerivations
             return inputProperties.get(0);
         }
 
+        @Override
+        public ActualProperties visitMergeJoin(MergeJoinNode node, List<ActualProperties> inputProperties)
+        {
+            ActualProperties probeProperties = inputProperties.get(0).translate(column -> filterOrRewrite(node.getOutputSymbols(), node.getCriteria(), column));
+            ActualProperties buildProperties = inputProperties.get(1).translate(column -> filterOrRewrite(node.getOutputSymbols(), node.getCriteria(), column));
+
+            Map<Symbol, NullableValue> constants = new HashMap<>();
+            constants.putAll(probeProperties.getConstants());
+            constants.putAll(buildProperties.getConstants());
+
+            // the output of a merge join preserves the order of the probe side
+            return ActualProperties.builderFrom(probeProperties)
+                    .constants(constants)
+                    .build();
+        }
+
         @Override
         public ActualProperties visitSpatialJoin(SpatialJoinNode node, List<ActualProperties> inputProperties)
         {
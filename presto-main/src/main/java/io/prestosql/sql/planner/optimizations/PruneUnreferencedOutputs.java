@@ -642,6 +642,7 @@ public class PruneUnreferencedOutputs
                     node.getId(),
                     source,
                     node.getSpecification(),
+                    node.getRankingFunction(),
                     node.getRowNumberSymbol(),
                     node.getMaxRowCountPerPartition(),
                     node.isPartial(),
@@ -43,6 +43,7 @@ import io.prestosql.sql.planner.plan.IndexSourceNode;
 import io.prestosql.sql.planner.plan.JoinNode;
 import io.prestosql.sql.planner.plan.LimitNode;
 import io.prestosql.sql.planner.plan.MarkDistinctNode;
+import io.prestosql.sql.planner.plan.MergeJoinNode;
 import io.prestosql.sql.planner.plan.OutputNode;
 import io.prestosql.sql.planner.plan.PlanNode;
 import io.prestosql.sql.planner.plan.PlanVisitor;
@@ -210,6 +211,12 @@ public final class StreamPropertyDerivations
             return isSpillEnabled(session) && node.isSpillable().orElseThrow(() -> new IllegalArgumentException("spillable not yet set"));
         }
 
+        @Override
+        public StreamProperties visitMergeJoin(MergeJoinNode node, List<StreamProperties> inputProperties)
+        {
+            return inputProperties.get(0).translate(column -> PropertyDerivations.filterOrRewrite(node.getOutputSymbols(), node.getCriteria(), column));
+        }
+
         @Override
         public StreamProperties visitSpatialJoin(SpatialJoinNode node, List<StreamProperties> inputProperties)
         {
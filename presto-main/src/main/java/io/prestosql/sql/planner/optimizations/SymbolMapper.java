@@ -349,6 +349,7 @@ public class SymbolMapper
                 node.getId(),
                 source,
                 mapAndDistinct(node.getSpecification()),
+                node.getRankingFunction(),
                 map(node.getRowNumberSymbol()),
                 node.getMaxRowCountPerPartition(),
                 node.isPartial(),
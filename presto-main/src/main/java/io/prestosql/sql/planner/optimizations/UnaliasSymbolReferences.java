@@ -407,7 +407,8 @@ public class UnaliasSymbolReferences
                             node.getSourceFragmentIds(),
                             newOutputs,
                             newOrderingScheme,
-                            node.getExchangeType()),
+                            node.getExchangeType(),
+                            node.isOrderedPartitions()),
                     mapping);
         }
 
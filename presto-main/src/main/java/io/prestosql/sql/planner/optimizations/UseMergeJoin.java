@@ -0,0 +1,168 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.sql.planner.optimizations;
+
+import com.google.common.collect.ImmutableList;
+import io.prestosql.Session;
+import io.prestosql.execution.warnings.WarningCollector;
+import io.prestosql.metadata.Metadata;
+import io.prestosql.spi.block.SortOrder;
+import io.prestosql.spi.connector.LocalProperty;
+import io.prestosql.spi.connector.SortingProperty;
+import io.prestosql.spi.type.Type;
+import io.prestosql.sql.planner.PlanNodeIdAllocator;
+import io.prestosql.sql.planner.Symbol;
+import io.prestosql.sql.planner.SymbolAllocator;
+import io.prestosql.sql.planner.TypeAnalyzer;
+import io.prestosql.sql.planner.TypeProvider;
+import io.prestosql.sql.planner.plan.FilterNode;
+import io.prestosql.sql.planner.plan.JoinNode;
+import io.prestosql.sql.planner.plan.MergeJoinNode;
+import io.prestosql.sql.planner.plan.PlanNode;
+import io.prestosql.sql.planner.plan.ProjectNode;
+import io.prestosql.sql.planner.plan.SimplePlanRewriter;
+import io.prestosql.sql.planner.plan.TableScanNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static io.prestosql.SystemSessionProperties.isGroupedExecutionEnabled;
+import static io.prestosql.SystemSessionProperties.isMergeJoinEnabled;
+import static io.prestosql.sql.planner.optimizations.PropertyDerivations.derivePropertiesRecursively;
+import static io.prestosql.sql.planner.plan.JoinNode.Type.INNER;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Replaces inner equi-joins with merge joins when both inputs are table scans
+ * that are sorted on the join keys in the same order, as is the case for
+ * co-located joins of tables bucketed and sorted on the join keys.
+ * <p>
+ * A merge join needs one sorted stream per side, which only grouped execution
+ * over the buckets of the tables provides, so this requires grouped execution
+ * and bucketed tables. When the fragment ends up not using grouped execution
+ * for the scans, {@link io.prestosql.sql.planner.LocalExecutionPlanner} falls
+ * back to a hash join.
+ * <p>
+ * Dynamic filters produced by the replaced joins are dropped, so
+ * {@link io.prestosql.sql.planner.iterative.rule.RemoveUnsupportedDynamicFilters}
+ * has to run after this optimizer.
+ */
+public class UseMergeJoin
+        implements PlanOptimizer
+{
+    private final Metadata metadata;
+    private final TypeAnalyzer typeAnalyzer;
+
+    public UseMergeJoin(Metadata metadata, TypeAnalyzer typeAnalyzer)
+    {
+        this.metadata = requireNonNull(metadata, "metadata is null");
+        this.typeAnalyzer = requireNonNull(typeAnalyzer, "typeAnalyzer is null");
+    }
+
+    @Override
+    public PlanNode optimize(PlanNode plan, Session session, TypeProvider types, SymbolAllocator symbolAllocator, PlanNodeIdAllocator idAllocator, WarningCollector warningCollector)
+    {
+        if (!isMergeJoinEnabled(session) || !isGroupedExecutionEnabled(session)) {
+            return plan;
+        }
+        return SimplePlanRewriter.rewriteWith(new Rewriter(session, types), plan, null);
+    }
+
+    private class Rewriter
+            extends SimplePlanRewriter<Void>
+    {
+        private final Session session;
+        private final TypeProvider types;
+
+        public Rewriter(Session session, TypeProvider types)
+        {
+            this.session = requireNonNull(session, "session is null");
+            this.types = requireNonNull(types, "types is null");
+        }
+
+        @Override
+        public PlanNode visitJoin(JoinNode node, RewriteContext<Void> context)
+        {
+            JoinNode join = (JoinNode) context.defaultRewrite(node);
+            if (join.getType() != INNER ||
+                    join.getCriteria().isEmpty() ||
+                    join.getFilter().isPresent() ||
+                    !isSortedScan(join.getLeft()) ||
+                    !isSortedScan(join.getRight())) {
+                return join;
+            }
+
+            for (JoinNode.EquiJoinClause clause : join.getCriteria()) {
+                Type leftType = types.get(clause.getLeft());
+                if (!leftType.isOrderable() || !leftType.equals(types.get(clause.getRight()))) {
+                    return join;
+                }
+            }
+
+            List<LocalProperty<Symbol>> leftProperties = derivePropertiesRecursively(join.getLeft(), metadata, session, types, typeAnalyzer).getLocalProperties();
+            List<LocalProperty<Symbol>> rightProperties = derivePropertiesRecursively(join.getRight(), metadata, session, types, typeAnalyzer).getLocalProperties();
+            if (leftProperties.size() < join.getCriteria().size() || rightProperties.size() < join.getCriteria().size()) {
+                return join;
+            }
+
+            // order the join criteria the way the left side is sorted, and require the right side to be sorted the same way
+            List<JoinNode.EquiJoinClause> remaining = new ArrayList<>(join.getCriteria());
+            ImmutableList.Builder<JoinNode.EquiJoinClause> criteria = ImmutableList.builder();
+            ImmutableList.Builder<SortOrder> sortOrders = ImmutableList.builder();
+            for (int i = 0; i < join.getCriteria().size(); i++) {
+                Optional<SortingProperty<Symbol>> leftSorting = asSortingProperty(leftProperties.get(i));
+                Optional<SortingProperty<Symbol>> rightSorting = asSortingProperty(rightProperties.get(i));
+                if (leftSorting.isEmpty() || rightSorting.isEmpty() || leftSorting.get().getOrder() != rightSorting.get().getOrder()) {
+                    return join;
+                }
+                JoinNode.EquiJoinClause clause = new JoinNode.EquiJoinClause(leftSorting.get().getColumn(), rightSorting.get().getColumn());
+                if (!remaining.remove(clause)) {
+                    return join;
+                }
+                criteria.add(clause);
+                sortOrders.add(leftSorting.get().getOrder());
+            }
+
+            return new MergeJoinNode(
+                    join.getId(),
+                    join.getLeft(),
+                    join.getRight(),
+                    criteria.build(),
+                    sortOrders.build(),
+                    join.getLeftOutputSymbols(),
+                    join.getRightOutputSymbols());
+        }
+
+        private boolean isSortedScan(PlanNode node)
+        {
+            // exchanges would interleave the sorted streams of the table scans
+            if (node instanceof FilterNode || node instanceof ProjectNode) {
+                return isSortedScan(node.getSources().get(0));
+            }
+            // the buckets of the table are the lifespans of grouped execution
+            return node instanceof TableScanNode &&
+                    metadata.getTableProperties(session, ((TableScanNode) node).getTable()).getTablePartitioning().isPresent();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Optional<SortingProperty<Symbol>> asSortingProperty(LocalProperty<Symbol> property)
+    {
+        if (property instanceof SortingProperty) {
+            return Optional.of((SortingProperty<Symbol>) property);
+        }
+        return Optional.empty();
+    }
+}
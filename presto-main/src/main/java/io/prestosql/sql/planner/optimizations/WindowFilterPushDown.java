@@ -14,6 +14,7 @@
 package io.prestosql.sql.planner.optimizations;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import io.prestosql.Session;
 import io.prestosql.execution.warnings.WarningCollector;
 import io.prestosql.metadata.FunctionId;
@@ -34,12 +35,14 @@ import io.prestosql.sql.planner.plan.PlanNode;
 import io.prestosql.sql.planner.plan.RowNumberNode;
 import io.prestosql.sql.planner.plan.SimplePlanRewriter;
 import io.prestosql.sql.planner.plan.TopNRowNumberNode;
+import io.prestosql.sql.planner.plan.TopNRowNumberNode.RankingFunction;
 import io.prestosql.sql.planner.plan.ValuesNode;
 import io.prestosql.sql.planner.plan.WindowNode;
 import io.prestosql.sql.tree.BooleanLiteral;
 import io.prestosql.sql.tree.Expression;
 import io.prestosql.sql.tree.QualifiedName;
 
+import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
 
@@ -53,6 +56,7 @@ import static io.prestosql.spi.type.BigintType.BIGINT;
 import static io.prestosql.sql.planner.DomainTranslator.ExtractionResult;
 import static io.prestosql.sql.planner.DomainTranslator.fromPredicate;
 import static io.prestosql.sql.planner.plan.ChildReplacer.replaceChildren;
+import static io.prestosql.sql.planner.plan.TopNRowNumberNode.RankingFunction.ROW_NUMBER;
 import static java.lang.Math.toIntExact;
 import static java.util.Objects.requireNonNull;
 
@@ -88,7 +92,7 @@ public class WindowFilterPushDown
         private final DomainTranslator domainTranslator;
         private final Session session;
         private final TypeProvider types;
-        private final FunctionId rowNumberFunctionId;
+        private final Map<FunctionId, RankingFunction> rankingFunctions;
 
         private Rewriter(PlanNodeIdAllocator idAllocator, Metadata metadata, DomainTranslator domainTranslator, Session session, TypeProvider types)
         {
@@ -97,7 +101,11 @@ public class WindowFilterPushDown
             this.domainTranslator = requireNonNull(domainTranslator, "domainTranslator is null");
             this.session = requireNonNull(session, "session is null");
             this.types = requireNonNull(types, "types is null");
-            rowNumberFunctionId = metadata.resolveFunction(QualifiedName.of("row_number"), ImmutableList.of()).getFunctionId();
+            ImmutableMap.Builder<FunctionId, RankingFunction> builder = ImmutableMap.builder();
+            for (RankingFunction rankingFunction : RankingFunction.values()) {
+                builder.put(metadata.resolveFunction(QualifiedName.of(rankingFunction.getName()), ImmutableList.of()).getFunctionId(), rankingFunction);
+            }
+            this.rankingFunctions = builder.build();
         }
 
         @Override
@@ -149,7 +157,8 @@ public class WindowFilterPushDown
                 // verify that unordered row_number window functions are replaced by RowNumberNode
                 verify(windowNode.getOrderingScheme().isPresent());
                 TopNRowNumberNode topNRowNumberNode = convertToTopNRowNumber(windowNode, limit);
-                if (windowNode.getPartitionBy().isEmpty()) {
+                // rank() and dense_rank() may produce more than limit rows because of ties
+                if (windowNode.getPartitionBy().isEmpty() && topNRowNumberNode.getRankingFunction() == ROW_NUMBER) {
                     return topNRowNumberNode;
                 }
                 source = topNRowNumberNode;
@@ -279,6 +288,7 @@ public class WindowFilterPushDown
             return new TopNRowNumberNode(idAllocator.getNextId(),
                     windowNode.getSource(),
                     windowNode.getSpecification(),
+                    getRankingFunction(windowNode).get(),
                     getOnlyElement(windowNode.getWindowFunctions().keySet()),
                     limit,
                     false,
@@ -287,7 +297,7 @@ public class WindowFilterPushDown
 
         private boolean canReplaceWithRowNumber(WindowNode node)
         {
-            return canOptimizeWindowFunction(node) && node.getOrderingScheme().isEmpty();
+            return canOptimizeWindowFunction(node) && getRankingFunction(node).get() == ROW_NUMBER && node.getOrderingScheme().isEmpty();
         }
 
         private boolean canOptimizeWindowFunction(WindowNode node)
@@ -295,8 +305,18 @@ public class WindowFilterPushDown
             if (node.getWindowFunctions().size() != 1) {
                 return false;
             }
-            Symbol rowNumberSymbol = getOnlyElement(node.getWindowFunctions().entrySet()).getKey();
-            return node.getWindowFunctions().get(rowNumberSymbol).getResolvedFunction().getFunctionId().equals(rowNumberFunctionId);
+            Optional<RankingFunction> rankingFunction = getRankingFunction(node);
+            if (rankingFunction.isEmpty()) {
+                return false;
+            }
+            // rank() and dense_rank() without ORDER BY assign 1 to every row, so there is nothing to prune
+            return rankingFunction.get() == ROW_NUMBER || node.getOrderingScheme().isPresent();
+        }
+
+        private Optional<RankingFunction> getRankingFunction(WindowNode node)
+        {
+            Symbol rankingSymbol = getOnlyElement(node.getWindowFunctions().entrySet()).getKey();
+            return Optional.ofNullable(rankingFunctions.get(node.getWindowFunctions().get(rankingSymbol).getResolvedFunction().getFunctionId()));
         }
     }
 }
@@ -0,0 +1,81 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.sql.planner.plan;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
+import io.prestosql.sql.planner.Symbol;
+
+import javax.annotation.concurrent.Immutable;
+
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Produces the result of the query from the coordinator result cache. The cached pages
+ * are pinned for the query when it is planned, and looked up by query id when executed.
+ */
+@Immutable
+public class CachedResultNode
+        extends PlanNode
+{
+    private final List<Symbol> outputSymbols;
+    private final String cacheKey;
+
+    @JsonCreator
+    public CachedResultNode(
+            @JsonProperty("id") PlanNodeId id,
+            @JsonProperty("outputSymbols") List<Symbol> outputSymbols,
+            @JsonProperty("cacheKey") String cacheKey)
+    {
+        super(id);
+        this.outputSymbols = ImmutableList.copyOf(requireNonNull(outputSymbols, "outputSymbols is null"));
+        this.cacheKey = requireNonNull(cacheKey, "cacheKey is null");
+    }
+
+    @Override
+    @JsonProperty
+    public List<Symbol> getOutputSymbols()
+    {
+        return outputSymbols;
+    }
+
+    @JsonProperty
+    public String getCacheKey()
+    {
+        return cacheKey;
+    }
+
+    @Override
+    public List<PlanNode> getSources()
+    {
+        return ImmutableList.of();
+    }
+
+    @Override
+    public <R, C> R accept(PlanVisitor<R, C> visitor, C context)
+    {
+        return visitor.visitCachedResult(this, context);
+    }
+
+    @Override
+    public PlanNode replaceChildren(List<PlanNode> newChildren)
+    {
+        checkArgument(newChildren.isEmpty(), "newChildren is not empty");
+        return this;
+    }
+}
@@ -30,6 +30,7 @@ import static java.util.Objects.requireNonNull;
         @JsonSubTypes.Type(value = ProjectNode.class, name = "project"),
         @JsonSubTypes.Type(value = TableScanNode.class, name = "tablescan"),
         @JsonSubTypes.Type(value = ValuesNode.class, name = "values"),
+        @JsonSubTypes.Type(value = CachedResultNode.class, name = "cachedResult"),
         @JsonSubTypes.Type(value = AggregationNode.class, name = "aggregation"),
         @JsonSubTypes.Type(value = MarkDistinctNode.class, name = "markDistinct"),
         @JsonSubTypes.Type(value = FilterNode.class, name = "filter"),
@@ -45,6 +46,7 @@ import static java.util.Objects.requireNonNull;
         @JsonSubTypes.Type(value = JoinNode.class, name = "join"),
         @JsonSubTypes.Type(value = SemiJoinNode.class, name = "semijoin"),
         @JsonSubTypes.Type(value = SpatialJoinNode.class, name = "spatialjoin"),
+        @JsonSubTypes.Type(value = MergeJoinNode.class, name = "mergejoin"),
         @JsonSubTypes.Type(value = IndexJoinNode.class, name = "indexjoin"),
         @JsonSubTypes.Type(value = IndexSourceNode.class, name = "indexsource"),
         @JsonSubTypes.Type(value = TableWriterNode.class, name = "tablewriter"),
@@ -84,6 +84,11 @@ public abstract class PlanVisitor<R, C>
         return visitPlan(node, context);
     }
 
+    public R visitCachedResult(CachedResultNode node, C context)
+    {
+        return visitPlan(node, context);
+    }
+
     public R visitIndexSource(IndexSourceNode node, C context)
     {
         return visitPlan(node, context);
@@ -104,6 +109,11 @@ public abstract class PlanVisitor<R, C>
         return visitPlan(node, context);
     }
 
+    public R visitMergeJoin(MergeJoinNode node, C context)
+    {
+        return visitPlan(node, context);
+    }
+
     public R visitIndexJoin(IndexJoinNode node, C context)
     {
         return visitPlan(node, context);
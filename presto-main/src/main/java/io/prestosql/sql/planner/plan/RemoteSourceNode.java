@@ -35,6 +35,7 @@ public class RemoteSourceNode
     private final List<Symbol> outputs;
     private final Optional<OrderingScheme> orderingScheme;
     private final ExchangeNode.Type exchangeType; // This is needed to "unfragment" to compute stats correctly.
+    private final boolean orderedPartitions;
 
     @JsonCreator
     public RemoteSourceNode(
@@ -42,7 +43,8 @@ public class RemoteSourceNode
             @JsonProperty("sourceFragmentIds") List<PlanFragmentId> sourceFragmentIds,
             @JsonProperty("outputs") List<Symbol> outputs,
             @JsonProperty("orderingScheme") Optional<OrderingScheme> orderingScheme,
-            @JsonProperty("exchangeType") ExchangeNode.Type exchangeType)
+            @JsonProperty("exchangeType") ExchangeNode.Type exchangeType,
+            @JsonProperty("orderedPartitions") boolean orderedPartitions)
     {
         super(id);
 
@@ -52,11 +54,13 @@ public class RemoteSourceNode
         this.outputs = ImmutableList.copyOf(outputs);
         this.orderingScheme = requireNonNull(orderingScheme, "orderingScheme is null");
         this.exchangeType = requireNonNull(exchangeType, "exchangeType is null");
+        this.orderedPartitions = orderedPartitions;
+        checkArgument(!orderedPartitions || orderingScheme.isPresent(), "orderedPartitions requires orderingScheme");
     }
 
     public RemoteSourceNode(PlanNodeId id, PlanFragmentId sourceFragmentId, List<Symbol> outputs, Optional<OrderingScheme> orderingScheme, ExchangeNode.Type exchangeType)
     {
-        this(id, ImmutableList.of(sourceFragmentId), outputs, orderingScheme, exchangeType);
+        this(id, ImmutableList.of(sourceFragmentId), outputs, orderingScheme, exchangeType, false);
     }
 
     @Override
@@ -90,6 +94,16 @@ public class RemoteSourceNode
         return exchangeType;
     }
 
+    /**
+     * True if the source partitions hold consecutive ranges of the ordering,
+     * so that they can be concatenated in partition order instead of merged.
+     */
+    @JsonProperty("orderedPartitions")
+    public boolean isOrderedPartitions()
+    {
+        return orderedPartitions;
+    }
+
     @Override
     public <R, C> R accept(PlanVisitor<R, C> visitor, C context)
     {
@@ -34,8 +34,28 @@ import static java.util.Objects.requireNonNull;
 public final class TopNRowNumberNode
         extends PlanNode
 {
+    public enum RankingFunction
+    {
+        ROW_NUMBER("row_number"),
+        RANK("rank"),
+        DENSE_RANK("dense_rank");
+
+        private final String name;
+
+        RankingFunction(String name)
+        {
+            this.name = name;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+    }
+
     private final PlanNode source;
     private final Specification specification;
+    private final RankingFunction rankingFunction;
     private final Symbol rowNumberSymbol;
     private final int maxRowCountPerPartition;
     private final boolean partial;
@@ -46,6 +66,7 @@ public final class TopNRowNumberNode
             @JsonProperty("id") PlanNodeId id,
             @JsonProperty("source") PlanNode source,
             @JsonProperty("specification") Specification specification,
+            @JsonProperty("rankingFunction") RankingFunction rankingFunction,
             @JsonProperty("rowNumberSymbol") Symbol rowNumberSymbol,
             @JsonProperty("maxRowCountPerPartition") int maxRowCountPerPartition,
             @JsonProperty("partial") boolean partial,
@@ -56,12 +77,14 @@ public final class TopNRowNumberNode
         requireNonNull(source, "source is null");
         requireNonNull(specification, "specification is null");
         checkArgument(specification.getOrderingScheme().isPresent(), "specification orderingScheme is absent");
+        requireNonNull(rankingFunction, "rankingFunction is null");
         requireNonNull(rowNumberSymbol, "rowNumberSymbol is null");
         checkArgument(maxRowCountPerPartition > 0, "maxRowCountPerPartition must be > 0");
         requireNonNull(hashSymbol, "hashSymbol is null");
 
         this.source = source;
         this.specification = specification;
+        this.rankingFunction = rankingFunction;
         this.rowNumberSymbol = rowNumberSymbol;
         this.maxRowCountPerPartition = maxRowCountPerPartition;
         this.partial = partial;
@@ -95,6 +118,12 @@ public final class TopNRowNumberNode
         return specification;
     }
 
+    @JsonProperty
+    public RankingFunction getRankingFunction()
+    {
+        return rankingFunction;
+    }
+
     public List<Symbol> getPartitionBy()
     {
         return specification.getPartitionBy();
@@ -138,6 +167,6 @@ public final class TopNRowNumberNode
     @Override
     public PlanNode replaceChildren(List<PlanNode> newChildren)
     {
-        return new TopNRowNumberNode(getId(), Iterables.getOnlyElement(newChildren), specification, rowNumberSymbol, maxRowCountPerPartition, partial, hashSymbol);
+        return new TopNRowNumberNode(getId(), Iterables.getOnlyElement(newChildren), specification, rankingFunction, rowNumberSymbol, maxRowCountPerPartition, partial, hashSymbol);
     }
 }
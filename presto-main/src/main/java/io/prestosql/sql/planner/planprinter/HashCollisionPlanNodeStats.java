@@ -29,6 +29,7 @@ public class HashCollisionPlanNodeStats
         extends PlanNodeStats
 {
     private final Map<String, OperatorHashCollisionsStats> operatorHashCollisionsStats;
+    private final long passThroughPositions;
 
     public HashCollisionPlanNodeStats(
             PlanNodeId planNodeId,
@@ -39,10 +40,12 @@ public class HashCollisionPlanNodeStats
             long planNodeOutputPositions,
             DataSize planNodeOutputDataSize,
             Map<String, OperatorInputStats> operatorInputStats,
-            Map<String, OperatorHashCollisionsStats> operatorHashCollisionsStats)
+            Map<String, OperatorHashCollisionsStats> operatorHashCollisionsStats,
+            long passThroughPositions)
     {
         super(planNodeId, planNodeScheduledTime, planNodeCpuTime, planNodeInputPositions, planNodeInputDataSize, planNodeOutputPositions, planNodeOutputDataSize, operatorInputStats);
         this.operatorHashCollisionsStats = requireNonNull(operatorHashCollisionsStats, "operatorHashCollisionsStats is null");
+        this.passThroughPositions = passThroughPositions;
     }
 
     public Map<String, Double> getOperatorHashCollisionsAverages()
@@ -80,11 +83,20 @@ public class HashCollisionPlanNodeStats
                         entry -> entry.getValue().getWeightedExpectedHashCollisions() / operatorInputStats.get(entry.getKey()).getInputPositions()));
     }
 
+    /**
+     * Number of rows that bypassed partial aggregation after it was disabled at runtime.
+     */
+    public long getPassThroughPositions()
+    {
+        return passThroughPositions;
+    }
+
     @Override
     public PlanNodeStats mergeWith(PlanNodeStats other)
     {
         checkArgument(other instanceof HashCollisionPlanNodeStats, "other is not an instanceof HashCollisionPlanNodeStats");
         PlanNodeStats merged = super.mergeWith(other);
+        HashCollisionPlanNodeStats otherStats = (HashCollisionPlanNodeStats) other;
 
         return new HashCollisionPlanNodeStats(
                 merged.getPlanNodeId(),
@@ -95,6 +107,7 @@ public class HashCollisionPlanNodeStats
                 merged.getPlanNodeOutputPositions(),
                 merged.getPlanNodeOutputDataSize(),
                 merged.operatorInputStats,
-                operatorHashCollisionsStats);
+                operatorHashCollisionsStats,
+                passThroughPositions + otherStats.getPassThroughPositions());
     }
 }
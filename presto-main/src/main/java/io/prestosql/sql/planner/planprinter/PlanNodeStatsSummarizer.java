@@ -17,6 +17,7 @@ import com.google.common.collect.ImmutableMap;
 import io.airlift.units.Duration;
 import io.prestosql.execution.StageInfo;
 import io.prestosql.execution.TaskInfo;
+import io.prestosql.operator.HashAggregationInfo;
 import io.prestosql.operator.HashCollisionsInfo;
 import io.prestosql.operator.OperatorStats;
 import io.prestosql.operator.PipelineStats;
@@ -80,6 +81,7 @@ public final class PlanNodeStatsSummarizer
 
         Map<PlanNodeId, Map<String, OperatorInputStats>> operatorInputStats = new HashMap<>();
         Map<PlanNodeId, Map<String, OperatorHashCollisionsStats>> operatorHashCollisionsStats = new HashMap<>();
+        Map<PlanNodeId, Long> planNodePassThroughPositions = new HashMap<>();
         Map<PlanNodeId, WindowOperatorStats> windowNodeStats = new HashMap<>();
 
         for (PipelineStats pipelineStats : taskStats.getPipelines()) {
@@ -120,8 +122,16 @@ public final class PlanNodeStatsSummarizer
                                         operatorStats.getSumSquaredInputPositions())),
                         (map1, map2) -> mergeMaps(map1, map2, OperatorInputStats::merge));
 
+                HashCollisionsInfo hashCollisionsInfo = null;
                 if (operatorStats.getInfo() instanceof HashCollisionsInfo) {
-                    HashCollisionsInfo hashCollisionsInfo = (HashCollisionsInfo) operatorStats.getInfo();
+                    hashCollisionsInfo = (HashCollisionsInfo) operatorStats.getInfo();
+                }
+                if (operatorStats.getInfo() instanceof HashAggregationInfo) {
+                    HashAggregationInfo hashAggregationInfo = (HashAggregationInfo) operatorStats.getInfo();
+                    hashCollisionsInfo = hashAggregationInfo.getHashCollisionsInfo();
+                    planNodePassThroughPositions.merge(planNodeId, hashAggregationInfo.getPassThroughPositions(), Long::sum);
+                }
+                if (hashCollisionsInfo != null) {
                     operatorHashCollisionsStats.merge(planNodeId,
                             ImmutableMap.of(
                                     operatorStats.getOperatorType(),
@@ -186,7 +196,8 @@ public final class PlanNodeStatsSummarizer
                         outputPositions,
                         succinctBytes(planNodeOutputBytes.getOrDefault(planNodeId, 0L)),
                         operatorInputStats.get(planNodeId),
-                        operatorHashCollisionsStats.get(planNodeId));
+                        operatorHashCollisionsStats.get(planNodeId),
+                        planNodePassThroughPositions.getOrDefault(planNodeId, 0L));
             }
             else if (windowNodeStats.containsKey(planNodeId)) {
                 nodeStats = new WindowPlanNodeStats(
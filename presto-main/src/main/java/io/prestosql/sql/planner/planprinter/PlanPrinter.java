@@ -16,6 +16,7 @@ package io.prestosql.sql.planner.planprinter;
 import com.google.common.base.CaseFormat;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Streams;
 import io.airlift.units.Duration;
@@ -53,6 +54,7 @@ import io.prestosql.sql.planner.plan.AggregationNode.Aggregation;
 import io.prestosql.sql.planner.plan.ApplyNode;
 import io.prestosql.sql.planner.plan.AssignUniqueId;
 import io.prestosql.sql.planner.plan.Assignments;
+import io.prestosql.sql.planner.plan.CachedResultNode;
 import io.prestosql.sql.planner.plan.CorrelatedJoinNode;
 import io.prestosql.sql.planner.plan.DeleteNode;
 import io.prestosql.sql.planner.plan.DistinctLimitNode;
@@ -70,6 +72,7 @@ import io.prestosql.sql.planner.plan.IntersectNode;
 import io.prestosql.sql.planner.plan.JoinNode;
 import io.prestosql.sql.planner.plan.LimitNode;
 import io.prestosql.sql.planner.plan.MarkDistinctNode;
+import io.prestosql.sql.planner.plan.MergeJoinNode;
 import io.prestosql.sql.planner.plan.OffsetNode;
 import io.prestosql.sql.planner.plan.OutputNode;
 import io.prestosql.sql.planner.plan.PlanFragmentId;
@@ -360,6 +363,7 @@ public class PlanPrinter
                 new PartitioningScheme(Partitioning.create(SINGLE_DISTRIBUTION, ImmutableList.of()), plan.getOutputSymbols()),
                 ungroupedExecution(),
                 StatsAndCosts.empty(),
+                ImmutableMap.of(),
                 Optional.empty());
         return GraphvizPrinter.printLogical(ImmutableList.of(fragment));
     }
@@ -439,6 +443,22 @@ public class PlanPrinter
             return null;
         }
 
+        @Override
+        public Void visitMergeJoin(MergeJoinNode node, Void context)
+        {
+            List<Expression> joinExpressions = new ArrayList<>();
+            for (JoinNode.EquiJoinClause clause : node.getCriteria()) {
+                joinExpressions.add(unresolveFunctions(clause.toExpression()));
+            }
+
+            NodeRepresentation nodeOutput = addNode(node, "MergeInnerJoin", format("[%s]", Joiner.on(" AND ").join(joinExpressions)));
+            nodeOutput.appendDetailsLine("Sort orders: %s", node.getSortOrders());
+            node.getLeft().accept(this, context);
+            node.getRight().accept(this, context);
+
+            return null;
+        }
+
         @Override
         public Void visitSemiJoin(SemiJoinNode node, Void context)
         {
@@ -647,7 +667,7 @@ public class PlanPrinter
                     "TopNRowNumber",
                     format("[%s limit %s]%s", Joiner.on(", ").join(args), node.getMaxRowCountPerPartition(), formatHash(node.getHashSymbol())));
 
-            nodeOutput.appendDetailsLine("%s := %s", node.getRowNumberSymbol(), "row_number()");
+            nodeOutput.appendDetailsLine("%s := %s()", node.getRowNumberSymbol(), node.getRankingFunction().getName());
 
             return processChildren(node, context);
         }
@@ -706,6 +726,13 @@ public class PlanPrinter
             return null;
         }
 
+        @Override
+        public Void visitCachedResult(CachedResultNode node, Void context)
+        {
+            addNode(node, "CachedResult");
+            return null;
+        }
+
         @Override
         public Void visitFilter(FilterNode node, Void context)
         {
@@ -934,8 +961,15 @@ public class PlanPrinter
         @Override
         public Void visitRemoteSource(RemoteSourceNode node, Void context)
         {
+            String kind = "Source";
+            if (node.isOrderedPartitions()) {
+                kind = "Concat";
+            }
+            else if (node.getOrderingScheme().isPresent()) {
+                kind = "Merge";
+            }
             addNode(node,
-                    format("Remote%s", node.getOrderingScheme().isPresent() ? "Merge" : "Source"),
+                    format("Remote%s", kind),
                     format("[%s]", Joiner.on(',').join(node.getSourceFragmentIds())),
                     ImmutableList.of(),
                     ImmutableList.of(),
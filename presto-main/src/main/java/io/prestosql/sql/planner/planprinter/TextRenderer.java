@@ -133,6 +133,13 @@ public class TextRenderer
 
         printDistributions(output, nodeStats);
 
+        if (nodeStats instanceof HashCollisionPlanNodeStats) {
+            long passThroughPositions = ((HashCollisionPlanNodeStats) nodeStats).getPassThroughPositions();
+            if (passThroughPositions > 0) {
+                output.append(format("Partial aggregation disabled, pass-through rows: %s\n", formatPositions(passThroughPositions)));
+            }
+        }
+
         if (nodeStats instanceof WindowPlanNodeStats) {
             printWindowOperatorStats(output, ((WindowPlanNodeStats) nodeStats).getWindowOperatorStats());
         }
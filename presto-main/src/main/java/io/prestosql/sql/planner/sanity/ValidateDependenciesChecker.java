@@ -42,6 +42,7 @@ import io.prestosql.sql.planner.plan.IntersectNode;
 import io.prestosql.sql.planner.plan.JoinNode;
 import io.prestosql.sql.planner.plan.LimitNode;
 import io.prestosql.sql.planner.plan.MarkDistinctNode;
+import io.prestosql.sql.planner.plan.MergeJoinNode;
 import io.prestosql.sql.planner.plan.OffsetNode;
 import io.prestosql.sql.planner.plan.OutputNode;
 import io.prestosql.sql.planner.plan.PlanNode;
@@ -379,6 +380,25 @@ public final class ValidateDependenciesChecker
             return null;
         }
 
+        @Override
+        public Void visitMergeJoin(MergeJoinNode node, Set<Symbol> boundSymbols)
+        {
+            node.getLeft().accept(this, boundSymbols);
+            node.getRight().accept(this, boundSymbols);
+
+            Set<Symbol> leftInputs = createInputs(node.getLeft(), boundSymbols);
+            Set<Symbol> rightInputs = createInputs(node.getRight(), boundSymbols);
+
+            for (JoinNode.EquiJoinClause clause : node.getCriteria()) {
+                checkArgument(leftInputs.contains(clause.getLeft()), "Symbol from join clause (%s) not in left source (%s)", clause.getLeft(), node.getLeft().getOutputSymbols());
+                checkArgument(rightInputs.contains(clause.getRight()), "Symbol from join clause (%s) not in right source (%s)", clause.getRight(), node.getRight().getOutputSymbols());
+            }
+
+            checkDependencies(leftInputs, node.getLeftOutputSymbols(), "Invalid node. Left output symbols (%s) not in left source (%s)", node.getLeftOutputSymbols(), node.getLeft().getOutputSymbols());
+            checkDependencies(rightInputs, node.getRightOutputSymbols(), "Invalid node. Right output symbols (%s) not in right source (%s)", node.getRightOutputSymbols(), node.getRight().getOutputSymbols());
+            return null;
+        }
+
         @Override
         public Void visitSemiJoin(SemiJoinNode node, Set<Symbol> boundSymbols)
         {
@@ -24,6 +24,7 @@ import io.prestosql.sql.planner.plan.AggregationNode;
 import io.prestosql.sql.planner.plan.AggregationNode.Aggregation;
 import io.prestosql.sql.planner.plan.ApplyNode;
 import io.prestosql.sql.planner.plan.AssignUniqueId;
+import io.prestosql.sql.planner.plan.CachedResultNode;
 import io.prestosql.sql.planner.plan.CorrelatedJoinNode;
 import io.prestosql.sql.planner.plan.DistinctLimitNode;
 import io.prestosql.sql.planner.plan.EnforceSingleRowNode;
@@ -35,6 +36,7 @@ import io.prestosql.sql.planner.plan.IndexSourceNode;
 import io.prestosql.sql.planner.plan.JoinNode;
 import io.prestosql.sql.planner.plan.LimitNode;
 import io.prestosql.sql.planner.plan.MarkDistinctNode;
+import io.prestosql.sql.planner.plan.MergeJoinNode;
 import io.prestosql.sql.planner.plan.OutputNode;
 import io.prestosql.sql.planner.plan.PlanFragmentId;
 import io.prestosql.sql.planner.plan.PlanNode;
@@ -460,6 +462,13 @@ public final class GraphvizPrinter
             return null;
         }
 
+        @Override
+        public Void visitCachedResult(CachedResultNode node, Void context)
+        {
+            printNode(node, "CachedResult", NODE_COLORS.get(NodeType.TABLESCAN));
+            return null;
+        }
+
         @Override
         public Void visitEnforceSingleRow(EnforceSingleRowNode node, Void context)
         {
@@ -495,6 +504,23 @@ public final class GraphvizPrinter
             return null;
         }
 
+        @Override
+        public Void visitMergeJoin(MergeJoinNode node, Void context)
+        {
+            List<Expression> joinExpressions = new ArrayList<>();
+            for (JoinNode.EquiJoinClause clause : node.getCriteria()) {
+                joinExpressions.add(clause.toExpression());
+            }
+
+            String criteria = Joiner.on(" AND ").join(joinExpressions);
+            printNode(node, "MergeInnerJoin", criteria, NODE_COLORS.get(NodeType.JOIN));
+
+            node.getLeft().accept(this, context);
+            node.getRight().accept(this, context);
+
+            return null;
+        }
+
         @Override
         public Void visitSpatialJoin(SpatialJoinNode node, Void context)
         {
@@ -0,0 +1,333 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.execution;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.airlift.json.JsonCodec;
+import io.airlift.json.ObjectMapperProvider;
+import io.airlift.units.Duration;
+import io.prestosql.Session;
+import io.prestosql.cost.StatsAndCosts;
+import io.prestosql.execution.scheduler.SplitSchedulerStats;
+import io.prestosql.execution.warnings.WarningCollector;
+import io.prestosql.operator.Driver;
+import io.prestosql.operator.DriverContext;
+import io.prestosql.operator.ExchangeOperator;
+import io.prestosql.operator.Operator;
+import io.prestosql.operator.OperatorContext;
+import io.prestosql.operator.PipelineContext;
+import io.prestosql.operator.TaskContext;
+import io.prestosql.security.AllowAllAccessControl;
+import io.prestosql.spi.Page;
+import io.prestosql.spi.resourcegroups.ResourceGroupId;
+import io.prestosql.sql.planner.Partitioning;
+import io.prestosql.sql.planner.PartitioningScheme;
+import io.prestosql.sql.planner.PlanFragment;
+import io.prestosql.sql.planner.Symbol;
+import io.prestosql.sql.planner.plan.PlanFragmentId;
+import io.prestosql.sql.planner.plan.PlanNodeId;
+import io.prestosql.sql.planner.plan.ValuesNode;
+import io.prestosql.testing.NullOutputOperator;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.json.JsonCodec.jsonCodec;
+import static io.prestosql.SystemSessionProperties.TASK_TIMELINE_SAMPLING_RATIO;
+import static io.prestosql.execution.ExecutionTimeline.createExecutionTimeline;
+import static io.prestosql.execution.TaskInfo.createInitialTask;
+import static io.prestosql.metadata.MetadataManager.createTestMetadataManager;
+import static io.prestosql.operator.StageExecutionDescriptor.ungroupedExecution;
+import static io.prestosql.spi.type.BigintType.BIGINT;
+import static io.prestosql.sql.planner.SystemPartitioningHandle.SINGLE_DISTRIBUTION;
+import static io.prestosql.testing.TestingSession.testSessionBuilder;
+import static io.prestosql.testing.TestingTaskContext.createTaskContext;
+import static io.prestosql.transaction.InMemoryTransactionManager.createTestTransactionManager;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.Executors.newScheduledThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestExecutionTimeline
+{
+    private static final JsonCodec<ExecutionTimeline> CODEC = jsonCodec(ExecutionTimeline.class);
+    // task and pipeline times have millisecond resolution, while driver times are measured in microseconds
+    private static final long MILLISECOND_MICROS = 1_000;
+
+    private ExecutorService executor;
+    private ScheduledExecutorService scheduledExecutor;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        executor = newCachedThreadPool(daemonThreadsNamed("test-executor-%s"));
+        scheduledExecutor = newScheduledThreadPool(2, daemonThreadsNamed("test-scheduledExecutor-%s"));
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+    {
+        executor.shutdownNow();
+        scheduledExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testTraceEvents()
+            throws Exception
+    {
+        Session session = testSessionBuilder()
+                .setSystemProperty(TASK_TIMELINE_SAMPLING_RATIO, "1")
+                .build();
+        QueryStateMachine queryStateMachine = QueryStateMachine.begin(
+                "SELECT 1",
+                Optional.empty(),
+                session,
+                URI.create("fake://uri"),
+                new ResourceGroupId("test"),
+                false,
+                createTestTransactionManager(),
+                new AllowAllAccessControl(),
+                executor,
+                createTestMetadataManager(),
+                WarningCollector.NOOP,
+                Optional.empty());
+
+        // blocked listeners run on the thread that unblocks the operator, so the blocked interval is recorded when the future is set
+        TaskContext taskContext = createTaskContext(directExecutor(), scheduledExecutor, session);
+        PipelineContext pipelineContext = taskContext.addPipelineContext(0, true, true, false);
+
+        // the first driver is blocked on an exchange between two quanta
+        DriverContext runningDriverContext = pipelineContext.addDriverContext();
+        BlockedOperator operator = new BlockedOperator(runningDriverContext.addOperatorContext(0, new PlanNodeId("exchange"), ExchangeOperator.class.getSimpleName()));
+        Driver driver = Driver.createDriver(runningDriverContext, operator, new NullOutputOperator(runningDriverContext.addOperatorContext(1, new PlanNodeId("output"), NullOutputOperator.class.getSimpleName())));
+        ListenableFuture<?> blocked = driver.processFor(new Duration(1, SECONDS));
+        assertFalse(blocked.isDone());
+
+        // the second driver is created while the first one is running, and never starts
+        pipelineContext.addDriverContext();
+
+        // wait long enough for the first driver to overlap the second one at millisecond resolution
+        MILLISECONDS.sleep(5);
+        operator.unblock();
+        assertTrue(driver.processFor(new Duration(1, SECONDS)).isDone());
+        assertTrue(driver.isFinished());
+        MILLISECONDS.sleep(5);
+
+        TaskInfo taskInfo = createInitialTask(taskContext.getTaskId(), URI.create("fake://task"), "node", ImmutableList.of(), taskContext.getTaskStats());
+        StageStateMachine stageStateMachine = new StageStateMachine(
+                new StageId(session.getQueryId(), 0),
+                session,
+                createFragment(),
+                ImmutableMap.of(),
+                executor,
+                new SplitSchedulerStats());
+        QueryInfo queryInfo = queryStateMachine.updateQueryInfo(Optional.of(stageStateMachine.getStageInfo(() -> ImmutableList.of(taskInfo))));
+
+        JsonNode trace = new ObjectMapperProvider().get().readTree(CODEC.toJson(createExecutionTimeline(queryInfo)));
+        assertEquals(trace.get("displayTimeUnit").asText(), "ms");
+
+        List<JsonNode> events = ImmutableList.copyOf(trace.get("traceEvents"));
+        Set<String> namedThreads = new HashSet<>();
+        List<JsonNode> spans = new ArrayList<>();
+        for (JsonNode event : events) {
+            for (String field : ImmutableList.of("name", "cat", "ph", "ts", "dur", "pid", "tid", "args")) {
+                assertTrue(event.has(field), "event is missing " + field + ": " + event);
+            }
+            String phase = event.get("ph").asText();
+            if (phase.equals("M")) {
+                assertEquals(event.get("cat").asText(), "__metadata");
+                if (event.get("name").asText().equals("thread_name")) {
+                    namedThreads.add(thread(event));
+                }
+                continue;
+            }
+            assertEquals(phase, "X");
+            assertTrue(event.get("ts").asLong() >= 0, "span starts before the query: " + event);
+            assertTrue(event.get("dur").asLong() >= 0, "span has negative duration: " + event);
+            spans.add(event);
+        }
+        // every span is on a named thread
+        for (JsonNode span : spans) {
+            assertTrue(namedThreads.contains(thread(span)), "span is on an unnamed thread: " + span);
+        }
+
+        // the query and its stage are the first process
+        JsonNode query = onlySpan(spans, "query", 0, 0);
+        assertEquals(query.get("ts").asLong(), 0);
+        assertEquals(query.get("args").get("state").asText(), queryInfo.getState().toString());
+        JsonNode stage = onlySpan(spans, "stage 0", 0, 1);
+        assertEquals(stage.get("cat").asText(), "stage");
+        assertEquals(stage.get("args").get("tasks").asInt(), 1);
+        assertContains(query, stage, 0);
+
+        // the task is the second process, with a thread for the pipeline
+        JsonNode task = onlySpan(spans, "task", 1, 0);
+        assertEquals(task.get("args").get("state").asText(), taskInfo.getTaskStatus().getState().toString());
+        assertContains(query, task, 0);
+        JsonNode pipeline = onlySpan(spans, "pipeline 0", 1, 1);
+        assertEquals(pipeline.get("cat").asText(), "pipeline");
+        assertEquals(pipeline.get("args").get("drivers").asInt(), 2);
+        assertContains(task, pipeline, MILLISECOND_MICROS);
+
+        // the drivers overlap, so the one that never started is placed in the second lane
+        JsonNode driverSpan = onlySpan(spans, "driver", 1, 1000);
+        assertEquals(driverSpan.get("args").get("quanta").asInt(), 2);
+        assertEquals(driverSpan.get("args").get("blockedIntervals").asInt(), 1);
+        assertContains(task, driverSpan, MILLISECOND_MICROS);
+        JsonNode runningQueued = onlySpan(spans, "queued", 1, 1000);
+        assertEquals(runningQueued.get("ts").asLong() + runningQueued.get("dur").asLong(), driverSpan.get("ts").asLong());
+        JsonNode waitingQueued = onlySpan(spans, "queued", 1, 1002);
+        assertEquals(waitingQueued.get("cat").asText(), "driver");
+        assertEquals(waitingQueued.get("ts").asLong() + waitingQueued.get("dur").asLong(), task.get("ts").asLong() + task.get("dur").asLong());
+        assertContains(task, waitingQueued, MILLISECOND_MICROS);
+
+        // the quanta are in the lane of their driver, and the exchange wait is on the blocked thread below it
+        List<JsonNode> quanta = spans(spans, "quantum", 1, 1000);
+        assertEquals(quanta.size(), 2);
+        for (JsonNode quantum : quanta) {
+            assertTrue(quantum.get("args").has("cpuTime"));
+            assertContains(driverSpan, quantum, 0);
+        }
+        JsonNode exchangeWait = onlySpan(spans, ExchangeOperator.class.getSimpleName(), 1, 1001);
+        assertEquals(exchangeWait.get("cat").asText(), "exchange");
+        assertEquals(exchangeWait.get("args").get("operatorId").asInt(), 0);
+        assertEquals(exchangeWait.get("args").get("reason").asText(), "WAITING_FOR_OPERATOR");
+        assertContains(driverSpan, exchangeWait, 0);
+        // the operator is blocked during the first quantum, and unblocked before the second one
+        assertTrue(exchangeWait.get("ts").asLong() >= quanta.get(0).get("ts").asLong());
+        assertTrue(exchangeWait.get("ts").asLong() + exchangeWait.get("dur").asLong() <= quanta.get(1).get("ts").asLong());
+    }
+
+    private static String thread(JsonNode event)
+    {
+        return event.get("pid").asInt() + ":" + event.get("tid").asInt();
+    }
+
+    private static List<JsonNode> spans(List<JsonNode> spans, String name, int process, int thread)
+    {
+        return spans.stream()
+                .filter(span -> span.get("name").asText().equals(name))
+                .filter(span -> span.get("pid").asInt() == process && span.get("tid").asInt() == thread)
+                .collect(toImmutableList());
+    }
+
+    private static JsonNode onlySpan(List<JsonNode> spans, String name, int process, int thread)
+    {
+        List<JsonNode> matching = spans(spans, name, process, thread);
+        assertEquals(matching.size(), 1, "spans named " + name + " on " + process + ":" + thread);
+        return matching.get(0);
+    }
+
+    private static void assertContains(JsonNode outer, JsonNode inner, long tolerance)
+    {
+        long outerEnd = outer.get("ts").asLong() + outer.get("dur").asLong();
+        long innerEnd = inner.get("ts").asLong() + inner.get("dur").asLong();
+        assertTrue(inner.get("ts").asLong() + tolerance >= outer.get("ts").asLong() && innerEnd <= outerEnd + tolerance, inner + " is not within " + outer);
+    }
+
+    private static PlanFragment createFragment()
+    {
+        Symbol symbol = new Symbol("column");
+        PlanNodeId valuesNodeId = new PlanNodeId("values");
+        return new PlanFragment(
+                new PlanFragmentId("fragment"),
+                new ValuesNode(valuesNodeId, ImmutableList.of(symbol), ImmutableList.of()),
+                ImmutableMap.of(symbol, BIGINT),
+                SINGLE_DISTRIBUTION,
+                ImmutableList.of(),
+                new PartitioningScheme(Partitioning.create(SINGLE_DISTRIBUTION, ImmutableList.of()), ImmutableList.of(symbol)),
+                ungroupedExecution(),
+                StatsAndCosts.empty(),
+                ImmutableMap.of(),
+                Optional.empty());
+    }
+
+    private static class BlockedOperator
+            implements Operator
+    {
+        private final OperatorContext operatorContext;
+        private final SettableFuture<?> blocked = SettableFuture.create();
+
+        public BlockedOperator(OperatorContext operatorContext)
+        {
+            this.operatorContext = operatorContext;
+        }
+
+        public void unblock()
+        {
+            blocked.set(null);
+        }
+
+        @Override
+        public OperatorContext getOperatorContext()
+        {
+            return operatorContext;
+        }
+
+        @Override
+        public ListenableFuture<?> isBlocked()
+        {
+            return blocked;
+        }
+
+        @Override
+        public boolean needsInput()
+        {
+            return false;
+        }
+
+        @Override
+        public void addInput(Page page)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Page getOutput()
+        {
+            return null;
+        }
+
+        @Override
+        public void finish()
+        {
+        }
+
+        @Override
+        public boolean isFinished()
+        {
+            return blocked.isDone();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.execution;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
+import io.airlift.json.ObjectMapperProvider;
+import io.prestosql.operator.DriverContext;
+import io.prestosql.operator.OperatorContext;
+import io.prestosql.operator.PipelineStats;
+import io.prestosql.operator.TaskContext;
+import io.prestosql.operator.TaskStats;
+import io.prestosql.sql.planner.plan.PlanNodeId;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.prestosql.execution.PipelineStatsVersion.INITIAL_VERSION;
+import static io.prestosql.testing.TestingSession.testSessionBuilder;
+import static io.prestosql.testing.TestingTaskContext.createTaskContext;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.Executors.newScheduledThreadPool;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestPipelineStatsTracker
+{
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapperProvider().get();
+
+    private ExecutorService executor;
+    private ScheduledExecutorService scheduledExecutor;
+
+    @BeforeClass
+    public void setUp()
+    {
+        executor = newCachedThreadPool(daemonThreadsNamed("test-executor-%s"));
+        scheduledExecutor = newScheduledThreadPool(2, daemonThreadsNamed("test-scheduledExecutor-%s"));
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        executor.shutdownNow();
+        scheduledExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testDeltas()
+    {
+        TaskStats taskStats = createTaskStats();
+        PipelineStatsTracker tracker = new PipelineStatsTracker();
+
+        // nothing was reported yet, so all pipelines are included
+        TaskInfo taskInfo = tracker.withChangedPipelineStats(createTaskInfo(taskStats), INITIAL_VERSION);
+        assertEquals(getPipelineIds(taskInfo), ImmutableList.of(0, 1));
+        assertVersion(taskInfo, 1, OptionalLong.of(INITIAL_VERSION));
+
+        // no pipeline changed
+        taskInfo = tracker.withChangedPipelineStats(createTaskInfo(taskStats), 1);
+        assertEquals(getPipelineIds(taskInfo), ImmutableList.of());
+        assertVersion(taskInfo, 2, OptionalLong.of(1));
+
+        // only an operator summary of the second pipeline changed
+        TaskStats changedStats = taskStats.withPipelines(ImmutableList.of(
+                taskStats.getPipelines().get(0),
+                withOperatorFinishCalls(taskStats.getPipelines().get(1), 1, 42)));
+        taskInfo = tracker.withChangedPipelineStats(createTaskInfo(changedStats), 2);
+        assertEquals(getPipelineIds(taskInfo), ImmutableList.of(1));
+        assertEquals(taskInfo.getStats().getPipelines().get(0).getOperatorSummaries().get(1).getFinishCalls(), 42);
+        assertVersion(taskInfo, 3, OptionalLong.of(2));
+
+        // the change was reported
+        taskInfo = tracker.withChangedPipelineStats(createTaskInfo(changedStats), 3);
+        assertEquals(getPipelineIds(taskInfo), ImmutableList.of());
+        assertVersion(taskInfo, 4, OptionalLong.of(3));
+    }
+
+    @Test
+    public void testVersionMismatch()
+    {
+        TaskStats taskStats = createTaskStats();
+        PipelineStatsTracker tracker = new PipelineStatsTracker();
+        tracker.withChangedPipelineStats(createTaskInfo(taskStats), INITIAL_VERSION);
+        tracker.withChangedPipelineStats(createTaskInfo(taskStats), 1);
+
+        // the caller missed a delta, so it gets all pipelines
+        TaskInfo taskInfo = tracker.withChangedPipelineStats(createTaskInfo(taskStats), 1);
+        assertEquals(getPipelineIds(taskInfo), ImmutableList.of(0, 1));
+        assertVersion(taskInfo, 3, OptionalLong.empty());
+        assertFalse(taskInfo.getPipelineStatsVersion().get().isDelta());
+    }
+
+    private TaskStats createTaskStats()
+    {
+        TaskContext taskContext = createTaskContext(executor, scheduledExecutor, testSessionBuilder().build());
+        for (int pipelineId = 0; pipelineId < 2; pipelineId++) {
+            DriverContext driverContext = taskContext.addPipelineContext(pipelineId, pipelineId == 0, pipelineId == 1, false).addDriverContext();
+            for (int operatorId = 0; operatorId < 2; operatorId++) {
+                OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, new PlanNodeId("test"), "TestOperator");
+                operatorContext.recordOutput(100, 10);
+            }
+            // statistics of running drivers change with their age
+            driverContext.startProcessTimer();
+            driverContext.finished();
+        }
+        return taskContext.getTaskStats();
+    }
+
+    private static TaskInfo createTaskInfo(TaskStats taskStats)
+    {
+        return TaskInfo.createInitialTask(new TaskId("query", 0, 0), URI.create("http://localhost"), "node", ImmutableList.of(), taskStats);
+    }
+
+    private static PipelineStats withOperatorFinishCalls(PipelineStats pipeline, int operatorIndex, long finishCalls)
+    {
+        try {
+            ObjectNode tree = OBJECT_MAPPER.valueToTree(pipeline);
+            ((ObjectNode) tree.get("operatorSummaries").get(operatorIndex)).put("finishCalls", finishCalls);
+            return OBJECT_MAPPER.treeToValue(tree, PipelineStats.class);
+        }
+        catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static List<Integer> getPipelineIds(TaskInfo taskInfo)
+    {
+        return taskInfo.getStats().getPipelines().stream()
+                .map(PipelineStats::getPipelineId)
+                .collect(toImmutableList());
+    }
+
+    private static void assertVersion(TaskInfo taskInfo, long version, OptionalLong baseVersion)
+    {
+        assertTrue(taskInfo.getPipelineStatsVersion().isPresent());
+        assertEquals(taskInfo.getPipelineStatsVersion().get().getVersion(), version);
+        assertEquals(taskInfo.getPipelineStatsVersion().get().getBaseVersion(), baseVersion);
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.execution.buffer;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.airlift.slice.Slices;
+import io.airlift.units.DataSize;
+import io.prestosql.execution.buffer.OutputBuffers.OutputBufferId;
+import io.prestosql.execution.buffer.PageCodecMarker.MarkerSet;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.airlift.concurrent.MoreFutures.getFutureValue;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.units.DataSize.Unit.BYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestClientBuffer
+{
+    private static final String TASK_INSTANCE_ID = "task-instance-id";
+    private static final DataSize MAX_SIZE = DataSize.of(1, MEGABYTE);
+    // smaller than any page, so a read returns a single page
+    private static final DataSize ONE_PAGE = DataSize.of(1, BYTE);
+
+    @Test
+    public void testReadAheadDoesNotAcknowledge()
+    {
+        AtomicInteger dereferencedPages = new AtomicInteger();
+        ClientBuffer buffer = new ClientBuffer(TASK_INSTANCE_ID, new OutputBufferId(0));
+        enqueuePages(buffer, dereferencedPages, 0, 1, 2);
+
+        assertResult(getFutureValue(buffer.getPages(0, ONE_PAGE)), 0, 1, 0);
+        assertResult(getFutureValue(buffer.readAhead(1, ONE_PAGE)), 1, 2, 1);
+        assertResult(getFutureValue(buffer.readAhead(2, MAX_SIZE)), 2, 3, 2);
+        assertEquals(buffer.getInfo().getBufferedPages(), 3);
+        assertEquals(dereferencedPages.get(), 0);
+
+        // a read which was not acknowledged can be repeated
+        assertResult(getFutureValue(buffer.readAhead(1, MAX_SIZE)), 1, 3, 1, 2);
+
+        // the next regular read acknowledges the pages
+        assertResult(getFutureValue(buffer.getPages(2, MAX_SIZE)), 2, 3, 2);
+        assertEquals(buffer.getInfo().getBufferedPages(), 1);
+        assertEquals(dereferencedPages.get(), 2);
+
+        buffer.acknowledgePages(3);
+        assertEquals(buffer.getInfo().getBufferedPages(), 0);
+        assertEquals(dereferencedPages.get(), 3);
+    }
+
+    @Test
+    public void testReadAheadWaitsForPages()
+    {
+        AtomicInteger dereferencedPages = new AtomicInteger();
+        ClientBuffer buffer = new ClientBuffer(TASK_INSTANCE_ID, new OutputBufferId(0));
+        enqueuePages(buffer, dereferencedPages, 0);
+        assertResult(getFutureValue(buffer.getPages(0, MAX_SIZE)), 0, 1, 0);
+
+        // there are no pages at the next token yet
+        ListenableFuture<BufferResult> pending = buffer.readAhead(1, MAX_SIZE);
+        assertFalse(pending.isDone());
+
+        enqueuePages(buffer, dereferencedPages, 1, 2);
+        assertTrue(pending.isDone());
+        assertResult(getFutureValue(pending), 1, 3, 1, 2);
+        assertEquals(buffer.getInfo().getBufferedPages(), 3);
+    }
+
+    @Test
+    public void testReadAheadReplacedByNextRead()
+    {
+        ClientBuffer buffer = new ClientBuffer(TASK_INSTANCE_ID, new OutputBufferId(0));
+        enqueuePages(buffer, new AtomicInteger(), 0);
+        assertResult(getFutureValue(buffer.getPages(0, MAX_SIZE)), 0, 1, 0);
+
+        ListenableFuture<BufferResult> pending = buffer.readAhead(1, MAX_SIZE);
+        assertFalse(pending.isDone());
+
+        // the client retried with a regular read, which completes the abandoned read with an empty result
+        ListenableFuture<BufferResult> retry = buffer.getPages(1, MAX_SIZE);
+        assertTrue(pending.isDone());
+        BufferResult abandoned = getFutureValue(pending);
+        assertTrue(abandoned.isEmpty());
+        assertFalse(abandoned.isBufferComplete());
+        assertEquals(abandoned.getToken(), 1);
+        assertFalse(retry.isDone());
+    }
+
+    @Test
+    public void testReadAheadOfAcknowledgedPages()
+    {
+        ClientBuffer buffer = new ClientBuffer(TASK_INSTANCE_ID, new OutputBufferId(0));
+        enqueuePages(buffer, new AtomicInteger(), 0, 1, 2);
+        buffer.acknowledgePages(2);
+
+        // an out of order read returns an empty result for the requested token
+        BufferResult result = getFutureValue(buffer.readAhead(1, MAX_SIZE));
+        assertTrue(result.isEmpty());
+        assertEquals(result.getToken(), 1);
+        assertEquals(result.getNextToken(), 1);
+        assertFalse(result.isBufferComplete());
+
+        assertResult(getFutureValue(buffer.readAhead(2, MAX_SIZE)), 2, 3, 2);
+    }
+
+    @Test
+    public void testReadAheadNoMorePages()
+    {
+        ClientBuffer buffer = new ClientBuffer(TASK_INSTANCE_ID, new OutputBufferId(0));
+        enqueuePages(buffer, new AtomicInteger(), 0, 1);
+        assertResult(getFutureValue(buffer.getPages(0, MAX_SIZE)), 0, 2, 0, 1);
+
+        ListenableFuture<BufferResult> pending = buffer.readAhead(2, MAX_SIZE);
+        assertFalse(pending.isDone());
+        buffer.setNoMorePages();
+
+        // the pending read at the end of the buffer learns that the buffer is complete,
+        // while the pages before it are still buffered until they are acknowledged
+        BufferResult result = getFutureValue(pending);
+        assertTrue(result.isEmpty());
+        assertTrue(result.isBufferComplete());
+        assertEquals(result.getToken(), 2);
+        assertEquals(buffer.getInfo().getBufferedPages(), 2);
+        assertResult(getFutureValue(buffer.readAhead(1, MAX_SIZE)), 1, 2, 1);
+    }
+
+    @Test
+    public void testEnqueueRacingNoMorePages()
+            throws Exception
+    {
+        ExecutorService executor = newFixedThreadPool(2, daemonThreadsNamed("test-client-buffer-%s"));
+        try {
+            for (int iteration = 0; iteration < 1_000; iteration++) {
+                AtomicInteger dereferencedPages = new AtomicInteger();
+                ClientBuffer buffer = new ClientBuffer(TASK_INSTANCE_ID, new OutputBufferId(0));
+                ListenableFuture<BufferResult> pending = buffer.getPages(0, MAX_SIZE);
+
+                CountDownLatch start = new CountDownLatch(1);
+                Future<?> producer = executor.submit(() -> {
+                    start.await();
+                    for (int pageId = 0; pageId < 20; pageId++) {
+                        enqueuePages(buffer, dereferencedPages, pageId);
+                    }
+                    return null;
+                });
+                Future<?> finisher = executor.submit(() -> {
+                    start.await();
+                    buffer.setNoMorePages();
+                    return null;
+                });
+                start.countDown();
+                producer.get(10, SECONDS);
+                finisher.get(10, SECONDS);
+
+                // the pending read is completed either by the producer or by no more pages
+                assertTrue(pending.isDone());
+
+                // the pages enqueued before no more pages was set are read in order, the others were dropped
+                List<Integer> pageIds = new ArrayList<>();
+                long token = 0;
+                while (true) {
+                    BufferResult result = getFutureValue(buffer.getPages(token, MAX_SIZE));
+                    result.getSerializedPages().forEach(page -> pageIds.add(page.getPositionCount()));
+                    token = result.getNextToken();
+                    if (result.isBufferComplete()) {
+                        break;
+                    }
+                    assertFalse(result.isEmpty(), "buffer is neither complete nor has pages");
+                }
+                assertEquals(pageIds, IntStream.range(0, pageIds.size()).boxed().collect(toImmutableList()));
+                assertEquals(dereferencedPages.get(), 20);
+                assertEquals(buffer.getInfo().getPageBufferInfo().getBufferedBytes(), 0);
+
+                buffer.destroy();
+                assertEquals(dereferencedPages.get(), 20);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void assertResult(BufferResult result, long token, long nextToken, int... pageIds)
+    {
+        assertEquals(result.getTaskInstanceId(), TASK_INSTANCE_ID);
+        assertEquals(result.getToken(), token);
+        assertEquals(result.getNextToken(), nextToken);
+        assertFalse(result.isBufferComplete());
+        List<Integer> actualIds = result.getSerializedPages().stream()
+                .map(SerializedPage::getPositionCount)
+                .collect(toImmutableList());
+        assertEquals(actualIds, Ints.asList(pageIds));
+    }
+
+    // the position count of a page is its id
+    private static void enqueuePages(ClientBuffer buffer, AtomicInteger dereferencedPages, int... pageIds)
+    {
+        ImmutableList.Builder<SerializedPageReference> pages = ImmutableList.builder();
+        for (int pageId : pageIds) {
+            SerializedPage page = new SerializedPage(Slices.wrappedBuffer(new byte[0]), MarkerSet.empty(), pageId, 0);
+            pages.add(new SerializedPageReference(page, 1, dereferencedPages::incrementAndGet));
+        }
+        List<SerializedPageReference> references = pages.build();
+        buffer.enqueuePages(references);
+        // drop the reference of the producer, as the output buffers do
+        references.forEach(SerializedPageReference::dereferencePage);
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.execution.buffer;
+
+import io.airlift.slice.DynamicSliceOutput;
+import io.prestosql.spi.Page;
+import io.prestosql.spi.block.Block;
+import io.prestosql.spi.block.BlockBuilder;
+import io.prestosql.spi.block.BlockEncodingSerde;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Optional;
+import java.util.Random;
+
+import static io.airlift.slice.Slices.utf8Slice;
+import static io.prestosql.execution.buffer.PagesSerdeUtil.readSerializedPage;
+import static io.prestosql.execution.buffer.PagesSerdeUtil.writeSerializedPage;
+import static io.prestosql.metadata.MetadataManager.createTestMetadataManager;
+import static io.prestosql.spi.type.BigintType.BIGINT;
+import static io.prestosql.spi.type.VarcharType.VARCHAR;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestPagesSerde
+{
+    private static final BlockEncodingSerde BLOCK_ENCODING_SERDE = createTestMetadataManager().getBlockEncodingSerde();
+
+    @DataProvider
+    public static Object[][] codecs()
+    {
+        PageCompressionCodec[] codecs = PageCompressionCodec.values();
+        Object[][] parameters = new Object[codecs.length][];
+        for (int i = 0; i < codecs.length; i++) {
+            parameters[i] = new Object[] {codecs[i]};
+        }
+        return parameters;
+    }
+
+    @Test(dataProvider = "codecs")
+    public void testEmptyPage(PageCompressionCodec codec)
+    {
+        Page page = createPage(0);
+        SerializedPage serializedPage = roundTrip(codec, page);
+        assertEquals(serializedPage.getPositionCount(), 0);
+    }
+
+    @Test(dataProvider = "codecs")
+    public void testSmallPage(PageCompressionCodec codec)
+    {
+        roundTrip(codec, createPage(10));
+    }
+
+    @Test(dataProvider = "codecs")
+    public void testLargePage(PageCompressionCodec codec)
+    {
+        SerializedPage serializedPage = roundTrip(codec, createPage(100_000));
+
+        // the page is repetitive, so every codec compresses it
+        assertEquals(serializedPage.isCompressed(), codec != PageCompressionCodec.NONE);
+        assertEquals(serializedPage.getCompressionCodec(), codec);
+        if (codec != PageCompressionCodec.NONE) {
+            assertTrue(serializedPage.getSizeInBytes() < serializedPage.getUncompressedSizeInBytes());
+        }
+        else {
+            assertEquals(serializedPage.getSizeInBytes(), serializedPage.getUncompressedSizeInBytes());
+        }
+    }
+
+    @Test(dataProvider = "codecs")
+    public void testIncompressiblePage(PageCompressionCodec codec)
+    {
+        // a page which does not compress well is sent uncompressed
+        SerializedPage serializedPage = roundTrip(codec, createRandomPage(new Random(42), 100_000));
+        assertFalse(serializedPage.isCompressed());
+        assertEquals(serializedPage.getCompressionCodec(), PageCompressionCodec.NONE);
+        assertEquals(serializedPage.getSizeInBytes(), serializedPage.getUncompressedSizeInBytes());
+    }
+
+    @Test
+    public void testAdaptiveCompression()
+    {
+        PagesSerde serde = new PagesSerdeFactory(BLOCK_ENCODING_SERDE, PageCompressionCodec.LZ4, true).createPagesSerde();
+        Random random = new Random(42);
+        Page compressiblePage = createPage(1_000);
+
+        // every poor compression sample doubles the number of pages which are not compressed
+        assertFalse(serde.serialize(createRandomPage(random, 1_000)).isCompressed());
+        assertCompressed(serde, compressiblePage, false, 4);
+        assertFalse(serde.serialize(createRandomPage(random, 1_000)).isCompressed());
+        assertCompressed(serde, compressiblePage, false, 8);
+        assertCompressed(serde, compressiblePage, true, 1);
+
+        // a good sample resets the number of skipped pages
+        assertFalse(serde.serialize(createRandomPage(random, 1_000)).isCompressed());
+        assertCompressed(serde, compressiblePage, false, 4);
+        assertCompressed(serde, compressiblePage, true, 1);
+    }
+
+    @Test
+    public void testNonAdaptiveCompression()
+    {
+        PagesSerde serde = new PagesSerdeFactory(BLOCK_ENCODING_SERDE, PageCompressionCodec.LZ4, false).createPagesSerde();
+        assertFalse(serde.serialize(createRandomPage(new Random(42), 1_000)).isCompressed());
+        assertCompressed(serde, createPage(1_000), true, 1);
+    }
+
+    private static void assertCompressed(PagesSerde serde, Page page, boolean compressed, int pageCount)
+    {
+        for (int i = 0; i < pageCount; i++) {
+            assertEquals(serde.serialize(page).isCompressed(), compressed);
+        }
+    }
+
+    /**
+     * Serializes the page with the codec, sends it through the wire format and reads it back
+     * with a serde configured without compression, as the codec is recorded in the page markers.
+     */
+    private static SerializedPage roundTrip(PageCompressionCodec codec, Page page)
+    {
+        PagesSerde serde = new PagesSerdeFactory(BLOCK_ENCODING_SERDE, codec, false).createPagesSerde();
+        SerializedPage serializedPage = serde.serialize(page);
+
+        DynamicSliceOutput output = new DynamicSliceOutput(serializedPage.getSizeInBytes());
+        writeSerializedPage(output, serializedPage);
+        SerializedPage readPage = readSerializedPage(output.slice().getInput());
+        assertEquals(readPage.getPageCodecMarkers(), serializedPage.getPageCodecMarkers());
+        assertEquals(readPage.getPositionCount(), serializedPage.getPositionCount());
+        assertEquals(readPage.getUncompressedSizeInBytes(), serializedPage.getUncompressedSizeInBytes());
+
+        assertPageEquals(new PagesSerde(BLOCK_ENCODING_SERDE, PageCompressionCodec.NONE, false, Optional.empty()).deserialize(readPage), page);
+        assertPageEquals(serde.deserialize(serializedPage), page);
+        return serializedPage;
+    }
+
+    private static Page createPage(int positionCount)
+    {
+        BlockBuilder keys = BIGINT.createBlockBuilder(null, positionCount);
+        BlockBuilder values = VARCHAR.createBlockBuilder(null, positionCount);
+        for (int position = 0; position < positionCount; position++) {
+            if (position % 11 == 0) {
+                keys.appendNull();
+            }
+            else {
+                BIGINT.writeLong(keys, position % 100);
+            }
+            VARCHAR.writeSlice(values, utf8Slice("value_" + (position % 10)));
+        }
+        return new Page(keys.build(), values.build());
+    }
+
+    private static Page createRandomPage(Random random, int positionCount)
+    {
+        BlockBuilder keys = BIGINT.createBlockBuilder(null, positionCount);
+        for (int position = 0; position < positionCount; position++) {
+            BIGINT.writeLong(keys, random.nextLong());
+        }
+        return new Page(keys.build());
+    }
+
+    private static void assertPageEquals(Page actual, Page expected)
+    {
+        assertEquals(actual.getPositionCount(), expected.getPositionCount());
+        assertEquals(actual.getChannelCount(), expected.getChannelCount());
+        for (int channel = 0; channel < expected.getChannelCount(); channel++) {
+            Block actualBlock = actual.getBlock(channel);
+            Block expectedBlock = expected.getBlock(channel);
+            for (int position = 0; position < expected.getPositionCount(); position++) {
+                assertEquals(actualBlock.isNull(position), expectedBlock.isNull(position));
+                if (expectedBlock.isNull(position)) {
+                    continue;
+                }
+                if (channel == 0) {
+                    assertEquals(BIGINT.getLong(actualBlock, position), BIGINT.getLong(expectedBlock, position));
+                }
+                else {
+                    assertEquals(VARCHAR.getSlice(actualBlock, position), VARCHAR.getSlice(expectedBlock, position));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.execution.buffer;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.MoreFiles;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.airlift.units.DataSize;
+import io.prestosql.execution.StateMachine;
+import io.prestosql.execution.buffer.OutputBuffers.OutputBufferId;
+import io.prestosql.spi.PrestoException;
+import io.prestosql.spiller.FileOutputBufferSpiller;
+import io.prestosql.spiller.OutputBufferSpiller;
+import io.prestosql.spiller.SpillerStats;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static io.airlift.slice.Slices.wrappedBuffer;
+import static io.prestosql.execution.buffer.BufferState.OPEN;
+import static io.prestosql.execution.buffer.BufferState.TERMINAL_BUFFER_STATES;
+import static io.prestosql.execution.buffer.OutputBuffers.BROADCAST_PARTITION_ID;
+import static io.prestosql.execution.buffer.OutputBuffers.BufferType.ARBITRARY;
+import static io.prestosql.execution.buffer.OutputBuffers.BufferType.PARTITIONED;
+import static io.prestosql.execution.buffer.OutputBuffers.createInitialEmptyOutputBuffers;
+import static io.prestosql.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestSpillingOutputBuffer
+{
+    private static final OutputBufferId BUFFER_ID = new OutputBufferId(0);
+    private static final int PAGE_SIZE = 1000;
+
+    private Path spillPath;
+    private SpillerStats spillerStats;
+    private ManualExecutor spillExecutor;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        spillPath = Files.createTempDirectory("output-buffer-spill");
+        spillerStats = new SpillerStats();
+        spillExecutor = new ManualExecutor();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        MoreFiles.deleteRecursively(spillPath, ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testSpillAndReadBackInOrder()
+            throws Exception
+    {
+        PartitionedOutputBuffer buffer = createBuffer(3);
+        for (int i = 0; i < 10; i++) {
+            buffer.enqueue(ImmutableList.of(createPage(i)));
+        }
+
+        // the pages which did not fit are written by the spill executor, not by the enqueuing thread
+        assertEquals(spillFileCount(), 0);
+        assertTrue(spillExecutor.getQueuedTasks() > 0);
+        spillExecutor.runAll();
+        assertEquals(spillFileCount(), 1);
+        assertTrue(spillerStats.getTotalSpilledBytes() > 0);
+
+        buffer.setNoMorePages();
+        assertEquals(readAll(buffer, 0), ImmutableList.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9));
+        assertTrue(buffer.isFinished());
+    }
+
+    @Test
+    public void testArbitraryBuffer()
+            throws Exception
+    {
+        ArbitraryOutputBuffer buffer = new ArbitraryOutputBuffer(
+                "task-instance-id",
+                new StateMachine<>("bufferState", directExecutor(), OPEN, TERMINAL_BUFFER_STATES),
+                DataSize.ofBytes(retainedSize(2)),
+                () -> newSimpleAggregatedMemoryContext().newLocalMemoryContext("test"),
+                directExecutor(),
+                Optional.of(this::createSpiller));
+        buffer.setOutputBuffers(createInitialEmptyOutputBuffers(ARBITRARY)
+                .withBuffer(BUFFER_ID, BROADCAST_PARTITION_ID)
+                .withNoMoreBufferIds());
+        for (int i = 0; i < 6; i++) {
+            buffer.enqueue(ImmutableList.of(createPage(i)));
+        }
+        spillExecutor.runAll();
+        buffer.setNoMorePages();
+
+        assertEquals(readAll(buffer, 0), ImmutableList.of(0, 1, 2, 3, 4, 5));
+        assertTrue(buffer.isFinished());
+    }
+
+    @Test
+    public void testEnqueueWhileReadingSpilledPages()
+            throws Exception
+    {
+        PartitionedOutputBuffer buffer = createBuffer(2);
+        for (int i = 0; i < 5; i++) {
+            buffer.enqueue(ImmutableList.of(createPage(i)));
+        }
+        spillExecutor.runAll();
+
+        // read the pages in memory and some of the spilled pages
+        List<Integer> positionCounts = new ArrayList<>();
+        long token = 0;
+        while (positionCounts.size() < 3) {
+            BufferResult result = read(buffer, token);
+            result.getSerializedPages().forEach(page -> positionCounts.add(page.getPositionCount()));
+            token = result.getNextToken();
+        }
+
+        // pages enqueued while spilled pages are left are spilled as well, so they are read after them
+        for (int i = 5; i < 8; i++) {
+            buffer.enqueue(ImmutableList.of(createPage(i)));
+        }
+        buffer.setNoMorePages();
+        positionCounts.addAll(readAll(buffer, token));
+        assertEquals(positionCounts, ImmutableList.of(0, 1, 2, 3, 4, 5, 6, 7));
+    }
+
+    @Test
+    public void testAcknowledgeSpilledPages()
+            throws Exception
+    {
+        PartitionedOutputBuffer buffer = createBuffer(1);
+        for (int i = 0; i < 4; i++) {
+            buffer.enqueue(ImmutableList.of(createPage(i)));
+        }
+        spillExecutor.runAll();
+        // the pages being written are accounted until the spill finishes
+        assertEquals(buffer.getInfo().getTotalBufferedBytes(), retainedSize(1));
+
+        BufferResult first = getResult(buffer.get(BUFFER_ID, 0, DataSize.ofBytes(1)));
+        assertEquals(first.getSerializedPages().size(), 1);
+
+        // acknowledging the page in memory initiates reading a spilled page
+        ListenableFuture<BufferResult> second = buffer.get(BUFFER_ID, first.getNextToken(), DataSize.ofBytes(1));
+        assertFalse(second.isDone());
+        assertEquals(buffer.getInfo().getTotalBufferedBytes(), 0);
+        spillExecutor.runAll();
+        BufferResult secondResult = getResult(second);
+        assertEquals(secondResult.getSerializedPages().get(0).getPositionCount(), 1);
+
+        // the spilled pages read back are accounted until they are acknowledged, and
+        // the next spilled page is read while the returned one is sent
+        long bufferedBytes = buffer.getInfo().getTotalBufferedBytes();
+        long pageSize = secondResult.getSerializedPages().get(0).getRetainedSizeInBytes();
+        assertTrue(bufferedBytes > pageSize);
+        buffer.acknowledge(BUFFER_ID, secondResult.getNextToken());
+        assertEquals(buffer.getInfo().getTotalBufferedBytes(), bufferedBytes - pageSize);
+
+        // the buffer is destroyed with spilled pages left, so the spill file is removed
+        buffer.destroy();
+        spillExecutor.runAll();
+        assertEquals(spillFileCount(), 0);
+        assertEquals(buffer.getInfo().getTotalBufferedBytes(), 0);
+    }
+
+    @Test
+    public void testSpillFailure()
+            throws Exception
+    {
+        MoreFiles.deleteRecursively(spillPath, ALLOW_INSECURE);
+        PartitionedOutputBuffer buffer = createBuffer(1);
+        ListenableFuture<BufferResult> pendingRead = buffer.get(BUFFER_ID, 0, DataSize.ofBytes(1));
+        assertFalse(pendingRead.isDone());
+
+        buffer.enqueue(ImmutableList.of(createPage(0), createPage(1)));
+        assertFalse(pendingRead.isDone());
+        spillExecutor.runAll();
+
+        // the spill file cannot be created, so the waiting reader and the producer get the failure
+        assertTrue(pendingRead.isDone());
+        try {
+            pendingRead.get();
+            fail("expected failure");
+        }
+        catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof PrestoException);
+        }
+        try {
+            buffer.enqueue(ImmutableList.of(createPage(2)));
+            fail("expected failure");
+        }
+        catch (PrestoException e) {
+            assertEquals(e.getMessage(), "Failed to create spill file");
+        }
+        Files.createDirectories(spillPath);
+    }
+
+    private OutputBufferSpiller createSpiller()
+    {
+        return new FileOutputBufferSpiller(
+                spillPath,
+                spillExecutor,
+                spillerStats,
+                bytes -> {},
+                Optional.empty(),
+                () -> {});
+    }
+
+    private PartitionedOutputBuffer createBuffer(int maxBufferedPages)
+    {
+        return new PartitionedOutputBuffer(
+                "task-instance-id",
+                new StateMachine<>("bufferState", directExecutor(), OPEN, TERMINAL_BUFFER_STATES),
+                createInitialEmptyOutputBuffers(PARTITIONED)
+                        .withBuffer(BUFFER_ID, 0)
+                        .withNoMoreBufferIds(),
+                DataSize.ofBytes(retainedSize(maxBufferedPages)),
+                () -> newSimpleAggregatedMemoryContext().newLocalMemoryContext("test"),
+                directExecutor(),
+                Optional.of(this::createSpiller));
+    }
+
+    /**
+     * Reads and acknowledges the pages from the token until the buffer is complete, running the spill executor whenever a read waits.
+     */
+    private List<Integer> readAll(OutputBuffer buffer, long token)
+            throws Exception
+    {
+        List<Integer> positionCounts = new ArrayList<>();
+        while (true) {
+            BufferResult result = read(buffer, token);
+            result.getSerializedPages().forEach(page -> positionCounts.add(page.getPositionCount()));
+            token = result.getNextToken();
+            if (result.isBufferComplete()) {
+                buffer.abort(BUFFER_ID);
+                return positionCounts;
+            }
+        }
+    }
+
+    private BufferResult read(OutputBuffer buffer, long token)
+            throws Exception
+    {
+        ListenableFuture<BufferResult> future = buffer.get(BUFFER_ID, token, DataSize.ofBytes(1));
+        if (!future.isDone()) {
+            spillExecutor.runAll();
+        }
+        return getResult(future);
+    }
+
+    private static BufferResult getResult(ListenableFuture<BufferResult> future)
+            throws Exception
+    {
+        assertTrue(future.isDone(), "read is waiting");
+        return future.get();
+    }
+
+    private long spillFileCount()
+            throws IOException
+    {
+        try (Stream<Path> files = Files.list(spillPath)) {
+            return files.count();
+        }
+    }
+
+    private static long retainedSize(int pages)
+    {
+        return createPage(0).getRetainedSizeInBytes() * pages;
+    }
+
+    /**
+     * Creates a page with the position count as its identity.
+     */
+    private static SerializedPage createPage(int positionCount)
+    {
+        byte[] data = new byte[PAGE_SIZE];
+        data[0] = (byte) positionCount;
+        return new SerializedPage(wrappedBuffer(data), PageCodecMarker.MarkerSet.empty(), positionCount, PAGE_SIZE);
+    }
+
+    private static class ManualExecutor
+            implements Executor
+    {
+        private final Deque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public synchronized void execute(Runnable task)
+        {
+            tasks.add(task);
+        }
+
+        public synchronized int getQueuedTasks()
+        {
+            return tasks.size();
+        }
+
+        public void runAll()
+        {
+            while (true) {
+                Runnable task;
+                synchronized (this) {
+                    task = tasks.poll();
+                }
+                if (task == null) {
+                    return;
+                }
+                task.run();
+            }
+        }
+    }
+}
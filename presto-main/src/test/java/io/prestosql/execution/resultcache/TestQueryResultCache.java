@@ -0,0 +1,233 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.execution.resultcache;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.units.DataSize;
+import io.prestosql.execution.resultcache.QueryResultCache.ResultCollector;
+import io.prestosql.memory.MemoryPool;
+import io.prestosql.spi.Page;
+import io.prestosql.spi.QueryId;
+import io.prestosql.spi.block.BlockBuilder;
+import io.prestosql.spi.memory.MemoryPoolId;
+import io.prestosql.spi.type.Type;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static io.airlift.units.DataSize.Unit.KILOBYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static io.prestosql.spi.type.BigintType.BIGINT;
+import static io.prestosql.spi.type.VarcharType.VARCHAR;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestQueryResultCache
+{
+    private static final List<Type> TYPES = ImmutableList.of(BIGINT);
+
+    @Test
+    public void testMissAndHit()
+    {
+        MemoryPool memoryPool = createMemoryPool(DataSize.of(10, MEGABYTE));
+        QueryResultCache cache = new QueryResultCache(memoryPool, new QueryResultCacheConfig());
+
+        Page page = createPage(100);
+        assertTrue(cache.lookup(new QueryId("miss"), "key", TYPES).isEmpty());
+        ResultCollector collector = cache.takeResultCollector(new QueryId("miss")).orElseThrow();
+        collector.addPage(page);
+        collector.addPage(page);
+        assertEquals(memoryPool.getNodeReservedBytes(), 2 * page.getRetainedSizeInBytes());
+        assertEquals(cache.getCachedResults(), 0);
+        collector.commit();
+        cache.queryFinished(new QueryId("miss"));
+        assertEquals(cache.getCachedResults(), 1);
+        assertEquals(cache.getCachedBytes(), 2 * page.getRetainedSizeInBytes());
+        assertEquals(memoryPool.getNodeReservedBytes(), cache.getCachedBytes());
+
+        Optional<CachedQueryResult> result = cache.lookup(new QueryId("hit"), "key", TYPES);
+        assertTrue(result.isPresent());
+        assertEquals(result.get().getTypes(), TYPES);
+        assertEquals(result.get().getPages(), ImmutableList.of(page, page));
+        assertEquals(cache.getPinnedResult(new QueryId("hit")), result);
+        assertTrue(cache.takeResultCollector(new QueryId("hit")).isEmpty());
+        cache.queryFinished(new QueryId("hit"));
+        assertTrue(cache.getPinnedResult(new QueryId("hit")).isEmpty());
+
+        // a different key or different output types do not match the cached result
+        assertTrue(cache.lookup(new QueryId("other_key"), "other", TYPES).isEmpty());
+        assertTrue(cache.lookup(new QueryId("other_types"), "key", ImmutableList.of(VARCHAR)).isEmpty());
+        assertEquals(cache.getHits().getTotalCount(), 1);
+        assertEquals(cache.getMisses().getTotalCount(), 3);
+
+        // the cached result is kept once it is no longer pinned
+        assertEquals(cache.getCachedResults(), 1);
+        assertEquals(memoryPool.getNodeReservedBytes(), cache.getCachedBytes());
+    }
+
+    @Test
+    public void testPinnedResultSurvivesEviction()
+    {
+        MemoryPool memoryPool = createMemoryPool(DataSize.of(10, MEGABYTE));
+        QueryResultCache cache = new QueryResultCache(memoryPool, new QueryResultCacheConfig());
+        populate(cache, "key", createPage(100));
+        long cachedBytes = cache.getCachedBytes();
+
+        assertTrue(cache.lookup(new QueryId("hit"), "key", TYPES).isPresent());
+        cache.invalidateAll();
+        assertEquals(cache.getCachedResults(), 0);
+        assertTrue(cache.getPinnedResult(new QueryId("hit")).isPresent());
+        assertEquals(memoryPool.getNodeReservedBytes(), cachedBytes);
+        assertTrue(cache.lookup(new QueryId("miss"), "key", TYPES).isEmpty());
+
+        cache.queryFinished(new QueryId("hit"));
+        assertEquals(memoryPool.getNodeReservedBytes(), 0);
+    }
+
+    @Test
+    public void testEviction()
+    {
+        MemoryPool memoryPool = createMemoryPool(DataSize.of(10, MEGABYTE));
+        Page page = createPage(1000);
+        long maxSize = 20 * page.getRetainedSizeInBytes();
+        QueryResultCache cache = new QueryResultCache(memoryPool, new QueryResultCacheConfig()
+                .setMaxSize(DataSize.ofBytes(maxSize)));
+
+        for (int i = 0; i < 100; i++) {
+            populate(cache, "key" + i, page);
+        }
+        assertTrue(cache.getCachedResults() > 0);
+        assertTrue(cache.getCachedResults() < 100);
+        assertTrue(cache.getCachedBytes() <= maxSize);
+        assertEquals(memoryPool.getNodeReservedBytes(), cache.getCachedBytes());
+
+        cache.invalidateAll();
+        assertEquals(cache.getCachedResults(), 0);
+        assertEquals(memoryPool.getNodeReservedBytes(), 0);
+    }
+
+    @Test
+    public void testMaxEntrySize()
+    {
+        MemoryPool memoryPool = createMemoryPool(DataSize.of(10, MEGABYTE));
+        Page page = createPage(1000);
+        QueryResultCache cache = new QueryResultCache(memoryPool, new QueryResultCacheConfig()
+                .setMaxEntrySize(DataSize.ofBytes(2 * page.getRetainedSizeInBytes())));
+
+        populate(cache, "fits", page, page);
+        assertEquals(cache.getCachedResults(), 1);
+        long cachedBytes = cache.getCachedBytes();
+
+        // the result is abandoned once it exceeds the limit, and its memory is freed right away
+        assertTrue(cache.lookup(new QueryId("too_large"), "too_large", TYPES).isEmpty());
+        ResultCollector collector = cache.takeResultCollector(new QueryId("too_large")).orElseThrow();
+        collector.addPage(page);
+        collector.addPage(page);
+        collector.addPage(page);
+        assertEquals(memoryPool.getNodeReservedBytes(), cachedBytes);
+        collector.addPage(createPage(1));
+        collector.commit();
+        assertEquals(cache.getCachedResults(), 1);
+        assertTrue(cache.lookup(new QueryId("miss"), "too_large", TYPES).isEmpty());
+        assertEquals(memoryPool.getNodeReservedBytes(), cachedBytes);
+    }
+
+    @Test
+    public void testAbandon()
+    {
+        MemoryPool memoryPool = createMemoryPool(DataSize.of(10, MEGABYTE));
+        QueryResultCache cache = new QueryResultCache(memoryPool, new QueryResultCacheConfig());
+
+        assertTrue(cache.lookup(new QueryId("failed"), "key", TYPES).isEmpty());
+        ResultCollector collector = cache.takeResultCollector(new QueryId("failed")).orElseThrow();
+        collector.addPage(createPage(100));
+        assertTrue(memoryPool.getNodeReservedBytes() > 0);
+        collector.abandon();
+        assertEquals(memoryPool.getNodeReservedBytes(), 0);
+        collector.commit();
+        assertEquals(cache.getCachedResults(), 0);
+    }
+
+    @Test
+    public void testMemoryPoolExhausted()
+    {
+        Page page = createPage(1000);
+        MemoryPool memoryPool = createMemoryPool(DataSize.ofBytes(3 * page.getRetainedSizeInBytes()));
+        QueryResultCache cache = new QueryResultCache(memoryPool, new QueryResultCacheConfig());
+        cache.start();
+        try {
+            // a result which does not fit in the pool is not cached
+            assertTrue(cache.lookup(new QueryId("too_large"), "too_large", TYPES).isEmpty());
+            ResultCollector collector = cache.takeResultCollector(new QueryId("too_large")).orElseThrow();
+            for (int i = 0; i < 4; i++) {
+                collector.addPage(page);
+            }
+            collector.commit();
+            assertEquals(cache.getCachedResults(), 0);
+            assertEquals(memoryPool.getNodeReservedBytes(), 0);
+
+            // cached results are dropped when the pool runs out of memory
+            populate(cache, "key", page);
+            assertEquals(cache.getCachedResults(), 1);
+            assertTrue(memoryPool.tryReserveNodeMemory(memoryPool.getFreeBytes()));
+            assertEquals(cache.getCachedResults(), 0);
+            assertEquals(memoryPool.getFreeBytes(), page.getRetainedSizeInBytes());
+        }
+        finally {
+            cache.stop();
+        }
+    }
+
+    @Test
+    public void testDefaultMaxEntrySizeCappedByMaxSize()
+    {
+        MemoryPool memoryPool = createMemoryPool(DataSize.of(10, MEGABYTE));
+        Page page = createPage(1000);
+        QueryResultCache cache = new QueryResultCache(memoryPool, new QueryResultCacheConfig()
+                .setMaxSize(DataSize.of(1, KILOBYTE)));
+        assertTrue(page.getRetainedSizeInBytes() > DataSize.of(1, KILOBYTE).toBytes());
+
+        populate(cache, "key", page);
+        assertFalse(cache.lookup(new QueryId("miss"), "key", TYPES).isPresent());
+        assertEquals(memoryPool.getNodeReservedBytes(), 0);
+    }
+
+    private static void populate(QueryResultCache cache, String key, Page... pages)
+    {
+        QueryId queryId = new QueryId("populate_" + key);
+        assertTrue(cache.lookup(queryId, key, TYPES).isEmpty());
+        ResultCollector collector = cache.takeResultCollector(queryId).orElseThrow();
+        for (Page page : pages) {
+            collector.addPage(page);
+        }
+        collector.commit();
+        cache.queryFinished(queryId);
+    }
+
+    private static Page createPage(int positionCount)
+    {
+        BlockBuilder blockBuilder = BIGINT.createBlockBuilder(null, positionCount);
+        for (int position = 0; position < positionCount; position++) {
+            BIGINT.writeLong(blockBuilder, position);
+        }
+        return new Page(blockBuilder.build());
+    }
+
+    private static MemoryPool createMemoryPool(DataSize size)
+    {
+        return new MemoryPool(new MemoryPoolId("test"), size);
+    }
+}
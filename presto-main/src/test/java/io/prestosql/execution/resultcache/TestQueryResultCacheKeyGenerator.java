@@ -0,0 +1,209 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.execution.resultcache;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.prestosql.Session;
+import io.prestosql.execution.warnings.WarningCollector;
+import io.prestosql.spi.security.Identity;
+import io.prestosql.sql.analyzer.Analysis;
+import io.prestosql.sql.analyzer.Analyzer;
+import io.prestosql.sql.parser.ParsingOptions;
+import io.prestosql.sql.parser.SqlParser;
+import io.prestosql.sql.planner.Plan;
+import io.prestosql.sql.planner.plan.JoinNode;
+import io.prestosql.sql.planner.plan.PlanNode;
+import io.prestosql.sql.planner.plan.TableScanNode;
+import io.prestosql.testing.LocalQueryRunner;
+import org.intellij.lang.annotations.Language;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Optional;
+
+import static io.prestosql.SystemSessionProperties.JOIN_DISTRIBUTION_TYPE;
+import static io.prestosql.sql.planner.optimizations.PlanNodeSearcher.searchFrom;
+import static io.prestosql.testing.TestingSession.testSessionBuilder;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestQueryResultCacheKeyGenerator
+{
+    private static final SqlParser SQL_PARSER = new SqlParser();
+    private static final Session SESSION = testSessionBuilder()
+            .setCatalog("versioned")
+            .setSchema("tiny")
+            .build();
+
+    private final TestingVersionedTpchConnectorFactory connectorFactory = new TestingVersionedTpchConnectorFactory();
+    private LocalQueryRunner queryRunner;
+
+    @BeforeClass
+    public void setUp()
+    {
+        queryRunner = LocalQueryRunner.create(SESSION);
+        queryRunner.createCatalog("versioned", connectorFactory, ImmutableMap.of());
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        queryRunner.close();
+        queryRunner = null;
+    }
+
+    @BeforeMethod
+    public void setVersions()
+    {
+        connectorFactory.setTableVersion("nation", "1");
+        connectorFactory.setTableVersion("region", "1");
+    }
+
+    @Test
+    public void testSameQuery()
+    {
+        Optional<String> key = generateKey("SELECT name FROM nation WHERE regionkey = 1");
+        assertTrue(key.isPresent());
+        assertEquals(generateKey("SELECT name FROM nation WHERE regionkey = 1"), key);
+        assertNotEquals(generateKey("SELECT name FROM nation WHERE regionkey = 2"), key);
+        assertNotEquals(generateKey("SELECT name FROM region WHERE regionkey = 1"), key);
+    }
+
+    @Test
+    public void testTableVersion()
+    {
+        @Language("SQL") String sql = "SELECT n.name, r.name FROM nation n JOIN region r ON n.regionkey = r.regionkey";
+        Optional<String> key = generateKey(sql);
+        assertTrue(key.isPresent());
+
+        connectorFactory.setTableVersion("region", "2");
+        Optional<String> changed = generateKey(sql);
+        assertTrue(changed.isPresent());
+        assertNotEquals(changed, key);
+
+        // a single table without a version makes the query uncacheable
+        connectorFactory.removeTableVersion("region");
+        assertTrue(generateKey(sql).isEmpty());
+        assertTrue(generateKey("SELECT name FROM nation").isPresent());
+    }
+
+    @Test
+    public void testNonDeterministic()
+    {
+        assertTrue(generateKey("SELECT name FROM nation WHERE nationkey < 10 * random()").isEmpty());
+        assertTrue(generateKey("SELECT name, now() FROM nation").isEmpty());
+        assertTrue(generateKey("SELECT name FROM nation WHERE current_date > DATE '2020-01-01'").isEmpty());
+        assertTrue(generateKey("SELECT name, TIME '01:02:03' FROM nation").isEmpty());
+        assertTrue(generateKey("SELECT name FROM nation WHERE DATE '2020-01-01' < localtimestamp").isEmpty());
+    }
+
+    @Test
+    public void testIndependentOfTableData()
+    {
+        // queries which do not read any table are cacheable
+        assertTrue(generateKey("SELECT 1").isPresent());
+        assertEquals(generateKey("SELECT 1"), generateKey("SELECT 1"));
+    }
+
+    @Test
+    public void testSession()
+    {
+        @Language("SQL") String sql = "SELECT name FROM nation";
+        Optional<String> key = generateKey(SESSION, sql);
+        assertTrue(key.isPresent());
+
+        Session otherUser = Session.builder(SESSION)
+                .setIdentity(Identity.ofUser("other"))
+                .build();
+        assertNotEquals(generateKey(otherUser, sql), key);
+
+        Session otherProperties = Session.builder(SESSION)
+                .setSystemProperty(JOIN_DISTRIBUTION_TYPE, "BROADCAST")
+                .build();
+        assertNotEquals(generateKey(otherProperties, sql), key);
+    }
+
+    @Test
+    public void testSubtreeTypes()
+    {
+        @Language("SQL") String sql = "SELECT name, TIME '01:02:03' FROM nation";
+        assertTrue(generateKey(sql).isEmpty());
+
+        // the types of the symbols outside of the subtree do not matter
+        Optional<String> scanKey = queryRunner.inTransaction(SESSION, transactionSession -> {
+            Plan plan = queryRunner.createPlan(transactionSession, sql, WarningCollector.NOOP);
+            PlanNode scan = searchFrom(plan.getRoot()).where(TableScanNode.class::isInstance).findOnlyElement();
+            return new QueryResultCacheKeyGenerator(queryRunner.getMetadata(), transactionSession).generateKey(scan, plan.getTypes());
+        });
+        assertTrue(scanKey.isPresent());
+    }
+
+    @Test
+    public void testBuildKey()
+    {
+        @Language("SQL") String sql = "SELECT n.name, r.name FROM nation n JOIN region r ON n.regionkey = r.regionkey";
+        try {
+            connectorFactory.setTableVersionsImmutable(false);
+            assertTrue(generateBuildKey(sql).isEmpty());
+
+            connectorFactory.setTableVersionsImmutable(true);
+            Optional<String> key = generateBuildKey(sql);
+            assertTrue(key.isPresent());
+            assertEquals(generateBuildKey(sql), key);
+            connectorFactory.setTableVersion("nation", "2");
+            connectorFactory.setTableVersion("region", "2");
+            assertNotEquals(generateBuildKey(sql), key);
+        }
+        finally {
+            connectorFactory.setTableVersionsImmutable(false);
+        }
+    }
+
+    private Optional<String> generateBuildKey(@Language("SQL") String sql)
+    {
+        return queryRunner.inTransaction(SESSION, transactionSession -> {
+            Plan plan = queryRunner.createPlan(transactionSession, sql, WarningCollector.NOOP);
+            JoinNode join = searchFrom(plan.getRoot()).where(JoinNode.class::isInstance).findOnlyElement();
+            return new QueryResultCacheKeyGenerator(queryRunner.getMetadata(), transactionSession).generateBuildKey(join.getRight(), plan.getTypes());
+        });
+    }
+
+    private Optional<String> generateKey(@Language("SQL") String sql)
+    {
+        return generateKey(SESSION, sql);
+    }
+
+    private Optional<String> generateKey(Session session, @Language("SQL") String sql)
+    {
+        return queryRunner.inTransaction(session, transactionSession -> {
+            Analysis analysis = new Analyzer(
+                    transactionSession,
+                    queryRunner.getMetadata(),
+                    SQL_PARSER,
+                    queryRunner.getAccessControl(),
+                    Optional.empty(),
+                    ImmutableList.of(),
+                    ImmutableMap.of(),
+                    WarningCollector.NOOP)
+                    .analyze(SQL_PARSER.createStatement(sql, new ParsingOptions()));
+            Plan plan = queryRunner.createPlan(transactionSession, sql, WarningCollector.NOOP);
+            return new QueryResultCacheKeyGenerator(queryRunner.getMetadata(), transactionSession).generateKey(analysis, plan);
+        });
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.execution.resultcache;
+
+import io.prestosql.plugin.tpch.TpchConnectorFactory;
+import io.prestosql.plugin.tpch.TpchMetadata;
+import io.prestosql.plugin.tpch.TpchTableHandle;
+import io.prestosql.spi.connector.Connector;
+import io.prestosql.spi.connector.ConnectorContext;
+import io.prestosql.spi.connector.ConnectorFactory;
+import io.prestosql.spi.connector.ConnectorHandleResolver;
+import io.prestosql.spi.connector.ConnectorMetadata;
+import io.prestosql.spi.connector.ConnectorNodePartitioningProvider;
+import io.prestosql.spi.connector.ConnectorPageSourceProvider;
+import io.prestosql.spi.connector.ConnectorRecordSetProvider;
+import io.prestosql.spi.connector.ConnectorSession;
+import io.prestosql.spi.connector.ConnectorSplitManager;
+import io.prestosql.spi.connector.ConnectorTableHandle;
+import io.prestosql.spi.connector.ConnectorTransactionHandle;
+import io.prestosql.spi.connector.SchemaTableName;
+import io.prestosql.spi.transaction.IsolationLevel;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * TPCH connector which reports the versions set by the test for its tables, and no version for the other tables.
+ * The data of the tables can be changed by reading them from another TPCH schema.
+ */
+public class TestingVersionedTpchConnectorFactory
+        implements ConnectorFactory
+{
+    private final ConnectorFactory delegate = new TpchConnectorFactory(1);
+    private final Map<String, String> tableVersions = new ConcurrentHashMap<>();
+    private volatile boolean tableVersionsImmutable;
+    private volatile Optional<String> dataSchema = Optional.empty();
+
+    public void setTableVersion(String tableName, String version)
+    {
+        tableVersions.put(tableName, version);
+    }
+
+    public void removeTableVersion(String tableName)
+    {
+        tableVersions.remove(tableName);
+    }
+
+    public void setTableVersionsImmutable(boolean tableVersionsImmutable)
+    {
+        this.tableVersionsImmutable = tableVersionsImmutable;
+    }
+
+    public void setDataSchema(String schemaName)
+    {
+        this.dataSchema = Optional.of(schemaName);
+    }
+
+    @Override
+    public String getName()
+    {
+        return "versioned_tpch";
+    }
+
+    @Override
+    public ConnectorHandleResolver getHandleResolver()
+    {
+        return delegate.getHandleResolver();
+    }
+
+    @Override
+    public Connector create(String catalogName, Map<String, String> config, ConnectorContext context)
+    {
+        Connector connector = delegate.create(catalogName, config, context);
+        return new Connector()
+        {
+            @Override
+            public ConnectorTransactionHandle beginTransaction(IsolationLevel isolationLevel, boolean readOnly)
+            {
+                return connector.beginTransaction(isolationLevel, readOnly);
+            }
+
+            @Override
+            public ConnectorMetadata getMetadata(ConnectorTransactionHandle transactionHandle)
+            {
+                return new TpchMetadata()
+                {
+                    @Override
+                    public TpchTableHandle getTableHandle(ConnectorSession session, SchemaTableName tableName)
+                    {
+                        return super.getTableHandle(session, new SchemaTableName(dataSchema.orElse(tableName.getSchemaName()), tableName.getTableName()));
+                    }
+
+                    @Override
+                    public Optional<String> getTableVersion(ConnectorSession session, ConnectorTableHandle handle)
+                    {
+                        TpchTableHandle tableHandle = (TpchTableHandle) handle;
+                        return Optional.ofNullable(tableVersions.get(tableHandle.getTableName()));
+                    }
+
+                    @Override
+                    public boolean isTableVersionImmutable(ConnectorSession session, ConnectorTableHandle handle)
+                    {
+                        return tableVersionsImmutable;
+                    }
+                };
+            }
+
+            @Override
+            public ConnectorSplitManager getSplitManager()
+            {
+                return connector.getSplitManager();
+            }
+
+            @Override
+            public ConnectorPageSourceProvider getPageSourceProvider()
+            {
+                return connector.getPageSourceProvider();
+            }
+
+            @Override
+            public ConnectorRecordSetProvider getRecordSetProvider()
+            {
+                return connector.getRecordSetProvider();
+            }
+
+            @Override
+            public ConnectorNodePartitioningProvider getNodePartitioningProvider()
+            {
+                return connector.getNodePartitioningProvider();
+            }
+        };
+    }
+}
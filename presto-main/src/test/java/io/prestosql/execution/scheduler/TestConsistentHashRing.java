@@ -0,0 +1,148 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.execution.scheduler;
+
+import com.google.common.collect.ImmutableList;
+import io.prestosql.client.NodeVersion;
+import io.prestosql.metadata.InternalNode;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestConsistentHashRing
+{
+    private static final int NODE_COUNT = 10;
+    private static final int KEY_COUNT = 10_000;
+
+    @Test
+    public void testPreferredNodes()
+    {
+        List<InternalNode> nodes = createNodes(NODE_COUNT);
+        ConsistentHashRing ring = new ConsistentHashRing(nodes);
+
+        for (int key = 0; key < KEY_COUNT; key++) {
+            List<InternalNode> preferredNodes = ring.getPreferredNodes(key(key), 3);
+            assertEquals(preferredNodes.size(), 3);
+            assertEquals(new HashSet<>(preferredNodes).size(), 3, "preferred nodes are not distinct");
+            assertEquals(ring.getPreferredNodes(key(key), 3), preferredNodes);
+            // fewer replicas are a prefix of the preferred nodes
+            assertEquals(ring.getPreferredNodes(key(key), 1), preferredNodes.subList(0, 1));
+        }
+
+        // the preferred nodes are capped by the number of nodes
+        assertEquals(new HashSet<>(ring.getPreferredNodes(key(0), NODE_COUNT + 5)), new HashSet<>(nodes));
+        assertEquals(new ConsistentHashRing(ImmutableList.of()).getPreferredNodes(key(0), 1), ImmutableList.of());
+    }
+
+    @Test
+    public void testBalance()
+    {
+        ConsistentHashRing ring = new ConsistentHashRing(createNodes(NODE_COUNT));
+
+        Map<InternalNode, Integer> keysPerNode = new HashMap<>();
+        for (int key = 0; key < KEY_COUNT; key++) {
+            keysPerNode.merge(ring.getPreferredNodes(key(key), 1).get(0), 1, Integer::sum);
+        }
+        assertEquals(keysPerNode.size(), NODE_COUNT);
+        for (int keys : keysPerNode.values()) {
+            assertTrue(keys > KEY_COUNT / NODE_COUNT / 2 && keys < KEY_COUNT / NODE_COUNT * 2, "keys per node: " + keysPerNode.values());
+        }
+    }
+
+    @Test
+    public void testNodeJoining()
+    {
+        List<InternalNode> nodes = createNodes(NODE_COUNT + 1);
+        InternalNode newNode = nodes.get(NODE_COUNT);
+        ConsistentHashRing before = new ConsistentHashRing(nodes.subList(0, NODE_COUNT));
+        ConsistentHashRing after = new ConsistentHashRing(nodes);
+
+        int movedKeys = 0;
+        for (int key = 0; key < KEY_COUNT; key++) {
+            InternalNode previousNode = before.getPreferredNodes(key(key), 1).get(0);
+            InternalNode currentNode = after.getPreferredNodes(key(key), 1).get(0);
+            if (!currentNode.equals(previousNode)) {
+                // keys only move to the new node
+                assertEquals(currentNode, newNode);
+                movedKeys++;
+            }
+        }
+        assertMovedKeys(movedKeys, NODE_COUNT + 1);
+    }
+
+    @Test
+    public void testNodeLeaving()
+    {
+        List<InternalNode> nodes = createNodes(NODE_COUNT);
+        InternalNode removedNode = nodes.get(3);
+        ConsistentHashRing before = new ConsistentHashRing(nodes);
+        ConsistentHashRing after = new ConsistentHashRing(nodes.stream()
+                .filter(node -> !node.equals(removedNode))
+                .collect(toImmutableList()));
+
+        int movedKeys = 0;
+        for (int key = 0; key < KEY_COUNT; key++) {
+            InternalNode previousNode = before.getPreferredNodes(key(key), 1).get(0);
+            InternalNode currentNode = after.getPreferredNodes(key(key), 1).get(0);
+            if (!currentNode.equals(previousNode)) {
+                // only the keys of the removed node move
+                assertEquals(previousNode, removedNode);
+                movedKeys++;
+            }
+            else {
+                assertFalse(previousNode.equals(removedNode));
+            }
+        }
+        assertMovedKeys(movedKeys, NODE_COUNT);
+    }
+
+    @Test
+    public void testHasSameNodes()
+    {
+        List<InternalNode> nodes = createNodes(3);
+        ConsistentHashRing ring = new ConsistentHashRing(nodes);
+        assertTrue(ring.hasSameNodes(ImmutableList.of(nodes.get(2), nodes.get(0), nodes.get(1))));
+        assertFalse(ring.hasSameNodes(nodes.subList(0, 2)));
+        assertFalse(ring.hasSameNodes(createNodes(4)));
+    }
+
+    private static void assertMovedKeys(int movedKeys, int nodeCount)
+    {
+        // about one node's share of the keys moves
+        int expectedMovedKeys = KEY_COUNT / nodeCount;
+        assertTrue(movedKeys > expectedMovedKeys / 2 && movedKeys < expectedMovedKeys * 2, "moved keys: " + movedKeys);
+    }
+
+    private static List<InternalNode> createNodes(int count)
+    {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new InternalNode("node" + i, URI.create("http://10.0.0." + (i + 1) + ":8080"), NodeVersion.UNKNOWN, false))
+                .collect(toImmutableList());
+    }
+
+    private static String key(int key)
+    {
+        return "hdfs://warehouse/table/file" + key + ".orc:0";
+    }
+}
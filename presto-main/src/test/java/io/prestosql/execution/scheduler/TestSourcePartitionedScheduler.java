@@ -0,0 +1,496 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.execution.scheduler;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.prestosql.Session;
+import io.prestosql.client.NodeVersion;
+import io.prestosql.connector.CatalogName;
+import io.prestosql.cost.StatsAndCosts;
+import io.prestosql.execution.DynamicFilterConfig;
+import io.prestosql.execution.Lifespan;
+import io.prestosql.execution.NodeTaskMap;
+import io.prestosql.execution.NodeTaskMap.PartitionedSplitCountTracker;
+import io.prestosql.execution.RemoteTask;
+import io.prestosql.execution.RemoteTaskFactory;
+import io.prestosql.execution.SqlStageExecution;
+import io.prestosql.execution.StageId;
+import io.prestosql.execution.StateMachine.StateChangeListener;
+import io.prestosql.execution.TaskId;
+import io.prestosql.execution.TaskInfo;
+import io.prestosql.execution.TaskStatus;
+import io.prestosql.execution.buffer.OutputBuffers;
+import io.prestosql.execution.buffer.OutputBuffers.OutputBufferId;
+import io.prestosql.failuredetector.NoOpFailureDetector;
+import io.prestosql.metadata.InternalNode;
+import io.prestosql.metadata.Split;
+import io.prestosql.server.DynamicFilterService;
+import io.prestosql.spi.connector.ConnectorPartitionHandle;
+import io.prestosql.spi.predicate.Domain;
+import io.prestosql.split.SplitSource;
+import io.prestosql.sql.planner.Partitioning;
+import io.prestosql.sql.planner.PartitioningScheme;
+import io.prestosql.sql.planner.PlanFragment;
+import io.prestosql.sql.planner.Symbol;
+import io.prestosql.sql.planner.plan.DynamicFilterId;
+import io.prestosql.sql.planner.plan.PlanFragmentId;
+import io.prestosql.sql.planner.plan.PlanNodeId;
+import io.prestosql.sql.planner.plan.TableScanNode;
+import io.prestosql.testing.TestingMetadata.TestingColumnHandle;
+import io.prestosql.testing.TestingSplit;
+import io.prestosql.util.FinalizerService;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.prestosql.execution.SqlStageExecution.createSqlStageExecution;
+import static io.prestosql.execution.buffer.OutputBuffers.BufferType.PARTITIONED;
+import static io.prestosql.execution.buffer.OutputBuffers.createInitialEmptyOutputBuffers;
+import static io.prestosql.execution.scheduler.SourcePartitionedScheduler.newSourcePartitionedSchedulerAsStageScheduler;
+import static io.prestosql.operator.StageExecutionDescriptor.ungroupedExecution;
+import static io.prestosql.spi.type.VarcharType.VARCHAR;
+import static io.prestosql.sql.planner.SystemPartitioningHandle.SINGLE_DISTRIBUTION;
+import static io.prestosql.sql.planner.SystemPartitioningHandle.SOURCE_DISTRIBUTION;
+import static io.prestosql.testing.TestingHandles.TEST_TABLE_HANDLE;
+import static io.prestosql.testing.TestingSession.testSessionBuilder;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestSourcePartitionedScheduler
+{
+    private static final PlanNodeId TABLE_SCAN_NODE_ID = new PlanNodeId("table_scan");
+    private static final CatalogName CATALOG = new CatalogName("test");
+    private static final int SPLIT_BATCH_SIZE = 10;
+
+    private final InternalNode node = new InternalNode("node", URI.create("http://10.0.0.1:8080"), NodeVersion.UNKNOWN, false);
+
+    private ExecutorService executor;
+    private FinalizerService finalizerService;
+    private TestingSplitSource splitSource;
+    private TestingSplitPlacementPolicy placementPolicy;
+    private AtomicInteger assignedSplits;
+    private StageScheduler scheduler;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        executor = newCachedThreadPool(daemonThreadsNamed("test-source-partitioned-scheduler-%s"));
+        finalizerService = new FinalizerService();
+        finalizerService.start();
+        splitSource = new TestingSplitSource();
+        placementPolicy = new TestingSplitPlacementPolicy(node);
+        assignedSplits = new AtomicInteger();
+
+        SqlStageExecution stage = createSqlStageExecution(
+                new StageId("query", 0),
+                createFragment(),
+                ImmutableMap.of(),
+                new TestingRemoteTaskFactory(assignedSplits),
+                testSessionBuilder().build(),
+                true,
+                new NodeTaskMap(finalizerService),
+                executor,
+                new NoOpFailureDetector(),
+                new SplitSchedulerStats());
+        stage.setOutputBuffers(createInitialEmptyOutputBuffers(PARTITIONED)
+                .withBuffer(new OutputBufferId(0), 0)
+                .withNoMoreBufferIds());
+
+        scheduler = newSourcePartitionedSchedulerAsStageScheduler(
+                stage,
+                TABLE_SCAN_NODE_ID,
+                splitSource,
+                placementPolicy,
+                SPLIT_BATCH_SIZE,
+                new DynamicFilterService(new DynamicFilterConfig()),
+                () -> false);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+    {
+        executor.shutdownNow();
+        executor = null;
+        finalizerService.destroy();
+        finalizerService = null;
+    }
+
+    @Test
+    public void testSplitBatchGrowth()
+    {
+        // while every batch is placed without blocking, the requested batch size doubles up to eight batches
+        int expectedSplits = 0;
+        for (int expectedBatchSize : ImmutableList.of(10, 20, 40, 80, 80, 80)) {
+            ScheduleResult result = scheduler.schedule();
+            assertFalse(result.isFinished());
+            assertEquals(splitSource.getLastRequestedBatchSize(), expectedBatchSize);
+            assertFalse(result.getBlocked().isDone(), "scheduler is not waiting for the split batch");
+
+            splitSource.completeBatch(expectedBatchSize, false);
+            assertEquals(scheduler.schedule().getSplitsScheduled(), expectedBatchSize);
+            expectedSplits += expectedBatchSize;
+            assertEquals(assignedSplits.get(), expectedSplits);
+        }
+        assertEquals(splitSource.getRequestedBatchSizes(), ImmutableList.of(10, 20, 40, 80, 80, 80));
+
+        scheduler.schedule();
+        splitSource.completeBatch(0, true);
+        assertFalse(scheduler.schedule().isFinished());
+        // the finished schedule group is drained after the previous call
+        assertTrue(scheduler.schedule().isFinished());
+    }
+
+    @Test
+    public void testPrefetchCappedWhileSplitsQueueUp()
+    {
+        // grow the batch size to 40
+        for (int batchSize : ImmutableList.of(10, 20)) {
+            scheduler.schedule();
+            splitSource.completeBatch(batchSize, false);
+            scheduler.schedule();
+        }
+        scheduler.schedule();
+        assertEquals(splitSource.getLastRequestedBatchSize(), 40);
+
+        // the split queues fill up after 5 splits, which resets the batch size
+        placementPolicy.setMaxSplitsPerCall(5);
+        splitSource.completeBatch(40, false);
+        ScheduleResult result = scheduler.schedule();
+        assertEquals(result.getSplitsScheduled(), 5);
+        assertFalse(result.getBlocked().isDone());
+
+        // more than a batch of splits is pending, so no further batch is fetched
+        for (int i = 0; i < 3; i++) {
+            assertEquals(scheduler.schedule().getSplitsScheduled(), 0);
+        }
+        assertEquals(splitSource.getRequestedBatchSizes(), ImmutableList.of(10, 20, 40));
+        assertFalse(splitSource.hasPendingBatch());
+
+        // the queues drain partially, leaving fewer than a batch of splits pending
+        placementPolicy.setMaxSplitsPerCall(30);
+        placementPolicy.unblock();
+        assertEquals(scheduler.schedule().getSplitsScheduled(), 30);
+
+        // the next batch is fetched while splits are still pending, with the initial batch size,
+        // and only one batch is outstanding at a time
+        placementPolicy.unblock();
+        placementPolicy.setMaxSplitsPerCall(0);
+        scheduler.schedule();
+        scheduler.schedule();
+        assertEquals(splitSource.getRequestedBatchSizes(), ImmutableList.of(10, 20, 40, 10));
+        assertTrue(splitSource.hasPendingBatch());
+
+        // the prefetched batch is placed together with the pending splits
+        placementPolicy.setMaxSplitsPerCall(Integer.MAX_VALUE);
+        placementPolicy.unblock();
+        splitSource.completeBatch(10, false);
+        assertEquals(scheduler.schedule().getSplitsScheduled(), 15);
+        assertEquals(assignedSplits.get(), 10 + 20 + 40 + 10);
+    }
+
+    private static PlanFragment createFragment()
+    {
+        Symbol symbol = new Symbol("column");
+        TableScanNode tableScan = TableScanNode.newInstance(
+                TABLE_SCAN_NODE_ID,
+                TEST_TABLE_HANDLE,
+                ImmutableList.of(symbol),
+                ImmutableMap.of(symbol, new TestingColumnHandle("column")));
+        return new PlanFragment(
+                new PlanFragmentId("fragment"),
+                tableScan,
+                ImmutableMap.of(symbol, VARCHAR),
+                SOURCE_DISTRIBUTION,
+                ImmutableList.of(TABLE_SCAN_NODE_ID),
+                new PartitioningScheme(Partitioning.create(SINGLE_DISTRIBUTION, ImmutableList.of()), ImmutableList.of(symbol)),
+                ungroupedExecution(),
+                StatsAndCosts.empty(),
+                ImmutableMap.of(),
+                Optional.empty());
+    }
+
+    private static class TestingSplitSource
+            implements SplitSource
+    {
+        private final List<Integer> requestedBatchSizes = new ArrayList<>();
+        private SettableFuture<SplitBatch> pendingBatch;
+        private boolean finished;
+
+        @Override
+        public CatalogName getCatalogName()
+        {
+            return CATALOG;
+        }
+
+        @Override
+        public ListenableFuture<SplitBatch> getNextBatch(ConnectorPartitionHandle partitionHandle, Lifespan lifespan, int maxSize)
+        {
+            assertFalse(hasPendingBatch(), "batch requested while another batch is outstanding");
+            requestedBatchSizes.add(maxSize);
+            pendingBatch = SettableFuture.create();
+            return pendingBatch;
+        }
+
+        public void completeBatch(int splitCount, boolean lastBatch)
+        {
+            List<Split> splits = IntStream.range(0, splitCount)
+                    .mapToObj(i -> new Split(CATALOG, TestingSplit.createRemoteSplit(), Lifespan.taskWide()))
+                    .collect(toImmutableList());
+            finished = lastBatch;
+            pendingBatch.set(new SplitBatch(splits, lastBatch));
+        }
+
+        public boolean hasPendingBatch()
+        {
+            return pendingBatch != null && !pendingBatch.isDone();
+        }
+
+        public List<Integer> getRequestedBatchSizes()
+        {
+            return ImmutableList.copyOf(requestedBatchSizes);
+        }
+
+        public int getLastRequestedBatchSize()
+        {
+            return requestedBatchSizes.get(requestedBatchSizes.size() - 1);
+        }
+
+        @Override
+        public void close()
+        {
+        }
+
+        @Override
+        public boolean isFinished()
+        {
+            return finished;
+        }
+
+        @Override
+        public Optional<Integer> getMinScheduleSplitBatchSize()
+        {
+            return Optional.empty();
+        }
+    }
+
+    private static class TestingSplitPlacementPolicy
+            implements SplitPlacementPolicy
+    {
+        private final InternalNode node;
+        private int maxSplitsPerCall = Integer.MAX_VALUE;
+        private SettableFuture<?> blocked = SettableFuture.create();
+
+        public TestingSplitPlacementPolicy(InternalNode node)
+        {
+            this.node = node;
+        }
+
+        public void setMaxSplitsPerCall(int maxSplitsPerCall)
+        {
+            this.maxSplitsPerCall = maxSplitsPerCall;
+        }
+
+        public void unblock()
+        {
+            blocked.set(null);
+            blocked = SettableFuture.create();
+        }
+
+        @Override
+        public SplitPlacementResult computeAssignments(Set<Split> splits)
+        {
+            ImmutableMultimap.Builder<InternalNode, Split> assignment = ImmutableMultimap.builder();
+            splits.stream()
+                    .limit(maxSplitsPerCall)
+                    .forEach(split -> assignment.put(node, split));
+            ListenableFuture<?> result = splits.size() <= maxSplitsPerCall ? Futures.immediateFuture(null) : blocked;
+            return new SplitPlacementResult(result, assignment.build());
+        }
+
+        @Override
+        public void lockDownNodes()
+        {
+        }
+
+        @Override
+        public List<InternalNode> allNodes()
+        {
+            return ImmutableList.of(node);
+        }
+    }
+
+    private static class TestingRemoteTaskFactory
+            implements RemoteTaskFactory
+    {
+        private final AtomicInteger assignedSplits;
+
+        public TestingRemoteTaskFactory(AtomicInteger assignedSplits)
+        {
+            this.assignedSplits = assignedSplits;
+        }
+
+        @Override
+        public RemoteTask createRemoteTask(
+                Session session,
+                TaskId taskId,
+                InternalNode node,
+                PlanFragment fragment,
+                Multimap<PlanNodeId, Split> initialSplits,
+                OptionalInt totalPartitions,
+                OutputBuffers outputBuffers,
+                PartitionedSplitCountTracker partitionedSplitCountTracker,
+                boolean summarizeTaskInfo)
+        {
+            assignedSplits.addAndGet(initialSplits.get(TABLE_SCAN_NODE_ID).size());
+            return new TestingRemoteTask(taskId, node, assignedSplits);
+        }
+    }
+
+    private static class TestingRemoteTask
+            implements RemoteTask
+    {
+        private final TaskId taskId;
+        private final InternalNode node;
+        private final AtomicInteger assignedSplits;
+
+        public TestingRemoteTask(TaskId taskId, InternalNode node, AtomicInteger assignedSplits)
+        {
+            this.taskId = taskId;
+            this.node = node;
+            this.assignedSplits = assignedSplits;
+        }
+
+        @Override
+        public TaskId getTaskId()
+        {
+            return taskId;
+        }
+
+        @Override
+        public String getNodeId()
+        {
+            return node.getNodeIdentifier();
+        }
+
+        @Override
+        public TaskInfo getTaskInfo()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void requestDetailedTaskInfo()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TaskStatus getTaskStatus()
+        {
+            return TaskStatus.initialTaskStatus(taskId, node.getInternalUri(), node.getNodeIdentifier());
+        }
+
+        @Override
+        public Map<DynamicFilterId, Domain> getDynamicFilterDomains()
+        {
+            return ImmutableMap.of();
+        }
+
+        @Override
+        public void start()
+        {
+        }
+
+        @Override
+        public void addSplits(Multimap<PlanNodeId, Split> splits)
+        {
+            assignedSplits.addAndGet(splits.get(TABLE_SCAN_NODE_ID).size());
+        }
+
+        @Override
+        public void noMoreSplits(PlanNodeId sourceId)
+        {
+        }
+
+        @Override
+        public void noMoreSplits(PlanNodeId sourceId, Lifespan lifespan)
+        {
+        }
+
+        @Override
+        public void setOutputBuffers(OutputBuffers outputBuffers)
+        {
+        }
+
+        @Override
+        public void addStateChangeListener(StateChangeListener<TaskStatus> stateChangeListener)
+        {
+        }
+
+        @Override
+        public void addFinalTaskInfoListener(StateChangeListener<TaskInfo> stateChangeListener)
+        {
+        }
+
+        @Override
+        public ListenableFuture<?> whenSplitQueueHasSpace(int threshold)
+        {
+            return Futures.immediateFuture(null);
+        }
+
+        @Override
+        public void cancel()
+        {
+        }
+
+        @Override
+        public void abort()
+        {
+        }
+
+        @Override
+        public int getPartitionedSplitCount()
+        {
+            return 0;
+        }
+
+        @Override
+        public int getQueuedPartitionedSplitCount()
+        {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.execution.scheduler;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Multimap;
+import io.airlift.units.Duration;
+import io.prestosql.client.NodeVersion;
+import io.prestosql.connector.CatalogName;
+import io.prestosql.execution.Lifespan;
+import io.prestosql.execution.NodeTaskMap;
+import io.prestosql.metadata.InMemoryNodeManager;
+import io.prestosql.metadata.InternalNode;
+import io.prestosql.metadata.Split;
+import io.prestosql.spi.HostAddress;
+import io.prestosql.spi.connector.ConnectorSplit;
+import io.prestosql.util.FinalizerService;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestUniformNodeSelector
+{
+    private static final CatalogName CATALOG = new CatalogName("catalog");
+    private static final int MAX_SPLITS_PER_NODE = 4;
+
+    private FinalizerService finalizerService;
+    private List<InternalNode> nodes;
+    private InMemoryNodeManager nodeManager;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        finalizerService = new FinalizerService();
+        finalizerService.start();
+        nodes = IntStream.range(0, 5)
+                .mapToObj(i -> new InternalNode("node" + i, URI.create("http://10.0.0." + (i + 1) + ":8080"), NodeVersion.UNKNOWN, false))
+                .collect(toImmutableList());
+        nodeManager = new InMemoryNodeManager();
+        nodeManager.addNode(CATALOG, nodes);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+    {
+        finalizerService.destroy();
+        finalizerService = null;
+        nodes = null;
+        nodeManager = null;
+    }
+
+    @Test
+    public void testPreferredNode()
+    {
+        UniformNodeSelectorFactory factory = createFactory(1);
+        Multimap<InternalNode, Split> assignment = factory.createNodeSelector(Optional.of(CATALOG))
+                .computeAssignments(createSplits("file", 3), ImmutableList.of())
+                .getAssignments();
+
+        // every split reading the same data runs on the preferred node
+        assertEquals(assignment.keySet(), ImmutableSet.of(getPreferredNodes("file", 1).get(0)));
+        assertEquals(factory.getPlacementCountersByName().get("cache_affinity_preferred").getTotalCount(), 3);
+        assertEquals(factory.getPlacementCountersByName().get("cache_affinity_fallback").getTotalCount(), 0);
+    }
+
+    @Test
+    public void testFallbackWhenPreferredNodeIsFull()
+    {
+        UniformNodeSelectorFactory factory = createFactory(1);
+        Multimap<InternalNode, Split> assignment = factory.createNodeSelector(Optional.of(CATALOG))
+                .computeAssignments(createSplits("file", MAX_SPLITS_PER_NODE + 3), ImmutableList.of())
+                .getAssignments();
+
+        // the preferred node takes splits up to the limit, the other splits are placed on the least loaded nodes
+        InternalNode preferredNode = getPreferredNodes("file", 1).get(0);
+        assertEquals(assignment.get(preferredNode).size(), MAX_SPLITS_PER_NODE);
+        assertEquals(assignment.size(), MAX_SPLITS_PER_NODE + 3);
+        assertEquals(assignment.keySet().size(), 4);
+        assertEquals(factory.getPlacementCountersByName().get("cache_affinity_preferred").getTotalCount(), MAX_SPLITS_PER_NODE);
+        assertEquals(factory.getPlacementCountersByName().get("cache_affinity_fallback").getTotalCount(), 3);
+    }
+
+    @Test
+    public void testFallbackWhenAllReplicasAreFull()
+    {
+        UniformNodeSelectorFactory factory = createFactory(2);
+        Multimap<InternalNode, Split> assignment = factory.createNodeSelector(Optional.of(CATALOG))
+                .computeAssignments(createSplits("file", 2 * MAX_SPLITS_PER_NODE + 1), ImmutableList.of())
+                .getAssignments();
+
+        // the splits are spread over the preferred nodes until both are full
+        List<InternalNode> preferredNodes = getPreferredNodes("file", 2);
+        for (InternalNode preferredNode : preferredNodes) {
+            assertEquals(assignment.get(preferredNode).size(), MAX_SPLITS_PER_NODE);
+        }
+        Set<InternalNode> otherNodes = assignment.keySet().stream()
+                .filter(node -> !preferredNodes.contains(node))
+                .collect(toImmutableSet());
+        assertEquals(otherNodes.size(), 1);
+        assertEquals(factory.getPlacementCountersByName().get("cache_affinity_fallback").getTotalCount(), 1);
+    }
+
+    @Test
+    public void testSplitsWithoutAffinityKey()
+    {
+        UniformNodeSelectorFactory factory = createFactory(1);
+        Set<Split> splits = IntStream.range(0, 3)
+                .mapToObj(i -> new Split(CATALOG, new AffinitySplit(Optional.empty()), Lifespan.taskWide()))
+                .collect(toImmutableSet());
+        Multimap<InternalNode, Split> assignment = factory.createNodeSelector(Optional.of(CATALOG))
+                .computeAssignments(splits, ImmutableList.of())
+                .getAssignments();
+
+        assertEquals(assignment.size(), 3);
+        assertEquals(factory.getPlacementCountersByName().get("cache_affinity_preferred").getTotalCount(), 0);
+        assertEquals(factory.getPlacementCountersByName().get("cache_affinity_fallback").getTotalCount(), 0);
+    }
+
+    @Test
+    public void testCacheAffinityDisabled()
+    {
+        NodeSchedulerConfig config = new NodeSchedulerConfig()
+                .setMaxSplitsPerNode(MAX_SPLITS_PER_NODE)
+                .setMaxPendingSplitsPerTask(MAX_SPLITS_PER_NODE);
+        UniformNodeSelectorFactory factory = new UniformNodeSelectorFactory(nodeManager, config, new NodeTaskMap(finalizerService), new Duration(0, SECONDS));
+        Multimap<InternalNode, Split> assignment = factory.createNodeSelector(Optional.of(CATALOG))
+                .computeAssignments(createSplits("file", 2 * MAX_SPLITS_PER_NODE), ImmutableList.of())
+                .getAssignments();
+
+        assertEquals(assignment.size(), 2 * MAX_SPLITS_PER_NODE);
+        assertTrue(assignment.keySet().size() > 1);
+        assertFalse(factory.getPlacementCountersByName().containsKey("cache_affinity_preferred"));
+    }
+
+    private UniformNodeSelectorFactory createFactory(int replicas)
+    {
+        NodeSchedulerConfig config = new NodeSchedulerConfig()
+                .setMaxSplitsPerNode(MAX_SPLITS_PER_NODE)
+                .setMaxPendingSplitsPerTask(MAX_SPLITS_PER_NODE)
+                .setCacheAffinityEnabled(true)
+                .setCacheAffinityReplicas(replicas);
+        return new UniformNodeSelectorFactory(nodeManager, config, new NodeTaskMap(finalizerService), new Duration(0, SECONDS));
+    }
+
+    private List<InternalNode> getPreferredNodes(String key, int replicas)
+    {
+        return new ConsistentHashRing(nodes).getPreferredNodes(key, replicas);
+    }
+
+    private static Set<Split> createSplits(String key, int count)
+    {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new Split(CATALOG, new AffinitySplit(Optional.of(key)), Lifespan.taskWide()))
+                .collect(toImmutableSet());
+    }
+
+    private static class AffinitySplit
+            implements ConnectorSplit
+    {
+        private final Optional<String> affinityKey;
+
+        public AffinitySplit(Optional<String> affinityKey)
+        {
+            this.affinityKey = affinityKey;
+        }
+
+        @Override
+        public boolean isRemotelyAccessible()
+        {
+            return true;
+        }
+
+        @Override
+        public List<HostAddress> getAddresses()
+        {
+            return ImmutableList.of();
+        }
+
+        @Override
+        public Optional<String> getAffinityKey()
+        {
+            return affinityKey;
+        }
+
+        @Override
+        public Object getInfo()
+        {
+            return this;
+        }
+    }
+}
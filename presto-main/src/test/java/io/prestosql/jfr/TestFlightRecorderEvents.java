@@ -0,0 +1,304 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.jfr;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.MoreFiles;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.airlift.units.Duration;
+import io.prestosql.execution.SplitRunner;
+import io.prestosql.execution.TaskId;
+import io.prestosql.execution.buffer.PagesSerdeFactory;
+import io.prestosql.execution.executor.TaskExecutor;
+import io.prestosql.execution.executor.TaskHandle;
+import io.prestosql.memory.context.LocalMemoryContext;
+import io.prestosql.operator.DriverContext;
+import io.prestosql.operator.OperatorContext;
+import io.prestosql.operator.TaskContext;
+import io.prestosql.spi.Page;
+import io.prestosql.spi.block.BlockBuilder;
+import io.prestosql.spiller.FileSingleStreamSpiller;
+import io.prestosql.spiller.SpillerStats;
+import io.prestosql.sql.planner.plan.PlanNodeId;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static com.google.common.base.Ticker.systemTicker;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.prestosql.metadata.MetadataManager.createTestMetadataManager;
+import static io.prestosql.operator.Operator.NOT_BLOCKED;
+import static io.prestosql.spi.type.BigintType.BIGINT;
+import static io.prestosql.testing.TestingSession.testSessionBuilder;
+import static io.prestosql.testing.TestingTaskContext.createTaskContext;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.Executors.newScheduledThreadPool;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestFlightRecorderEvents
+{
+    private ExecutorService executor;
+    private ScheduledExecutorService scheduledExecutor;
+    private Path recordingDirectory;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        executor = newCachedThreadPool(daemonThreadsNamed("test-executor-%s"));
+        scheduledExecutor = newScheduledThreadPool(2, daemonThreadsNamed("test-scheduledExecutor-%s"));
+        recordingDirectory = Files.createTempDirectory("presto-jfr");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        executor.shutdownNow();
+        scheduledExecutor.shutdownNow();
+        MoreFiles.deleteRecursively(recordingDirectory, ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testOperatorBlockedEvent()
+            throws Exception
+    {
+        OperatorContext operatorContext = createOperatorContext();
+
+        List<RecordedEvent> events = record(OperatorBlockedEvent.class, () -> {
+            SettableFuture<?> blocked = SettableFuture.create();
+            operatorContext.recordBlocked(blocked);
+            blocked.set(null);
+        });
+
+        RecordedEvent event = getOnlyEvent(events, "io.prestosql.OperatorBlocked");
+        assertOperatorEvent(event, operatorContext);
+        assertEquals(event.getString("blockedReason"), "WAITING_FOR_OPERATOR");
+    }
+
+    @Test
+    public void testMemoryRevocationEvent()
+            throws Exception
+    {
+        OperatorContext operatorContext = createOperatorContext();
+        operatorContext.setMemoryRevocationRequestListener(() -> {});
+        LocalMemoryContext revocableMemory = operatorContext.localRevocableMemoryContext();
+        revocableMemory.setBytes(1_000);
+
+        List<RecordedEvent> events = record(MemoryRevocationEvent.class, () -> {
+            assertEquals(operatorContext.requestMemoryRevoking(), 1_000);
+            // revocation is requested only once, so it is recorded only once
+            assertEquals(operatorContext.requestMemoryRevoking(), 0);
+        });
+        revocableMemory.setBytes(0);
+
+        RecordedEvent event = getOnlyEvent(events, "io.prestosql.MemoryRevocation");
+        assertOperatorEvent(event, operatorContext);
+        assertEquals(event.getLong("revocableBytes"), 1_000);
+    }
+
+    @Test
+    public void testSpillWriteEvent()
+            throws Exception
+    {
+        OperatorContext operatorContext = createOperatorContext();
+        Path spillPath = Files.createTempDirectory(recordingDirectory, "spill");
+        List<Page> pages = ImmutableList.of(createSequencePage(0, 10), createSequencePage(10, 10));
+
+        FileSingleStreamSpiller spiller = new FileSingleStreamSpiller(
+                new PagesSerdeFactory(createTestMetadataManager().getBlockEncodingSerde(), false).createPagesSerde(),
+                listeningDecorator(executor),
+                spillPath,
+                new SpillerStats(),
+                operatorContext.getSpillContext(),
+                operatorContext.newLocalSystemMemoryContext("test"),
+                Optional.empty(),
+                () -> {});
+        try {
+            List<RecordedEvent> events = record(SpillWriteEvent.class, () -> spiller.spill(pages.iterator()).get(10, SECONDS));
+
+            // the spilled bytes are accounted to the operator, which the event is tagged with
+            RecordedEvent event = getOnlyEvent(events, "io.prestosql.SpillWrite");
+            assertOperatorEvent(event, operatorContext);
+            assertTrue(event.getString("path").startsWith(spillPath.toString()));
+            assertEquals(event.getLong("pages"), 2);
+            assertEquals(event.getLong("bytes"), operatorContext.getOperatorStats().getSpilledDataSize().toBytes());
+            assertTrue(event.getLong("bytes") > 0);
+        }
+        finally {
+            spiller.close();
+        }
+    }
+
+    @Test
+    public void testSplitQuantumEvent()
+            throws Exception
+    {
+        TaskExecutor taskExecutor = new TaskExecutor(1, 1, 1, 1, systemTicker());
+        taskExecutor.start();
+        try {
+            TaskId taskId = new TaskId("query", 1, 0);
+            TaskHandle taskHandle = taskExecutor.addTask(taskId, () -> 0.0, 1, new Duration(1, SECONDS), OptionalInt.empty());
+            TestingSplitRunner split = new TestingSplitRunner();
+
+            List<RecordedEvent> events = record(SplitQuantumEvent.class, () -> {
+                // the first quantum is blocked, and the split finishes in the second one
+                ListenableFuture<?> finished = taskExecutor.enqueueSplits(taskHandle, false, ImmutableList.of(split)).get(0);
+                split.unblock();
+                finished.get(10, SECONDS);
+            });
+            taskExecutor.removeTask(taskHandle);
+
+            List<RecordedEvent> quanta = getEvents(events, "io.prestosql.SplitQuantum");
+            assertEquals(quanta.size(), 2);
+            for (RecordedEvent event : quanta) {
+                assertTaskEvent(event, taskId);
+                assertEquals(event.getString("splitInfo"), "testing split");
+                assertTrue(event.getLong("cpuTime") >= 0);
+            }
+            assertEquals(quanta.get(0).getInt("splitId"), quanta.get(1).getInt("splitId"));
+            assertTrue(quanta.get(0).getBoolean("blocked"));
+            assertFalse(quanta.get(1).getBoolean("blocked"));
+        }
+        finally {
+            taskExecutor.stop();
+        }
+    }
+
+    private OperatorContext createOperatorContext()
+    {
+        // blocked listeners run on the thread that unblocks the operator
+        TaskContext taskContext = createTaskContext(directExecutor(), scheduledExecutor, testSessionBuilder().build());
+        DriverContext driverContext = taskContext.addPipelineContext(2, true, true, false).addDriverContext();
+        return driverContext.addOperatorContext(3, new PlanNodeId("test"), "TestOperator");
+    }
+
+    private static Page createSequencePage(long start, int positions)
+    {
+        BlockBuilder builder = BIGINT.createBlockBuilder(null, positions);
+        for (long value = start; value < start + positions; value++) {
+            BIGINT.writeLong(builder, value);
+        }
+        return new Page(builder.build());
+    }
+
+    private List<RecordedEvent> record(Class<? extends Event> eventClass, ThrowingRunnable action)
+            throws Exception
+    {
+        Path file = Files.createTempFile(recordingDirectory, "recording", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(eventClass).withThreshold(java.time.Duration.ZERO);
+            recording.start();
+            action.run();
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file);
+    }
+
+    private static List<RecordedEvent> getEvents(List<RecordedEvent> events, String name)
+    {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .sorted(Comparator.comparing(RecordedEvent::getStartTime))
+                .collect(toImmutableList());
+    }
+
+    private static RecordedEvent getOnlyEvent(List<RecordedEvent> events, String name)
+    {
+        List<RecordedEvent> matching = getEvents(events, name);
+        assertEquals(matching.size(), 1, "events named " + name);
+        return matching.get(0);
+    }
+
+    private static void assertOperatorEvent(RecordedEvent event, OperatorContext operatorContext)
+    {
+        assertTaskEvent(event, operatorContext.getDriverContext().getTaskId());
+        assertEquals(event.getInt("pipelineId"), 2);
+        assertEquals(event.getInt("operatorId"), 3);
+        assertEquals(event.getString("operatorType"), "TestOperator");
+    }
+
+    private static void assertTaskEvent(RecordedEvent event, TaskId taskId)
+    {
+        assertEquals(event.getString("queryId"), taskId.getQueryId().getId());
+        assertEquals(event.getString("stageId"), taskId.getStageId().toString());
+        assertEquals(event.getString("taskId"), taskId.toString());
+    }
+
+    private interface ThrowingRunnable
+    {
+        void run()
+                throws Exception;
+    }
+
+    private static class TestingSplitRunner
+            implements SplitRunner
+    {
+        private final SettableFuture<?> blocked = SettableFuture.create();
+        private volatile int quanta;
+
+        public void unblock()
+        {
+            blocked.set(null);
+        }
+
+        @Override
+        public boolean isFinished()
+        {
+            return quanta > 1;
+        }
+
+        @Override
+        public ListenableFuture<?> processFor(Duration duration)
+        {
+            quanta++;
+            return quanta == 1 ? blocked : NOT_BLOCKED;
+        }
+
+        @Override
+        public String getInfo()
+        {
+            return "testing split";
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
+}
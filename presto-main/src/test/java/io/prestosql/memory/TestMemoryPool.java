@@ -0,0 +1,178 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.memory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.airlift.units.DataSize;
+import io.prestosql.spi.QueryId;
+import io.prestosql.spi.memory.MemoryPoolId;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.units.DataSize.Unit.BYTE;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestMemoryPool
+{
+    private static final int THREADS = 8;
+
+    private ExecutorService executor;
+
+    @BeforeClass
+    public void setUp()
+    {
+        executor = newFixedThreadPool(THREADS, daemonThreadsNamed("test-memory-pool-%s"));
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    @Test
+    public void testConcurrentTryReserve()
+            throws Exception
+    {
+        MemoryPool pool = new MemoryPool(new MemoryPoolId("test"), DataSize.of(10_000, BYTE));
+
+        // every thread reserves until the pool is full, so the compare and set loop must neither lose nor over-commit reservations
+        List<Integer> reservations = runConcurrently(thread -> {
+            QueryId queryId = new QueryId("query_" + thread);
+            int reserved = 0;
+            while (pool.tryReserve(queryId, "test", 10)) {
+                reserved++;
+            }
+            return reserved;
+        });
+
+        assertEquals(reservations.stream().mapToInt(Integer::intValue).sum(), 1_000);
+        assertEquals(pool.getReservedBytes(), 10_000);
+        assertEquals(pool.getFreeBytes(), 0);
+        for (int thread = 0; thread < THREADS; thread++) {
+            assertEquals(pool.getQueryMemoryReservation(new QueryId("query_" + thread)), reservations.get(thread) * 10L);
+        }
+        assertFalse(pool.tryReserveNodeMemory(1));
+    }
+
+    @Test
+    public void testConcurrentReserveAndFree()
+            throws Exception
+    {
+        MemoryPool pool = new MemoryPool(new MemoryPoolId("test"), DataSize.of(1_000, BYTE));
+
+        // threads of the same query update the reservation and the tagged allocations of the query concurrently
+        runConcurrently(thread -> {
+            QueryId queryId = new QueryId("query_" + (thread % 2));
+            String tag = "tag_" + (thread % 3);
+            for (int i = 0; i < 10_000; i++) {
+                if (pool.tryReserve(queryId, tag, 7)) {
+                    pool.free(queryId, tag, 7);
+                }
+                pool.reserve(queryId, tag, 3);
+                pool.free(queryId, tag, 3);
+                if (pool.tryReserveNodeMemory(5)) {
+                    pool.freeNodeMemory(5);
+                }
+            }
+            return null;
+        });
+
+        assertEquals(pool.getReservedBytes(), 0);
+        assertEquals(pool.getNodeReservedBytes(), 0);
+        assertEquals(pool.getQueryMemoryReservation(new QueryId("query_0")), 0);
+        assertEquals(pool.getQueryMemoryReservation(new QueryId("query_1")), 0);
+        assertTrue(pool.getInfo().getQueryMemoryReservations().isEmpty());
+        assertTrue(pool.getInfo().getQueryMemoryAllocations().isEmpty());
+    }
+
+    @Test
+    public void testFreeRacingWithBlockedReserve()
+            throws Exception
+    {
+        MemoryPool pool = new MemoryPool(new MemoryPoolId("test"), DataSize.of(100, BYTE));
+        QueryId blockingQuery = new QueryId("blocking");
+        QueryId blockedQuery = new QueryId("blocked");
+
+        for (int i = 0; i < 1_000; i++) {
+            pool.reserve(blockingQuery, "test", 100);
+            CountDownLatch start = new CountDownLatch(1);
+            Future<ListenableFuture<?>> reservation = executor.submit(() -> {
+                start.await();
+                return pool.reserve(blockedQuery, "test", 10);
+            });
+            Future<?> free = executor.submit(() -> {
+                start.await();
+                pool.free(blockingQuery, "test", 100);
+                return null;
+            });
+            start.countDown();
+            free.get(10, SECONDS);
+
+            // whichever thread wins the race, the blocked reservation must not miss the freed memory
+            assertTrue(reservation.get(10, SECONDS).isDone(), "reservation is still blocked after memory was freed in iteration " + i);
+            pool.free(blockedQuery, "test", 10);
+        }
+        assertEquals(pool.getReservedBytes(), 0);
+    }
+
+    private <T> List<T> runConcurrently(ThreadTask<T> task)
+            throws Exception
+    {
+        CountDownLatch start = new CountDownLatch(1);
+        ImmutableList.Builder<Future<T>> futures = ImmutableList.builder();
+        for (int thread = 0; thread < THREADS; thread++) {
+            int threadId = thread;
+            Callable<T> callable = () -> {
+                start.await();
+                return task.run(threadId);
+            };
+            futures.add(executor.submit(callable));
+        }
+        start.countDown();
+
+        ImmutableList.Builder<T> results = ImmutableList.builder();
+        for (Future<T> future : futures.build()) {
+            T result = future.get(1, MINUTES);
+            if (result != null) {
+                results.add(result);
+            }
+        }
+        return results.build();
+    }
+
+    private interface ThreadTask<T>
+    {
+        T run(int thread)
+                throws Exception;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.operator;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.airlift.units.DataSize;
+import io.prestosql.Session;
+import io.prestosql.memory.MemoryPool;
+import io.prestosql.operator.BroadcastLookupSourceCache.CacheKey;
+import io.prestosql.spi.Page;
+import io.prestosql.spi.QueryId;
+import io.prestosql.spi.block.BlockBuilder;
+import io.prestosql.spi.memory.MemoryPoolId;
+import io.prestosql.spi.type.Type;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.function.Supplier;
+
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static io.prestosql.spi.type.BigintType.BIGINT;
+import static io.prestosql.testing.TestingSession.testSessionBuilder;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestBroadcastLookupSourceCache
+{
+    private static final Session SESSION = testSessionBuilder().build();
+    private static final List<Type> TYPES = ImmutableList.of(BIGINT);
+    private static final CacheKey KEY = createKey("build");
+
+    @Test
+    public void testMissAndHit()
+    {
+        MemoryPool memoryPool = createMemoryPool(DataSize.of(10, MEGABYTE));
+        BroadcastLookupSourceCache cache = new BroadcastLookupSourceCache(memoryPool, DataSize.of(1, MEGABYTE));
+
+        PartitionedLookupSourceFactory builder = createLookupSourceFactory(1);
+        assertFalse(cache.lendCachedPartitions(KEY, builder));
+        cache.offer(KEY, builder);
+        ListenableFuture<?> partitionNoLongerNeeded = builder.lendPartitionLookupSource(0, createPartition(100));
+
+        // the partition is handed over to the cache, so the operator which built it must release it without clearing it
+        assertTrue(partitionNoLongerNeeded.isDone());
+        assertFalse(builder.releasePartition());
+        assertEquals(cache.getCachedEntries(), 1);
+        long cachedBytes = cache.getCachedBytes();
+        assertTrue(cachedBytes > 0);
+        assertEquals(memoryPool.getNodeReservedBytes(), cachedBytes);
+
+        PartitionedLookupSourceFactory sharer = createLookupSourceFactory(1);
+        assertTrue(cache.lendCachedPartitions(KEY, sharer));
+        assertTrue(sharer.createLookupSourceProvider().isDone());
+        assertFalse(cache.lendCachedPartitions(createKey("other"), createLookupSourceFactory(1)));
+        assertEquals(cache.getHits().getTotalCount(), 1);
+        assertEquals(cache.getMisses().getTotalCount(), 2);
+
+        // the entry stays cached once it is no longer in use
+        builder.destroy();
+        sharer.destroy();
+        assertEquals(cache.getCachedEntries(), 1);
+        assertEquals(memoryPool.getNodeReservedBytes(), cachedBytes);
+    }
+
+    @Test
+    public void testEviction()
+    {
+        long entryBytes = getEntryBytes(100);
+        MemoryPool memoryPool = createMemoryPool(DataSize.of(10, MEGABYTE));
+        BroadcastLookupSourceCache cache = new BroadcastLookupSourceCache(memoryPool, DataSize.ofBytes(entryBytes));
+
+        PartitionedLookupSourceFactory first = build(cache, KEY, 100);
+        assertEquals(memoryPool.getNodeReservedBytes(), entryBytes);
+
+        // the first entry is in use, so the second one does not fit, and is released along with the factory which built it
+        PartitionedLookupSourceFactory second = build(cache, createKey("second"), 100);
+        assertEquals(cache.getCachedEntries(), 1);
+        assertEquals(memoryPool.getNodeReservedBytes(), 2 * entryBytes);
+        second.destroy();
+        assertEquals(memoryPool.getNodeReservedBytes(), entryBytes);
+
+        // the first entry is no longer in use, so it is evicted in favor of the third one
+        first.destroy();
+        PartitionedLookupSourceFactory third = build(cache, createKey("third"), 100);
+        third.destroy();
+        assertEquals(cache.getCachedEntries(), 1);
+        assertFalse(cache.lendCachedPartitions(KEY, createLookupSourceFactory(1)));
+        assertEquals(memoryPool.getNodeReservedBytes(), entryBytes);
+    }
+
+    @Test
+    public void testEvictedEntryInUse()
+    {
+        long entryBytes = getEntryBytes(100);
+        MemoryPool memoryPool = createMemoryPool(DataSize.of(10, MEGABYTE));
+        BroadcastLookupSourceCache cache = new BroadcastLookupSourceCache(memoryPool, DataSize.ofBytes(entryBytes));
+
+        build(cache, KEY, 100).destroy();
+        PartitionedLookupSourceFactory sharer = createLookupSourceFactory(1);
+        assertTrue(cache.lendCachedPartitions(KEY, sharer));
+
+        // the entry is in use, so it cannot be evicted
+        build(cache, createKey("second"), 100).destroy();
+        assertEquals(memoryPool.getNodeReservedBytes(), entryBytes);
+        assertTrue(cache.lendCachedPartitions(KEY, createLookupSourceFactory(1)));
+        sharer.destroy();
+    }
+
+    @Test
+    public void testMemoryPressure()
+    {
+        MemoryPool memoryPool = createMemoryPool(DataSize.of(10, MEGABYTE));
+        BroadcastLookupSourceCache cache = new BroadcastLookupSourceCache(memoryPool, DataSize.of(1, MEGABYTE));
+        cache.start();
+        try {
+            build(cache, KEY, 100).destroy();
+            assertTrue(memoryPool.getNodeReservedBytes() > 0);
+
+            // unused entries are evicted to let the queries proceed
+            QueryId queryId = new QueryId("query");
+            ListenableFuture<?> reserved = memoryPool.reserve(queryId, "test", memoryPool.getFreeBytes());
+            assertEquals(cache.getCachedEntries(), 0);
+            assertEquals(memoryPool.getNodeReservedBytes(), 0);
+            assertTrue(reserved.isDone());
+            memoryPool.free(queryId, "test", memoryPool.getReservedBytes());
+        }
+        finally {
+            cache.stop();
+        }
+    }
+
+    @Test
+    public void testNotCached()
+    {
+        // too large for the cache
+        MemoryPool memoryPool = createMemoryPool(DataSize.of(10, MEGABYTE));
+        BroadcastLookupSourceCache cache = new BroadcastLookupSourceCache(memoryPool, DataSize.ofBytes(0));
+        PartitionedLookupSourceFactory lookupSourceFactory = build(cache, KEY, 100);
+        assertTrue(lookupSourceFactory.releasePartition());
+        assertEquals(cache.getCachedEntries(), 0);
+        assertEquals(memoryPool.getNodeReservedBytes(), 0);
+
+        // too large for the memory pool
+        cache = new BroadcastLookupSourceCache(createMemoryPool(DataSize.ofBytes(1)), DataSize.of(1, MEGABYTE));
+        assertTrue(build(cache, KEY, 100).releasePartition());
+        assertEquals(cache.getCachedEntries(), 0);
+    }
+
+    @Test
+    public void testPartitionReleasedBeforeTransfer()
+    {
+        MemoryPool memoryPool = createMemoryPool(DataSize.of(10, MEGABYTE));
+        BroadcastLookupSourceCache cache = new BroadcastLookupSourceCache(memoryPool, DataSize.of(1, MEGABYTE));
+
+        // an operator clearing its partition prevents the others from being handed over
+        PartitionedLookupSourceFactory lookupSourceFactory = createLookupSourceFactory(2);
+        cache.offer(KEY, lookupSourceFactory);
+        lookupSourceFactory.lendPartitionLookupSource(0, createPartition(100));
+        assertTrue(lookupSourceFactory.releasePartition());
+        lookupSourceFactory.lendPartitionLookupSource(1, createPartition(100));
+
+        assertEquals(cache.getCachedEntries(), 0);
+        assertEquals(memoryPool.getNodeReservedBytes(), 0);
+        assertTrue(lookupSourceFactory.releasePartition());
+    }
+
+    private static long getEntryBytes(int positionCount)
+    {
+        BroadcastLookupSourceCache cache = new BroadcastLookupSourceCache(createMemoryPool(DataSize.of(10, MEGABYTE)), DataSize.of(1, MEGABYTE));
+        build(cache, KEY, positionCount);
+        return cache.getCachedBytes();
+    }
+
+    private static PartitionedLookupSourceFactory build(BroadcastLookupSourceCache cache, CacheKey key, int positionCount)
+    {
+        PartitionedLookupSourceFactory lookupSourceFactory = createLookupSourceFactory(1);
+        assertFalse(cache.lendCachedPartitions(key, lookupSourceFactory));
+        cache.offer(key, lookupSourceFactory);
+        lookupSourceFactory.lendPartitionLookupSource(0, createPartition(positionCount));
+        return lookupSourceFactory;
+    }
+
+    private static PartitionedLookupSourceFactory createLookupSourceFactory(int partitionCount)
+    {
+        return new PartitionedLookupSourceFactory(TYPES, TYPES, TYPES, partitionCount, false);
+    }
+
+    private static Supplier<LookupSource> createPartition(int positionCount)
+    {
+        BlockBuilder blockBuilder = BIGINT.createBlockBuilder(null, positionCount);
+        for (int position = 0; position < positionCount; position++) {
+            BIGINT.writeLong(blockBuilder, position);
+        }
+        PagesIndex pagesIndex = new PagesIndex.TestingFactory(false).newPagesIndex(TYPES, positionCount);
+        pagesIndex.addPage(new Page(blockBuilder.build()));
+        return pagesIndex.createLookupSourceSupplier(SESSION, ImmutableList.of(0));
+    }
+
+    private static CacheKey createKey(String buildSideKey)
+    {
+        return new CacheKey(buildSideKey, TYPES, ImmutableList.of(0), ImmutableList.of(0), OptionalInt.empty(), 1);
+    }
+
+    private static MemoryPool createMemoryPool(DataSize size)
+    {
+        return new MemoryPool(new MemoryPoolId("test"), size);
+    }
+}
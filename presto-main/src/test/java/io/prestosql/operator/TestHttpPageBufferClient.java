@@ -0,0 +1,634 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.operator;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.airlift.http.client.testing.TestingHttpClient;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+import io.prestosql.Session;
+import io.prestosql.execution.DynamicFiltersCollector.VersionedDynamicFilterDomains;
+import io.prestosql.execution.LocalTaskResults;
+import io.prestosql.execution.LocalTaskResults.LocalTaskBuffer;
+import io.prestosql.execution.LocationFactory;
+import io.prestosql.execution.StateMachine.StateChangeListener;
+import io.prestosql.execution.TaskId;
+import io.prestosql.execution.TaskInfo;
+import io.prestosql.execution.TaskManager;
+import io.prestosql.execution.TaskSource;
+import io.prestosql.execution.TaskState;
+import io.prestosql.execution.TaskStatus;
+import io.prestosql.execution.buffer.BufferResult;
+import io.prestosql.execution.buffer.OutputBuffers;
+import io.prestosql.execution.buffer.OutputBuffers.OutputBufferId;
+import io.prestosql.execution.buffer.PageCodecMarker.MarkerSet;
+import io.prestosql.execution.buffer.SerializedPage;
+import io.prestosql.jfr.ExchangeFetchEvent;
+import io.prestosql.memory.MemoryPoolAssignmentsRequest;
+import io.prestosql.metadata.InternalNode;
+import io.prestosql.spi.PrestoException;
+import io.prestosql.spi.QueryId;
+import io.prestosql.sql.analyzer.FeaturesConfig.DataIntegrityVerification;
+import io.prestosql.sql.planner.PlanFragment;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.util.concurrent.Futures.immediateFailedFuture;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.slice.Slices.wrappedBuffer;
+import static io.prestosql.execution.buffer.BufferResult.emptyResults;
+import static io.prestosql.operator.HttpPageBufferClient.getNextResponseSizeLimit;
+import static io.prestosql.operator.HttpPageBufferClient.getRequestResponseSize;
+import static io.prestosql.server.TaskResource.DEFAULT_MAX_WAIT_TIME;
+import static io.prestosql.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
+import static io.prestosql.spi.StandardErrorCode.REMOTE_TASK_MISMATCH;
+import static java.lang.Math.toIntExact;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.Executors.newScheduledThreadPool;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestHttpPageBufferClient
+{
+    private static final String TASK_INSTANCE_ID = "task-instance-id";
+    private static final TaskId TASK_ID = new TaskId("query", 1, 0);
+    private static final OutputBufferId BUFFER_ID = new OutputBufferId(0);
+    private static final URI LOCAL_TASK_LOCATION = URI.create("http://localhost:8080/v1/task/" + TASK_ID);
+
+    private ScheduledExecutorService scheduler;
+    private ExecutorService callbackExecutor;
+
+    @BeforeClass
+    public void setUp()
+    {
+        scheduler = newScheduledThreadPool(4, daemonThreadsNamed("test-%s"));
+        callbackExecutor = newCachedThreadPool(daemonThreadsNamed("test-callback-%s"));
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        if (callbackExecutor != null) {
+            callbackExecutor.shutdownNow();
+            callbackExecutor = null;
+        }
+    }
+
+    @Test
+    public void testLocalBufferLookup()
+    {
+        LocalTaskResults localTaskResults = createLocalTaskResults(new TestingTaskManager());
+
+        assertTrue(localTaskResults.getLocalBuffer(URI.create(LOCAL_TASK_LOCATION + "/results/0")).isPresent());
+        assertFalse(localTaskResults.getLocalBuffer(URI.create("http://otherhost:8080/v1/task/" + TASK_ID + "/results/0")).isPresent());
+        assertFalse(localTaskResults.getLocalBuffer(URI.create(LOCAL_TASK_LOCATION + "/status")).isPresent());
+        assertFalse(localTaskResults.getLocalBuffer(URI.create(LOCAL_TASK_LOCATION + "/results/invalid")).isPresent());
+
+        // results are never read locally before the task manager is registered
+        LocalTaskResults unregistered = new LocalTaskResults(new TestingLocationFactory());
+        assertFalse(unregistered.getLocalBuffer(URI.create(LOCAL_TASK_LOCATION + "/results/0")).isPresent());
+    }
+
+    @Test
+    public void testLocalResults()
+            throws Exception
+    {
+        TestingTaskManager taskManager = new TestingTaskManager();
+        TestingClientCallback callback = new TestingClientCallback();
+        HttpPageBufferClient client = createClient(taskManager, callback);
+
+        taskManager.results.add(immediateFuture(new BufferResult(TASK_INSTANCE_ID, 0, 2, false, ImmutableList.of(createPage(), createPage()))));
+        client.scheduleRequest(DataSize.of(1, DataSize.Unit.MEGABYTE).toBytes());
+        assertEquals(callback.take(), "pages:2");
+        assertEquals(callback.take(), "complete");
+        // the pages are acknowledged without a request
+        assertEquals(taskManager.acknowledged.take().longValue(), 2);
+        assertEquals(taskManager.requestedTokens.take().longValue(), 0);
+
+        taskManager.results.add(immediateFuture(emptyResults(TASK_INSTANCE_ID, 2, true)));
+        client.scheduleRequest(DataSize.of(1, DataSize.Unit.MEGABYTE).toBytes());
+        assertEquals(callback.take(), "pages:0");
+        assertEquals(callback.take(), "complete");
+        assertEquals(taskManager.requestedTokens.take().longValue(), 2);
+
+        // the completed buffer is released in the next request
+        client.scheduleRequest(DataSize.of(1, DataSize.Unit.MEGABYTE).toBytes());
+        assertEquals(callback.take(), "finished");
+        assertEquals(taskManager.aborted.get(), 1);
+
+        PageBufferClientStatus status = client.getStatus();
+        assertEquals(status.getPagesReceived(), 2);
+        assertEquals(status.getRequestsFailed(), 0);
+        assertEquals(status.getHttpRequestState(), "not scheduled");
+        assertTrue(taskManager.results.isEmpty());
+    }
+
+    @Test
+    public void testLocalResultsFetchEvent()
+            throws Exception
+    {
+        TestingTaskManager taskManager = new TestingTaskManager();
+        TestingClientCallback callback = new TestingClientCallback();
+        HttpPageBufferClient client = createClient(taskManager, callback);
+
+        Path file = Files.createTempFile("presto-exchange", ".jfr");
+        try {
+            try (Recording recording = new Recording()) {
+                recording.enable(ExchangeFetchEvent.class).withThreshold(java.time.Duration.ZERO);
+                recording.start();
+                taskManager.results.add(immediateFuture(new BufferResult(TASK_INSTANCE_ID, 0, 2, false, ImmutableList.of(createPage(), createPage()))));
+                client.scheduleRequest(DataSize.of(1, DataSize.Unit.MEGABYTE).toBytes());
+                assertEquals(callback.take(), "pages:2");
+                assertEquals(callback.take(), "complete");
+                recording.stop();
+                recording.dump(file);
+            }
+
+            // the fetch is tagged with the task whose buffer is read
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().equals("io.prestosql.ExchangeFetch"))
+                    .collect(toImmutableList());
+            assertEquals(events.size(), 1);
+            RecordedEvent event = events.get(0);
+            assertEquals(event.getString("queryId"), TASK_ID.getQueryId().getId());
+            assertEquals(event.getString("stageId"), TASK_ID.getStageId().toString());
+            assertEquals(event.getString("taskId"), TASK_ID.toString());
+            assertEquals(event.getString("location"), LOCAL_TASK_LOCATION + "/results/" + BUFFER_ID);
+            assertEquals(event.getString("transport"), "local");
+            assertEquals(event.getLong("bytes"), 2 * createPage().getSizeInBytes());
+            assertFalse(event.getBoolean("failed"));
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testLocalResultsFailure()
+            throws Exception
+    {
+        TestingTaskManager taskManager = new TestingTaskManager();
+        TestingClientCallback callback = new TestingClientCallback();
+        HttpPageBufferClient client = createClient(taskManager, callback);
+
+        // a transient failure is retried
+        taskManager.results.add(immediateFailedFuture(new RuntimeException("transient")));
+        client.scheduleRequest(0);
+        assertEquals(callback.take(), "complete");
+        assertEquals(client.getStatus().getRequestsFailed(), 1);
+
+        taskManager.results.add(immediateFuture(new BufferResult(TASK_INSTANCE_ID, 0, 1, false, ImmutableList.of(createPage()))));
+        client.scheduleRequest(0);
+        assertEquals(callback.take(), "pages:1");
+        assertEquals(callback.take(), "complete");
+
+        // a query failure fails the client
+        PrestoException failure = new PrestoException(GENERIC_INTERNAL_ERROR, "task failed");
+        taskManager.results.add(immediateFailedFuture(failure));
+        client.scheduleRequest(0);
+        assertEquals(callback.take(), "failed");
+        assertSame(callback.failure, failure);
+        assertEquals(callback.take(), "complete");
+        assertEquals(client.getStatus().getRequestsFailed(), 2);
+    }
+
+    @Test
+    public void testLocalTaskInstanceMismatch()
+            throws Exception
+    {
+        TestingTaskManager taskManager = new TestingTaskManager();
+        TestingClientCallback callback = new TestingClientCallback();
+        HttpPageBufferClient client = createClient(taskManager, callback);
+
+        taskManager.results.add(immediateFuture(new BufferResult(TASK_INSTANCE_ID, 0, 1, false, ImmutableList.of(createPage()))));
+        client.scheduleRequest(0);
+        assertEquals(callback.take(), "pages:1");
+        assertEquals(callback.take(), "complete");
+
+        // the task was restarted on the node
+        taskManager.results.add(immediateFuture(new BufferResult("other-instance-id", 1, 2, false, ImmutableList.of(createPage()))));
+        client.scheduleRequest(0);
+        assertEquals(callback.take(), "failed");
+        assertEquals(((PrestoException) callback.failure).getErrorCode(), REMOTE_TASK_MISMATCH.toErrorCode());
+    }
+
+    @Test
+    public void testLocalAbort()
+            throws Exception
+    {
+        TestingTaskManager taskManager = new TestingTaskManager();
+        TestingClientCallback callback = new TestingClientCallback();
+        HttpPageBufferClient client = createClient(taskManager, callback);
+
+        SettableFuture<BufferResult> pending = SettableFuture.create();
+        taskManager.results.add(pending);
+        client.scheduleRequest(0);
+        taskManager.requestedTokens.take();
+        assertTrue(client.isRunning());
+
+        // closing the client cancels the read and aborts the buffer in process, and the
+        // callbacks of the cancelled read and of the abort may run in either order
+        client.close();
+        assertEquals(ImmutableSet.of(callback.take(), callback.take()), ImmutableSet.of("complete", "finished"));
+        assertTrue(pending.isCancelled());
+        assertEquals(taskManager.aborted.get(), 1);
+        assertFalse(client.isRunning());
+
+        // the buffer is aborted only once
+        client.close();
+        assertEquals(taskManager.aborted.get(), 1);
+    }
+
+    @Test
+    public void testLocalAbortFailure()
+            throws Exception
+    {
+        TestingTaskManager taskManager = new TestingTaskManager();
+        taskManager.abortFailure = new PrestoException(GENERIC_INTERNAL_ERROR, "abort failed");
+        TestingClientCallback callback = new TestingClientCallback();
+        HttpPageBufferClient client = createClient(taskManager, callback);
+
+        client.close();
+        assertEquals(callback.take(), "failed");
+        assertSame(callback.failure, taskManager.abortFailure);
+        assertEquals(callback.take(), "complete");
+    }
+
+    @Test(timeOut = 30_000)
+    public void testLocalResultsWaitTime()
+            throws Exception
+    {
+        TestingTaskManager taskManager = new TestingTaskManager();
+        TestingClientCallback callback = new TestingClientCallback();
+        HttpPageBufferClient client = createClient(taskManager, callback);
+
+        // the buffer of an abandoned task never produces results
+        SettableFuture<BufferResult> pending = SettableFuture.create();
+        taskManager.results.add(pending);
+        long start = System.nanoTime();
+        client.scheduleRequest(0);
+        assertEquals(callback.take(), "pages:0");
+        assertEquals(callback.take(), "complete");
+        assertTrue(Duration.nanosSince(start).compareTo(DEFAULT_MAX_WAIT_TIME) >= 0);
+        assertFalse(client.isRunning());
+    }
+
+    @Test
+    public void testRequestResponseSize()
+    {
+        // the request asks for the response size limit, capped by the free buffer capacity
+        assertEquals(getRequestResponseSize(10, 100, 1_000), 100);
+        assertEquals(getRequestResponseSize(10, 100, 100), 100);
+        assertEquals(getRequestResponseSize(10, 100, 50), 50);
+
+        // but never less than the minimum response size
+        assertEquals(getRequestResponseSize(10, 100, 10), 10);
+        assertEquals(getRequestResponseSize(10, 100, 5), 10);
+        assertEquals(getRequestResponseSize(10, 100, 0), 10);
+        assertEquals(getRequestResponseSize(10, 100, -100), 10);
+
+        // without adaptive sizing the minimum is the maximum response size
+        assertEquals(getRequestResponseSize(100, 100, 50), 100);
+        assertEquals(getRequestResponseSize(100, 100, 1_000), 100);
+    }
+
+    @Test
+    public void testNextResponseSizeLimit()
+    {
+        // a response that is at least half full doubles the limit
+        assertEquals(getNextResponseSizeLimit(100, 1_000, 100, 50), 200);
+        assertEquals(getNextResponseSizeLimit(100, 1_000, 100, 100), 200);
+        assertEquals(getNextResponseSizeLimit(100, 1_000, 100, 49), 100);
+        assertEquals(getNextResponseSizeLimit(100, 1_000, 100, 0), 100);
+
+        // the fill is relative to the size of the request, which the free buffer capacity may have capped below the limit
+        assertEquals(getNextResponseSizeLimit(100, 1_000, 40, 20), 200);
+        assertEquals(getNextResponseSizeLimit(100, 1_000, 40, 19), 100);
+
+        // the limit never exceeds the maximum response size
+        assertEquals(getNextResponseSizeLimit(600, 1_000, 600, 600), 1_000);
+        assertEquals(getNextResponseSizeLimit(500, 1_000, 500, 500), 1_000);
+        assertEquals(getNextResponseSizeLimit(1_000, 1_000, 1_000, 1_000), 1_000);
+        assertEquals(getNextResponseSizeLimit(Long.MAX_VALUE / 2 + 1, Long.MAX_VALUE, 100, 100), Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testAdaptiveResponseSize()
+            throws Exception
+    {
+        TestingTaskManager taskManager = new TestingTaskManager();
+        TestingClientCallback callback = new TestingClientCallback();
+        HttpPageBufferClient client = createClient(taskManager, callback);
+        int kilobyte = toIntExact(DataSize.of(1, DataSize.Unit.KILOBYTE).toBytes());
+
+        // the first request asks for the minimum response size, and a half full response doubles the limit
+        assertResponseSize(client, taskManager, callback, 0, 1024 * kilobyte, 5 * kilobyte, 10 * kilobyte, 20 * kilobyte);
+        // a response which is less than half full keeps the limit
+        assertResponseSize(client, taskManager, callback, 1, 1024 * kilobyte, 9 * kilobyte, 20 * kilobyte, 20 * kilobyte);
+        // the free buffer capacity caps the request, and the response fills the capped request
+        assertResponseSize(client, taskManager, callback, 2, 15 * kilobyte, 8 * kilobyte, 15 * kilobyte, 40 * kilobyte);
+        // the request never asks for less than the minimum response size
+        assertResponseSize(client, taskManager, callback, 3, 0, 0, 10 * kilobyte, 40 * kilobyte);
+    }
+
+    private static void assertResponseSize(
+            HttpPageBufferClient client,
+            TestingTaskManager taskManager,
+            TestingClientCallback callback,
+            long token,
+            long remainingBufferCapacity,
+            int responseBytes,
+            long expectedRequestSize,
+            long expectedResponseSizeLimit)
+            throws InterruptedException
+    {
+        List<SerializedPage> pages = responseBytes == 0 ? ImmutableList.of() : ImmutableList.of(createPage(responseBytes));
+        taskManager.results.add(immediateFuture(new BufferResult(TASK_INSTANCE_ID, token, token + 1, false, pages)));
+        client.scheduleRequest(remainingBufferCapacity);
+        assertEquals(callback.take(), "pages:" + pages.size());
+        assertEquals(callback.take(), "complete");
+        assertEquals(taskManager.requestedTokens.take().longValue(), token);
+        assertEquals(taskManager.requestedSizes.take().toBytes(), expectedRequestSize);
+        assertEquals(client.getStatus().getResponseSizeLimit().toBytes(), expectedResponseSizeLimit);
+    }
+
+    private HttpPageBufferClient createClient(TaskManager taskManager, TestingClientCallback callback)
+    {
+        URI location = URI.create(LOCAL_TASK_LOCATION + "/results/" + BUFFER_ID);
+        Optional<LocalTaskBuffer> localBuffer = createLocalTaskResults(taskManager).getLocalBuffer(location);
+        assertTrue(localBuffer.isPresent());
+        return new HttpPageBufferClient(
+                "localhost",
+                // results of a local buffer never travel through the HTTP client
+                new TestingHttpClient(request -> {
+                    throw new AssertionError("Unexpected request: " + request.getUri());
+                }),
+                DataIntegrityVerification.ABORT,
+                DataSize.of(10, DataSize.Unit.KILOBYTE),
+                DataSize.of(1, DataSize.Unit.MEGABYTE),
+                new Duration(1, MINUTES),
+                true,
+                location,
+                localBuffer,
+                callback,
+                scheduler,
+                callbackExecutor,
+                Optional.empty());
+    }
+
+    private static LocalTaskResults createLocalTaskResults(TaskManager taskManager)
+    {
+        LocalTaskResults localTaskResults = new LocalTaskResults(new TestingLocationFactory());
+        localTaskResults.setTaskManager(taskManager);
+        return localTaskResults;
+    }
+
+    private static SerializedPage createPage()
+    {
+        return createPage(16);
+    }
+
+    private static SerializedPage createPage(int sizeInBytes)
+    {
+        return new SerializedPage(wrappedBuffer(new byte[sizeInBytes]), MarkerSet.empty(), 1, sizeInBytes);
+    }
+
+    private static class TestingClientCallback
+            implements HttpPageBufferClient.ClientCallback
+    {
+        private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        private volatile Throwable failure;
+
+        public String take()
+                throws InterruptedException
+        {
+            String event = events.poll(10, SECONDS);
+            assertNotNull(event, "timed out waiting for client callback");
+            return event;
+        }
+
+        @Override
+        public boolean addPages(HttpPageBufferClient client, List<SerializedPage> pages)
+        {
+            events.add("pages:" + pages.size());
+            return true;
+        }
+
+        @Override
+        public void requestComplete(HttpPageBufferClient client)
+        {
+            events.add("complete");
+        }
+
+        @Override
+        public void clientFinished(HttpPageBufferClient client)
+        {
+            events.add("finished");
+        }
+
+        @Override
+        public void clientFailed(HttpPageBufferClient client, Throwable cause)
+        {
+            failure = cause;
+            events.add("failed");
+        }
+    }
+
+    private static class TestingLocationFactory
+            implements LocationFactory
+    {
+        @Override
+        public URI createQueryLocation(QueryId queryId)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public URI createLocalTaskLocation(TaskId taskId)
+        {
+            return URI.create("http://localhost:8080/v1/task/" + taskId);
+        }
+
+        @Override
+        public URI createTaskLocation(InternalNode node, TaskId taskId)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public URI createMemoryInfoLocation(InternalNode node)
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class TestingTaskManager
+            implements TaskManager
+    {
+        private final BlockingQueue<ListenableFuture<BufferResult>> results = new LinkedBlockingQueue<>();
+        private final BlockingQueue<Long> requestedTokens = new LinkedBlockingQueue<>();
+        private final BlockingQueue<DataSize> requestedSizes = new LinkedBlockingQueue<>();
+        private final BlockingQueue<Long> acknowledged = new LinkedBlockingQueue<>();
+        private final AtomicInteger aborted = new AtomicInteger();
+        private volatile RuntimeException abortFailure;
+
+        @Override
+        public String getTaskInstanceId(TaskId taskId)
+        {
+            assertEquals(taskId, TASK_ID);
+            return TASK_INSTANCE_ID;
+        }
+
+        @Override
+        public ListenableFuture<BufferResult> getTaskResults(TaskId taskId, OutputBufferId bufferId, long startingSequenceId, DataSize maxSize)
+        {
+            assertEquals(taskId, TASK_ID);
+            assertEquals(bufferId, BUFFER_ID);
+            requestedTokens.add(startingSequenceId);
+            requestedSizes.add(maxSize);
+            ListenableFuture<BufferResult> result = results.poll();
+            assertNotNull(result, "unexpected results request");
+            return result;
+        }
+
+        @Override
+        public void acknowledgeTaskResults(TaskId taskId, OutputBufferId bufferId, long sequenceId)
+        {
+            assertEquals(taskId, TASK_ID);
+            assertEquals(bufferId, BUFFER_ID);
+            acknowledged.add(sequenceId);
+        }
+
+        @Override
+        public TaskInfo abortTaskResults(TaskId taskId, OutputBufferId bufferId)
+        {
+            assertEquals(taskId, TASK_ID);
+            assertEquals(bufferId, BUFFER_ID);
+            aborted.incrementAndGet();
+            if (abortFailure != null) {
+                throw abortFailure;
+            }
+            return null;
+        }
+
+        @Override
+        public List<TaskInfo> getAllTaskInfo()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TaskInfo getTaskInfo(TaskId taskId)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TaskStatus getTaskStatus(TaskId taskId)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ListenableFuture<TaskInfo> getTaskInfo(TaskId taskId, long currentVersion)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ListenableFuture<TaskStatus> getTaskStatus(TaskId taskId, long currentVersion)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TaskInfo withChangedPipelineStats(TaskId taskId, TaskInfo taskInfo, long currentPipelineStatsVersion)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public VersionedDynamicFilterDomains acknowledgeAndGetNewDynamicFilterDomains(TaskId taskId, long currentDynamicFiltersVersion)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void updateMemoryPoolAssignments(MemoryPoolAssignmentsRequest assignments)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TaskInfo updateTask(Session session, TaskId taskId, Optional<PlanFragment> fragment, List<TaskSource> sources, OutputBuffers outputBuffers, OptionalInt totalPartitions)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TaskInfo cancelTask(TaskId taskId)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TaskInfo abortTask(TaskId taskId)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ListenableFuture<BufferResult> readAheadTaskResults(TaskId taskId, OutputBufferId bufferId, long startingSequenceId, DataSize maxSize)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void addStateChangeListener(TaskId taskId, StateChangeListener<TaskState> stateChangeListener)
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.operator;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Multiset;
+import io.prestosql.operator.MergeJoinOperator.MergeJoinOperatorFactory;
+import io.prestosql.operator.MergeJoinSinkOperator.MergeJoinSinkOperatorFactory;
+import io.prestosql.spi.Page;
+import io.prestosql.spi.PrestoException;
+import io.prestosql.spi.block.Block;
+import io.prestosql.spi.block.BlockBuilder;
+import io.prestosql.spi.block.SortOrder;
+import io.prestosql.spi.type.Type;
+import io.prestosql.sql.planner.plan.PlanNodeId;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.prestosql.operator.PipelineExecutionStrategy.UNGROUPED_EXECUTION;
+import static io.prestosql.spi.StandardErrorCode.MERGE_JOIN_INPUT_NOT_SORTED;
+import static io.prestosql.spi.block.SortOrder.ASC_NULLS_FIRST;
+import static io.prestosql.spi.block.SortOrder.ASC_NULLS_LAST;
+import static io.prestosql.spi.block.SortOrder.DESC_NULLS_FIRST;
+import static io.prestosql.spi.block.SortOrder.DESC_NULLS_LAST;
+import static io.prestosql.spi.type.BigintType.BIGINT;
+import static io.prestosql.testing.TestingSession.testSessionBuilder;
+import static io.prestosql.testing.TestingTaskContext.createTaskContext;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.Executors.newScheduledThreadPool;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+@Test(singleThreaded = true)
+public class TestMergeJoinOperator
+{
+    // rows are (key1, key2, payload); the payload identifies the row in the join output
+    private static final List<Type> TYPES = ImmutableList.of(BIGINT, BIGINT, BIGINT);
+    private static final int PAYLOAD_CHANNEL = 2;
+
+    private ExecutorService executor;
+    private ScheduledExecutorService scheduledExecutor;
+
+    @BeforeClass
+    public void setUp()
+    {
+        executor = newCachedThreadPool(daemonThreadsNamed("test-executor-%s"));
+        scheduledExecutor = newScheduledThreadPool(2, daemonThreadsNamed("test-scheduledExecutor-%s"));
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        executor.shutdownNow();
+        scheduledExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testDuplicateKeys()
+    {
+        Random random = new Random(1);
+        for (int i = 0; i < 20; i++) {
+            // few distinct keys, so most keys repeat on both sides and groups span pages
+            assertMatchesHashJoin(random, ImmutableList.of(ASC_NULLS_LAST), 5, 0.0);
+        }
+    }
+
+    @Test
+    public void testNullKeys()
+    {
+        Random random = new Random(2);
+        for (SortOrder sortOrder : SortOrder.values()) {
+            for (int i = 0; i < 10; i++) {
+                assertMatchesHashJoin(random, ImmutableList.of(sortOrder), 10, 0.3);
+            }
+        }
+        // null keys never match, even against null keys on the other side
+        assertEquals(mergeJoin(rows(row(null, 1)), rows(row(null, 2)), ImmutableList.of(ASC_NULLS_FIRST), 1, 1024), ImmutableList.of());
+    }
+
+    @Test
+    public void testDescendingOrder()
+    {
+        Random random = new Random(3);
+        for (SortOrder sortOrder : ImmutableList.of(DESC_NULLS_FIRST, DESC_NULLS_LAST)) {
+            for (int i = 0; i < 10; i++) {
+                assertMatchesHashJoin(random, ImmutableList.of(sortOrder), 20, 0.1);
+            }
+        }
+    }
+
+    @Test
+    public void testMultiColumnKeys()
+    {
+        Random random = new Random(4);
+        for (SortOrder first : SortOrder.values()) {
+            for (SortOrder second : SortOrder.values()) {
+                for (int i = 0; i < 3; i++) {
+                    assertMatchesHashJoin(random, ImmutableList.of(first, second), 4, 0.1);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testProbeFinishesBeforeBuild()
+    {
+        List<Object[]> probe = rows(row(1L, 1), row(2L, 2));
+        List<Object[]> build = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            build.add(row((long) i, 100 + i));
+        }
+        assertEquals(
+                mergeJoin(probe, build, ImmutableList.of(ASC_NULLS_LAST), 1, 1),
+                ImmutableList.of(ImmutableList.of(1L, 1L, 1L, 101L), ImmutableList.of(2L, 2L, 2L, 102L)));
+    }
+
+    @Test
+    public void testUnsortedProbe()
+    {
+        assertNotSorted(rows(row(5L, 1), row(1L, 2)), rows(row(1L, 3), row(5L, 4)));
+    }
+
+    @Test
+    public void testUnsortedBuild()
+    {
+        assertNotSorted(rows(row(1L, 1), row(5L, 2), row(6L, 3)), rows(row(5L, 4), row(1L, 5)));
+    }
+
+    private void assertNotSorted(List<Object[]> probe, List<Object[]> build)
+    {
+        try {
+            mergeJoin(probe, build, ImmutableList.of(ASC_NULLS_LAST), 1, 1024);
+            fail("expected exception");
+        }
+        catch (PrestoException e) {
+            assertEquals(e.getErrorCode(), MERGE_JOIN_INPUT_NOT_SORTED.toErrorCode());
+        }
+    }
+
+    private void assertMatchesHashJoin(Random random, List<SortOrder> sortOrders, int distinctKeys, double nullFraction)
+    {
+        List<Object[]> probe = randomRows(random, sortOrders, distinctKeys, nullFraction, 0);
+        List<Object[]> build = randomRows(random, sortOrders, distinctKeys, nullFraction, 1_000_000);
+        int maxPageRows = 1 + random.nextInt(8);
+        // a small buffer makes the right side block until the left side catches up
+        long maxBufferedBytes = random.nextBoolean() ? 1 : 1024 * 1024;
+
+        List<List<Object>> actual = mergeJoin(probe, build, sortOrders, maxPageRows, maxBufferedBytes);
+        assertEquals(HashMultiset.create(actual), hashJoin(probe, build, sortOrders.size()));
+    }
+
+    private List<List<Object>> mergeJoin(List<Object[]> probe, List<Object[]> build, List<SortOrder> sortOrders, int maxPageRows, long maxBufferedBytes)
+    {
+        TaskContext taskContext = createTaskContext(executor, scheduledExecutor, testSessionBuilder().build());
+        List<Integer> joinChannels = sortOrders.size() == 1 ? ImmutableList.of(0) : ImmutableList.of(0, 1);
+        JoinBridgeManager<MergeJoinSource> manager = new JoinBridgeManager<>(
+                false,
+                UNGROUPED_EXECUTION,
+                UNGROUPED_EXECUTION,
+                lifespan -> new MergeJoinSource(maxBufferedBytes),
+                TYPES);
+        MergeJoinSinkOperatorFactory sinkFactory = new MergeJoinSinkOperatorFactory(0, new PlanNodeId("sink"), manager);
+        MergeJoinOperatorFactory joinFactory = new MergeJoinOperatorFactory(
+                1,
+                new PlanNodeId("join"),
+                manager,
+                TYPES,
+                joinChannels,
+                ImmutableList.of(0, 1, 2),
+                joinChannels,
+                ImmutableList.of(PAYLOAD_CHANNEL),
+                sortOrders);
+
+        MergeJoinSinkOperator sink = (MergeJoinSinkOperator) sinkFactory.createOperator(taskContext.addPipelineContext(0, true, false, false).addDriverContext());
+        MergeJoinOperator join = (MergeJoinOperator) joinFactory.createOperator(taskContext.addPipelineContext(1, true, true, false).addDriverContext());
+        sinkFactory.noMoreOperators();
+        joinFactory.noMoreOperators();
+
+        Iterator<Page> buildPages = toPages(build, maxPageRows).iterator();
+        Iterator<Page> probePages = toPages(probe, maxPageRows).iterator();
+        List<List<Object>> output = new ArrayList<>();
+        try {
+            for (int step = 0; !join.isFinished(); step++) {
+                assertTrue(step < 1_000_000, "merge join made no progress");
+                if (!sink.isFinished() && sink.needsInput()) {
+                    if (buildPages.hasNext()) {
+                        sink.addInput(buildPages.next());
+                    }
+                    else {
+                        sink.finish();
+                    }
+                }
+                if (join.needsInput()) {
+                    if (probePages.hasNext()) {
+                        join.addInput(probePages.next());
+                    }
+                    else {
+                        join.finish();
+                    }
+                }
+                Page page = join.getOutput();
+                if (page != null) {
+                    output.addAll(toRows(page));
+                }
+            }
+            // the right side stops once the left side is done, even if it has pages left
+            assertTrue(sink.isFinished());
+            assertEquals(join.getOperatorContext().getOperatorMemoryContext().getUserMemory(), 0);
+        }
+        finally {
+            join.close();
+            sink.close();
+        }
+        return output;
+    }
+
+    private static Multiset<List<Object>> hashJoin(List<Object[]> probe, List<Object[]> build, int keyCount)
+    {
+        Map<List<Object>, List<Object>> buildPayloads = new HashMap<>();
+        for (Object[] row : build) {
+            List<Object> key = Arrays.asList(row).subList(0, keyCount);
+            if (!key.contains(null)) {
+                buildPayloads.computeIfAbsent(key, ignored -> new ArrayList<>()).add(row[PAYLOAD_CHANNEL]);
+            }
+        }
+        Multiset<List<Object>> result = HashMultiset.create();
+        for (Object[] row : probe) {
+            List<Object> key = Arrays.asList(row).subList(0, keyCount);
+            for (Object payload : buildPayloads.getOrDefault(key, ImmutableList.of())) {
+                result.add(Arrays.asList(row[0], row[1], row[2], payload));
+            }
+        }
+        return result;
+    }
+
+    private static List<Object[]> randomRows(Random random, List<SortOrder> sortOrders, int distinctKeys, double nullFraction, long firstPayload)
+    {
+        int rowCount = random.nextInt(200);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < rowCount; i++) {
+            rows.add(new Object[] {
+                    randomKey(random, distinctKeys, nullFraction),
+                    sortOrders.size() == 1 ? (Object) (long) i : randomKey(random, distinctKeys, nullFraction),
+                    firstPayload + i});
+        }
+        Comparator<Object[]> comparator = keyComparator(0, sortOrders.get(0));
+        if (sortOrders.size() > 1) {
+            comparator = comparator.thenComparing(keyComparator(1, sortOrders.get(1)));
+        }
+        rows.sort(comparator);
+        return rows;
+    }
+
+    private static Long randomKey(Random random, int distinctKeys, double nullFraction)
+    {
+        if (random.nextDouble() < nullFraction) {
+            return null;
+        }
+        return (long) random.nextInt(distinctKeys);
+    }
+
+    private static Comparator<Object[]> keyComparator(int channel, SortOrder sortOrder)
+    {
+        Comparator<Long> values = sortOrder.isAscending() ? Comparator.naturalOrder() : Comparator.reverseOrder();
+        Comparator<Long> withNulls = sortOrder.isNullsFirst() ? Comparator.nullsFirst(values) : Comparator.nullsLast(values);
+        return Comparator.comparing(row -> (Long) row[channel], withNulls);
+    }
+
+    private static Object[] row(Long key, long payload)
+    {
+        return new Object[] {key, key, payload};
+    }
+
+    private static List<Object[]> rows(Object[]... rows)
+    {
+        return ImmutableList.copyOf(rows);
+    }
+
+    private static List<Page> toPages(List<Object[]> rows, int maxPageRows)
+    {
+        ImmutableList.Builder<Page> pages = ImmutableList.builder();
+        for (int start = 0; start < rows.size(); start += maxPageRows) {
+            List<Object[]> pageRows = rows.subList(start, Math.min(start + maxPageRows, rows.size()));
+            Block[] blocks = new Block[TYPES.size()];
+            for (int channel = 0; channel < TYPES.size(); channel++) {
+                BlockBuilder blockBuilder = BIGINT.createBlockBuilder(null, pageRows.size());
+                for (Object[] row : pageRows) {
+                    if (row[channel] == null) {
+                        blockBuilder.appendNull();
+                    }
+                    else {
+                        BIGINT.writeLong(blockBuilder, (Long) row[channel]);
+                    }
+                }
+                blocks[channel] = blockBuilder.build();
+            }
+            pages.add(new Page(blocks));
+        }
+        return pages.build();
+    }
+
+    private static List<List<Object>> toRows(Page page)
+    {
+        List<List<Object>> rows = new ArrayList<>();
+        for (int position = 0; position < page.getPositionCount(); position++) {
+            List<Object> row = new ArrayList<>();
+            for (int channel = 0; channel < page.getChannelCount(); channel++) {
+                Block block = page.getBlock(channel);
+                row.add(block.isNull(position) ? null : BIGINT.getLong(block, position));
+            }
+            rows.add(row);
+        }
+        assertFalse(rows.isEmpty());
+        return rows;
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.operator;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slices;
+import io.prestosql.memory.context.LocalMemoryContext;
+import io.prestosql.spi.Page;
+import io.prestosql.spi.PageBuilder;
+import io.prestosql.spi.block.BlockBuilder;
+import io.prestosql.spi.block.SortOrder;
+import io.prestosql.spi.type.DecimalType;
+import io.prestosql.spi.type.Type;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static io.prestosql.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
+import static io.prestosql.spi.block.SortOrder.ASC_NULLS_FIRST;
+import static io.prestosql.spi.block.SortOrder.ASC_NULLS_LAST;
+import static io.prestosql.spi.block.SortOrder.DESC_NULLS_FIRST;
+import static io.prestosql.spi.block.SortOrder.DESC_NULLS_LAST;
+import static io.prestosql.spi.type.BigintType.BIGINT;
+import static io.prestosql.spi.type.DateType.DATE;
+import static io.prestosql.spi.type.DecimalType.createDecimalType;
+import static io.prestosql.spi.type.DoubleType.DOUBLE;
+import static io.prestosql.spi.type.IntegerType.INTEGER;
+import static io.prestosql.spi.type.RealType.REAL;
+import static io.prestosql.spi.type.VarcharType.VARCHAR;
+import static java.lang.Float.floatToRawIntBits;
+import static org.testng.Assert.assertEquals;
+
+public class TestNormalizedKeySort
+{
+    private static final DecimalType SHORT_DECIMAL = createDecimalType(10, 2);
+    private static final List<Type> TYPES = ImmutableList.of(BIGINT, INTEGER, DOUBLE, REAL, VARCHAR, DATE, SHORT_DECIMAL, BIGINT);
+    private static final int ROW_ID_CHANNEL = 7;
+    private static final double[] SPECIAL_DOUBLES = {Double.NaN, -0.0, 0.0, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Double.MIN_VALUE, -Double.MAX_VALUE};
+    private static final float[] SPECIAL_REALS = {Float.NaN, -0.0f, 0.0f, Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY, Float.MIN_VALUE, -Float.MAX_VALUE};
+    // values which share the part of the string encoded in the key, or are a prefix of each other
+    private static final String[] VARCHAR_VALUES = {"", "a", "abcdefg", "abcdefgh", "abcdefghi", "abcdefgh\u0000", "abcdefgh\u00e9", "abcdefgi", "zz", "\u00ff", "\ud83d\ude00"};
+
+    @Test
+    public void testSingleChannel()
+    {
+        for (int seed = 0; seed < 5; seed++) {
+            List<Page> pages = createPages(new Random(seed), "", 4, 1000);
+            for (int channel = 0; channel < ROW_ID_CHANNEL; channel++) {
+                for (SortOrder sortOrder : SortOrder.values()) {
+                    assertSortMatchesComparator(pages, ImmutableList.of(channel), ImmutableList.of(sortOrder));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCommonVarcharPrefix()
+    {
+        // all values share a prefix longer than the key, so the key is built from the bytes after it
+        for (int seed = 0; seed < 5; seed++) {
+            List<Page> pages = createPages(new Random(seed), "common prefix longer than a key ", 4, 1000);
+            for (SortOrder sortOrder : SortOrder.values()) {
+                assertSortMatchesComparator(pages, ImmutableList.of(4), ImmutableList.of(sortOrder));
+                assertSortMatchesComparator(pages, ImmutableList.of(4, 0), ImmutableList.of(sortOrder, DESC_NULLS_LAST));
+            }
+        }
+    }
+
+    @Test
+    public void testTiesAcrossChannels()
+    {
+        Random random = new Random(42);
+        for (int seed = 0; seed < 5; seed++) {
+            List<Page> pages = createPages(new Random(seed), "", 4, 1000);
+            for (int iteration = 0; iteration < 50; iteration++) {
+                List<Integer> channels = new ArrayList<>();
+                for (int channel = 0; channel < ROW_ID_CHANNEL; channel++) {
+                    channels.add(channel);
+                }
+                Collections.shuffle(channels, random);
+                channels = channels.subList(0, 2 + random.nextInt(channels.size() - 1));
+                List<SortOrder> sortOrders = new ArrayList<>();
+                for (int i = 0; i < channels.size(); i++) {
+                    sortOrders.add(SortOrder.values()[random.nextInt(SortOrder.values().length)]);
+                }
+                assertSortMatchesComparator(pages, channels, sortOrders);
+            }
+        }
+    }
+
+    @Test
+    public void testPositionRange()
+    {
+        List<Page> pages = createPages(new Random(7), "", 4, 1000);
+        for (SortOrder sortOrder : ImmutableList.of(ASC_NULLS_FIRST, ASC_NULLS_LAST, DESC_NULLS_FIRST, DESC_NULLS_LAST)) {
+            List<Integer> channels = ImmutableList.of(2, 4);
+            List<SortOrder> sortOrders = ImmutableList.of(sortOrder, sortOrder);
+            PagesIndex expected = createPagesIndex(pages, false);
+            expected.sort(channels, sortOrders, 123, 3456);
+            PagesIndex actual = createPagesIndex(pages, true);
+            actual.sort(channels, sortOrders, 123, 3456);
+
+            // the positions outside of the range are not moved
+            List<List<Object>> expectedRows = getRows(expected);
+            List<List<Object>> actualRows = getRows(actual);
+            assertEquals(actualRows.subList(0, 123), expectedRows.subList(0, 123));
+            assertEquals(actualRows.subList(3456, actualRows.size()), expectedRows.subList(3456, expectedRows.size()));
+            assertEquals(project(actualRows, channels), project(expectedRows, channels));
+            assertEquals(sortedRowIds(actualRows), sortedRowIds(expectedRows));
+        }
+    }
+
+    @Test
+    public void testScratchMemoryReleased()
+    {
+        List<Page> pages = createPages(new Random(3), "", 2, 1000);
+        LocalMemoryContext memoryContext = newSimpleAggregatedMemoryContext().newLocalMemoryContext("test");
+        PagesIndex pagesIndex = createPagesIndex(pages, true);
+        pagesIndex.sort(ImmutableList.of(0, 4), ImmutableList.of(ASC_NULLS_LAST, DESC_NULLS_FIRST), memoryContext);
+        assertEquals(memoryContext.getBytes(), 0);
+    }
+
+    private static void assertSortMatchesComparator(List<Page> pages, List<Integer> channels, List<SortOrder> sortOrders)
+    {
+        PagesIndex expected = createPagesIndex(pages, false);
+        expected.sort(channels, sortOrders);
+        PagesIndex actual = createPagesIndex(pages, true);
+        actual.sort(channels, sortOrders);
+
+        // positions with equal sort keys may be ordered differently, so only the sort channels are compared
+        List<List<Object>> expectedRows = getRows(expected);
+        List<List<Object>> actualRows = getRows(actual);
+        assertEquals(project(actualRows, channels), project(expectedRows, channels), "channels " + channels + " orders " + sortOrders);
+        assertEquals(sortedRowIds(actualRows), sortedRowIds(expectedRows));
+    }
+
+    private static List<List<Object>> project(List<List<Object>> rows, List<Integer> channels)
+    {
+        List<List<Object>> projected = new ArrayList<>();
+        for (List<Object> row : rows) {
+            List<Object> values = new ArrayList<>();
+            for (int channel : channels) {
+                values.add(row.get(channel));
+            }
+            projected.add(values);
+        }
+        return projected;
+    }
+
+    private static List<Long> sortedRowIds(List<List<Object>> rows)
+    {
+        List<Long> rowIds = new ArrayList<>();
+        for (List<Object> row : rows) {
+            rowIds.add((Long) row.get(ROW_ID_CHANNEL));
+        }
+        rowIds.sort(Long::compare);
+        return rowIds;
+    }
+
+    private static PagesIndex createPagesIndex(List<Page> pages, boolean normalizedKeySort)
+    {
+        PagesIndex pagesIndex = new PagesIndex.TestingFactory(false, normalizedKeySort).newPagesIndex(TYPES, 1000);
+        pages.forEach(pagesIndex::addPage);
+        return pagesIndex;
+    }
+
+    private static List<List<Object>> getRows(PagesIndex pagesIndex)
+    {
+        List<List<Object>> rows = new ArrayList<>();
+        Iterator<Page> pages = pagesIndex.getSortedPages();
+        while (pages.hasNext()) {
+            Page page = pages.next();
+            for (int position = 0; position < page.getPositionCount(); position++) {
+                List<Object> row = new ArrayList<>();
+                for (int channel = 0; channel < TYPES.size(); channel++) {
+                    // the object value of -0.0 differs from 0.0, and NaN is equal to itself
+                    row.add(TYPES.get(channel).getObjectValue(null, page.getBlock(channel), position));
+                }
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private static List<Page> createPages(Random random, String varcharPrefix, int pageCount, int positionsPerPage)
+    {
+        List<Page> pages = new ArrayList<>();
+        long rowId = 0;
+        for (int page = 0; page < pageCount; page++) {
+            PageBuilder pageBuilder = new PageBuilder(TYPES);
+            for (int position = 0; position < positionsPerPage; position++) {
+                pageBuilder.declarePosition();
+                for (int channel = 0; channel < ROW_ID_CHANNEL; channel++) {
+                    BlockBuilder blockBuilder = pageBuilder.getBlockBuilder(channel);
+                    if (random.nextInt(10) == 0) {
+                        blockBuilder.appendNull();
+                    }
+                    else {
+                        appendRandomValue(random, TYPES.get(channel), varcharPrefix, blockBuilder);
+                    }
+                }
+                BIGINT.writeLong(pageBuilder.getBlockBuilder(ROW_ID_CHANNEL), rowId++);
+            }
+            pages.add(pageBuilder.build());
+        }
+        return pages;
+    }
+
+    private static void appendRandomValue(Random random, Type type, String varcharPrefix, BlockBuilder blockBuilder)
+    {
+        // few distinct values, so that there are ties on every channel
+        boolean special = random.nextInt(4) == 0;
+        if (type.equals(BIGINT)) {
+            BIGINT.writeLong(blockBuilder, special ? (random.nextBoolean() ? Long.MIN_VALUE : Long.MAX_VALUE) : random.nextInt(20) - 10);
+        }
+        else if (type.equals(INTEGER)) {
+            INTEGER.writeLong(blockBuilder, special ? (random.nextBoolean() ? Integer.MIN_VALUE : Integer.MAX_VALUE) : random.nextInt(20) - 10);
+        }
+        else if (type.equals(DOUBLE)) {
+            DOUBLE.writeDouble(blockBuilder, special ? SPECIAL_DOUBLES[random.nextInt(SPECIAL_DOUBLES.length)] : random.nextInt(20) - 10.5);
+        }
+        else if (type.equals(REAL)) {
+            float value = special ? SPECIAL_REALS[random.nextInt(SPECIAL_REALS.length)] : random.nextInt(20) - 10.25f;
+            REAL.writeLong(blockBuilder, floatToRawIntBits(value));
+        }
+        else if (type.equals(VARCHAR)) {
+            String value = varcharPrefix + VARCHAR_VALUES[random.nextInt(VARCHAR_VALUES.length)] + (random.nextBoolean() ? "" : Integer.toString(random.nextInt(10)));
+            VARCHAR.writeSlice(blockBuilder, Slices.utf8Slice(value));
+        }
+        else if (type.equals(DATE)) {
+            DATE.writeLong(blockBuilder, random.nextInt(20) - 10);
+        }
+        else if (type.equals(SHORT_DECIMAL)) {
+            SHORT_DECIMAL.writeLong(blockBuilder, special ? (random.nextBoolean() ? -9_999_999_999L : 9_999_999_999L) : random.nextInt(20) - 10);
+        }
+        else {
+            throw new IllegalArgumentException("Unsupported type: " + type);
+        }
+    }
+}
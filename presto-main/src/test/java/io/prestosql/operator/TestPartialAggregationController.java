@@ -0,0 +1,98 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.operator;
+
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestPartialAggregationController
+{
+    @Test
+    public void testMinRows()
+    {
+        PartialAggregationController controller = new PartialAggregationController(100, 0.8);
+
+        // every row is unique, but too few rows were seen to decide
+        controller.onFlush(99, 99);
+        assertFalse(controller.isPartialAggregationDisabled());
+
+        controller.onFlush(1, 1);
+        assertTrue(controller.isPartialAggregationDisabled());
+    }
+
+    @Test
+    public void testUniqueRowsRatioThreshold()
+    {
+        PartialAggregationController controller = new PartialAggregationController(100, 0.8);
+
+        // the ratio must exceed the threshold
+        controller.onFlush(1000, 800);
+        assertFalse(controller.isPartialAggregationDisabled());
+
+        // the ratio is computed over all flushes
+        controller.onFlush(1000, 900);
+        assertTrue(controller.isPartialAggregationDisabled());
+    }
+
+    @Test
+    public void testEffectiveAggregation()
+    {
+        PartialAggregationController controller = new PartialAggregationController(100, 0.8);
+        for (int i = 0; i < 100; i++) {
+            controller.onFlush(10_000, 10);
+        }
+        assertFalse(controller.isPartialAggregationDisabled());
+    }
+
+    @Test
+    public void testDisabledPermanently()
+    {
+        PartialAggregationController controller = new PartialAggregationController(100, 0.5);
+        controller.onFlush(1000, 1000);
+        assertTrue(controller.isPartialAggregationDisabled());
+
+        // later flushes with few unique rows do not enable partial aggregation again
+        controller.onFlush(1_000_000, 1);
+        assertTrue(controller.isPartialAggregationDisabled());
+    }
+
+    @Test
+    public void testDuplicate()
+    {
+        PartialAggregationController controller = new PartialAggregationController(100, 0.5);
+        controller.onFlush(1000, 1000);
+        assertTrue(controller.isPartialAggregationDisabled());
+
+        PartialAggregationController duplicate = controller.duplicate();
+        assertFalse(duplicate.isPartialAggregationDisabled());
+        duplicate.onFlush(99, 99);
+        assertFalse(duplicate.isPartialAggregationDisabled());
+        duplicate.onFlush(1, 1);
+        assertTrue(duplicate.isPartialAggregationDisabled());
+    }
+
+    @Test
+    public void testInvalidArguments()
+    {
+        assertThatThrownBy(() -> new PartialAggregationController(-1, 0.5))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("minRows must be non-negative");
+        assertThatThrownBy(() -> new PartialAggregationController(100, 1.5))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("uniqueRowsRatioThreshold must be in the range [0, 1]");
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.operator;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.Multiset;
+import io.airlift.units.DataSize;
+import io.prestosql.execution.StateMachine;
+import io.prestosql.execution.buffer.BufferResult;
+import io.prestosql.execution.buffer.BufferState;
+import io.prestosql.execution.buffer.OutputBuffers;
+import io.prestosql.execution.buffer.OutputBuffers.OutputBufferId;
+import io.prestosql.execution.buffer.PagesSerde;
+import io.prestosql.execution.buffer.PagesSerdeFactory;
+import io.prestosql.execution.buffer.PartitionedOutputBuffer;
+import io.prestosql.execution.buffer.SerializedPage;
+import io.prestosql.operator.PartitionedOutputOperator.PartitionedOutputFactory;
+import io.prestosql.spi.Page;
+import io.prestosql.spi.block.Block;
+import io.prestosql.spi.block.BlockBuilder;
+import io.prestosql.spi.type.Type;
+import io.prestosql.sql.planner.plan.PlanNodeId;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+
+import static io.airlift.concurrent.MoreFutures.getFutureValue;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.slice.Slices.utf8Slice;
+import static io.airlift.units.DataSize.Unit.BYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static io.prestosql.execution.buffer.BufferState.OPEN;
+import static io.prestosql.execution.buffer.BufferState.TERMINAL_BUFFER_STATES;
+import static io.prestosql.execution.buffer.OutputBuffers.BufferType.PARTITIONED;
+import static io.prestosql.execution.buffer.OutputBuffers.createInitialEmptyOutputBuffers;
+import static io.prestosql.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
+import static io.prestosql.metadata.MetadataManager.createTestMetadataManager;
+import static io.prestosql.spi.type.BigintType.BIGINT;
+import static io.prestosql.spi.type.VarcharType.VARCHAR;
+import static io.prestosql.testing.TestingSession.testSessionBuilder;
+import static io.prestosql.testing.TestingTaskContext.createTaskContext;
+import static java.lang.Math.floorMod;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.Executors.newScheduledThreadPool;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestPartitionedOutputOperator
+{
+    private static final int PARTITION_COUNT = 3;
+    private static final int POSITIONS_PER_PAGE = 300;
+    private static final int PAGE_COUNT = 4;
+    private static final List<Type> TYPES = ImmutableList.of(BIGINT, VARCHAR);
+    // partition slices are far below a quarter of the 1MB page size, so they are appended to the page builders
+    private static final DataSize PAGE_BUILDER_MEMORY = DataSize.of(PARTITION_COUNT, MEGABYTE);
+    // a page size of 4000 bytes, so every partition slice is copied and sent on its own
+    private static final DataSize COPY_POSITIONS_MEMORY = DataSize.of(PARTITION_COUNT * 4000, BYTE);
+
+    private ExecutorService executor;
+    private ScheduledExecutorService scheduledExecutor;
+    private PagesSerde serde;
+
+    @BeforeClass
+    public void setUp()
+    {
+        executor = newCachedThreadPool(daemonThreadsNamed("test-partitioned-output-%s"));
+        scheduledExecutor = newScheduledThreadPool(2, daemonThreadsNamed("test-partitioned-output-scheduled-%s"));
+        serde = new PagesSerdeFactory(createTestMetadataManager().getBlockEncodingSerde(), false).createPagesSerde();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        executor.shutdownNow();
+        executor = null;
+        scheduledExecutor.shutdownNow();
+        scheduledExecutor = null;
+    }
+
+    @DataProvider
+    public static Object[][] partitionPaths()
+    {
+        return new Object[][] {{false}, {true}};
+    }
+
+    @Test(dataProvider = "partitionPaths")
+    public void testRouting(boolean copyPositions)
+    {
+        assertPartitioning(copyPositions, false, false);
+    }
+
+    @Test(dataProvider = "partitionPaths")
+    public void testReplicateNullKeys(boolean copyPositions)
+    {
+        assertPartitioning(copyPositions, true, false);
+    }
+
+    @Test(dataProvider = "partitionPaths")
+    public void testReplicateAnyRow(boolean copyPositions)
+    {
+        assertPartitioning(copyPositions, false, true);
+    }
+
+    @Test(dataProvider = "partitionPaths")
+    public void testReplicateNullKeysAndAnyRow(boolean copyPositions)
+    {
+        assertPartitioning(copyPositions, true, true);
+    }
+
+    private void assertPartitioning(boolean copyPositions, boolean nullKeys, boolean replicatesAnyRow)
+    {
+        OutputBuffers buffers = createInitialEmptyOutputBuffers(PARTITIONED);
+        for (int partition = 0; partition < PARTITION_COUNT; partition++) {
+            buffers = buffers.withBuffer(new OutputBufferId(partition), partition);
+        }
+        PartitionedOutputBuffer outputBuffer = new PartitionedOutputBuffer(
+                "task-instance-id",
+                new StateMachine<BufferState>("bufferState", executor, OPEN, TERMINAL_BUFFER_STATES),
+                buffers.withNoMoreBufferIds(),
+                DataSize.of(Long.MAX_VALUE, BYTE),
+                () -> newSimpleAggregatedMemoryContext().newLocalMemoryContext("test"),
+                executor);
+        PartitionedOutputOperator operator = createOperator(outputBuffer, copyPositions ? COPY_POSITIONS_MEMORY : PAGE_BUILDER_MEMORY, nullKeys, replicatesAnyRow);
+
+        List<List<List<Object>>> expected = new ArrayList<>();
+        for (int partition = 0; partition < PARTITION_COUNT; partition++) {
+            expected.add(new ArrayList<>());
+        }
+        for (int pageNumber = 0; pageNumber < PAGE_COUNT; pageNumber++) {
+            Page page = createPage(pageNumber, nullKeys);
+            for (int position = 0; position < page.getPositionCount(); position++) {
+                List<Object> row = getRow(page, position);
+                Long key = (Long) row.get(0);
+                boolean replicated = (replicatesAnyRow && pageNumber == 0 && position == 0) || key == null;
+                for (int partition = 0; partition < PARTITION_COUNT; partition++) {
+                    if (replicated || partition == partitionOf(key)) {
+                        expected.get(partition).add(row);
+                    }
+                }
+            }
+
+            operator.addInput(page);
+            // the copy positions path sends a page for every partition right away, the page builder path waits for the builders to fill up
+            assertEquals(operator.getInfo().getPagesAdded(), copyPositions ? (pageNumber + 1) * PARTITION_COUNT : 0);
+        }
+        operator.finish();
+        assertTrue(operator.isFinished());
+        outputBuffer.setNoMorePages();
+
+        for (int partition = 0; partition < PARTITION_COUNT; partition++) {
+            assertEquals(getPartitionRows(outputBuffer, partition), ImmutableMultiset.copyOf(expected.get(partition)), "partition " + partition);
+        }
+        assertEquals(operator.getInfo().getRowsAdded(), expected.stream().mapToLong(List::size).sum());
+    }
+
+    private PartitionedOutputOperator createOperator(PartitionedOutputBuffer outputBuffer, DataSize maxMemory, boolean nullKeys, boolean replicatesAnyRow)
+    {
+        PartitionFunction partitionFunction = new PartitionFunction()
+        {
+            @Override
+            public int getPartitionCount()
+            {
+                return PARTITION_COUNT;
+            }
+
+            @Override
+            public int getPartition(Page page, int position)
+            {
+                Block keys = page.getBlock(0);
+                assertTrue(!keys.isNull(position), "replicated rows must not be partitioned");
+                return partitionOf(BIGINT.getLong(keys, position));
+            }
+        };
+        PartitionedOutputFactory outputFactory = new PartitionedOutputFactory(
+                partitionFunction,
+                ImmutableList.of(0),
+                ImmutableList.of(Optional.empty()),
+                replicatesAnyRow,
+                nullKeys ? OptionalInt.of(0) : OptionalInt.empty(),
+                false,
+                outputBuffer,
+                maxMemory);
+        DriverContext driverContext = createTaskContext(executor, scheduledExecutor, testSessionBuilder().build())
+                .addPipelineContext(0, true, true, false)
+                .addDriverContext();
+        return (PartitionedOutputOperator) outputFactory
+                .createOutputOperator(0, new PlanNodeId("test"), TYPES, Function.identity(), new PagesSerdeFactory(createTestMetadataManager().getBlockEncodingSerde(), false))
+                .createOperator(driverContext);
+    }
+
+    private Multiset<List<Object>> getPartitionRows(PartitionedOutputBuffer outputBuffer, int partition)
+    {
+        BufferResult result = getFutureValue(outputBuffer.get(new OutputBufferId(partition), 0, DataSize.of(64, MEGABYTE)));
+        ImmutableMultiset.Builder<List<Object>> rows = ImmutableMultiset.builder();
+        for (SerializedPage serializedPage : result.getSerializedPages()) {
+            Page page = serde.deserialize(serializedPage);
+            for (int position = 0; position < page.getPositionCount(); position++) {
+                rows.add(getRow(page, position));
+            }
+        }
+        return rows.build();
+    }
+
+    private static int partitionOf(Long key)
+    {
+        return key == null ? -1 : floorMod(key, PARTITION_COUNT);
+    }
+
+    private static Page createPage(int pageNumber, boolean nullKeys)
+    {
+        BlockBuilder keys = BIGINT.createBlockBuilder(null, POSITIONS_PER_PAGE);
+        BlockBuilder values = VARCHAR.createBlockBuilder(null, POSITIONS_PER_PAGE);
+        for (int position = 0; position < POSITIONS_PER_PAGE; position++) {
+            if (nullKeys && position % 7 == 3) {
+                keys.appendNull();
+            }
+            else {
+                BIGINT.writeLong(keys, position * 31L + pageNumber);
+            }
+            // every row is unique, so rows sent twice to a partition are detected
+            VARCHAR.writeSlice(values, utf8Slice("row_" + pageNumber + "_" + position));
+        }
+        return new Page(keys.build(), values.build());
+    }
+
+    private static List<Object> getRow(Page page, int position)
+    {
+        Block keys = page.getBlock(0);
+        Block values = page.getBlock(1);
+        return Arrays.asList(
+                keys.isNull(position) ? null : BIGINT.getLong(keys, position),
+                VARCHAR.getSlice(values, position).toStringUtf8());
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.operator;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.Key;
+import io.airlift.units.Duration;
+import io.prestosql.client.ClientSession;
+import io.prestosql.client.QueryData;
+import io.prestosql.client.StatementClient;
+import io.prestosql.execution.resultcache.TestingVersionedTpchConnectorFactory;
+import io.prestosql.server.testing.TestingPrestoServer;
+import io.prestosql.spi.Plugin;
+import io.prestosql.spi.connector.ConnectorFactory;
+import okhttp3.OkHttpClient;
+import org.intellij.lang.annotations.Language;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.prestosql.SystemSessionProperties.JOIN_DISTRIBUTION_TYPE;
+import static io.prestosql.SystemSessionProperties.SHARED_BROADCAST_JOIN_BUILD_ENABLED;
+import static io.prestosql.client.StatementClientFactory.newStatementClient;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestSharedBroadcastJoinBuild
+{
+    @Language("SQL")
+    private static final String QUERY = "SELECT count(*), sum(c.acctbal) FROM orders o JOIN customer c ON o.custkey = c.custkey";
+    private static final List<String> TABLES = ImmutableList.of("orders", "customer");
+
+    private TestingVersionedTpchConnectorFactory connectorFactory;
+    private TestingPrestoServer server;
+    private BroadcastLookupSourceCache cache;
+    private OkHttpClient httpClient;
+
+    @BeforeClass
+    public void setUp()
+    {
+        connectorFactory = new TestingVersionedTpchConnectorFactory();
+        server = TestingPrestoServer.builder()
+                .setProperties(ImmutableMap.of("shared-broadcast-join-build.enabled", "true"))
+                .build();
+        server.installPlugin(new Plugin()
+        {
+            @Override
+            public Iterable<ConnectorFactory> getConnectorFactories()
+            {
+                return ImmutableList.of(connectorFactory);
+            }
+        });
+        server.createCatalog("versioned", "versioned_tpch");
+        cache = server.getInstance(Key.get(BroadcastLookupSourceCache.class));
+        httpClient = new OkHttpClient();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+            throws Exception
+    {
+        server.close();
+        server = null;
+        httpClient.dispatcher().executorService().shutdownNow();
+        httpClient.connectionPool().evictAll();
+    }
+
+    @Test
+    public void testDataChange()
+    {
+        connectorFactory.setTableVersionsImmutable(true);
+        setVersions("1");
+        List<List<Object>> expected = execute(false);
+        assertEquals(execute(true), expected);
+        long hits = cache.getHits().getTotalCount();
+        assertEquals(execute(true), expected);
+        assertTrue(cache.getHits().getTotalCount() > hits);
+
+        // the build side cached for the previous version must not be used once the data changes
+        connectorFactory.setDataSchema("sf0.02");
+        setVersions("2");
+        List<List<Object>> changed = execute(false);
+        assertNotEquals(changed, expected);
+        assertEquals(execute(true), changed);
+        assertEquals(execute(true), changed);
+    }
+
+    @Test(dependsOnMethods = "testDataChange")
+    public void testMutableVersion()
+    {
+        // versions which do not identify the data are not used to share build sides
+        connectorFactory.setTableVersionsImmutable(false);
+        connectorFactory.setDataSchema("tiny");
+        setVersions("3");
+        List<List<Object>> expected = execute(false);
+        long hits = cache.getHits().getTotalCount();
+        long misses = cache.getMisses().getTotalCount();
+        assertEquals(execute(true), expected);
+
+        connectorFactory.setDataSchema("sf0.02");
+        List<List<Object>> changed = execute(true);
+        assertNotEquals(changed, expected);
+        assertEquals(execute(false), changed);
+        assertEquals(cache.getHits().getTotalCount(), hits);
+        assertEquals(cache.getMisses().getTotalCount(), misses);
+    }
+
+    private void setVersions(String version)
+    {
+        TABLES.forEach(table -> connectorFactory.setTableVersion(table, version));
+    }
+
+    private List<List<Object>> execute(boolean sharingEnabled)
+    {
+        Map<String, String> properties = ImmutableMap.of(
+                JOIN_DISTRIBUTION_TYPE, "BROADCAST",
+                SHARED_BROADCAST_JOIN_BUILD_ENABLED, String.valueOf(sharingEnabled));
+        ClientSession session = new ClientSession(
+                server.getBaseUrl(),
+                "user",
+                "test",
+                Optional.empty(),
+                ImmutableSet.of(),
+                null,
+                "versioned",
+                "tiny",
+                null,
+                ZoneId.of("UTC"),
+                false,
+                Locale.ENGLISH,
+                ImmutableMap.of(),
+                properties,
+                ImmutableMap.of(),
+                ImmutableMap.of(),
+                ImmutableMap.of(),
+                null,
+                new Duration(2, MINUTES));
+        ImmutableList.Builder<List<Object>> rows = ImmutableList.builder();
+        try (StatementClient client = newStatementClient(httpClient, session, QUERY)) {
+            while (client.isRunning()) {
+                QueryData data = client.currentData();
+                if (data.getData() != null) {
+                    data.getData().forEach(rows::add);
+                }
+                client.advance();
+            }
+            assertNull(client.finalStatusInfo().getError());
+        }
+        return rows.build().stream()
+                .map(ImmutableList::copyOf)
+                .collect(toImmutableList());
+    }
+}
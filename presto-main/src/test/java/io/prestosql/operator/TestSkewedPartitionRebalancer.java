@@ -0,0 +1,147 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.operator;
+
+import io.prestosql.spi.Page;
+import io.prestosql.spi.block.LongArrayBlock;
+import org.testng.annotations.Test;
+
+import java.util.Optional;
+import java.util.function.IntUnaryOperator;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestSkewedPartitionRebalancer
+{
+    private static final int PARTITION_COUNT = 4;
+    private static final int ROWS_PER_PAGE = 10_000;
+    // enough pages for several rebalancing windows
+    private static final int PAGE_COUNT = 500;
+
+    @Test
+    public void testNoRebalancingBelowSkewThreshold()
+    {
+        // the hot partition receives 1.8 times the bytes of the average consumer
+        SkewedPartitionRebalancer rebalancer = new SkewedPartitionRebalancer(PARTITION_COUNT, true);
+        long[] consumerRows = route(rebalancer, row -> row % 100 < 45 ? 0 : 1 + row % 3);
+
+        assertEquals(rebalancer.getInfo().getRebalancedPartitions(), 0);
+        assertEquals(consumerRows[0], PAGE_COUNT * (long) ROWS_PER_PAGE * 45 / 100);
+        assertConsumers(rebalancer, 0, 1);
+    }
+
+    @Test
+    public void testRebalancingAboveSkewThreshold()
+    {
+        // the hot partition receives 2.4 times the bytes of the average consumer
+        SkewedPartitionRebalancer rebalancer = new SkewedPartitionRebalancer(PARTITION_COUNT, true);
+        long[] consumerRows = route(rebalancer, row -> row % 100 < 60 ? 0 : 1 + row % 3);
+
+        PartitionSkewInfo info = rebalancer.getInfo();
+        assertEquals(info.getRebalancedPartitions(), 1);
+        assertTrue(consumerRows[0] < PAGE_COUNT * (long) ROWS_PER_PAGE * 60 / 100);
+        assertTrue(info.getSkew() < 2.0, "skew: " + info.getSkew());
+        assertConsumers(rebalancer, 0, 2);
+        // the other partitions are not spread
+        for (int partition = 1; partition < PARTITION_COUNT; partition++) {
+            assertConsumers(rebalancer, partition, 1);
+        }
+    }
+
+    @Test
+    public void testRebalancingNotAllowed()
+    {
+        SkewedPartitionRebalancer rebalancer = new SkewedPartitionRebalancer(PARTITION_COUNT, false);
+        long[] consumerRows = route(rebalancer, row -> row % 100 < 90 ? 0 : 1 + row % 3);
+
+        PartitionSkewInfo info = rebalancer.getInfo();
+        assertEquals(info.getRebalancedPartitions(), 0);
+        assertEquals(consumerRows[0], PAGE_COUNT * (long) ROWS_PER_PAGE * 90 / 100);
+        assertTrue(info.getSkew() > 3.0, "skew: " + info.getSkew());
+        for (int partition = 0; partition < PARTITION_COUNT; partition++) {
+            assertConsumers(rebalancer, partition, 1);
+        }
+    }
+
+    @Test
+    public void testConsumerLimit()
+    {
+        // a single partition receives all rows, so it keeps being the hottest one
+        SkewedPartitionRebalancer rebalancer = new SkewedPartitionRebalancer(PARTITION_COUNT, true);
+        long[] consumerRows = route(rebalancer, row -> 0);
+
+        assertEquals(rebalancer.getInfo().getRebalancedPartitions(), 1);
+        int consumers = countConsumers(rebalancer, 0);
+        assertTrue(consumers > 1 && consumers <= PARTITION_COUNT, "consumers: " + consumers);
+
+        // each consumer is added to the partition only once, so rows are spread evenly between them
+        int[] rows = new int[PARTITION_COUNT];
+        for (int i = 0; i < consumers * 100; i++) {
+            rows[rebalancer.getConsumer(0)]++;
+        }
+        for (int count : rows) {
+            assertTrue(count == 0 || count == 100, "rows: " + count);
+        }
+
+        long totalRows = 0;
+        for (long count : consumerRows) {
+            totalRows += count;
+        }
+        assertEquals(totalRows, PAGE_COUNT * (long) ROWS_PER_PAGE);
+    }
+
+    @Test
+    public void testEmptyPage()
+    {
+        SkewedPartitionRebalancer rebalancer = new SkewedPartitionRebalancer(PARTITION_COUNT, true);
+        rebalancer.pageProcessed(new Page(0));
+        assertEquals(rebalancer.getInfo().getPartitionBytes(), new long[PARTITION_COUNT]);
+    }
+
+    private static long[] route(SkewedPartitionRebalancer rebalancer, IntUnaryOperator partitionOfRow)
+    {
+        Page page = new Page(new LongArrayBlock(ROWS_PER_PAGE, Optional.empty(), new long[ROWS_PER_PAGE]));
+        long[] consumerRows = new long[PARTITION_COUNT];
+        for (int pageNumber = 0; pageNumber < PAGE_COUNT; pageNumber++) {
+            for (int row = 0; row < ROWS_PER_PAGE; row++) {
+                int consumer = rebalancer.getConsumer(partitionOfRow.applyAsInt(row));
+                assertTrue(consumer >= 0 && consumer < PARTITION_COUNT);
+                consumerRows[consumer]++;
+            }
+            rebalancer.pageProcessed(page);
+        }
+        return consumerRows;
+    }
+
+    private static void assertConsumers(SkewedPartitionRebalancer rebalancer, int partition, int expectedConsumers)
+    {
+        assertEquals(countConsumers(rebalancer, partition), expectedConsumers);
+    }
+
+    private static int countConsumers(SkewedPartitionRebalancer rebalancer, int partition)
+    {
+        boolean[] seen = new boolean[PARTITION_COUNT];
+        for (int i = 0; i < PARTITION_COUNT * 10; i++) {
+            seen[rebalancer.getConsumer(partition)] = true;
+        }
+        int consumers = 0;
+        for (boolean value : seen) {
+            if (value) {
+                consumers++;
+            }
+        }
+        return consumers;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.operator.aggregation.builder;
+
+import com.google.common.collect.ImmutableList;
+import io.prestosql.memory.context.AggregatedMemoryContext;
+import io.prestosql.metadata.Metadata;
+import io.prestosql.operator.aggregation.AccumulatorFactory;
+import io.prestosql.spi.Page;
+import io.prestosql.spi.block.Block;
+import io.prestosql.spi.block.BlockBuilder;
+import io.prestosql.spi.type.Type;
+import io.prestosql.sql.tree.QualifiedName;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static io.prestosql.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
+import static io.prestosql.metadata.MetadataManager.createTestMetadataManager;
+import static io.prestosql.spi.type.BigintType.BIGINT;
+import static io.prestosql.sql.analyzer.TypeSignatureProvider.fromTypes;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class TestSkipAggregationBuilder
+{
+    private static final Metadata METADATA = createTestMetadataManager();
+
+    @Test
+    public void testEveryRowIsItsOwnGroup()
+    {
+        // input is (key, value, hash)
+        Page page = new Page(
+                createLongsBlock(1L, 1L, 2L, null),
+                createLongsBlock(10L, null, 30L, 40L),
+                createLongsBlock(101L, 101L, 102L, 103L));
+        AggregatedMemoryContext memoryContext = newSimpleAggregatedMemoryContext();
+        SkipAggregationBuilder builder = new SkipAggregationBuilder(
+                ImmutableList.of(0),
+                Optional.of(2),
+                ImmutableList.of(aggregation("max", ImmutableList.of(BIGINT), ImmutableList.of(1)), aggregation("count", ImmutableList.of(), ImmutableList.of())),
+                memoryContext.newLocalMemoryContext("test"));
+
+        assertFalse(builder.isFull());
+        assertTrue(builder.processPage(page).process());
+        assertTrue(builder.isFull());
+        builder.updateMemory();
+        assertEquals(memoryContext.getBytes(), page.getSizeInBytes());
+
+        Page output = getOnlyElement(ImmutableList.copyOf(builder.buildResult().iterator()));
+        assertEquals(output.getChannelCount(), 4);
+        assertSame(output.getBlock(0), page.getBlock(0));
+        assertSame(output.getBlock(1), page.getBlock(2));
+        // intermediate states of a single row each
+        assertEquals(toLongs(output.getBlock(2)), asList(10L, null, 30L, 40L));
+        assertEquals(toLongs(output.getBlock(3)), asList(1L, 1L, 1L, 1L));
+
+        // the input page is released once the result is built
+        assertFalse(builder.isFull());
+        assertEquals(memoryContext.getBytes(), 0);
+        builder.updateMemory();
+        assertEquals(memoryContext.getBytes(), 0);
+        assertFalse(builder.buildResult().iterator().hasNext());
+    }
+
+    @Test
+    public void testCloseReleasesMemory()
+    {
+        Page page = new Page(createLongsBlock(1L, 2L, 3L));
+        AggregatedMemoryContext memoryContext = newSimpleAggregatedMemoryContext();
+        SkipAggregationBuilder builder = new SkipAggregationBuilder(
+                ImmutableList.of(0),
+                Optional.empty(),
+                ImmutableList.of(aggregation("count", ImmutableList.of(), ImmutableList.of())),
+                memoryContext.newLocalMemoryContext("test"));
+
+        builder.processPage(page).process();
+        builder.updateMemory();
+        assertTrue(memoryContext.getBytes() > 0);
+
+        builder.close();
+        assertEquals(memoryContext.getBytes(), 0);
+    }
+
+    private static AccumulatorFactory aggregation(String name, List<Type> argumentTypes, List<Integer> inputChannels)
+    {
+        return METADATA.getAggregateFunctionImplementation(METADATA.resolveFunction(QualifiedName.of(name), fromTypes(argumentTypes)))
+                .bind(inputChannels, Optional.empty());
+    }
+
+    private static Block createLongsBlock(Long... values)
+    {
+        BlockBuilder builder = BIGINT.createBlockBuilder(null, values.length);
+        for (Long value : values) {
+            if (value == null) {
+                builder.appendNull();
+            }
+            else {
+                BIGINT.writeLong(builder, value);
+            }
+        }
+        return builder.build();
+    }
+
+    private static List<Long> toLongs(Block block)
+    {
+        List<Long> values = new ArrayList<>();
+        for (int position = 0; position < block.getPositionCount(); position++) {
+            values.add(block.isNull(position) ? null : BIGINT.getLong(block, position));
+        }
+        return values;
+    }
+
+    private static List<Long> asList(Long... values)
+    {
+        return Arrays.asList(values);
+    }
+}
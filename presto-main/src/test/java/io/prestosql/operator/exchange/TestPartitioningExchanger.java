@@ -0,0 +1,142 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.operator.exchange;
+
+import com.google.common.collect.ImmutableList;
+import io.prestosql.operator.PartitionSkewInfo;
+import io.prestosql.spi.Page;
+import io.prestosql.spi.block.BlockBuilder;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static io.prestosql.spi.type.BigintType.BIGINT;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestPartitioningExchanger
+{
+    private static final int PARTITION_COUNT = 4;
+    private static final int ROWS_PER_PAGE = 10_000;
+    private static final int PAGE_COUNT = 300;
+    private static final long HOT_KEY = 42;
+
+    @Test
+    public void testSkewedPartitionRebalancing()
+    {
+        List<List<Page>> buffers = new ArrayList<>();
+        PartitionSkewInfo info = exchange(buffers, true);
+
+        assertEquals(info.getRebalancedPartitions(), 1);
+        // rows of the hot key are delivered to more than one consumer
+        assertTrue(consumersOf(buffers, HOT_KEY).size() > 1);
+        assertAllRowsDeliveredOnce(buffers);
+    }
+
+    @Test
+    public void testRebalancingDisabled()
+    {
+        List<List<Page>> buffers = new ArrayList<>();
+        PartitionSkewInfo info = exchange(buffers, false);
+
+        assertEquals(info.getRebalancedPartitions(), 0);
+        // all rows with the same key are delivered to the same consumer
+        for (long key = 0; key < 100; key++) {
+            assertTrue(consumersOf(buffers, key).size() <= 1, "key: " + key);
+        }
+        assertEquals(consumersOf(buffers, HOT_KEY).size(), 1);
+        assertAllRowsDeliveredOnce(buffers);
+    }
+
+    private static PartitionSkewInfo exchange(List<List<Page>> buffers, boolean rebalancing)
+    {
+        PartitioningExchanger exchanger = createExchanger(buffers, rebalancing);
+        for (int page = 0; page < PAGE_COUNT; page++) {
+            exchanger.accept(createPage(page));
+        }
+        return exchanger.getSkewInfo().orElseThrow();
+    }
+
+    private static PartitioningExchanger createExchanger(List<List<Page>> buffers, boolean rebalancing)
+    {
+        ImmutableList.Builder<Consumer<PageReference>> consumers = ImmutableList.builder();
+        for (int partition = 0; partition < PARTITION_COUNT; partition++) {
+            List<Page> buffer = new ArrayList<>();
+            buffers.add(buffer);
+            consumers.add(pageReference -> buffer.add(pageReference.removePage()));
+        }
+        return new PartitioningExchanger(
+                consumers.build(),
+                new LocalExchangeMemoryManager(Long.MAX_VALUE),
+                ImmutableList.of(BIGINT, BIGINT),
+                ImmutableList.of(0),
+                Optional.empty(),
+                rebalancing);
+    }
+
+    // pages of (key, row id) where most rows have the hot key
+    private static Page createPage(int pageNumber)
+    {
+        BlockBuilder keys = BIGINT.createBlockBuilder(null, ROWS_PER_PAGE);
+        BlockBuilder ids = BIGINT.createBlockBuilder(null, ROWS_PER_PAGE);
+        for (int row = 0; row < ROWS_PER_PAGE; row++) {
+            BIGINT.writeLong(keys, row % 10 < 7 ? HOT_KEY : row % 100);
+            BIGINT.writeLong(ids, (long) pageNumber * ROWS_PER_PAGE + row);
+        }
+        return new Page(keys.build(), ids.build());
+    }
+
+    private static Set<Integer> consumersOf(List<List<Page>> buffers, long key)
+    {
+        Set<Integer> consumers = new HashSet<>();
+        for (int consumer = 0; consumer < buffers.size(); consumer++) {
+            for (Page page : buffers.get(consumer)) {
+                for (int position = 0; position < page.getPositionCount(); position++) {
+                    if (BIGINT.getLong(page.getBlock(0), position) == key) {
+                        consumers.add(consumer);
+                    }
+                }
+            }
+        }
+        return consumers;
+    }
+
+    private static void assertAllRowsDeliveredOnce(List<List<Page>> buffers)
+    {
+        boolean[] delivered = new boolean[PAGE_COUNT * ROWS_PER_PAGE];
+        int rows = 0;
+        for (List<Page> buffer : buffers) {
+            for (Page page : buffer) {
+                for (int position = 0; position < page.getPositionCount(); position++) {
+                    int id = (int) BIGINT.getLong(page.getBlock(1), position);
+                    assertFalse(delivered[id], "row delivered twice: " + id);
+                    delivered[id] = true;
+                    rows++;
+
+                    // the key travels with its row
+                    long key = BIGINT.getLong(page.getBlock(0), position);
+                    int row = id % ROWS_PER_PAGE;
+                    assertEquals(key, row % 10 < 7 ? HOT_KEY : row % 100);
+                }
+            }
+        }
+        assertEquals(rows, delivered.length);
+    }
+}
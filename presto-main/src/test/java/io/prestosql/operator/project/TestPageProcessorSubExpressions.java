@@ -0,0 +1,357 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.operator.project;
+
+import com.google.common.collect.ImmutableList;
+import io.prestosql.memory.context.LocalMemoryContext;
+import io.prestosql.operator.DriverYieldSignal;
+import io.prestosql.operator.Work;
+import io.prestosql.spi.Page;
+import io.prestosql.spi.block.Block;
+import io.prestosql.spi.block.BlockBuilder;
+import io.prestosql.spi.connector.ConnectorSession;
+import io.prestosql.spi.type.Type;
+import io.prestosql.sql.gen.ExpressionProfiler;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.function.LongPredicate;
+
+import static io.prestosql.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
+import static io.prestosql.operator.project.PageProcessor.MAX_BATCH_SIZE;
+import static io.prestosql.spi.type.BigintType.BIGINT;
+import static io.prestosql.testing.TestingConnectorSession.SESSION;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestPageProcessorSubExpressions
+{
+    private static final int POSITION_COUNT = 100;
+
+    @Test
+    public void testProjectionSubExpressions()
+    {
+        // channel 1 is x + 1, which both projections read
+        PageProcessor pageProcessor = new PageProcessor(
+                Optional.empty(),
+                ImmutableList.of(new AddProjection(1, 10), new AddProjection(1, 20)),
+                1,
+                ImmutableList.of(),
+                ImmutableList.of(new AddProjection(0, 1)),
+                OptionalInt.of(MAX_BATCH_SIZE),
+                new ExpressionProfiler());
+
+        List<Page> pages = processAll(pageProcessor, new DriverYieldSignal(), newLocalMemoryContext());
+        assertEquals(getValues(pages, 0), expectedValues(value -> true, 11));
+        assertEquals(getValues(pages, 1), expectedValues(value -> true, 21));
+    }
+
+    @Test
+    public void testProjectionSubExpressionsYield()
+    {
+        AddProjection subExpression = new AddProjection(0, 1, 1);
+        PageProcessor pageProcessor = new PageProcessor(
+                Optional.empty(),
+                ImmutableList.of(new AddProjection(1, 10), new AddProjection(1, 20)),
+                1,
+                ImmutableList.of(),
+                ImmutableList.of(subExpression),
+                OptionalInt.of(MAX_BATCH_SIZE),
+                new ExpressionProfiler());
+
+        DriverYieldSignal yieldSignal = new DriverYieldSignal();
+        LocalMemoryContext memoryContext = newLocalMemoryContext();
+        Iterator<Optional<Page>> output = pageProcessor.process(SESSION, yieldSignal, memoryContext, createInputPage());
+
+        // the driver yields before the sub expression is computed
+        yieldSignal.forceYieldForTesting();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(output.hasNext());
+            assertFalse(output.next().isPresent());
+        }
+        yieldSignal.resetYieldForTesting();
+        assertEquals(subExpression.getProjectCalls(), 0);
+
+        // the sub expression yields part way, and its work is resumed
+        assertTrue(output.hasNext());
+        assertFalse(output.next().isPresent());
+        assertTrue(memoryContext.getBytes() > 0);
+
+        List<Page> pages = new ArrayList<>();
+        while (output.hasNext()) {
+            output.next().ifPresent(pages::add);
+        }
+        assertEquals(subExpression.getProjectCalls(), 1);
+        assertEquals(getValues(pages, 0), expectedValues(value -> true, 11));
+        assertEquals(getValues(pages, 1), expectedValues(value -> true, 21));
+        assertEquals(memoryContext.getBytes(), 0);
+    }
+
+    @Test
+    public void testProjectionSubExpressionsWithFilter()
+    {
+        // the filter does not read the sub expression, which is only computed for the selected positions
+        AddProjection subExpression = new AddProjection(0, 1, 1);
+        PageProcessor pageProcessor = new PageProcessor(
+                Optional.of(new TestingPageFilter(0, value -> value % 3 == 0)),
+                ImmutableList.of(new AddProjection(1, 10)),
+                1,
+                ImmutableList.of(),
+                ImmutableList.of(subExpression),
+                OptionalInt.of(1),
+                new ExpressionProfiler());
+
+        List<Page> pages = processAll(pageProcessor, new DriverYieldSignal(), newLocalMemoryContext());
+        assertTrue(pages.size() > 1, "expected the selected positions to be projected in batches");
+        assertEquals(getValues(pages, 0), expectedValues(value -> value % 3 == 0, 11));
+        assertEquals(subExpression.getProjectedPositions(), expectedValues(value -> value % 3 == 0, 0).size());
+    }
+
+    @Test
+    public void testFilterSubExpressionsYield()
+    {
+        // channel 1 is x + 1, which the filter and the projection read
+        AddProjection subExpression = new AddProjection(0, 1, 1);
+        PageProcessor pageProcessor = new PageProcessor(
+                Optional.of(new TestingPageFilter(1, value -> value % 2 == 0)),
+                ImmutableList.of(new AddProjection(1, 0)),
+                1,
+                ImmutableList.of(subExpression),
+                ImmutableList.of(),
+                OptionalInt.of(1),
+                new ExpressionProfiler());
+
+        DriverYieldSignal yieldSignal = new DriverYieldSignal();
+        LocalMemoryContext memoryContext = newLocalMemoryContext();
+        Iterator<Optional<Page>> output = pageProcessor.process(SESSION, yieldSignal, memoryContext, createInputPage());
+
+        yieldSignal.forceYieldForTesting();
+        assertTrue(output.hasNext());
+        assertFalse(output.next().isPresent());
+        yieldSignal.resetYieldForTesting();
+
+        List<Page> pages = new ArrayList<>();
+        int yields = 0;
+        while (output.hasNext()) {
+            Optional<Page> page = output.next();
+            if (page.isPresent()) {
+                pages.add(page.get());
+            }
+            else {
+                yields++;
+            }
+        }
+        // the page is filtered region by region, and the sub expression yields once for each region
+        assertTrue(subExpression.getProjectCalls() > 1, "expected the page to be filtered in regions");
+        assertEquals(yields, subExpression.getProjectCalls());
+        assertEquals(subExpression.getProjectedPositions(), POSITION_COUNT);
+        assertEquals(getValues(pages, 0), expectedValues(value -> (value + 1) % 2 == 0, 1));
+        assertEquals(memoryContext.getBytes(), 0);
+    }
+
+    @Test
+    public void testFilterAndProjectionSubExpressions()
+    {
+        // channel 1 is x + 1 for the filter, channel 2 is x + 2 for the projections
+        PageProcessor pageProcessor = new PageProcessor(
+                Optional.of(new TestingPageFilter(1, value -> value % 4 != 0)),
+                ImmutableList.of(new AddProjection(2, 0), new AddProjection(1, 0)),
+                1,
+                ImmutableList.of(new AddProjection(0, 1, 1)),
+                ImmutableList.of(new AddProjection(0, 2, 1)),
+                OptionalInt.of(1),
+                new ExpressionProfiler());
+
+        List<Page> pages = processAll(pageProcessor, new DriverYieldSignal(), newLocalMemoryContext());
+        assertEquals(getValues(pages, 0), expectedValues(value -> (value + 1) % 4 != 0, 2));
+        assertEquals(getValues(pages, 1), expectedValues(value -> (value + 1) % 4 != 0, 1));
+    }
+
+    private static List<Page> processAll(PageProcessor pageProcessor, DriverYieldSignal yieldSignal, LocalMemoryContext memoryContext)
+    {
+        List<Page> pages = new ArrayList<>();
+        Iterator<Optional<Page>> output = pageProcessor.process(SESSION, yieldSignal, memoryContext, createInputPage());
+        while (output.hasNext()) {
+            output.next().ifPresent(pages::add);
+        }
+        return pages;
+    }
+
+    private static LocalMemoryContext newLocalMemoryContext()
+    {
+        return newSimpleAggregatedMemoryContext().newLocalMemoryContext(PageProcessor.class.getSimpleName());
+    }
+
+    private static Page createInputPage()
+    {
+        BlockBuilder blockBuilder = BIGINT.createBlockBuilder(null, POSITION_COUNT);
+        for (int i = 0; i < POSITION_COUNT; i++) {
+            BIGINT.writeLong(blockBuilder, i);
+        }
+        return new Page(blockBuilder.build());
+    }
+
+    private static List<Long> getValues(List<Page> pages, int channel)
+    {
+        List<Long> values = new ArrayList<>();
+        for (Page page : pages) {
+            Block block = page.getBlock(channel).getLoadedBlock();
+            for (int position = 0; position < block.getPositionCount(); position++) {
+                values.add(BIGINT.getLong(block, position));
+            }
+        }
+        return values;
+    }
+
+    private static List<Long> expectedValues(LongPredicate filter, long increment)
+    {
+        List<Long> values = new ArrayList<>();
+        for (long value = 0; value < POSITION_COUNT; value++) {
+            if (filter.test(value)) {
+                values.add(value + increment);
+            }
+        }
+        return values;
+    }
+
+    private static class AddProjection
+            implements PageProjection
+    {
+        private final InputChannels inputChannels;
+        private final long increment;
+        private final int yieldsPerWork;
+
+        private int projectCalls;
+        private int projectedPositions;
+
+        public AddProjection(int channel, long increment)
+        {
+            this(channel, increment, 0);
+        }
+
+        /**
+         * @param yieldsPerWork number of times the work yields before it computes the block, like a compiled projection does when the driver yields
+         */
+        public AddProjection(int channel, long increment, int yieldsPerWork)
+        {
+            this.inputChannels = new InputChannels(channel);
+            this.increment = increment;
+            this.yieldsPerWork = yieldsPerWork;
+        }
+
+        @Override
+        public Type getType()
+        {
+            return BIGINT;
+        }
+
+        @Override
+        public boolean isDeterministic()
+        {
+            return true;
+        }
+
+        @Override
+        public InputChannels getInputChannels()
+        {
+            return inputChannels;
+        }
+
+        @Override
+        public Work<Block> project(ConnectorSession session, DriverYieldSignal yieldSignal, Page page, SelectedPositions selectedPositions)
+        {
+            projectCalls++;
+            projectedPositions += selectedPositions.size();
+            return new Work<>()
+            {
+                private int yields;
+                private Block result;
+
+                @Override
+                public boolean process()
+                {
+                    if (yieldSignal.isSet() || yields < yieldsPerWork) {
+                        yields++;
+                        return false;
+                    }
+                    Block block = page.getBlock(0);
+                    BlockBuilder blockBuilder = BIGINT.createBlockBuilder(null, selectedPositions.size());
+                    for (int i = 0; i < selectedPositions.size(); i++) {
+                        int position = selectedPositions.isList() ? selectedPositions.getPositions()[selectedPositions.getOffset() + i] : selectedPositions.getOffset() + i;
+                        BIGINT.writeLong(blockBuilder, BIGINT.getLong(block, position) + increment);
+                    }
+                    result = blockBuilder.build();
+                    return true;
+                }
+
+                @Override
+                public Block getResult()
+                {
+                    return result;
+                }
+            };
+        }
+
+        public int getProjectCalls()
+        {
+            return projectCalls;
+        }
+
+        public int getProjectedPositions()
+        {
+            return projectedPositions;
+        }
+    }
+
+    private static class TestingPageFilter
+            implements PageFilter
+    {
+        private final InputChannels inputChannels;
+        private final LongPredicate predicate;
+
+        public TestingPageFilter(int channel, LongPredicate predicate)
+        {
+            this.inputChannels = new InputChannels(channel);
+            this.predicate = predicate;
+        }
+
+        @Override
+        public boolean isDeterministic()
+        {
+            return true;
+        }
+
+        @Override
+        public InputChannels getInputChannels()
+        {
+            return inputChannels;
+        }
+
+        @Override
+        public SelectedPositions filter(ConnectorSession session, Page page)
+        {
+            Block block = page.getBlock(0);
+            boolean[] selected = new boolean[page.getPositionCount()];
+            for (int position = 0; position < page.getPositionCount(); position++) {
+                selected[position] = predicate.test(BIGINT.getLong(block, position));
+            }
+            return PageFilter.positionsArrayToSelectedPositions(selected, page.getPositionCount());
+        }
+    }
+}
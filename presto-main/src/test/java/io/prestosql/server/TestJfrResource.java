@@ -0,0 +1,193 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.server;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.units.DataSize;
+import io.prestosql.execution.TaskId;
+import io.prestosql.jfr.OperatorBlockedEvent;
+import io.prestosql.server.JfrResource.RecordingInfo;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
+import static javax.ws.rs.core.Response.Status.NOT_FOUND;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+@Test(singleThreaded = true)
+public class TestJfrResource
+{
+    private static final TaskId TASK_ID = new TaskId("query", 1, 0);
+
+    private JfrResource resource;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        resource = new JfrResource();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+    {
+        resource.stopRecording();
+    }
+
+    @Test
+    public void testStartStop()
+    {
+        assertEquals(resource.getRecordingInfo().getState(), "CLOSED");
+
+        RecordingInfo info = resource.start("1h", "10MB", null, false);
+        assertEquals(info.getState(), "RUNNING");
+        assertNotNull(info.getStartTime());
+        assertEquals(info.getMaxAge().toMillis(), HOURS.toMillis(1));
+        assertEquals(info.getMaxSize(), DataSize.of(10, MEGABYTE));
+        assertEquals(resource.getRecordingInfo().getState(), "RUNNING");
+        assertEquals(getRecordings(), 1);
+
+        // a new recording replaces the running one
+        info = resource.start(null, null, null, false);
+        assertEquals(info.getState(), "RUNNING");
+        assertNull(info.getMaxAge());
+        assertNull(info.getMaxSize());
+        assertEquals(getRecordings(), 1);
+
+        assertEquals(resource.stop().getState(), "RUNNING");
+        assertEquals(resource.getRecordingInfo().getState(), "CLOSED");
+        assertEquals(getRecordings(), 0);
+        assertStatus(resource::stop, NOT_FOUND);
+    }
+
+    @Test
+    public void testInvalidSettings()
+    {
+        assertStatus(() -> resource.start("invalid", null, null, false), BAD_REQUEST);
+        assertStatus(() -> resource.start(null, "invalid", null, false), BAD_REQUEST);
+        assertStatus(() -> resource.start(null, null, "invalid", false), BAD_REQUEST);
+        assertEquals(resource.getRecordingInfo().getState(), "CLOSED");
+        assertEquals(getRecordings(), 0);
+
+        // invalid settings leave the running recording alone
+        resource.start("1h", null, null, false);
+        assertStatus(() -> resource.start("invalid", null, null, false), BAD_REQUEST);
+        RecordingInfo info = resource.getRecordingInfo();
+        assertEquals(info.getState(), "RUNNING");
+        assertEquals(info.getMaxAge().toMillis(), HOURS.toMillis(1));
+        assertEquals(getRecordings(), 1);
+    }
+
+    @Test
+    public void testDump()
+            throws Exception
+    {
+        assertStatus(resource::dump, NOT_FOUND);
+
+        // the events declare a threshold, which is overridden to record short events
+        resource.start(null, null, "0s", false);
+        commitOperatorBlockedEvent("first");
+        List<RecordedEvent> events = dump();
+        assertEquals(getBlockedReasons(events), ImmutableList.of("first"));
+
+        // the recording keeps running after a dump
+        assertEquals(resource.getRecordingInfo().getState(), "RUNNING");
+        commitOperatorBlockedEvent("second");
+        assertEquals(getBlockedReasons(dump()), ImmutableList.of("first", "second"));
+
+        // without the override, the short events are below the threshold of the event
+        resource.start(null, null, null, false);
+        commitOperatorBlockedEvent("third");
+        assertEquals(getBlockedReasons(dump()), ImmutableList.of());
+    }
+
+    private List<RecordedEvent> dump()
+            throws Exception
+    {
+        Response response = resource.dump();
+        assertEquals(response.getStatus(), 200);
+        assertTrue(response.getHeaderString("Content-Disposition").contains("presto.jfr"));
+
+        Path file = Files.createTempFile("presto-dump", ".jfr");
+        try {
+            try (OutputStream output = Files.newOutputStream(file)) {
+                ((StreamingOutput) response.getEntity()).write(output);
+            }
+            return RecordingFile.readAllEvents(file);
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+
+    private static void commitOperatorBlockedEvent(String blockedReason)
+    {
+        OperatorBlockedEvent event = new OperatorBlockedEvent();
+        event.begin();
+        event.setTaskId(TASK_ID);
+        event.setBlockedReason(blockedReason);
+        event.end();
+        if (event.shouldCommit()) {
+            event.commit();
+        }
+    }
+
+    private static List<String> getBlockedReasons(List<RecordedEvent> events)
+    {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals("io.prestosql.OperatorBlocked"))
+                .filter(event -> TASK_ID.toString().equals(event.getString("taskId")))
+                .map(event -> event.getString("blockedReason"))
+                .collect(toImmutableList());
+    }
+
+    private static long getRecordings()
+    {
+        return FlightRecorder.getFlightRecorder().getRecordings().stream()
+                .map(Recording::getName)
+                .filter("presto"::equals)
+                .count();
+    }
+
+    private static void assertStatus(Runnable action, Response.Status status)
+    {
+        try {
+            action.run();
+            fail("expected " + status);
+        }
+        catch (WebApplicationException e) {
+            assertEquals(e.getResponse().getStatus(), status.getStatusCode());
+        }
+    }
+}
@@ -0,0 +1,516 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.server;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.inject.Injector;
+import io.airlift.bootstrap.Bootstrap;
+import io.airlift.bootstrap.LifeCycleManager;
+import io.airlift.concurrent.BoundedExecutor;
+import io.airlift.http.client.HttpClient;
+import io.airlift.http.client.jetty.JettyHttpClient;
+import io.airlift.http.server.testing.TestingHttpServer;
+import io.airlift.http.server.testing.TestingHttpServerModule;
+import io.airlift.jaxrs.JaxrsModule;
+import io.airlift.json.JsonModule;
+import io.airlift.node.testing.TestingNodeModule;
+import io.airlift.slice.SliceInput;
+import io.airlift.slice.Slices;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+import io.prestosql.Session;
+import io.prestosql.execution.DynamicFiltersCollector.VersionedDynamicFilterDomains;
+import io.prestosql.execution.StateMachine;
+import io.prestosql.execution.StateMachine.StateChangeListener;
+import io.prestosql.execution.TaskId;
+import io.prestosql.execution.TaskInfo;
+import io.prestosql.execution.TaskManager;
+import io.prestosql.execution.TaskManagerConfig;
+import io.prestosql.execution.TaskSource;
+import io.prestosql.execution.TaskState;
+import io.prestosql.execution.TaskStatus;
+import io.prestosql.execution.buffer.BufferResult;
+import io.prestosql.execution.buffer.OutputBuffers;
+import io.prestosql.execution.buffer.OutputBuffers.OutputBufferId;
+import io.prestosql.execution.buffer.PageCodecMarker.MarkerSet;
+import io.prestosql.execution.buffer.PartitionedOutputBuffer;
+import io.prestosql.execution.buffer.SerializedPage;
+import io.prestosql.memory.MemoryPoolAssignmentsRequest;
+import io.prestosql.metadata.SessionPropertyManager;
+import io.prestosql.operator.HttpPageBufferClient;
+import io.prestosql.sql.analyzer.FeaturesConfig;
+import io.prestosql.sql.analyzer.FeaturesConfig.DataIntegrityVerification;
+import io.prestosql.sql.planner.PlanFragment;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.jaxrs.JaxrsBinder.jaxrsBinder;
+import static io.airlift.slice.SizeOf.SIZE_OF_BYTE;
+import static io.airlift.slice.SizeOf.SIZE_OF_INT;
+import static io.airlift.slice.SizeOf.SIZE_OF_LONG;
+import static io.airlift.slice.Slices.wrappedBuffer;
+import static io.prestosql.PrestoMediaTypes.PRESTO_PAGES_STREAM;
+import static io.prestosql.client.PrestoHeaders.PRESTO_MAX_SIZE;
+import static io.prestosql.execution.buffer.BufferState.OPEN;
+import static io.prestosql.execution.buffer.BufferState.TERMINAL_BUFFER_STATES;
+import static io.prestosql.execution.buffer.OutputBuffers.BufferType.PARTITIONED;
+import static io.prestosql.execution.buffer.OutputBuffers.createInitialEmptyOutputBuffers;
+import static io.prestosql.execution.buffer.PagesSerdeUtil.readSerializedPage;
+import static io.prestosql.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
+import static io.prestosql.server.PagesStreamWriter.SERIALIZED_PAGES_STREAM_MAGIC;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.Executors.newScheduledThreadPool;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.joining;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestTaskResultsStream
+{
+    private static final String TASK_INSTANCE_ID = "task-instance-id";
+    private static final TaskId TASK_ID = new TaskId("query", 1, 0);
+    private static final OutputBufferId BUFFER_ID = new OutputBufferId(0);
+
+    private ExecutorService executor;
+    private ScheduledExecutorService timeoutExecutor;
+    private PartitionedOutputBuffer outputBuffer;
+    private HttpClient httpClient;
+    private LifeCycleManager lifeCycleManager;
+    private URI baseUri;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        executor = newCachedThreadPool(daemonThreadsNamed("test-executor-%s"));
+        timeoutExecutor = newScheduledThreadPool(2, daemonThreadsNamed("test-timeout-%s"));
+        outputBuffer = new PartitionedOutputBuffer(
+                TASK_INSTANCE_ID,
+                new StateMachine<>("bufferState", directExecutor(), OPEN, TERMINAL_BUFFER_STATES),
+                createInitialEmptyOutputBuffers(PARTITIONED)
+                        .withBuffer(BUFFER_ID, 0)
+                        .withNoMoreBufferIds(),
+                DataSize.of(1, DataSize.Unit.MEGABYTE),
+                () -> newSimpleAggregatedMemoryContext().newLocalMemoryContext("test"),
+                directExecutor());
+        httpClient = new JettyHttpClient();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+    {
+        if (lifeCycleManager != null) {
+            lifeCycleManager.stop();
+            lifeCycleManager = null;
+        }
+        httpClient.close();
+        executor.shutdownNow();
+        timeoutExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testStreamResults()
+            throws Exception
+    {
+        startServer(1);
+        enqueuePage(1);
+
+        HttpURLConnection connection = openStream(0);
+        try (InputStream input = connection.getInputStream()) {
+            assertEquals(readFully(input, SIZE_OF_INT).readInt(), SERIALIZED_PAGES_STREAM_MAGIC);
+            assertResult(input, 0, 1, false, 1);
+
+            // pages which arrive while the stream is open are written to the same response
+            enqueuePage(2);
+            assertResult(input, 1, 2, false, 2);
+
+            outputBuffer.setNoMorePages();
+            assertResult(input, 2, 2, true);
+            assertEndOfStream(input);
+        }
+
+        // the streamed pages are only acknowledged by the next request
+        assertEquals(getBufferedPages(), 2);
+        outputBuffer.acknowledge(BUFFER_ID, 2);
+        assertEquals(getBufferedPages(), 0);
+    }
+
+    @Test
+    public void testIdleStreamReleased()
+            throws Exception
+    {
+        startServer(1);
+        enqueuePage(1);
+
+        // the stream ends when no pages arrive within the idle time
+        HttpURLConnection connection = openStream(0);
+        try (InputStream input = connection.getInputStream()) {
+            assertEquals(readFully(input, SIZE_OF_INT).readInt(), SERIALIZED_PAGES_STREAM_MAGIC);
+            assertResult(input, 0, 1, false, 1);
+            assertEndOfStream(input);
+        }
+
+        // the ended stream does not count against the maximum number of streams
+        enqueuePage(2);
+        connection = openStream(1);
+        try (InputStream input = connection.getInputStream()) {
+            assertEquals(readFully(input, SIZE_OF_INT).readInt(), SERIALIZED_PAGES_STREAM_MAGIC);
+            assertResult(input, 1, 2, false, 2);
+            enqueuePage(3);
+            assertResult(input, 2, 3, false, 3);
+            assertEndOfStream(input);
+        }
+    }
+
+    @Test
+    public void testStreamsExhausted()
+            throws Exception
+    {
+        startServer(0);
+        enqueuePage(1);
+
+        // without a free stream only the first result is written
+        HttpURLConnection connection = openStream(0);
+        try (InputStream input = connection.getInputStream()) {
+            assertEquals(readFully(input, SIZE_OF_INT).readInt(), SERIALIZED_PAGES_STREAM_MAGIC);
+            assertResult(input, 0, 1, false, 1);
+            assertEndOfStream(input);
+        }
+        assertEquals(getBufferedPages(), 1);
+    }
+
+    @Test
+    public void testPageBufferClient()
+            throws Exception
+    {
+        startServer(1);
+        enqueuePage(1);
+
+        BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        HttpPageBufferClient client = new HttpPageBufferClient(
+                "localhost",
+                httpClient,
+                DataIntegrityVerification.ABORT,
+                DataSize.of(10, DataSize.Unit.KILOBYTE),
+                DataSize.of(1, DataSize.Unit.MEGABYTE),
+                new Duration(1, MINUTES),
+                true,
+                baseUri.resolve("/v1/task/" + TASK_ID + "/results/" + BUFFER_ID),
+                Optional.empty(),
+                new TestingClientCallback(events),
+                timeoutExecutor,
+                executor,
+                Optional.of(executor));
+        try {
+            client.scheduleRequest(DataSize.of(1, DataSize.Unit.MEGABYTE).toBytes());
+            assertEquals(takeEvent(events), "pages:1");
+            enqueuePage(2);
+            outputBuffer.setNoMorePages();
+
+            // the remaining pages arrive on the open stream, or with the next request if the stream went idle
+            ImmutableList.Builder<String> pageEvents = ImmutableList.builder();
+            for (String event = takeEvent(events); !event.equals("finished"); event = takeEvent(events)) {
+                if (event.equals("complete")) {
+                    client.scheduleRequest(DataSize.of(1, DataSize.Unit.MEGABYTE).toBytes());
+                }
+                else {
+                    pageEvents.add(event);
+                }
+            }
+            assertEquals(pageEvents.build(), ImmutableList.of("pages:2"));
+            // the streamed pages are acknowledged by the requests which follow them
+            assertEquals(getBufferedPages(), 0);
+        }
+        finally {
+            client.close();
+        }
+    }
+
+    private void startServer(int maxResultStreams)
+    {
+        TaskManager taskManager = new TestingTaskManager(outputBuffer);
+        Bootstrap app = new Bootstrap(
+                new TestingNodeModule(),
+                new TestingHttpServerModule(),
+                new JsonModule(),
+                new JaxrsModule(),
+                binder -> {
+                    jaxrsBinder(binder).bind(TaskResource.class);
+                    jaxrsBinder(binder).bind(PagesStreamWriter.class);
+                    binder.bind(TaskManager.class).toInstance(taskManager);
+                    binder.bind(SessionPropertyManager.class).toInstance(new SessionPropertyManager());
+                    binder.bind(FeaturesConfig.class).toInstance(new FeaturesConfig());
+                    binder.bind(TaskManagerConfig.class).toInstance(new TaskManagerConfig().setMaxResultStreams(maxResultStreams));
+                    binder.bind(BoundedExecutor.class).annotatedWith(ForAsyncHttp.class).toInstance(new BoundedExecutor(executor, 4));
+                    binder.bind(ScheduledExecutorService.class).annotatedWith(ForAsyncHttp.class).toInstance(timeoutExecutor);
+                });
+
+        Injector injector = app
+                .strictConfig()
+                .doNotInitializeLogging()
+                .quiet()
+                .initialize();
+
+        lifeCycleManager = injector.getInstance(LifeCycleManager.class);
+        baseUri = injector.getInstance(TestingHttpServer.class).getBaseUrl();
+    }
+
+    private HttpURLConnection openStream(long token)
+            throws IOException
+    {
+        URI uri = baseUri.resolve("/v1/task/" + TASK_ID + "/results/" + BUFFER_ID + "/" + token + "/stream");
+        HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+        connection.setRequestProperty("Accept", PRESTO_PAGES_STREAM);
+        connection.setRequestProperty(PRESTO_MAX_SIZE, "1MB");
+        assertEquals(connection.getResponseCode(), 200);
+        assertEquals(connection.getContentType(), PRESTO_PAGES_STREAM);
+        return connection;
+    }
+
+    private void enqueuePage(int positionCount)
+    {
+        outputBuffer.enqueue(0, ImmutableList.of(new SerializedPage(wrappedBuffer(new byte[16]), MarkerSet.empty(), positionCount, 16)));
+    }
+
+    private long getBufferedPages()
+    {
+        return outputBuffer.getInfo().getBuffers().get(0).getBufferedPages();
+    }
+
+    // the position count of each page identifies it
+    private static void assertResult(InputStream input, long token, long nextToken, boolean complete, Integer... positionCounts)
+            throws IOException
+    {
+        assertTrue(readFully(input, SIZE_OF_BYTE).readBoolean(), "expected a result");
+        SliceInput header = readFully(input, SIZE_OF_LONG + SIZE_OF_LONG + SIZE_OF_BYTE + SIZE_OF_LONG + SIZE_OF_INT + SIZE_OF_INT);
+        assertEquals(header.readLong(), token);
+        assertEquals(header.readLong(), nextToken);
+        assertEquals(header.readBoolean(), complete);
+        header.readLong();
+        int pageCount = header.readInt();
+        SliceInput pagesInput = readFully(input, header.readInt());
+        ImmutableList.Builder<Integer> pages = ImmutableList.builder();
+        for (int i = 0; i < pageCount; i++) {
+            pages.add(readSerializedPage(pagesInput).getPositionCount());
+        }
+        assertFalse(pagesInput.isReadable());
+        assertEquals(pages.build(), ImmutableList.copyOf(positionCounts));
+    }
+
+    private static void assertEndOfStream(InputStream input)
+            throws IOException
+    {
+        assertFalse(readFully(input, SIZE_OF_BYTE).readBoolean(), "expected the end of the stream");
+        assertEquals(input.read(), -1);
+    }
+
+    // reads exactly the given number of bytes, as the results arrive one at a time
+    private static SliceInput readFully(InputStream input, int length)
+            throws IOException
+    {
+        byte[] bytes = new byte[length];
+        ByteStreams.readFully(input, bytes);
+        return Slices.wrappedBuffer(bytes).getInput();
+    }
+
+    private static String takeEvent(BlockingQueue<String> events)
+            throws InterruptedException
+    {
+        String event = events.poll(10, SECONDS);
+        assertNotNull(event, "timed out waiting for client callback");
+        return event;
+    }
+
+    private static class TestingClientCallback
+            implements HttpPageBufferClient.ClientCallback
+    {
+        private final BlockingQueue<String> events;
+
+        public TestingClientCallback(BlockingQueue<String> events)
+        {
+            this.events = events;
+        }
+
+        // the position count of each page identifies it
+        @Override
+        public boolean addPages(HttpPageBufferClient client, List<SerializedPage> pages)
+        {
+            // results without pages, such as the one which completes the buffer, are not interesting
+            if (pages.isEmpty()) {
+                return true;
+            }
+            events.add("pages:" + pages.stream()
+                    .map(page -> String.valueOf(page.getPositionCount()))
+                    .collect(joining(",")));
+            return true;
+        }
+
+        @Override
+        public void requestComplete(HttpPageBufferClient client)
+        {
+            events.add("complete");
+        }
+
+        @Override
+        public void clientFinished(HttpPageBufferClient client)
+        {
+            events.add("finished");
+        }
+
+        @Override
+        public void clientFailed(HttpPageBufferClient client, Throwable cause)
+        {
+            events.add("failed: " + cause);
+        }
+    }
+
+    private static class TestingTaskManager
+            implements TaskManager
+    {
+        private final PartitionedOutputBuffer outputBuffer;
+
+        public TestingTaskManager(PartitionedOutputBuffer outputBuffer)
+        {
+            this.outputBuffer = outputBuffer;
+        }
+
+        @Override
+        public String getTaskInstanceId(TaskId taskId)
+        {
+            assertEquals(taskId, TASK_ID);
+            return TASK_INSTANCE_ID;
+        }
+
+        @Override
+        public ListenableFuture<BufferResult> getTaskResults(TaskId taskId, OutputBufferId bufferId, long startingSequenceId, DataSize maxSize)
+        {
+            assertEquals(taskId, TASK_ID);
+            return outputBuffer.get(bufferId, startingSequenceId, maxSize);
+        }
+
+        @Override
+        public ListenableFuture<BufferResult> readAheadTaskResults(TaskId taskId, OutputBufferId bufferId, long startingSequenceId, DataSize maxSize)
+        {
+            assertEquals(taskId, TASK_ID);
+            return outputBuffer.readAhead(bufferId, startingSequenceId, maxSize);
+        }
+
+        @Override
+        public void acknowledgeTaskResults(TaskId taskId, OutputBufferId bufferId, long sequenceId)
+        {
+            assertEquals(taskId, TASK_ID);
+            outputBuffer.acknowledge(bufferId, sequenceId);
+        }
+
+        @Override
+        public TaskInfo abortTaskResults(TaskId taskId, OutputBufferId bufferId)
+        {
+            assertEquals(taskId, TASK_ID);
+            outputBuffer.abort(bufferId);
+            return null;
+        }
+
+        @Override
+        public List<TaskInfo> getAllTaskInfo()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TaskInfo getTaskInfo(TaskId taskId)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TaskStatus getTaskStatus(TaskId taskId)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ListenableFuture<TaskInfo> getTaskInfo(TaskId taskId, long currentVersion)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ListenableFuture<TaskStatus> getTaskStatus(TaskId taskId, long currentVersion)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TaskInfo withChangedPipelineStats(TaskId taskId, TaskInfo taskInfo, long currentPipelineStatsVersion)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public VersionedDynamicFilterDomains acknowledgeAndGetNewDynamicFilterDomains(TaskId taskId, long currentDynamicFiltersVersion)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void updateMemoryPoolAssignments(MemoryPoolAssignmentsRequest assignments)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TaskInfo updateTask(Session session, TaskId taskId, Optional<PlanFragment> fragment, List<TaskSource> sources, OutputBuffers outputBuffers, OptionalInt totalPartitions)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TaskInfo cancelTask(TaskId taskId)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TaskInfo abortTask(TaskId taskId)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void addStateChangeListener(TaskId taskId, StateChangeListener<TaskState> stateChangeListener)
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
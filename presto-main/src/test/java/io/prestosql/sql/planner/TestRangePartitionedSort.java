@@ -0,0 +1,290 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.sql.planner;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.airlift.discovery.server.testing.TestingDiscoveryServer;
+import io.airlift.units.Duration;
+import io.prestosql.Session;
+import io.prestosql.client.ClientSession;
+import io.prestosql.client.QueryData;
+import io.prestosql.client.StatementClient;
+import io.prestosql.connector.CatalogName;
+import io.prestosql.execution.warnings.WarningCollector;
+import io.prestosql.plugin.tpch.TpchConnectorFactory;
+import io.prestosql.plugin.tpch.TpchPlugin;
+import io.prestosql.server.testing.TestingPrestoServer;
+import io.prestosql.spi.predicate.NullableValue;
+import io.prestosql.sql.planner.Partitioning.ArgumentBinding;
+import io.prestosql.sql.planner.plan.ExchangeNode;
+import io.prestosql.sql.planner.plan.RemoteSourceNode;
+import io.prestosql.testing.LocalQueryRunner;
+import okhttp3.OkHttpClient;
+import org.intellij.lang.annotations.Language;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static io.prestosql.SystemSessionProperties.HASH_PARTITION_COUNT;
+import static io.prestosql.SystemSessionProperties.RANGE_PARTITIONED_SORT;
+import static io.prestosql.client.StatementClientFactory.newStatementClient;
+import static io.prestosql.sql.planner.LogicalPlanner.Stage.OPTIMIZED_AND_VALIDATED;
+import static io.prestosql.sql.planner.SystemPartitioningHandle.FIXED_ARBITRARY_DISTRIBUTION;
+import static io.prestosql.sql.planner.SystemPartitioningHandle.FIXED_RANGE_DISTRIBUTION;
+import static io.prestosql.sql.planner.optimizations.PlanNodeSearcher.searchFrom;
+import static io.prestosql.testing.TestingSession.testSessionBuilder;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+@Test(singleThreaded = true)
+public class TestRangePartitionedSort
+{
+    private static final int NODE_COUNT = 3;
+
+    // most keys are NULL, and the remaining keys are crowded at both ends of the estimated key range
+    @Language("SQL")
+    private static final String SKEWED_NULLS_DESC = "" +
+            "SELECT l.orderkey, o.orderkey " +
+            "FROM orders o LEFT JOIN (SELECT orderkey FROM lineitem WHERE orderkey < 1000 OR orderkey > 59000) l ON o.orderkey = l.orderkey " +
+            "ORDER BY l.orderkey DESC NULLS FIRST, o.orderkey";
+
+    private LocalQueryRunner queryRunner;
+    private TestingDiscoveryServer discoveryServer;
+    private List<TestingPrestoServer> servers;
+    private OkHttpClient httpClient;
+
+    @BeforeClass
+    public void setUp()
+            throws Exception
+    {
+        queryRunner = LocalQueryRunner.create(testSessionBuilder()
+                .setCatalog("tpch")
+                .setSchema("tiny")
+                .setSystemProperty(RANGE_PARTITIONED_SORT, "true")
+                .setSystemProperty(HASH_PARTITION_COUNT, "4")
+                .build());
+        queryRunner.createCatalog("tpch", new TpchConnectorFactory(1), ImmutableMap.of());
+
+        discoveryServer = new TestingDiscoveryServer("testing");
+        ImmutableList.Builder<TestingPrestoServer> servers = ImmutableList.builder();
+        for (int i = 0; i < NODE_COUNT; i++) {
+            boolean coordinator = i == 0;
+            TestingPrestoServer server = TestingPrestoServer.builder()
+                    .setCoordinator(coordinator)
+                    .setProperties(coordinator ? ImmutableMap.of("node-scheduler.include-coordinator", "true") : ImmutableMap.of())
+                    .setEnvironment("testing")
+                    .setDiscoveryUri(discoveryServer.getBaseUrl())
+                    .build();
+            server.installPlugin(new TpchPlugin());
+            server.createCatalog("tpch", "tpch");
+            servers.add(server);
+        }
+        this.servers = servers.build();
+        waitForCatalogOnAllNodes();
+        httpClient = new OkHttpClient();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+            throws Exception
+    {
+        queryRunner.close();
+        queryRunner = null;
+        for (TestingPrestoServer server : servers) {
+            server.close();
+        }
+        servers = null;
+        discoveryServer.close();
+        discoveryServer = null;
+        httpClient.dispatcher().executorService().shutdownNow();
+        httpClient.connectionPool().evictAll();
+    }
+
+    @Test
+    public void testRangeExchange()
+    {
+        @Language("SQL") String sql = "SELECT orderkey, custkey FROM orders ORDER BY orderkey DESC NULLS FIRST";
+        Plan plan = plan(queryRunner.getDefaultSession(), sql);
+
+        ExchangeNode exchange = getOnlyElement(searchFrom(plan.getRoot())
+                .where(node -> node instanceof ExchangeNode && isRangePartitioned((ExchangeNode) node))
+                .findAll());
+        List<ArgumentBinding> arguments = exchange.getPartitioningScheme().getPartitioning().getArguments();
+        assertEquals(arguments.get(0).getColumn().getName(), "orderkey");
+        assertEquals(arguments.get(1).getConstant().getValue(), false);
+        assertEquals(arguments.get(2).getConstant().getValue(), true);
+
+        // one boundary between each two of the hash_partition_count ranges, in increasing order
+        List<Double> boundaries = arguments.subList(3, arguments.size()).stream()
+                .map(ArgumentBinding::getConstant)
+                .map(NullableValue::getValue)
+                .map(Double.class::cast)
+                .collect(toImmutableList());
+        assertEquals(boundaries.size(), 3);
+        assertTrue(boundaries.get(0) < boundaries.get(1) && boundaries.get(1) < boundaries.get(2), boundaries.toString());
+
+        // the sorted ranges are concatenated in partition order rather than merged
+        SubPlan subPlan = queryRunner.inTransaction(transactionSession -> queryRunner.createSubPlans(
+                transactionSession,
+                queryRunner.createPlan(transactionSession, sql, OPTIMIZED_AND_VALIDATED, false, WarningCollector.NOOP),
+                false));
+        RemoteSourceNode remoteSource = getOnlyElement(searchFrom(subPlan.getFragment().getRoot())
+                .where(RemoteSourceNode.class::isInstance)
+                .findAll());
+        assertTrue(remoteSource.isOrderedPartitions());
+        assertTrue(remoteSource.getOrderingScheme().isPresent());
+        assertEquals(getOnlyElement(subPlan.getChildren()).getFragment().getPartitioning(), FIXED_RANGE_DISTRIBUTION);
+    }
+
+    @Test
+    public void testRoundRobinExchange()
+    {
+        Session disabled = Session.builder(queryRunner.getDefaultSession())
+                .setSystemProperty(RANGE_PARTITIONED_SORT, "false")
+                .build();
+        assertRoundRobinExchange(disabled, "SELECT orderkey, custkey FROM orders ORDER BY orderkey");
+
+        // the first sort key must be of a type with range boundaries
+        assertRoundRobinExchange(queryRunner.getDefaultSession(), "SELECT orderkey, orderstatus FROM orders ORDER BY orderstatus, orderkey");
+        // and have an estimated value range
+        assertRoundRobinExchange(queryRunner.getDefaultSession(), "SELECT orderkey, custkey FROM orders ORDER BY length(comment), orderkey");
+    }
+
+    @Test
+    public void testGlobalOrder()
+    {
+        assertTrue(explain(SKEWED_NULLS_DESC).contains("RemoteConcat"), "expected the range partitions to be concatenated");
+
+        List<List<Object>> expected = execute(SKEWED_NULLS_DESC, false);
+        List<List<Object>> actual = execute(SKEWED_NULLS_DESC, true);
+        assertEquals(actual.size(), 16522);
+        assertEquals(actual, expected);
+
+        Long previous = null;
+        boolean seenKey = false;
+        for (List<Object> row : actual) {
+            Long key = row.get(0) == null ? null : ((Number) row.get(0)).longValue();
+            if (key == null) {
+                assertFalse(seenKey, "NULL keys must come first");
+                continue;
+            }
+            if (seenKey) {
+                assertTrue(previous >= key, "keys must be descending: " + previous + ", " + key);
+            }
+            seenKey = true;
+            previous = key;
+        }
+        assertTrue(seenKey);
+    }
+
+    private void assertRoundRobinExchange(Session session, @Language("SQL") String sql)
+    {
+        Plan plan = plan(session, sql);
+        assertFalse(searchFrom(plan.getRoot())
+                .where(node -> node instanceof ExchangeNode && isRangePartitioned((ExchangeNode) node))
+                .matches());
+        assertTrue(searchFrom(plan.getRoot())
+                .where(node -> node instanceof ExchangeNode && ((ExchangeNode) node).getPartitioningScheme().getPartitioning().getHandle().equals(FIXED_ARBITRARY_DISTRIBUTION))
+                .matches());
+    }
+
+    private static boolean isRangePartitioned(ExchangeNode exchange)
+    {
+        return exchange.getPartitioningScheme().getPartitioning().getHandle().equals(FIXED_RANGE_DISTRIBUTION);
+    }
+
+    private Plan plan(Session session, @Language("SQL") String sql)
+    {
+        return queryRunner.inTransaction(session, transactionSession -> queryRunner.createPlan(transactionSession, sql, OPTIMIZED_AND_VALIDATED, false, WarningCollector.NOOP));
+    }
+
+    private String explain(@Language("SQL") String sql)
+    {
+        return execute("EXPLAIN (TYPE DISTRIBUTED) " + sql, true).stream()
+                .map(row -> (String) getOnlyElement(row))
+                .collect(toImmutableList())
+                .toString();
+    }
+
+    private List<List<Object>> execute(@Language("SQL") String sql, boolean rangePartitioned)
+    {
+        ClientSession session = new ClientSession(
+                servers.get(0).getBaseUrl(),
+                "user",
+                "test",
+                Optional.empty(),
+                ImmutableSet.of(),
+                null,
+                "tpch",
+                "tiny",
+                null,
+                ZoneId.of("UTC"),
+                false,
+                Locale.ENGLISH,
+                ImmutableMap.of(),
+                ImmutableMap.of(
+                        RANGE_PARTITIONED_SORT, String.valueOf(rangePartitioned),
+                        HASH_PARTITION_COUNT, String.valueOf(NODE_COUNT)),
+                ImmutableMap.of(),
+                ImmutableMap.of(),
+                ImmutableMap.of(),
+                null,
+                new Duration(2, MINUTES));
+        ImmutableList.Builder<List<Object>> rows = ImmutableList.builder();
+        try (StatementClient client = newStatementClient(httpClient, session, sql)) {
+            while (client.isRunning()) {
+                QueryData data = client.currentData();
+                if (data.getData() != null) {
+                    data.getData().forEach(rows::add);
+                }
+                client.advance();
+            }
+            assertNull(client.finalStatusInfo().getError());
+        }
+        return rows.build().stream()
+                .<List<Object>>map(ArrayList::new)
+                .collect(toImmutableList());
+    }
+
+    private void waitForCatalogOnAllNodes()
+            throws InterruptedException
+    {
+        long start = System.nanoTime();
+        CatalogName catalog = new CatalogName("tpch");
+        while (servers.stream().anyMatch(server -> {
+            server.refreshNodes();
+            return server.getActiveNodesWithConnector(catalog).size() != NODE_COUNT;
+        })) {
+            if (System.nanoTime() - start > MINUTES.toNanos(1)) {
+                fail("catalog is not active on all nodes");
+            }
+            MILLISECONDS.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.sql.planner.iterative.rule;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.prestosql.Session;
+import io.prestosql.execution.warnings.WarningCollector;
+import io.prestosql.plugin.tpch.TpchConnectorFactory;
+import io.prestosql.plugin.tpch.TpchMetadata;
+import io.prestosql.spi.connector.ColumnHandle;
+import io.prestosql.spi.connector.Connector;
+import io.prestosql.spi.connector.ConnectorContext;
+import io.prestosql.spi.connector.ConnectorFactory;
+import io.prestosql.spi.connector.ConnectorHandleResolver;
+import io.prestosql.spi.connector.ConnectorMetadata;
+import io.prestosql.spi.connector.ConnectorNodePartitioningProvider;
+import io.prestosql.spi.connector.ConnectorRecordSetProvider;
+import io.prestosql.spi.connector.ConnectorSession;
+import io.prestosql.spi.connector.ConnectorSplitManager;
+import io.prestosql.spi.connector.ConnectorTableHandle;
+import io.prestosql.spi.connector.ConnectorTransactionHandle;
+import io.prestosql.spi.connector.JoinApplicationResult;
+import io.prestosql.spi.connector.JoinCondition;
+import io.prestosql.spi.connector.JoinStatistics;
+import io.prestosql.spi.connector.JoinType;
+import io.prestosql.spi.expression.Variable;
+import io.prestosql.spi.transaction.IsolationLevel;
+import io.prestosql.sql.planner.Plan;
+import io.prestosql.sql.planner.plan.JoinNode;
+import io.prestosql.sql.planner.plan.TableScanNode;
+import io.prestosql.testing.LocalQueryRunner;
+import org.intellij.lang.annotations.Language;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static io.prestosql.SystemSessionProperties.ALLOW_PUSHDOWN_INTO_CONNECTORS;
+import static io.prestosql.SystemSessionProperties.ENABLE_DYNAMIC_FILTERING;
+import static io.prestosql.spi.type.BigintType.BIGINT;
+import static io.prestosql.sql.planner.optimizations.PlanNodeSearcher.searchFrom;
+import static io.prestosql.testing.TestingSession.testSessionBuilder;
+import static java.util.Objects.requireNonNull;
+import static java.util.function.Function.identity;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestPushJoinIntoTableScan
+{
+    @Language("SQL")
+    private static final String INNER_JOIN = "SELECT o.orderkey, c.name FROM orders o JOIN customer c ON o.custkey = c.custkey";
+
+    private LocalQueryRunner queryRunner;
+    private JoinPushdownConnectorFactory firstConnector;
+    private JoinPushdownConnectorFactory secondConnector;
+
+    @BeforeClass
+    public void setUp()
+    {
+        queryRunner = LocalQueryRunner.create(testSessionBuilder()
+                .setCatalog("first")
+                .setSchema("tiny")
+                .setSystemProperty(ENABLE_DYNAMIC_FILTERING, "false")
+                .build());
+        firstConnector = new JoinPushdownConnectorFactory("first_connector");
+        secondConnector = new JoinPushdownConnectorFactory("second_connector");
+        queryRunner.createCatalog("first", firstConnector, ImmutableMap.of());
+        queryRunner.createCatalog("second", secondConnector, ImmutableMap.of());
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        queryRunner.close();
+        queryRunner = null;
+    }
+
+    @BeforeMethod
+    public void reset()
+    {
+        firstConnector.getJoinRequests().clear();
+        secondConnector.getJoinRequests().clear();
+    }
+
+    @Test
+    public void testPushInnerJoin()
+    {
+        Plan plan = plan(queryRunner.getDefaultSession(), INNER_JOIN);
+
+        assertFalse(searchFrom(plan.getRoot()).where(JoinNode.class::isInstance).matches());
+        assertEquals(searchFrom(plan.getRoot()).where(TableScanNode.class::isInstance).count(), 1);
+
+        JoinRequest request = getOnlyElement(firstConnector.getJoinRequests());
+        assertEquals(request.getJoinType(), JoinType.INNER);
+        JoinCondition condition = getOnlyElement(request.getConditions());
+        assertEquals(condition.getOperator(), JoinCondition.Operator.EQUAL);
+        assertEquals(condition.getLeftExpression().getType(), BIGINT);
+        assertTrue(condition.getLeftExpression() instanceof Variable);
+        assertTrue(condition.getRightExpression() instanceof Variable);
+        assertTrue(secondConnector.getJoinRequests().isEmpty());
+    }
+
+    @Test
+    public void testCatalogMismatch()
+    {
+        Plan plan = plan(queryRunner.getDefaultSession(), "SELECT o.orderkey, c.name FROM first.tiny.orders o JOIN second.tiny.customer c ON o.custkey = c.custkey");
+
+        assertTrue(searchFrom(plan.getRoot()).where(JoinNode.class::isInstance).matches());
+        assertTrue(firstConnector.getJoinRequests().isEmpty());
+        assertTrue(secondConnector.getJoinRequests().isEmpty());
+    }
+
+    @Test
+    public void testPushdownIntoConnectorsDisabled()
+    {
+        Session session = Session.builder(queryRunner.getDefaultSession())
+                .setSystemProperty(ALLOW_PUSHDOWN_INTO_CONNECTORS, "false")
+                .build();
+        Plan plan = plan(session, INNER_JOIN);
+
+        assertTrue(searchFrom(plan.getRoot()).where(JoinNode.class::isInstance).matches());
+        assertTrue(firstConnector.getJoinRequests().isEmpty());
+    }
+
+    @Test
+    public void testRejectedByConnector()
+    {
+        Plan plan = plan(queryRunner.getDefaultSession(), "SELECT o.orderkey, c.name FROM orders o LEFT JOIN customer c ON o.custkey = c.custkey");
+
+        assertTrue(searchFrom(plan.getRoot()).where(JoinNode.class::isInstance).matches());
+        assertEquals(getOnlyElement(firstConnector.getJoinRequests()).getJoinType(), JoinType.LEFT_OUTER);
+    }
+
+    private Plan plan(Session session, @Language("SQL") String sql)
+    {
+        return queryRunner.inTransaction(session, transactionSession -> queryRunner.createPlan(transactionSession, sql, WarningCollector.NOOP));
+    }
+
+    private static class JoinRequest
+    {
+        private final JoinType joinType;
+        private final List<JoinCondition> conditions;
+
+        public JoinRequest(JoinType joinType, List<JoinCondition> conditions)
+        {
+            this.joinType = requireNonNull(joinType, "joinType is null");
+            this.conditions = ImmutableList.copyOf(requireNonNull(conditions, "conditions is null"));
+        }
+
+        public JoinType getJoinType()
+        {
+            return joinType;
+        }
+
+        public List<JoinCondition> getConditions()
+        {
+            return conditions;
+        }
+    }
+
+    /**
+     * TPCH connector which accepts inner joins of its tables. The joined table is represented by the left table,
+     * which is sufficient for planning.
+     */
+    private static class JoinPushdownConnectorFactory
+            implements ConnectorFactory
+    {
+        private final String name;
+        private final ConnectorFactory delegate = new TpchConnectorFactory(1);
+        private final List<JoinRequest> joinRequests = new CopyOnWriteArrayList<>();
+
+        public JoinPushdownConnectorFactory(String name)
+        {
+            this.name = requireNonNull(name, "name is null");
+        }
+
+        public List<JoinRequest> getJoinRequests()
+        {
+            return joinRequests;
+        }
+
+        @Override
+        public String getName()
+        {
+            return name;
+        }
+
+        @Override
+        public ConnectorHandleResolver getHandleResolver()
+        {
+            return delegate.getHandleResolver();
+        }
+
+        @Override
+        public Connector create(String catalogName, Map<String, String> config, ConnectorContext context)
+        {
+            Connector connector = delegate.create(catalogName, config, context);
+            return new Connector()
+            {
+                @Override
+                public ConnectorTransactionHandle beginTransaction(IsolationLevel isolationLevel, boolean readOnly)
+                {
+                    return connector.beginTransaction(isolationLevel, readOnly);
+                }
+
+                @Override
+                public ConnectorMetadata getMetadata(ConnectorTransactionHandle transactionHandle)
+                {
+                    return new TpchMetadata()
+                    {
+                        @Override
+                        public Optional<JoinApplicationResult<ConnectorTableHandle>> applyJoin(
+                                ConnectorSession session,
+                                JoinType joinType,
+                                ConnectorTableHandle left,
+                                ConnectorTableHandle right,
+                                List<JoinCondition> joinConditions,
+                                Map<String, ColumnHandle> leftAssignments,
+                                Map<String, ColumnHandle> rightAssignments,
+                                JoinStatistics statistics)
+                        {
+                            joinRequests.add(new JoinRequest(joinType, joinConditions));
+                            if (joinType != JoinType.INNER) {
+                                return Optional.empty();
+                            }
+                            return Optional.of(new JoinApplicationResult<>(
+                                    left,
+                                    leftAssignments.values().stream().collect(toImmutableMap(identity(), identity())),
+                                    rightAssignments.values().stream().collect(toImmutableMap(identity(), identity()))));
+                        }
+                    };
+                }
+
+                @Override
+                public ConnectorSplitManager getSplitManager()
+                {
+                    return connector.getSplitManager();
+                }
+
+                @Override
+                public ConnectorRecordSetProvider getRecordSetProvider()
+                {
+                    return connector.getRecordSetProvider();
+                }
+
+                @Override
+                public ConnectorNodePartitioningProvider getNodePartitioningProvider()
+                {
+                    return connector.getNodePartitioningProvider();
+                }
+            };
+        }
+    }
+}
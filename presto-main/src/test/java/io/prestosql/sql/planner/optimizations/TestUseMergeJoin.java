@@ -0,0 +1,140 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.sql.planner.optimizations;
+
+import com.google.common.collect.ImmutableMap;
+import io.prestosql.Session;
+import io.prestosql.execution.warnings.WarningCollector;
+import io.prestosql.plugin.tpch.TpchConnectorFactory;
+import io.prestosql.sql.planner.Plan;
+import io.prestosql.sql.planner.plan.JoinNode;
+import io.prestosql.sql.planner.plan.MergeJoinNode;
+import io.prestosql.testing.LocalQueryRunner;
+import org.intellij.lang.annotations.Language;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static io.prestosql.SystemSessionProperties.GROUPED_EXECUTION;
+import static io.prestosql.SystemSessionProperties.JOIN_DISTRIBUTION_TYPE;
+import static io.prestosql.SystemSessionProperties.MERGE_JOIN_ENABLED;
+import static io.prestosql.sql.planner.optimizations.PlanNodeSearcher.searchFrom;
+import static io.prestosql.testing.TestingSession.testSessionBuilder;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestUseMergeJoin
+{
+    @Language("SQL")
+    private static final String SORTED_KEY_JOIN = "SELECT o.orderkey, o.orderstatus, l.linenumber " +
+            "FROM orders o JOIN lineitem l ON o.orderkey = l.orderkey";
+
+    private LocalQueryRunner queryRunner;
+
+    @BeforeClass
+    public void setUp()
+    {
+        queryRunner = LocalQueryRunner.create(testSessionBuilder()
+                .setCatalog("tpch")
+                .setSchema("tiny")
+                .setSystemProperty(MERGE_JOIN_ENABLED, "true")
+                .setSystemProperty(GROUPED_EXECUTION, "true")
+                .setSystemProperty(JOIN_DISTRIBUTION_TYPE, "PARTITIONED")
+                .build());
+        // tables of this catalog are bucketed and sorted on their key columns
+        queryRunner.createCatalog("tpch", new TpchConnectorFactory(1, true, true), ImmutableMap.of());
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        queryRunner.close();
+        queryRunner = null;
+    }
+
+    @Test
+    public void testSortedBucketedScans()
+    {
+        assertMergeJoin(queryRunner.getDefaultSession(), SORTED_KEY_JOIN);
+        assertMergeJoin(queryRunner.getDefaultSession(), "SELECT count(*) FROM orders o JOIN lineitem l ON o.orderkey = l.orderkey WHERE l.quantity > 10");
+    }
+
+    @Test
+    public void testDisabled()
+    {
+        assertHashJoin(sessionWith(MERGE_JOIN_ENABLED, "false"), SORTED_KEY_JOIN);
+    }
+
+    @Test
+    public void testUngroupedExecution()
+    {
+        assertHashJoin(sessionWith(GROUPED_EXECUTION, "false"), SORTED_KEY_JOIN);
+    }
+
+    @Test
+    public void testUnpartitionedScans()
+    {
+        try (LocalQueryRunner unpartitioned = LocalQueryRunner.create(queryRunner.getDefaultSession())) {
+            unpartitioned.createCatalog("tpch", new TpchConnectorFactory(1, true, false), ImmutableMap.of());
+            assertHashJoin(unpartitioned, queryRunner.getDefaultSession(), SORTED_KEY_JOIN);
+        }
+    }
+
+    @Test
+    public void testJoinKeyIsNotSortKey()
+    {
+        assertHashJoin(queryRunner.getDefaultSession(), "SELECT count(*) FROM orders o JOIN lineitem l ON o.custkey = l.suppkey");
+    }
+
+    @Test
+    public void testResultsMatchHashJoin()
+    {
+        assertEquals(
+                queryRunner.execute(SORTED_KEY_JOIN).getMaterializedRows(),
+                queryRunner.execute(sessionWith(MERGE_JOIN_ENABLED, "false"), SORTED_KEY_JOIN).getMaterializedRows());
+    }
+
+    private Session sessionWith(String property, String value)
+    {
+        return Session.builder(queryRunner.getDefaultSession())
+                .setSystemProperty(property, value)
+                .build();
+    }
+
+    private void assertMergeJoin(Session session, @Language("SQL") String sql)
+    {
+        Plan plan = plan(queryRunner, session, sql);
+        assertTrue(searchFrom(plan.getRoot()).where(MergeJoinNode.class::isInstance).matches(), "expected a merge join");
+        assertFalse(searchFrom(plan.getRoot()).where(JoinNode.class::isInstance).matches(), "expected no hash join");
+    }
+
+    private void assertHashJoin(Session session, @Language("SQL") String sql)
+    {
+        assertHashJoin(queryRunner, session, sql);
+    }
+
+    private static void assertHashJoin(LocalQueryRunner queryRunner, Session session, @Language("SQL") String sql)
+    {
+        Plan plan = plan(queryRunner, session, sql);
+        assertFalse(searchFrom(plan.getRoot()).where(MergeJoinNode.class::isInstance).matches(), "expected no merge join");
+        assertTrue(searchFrom(plan.getRoot()).where(JoinNode.class::isInstance).matches(), "expected a hash join");
+    }
+
+    private static Plan plan(LocalQueryRunner queryRunner, Session session, @Language("SQL") String sql)
+    {
+        return queryRunner.inTransaction(session, transactionSession -> queryRunner.createPlan(transactionSession, sql, WarningCollector.NOOP));
+    }
+}
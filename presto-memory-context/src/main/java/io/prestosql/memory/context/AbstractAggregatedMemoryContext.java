@@ -96,6 +96,25 @@ abstract class AbstractAggregatedMemoryContext
 
     abstract void closeContext();
 
+    /**
+     * Local memory contexts created under this context only propagate changes of at least this
+     * many bytes to it. Zero means that every change is propagated.
+     */
+    long getReservationGranularity()
+    {
+        return 0;
+    }
+
+    /**
+     * Adjusts the usage which local memory contexts under this context have not propagated yet.
+     * An increase is rejected when it would exceed the limit of the root context, in which case
+     * the change has to be propagated.
+     */
+    boolean tryUpdateUnreportedBytes(long delta)
+    {
+        return delta <= 0;
+    }
+
     static long addExact(long usedBytes, long bytes)
     {
         try {
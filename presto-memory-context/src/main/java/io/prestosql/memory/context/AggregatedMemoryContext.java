@@ -22,7 +22,19 @@ public interface AggregatedMemoryContext
 
     static AggregatedMemoryContext newRootAggregatedMemoryContext(MemoryReservationHandler reservationHandler, long guaranteedMemoryInBytes)
     {
-        return new RootAggregatedMemoryContext(reservationHandler, guaranteedMemoryInBytes);
+        return newRootAggregatedMemoryContext(reservationHandler, guaranteedMemoryInBytes, 0, 0);
+    }
+
+    /**
+     * Creates a root context whose local memory contexts only propagate their usage to the
+     * {@code reservationHandler} once it drifted by at least {@code reservationGranularityInBytes}
+     * from the last propagated value. The changes which are not propagated yet, summed over all
+     * local memory contexts of the root, are limited to {@code maxUnreportedBytes}, so the usage
+     * seen by the handler is never off by more than that.
+     */
+    static AggregatedMemoryContext newRootAggregatedMemoryContext(MemoryReservationHandler reservationHandler, long guaranteedMemoryInBytes, long reservationGranularityInBytes, long maxUnreportedBytes)
+    {
+        return new RootAggregatedMemoryContext(reservationHandler, guaranteedMemoryInBytes, reservationGranularityInBytes, maxUnreportedBytes);
     }
 
     AggregatedMemoryContext newAggregatedMemoryContext();
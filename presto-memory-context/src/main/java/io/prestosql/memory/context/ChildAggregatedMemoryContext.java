@@ -56,6 +56,18 @@ class ChildAggregatedMemoryContext
         return parentMemoryContext;
     }
 
+    @Override
+    long getReservationGranularity()
+    {
+        return parentMemoryContext.getReservationGranularity();
+    }
+
+    @Override
+    boolean tryUpdateUnreportedBytes(long delta)
+    {
+        return parentMemoryContext.tryUpdateUnreportedBytes(delta);
+    }
+
     @Override
     void closeContext()
     {
@@ -15,6 +15,9 @@ package io.prestosql.memory.context;
 
 import com.google.common.util.concurrent.ListenableFuture;
 
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static java.util.Objects.requireNonNull;
 
@@ -23,11 +26,19 @@ class RootAggregatedMemoryContext
 {
     private final MemoryReservationHandler reservationHandler;
     private final long guaranteedMemory;
+    private final long reservationGranularity;
+    private final long maxUnreportedBytes;
+    // updated without holding the monitor, which local memory contexts absorbing a change avoid
+    private final AtomicLong unreportedBytes = new AtomicLong();
 
-    RootAggregatedMemoryContext(MemoryReservationHandler reservationHandler, long guaranteedMemory)
+    RootAggregatedMemoryContext(MemoryReservationHandler reservationHandler, long guaranteedMemory, long reservationGranularity, long maxUnreportedBytes)
     {
+        checkArgument(reservationGranularity >= 0, "reservationGranularity is negative");
+        checkArgument(maxUnreportedBytes >= 0, "maxUnreportedBytes is negative");
         this.reservationHandler = requireNonNull(reservationHandler, "reservationHandler is null");
         this.guaranteedMemory = guaranteedMemory;
+        this.reservationGranularity = reservationGranularity;
+        this.maxUnreportedBytes = maxUnreportedBytes;
     }
 
     @Override
@@ -59,6 +70,27 @@ class RootAggregatedMemoryContext
         return null;
     }
 
+    @Override
+    long getReservationGranularity()
+    {
+        return reservationGranularity;
+    }
+
+    @Override
+    boolean tryUpdateUnreportedBytes(long delta)
+    {
+        while (true) {
+            long current = unreportedBytes.get();
+            long updated = current + delta;
+            if (delta > 0 && updated > maxUnreportedBytes) {
+                return false;
+            }
+            if (unreportedBytes.compareAndSet(current, updated)) {
+                return true;
+            }
+        }
+    }
+
     @Override
     void closeContext()
     {
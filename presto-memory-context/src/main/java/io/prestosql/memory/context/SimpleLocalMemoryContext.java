@@ -33,9 +33,16 @@ public final class SimpleLocalMemoryContext
 
     private final AbstractAggregatedMemoryContext parentMemoryContext;
     private final String allocationTag;
+    private final long reservationGranularity;
 
     @GuardedBy("this")
     private long usedBytes;
+    // the bytes the parent memory context is aware of, which lag behind usedBytes by less than reservationGranularity,
+    // and whose difference to usedBytes counts against the unreported bytes limit of the root memory context
+    @GuardedBy("this")
+    private long reservedBytes;
+    @GuardedBy("this")
+    private ListenableFuture<?> reservationFuture = NOT_BLOCKED;
     @GuardedBy("this")
     private boolean closed;
 
@@ -44,6 +51,7 @@ public final class SimpleLocalMemoryContext
         verify(parentMemoryContext instanceof AbstractAggregatedMemoryContext);
         this.parentMemoryContext = (AbstractAggregatedMemoryContext) requireNonNull(parentMemoryContext, "parentMemoryContext is null");
         this.allocationTag = requireNonNull(allocationTag, "allocationTag is null");
+        this.reservationGranularity = this.parentMemoryContext.getReservationGranularity();
     }
 
     @Override
@@ -62,9 +70,25 @@ public final class SimpleLocalMemoryContext
             return NOT_BLOCKED;
         }
 
+        // absorb small changes locally, so that operators updating their memory usage for every page
+        // do not contend on the monitors of the parent contexts and the memory pool
+        long unreportedBytes = Math.abs(usedBytes - reservedBytes);
+        long newUnreportedBytes = Math.abs(bytes - reservedBytes);
+        if (bytes != 0 && newUnreportedBytes < reservationGranularity && parentMemoryContext.tryUpdateUnreportedBytes(newUnreportedBytes - unreportedBytes)) {
+            usedBytes = bytes;
+            // the parent has not seen this change, so keep reporting the outcome of the last reservation
+            if (reservationFuture.isDone()) {
+                reservationFuture = NOT_BLOCKED;
+            }
+            return reservationFuture;
+        }
+
         // update the parent first as it may throw a runtime exception (e.g., ExceededMemoryLimitException)
-        ListenableFuture<?> future = parentMemoryContext.updateBytes(allocationTag, bytes - usedBytes);
+        ListenableFuture<?> future = parentMemoryContext.updateBytes(allocationTag, bytes - reservedBytes);
+        clearUnreportedBytes();
         usedBytes = bytes;
+        reservedBytes = bytes;
+        reservationFuture = future;
         return future;
     }
 
@@ -73,9 +97,11 @@ public final class SimpleLocalMemoryContext
     {
         checkState(!closed, "SimpleLocalMemoryContext is already closed");
         checkArgument(bytes >= 0, "bytes cannot be negative");
-        long delta = bytes - usedBytes;
+        long delta = bytes - reservedBytes;
         if (parentMemoryContext.tryUpdateBytes(allocationTag, delta)) {
+            clearUnreportedBytes();
             usedBytes = bytes;
+            reservedBytes = bytes;
             return true;
         }
         return false;
@@ -88,8 +114,20 @@ public final class SimpleLocalMemoryContext
             return;
         }
         closed = true;
-        parentMemoryContext.updateBytes(allocationTag, -usedBytes);
+        parentMemoryContext.updateBytes(allocationTag, -reservedBytes);
+        clearUnreportedBytes();
         usedBytes = 0;
+        reservedBytes = 0;
+        reservationFuture = NOT_BLOCKED;
+    }
+
+    @GuardedBy("this")
+    private void clearUnreportedBytes()
+    {
+        long unreportedBytes = Math.abs(usedBytes - reservedBytes);
+        if (unreportedBytes != 0) {
+            verify(parentMemoryContext.tryUpdateUnreportedBytes(-unreportedBytes));
+        }
     }
 
     @Override
@@ -98,6 +136,7 @@ public final class SimpleLocalMemoryContext
         return toStringHelper(this)
                 .add("allocationTag", allocationTag)
                 .add("usedBytes", usedBytes)
+                .add("reservedBytes", reservedBytes)
                 .toString();
     }
 }
@@ -146,6 +146,92 @@ public class TestMemoryContexts
         assertEquals(reservationHandler.getReservation(), maxMemory);
     }
 
+    @Test
+    public void testReservationGranularity()
+    {
+        TestMemoryReservationHandler reservationHandler = new TestMemoryReservationHandler(1_000);
+        AggregatedMemoryContext parentContext = newRootAggregatedMemoryContext(reservationHandler, 0, 100, 1_000);
+        AggregatedMemoryContext aggregateContext = parentContext.newAggregatedMemoryContext();
+        LocalMemoryContext localContext = aggregateContext.newLocalMemoryContext("test");
+
+        // changes smaller than the granularity are not propagated
+        assertEquals(localContext.setBytes(10), NOT_BLOCKED);
+        assertEquals(localContext.setBytes(99), NOT_BLOCKED);
+        assertEquals(localContext.getBytes(), 99);
+        assertEquals(aggregateContext.getBytes(), 0);
+        assertEquals(reservationHandler.getReservation(), 0);
+
+        assertEquals(localContext.setBytes(150), NOT_BLOCKED);
+        assertEquals(aggregateContext.getBytes(), 150);
+        assertEquals(parentContext.getBytes(), 150);
+        assertEquals(reservationHandler.getReservation(), 150);
+
+        assertEquals(localContext.setBytes(60), NOT_BLOCKED);
+        assertEquals(localContext.getBytes(), 60);
+        assertEquals(reservationHandler.getReservation(), 150);
+
+        // the pool stays exhausted until the last propagated reservation is freed
+        ListenableFuture<?> future = localContext.setBytes(1_000);
+        assertFalse(future.isDone());
+        assertEquals(reservationHandler.getReservation(), 1_000);
+        assertEquals(localContext.setBytes(950), future);
+        assertFalse(future.isDone());
+        assertEquals(localContext.setBytes(500), NOT_BLOCKED);
+        assertTrue(future.isDone());
+        assertEquals(reservationHandler.getReservation(), 500);
+
+        // tryReserve and decreasing to zero are always propagated
+        assertTrue(localContext.trySetBytes(510));
+        assertEquals(reservationHandler.getReservation(), 510);
+        assertEquals(localContext.setBytes(0), NOT_BLOCKED);
+        assertEquals(reservationHandler.getReservation(), 0);
+
+        localContext.setBytes(50);
+        localContext.close();
+        assertEquals(localContext.getBytes(), 0);
+        assertEquals(aggregateContext.getBytes(), 0);
+        assertEquals(reservationHandler.getReservation(), 0);
+    }
+
+    @Test
+    public void testMaxUnreportedBytes()
+    {
+        TestMemoryReservationHandler reservationHandler = new TestMemoryReservationHandler(1_000);
+        AggregatedMemoryContext parentContext = newRootAggregatedMemoryContext(reservationHandler, 0, 100, 150);
+        LocalMemoryContext firstContext = parentContext.newLocalMemoryContext("test");
+        LocalMemoryContext secondContext = parentContext.newAggregatedMemoryContext().newLocalMemoryContext("test");
+
+        // the unreported changes of all local contexts count against the limit of the root
+        assertEquals(firstContext.setBytes(90), NOT_BLOCKED);
+        assertEquals(secondContext.setBytes(50), NOT_BLOCKED);
+        assertEquals(reservationHandler.getReservation(), 0);
+
+        // a change which would exceed the limit is propagated, although it is smaller than the granularity
+        assertEquals(secondContext.setBytes(70), NOT_BLOCKED);
+        assertEquals(reservationHandler.getReservation(), 70);
+
+        // propagating a change frees its share of the limit
+        assertEquals(firstContext.setBytes(99), NOT_BLOCKED);
+        assertEquals(secondContext.setBytes(120), NOT_BLOCKED);
+        assertEquals(reservationHandler.getReservation(), 70);
+        assertEquals(secondContext.setBytes(130), NOT_BLOCKED);
+        assertEquals(reservationHandler.getReservation(), 130);
+
+        // a decrease of the unreported bytes is always absorbed
+        assertEquals(firstContext.setBytes(40), NOT_BLOCKED);
+        assertEquals(reservationHandler.getReservation(), 130);
+
+        firstContext.close();
+        secondContext.close();
+        assertEquals(reservationHandler.getReservation(), 0);
+        assertEquals(parentContext.getBytes(), 0);
+
+        // all of the limit is available again once the contexts are closed
+        LocalMemoryContext thirdContext = parentContext.newLocalMemoryContext("test");
+        assertEquals(thirdContext.setBytes(99), NOT_BLOCKED);
+        assertEquals(reservationHandler.getReservation(), 0);
+    }
+
     @Test(expectedExceptions = IllegalStateException.class, expectedExceptionsMessageRegExp = "SimpleLocalMemoryContext is already closed")
     public void testClosedLocalMemoryContext()
     {
@@ -27,6 +27,7 @@ import io.prestosql.plugin.jdbc.DoubleReadFunction;
 import io.prestosql.plugin.jdbc.JdbcColumnHandle;
 import io.prestosql.plugin.jdbc.JdbcExpression;
 import io.prestosql.plugin.jdbc.JdbcIdentity;
+import io.prestosql.plugin.jdbc.JdbcJoinCondition;
 import io.prestosql.plugin.jdbc.JdbcTableHandle;
 import io.prestosql.plugin.jdbc.JdbcTypeHandle;
 import io.prestosql.plugin.jdbc.LongReadFunction;
@@ -55,9 +56,12 @@ import io.prestosql.spi.connector.AggregateFunction;
 import io.prestosql.spi.connector.ColumnHandle;
 import io.prestosql.spi.connector.ConnectorSession;
 import io.prestosql.spi.connector.ConnectorTableMetadata;
+import io.prestosql.spi.connector.JoinCondition;
+import io.prestosql.spi.connector.JoinType;
 import io.prestosql.spi.connector.SchemaTableName;
 import io.prestosql.spi.connector.TableNotFoundException;
 import io.prestosql.spi.type.ArrayType;
+import io.prestosql.spi.type.CharType;
 import io.prestosql.spi.type.DecimalType;
 import io.prestosql.spi.type.Decimals;
 import io.prestosql.spi.type.LongTimestampWithTimeZone;
@@ -69,6 +73,7 @@ import io.prestosql.spi.type.TinyintType;
 import io.prestosql.spi.type.Type;
 import io.prestosql.spi.type.TypeManager;
 import io.prestosql.spi.type.TypeSignature;
+import io.prestosql.spi.type.VarcharType;
 import org.postgresql.core.TypeInfo;
 import org.postgresql.jdbc.PgConnection;
 import org.postgresql.util.PGobject;
@@ -129,9 +134,14 @@ import static io.prestosql.plugin.postgresql.TypeUtils.toPgTimestamp;
 import static io.prestosql.spi.StandardErrorCode.ALREADY_EXISTS;
 import static io.prestosql.spi.StandardErrorCode.INVALID_FUNCTION_ARGUMENT;
 import static io.prestosql.spi.StandardErrorCode.NOT_SUPPORTED;
+import static io.prestosql.spi.type.BigintType.BIGINT;
+import static io.prestosql.spi.type.BooleanType.BOOLEAN;
 import static io.prestosql.spi.type.DateTimeEncoding.packDateTimeWithZone;
 import static io.prestosql.spi.type.DateTimeEncoding.unpackMillisUtc;
+import static io.prestosql.spi.type.DateType.DATE;
 import static io.prestosql.spi.type.DecimalType.createDecimalType;
+import static io.prestosql.spi.type.IntegerType.INTEGER;
+import static io.prestosql.spi.type.SmallintType.SMALLINT;
 import static io.prestosql.spi.type.StandardTypes.JSON;
 import static io.prestosql.spi.type.TimeType.TIME;
 import static io.prestosql.spi.type.TimeZoneKey.UTC_KEY;
@@ -140,6 +150,7 @@ import static io.prestosql.spi.type.TimestampWithTimeZoneType.createTimestampWit
 import static io.prestosql.spi.type.Timestamps.MILLISECONDS_PER_SECOND;
 import static io.prestosql.spi.type.Timestamps.NANOSECONDS_PER_MILLISECOND;
 import static io.prestosql.spi.type.Timestamps.PICOSECONDS_PER_NANOSECOND;
+import static io.prestosql.spi.type.TinyintType.TINYINT;
 import static io.prestosql.spi.type.TypeSignature.mapType;
 import static io.prestosql.spi.type.VarbinaryType.VARBINARY;
 import static io.prestosql.spi.type.VarcharType.VARCHAR;
@@ -482,6 +493,41 @@ public class PostgreSqlClient
         return aggregateFunctionRewriter.rewrite(session, aggregate, assignments);
     }
 
+    @Override
+    public boolean supportsJoinPushdown(ConnectorSession session, JoinType joinType, List<JdbcJoinCondition> joinConditions)
+    {
+        return joinConditions.stream().allMatch(PostgreSqlClient::isSupportedJoinCondition);
+    }
+
+    private static boolean isSupportedJoinCondition(JdbcJoinCondition joinCondition)
+    {
+        Type leftType = joinCondition.getLeftColumn().getColumnType();
+        Type rightType = joinCondition.getRightColumn().getColumnType();
+        if (isCharacterType(leftType) || isCharacterType(rightType)) {
+            // ordering of character types in PostgreSQL depends on the collation, equality does not
+            return isCharacterType(leftType) &&
+                    isCharacterType(rightType) &&
+                    (joinCondition.getOperator() == JoinCondition.Operator.EQUAL || joinCondition.getOperator() == JoinCondition.Operator.NOT_EQUAL);
+        }
+        return isSupportedJoinConditionType(leftType) && isSupportedJoinConditionType(rightType);
+    }
+
+    private static boolean isCharacterType(Type type)
+    {
+        return type instanceof VarcharType || type instanceof CharType;
+    }
+
+    private static boolean isSupportedJoinConditionType(Type type)
+    {
+        return type == BIGINT ||
+                type == INTEGER ||
+                type == SMALLINT ||
+                type == TINYINT ||
+                type == BOOLEAN ||
+                type == DATE ||
+                type instanceof DecimalType;
+    }
+
     private static Optional<JdbcTypeHandle> toTypeHandle(DecimalType decimalType)
     {
         return Optional.of(new JdbcTypeHandle(Types.NUMERIC, Optional.of("decimal"), decimalType.getPrecision(), Optional.of(decimalType.getScale()), Optional.empty(), Optional.empty()));
@@ -139,6 +139,7 @@ public enum StandardErrorCode
     CONFIGURATION_UNAVAILABLE(65560, INTERNAL_ERROR),
     INVALID_RESOURCE_GROUP(65561, INTERNAL_ERROR),
     SERIALIZATION_ERROR(65562, INTERNAL_ERROR),
+    MERGE_JOIN_INPUT_NOT_SORTED(65563, INTERNAL_ERROR),
 
     GENERIC_INSUFFICIENT_RESOURCES(131072, INSUFFICIENT_RESOURCES),
     EXCEEDED_GLOBAL_MEMORY_LIMIT(131073, INSUFFICIENT_RESOURCES),
@@ -0,0 +1,50 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.spi.connector;
+
+import static java.lang.String.format;
+
+public final class BasicRelationStatistics
+{
+    private final long rowCount;
+    private final long outputSizeInBytes;
+
+    public BasicRelationStatistics(long rowCount, long outputSizeInBytes)
+    {
+        if (rowCount < 0) {
+            throw new IllegalArgumentException("rowCount is negative");
+        }
+        if (outputSizeInBytes < 0) {
+            throw new IllegalArgumentException("outputSizeInBytes is negative");
+        }
+        this.rowCount = rowCount;
+        this.outputSizeInBytes = outputSizeInBytes;
+    }
+
+    public long getRowCount()
+    {
+        return rowCount;
+    }
+
+    public long getOutputSizeInBytes()
+    {
+        return outputSizeInBytes;
+    }
+
+    @Override
+    public String toString()
+    {
+        return format("BasicRelationStatistics{rowCount=%s, outputSizeInBytes=%s}", rowCount, outputSizeInBytes);
+    }
+}
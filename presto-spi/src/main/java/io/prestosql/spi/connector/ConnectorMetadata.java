@@ -978,6 +978,36 @@ public interface ConnectorMetadata
         return Optional.empty();
     }
 
+    /**
+     * Attempt to push down the join operation.
+     * <p>
+     * Connectors can indicate whether they don't support join pushdown or that the action had no effect
+     * by returning {@link Optional#empty()}. Connectors should expect this method may be called multiple times.
+     * </p>
+     * <b>Note</b>: it's critical for connectors to return {@link Optional#empty()} if calling this method has no effect for that
+     * invocation, even if the connector generally supports join pushdown. Doing otherwise can cause the optimizer
+     * to loop indefinitely.
+     * <p>
+     * The {@code leftAssignments} and {@code rightAssignments} map the variables used in {@code joinConditions}
+     * to the column handles of the respective join sources. If the method returns a result, every column handle
+     * of the assignments must be mapped to a column handle of the joined relation in
+     * {@link JoinApplicationResult#getLeftColumnHandles()} and {@link JoinApplicationResult#getRightColumnHandles()}.
+     * </p>
+     * The {@code statistics} can be used by the connector to decide whether the pushdown is beneficial.
+     */
+    default Optional<JoinApplicationResult<ConnectorTableHandle>> applyJoin(
+            ConnectorSession session,
+            JoinType joinType,
+            ConnectorTableHandle left,
+            ConnectorTableHandle right,
+            List<JoinCondition> joinConditions,
+            Map<String, ColumnHandle> leftAssignments,
+            Map<String, ColumnHandle> rightAssignments,
+            JoinStatistics statistics)
+    {
+        return Optional.empty();
+    }
+
     /**
      * Allows the connector to reject the table scan produced by the planner.
      * <p>
@@ -987,6 +1017,26 @@ public interface ConnectorMetadata
      */
     default void validateScan(ConnectorSession session, ConnectorTableHandle handle) {}
 
+    /**
+     * Returns a token that identifies the version of the data of the table, or empty if the connector
+     * cannot tell when the data changes. The token must change whenever a scan of the table could return
+     * different rows, so that engine level caches keyed on it are never served stale data.
+     */
+    default Optional<String> getTableVersion(ConnectorSession session, ConnectorTableHandle handle)
+    {
+        return Optional.empty();
+    }
+
+    /**
+     * Returns whether the version returned by {@link #getTableVersion} is guaranteed to identify the data
+     * of the table, for example because it refers to an immutable snapshot. Versions derived on a best effort
+     * basis, e.g. from a listing of files, are only used by engine level caches whose entries expire.
+     */
+    default boolean isTableVersionImmutable(ConnectorSession session, ConnectorTableHandle handle)
+    {
+        return false;
+    }
+
     /**
      * Create the specified materialized view. The view definition is intended to
      * be serialized by the connector for permanent storage.
@@ -16,6 +16,7 @@ package io.prestosql.spi.connector;
 import io.prestosql.spi.HostAddress;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface ConnectorSplit
 {
@@ -24,4 +25,14 @@ public interface ConnectorSplit
     List<HostAddress> getAddresses();
 
     Object getInfo();
+
+    /**
+     * Returns a key identifying the data read by this split, for example a file path and offset.
+     * Splits with the same key are preferably scheduled on the same nodes, so that node local
+     * caches can be reused across queries.
+     */
+    default Optional<String> getAffinityKey()
+    {
+        return Optional.empty();
+    }
 }
@@ -13,10 +13,14 @@
  */
 package io.prestosql.spi.connector;
 
+import io.prestosql.spi.predicate.BloomFilter;
 import io.prestosql.spi.predicate.TupleDomain;
 
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
+import static java.util.Collections.emptyMap;
+
 public interface DynamicFilter
 {
     CompletableFuture<?> NOT_BLOCKED = CompletableFuture.completedFuture(null);
@@ -69,4 +73,16 @@ public interface DynamicFilter
     boolean isAwaitable();
 
     TupleDomain<ColumnHandle> getCurrentPredicate();
+
+    /**
+     * Returns bloom filters of join build-side values for probe-side columns.
+     * Rows for which {@link BloomFilter#mightContain} returns false for the column value,
+     * as well as rows with null values in these columns, can be removed.
+     * Bloom filters are only provided for columns whose {@link #getCurrentPredicate()} domain
+     * is not already an exact set of values.
+     */
+    default Map<ColumnHandle, BloomFilter> getCurrentBloomFilters()
+    {
+        return emptyMap();
+    }
 }
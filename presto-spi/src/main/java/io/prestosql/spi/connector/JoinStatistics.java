@@ -0,0 +1,29 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.spi.connector;
+
+import java.util.Optional;
+
+/**
+ * Estimates of the relations participating in a join, as computed by the engine.
+ * Estimates are computed lazily, so connectors that do not need them do not pay for them.
+ */
+public interface JoinStatistics
+{
+    Optional<BasicRelationStatistics> getLeftStatistics();
+
+    Optional<BasicRelationStatistics> getRightStatistics();
+
+    Optional<BasicRelationStatistics> getJoinStatistics();
+}
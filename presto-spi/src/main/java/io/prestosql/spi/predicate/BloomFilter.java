@@ -0,0 +1,199 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.spi.predicate;
+
+import io.prestosql.spi.block.Block;
+import io.prestosql.spi.type.Type;
+
+import static java.lang.Math.max;
+import static java.lang.Math.pow;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Split block bloom filter of values hashed with {@link Type#hash(Block, int)}.
+ * Each value sets one bit in each of the eight words of a single 512-bit block,
+ * so a lookup touches only one cache line.
+ * <p>
+ * A bloom filter never rejects a value that was added to it, but may accept
+ * values that were not added.
+ */
+public final class BloomFilter
+{
+    private static final int WORDS_PER_BLOCK = 8;
+    private static final int BLOCK_SIZE_IN_BYTES = WORDS_PER_BLOCK * Long.BYTES;
+    // odd multipliers used to derive the bit position within each word
+    private static final int[] SALTS = {0x47b6137b, 0x44974d91, 0x8824ad5b, 0xa2b7289d, 0x705495c7, 0x2df1424b, 0x9efc4947, 0x5c6bfb31};
+
+    private final long[] words;
+    private final int blockMask;
+
+    private BloomFilter(long[] words)
+    {
+        this.words = requireNonNull(words, "words is null");
+        int blocks = words.length / WORDS_PER_BLOCK;
+        if (blocks == 0 || Integer.bitCount(blocks) != 1 || words.length % WORDS_PER_BLOCK != 0) {
+            throw new IllegalArgumentException("Number of blocks must be a power of 2: " + words.length);
+        }
+        this.blockMask = blocks - 1;
+    }
+
+    /**
+     * Creates a builder of a bloom filter that uses at most {@code maxSizeInBytes} bytes.
+     * Only bloom filters created with the same size can be combined with {@link #union(BloomFilter)}.
+     */
+    public static Builder builder(long maxSizeInBytes)
+    {
+        long blocks = Long.highestOneBit(max(1, maxSizeInBytes / BLOCK_SIZE_IN_BYTES));
+        if (blocks > Integer.MAX_VALUE / WORDS_PER_BLOCK) {
+            throw new IllegalArgumentException(format("Bloom filter size is too large: %s", maxSizeInBytes));
+        }
+        return new Builder(new long[(int) blocks * WORDS_PER_BLOCK]);
+    }
+
+    public boolean mightContain(Type type, Block block, int position)
+    {
+        return mightContain(type.hash(block, position));
+    }
+
+    public boolean mightContain(long hash)
+    {
+        long mixed = mix(hash);
+        int offset = blockOffset(mixed, blockMask);
+        for (int word = 0; word < WORDS_PER_BLOCK; word++) {
+            if ((words[offset + word] & wordMask(mixed, word)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public BloomFilter union(BloomFilter other)
+    {
+        if (words.length != other.words.length) {
+            throw new IllegalArgumentException(format("Bloom filters have different sizes: %s and %s", getSizeInBytes(), other.getSizeInBytes()));
+        }
+        long[] result = new long[words.length];
+        for (int i = 0; i < words.length; i++) {
+            result[i] = words[i] | other.words[i];
+        }
+        return new BloomFilter(result);
+    }
+
+    /**
+     * Estimates the probability that a value which was not added to the filter is accepted,
+     * based on the fraction of bits that are set.
+     */
+    public double getEstimatedFalsePositiveProbability()
+    {
+        return estimateFalsePositiveProbability(words);
+    }
+
+    public long getSizeInBytes()
+    {
+        return (long) words.length * Long.BYTES;
+    }
+
+    @Override
+    public String toString()
+    {
+        return format("BloomFilter{sizeInBytes=%s, estimatedFalsePositiveProbability=%.4f}", getSizeInBytes(), getEstimatedFalsePositiveProbability());
+    }
+
+    private static double estimateFalsePositiveProbability(long[] words)
+    {
+        long bitsSet = 0;
+        for (long word : words) {
+            bitsSet += Long.bitCount(word);
+        }
+        return pow((double) bitsSet / ((long) words.length * Long.SIZE), WORDS_PER_BLOCK);
+    }
+
+    private static long mix(long hash)
+    {
+        // Type#hash implementations do not guarantee well distributed bits (e.g. BOOLEAN), so remix the hash
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static int blockOffset(long mixedHash, int blockMask)
+    {
+        return ((int) (mixedHash >>> 32) & blockMask) * WORDS_PER_BLOCK;
+    }
+
+    private static long wordMask(long mixedHash, int word)
+    {
+        // the block is selected with the high 32 bits of the hash, and the bits within the block with the low 32 bits
+        return 1L << ((((int) mixedHash) * SALTS[word]) >>> 26);
+    }
+
+    public static final class Builder
+    {
+        private long[] words;
+        private final int blockMask;
+
+        private Builder(long[] words)
+        {
+            this.words = words;
+            this.blockMask = words.length / WORDS_PER_BLOCK - 1;
+        }
+
+        public Builder add(Type type, Block block, int position)
+        {
+            return add(type.hash(block, position));
+        }
+
+        public Builder add(long hash)
+        {
+            checkNotBuilt();
+            long mixed = mix(hash);
+            int offset = blockOffset(mixed, blockMask);
+            for (int word = 0; word < WORDS_PER_BLOCK; word++) {
+                words[offset + word] |= wordMask(mixed, word);
+            }
+            return this;
+        }
+
+        public double getEstimatedFalsePositiveProbability()
+        {
+            checkNotBuilt();
+            return estimateFalsePositiveProbability(words);
+        }
+
+        public long getSizeInBytes()
+        {
+            checkNotBuilt();
+            return (long) words.length * Long.BYTES;
+        }
+
+        public BloomFilter build()
+        {
+            checkNotBuilt();
+            BloomFilter bloomFilter = new BloomFilter(words);
+            words = null;
+            return bloomFilter;
+        }
+
+        private void checkNotBuilt()
+        {
+            if (words == null) {
+                throw new IllegalStateException("Bloom filter has already been built");
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.prestosql.spi.predicate;
+
+import io.prestosql.spi.block.Block;
+import io.prestosql.spi.block.BlockBuilder;
+import org.testng.annotations.Test;
+
+import static io.airlift.slice.Slices.utf8Slice;
+import static io.prestosql.spi.type.BigintType.BIGINT;
+import static io.prestosql.spi.type.VarcharType.VARCHAR;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestBloomFilter
+{
+    @Test
+    public void testNoFalseNegatives()
+    {
+        BloomFilter.Builder builder = BloomFilter.builder(64 * 1024);
+        for (long value = 0; value < 10_000; value++) {
+            builder.add(value * 7);
+        }
+        BloomFilter bloomFilter = builder.build();
+        for (long value = 0; value < 10_000; value++) {
+            assertTrue(bloomFilter.mightContain(value * 7));
+        }
+    }
+
+    @Test
+    public void testFalsePositiveProbability()
+    {
+        BloomFilter.Builder builder = BloomFilter.builder(64 * 1024);
+        for (long value = 0; value < 50_000; value++) {
+            builder.add(BIGINT.hash(createBigintBlock(value), 0));
+        }
+        BloomFilter bloomFilter = builder.build();
+
+        int falsePositives = 0;
+        for (long value = 50_000; value < 150_000; value++) {
+            if (bloomFilter.mightContain(BIGINT.hash(createBigintBlock(value), 0))) {
+                falsePositives++;
+            }
+        }
+        // 10 bits per value
+        assertTrue(falsePositives < 2_000, "too many false positives: " + falsePositives);
+        assertTrue(bloomFilter.getEstimatedFalsePositiveProbability() < 0.02);
+    }
+
+    @Test
+    public void testTypedValues()
+    {
+        BlockBuilder blockBuilder = VARCHAR.createBlockBuilder(null, 3);
+        VARCHAR.writeSlice(blockBuilder, utf8Slice("alice"));
+        VARCHAR.writeSlice(blockBuilder, utf8Slice("bob"));
+        VARCHAR.writeSlice(blockBuilder, utf8Slice("carol"));
+        Block block = blockBuilder.build();
+
+        BloomFilter bloomFilter = BloomFilter.builder(1024)
+                .add(VARCHAR, block, 0)
+                .add(VARCHAR, block, 2)
+                .build();
+        assertTrue(bloomFilter.mightContain(VARCHAR, block, 0));
+        assertFalse(bloomFilter.mightContain(VARCHAR, block, 1));
+        assertTrue(bloomFilter.mightContain(VARCHAR, block, 2));
+    }
+
+    @Test
+    public void testUnion()
+    {
+        BloomFilter first = BloomFilter.builder(1024).add(1).add(2).build();
+        BloomFilter second = BloomFilter.builder(1024).add(3).build();
+        BloomFilter union = first.union(second);
+        assertTrue(union.mightContain(1));
+        assertTrue(union.mightContain(2));
+        assertTrue(union.mightContain(3));
+        assertEquals(union.getSizeInBytes(), 1024);
+
+        try {
+            first.union(BloomFilter.builder(2048).build());
+            fail("expected exception");
+        }
+        catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testSize()
+    {
+        assertEquals(BloomFilter.builder(0).getSizeInBytes(), 64);
+        assertEquals(BloomFilter.builder(1000).getSizeInBytes(), 512);
+        assertEquals(BloomFilter.builder(1024).getSizeInBytes(), 1024);
+        assertEquals(BloomFilter.builder(256 * 1024).getSizeInBytes(), 256 * 1024);
+    }
+
+    @Test
+    public void testEmpty()
+    {
+        BloomFilter bloomFilter = BloomFilter.builder(1024).build();
+        assertFalse(bloomFilter.mightContain(0));
+        assertEquals(bloomFilter.getEstimatedFalsePositiveProbability(), 0.0);
+    }
+
+    private static Block createBigintBlock(long value)
+    {
+        BlockBuilder blockBuilder = BIGINT.createBlockBuilder(null, 1);
+        BIGINT.writeLong(blockBuilder, value);
+        return blockBuilder.build();
+    }
+}
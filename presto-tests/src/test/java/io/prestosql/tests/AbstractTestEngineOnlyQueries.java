@@ -2034,6 +2034,53 @@ public abstract class AbstractTestEngineOnlyQueries
         assertContains(expected, actual);
     }
 
+    @Test
+    public void testRankFilter()
+    {
+        MaterializedResult actual = computeActual("" +
+                "SELECT * FROM (" +
+                "SELECT a, b, rank() OVER (PARTITION BY a ORDER BY b) rnk\n" +
+                "FROM (VALUES (1, 1), (1, 2), (1, 2), (1, 3), (2, 1), (2, 1), (2, 2)) t (a, b)) t WHERE rnk <= 2");
+
+        MaterializedResult expected = resultBuilder(getSession(), BIGINT, BIGINT, BIGINT)
+                .row(1, 1, 1L)
+                .row(1, 2, 2L)
+                .row(1, 2, 2L)
+                .row(2, 1, 1L)
+                .row(2, 1, 1L)
+                .build();
+        assertEqualsIgnoreOrder(actual.getMaterializedRows(), expected.getMaterializedRows());
+
+        actual = computeActual("" +
+                "SELECT * FROM (" +
+                "SELECT a, b, dense_rank() OVER (PARTITION BY a ORDER BY b) rnk\n" +
+                "FROM (VALUES (1, 1), (1, 2), (1, 2), (1, 3), (2, 1), (2, 1), (2, 2)) t (a, b)) t WHERE rnk <= 2");
+
+        expected = resultBuilder(getSession(), BIGINT, BIGINT, BIGINT)
+                .row(1, 1, 1L)
+                .row(1, 2, 2L)
+                .row(1, 2, 2L)
+                .row(2, 1, 1L)
+                .row(2, 1, 1L)
+                .row(2, 2, 2L)
+                .build();
+        assertEqualsIgnoreOrder(actual.getMaterializedRows(), expected.getMaterializedRows());
+
+        // ties at the cutoff are kept when there is no partitioning
+        actual = computeActual("" +
+                "SELECT * FROM (" +
+                "SELECT a, rank() OVER (ORDER BY a) rnk\n" +
+                "FROM (VALUES (1), (2), (2), (2), (3)) t (a)) t WHERE rnk < 3");
+
+        expected = resultBuilder(getSession(), BIGINT, BIGINT)
+                .row(1, 1L)
+                .row(2, 2L)
+                .row(2, 2L)
+                .row(2, 2L)
+                .build();
+        assertEqualsIgnoreOrder(actual.getMaterializedRows(), expected.getMaterializedRows());
+    }
+
     @Test
     public void testRowNumberUnpartitionedFilter()
     {